@@ -0,0 +1,85 @@
+package adql;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import adql.db.DBTable;
+import adql.db.DBType;
+import adql.db.DBType.DBDatatype;
+import adql.db.DefaultDBColumn;
+import adql.db.DefaultDBTable;
+
+/**
+ * Schema and queries shared by the ADQL benchmarks.
+ *
+ * <p>
+ * 	The schema <code>bench</code> contains the given number of tables
+ * 	(<code>table_0</code>, <code>table_1</code>, ...), all with the same
+ * 	columns: <code>id</code>, <code>ra</code>, <code>dec</code>,
+ * 	<code>mag</code> and <code>name</code>. The queries only use the two
+ * 	first tables ; the other ones make the metadata as big as the one of a
+ * 	real TAP service.
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 1.5 (10/2026)
+ */
+public final class BenchmarkFixtures {
+
+	/** Query shapes available with {@link #getQuery(String, int)}. */
+	public final static String[] QUERY_SHAPES = new String[]{ "cone", "join", "inlist", "subquery" };
+
+	private BenchmarkFixtures(){}
+
+	/**
+	 * Create the tables of the schema <code>bench</code>.
+	 *
+	 * @param nbTables	Number of tables. <i>At least 2.</i>
+	 *
+	 * @return	All tables.
+	 */
+	public static List<DBTable> createTables(final int nbTables){
+		List<DBTable> tables = new ArrayList<DBTable>(nbTables);
+		for(int i = 0; i < Math.max(2, nbTables); i++){
+			DefaultDBTable table = new DefaultDBTable(null, null, "bench", "bench", "table_" + i, "table_" + i);
+			table.addColumn(new DefaultDBColumn("id", new DBType(DBDatatype.BIGINT), table));
+			table.addColumn(new DefaultDBColumn("ra", new DBType(DBDatatype.DOUBLE), table));
+			table.addColumn(new DefaultDBColumn("dec", new DBType(DBDatatype.DOUBLE), table));
+			table.addColumn(new DefaultDBColumn("mag", new DBType(DBDatatype.REAL), table));
+			table.addColumn(new DefaultDBColumn("name", new DBType(DBDatatype.VARCHAR), table));
+			tables.add(table);
+		}
+		return tables;
+	}
+
+	/**
+	 * Get a realistic ADQL query of the given shape.
+	 *
+	 * @param shape			One of {@link #QUERY_SHAPES}.
+	 * @param inListSize	Number of values of the IN list
+	 *                  	<i>(only for the shape <code>inlist</code>)</i>.
+	 *
+	 * @return	The ADQL query.
+	 *
+	 * @throws IllegalArgumentException	If the shape is unknown.
+	 */
+	public static String getQuery(final String shape, final int inListSize) throws IllegalArgumentException{
+		if ("cone".equals(shape))
+			return "SELECT id, ra, dec, mag FROM bench.table_0 WHERE 1 = CONTAINS(POINT('ICRS', ra, dec), CIRCLE('ICRS', 10.68, 41.27, 0.5)) AND mag < 15 ORDER BY mag";
+		else if ("join".equals(shape))
+			return "SELECT TOP 1000 a.id, b.id AS id2, DISTANCE(POINT('ICRS', a.ra, a.dec), POINT('ICRS', b.ra, b.dec)) AS dist FROM bench.table_0 AS a JOIN bench.table_1 AS b ON 1 = CONTAINS(POINT('ICRS', a.ra, a.dec), CIRCLE('ICRS', b.ra, b.dec, 0.001)) WHERE a.mag < 18 ORDER BY dist";
+		else if ("inlist".equals(shape)){
+			StringBuffer buf = new StringBuffer("SELECT id, name FROM bench.table_0 WHERE id IN (");
+			for(int i = 0; i < inListSize; i++){
+				if (i > 0)
+					buf.append(", ");
+				buf.append(i * 7);
+			}
+			return buf.append(')').toString();
+		}else if ("subquery".equals(shape))
+			return "SELECT s.name, s.mag FROM (SELECT id, name, mag FROM bench.table_0 WHERE mag < 12) AS s WHERE s.id IN (SELECT id FROM bench.table_1 WHERE ra BETWEEN 10 AND 20 AND name LIKE 'HD%') AND EXISTS(SELECT * FROM bench.table_1 AS t WHERE t.mag < 10)";
+		else
+			throw new IllegalArgumentException("Unknown query shape: \"" + shape + "\"!");
+	}
+
+}
@@ -0,0 +1,64 @@
+package adql.db;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import adql.BenchmarkFixtures;
+import adql.parser.ADQLParser;
+import adql.parser.ParseException;
+import adql.query.ADQLQuery;
+
+/**
+ * Check of parsed queries against a TAP_SCHEMA of different sizes.
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 1.5 (10/2026)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class DBCheckerBenchmark {
+
+	@Param({ "cone", "join", "inlist", "subquery" })
+	public String shape;
+
+	@Param({ "10", "1000" })
+	public int nbTables;
+
+	@Param({ "1000" })
+	public int inListSize;
+
+	private List<DBTable> tables;
+
+	private DBChecker checker;
+
+	private ADQLQuery query;
+
+	@Setup
+	public void setUp() throws ParseException{
+		tables = BenchmarkFixtures.createTables(nbTables);
+		checker = new DBChecker(tables);
+		query = new ADQLParser().parseQuery(BenchmarkFixtures.getQuery(shape, inListSize));
+	}
+
+	@Benchmark
+	public ADQLQuery check() throws ParseException{
+		checker.check(query);
+		return query;
+	}
+
+	@Benchmark
+	public DBChecker createChecker(){
+		return new DBChecker(tables);
+	}
+
+}
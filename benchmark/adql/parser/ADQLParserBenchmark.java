@@ -0,0 +1,49 @@
+package adql.parser;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import adql.BenchmarkFixtures;
+import adql.query.ADQLQuery;
+
+/**
+ * Parsing (without any check) of queries of different shapes.
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 1.5 (10/2026)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ADQLParserBenchmark {
+
+	@Param({ "cone", "join", "inlist", "subquery" })
+	public String shape;
+
+	@Param({ "1000" })
+	public int inListSize;
+
+	private String query;
+
+	private ADQLParser parser;
+
+	@Setup
+	public void setUp(){
+		query = BenchmarkFixtures.getQuery(shape, inListSize);
+		parser = new ADQLParser();
+	}
+
+	@Benchmark
+	public ADQLQuery parse() throws ParseException{
+		return parser.parseQuery(query);
+	}
+
+}
@@ -0,0 +1,55 @@
+package adql.translator;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import adql.BenchmarkFixtures;
+import adql.db.DBChecker;
+import adql.parser.ADQLParser;
+import adql.parser.ParseException;
+import adql.query.ADQLQuery;
+
+/**
+ * SQL translation of checked queries.
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 1.5 (10/2026)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TranslatorBenchmark {
+
+	@Param({ "cone", "join", "inlist", "subquery" })
+	public String shape;
+
+	@Param({ "postgresql", "pgsphere" })
+	public String translatorName;
+
+	@Param({ "1000" })
+	public int inListSize;
+
+	private JDBCTranslator translator;
+
+	private ADQLQuery query;
+
+	@Setup
+	public void setUp() throws ParseException{
+		translator = "pgsphere".equals(translatorName) ? new PgSphereTranslator() : new PostgreSQLTranslator();
+		query = new ADQLParser(new DBChecker(BenchmarkFixtures.createTables(10))).parseQuery(BenchmarkFixtures.getQuery(shape, inListSize));
+	}
+
+	@Benchmark
+	public String translate() throws TranslationException{
+		return translator.translate(query);
+	}
+
+}
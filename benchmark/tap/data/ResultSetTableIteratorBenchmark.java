@@ -0,0 +1,91 @@
+package tap.data;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Iteration over a JDBC result (H2 in-memory database) through
+ * {@link ResultSetTableIterator}.
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ResultSetTableIteratorBenchmark {
+
+	@Param({ "10000", "100000" })
+	public int nbRows;
+
+	private Connection conn;
+
+	@Setup
+	public void setUp() throws Exception{
+		Class.forName("org.h2.Driver");
+		conn = DriverManager.getConnection("jdbc:h2:mem:rsIteratorBenchmark");
+		Statement stmt = conn.createStatement();
+		try{
+			stmt.execute("CREATE TABLE catalogue (id BIGINT, ra DOUBLE, dec DOUBLE, mag REAL, nb_obs INTEGER, name VARCHAR(32))");
+		}finally{
+			stmt.close();
+		}
+
+		PreparedStatement insert = conn.prepareStatement("INSERT INTO catalogue VALUES (?, ?, ?, ?, ?, ?)");
+		try{
+			SyntheticTableIterator it = new SyntheticTableIterator(nbRows);
+			while(it.nextRow()){
+				int i = 1;
+				while(it.hasNextCol())
+					insert.setObject(i++, it.nextCol());
+				insert.addBatch();
+			}
+			insert.executeBatch();
+		}finally{
+			insert.close();
+		}
+	}
+
+	@TearDown
+	public void tearDown() throws SQLException{
+		conn.close();
+	}
+
+	@Benchmark
+	public void iterate(final Blackhole bh) throws Exception{
+		Statement stmt = conn.createStatement();
+		try{
+			ResultSet rs = stmt.executeQuery("SELECT id, ra, dec, mag, nb_obs, name FROM catalogue");
+			TableIterator it = new ResultSetTableIterator(rs);
+			try{
+				while(it.nextRow()){
+					while(it.hasNextCol()){
+						bh.consume(it.nextCol());
+						bh.consume(it.getColType());
+					}
+				}
+			}finally{
+				it.close();
+			}
+		}finally{
+			stmt.close();
+		}
+	}
+
+}
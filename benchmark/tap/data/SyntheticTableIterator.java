@@ -0,0 +1,87 @@
+package tap.data;
+
+import java.util.NoSuchElementException;
+
+import adql.db.DBType;
+import adql.db.DBType.DBDatatype;
+import tap.metadata.TAPColumn;
+
+/**
+ * Table of the given number of rows, generated on the fly, with typical
+ * columns of an astronomical catalogue.
+ *
+ * <p><i>Note:
+ * 	Values are computed from the row index so that the same table is
+ * 	produced at each iteration, without any I/O.
+ * </i></p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ */
+public class SyntheticTableIterator implements TableIterator {
+
+	/** Columns of the synthetic table. */
+	public final static TAPColumn[] COLUMNS = new TAPColumn[]{ new TAPColumn("id", new DBType(DBDatatype.BIGINT), "Identifier", null, "meta.id;meta.main", null), new TAPColumn("ra", new DBType(DBDatatype.DOUBLE), "Right ascension", "deg", "pos.eq.ra;meta.main", null), new TAPColumn("dec", new DBType(DBDatatype.DOUBLE), "Declination", "deg", "pos.eq.dec;meta.main", null), new TAPColumn("mag", new DBType(DBDatatype.REAL), "G magnitude", "mag", "phot.mag", null), new TAPColumn("nb_obs", new DBType(DBDatatype.INTEGER), "Number of observations", null, "meta.number", null), new TAPColumn("name", new DBType(DBDatatype.VARCHAR), "Name", null, "meta.id", null) };
+
+	private final int nbRows;
+
+	private int row = -1;
+
+	private int col = 0;
+
+	/**
+	 * Build a synthetic table.
+	 *
+	 * @param nbRows	Number of rows.
+	 */
+	public SyntheticTableIterator(final int nbRows){
+		this.nbRows = nbRows;
+	}
+
+	@Override
+	public TAPColumn[] getMetadata(){
+		return COLUMNS;
+	}
+
+	@Override
+	public boolean nextRow(){
+		col = 0;
+		return ++row < nbRows;
+	}
+
+	@Override
+	public boolean hasNextCol(){
+		if (row < 0 || row >= nbRows)
+			throw new IllegalStateException("No row to read!");
+		return col < COLUMNS.length;
+	}
+
+	@Override
+	public Object nextCol() throws NoSuchElementException{
+		if (!hasNextCol())
+			throw new NoSuchElementException();
+		switch(col++){
+			case 0:
+				return Long.valueOf(1000000000L + row);
+			case 1:
+				return Double.valueOf((row * 0.0137) % 360);
+			case 2:
+				return Double.valueOf(((row * 0.0071) % 180) - 90);
+			case 3:
+				return Float.valueOf(8 + (row % 1300) / 100f);
+			case 4:
+				return Integer.valueOf(row % 97);
+			default:
+				return (row % 10 == 0) ? null : "Gaia DR3 " + (1000000000L + row);
+		}
+	}
+
+	@Override
+	public DBType getColType(){
+		return COLUMNS[col - 1].getDatatype();
+	}
+
+	@Override
+	public void close(){}
+
+}
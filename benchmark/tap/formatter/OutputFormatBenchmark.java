@@ -0,0 +1,103 @@
+package tap.formatter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import tap.ServiceConnection;
+import tap.TAPExecutionReport;
+import tap.TAPJob;
+import tap.data.SyntheticTableIterator;
+import tap.parameters.ServiceConnectionOfTest;
+import tap.parameters.TAPParameters;
+import uk.ac.starlink.votable.DataFormat;
+import uk.ac.starlink.votable.VOTableVersion;
+
+/**
+ * Formatting throughput of each output format, on a synthetic table written
+ * in a stream discarding all bytes.
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class OutputFormatBenchmark {
+
+	@Param({ "votable", "votable_binary2", "csv", "tsv", "json", "fits" })
+	public String format;
+
+	@Param({ "10000", "100000" })
+	public int nbRows;
+
+	private OutputFormat formatter;
+
+	private TAPExecutionReport report;
+
+	/** Stream discarding all written bytes (but counting them). */
+	private static class NullOutputStream extends OutputStream {
+		long count = 0;
+
+		@Override
+		public void write(final int b){
+			count++;
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len){
+			count += len;
+		}
+	}
+
+	@Setup
+	public void setUp() throws Exception{
+		ServiceConnection service = new ServiceConnectionOfTest();
+		if ("votable".equals(format))
+			formatter = new VOTableFormat(service, DataFormat.TABLEDATA);
+		else if ("votable_binary2".equals(format))
+			formatter = new VOTableFormat(service, DataFormat.BINARY2, VOTableVersion.V13);
+		else if ("csv".equals(format))
+			formatter = new SVFormat(service, SVFormat.COMMA_SEPARATOR);
+		else if ("tsv".equals(format))
+			formatter = new SVFormat(service, SVFormat.TAB_SEPARATOR);
+		else if ("json".equals(format))
+			formatter = new JSONFormat(service);
+		else if ("fits".equals(format))
+			formatter = new FITSFormat(service);
+		else
+			throw new IllegalArgumentException("Unknown format: \"" + format + "\"!");
+
+		HashMap<String,Object> params = new HashMap<String,Object>();
+		params.put(TAPJob.PARAM_MAX_REC, String.valueOf(TAPJob.UNLIMITED_MAX_REC));
+		report = new TAPExecutionReport("benchmark", true, new TAPParameters(service, params));
+		report.resultingColumns = SyntheticTableIterator.COLUMNS;
+	}
+
+	@Benchmark
+	public long write() throws Exception{
+		NullOutputStream output = new NullOutputStream();
+		SyntheticTableIterator it = new SyntheticTableIterator(nbRows);
+		try{
+			formatter.writeResult(it, output, report, Thread.currentThread());
+			output.flush();
+		}finally{
+			it.close();
+			try{
+				output.close();
+			}catch(IOException ioe){}
+		}
+		return output.count;
+	}
+
+}
@@ -0,0 +1,178 @@
+package tap.upload;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import adql.translator.PostgreSQLTranslator;
+import tap.AbstractTAPFactory;
+import tap.TAPException;
+import tap.TAPExecutionReport;
+import tap.TAPFactory;
+import tap.TAPJob;
+import tap.data.SyntheticTableIterator;
+import tap.db.DBConnection;
+import tap.db.JDBCConnection;
+import tap.formatter.VOTableFormat;
+import tap.log.DefaultTAPLog;
+import tap.log.TAPLog;
+import tap.metadata.TAPSchema;
+import tap.metadata.TAPTable;
+import tap.parameters.DALIUpload;
+import tap.parameters.ServiceConnectionOfTest;
+import tap.parameters.TAPParameters;
+import uk.ac.starlink.votable.DataFormat;
+import uws.service.file.LocalUWSFileManager;
+import uws.service.request.UploadFile;
+
+/**
+ * Ingestion of uploaded VOTables into an H2 in-memory database.
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UploaderBenchmark {
+
+	private final static String DB_URL = "jdbc:h2:mem:uploaderBenchmark;DB_CLOSE_DELAY=-1";
+
+	/** Number of tables uploaded at once. */
+	private final static int NB_TABLES = 3;
+
+	@Param({ "10000" })
+	public int nbRows;
+
+	@Param({ "1", "3" })
+	public int maxParallelUploads;
+
+	private File dir;
+
+	private LocalUWSFileManager fileManager;
+
+	private UploadService service;
+
+	private DBConnection dbConn;
+
+	/** Service allowing uploads and giving H2 connections. */
+	private static class UploadService extends ServiceConnectionOfTest {
+		final TAPLog logger = new DefaultTAPLog(new ByteArrayOutputStream());
+		final TAPFactory factory;
+
+		UploadService() throws Exception{
+			factory = new AbstractTAPFactory(this){
+				@Override
+				public DBConnection getConnection(final String jobID) throws TAPException{
+					try{
+						return new JDBCConnection(DriverManager.getConnection(DB_URL), new PostgreSQLTranslator(false), jobID, null);
+					}catch(SQLException se){
+						throw new TAPException(se);
+					}
+				}
+
+				@Override
+				public void freeConnection(final DBConnection conn){
+					try{
+						((JDBCConnection)conn).getInnerConnection().close();
+					}catch(SQLException se){
+						se.printStackTrace();
+					}
+				}
+
+				@Override
+				public void destroy(){}
+			};
+		}
+
+		@Override
+		public boolean uploadEnabled(){
+			return true;
+		}
+
+		@Override
+		public long[] getUploadLimit(){
+			return new long[]{ -1, -1 };
+		}
+
+		@Override
+		public LimitUnit[] getUploadLimitType(){
+			return new LimitUnit[]{ LimitUnit.rows, LimitUnit.rows };
+		}
+
+		@Override
+		public TAPLog getLogger(){
+			return logger;
+		}
+
+		@Override
+		public TAPFactory getFactory(){
+			return factory;
+		}
+	}
+
+	@Setup
+	public void setUp() throws Exception{
+		Class.forName("org.h2.Driver");
+		dir = File.createTempFile("uploaderBenchmark", "");
+		dir.delete();
+		dir.mkdirs();
+		fileManager = new LocalUWSFileManager(dir);
+		service = new UploadService();
+		dbConn = service.getFactory().getConnection("benchmark");
+
+		// Write the VOTable to upload:
+		HashMap<String,Object> params = new HashMap<String,Object>();
+		params.put(TAPJob.PARAM_MAX_REC, String.valueOf(TAPJob.UNLIMITED_MAX_REC));
+		TAPExecutionReport report = new TAPExecutionReport("benchmark", true, new TAPParameters(service, params));
+		report.resultingColumns = SyntheticTableIterator.COLUMNS;
+		OutputStream output = new BufferedOutputStream(new FileOutputStream(new File(dir, "upload.vot")));
+		try{
+			new VOTableFormat(service, DataFormat.TABLEDATA).writeResult(new SyntheticTableIterator(nbRows), output, report, Thread.currentThread());
+		}finally{
+			output.close();
+		}
+	}
+
+	@TearDown
+	public void tearDown(){
+		service.getFactory().freeConnection(dbConn);
+		for(File f : dir.listFiles())
+			f.delete();
+		dir.delete();
+	}
+
+	@Benchmark
+	public int upload() throws Exception{
+		DALIUpload[] uploads = new DALIUpload[NB_TABLES];
+		for(int i = 0; i < NB_TABLES; i++)
+			uploads[i] = new DALIUpload("t" + i, new UploadFile("t" + i, new File(dir, "upload.vot").getAbsolutePath(), fileManager));
+
+		Uploader uploader = new Uploader(service, dbConn);
+		uploader.setMaxParallelUploads(maxParallelUploads);
+		TAPSchema schema = uploader.upload(uploads);
+		try{
+			return schema.getNbTables();
+		}finally{
+			for(TAPTable t : schema)
+				dbConn.dropUploadedTable(t);
+		}
+	}
+
+}
@@ -0,0 +1,94 @@
+package uws;
+
+import java.util.Random;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Formatting and parsing of 1000 timestamps with {@link ISO8601Format}, compared
+ * with the former implementation based on a {@link java.util.GregorianCalendar}
+ * (<code>*WithCalendar</code>), which was synchronized.
+ *
+ * <p>
+ * 	Run it with several threads (e.g. <code>-t 4</code>) to measure the
+ * 	behaviour under concurrent synchronous queries.
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 4.5 (10/2026)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ISO8601FormatBenchmark {
+
+	@Param({ "UTC", "Europe/Paris" })
+	public String timeZone;
+
+	private long[] dates;
+
+	private String[] strDates;
+
+	/** Lock emulating the former synchronized implementation. */
+	private final static Object LOCK = new Object();
+
+	@Setup
+	public void setUp(){
+		Random random = new Random(42);
+		dates = new long[1000];
+		strDates = new String[dates.length];
+		for(int i = 0; i < dates.length; i++){
+			// between 1990 and 2030:
+			dates[i] = 631152000000L + (long)(random.nextDouble() * 1262304000000L);
+			strDates[i] = ISO8601Format.format(dates[i], "UTC", true, true);
+		}
+	}
+
+	@Benchmark
+	public void format(final Blackhole bh){
+		for(long d : dates)
+			bh.consume(ISO8601Format.format(d, timeZone, true, true));
+	}
+
+	@Benchmark
+	public void formatInBuffer(final Blackhole bh){
+		char[] buf = new char[ISO8601Format.MAX_FORMATTED_LENGTH];
+		for(long d : dates)
+			bh.consume(ISO8601Format.format(d, timeZone, true, true, buf, 0));
+	}
+
+	@Benchmark
+	public void formatWithCalendar(final Blackhole bh){
+		for(long d : dates){
+			synchronized(LOCK){
+				bh.consume(ISO8601Format.formatWithCalendar(d, TimeZone.getTimeZone(timeZone), true, true));
+			}
+		}
+	}
+
+	@Benchmark
+	public void parse(final Blackhole bh) throws Exception{
+		for(String d : strDates)
+			bh.consume(ISO8601Format.parse(d));
+	}
+
+	@Benchmark
+	public void parseWithCalendar(final Blackhole bh) throws Exception{
+		for(String d : strDates){
+			synchronized(LOCK){
+				bh.consume(ISO8601Format.parseWithCalendar(d));
+			}
+		}
+	}
+
+}
@@ -16,7 +16,7 @@ package adql.db;
  * You should have received a copy of the GNU Lesser General Public License
  * along with ADQLLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2011-2017 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2011-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
@@ -40,10 +40,8 @@ import adql.db.exception.UnresolvedIdentifiersException;
 import adql.db.exception.UnresolvedTableException;
 import adql.parser.ParseException;
 import adql.parser.QueryChecker;
-import adql.query.ADQLIterator;
 import adql.query.ADQLObject;
 import adql.query.ADQLQuery;
-import adql.query.ClauseADQL;
 import adql.query.ClauseSelect;
 import adql.query.ColumnReference;
 import adql.query.IdentifierField;
@@ -64,10 +62,8 @@ import adql.query.operand.function.geometry.GeometryFunction;
 import adql.query.operand.function.geometry.PointFunction;
 import adql.query.operand.function.geometry.PolygonFunction;
 import adql.query.operand.function.geometry.RegionFunction;
-import adql.search.ISearchHandler;
-import adql.search.SearchColumnHandler;
 import adql.search.SimpleReplaceHandler;
-import adql.search.SimpleSearchHandler;
+import adql.search.SimpleVisitor;
 
 /**
  * This {@link QueryChecker} implementation is able to do the following verifications on an ADQL query:
@@ -98,8 +94,16 @@ import adql.search.SimpleSearchHandler;
  * 	by {@link adql.translator.JDBCTranslator}.
  * </i></p>
  *
+ * <h3>Single traversal</h3>
+ * <p>
+ * 	All the items to check (tables, columns, UDFs, geometries, coordinate
+ * 	systems, sub-queries, ...) are gathered in only one traversal of each
+ * 	(sub-)query (see {@link QueryItems}). All the verifications are then
+ * 	performed on these lists.
+ * </p>
+ *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 1.4 (11/2017)
+ * @version 1.5 (10/2026)
  */
 public class DBChecker implements QueryChecker {
 
@@ -398,30 +402,36 @@ public class DBChecker implements QueryChecker {
 	 *
 	 * @since 1.2
 	 *
-	 * @see #checkDBItems(ADQLQuery, Stack, UnresolvedIdentifiersException)
-	 * @see #checkSubQueries(ADQLQuery, Stack, SearchColumnList, UnresolvedIdentifiersException)
-	 * @see #checkUDFs(ADQLQuery, UnresolvedIdentifiersException)
-	 * @see #checkGeometries(ADQLQuery, UnresolvedIdentifiersException)
-	 * @see #checkTypes(ADQLQuery, UnresolvedIdentifiersException)
+	 * @see QueryItems
+	 * @see #checkDBItems(QueryItems, Stack, UnresolvedIdentifiersException)
+	 * @see #checkSubQueries(QueryItems, Stack, SearchColumnList, UnresolvedIdentifiersException)
+	 * @see #checkUDFs(QueryItems, UnresolvedIdentifiersException)
+	 * @see #checkGeometries(QueryItems, UnresolvedIdentifiersException)
+	 * @see #checkTypes(QueryItems, UnresolvedIdentifiersException)
 	 */
 	protected void check(final ADQLQuery query, final Stack<SearchColumnList> fathersList) throws UnresolvedIdentifiersException{
 		UnresolvedIdentifiersException errors = new UnresolvedIdentifiersException();
 
+		// Gather all items to check (in only one traversal of the query):
+		QueryItems items = new QueryItems(query);
+
 		// A. Check DB items (tables and columns):
-		SearchColumnList availableColumns = checkDBItems(query, fathersList, errors);
+		SearchColumnList availableColumns = checkDBItems(items, fathersList, errors);
 
 		// B. Check UDFs:
-		if (allowedUdfs != null)
-			checkUDFs(query, errors);
+		/* Note: if some UDFs have been replaced, the query tree has changed
+		 *       and so the remaining items must be gathered again. */
+		if (allowedUdfs != null && checkUDFs(items, errors) > 0)
+			items = new QueryItems(query);
 
 		// C. Check geometries:
-		checkGeometries(query, errors);
+		checkGeometries(items, errors);
 
 		// D. Check types:
-		checkTypes(query, errors);
+		checkTypes(items, errors);
 
 		// E. Check sub-queries:
-		checkSubQueries(query, fathersList, availableColumns, errors);
+		checkSubQueries(items, fathersList, availableColumns, errors);
 
 		// Throw all errors, if any:
 		if (errors.getNbErrors() > 0)
@@ -450,27 +460,47 @@ public class DBChecker implements QueryChecker {
 	 *
 	 * @return	List of all columns available in the given query.
 	 *
-	 * @see #resolveTables(ADQLQuery, Stack, UnresolvedIdentifiersException)
-	 * @see FromContent#getDBColumns()
-	 * @see #resolveColumns(ADQLQuery, Stack, Map, SearchColumnList, UnresolvedIdentifiersException)
+	 * @see #checkDBItems(QueryItems, Stack, UnresolvedIdentifiersException)
 	 *
 	 * @since 1.3
 	 */
 	protected SearchColumnList checkDBItems(final ADQLQuery query, final Stack<SearchColumnList> fathersList, final UnresolvedIdentifiersException errors){
+		return checkDBItems(new QueryItems(query), fathersList, errors);
+	}
+
+	/**
+	 * Check DB items (tables and columns) gathered in an ADQL query.
+	 *
+	 * @param items			Items of the query in which the existence of DB
+	 *             			items must be checked.
+	 * @param fathersList	List of all columns available in the father queries and that should be accessed in sub-queries.
+	 *                   	Each item of this stack is a list of columns available in each father-level query.
+	 *                   	<i>Note: this parameter is NULL if this function is called with the root/father query as parameter.</i>
+	 * @param errors		List of errors to complete in this function each time an unknown table or column is encountered.
+	 *
+	 * @return	List of all columns available in the given query.
+	 *
+	 * @see #resolveTables(QueryItems, Stack, UnresolvedIdentifiersException)
+	 * @see FromContent#getDBColumns()
+	 * @see #resolveColumns(QueryItems, Stack, Map, SearchColumnList, UnresolvedIdentifiersException)
+	 *
+	 * @since 1.5
+	 */
+	protected SearchColumnList checkDBItems(final QueryItems items, final Stack<SearchColumnList> fathersList, final UnresolvedIdentifiersException errors){
 		// a. Resolve all tables:
-		Map<DBTable,ADQLTable> mapTables = resolveTables(query, fathersList, errors);
+		Map<DBTable,ADQLTable> mapTables = resolveTables(items, fathersList, errors);
 
 		// b. Get the list of all columns made available in the clause FROM:
 		SearchColumnList availableColumns;
 		try{
-			availableColumns = query.getFrom().getDBColumns();
+			availableColumns = items.getQuery().getFrom().getDBColumns();
 		}catch(ParseException pe){
 			errors.addException(pe);
 			availableColumns = new SearchColumnList();
 		}
 
 		// c. Resolve all columns:
-		resolveColumns(query, fathersList, mapTables, availableColumns, errors);
+		resolveColumns(items, fathersList, mapTables, availableColumns, errors);
 
 		return availableColumns;
 	}
@@ -525,17 +555,39 @@ public class DBChecker implements QueryChecker {
 	 *              		time an unknown table or column is encountered.
 	 *
 	 * @return	An associative map of all the resolved tables.
+	 *
+	 * @see #resolveTables(QueryItems, Stack, UnresolvedIdentifiersException)
 	 */
 	protected Map<DBTable,ADQLTable> resolveTables(final ADQLQuery query, final Stack<SearchColumnList> fathersList, final UnresolvedIdentifiersException errors){
+		return resolveTables(new QueryItems(query), fathersList, errors);
+	}
+
+	/**
+	 * Resolve all table references gathered in an ADQL query, as explained
+	 * in {@link #resolveTables(ADQLQuery, Stack, UnresolvedIdentifiersException)}.
+	 *
+	 * @param items			Items of the query in which the existence of
+	 *             			tables must be checked.
+	 * @param fathersList	List of all columns available in the father queries
+	 *                   	and that should be accessed in sub-queries.
+	 *                      Each item of this stack is a list of columns
+	 *                      available in each father-level query.
+	 *                   	<i>Note: this parameter is NULL if this function is
+	 *                   	called with the root/father query as parameter.</i>
+	 * @param errors		List of errors to complete in this function each
+	 *              		time an unknown table or column is encountered.
+	 *
+	 * @return	An associative map of all the resolved tables.
+	 *
+	 * @since 1.5
+	 */
+	protected Map<DBTable,ADQLTable> resolveTables(final QueryItems items, final Stack<SearchColumnList> fathersList, final UnresolvedIdentifiersException errors){
 		HashMap<DBTable,ADQLTable> mapTables = new HashMap<DBTable,ADQLTable>();
-		ISearchHandler sHandler;
+		final ADQLQuery query = items.getQuery();
 
 		// Check the existence of all tables:
-		sHandler = new SearchTableHandler();
-		sHandler.search(query.getFrom());
-		for(ADQLObject result : sHandler){
+		for(ADQLTable table : items.tables){
 			try{
-				ADQLTable table = (ADQLTable)result;
 
 				// resolve the table:
 				DBTable dbTable = null;
@@ -564,11 +616,8 @@ public class DBChecker implements QueryChecker {
 		 *       no interest to select a father column in a sub-query
 		 *       (which can return only one column ; besides, no aggregate is allowed
 		 *       in sub-queries).*/
-		sHandler = new SearchWildCardHandler();
-		sHandler.search(query.getSelect());
-		for(ADQLObject result : sHandler){
+		for(SelectAllColumns wildcard : items.wildcards){
 			try{
-				SelectAllColumns wildcard = (SelectAllColumns)result;
 				ADQLTable table = wildcard.getAdqlTable();
 				DBTable dbTable = null;
 
@@ -639,16 +688,31 @@ public class DBChecker implements QueryChecker {
 	 * @param mapTables		List of all resolved tables.
 	 * @param list			List of column metadata to complete in this function each time a column reference is resolved.
 	 * @param errors		List of errors to complete in this function each time an unknown table or column is encountered.
+	 *
+	 * @see #resolveColumns(QueryItems, Stack, Map, SearchColumnList, UnresolvedIdentifiersException)
 	 */
 	protected void resolveColumns(final ADQLQuery query, final Stack<SearchColumnList> fathersList, final Map<DBTable,ADQLTable> mapTables, final SearchColumnList list, final UnresolvedIdentifiersException errors){
-		ISearchHandler sHandler;
+		resolveColumns(new QueryItems(query), fathersList, mapTables, list, errors);
+	}
 
+	/**
+	 * Resolve all column references gathered in an ADQL query, as explained
+	 * in {@link #resolveColumns(ADQLQuery, Stack, Map, SearchColumnList, UnresolvedIdentifiersException)}.
+	 *
+	 * @param items			Items of the query in which the existence of columns must be checked.
+	 * @param fathersList	List of all columns available in the father queries and that should be accessed in sub-queries.
+	 *                      Each item of this stack is a list of columns available in each father-level query.
+	 *                   	<i>Note: this parameter is NULL if this function is called with the root/father query as parameter.</i>
+	 * @param mapTables		List of all resolved tables.
+	 * @param list			List of column metadata to complete in this function each time a column reference is resolved.
+	 * @param errors		List of errors to complete in this function each time an unknown table or column is encountered.
+	 *
+	 * @since 1.5
+	 */
+	protected void resolveColumns(final QueryItems items, final Stack<SearchColumnList> fathersList, final Map<DBTable,ADQLTable> mapTables, final SearchColumnList list, final UnresolvedIdentifiersException errors){
 		// Check the existence of all columns:
-		sHandler = new SearchColumnOutsideGroupByHandler();
-		sHandler.search(query);
-		for(ADQLObject result : sHandler){
+		for(ADQLColumn adqlColumn : items.columns){
 			try{
-				ADQLColumn adqlColumn = (ADQLColumn)result;
 				// resolve the column:
 				DBColumn dbColumn = resolveColumn(adqlColumn, list, fathersList);
 				// link with the matched DBColumn:
@@ -660,12 +724,9 @@ public class DBChecker implements QueryChecker {
 		}
 
 		// Check the GROUP BY items:
-		ClauseSelect select = query.getSelect();
-		sHandler = new SearchColumnHandler();
-		sHandler.search(query.getGroupBy());
-		for(ADQLObject result : sHandler){
+		ClauseSelect select = items.getQuery().getSelect();
+		for(ADQLColumn adqlColumn : items.groupByColumns){
 			try{
-				ADQLColumn adqlColumn = (ADQLColumn)result;
 				// resolve the column:
 				DBColumn dbColumn = checkGroupByItem(adqlColumn, select, list);
 				// link with the matched DBColumn:
@@ -681,11 +742,8 @@ public class DBChecker implements QueryChecker {
 		// Check the correctness of all column references (= references to selected columns):
 		/* Note: no need to provide the father tables when resolving column references,
 		 *       because no father column can be used in ORDER BY. */
-		sHandler = new SearchColReferenceHandler();
-		sHandler.search(query);
-		for(ADQLObject result : sHandler){
+		for(ColumnReference colRef : items.colReferences){
 			try{
-				ColumnReference colRef = (ColumnReference)result;
 				// resolve the column reference:
 				DBColumn dbColumn = checkColumnReference(colRef, select, list);
 				// link with the matched DBColumn:
@@ -860,17 +918,37 @@ public class DBChecker implements QueryChecker {
 	 * @param query		Query in which UDFs must be checked.
 	 * @param errors	List of errors to complete in this function each time a UDF does not match to any of the allowed UDFs.
 	 *
+	 * @see #checkUDFs(QueryItems, UnresolvedIdentifiersException)
+	 *
 	 * @since 1.3
 	 */
 	protected void checkUDFs(final ADQLQuery query, final UnresolvedIdentifiersException errors){
-		// 1. Search all UDFs:
-		ISearchHandler sHandler = new SearchUDFHandler();
-		sHandler.search(query);
+		checkUDFs(new QueryItems(query), errors);
+	}
 
+	/**
+	 * Check all UDFs gathered in an ADQL query, as explained in
+	 * {@link #checkUDFs(ADQLQuery, UnresolvedIdentifiersException)}.
+	 *
+	 * <p><i>Note:
+	 * 	The query tree is walked again only if some {@link DefaultUDF}s have
+	 * 	to be replaced by an instance of their {@link FunctionDef#getUDFClass()}.
+	 * </i></p>
+	 *
+	 * @param items		Items of the query in which UDFs must be checked.
+	 * @param errors	List of errors to complete in this function each time a UDF does not match to any of the allowed UDFs.
+	 *
+	 * @return	The number of {@link DefaultUDF}s replaced in the query tree.
+	 *        	<i>If not 0, the given items are not up-to-date anymore.</i>
+	 *
+	 * @since 1.5
+	 */
+	protected int checkUDFs(final QueryItems items, final UnresolvedIdentifiersException errors){
 		// If no UDF are allowed, throw immediately an error:
 		if (allowedUdfs.length == 0){
-			for(ADQLObject result : sHandler)
-				errors.addException(new UnresolvedFunctionException((UserDefinedFunction)result));
+			for(UserDefinedFunction udf : items.udfs)
+				errors.addException(new UnresolvedFunctionException(udf));
+			return 0;
 		}
 		// 2. Try to resolve all of them:
 		else{
@@ -888,8 +966,8 @@ public class DBChecker implements QueryChecker {
 			/* Note: at this stage, it can happen that UDFs can not be yet resolved because the building of
 			 *       their signature depends of other UDFs. That's why, these special cases should be kept
 			 *       for a later resolution try. */
-			for(ADQLObject result : sHandler){
-				udf = (UserDefinedFunction)result;
+			for(UserDefinedFunction result : items.udfs){
+				udf = result;
 				// if the type of not all parameters are resolved, postpone the resolution:
 				if (!isAllParamTypesResolved(udf))
 					toResolveLater.add(udf);
@@ -922,7 +1000,14 @@ public class DBChecker implements QueryChecker {
 			}
 
 			// 3. Replace all the resolved DefaultUDF by an instance of the class associated with the set signature:
-			(new ReplaceDefaultUDFHandler(errors)).searchAndReplace(query);
+			for(UserDefinedFunction result : items.udfs){
+				if (ReplaceDefaultUDFHandler.isReplaceable(result)){
+					ReplaceDefaultUDFHandler replacer = new ReplaceDefaultUDFHandler(errors);
+					replacer.searchAndReplace(items.getQuery());
+					return replacer.getNbReplacement();
+				}
+			}
+			return 0;
 		}
 	}
 
@@ -969,13 +1054,28 @@ public class DBChecker implements QueryChecker {
 	 * @param query		Query in which geometries must be checked.
 	 * @param errors	List of errors to complete in this function each time a geometry item is not supported.
 	 *
-	 * @see #resolveGeometryFunctions(ADQLQuery, BinarySearch, UnresolvedIdentifiersException)
-	 * @see #resolveCoordinateSystems(ADQLQuery, UnresolvedIdentifiersException)
-	 * @see #resolveSTCSExpressions(ADQLQuery, BinarySearch, UnresolvedIdentifiersException)
+	 * @see #checkGeometries(QueryItems, UnresolvedIdentifiersException)
 	 *
 	 * @since 1.3
 	 */
 	protected void checkGeometries(final ADQLQuery query, final UnresolvedIdentifiersException errors){
+		checkGeometries(new QueryItems(query), errors);
+	}
+
+	/**
+	 * Check all geometries gathered in an ADQL query, as explained in
+	 * {@link #checkGeometries(ADQLQuery, UnresolvedIdentifiersException)}.
+	 *
+	 * @param items		Items of the query in which geometries must be checked.
+	 * @param errors	List of errors to complete in this function each time a geometry item is not supported.
+	 *
+	 * @see #resolveGeometryFunctions(QueryItems, BinarySearch, UnresolvedIdentifiersException)
+	 * @see #resolveCoordinateSystems(QueryItems, UnresolvedIdentifiersException)
+	 * @see #resolveSTCSExpressions(QueryItems, BinarySearch, UnresolvedIdentifiersException)
+	 *
+	 * @since 1.5
+	 */
+	protected void checkGeometries(final QueryItems items, final UnresolvedIdentifiersException errors){
 		BinarySearch<String,String> binSearch = new BinarySearch<String,String>(){
 			@Override
 			protected int compare(String searchItem, String arrayItem){
@@ -985,15 +1085,15 @@ public class DBChecker implements QueryChecker {
 
 		// a. Ensure that all used geometry functions are allowed:
 		if (allowedGeo != null)
-			resolveGeometryFunctions(query, binSearch, errors);
+			resolveGeometryFunctions(items, binSearch, errors);
 
 		// b. Check whether the coordinate systems are allowed:
 		if (allowedCoordSys != null)
-			resolveCoordinateSystems(query, errors);
+			resolveCoordinateSystems(items, errors);
 
 		// c. Check all STC-S expressions (in RegionFunctions only) + the used coordinate systems (if StringConstant only):
 		if (allowedGeo == null || (allowedGeo.length > 0 && binSearch.search("REGION", allowedGeo) >= 0))
-			resolveSTCSExpressions(query, binSearch, errors);
+			resolveSTCSExpressions(items, binSearch, errors);
 	}
 
 	/**
@@ -1002,19 +1102,27 @@ public class DBChecker implements QueryChecker {
 	 * @param query		Query in which geometrical functions must be checked.
 	 * @param errors	List of errors to complete in this function each time a geometrical function is not supported.
 	 *
-	 * @see #checkGeometryFunction(String, ADQLFunction, BinarySearch, UnresolvedIdentifiersException)
+	 * @see #resolveGeometryFunctions(QueryItems, BinarySearch, UnresolvedIdentifiersException)
 	 *
 	 * @since 1.3
 	 */
 	protected void resolveGeometryFunctions(final ADQLQuery query, final BinarySearch<String,String> binSearch, final UnresolvedIdentifiersException errors){
-		ISearchHandler sHandler = new SearchGeometryHandler();
-		sHandler.search(query);
+		resolveGeometryFunctions(new QueryItems(query), binSearch, errors);
+	}
 
-		String fctName;
-		for(ADQLObject result : sHandler){
-			fctName = result.getName();
-			checkGeometryFunction(fctName, (ADQLFunction)result, binSearch, errors);
-		}
+	/**
+	 * Check whether all geometrical functions gathered in an ADQL query are allowed.
+	 *
+	 * @param items		Items of the query in which geometrical functions must be checked.
+	 * @param errors	List of errors to complete in this function each time a geometrical function is not supported.
+	 *
+	 * @see #checkGeometryFunction(String, ADQLFunction, BinarySearch, UnresolvedIdentifiersException)
+	 *
+	 * @since 1.5
+	 */
+	protected void resolveGeometryFunctions(final QueryItems items, final BinarySearch<String,String> binSearch, final UnresolvedIdentifiersException errors){
+		for(GeometryFunction result : items.geometries)
+			checkGeometryFunction(result.getName(), result, binSearch, errors);
 	}
 
 	/**
@@ -1055,15 +1163,28 @@ public class DBChecker implements QueryChecker {
 	 * @param query		Query in which coordinate systems must be checked.
 	 * @param errors	List of errors to complete in this function each time a coordinate system has a wrong syntax or is not supported.
 	 *
-	 * @see #checkCoordinateSystem(StringConstant, UnresolvedIdentifiersException)
+	 * @see #resolveCoordinateSystems(QueryItems, UnresolvedIdentifiersException)
 	 *
 	 * @since 1.3
 	 */
 	protected void resolveCoordinateSystems(final ADQLQuery query, final UnresolvedIdentifiersException errors){
-		ISearchHandler sHandler = new SearchCoordSysHandler();
-		sHandler.search(query);
-		for(ADQLObject result : sHandler)
-			checkCoordinateSystem((StringConstant)result, errors);
+		resolveCoordinateSystems(new QueryItems(query), errors);
+	}
+
+	/**
+	 * Check the syntax of all explicit coordinate system declarations gathered
+	 * in an ADQL query, and whether they are allowed by this implementation.
+	 *
+	 * @param items		Items of the query in which coordinate systems must be checked.
+	 * @param errors	List of errors to complete in this function each time a coordinate system has a wrong syntax or is not supported.
+	 *
+	 * @see #checkCoordinateSystem(StringConstant, UnresolvedIdentifiersException)
+	 *
+	 * @since 1.5
+	 */
+	protected void resolveCoordinateSystems(final QueryItems items, final UnresolvedIdentifiersException errors){
+		for(StringConstant result : items.coordSys)
+			checkCoordinateSystem(result, errors);
 	}
 
 	/**
@@ -1129,28 +1250,41 @@ public class DBChecker implements QueryChecker {
 	 * @param errors		List of errors to complete in this function each time the STC-S syntax is wrong or each time the declared coordinate system or region is not supported.
 	 *
 	 * @see STCS#parseRegion(String)
-	 * @see #checkRegion(adql.db.STCS.Region, RegionFunction, BinarySearch, UnresolvedIdentifiersException)
+	 * @see #resolveSTCSExpressions(QueryItems, BinarySearch, UnresolvedIdentifiersException)
 	 *
 	 * @since 1.3
 	 */
 	protected void resolveSTCSExpressions(final ADQLQuery query, final BinarySearch<String,String> binSearch, final UnresolvedIdentifiersException errors){
-		// Search REGION functions:
-		ISearchHandler sHandler = new SearchRegionHandler();
-		sHandler.search(query);
+		resolveSTCSExpressions(new QueryItems(query), binSearch, errors);
+	}
 
-		// Parse and check their STC-S expression:
+	/**
+	 * Parse and check all STC-S expressions gathered in an ADQL query, as
+	 * explained in {@link #resolveSTCSExpressions(ADQLQuery, BinarySearch, UnresolvedIdentifiersException)}.
+	 *
+	 * @param items			Items of the query in which STC-S expressions must be checked.
+	 * @param binSearch		The object to use in order to search a region name inside the list of allowed functions/regions.
+	 * @param errors		List of errors to complete in this function each time the STC-S syntax is wrong or each time the declared coordinate system or region is not supported.
+	 *
+	 * @see STCS#parseRegion(String)
+	 * @see #checkRegion(adql.db.STCS.Region, RegionFunction, BinarySearch, UnresolvedIdentifiersException)
+	 *
+	 * @since 1.5
+	 */
+	protected void resolveSTCSExpressions(final QueryItems items, final BinarySearch<String,String> binSearch, final UnresolvedIdentifiersException errors){
+		// Parse and check the STC-S expression of all REGION functions:
 		String stcs;
 		Region region;
-		for(ADQLObject result : sHandler){
+		for(RegionFunction result : items.regions){
 			try{
 				// get the STC-S expression:
-				stcs = ((StringConstant)((RegionFunction)result).getParameter(0)).getValue();
+				stcs = ((StringConstant)result.getParameter(0)).getValue();
 
 				// parse the STC-S expression (and so check the syntax):
 				region = STCS.parseRegion(stcs);
 
 				// check whether the regions (this one + the possible inner ones) and the coordinate systems are allowed:
-				checkRegion(region, (RegionFunction)result, binSearch, errors);
+				checkRegion(region, result, binSearch, errors);
 			}catch(ParseException pe){
 				errors.addException(new ParseException(pe.getMessage(), result.getPosition()));
 			}
@@ -1231,33 +1365,42 @@ public class DBChecker implements QueryChecker {
 	 * @param errors	List of errors to complete in this function each time a types does not match to the expected one.
 	 *
 	 * @see UnknownType
+	 * @see #checkTypes(QueryItems, UnresolvedIdentifiersException)
 	 *
 	 * @since 1.3
 	 */
 	protected void checkTypes(final ADQLQuery query, final UnresolvedIdentifiersException errors){
-		// Search all unknown types:
-		ISearchHandler sHandler = new SearchUnknownTypeHandler();
-		sHandler.search(query);
+		checkTypes(new QueryItems(query), errors);
+	}
 
+	/**
+	 * Check the type of all operands gathered in an ADQL query and whose the
+	 * type was not known while checking the syntax, as explained in
+	 * {@link #checkTypes(ADQLQuery, UnresolvedIdentifiersException)}.
+	 *
+	 * @param items		Items of the query in which unknown types must be resolved and checked.
+	 * @param errors	List of errors to complete in this function each time a types does not match to the expected one.
+	 *
+	 * @since 1.5
+	 */
+	protected void checkTypes(final QueryItems items, final UnresolvedIdentifiersException errors){
 		// Check whether their type matches the expected one:
-		UnknownType unknown;
-		for(ADQLObject result : sHandler){
-			unknown = (UnknownType)result;
+		for(UnknownType unknown : items.unknownTypes){
 			switch(unknown.getExpectedType()){
 				case 'G':
 				case 'g':
 					if (!unknown.isGeometry())
-						errors.addException(new ParseException("Type mismatch! A geometry was expected instead of \"" + unknown.toADQL() + "\".", result.getPosition()));
+						errors.addException(new ParseException("Type mismatch! A geometry was expected instead of \"" + unknown.toADQL() + "\".", unknown.getPosition()));
 					break;
 				case 'N':
 				case 'n':
 					if (!unknown.isNumeric())
-						errors.addException(new ParseException("Type mismatch! A numeric value was expected instead of \"" + unknown.toADQL() + "\".", result.getPosition()));
+						errors.addException(new ParseException("Type mismatch! A numeric value was expected instead of \"" + unknown.toADQL() + "\".", unknown.getPosition()));
 					break;
 				case 'S':
 				case 's':
 					if (!unknown.isString())
-						errors.addException(new ParseException("Type mismatch! A string value was expected instead of \"" + unknown.toADQL() + "\".", result.getPosition()));
+						errors.addException(new ParseException("Type mismatch! A string value was expected instead of \"" + unknown.toADQL() + "\".", unknown.getPosition()));
 					break;
 			}
 		}
@@ -1292,13 +1435,30 @@ public class DBChecker implements QueryChecker {
 	 * @param availableColumns	List of all columns resolved in the given query.
 	 * @param errors			List of errors to complete in this function each time a semantic error is encountered.
 	 *
+	 * @see #checkSubQueries(QueryItems, Stack, SearchColumnList, UnresolvedIdentifiersException)
+	 *
 	 * @since 1.3
 	 */
 	protected void checkSubQueries(final ADQLQuery query, Stack<SearchColumnList> fathersList, final SearchColumnList availableColumns, final UnresolvedIdentifiersException errors){
+		checkSubQueries(new QueryItems(query), fathersList, availableColumns, errors);
+	}
+
+	/**
+	 * Check all sub-queries gathered in an ADQL query (but not in the clause
+	 * FROM), as explained in {@link #checkSubQueries(ADQLQuery, Stack, SearchColumnList, UnresolvedIdentifiersException)}.
+	 *
+	 * @param items				Items of the query in which sub-queries must be checked.
+	 * @param fathersList		List of all columns available in the father queries and that should be accessed in sub-queries.
+	 *                      	Each item of this stack is a list of columns available in each father-level query.
+	 *                   		<i>Note: this parameter is NULL if this function is called with the root/father query as parameter.</i>
+	 * @param availableColumns	List of all columns resolved in the given query.
+	 * @param errors			List of errors to complete in this function each time a semantic error is encountered.
+	 *
+	 * @since 1.5
+	 */
+	protected void checkSubQueries(final QueryItems items, Stack<SearchColumnList> fathersList, final SearchColumnList availableColumns, final UnresolvedIdentifiersException errors){
 		// Check sub-queries outside the clause FROM:
-		ISearchHandler sHandler = new SearchSubQueryHandler();
-		sHandler.search(query);
-		if (sHandler.getNbMatch() > 0){
+		if (!items.subQueries.isEmpty()){
 
 			// Push the list of columns into the father columns stack:
 			if (fathersList == null)
@@ -1306,9 +1466,9 @@ public class DBChecker implements QueryChecker {
 			fathersList.push(availableColumns);
 
 			// Check each found sub-query:
-			for(ADQLObject result : sHandler){
+			for(ADQLQuery result : items.subQueries){
 				try{
-					check((ADQLQuery)result, fathersList);
+					check(result, fathersList);
 				}catch(UnresolvedIdentifiersException uie){
 					Iterator<ParseException> itPe = uie.getErrors();
 					while(itPe.hasNext())
@@ -1326,104 +1486,151 @@ public class DBChecker implements QueryChecker {
 	/* *************** */
 
 	/**
-	 * Lets searching all {@link ADQLColumn} in the given object, EXCEPT in the GROUP BY clause.
+	 * <p>Gathers, in only one traversal of an ADQL query, all the items that
+	 * {@link DBChecker} has to check.</p>
 	 *
-	 * <p>
-	 * 	{@link ADQLColumn}s of the GROUP BY may be aliases and so, they can not be checked
-	 *	exactly as a normal column.
-	 * </p>
+	 * <p>The gathered items are:</p>
+	 * <ul>
+	 * 	<li>all tables of the clause FROM,</li>
+	 * 	<li>all wildcards with the syntax "{tableName}.*" of the clause SELECT,</li>
+	 * 	<li>all columns outside the clause GROUP BY,</li>
+	 * 	<li>all columns of the clause GROUP BY,</li>
+	 * 	<li>all column references (i.e. references to selected columns),</li>
+	 * 	<li>all user defined functions,</li>
+	 * 	<li>all geometrical functions,</li>
+	 * 	<li>all explicit (i.e. {@link StringConstant}) coordinate systems of
+	 * 		POINT, BOX, CIRCLE and POLYGON,</li>
+	 * 	<li>all REGION functions whose the STC-S expression is a {@link StringConstant},</li>
+	 * 	<li>all operands whose the type was unknown while checking the syntax,</li>
+	 * 	<li>all sub-queries outside the clause FROM.</li>
+	 * </ul>
 	 *
-	 * @author Gr&eacute;gory Mantelet (ARI)
-	 * @version 1.4 (05/2017)
-	 * @since 1.4
-	 */
-	private static class SearchColumnOutsideGroupByHandler extends SearchColumnHandler {
-		@Override
-		protected boolean goInto(final ADQLObject obj){
-			return !(obj instanceof ClauseADQL<?> && ((ClauseADQL<?>)obj).getName() != null && ((ClauseADQL<?>)obj).getName().equalsIgnoreCase("GROUP BY")) && super.goInto(obj);
-		}
-	}
-
-	/**
-	 * Lets searching all tables.
+	 * <p><i>Note:
+	 * 	Sub-queries are not visited: their items are gathered when they are
+	 * 	checked themselves. Items of each kind are listed in the order they
+	 * 	appear in the query, so that errors are always reported in the same
+	 * 	order.
+	 * </i></p>
 	 *
 	 * @author Gr&eacute;gory Mantelet (CDS)
-	 * @version 1.0 (07/2011)
+	 * @version 1.5 (10/2026)
+	 * @since 1.5
 	 */
-	private static class SearchTableHandler extends SimpleSearchHandler {
-		@Override
-		public boolean match(final ADQLObject obj){
-			return obj instanceof ADQLTable;
-		}
-	}
+	protected static class QueryItems extends SimpleVisitor {
+		/** The visited query. */
+		private final ADQLQuery query;
+
+		/** Tables of the clause FROM. */
+		public final ArrayList<ADQLTable> tables = new ArrayList<ADQLTable>();
+		/** Wildcards with the syntax "{tableName}.*" of the clause SELECT. */
+		public final ArrayList<SelectAllColumns> wildcards = new ArrayList<SelectAllColumns>();
+		/** Columns outside the clause GROUP BY. */
+		public final ArrayList<ADQLColumn> columns = new ArrayList<ADQLColumn>();
+		/** Columns of the clause GROUP BY. */
+		public final ArrayList<ADQLColumn> groupByColumns = new ArrayList<ADQLColumn>();
+		/** References to selected columns. */
+		public final ArrayList<ColumnReference> colReferences = new ArrayList<ColumnReference>();
+		/** User defined functions. */
+		public final ArrayList<UserDefinedFunction> udfs = new ArrayList<UserDefinedFunction>();
+		/** Geometrical functions. */
+		public final ArrayList<GeometryFunction> geometries = new ArrayList<GeometryFunction>();
+		/** Explicit coordinate systems. */
+		public final ArrayList<StringConstant> coordSys = new ArrayList<StringConstant>();
+		/** REGION functions with a {@link StringConstant} parameter. */
+		public final ArrayList<RegionFunction> regions = new ArrayList<RegionFunction>();
+		/** Operands whose the type was unknown while checking the syntax. */
+		public final ArrayList<UnknownType> unknownTypes = new ArrayList<UnknownType>();
+		/** Sub-queries outside the clause FROM. */
+		public final ArrayList<ADQLQuery> subQueries = new ArrayList<ADQLQuery>();
+
+		/** Indicate whether the visit is inside the clause FROM. */
+		private boolean inFrom = false;
+		/** Indicate whether the visit is inside the clause SELECT. */
+		private boolean inSelect = false;
+		/** Indicate whether the visit is inside the clause GROUP BY. */
+		private boolean inGroupBy = false;
 
-	/**
-	 * Lets searching all wildcards.
-	 *
-	 * @author Gr&eacute;gory Mantelet (CDS)
-	 * @version 1.0 (09/2011)
-	 */
-	private static class SearchWildCardHandler extends SimpleSearchHandler {
-		@Override
-		public boolean match(final ADQLObject obj){
-			return (obj instanceof SelectAllColumns) && (((SelectAllColumns)obj).getAdqlTable() != null);
+		/**
+		 * Gather all items of the given query.
+		 *
+		 * @param query	The query to visit.
+		 */
+		public QueryItems(final ADQLQuery query){
+			this.query = query;
+			visit(query);
 		}
-	}
 
-	/**
-	 * Lets searching column references.
-	 *
-	 * @author Gr&eacute;gory Mantelet (CDS)
-	 * @version 1.0 (11/2011)
-	 */
-	private static class SearchColReferenceHandler extends SimpleSearchHandler {
-		@Override
-		public boolean match(final ADQLObject obj){
-			return (obj instanceof ColumnReference);
+		/**
+		 * Get the visited query.
+		 *
+		 * @return	The visited query.
+		 */
+		public final ADQLQuery getQuery(){
+			return query;
 		}
-	}
 
-	/**
-	 * <p>Lets searching subqueries in every clause except the FROM one (hence the modification of the {@link #goInto(ADQLObject)}.</p>
-	 *
-	 * <p><i>
-	 * 	<u>Note:</u> The function {@link #addMatch(ADQLObject, ADQLIterator)} has been modified in order to
-	 * 	not have the root search object (here: the main query) in the list of results.
-	 * </i></p>
-	 *
-	 * @author Gr&eacute;gory Mantelet (ARI)
-	 * @version 1.2 (12/2013)
-	 * @since 1.2
-	 */
-	private static class SearchSubQueryHandler extends SimpleSearchHandler {
 		@Override
-		protected void addMatch(ADQLObject matchObj, ADQLIterator it){
-			if (it != null)
-				super.addMatch(matchObj, it);
-		}
+		protected boolean enter(final ADQLObject obj, final ADQLObject parent){
+			// Sub-queries are not visited:
+			if (obj instanceof ADQLQuery){
+				if (parent != null && !inFrom)
+					subQueries.add((ADQLQuery)obj);
+				return (parent == null);
+			}
 
-		@Override
-		protected boolean goInto(ADQLObject obj){
-			return super.goInto(obj) && !(obj instanceof FromContent);
-		}
+			// Clauses in which some items are searched:
+			if (obj == query.getFrom())
+				inFrom = true;
+			else if (obj == query.getSelect())
+				inSelect = true;
+			else if (obj == query.getGroupBy())
+				inGroupBy = true;
+
+			// DB items:
+			if (obj instanceof ADQLTable){
+				if (inFrom)
+					tables.add((ADQLTable)obj);
+			}else if (obj instanceof SelectAllColumns){
+				if (inSelect && ((SelectAllColumns)obj).getAdqlTable() != null)
+					wildcards.add((SelectAllColumns)obj);
+			}else if (obj instanceof ADQLColumn){
+				if (inGroupBy)
+					groupByColumns.add((ADQLColumn)obj);
+				else
+					columns.add((ADQLColumn)obj);
+			}else if (obj instanceof ColumnReference)
+				colReferences.add((ColumnReference)obj);
+
+			// Functions:
+			if (obj instanceof UserDefinedFunction)
+				udfs.add((UserDefinedFunction)obj);
+			if (obj instanceof GeometryFunction){
+				geometries.add((GeometryFunction)obj);
+				if (obj instanceof PointFunction || obj instanceof BoxFunction || obj instanceof CircleFunction || obj instanceof PolygonFunction){
+					if (((GeometryFunction)obj).getCoordinateSystem() instanceof StringConstant)
+						coordSys.add((StringConstant)((GeometryFunction)obj).getCoordinateSystem());
+				}else if (obj instanceof RegionFunction && ((RegionFunction)obj).getParameter(0) instanceof StringConstant)
+					regions.add((RegionFunction)obj);
+			}
 
-		@Override
-		protected boolean match(ADQLObject obj){
-			return (obj instanceof ADQLQuery);
+			// Unknown types:
+			if (obj instanceof UnknownType){
+				char expected = ((UnknownType)obj).getExpectedType();
+				if (expected == 'G' || expected == 'g' || expected == 'S' || expected == 's' || expected == 'N' || expected == 'n')
+					unknownTypes.add((UnknownType)obj);
+			}
+
+			return true;
 		}
-	}
 
-	/**
-	 * Let searching user defined functions.
-	 *
-	 * @author Gr&eacute;gory Mantelet (ARI)
-	 * @version 1.3 (10/2014)
-	 * @since 1.3
-	 */
-	private static class SearchUDFHandler extends SimpleSearchHandler {
 		@Override
-		protected boolean match(ADQLObject obj){
-			return (obj instanceof UserDefinedFunction);
+		protected void leave(final ADQLObject obj){
+			if (obj == query.getFrom())
+				inFrom = false;
+			else if (obj == query.getSelect())
+				inSelect = false;
+			else if (obj == query.getGroupBy())
+				inGroupBy = false;
 		}
 	}
 
@@ -1435,7 +1642,7 @@ public class DBChecker implements QueryChecker {
 	 * </i></p>
 	 *
 	 * @author Gr&eacute;gory Mantelet (ARI)
-	 * @version 1.3 (02/2015)
+	 * @version 1.5 (10/2026)
 	 * @since 1.3
 	 */
 	private static class ReplaceDefaultUDFHandler extends SimpleReplaceHandler {
@@ -1447,6 +1654,19 @@ public class DBChecker implements QueryChecker {
 
 		@Override
 		protected boolean match(ADQLObject obj){
+			return isReplaceable(obj);
+		}
+
+		/**
+		 * Tell whether the given object is a {@link DefaultUDF} to replace.
+		 *
+		 * @param obj	The object to test.
+		 *
+		 * @return	<i>true</i> if it must be replaced, <i>false</i> otherwise.
+		 *
+		 * @since 1.5
+		 */
+		static boolean isReplaceable(final ADQLObject obj){
 			return (obj.getClass().getName().equals(DefaultUDF.class.getName())) && (((DefaultUDF)obj).getDefinition() != null) && (((DefaultUDF)obj).getDefinition().getUDFClass() != null);
 			/* Note: detection of DefaultUDF is done on the exact class name rather than using "instanceof" in order to have only direct instances of DefaultUDF,
 			 * and not extensions of it. Indeed, DefaultUDFs are generally created automatically by the ADQLQueryFactory ; so, extensions of it can only be custom
@@ -1472,86 +1692,6 @@ public class DBChecker implements QueryChecker {
 		}
 	}
 
-	/**
-	 * Let searching geometrical functions.
-	 *
-	 * @author Gr&eacute;gory Mantelet (ARI)
-	 * @version 1.3 (10/2014)
-	 * @since 1.3
-	 */
-	private static class SearchGeometryHandler extends SimpleSearchHandler {
-		@Override
-		protected boolean match(ADQLObject obj){
-			return (obj instanceof GeometryFunction);
-		}
-	}
-
-	/**
-	 * <p>Let searching all ADQL objects whose the type was not known while checking the syntax of the ADQL query.
-	 * These objects are {@link ADQLColumn}s and {@link UserDefinedFunction}s.</p>
-	 *
-	 * <p><i><b>Important note:</b>
-	 * 	Only {@link UnknownType} instances having an expected type equals to 'S' (or 's' ; for string) or 'N' (or 'n' ; for numeric)
-	 * 	are kept by this handler. Others are ignored.
-	 * </i></p>
-	 *
-	 * @author Gr&eacute;gory Mantelet (ARI)
-	 * @version 1.3 (10/2014)
-	 * @since 1.3
-	 */
-	private static class SearchUnknownTypeHandler extends SimpleSearchHandler {
-		@Override
-		protected boolean match(ADQLObject obj){
-			if (obj instanceof UnknownType){
-				char expected = ((UnknownType)obj).getExpectedType();
-				return (expected == 'G' || expected == 'g' || expected == 'S' || expected == 's' || expected == 'N' || expected == 'n');
-			}else
-				return false;
-		}
-	}
-
-	/**
-	 * Let searching all explicit declaration of coordinate systems.
-	 * So, only {@link StringConstant} objects will be returned.
-	 *
-	 * @author Gr&eacute;gory Mantelet (ARI)
-	 * @version 1.3 (10/2014)
-	 * @since 1.3
-	 */
-	private static class SearchCoordSysHandler extends SimpleSearchHandler {
-		@Override
-		protected boolean match(ADQLObject obj){
-			if (obj instanceof PointFunction || obj instanceof BoxFunction || obj instanceof CircleFunction || obj instanceof PolygonFunction)
-				return (((GeometryFunction)obj).getCoordinateSystem() instanceof StringConstant);
-			else
-				return false;
-		}
-
-		@Override
-		protected void addMatch(ADQLObject matchObj, ADQLIterator it){
-			results.add(((GeometryFunction)matchObj).getCoordinateSystem());
-		}
-
-	}
-
-	/**
-	 * Let searching all {@link RegionFunction}s.
-	 *
-	 * @author Gr&eacute;gory Mantelet (ARI)
-	 * @version 1.3 (10/2014)
-	 * @since 1.3
-	 */
-	private static class SearchRegionHandler extends SimpleSearchHandler {
-		@Override
-		protected boolean match(ADQLObject obj){
-			if (obj instanceof RegionFunction)
-				return (((RegionFunction)obj).getParameter(0) instanceof StringConstant);
-			else
-				return false;
-		}
-
-	}
-
 	/**
 	 * <p>Implement the binary search algorithm over a sorted array.</p>
 	 *
@@ -16,7 +16,7 @@ package adql.db;
  * You should have received a copy of the GNU Lesser General Public License
  * along with ADQLLibrary.  If not, see <http://www.gnu.org/licenses/>.
  * 
- * Copyright 2011-2016 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2011-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
@@ -29,7 +29,7 @@ package adql.db;
  * </p>
  * 
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 1.4 (07/2016)
+ * @version 1.5 (10/2026)
  */
 public interface DBColumn {
 
@@ -60,6 +60,21 @@ public interface DBColumn {
 	 */
 	public DBType getDatatype();
 
+	/**
+	 * <p>Get the UCD describing the scientific content of this column.</p>
+	 * 
+	 * <p><i>Note:
+	 * 	Some translators use it to identify the main position of a table
+	 * 	(i.e. the UCDs <code>pos.eq.ra;meta.main</code> and
+	 * 	<code>pos.eq.dec;meta.main</code>).
+	 * </i></p>
+	 * 
+	 * @return	Its UCD, or <i>null</i> if unknown.
+	 * 
+	 * @since 1.5
+	 */
+	public String getUcd();
+
 	/**
 	 * Gets the table which contains this {@link DBColumn}.
 	 * 
@@ -34,7 +34,7 @@ import adql.query.ADQLQuery;
  * in case of several JOINs.
  * 
  * @author Gr&eacute;gory Mantelet (ARI) - gmantele@ari.uni-heidelberg.de
- * @version 1.3 (05/2015)
+ * @version 1.5 (10/2026)
  * @since 1.2
  */
 public class DBCommonColumn implements DBColumn {
@@ -122,6 +122,11 @@ public class DBCommonColumn implements DBColumn {
 		return generalColumnDesc.getDatatype();
 	}
 
+	@Override
+	public final String getUcd(){
+		return generalColumnDesc.getUcd();
+	}
+
 	@Override
 	public final DBTable getTable(){
 		return null;
@@ -16,7 +16,7 @@ package adql.db;
  * You should have received a copy of the GNU Lesser General Public License
  * along with ADQLLibrary.  If not, see <http://www.gnu.org/licenses/>.
  * 
- * Copyright 2012,2015 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
@@ -24,7 +24,7 @@ package adql.db;
  * Default implementation of {@link DBColumn}.
  * 
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 1.4 (08/2015)
+ * @version 1.5 (10/2026)
  */
 public class DefaultDBColumn implements DBColumn {
 
@@ -38,6 +38,9 @@ public class DefaultDBColumn implements DBColumn {
 	protected DBTable table;
 	/** Name that this column must have in ADQL queries. */
 	protected String adqlName = null;
+	/** UCD describing the scientific content of this column.
+	 * @since 1.5 */
+	protected String ucd = null;
 
 	/**
 	 * Builds a default {@link DBColumn} with the given DB name and DB table.
@@ -157,6 +160,22 @@ public class DefaultDBColumn implements DBColumn {
 		this.type = type;
 	}
 
+	@Override
+	public final String getUcd(){
+		return ucd;
+	}
+
+	/**
+	 * Set the UCD describing the scientific content of this column.
+	 * 
+	 * @param ucd	Its new UCD. <i>MAY be NULL</i>
+	 * 
+	 * @since 1.5
+	 */
+	public final void setUcd(final String ucd){
+		this.ucd = ucd;
+	}
+
 	@Override
 	public final String getDBName(){
 		return dbName;
@@ -173,7 +192,9 @@ public class DefaultDBColumn implements DBColumn {
 
 	@Override
 	public DBColumn copy(final String dbName, final String adqlName, final DBTable dbTable){
-		return new DefaultDBColumn(dbName, adqlName, type, dbTable);
+		DefaultDBColumn copy = new DefaultDBColumn(dbName, adqlName, type, dbTable);
+		copy.setUcd(ucd);
+		return copy;
 	}
 
 }
@@ -0,0 +1,54 @@
+package adql.search;
+
+/*
+ * This file is part of ADQLLibrary.
+ * 
+ * ADQLLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ADQLLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ADQLLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import adql.query.ADQLObject;
+
+/**
+ * <p>Defines an interface for any kind of visitor of an ADQL tree.</p>
+ * 
+ * <p>
+ * 	Contrary to an {@link ISearchHandler}, which collects objects matching
+ * 	only one condition, a visitor is notified of every ADQL object of the
+ * 	tree. Thus, several kinds of object can be gathered (or processed) in a
+ * 	single traversal of the tree.
+ * </p>
+ * 
+ * <p>
+ * 	A simple implementation of this interface already exists: {@link SimpleVisitor}.
+ * </p>
+ * 
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 1.5 (10/2026)
+ * @since 1.5
+ * 
+ * @see ISearchHandler
+ * @see SimpleVisitor
+ */
+public interface IVisitor {
+
+	/**
+	 * Visits all ADQL objects from the given ADQL object (included).
+	 * 
+	 * @param startObj	The ADQL object from which the visit must start.
+	 */
+	public void visit(ADQLObject startObj);
+
+}
@@ -0,0 +1,118 @@
+package adql.search;
+
+/*
+ * This file is part of ADQLLibrary.
+ * 
+ * ADQLLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * 
+ * ADQLLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * 
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ADQLLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ * 
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.util.ArrayList;
+
+import adql.query.ADQLIterator;
+import adql.query.ADQLObject;
+
+/**
+ * <p>Visits an ADQL tree in a depth-first order, as {@link SimpleSearchHandler} does.</p>
+ * 
+ * <p>
+ * 	For each ADQL object, {@link #enter(ADQLObject, ADQLObject)} is called
+ * 	first. If it returns <i>true</i>, all the children of this object are
+ * 	visited. Then, {@link #leave(ADQLObject)} is called. The children of an
+ * 	object are always visited in the order of its {@link ADQLIterator}.
+ * </p>
+ * 
+ * <p><i>Note:
+ * 	The tree is walked without recursion: only one stack of iterators is
+ * 	allocated, whatever is the depth of the tree.
+ * </i></p>
+ * 
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 1.5 (10/2026)
+ * @since 1.5
+ */
+public abstract class SimpleVisitor implements IVisitor {
+
+	/**
+	 * Resets this visitor before the beginning of the visit:
+	 * by default, nothing is done.
+	 */
+	protected void reset(){
+		;
+	}
+
+	@Override
+	public final void visit(final ADQLObject startObj){
+		reset();
+
+		if (startObj == null)
+			return;
+
+		if (!enter(startObj, null)){
+			leave(startObj);
+			return;
+		}
+
+		ArrayList<ADQLObject> stackObj = new ArrayList<ADQLObject>();
+		ArrayList<ADQLIterator> stackIt = new ArrayList<ADQLIterator>();
+		ADQLObject current = startObj;
+		ADQLIterator it = startObj.adqlIterator();
+
+		while(true){
+			// Visit the next child of the current object:
+			if (it != null && it.hasNext()){
+				ADQLObject obj = it.next();
+				if (obj == null)
+					continue;
+				if (enter(obj, current)){
+					stackObj.add(current);
+					stackIt.add(it);
+					current = obj;
+					it = obj.adqlIterator();
+				}else
+					leave(obj);
+			}
+			// No more child => go back to the parent:
+			else{
+				leave(current);
+				if (stackObj.isEmpty())
+					return;
+				current = stackObj.remove(stackObj.size() - 1);
+				it = stackIt.remove(stackIt.size() - 1);
+			}
+		}
+	}
+
+	/**
+	 * Processes the given ADQL object before its children.
+	 * 
+	 * @param obj		The visited ADQL object.
+	 * @param parent	Its parent. <i>NULL if the given object is the one from which the visit started.</i>
+	 * 
+	 * @return	<i>true</i> if the children of the given object must be visited, <i>false</i> otherwise.
+	 */
+	protected abstract boolean enter(ADQLObject obj, ADQLObject parent);
+
+	/**
+	 * Processes the given ADQL object after its children (if visited):
+	 * by default, nothing is done.
+	 * 
+	 * @param obj	The visited ADQL object.
+	 */
+	protected void leave(ADQLObject obj){
+		;
+	}
+
+}
@@ -0,0 +1,520 @@
+package adql.translator;
+
+/*
+ * This file is part of ADQLLibrary.
+ *
+ * ADQLLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ADQLLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ADQLLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import adql.query.constraint.Comparison;
+import adql.query.constraint.ComparisonOperator;
+import adql.query.operand.ADQLColumn;
+import adql.query.operand.ADQLOperand;
+import adql.query.operand.function.geometry.BoxFunction;
+import adql.query.operand.function.geometry.CircleFunction;
+import adql.query.operand.function.geometry.ContainsFunction;
+import adql.query.operand.function.geometry.DistanceFunction;
+import adql.query.operand.function.geometry.GeometryFunction;
+import adql.query.operand.function.geometry.GeometryFunction.GeometryValue;
+import adql.query.operand.function.geometry.IntersectsFunction;
+import adql.query.operand.function.geometry.PointFunction;
+
+/**
+ * Rewrites ADQL positional constraints into plain numeric SQL predicates, for
+ * DBMS without any spatial extension (e.g. MySQL, MS SQL Server).
+ *
+ * <p>
+ * 	Positions are expected to be stored in two numeric columns (right
+ * 	ascension in [0;360[ and declination in [-90;90], both in degrees). The
+ * 	following constraints are rewritten:
+ * </p>
+ * <ul>
+ * 	<li><code>CONTAINS(POINT(..., ra, dec), CIRCLE(..., ra0, dec0, r)) = 1</code>
+ * 		and <code>DISTANCE(POINT(..., ra, dec), POINT(..., ra0, dec0)) &lt;= r</code>
+ * 		become a bounding box made of <code>BETWEEN</code> ranges on
+ * 		<code>dec</code> and <code>ra</code>, followed by the exact spherical
+ * 		distance (haversine formula) as refinement,</li>
+ * 	<li><code>CONTAINS(POINT(..., ra, dec), BOX(..., ra0, dec0, w, h)) = 1</code>
+ * 		becomes the corresponding <code>BETWEEN</code> ranges only.</li>
+ * </ul>
+ * <p>
+ * 	<code>INTERSECTS</code> between a point and a region is handled exactly
+ * 	like <code>CONTAINS</code>, and a comparison with <code>0</code> (or
+ * 	<code>!=</code>) produces the negation of the predicate. The region (or
+ * 	the reference point) must be made of numeric constants. Any other
+ * 	constraint is not rewritten (i.e. {@link #translate(Comparison)} returns
+ * 	NULL).
+ * </p>
+ *
+ * <p>
+ * 	Since all the generated ranges are sargable, a simple composite B-tree
+ * 	index on <code>(dec, ra)</code> is enough to serve cone searches.
+ * </p>
+ *
+ * <h3>RA wrap-around and poles</h3>
+ * <p>
+ * 	The RA range of a cone is <code>ra0 &plusmn; asin(sin(r) / cos(dec0))</code>.
+ * 	When it crosses 0 (or 360), it is split into two ranges joined by an
+ * 	<code>OR</code>. When the cone includes a pole, no RA range is generated
+ * 	and the declination range is clamped to [-90;90].
+ * </p>
+ *
+ * <h3>POINT columns</h3>
+ * <p>
+ * 	A POINT column is resolved into the right ascension and declination
+ * 	columns of the same table (see
+ * 	{@link JDBCTranslator#getPositionColumns(ADQLColumn, String, String)}).
+ * 	They are identified in each table by their UCD
+ * 	(<code>pos.eq.ra;meta.main</code> and <code>pos.eq.dec;meta.main</code>).
+ * 	If a table does not declare these UCDs, the columns named, by default,
+ * 	<code>ra</code> and <code>dec</code> are used (see
+ * 	{@link #setPositionColumnNames(String, String)}).
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 1.5 (10/2026)
+ * @since 1.5
+ */
+public class BoundingBoxPrefilter {
+
+	/** Margin (in degrees) added to all generated ranges, so that rounding
+	 * errors can never exclude a position selected by the exact refinement. */
+	protected final static double MARGIN = 1e-9;
+
+	/** Translator to use for all the non-constant operands. */
+	protected final JDBCTranslator translator;
+
+	/** DB name of the right ascension column used to resolve a POINT column
+	 * when no column of its table has the UCD <code>pos.eq.ra;meta.main</code>. */
+	protected String raColumnName = "ra";
+
+	/** DB name of the declination column used to resolve a POINT column
+	 * when no column of its table has the UCD <code>pos.eq.dec;meta.main</code>. */
+	protected String decColumnName = "dec";
+
+	/**
+	 * Build a prefilter rewriter.
+	 *
+	 * @param translator	Translator to use for all non-constant operands
+	 *                  	(e.g. column references).
+	 *
+	 * @throws NullPointerException	If the given translator is NULL.
+	 */
+	public BoundingBoxPrefilter(final JDBCTranslator translator) throws NullPointerException{
+		if (translator == null)
+			throw new NullPointerException("Missing translator!");
+		this.translator = translator;
+	}
+
+	/**
+	 * Get the DB name of the right ascension column used to resolve a POINT
+	 * column.
+	 *
+	 * @return	DB name of the RA column.
+	 */
+	public final String getRAColumnName(){
+		return raColumnName;
+	}
+
+	/**
+	 * Get the DB name of the declination column used to resolve a POINT
+	 * column.
+	 *
+	 * @return	DB name of the Dec column.
+	 */
+	public final String getDecColumnName(){
+		return decColumnName;
+	}
+
+	/**
+	 * Set the DB names of the right ascension and declination columns to use
+	 * in replacement of a POINT column, when its table does not declare its
+	 * main position with UCDs.
+	 *
+	 * @param ra	DB name of the RA column. <i>If NULL, nothing is changed.</i>
+	 * @param dec	DB name of the Dec column. <i>If NULL, nothing is changed.</i>
+	 */
+	public void setPositionColumnNames(final String ra, final String dec){
+		if (ra != null && ra.trim().length() > 0)
+			raColumnName = ra.trim();
+		if (dec != null && dec.trim().length() > 0)
+			decColumnName = dec.trim();
+	}
+
+	/**
+	 * Rewrite the given comparison into RA/Dec ranges (plus an exact
+	 * refinement for cones), if it matches one of the supported positional
+	 * constraints.
+	 *
+	 * @param comp	The comparison to rewrite.
+	 *
+	 * @return	The corresponding SQL predicate,
+	 *        	or NULL if the given comparison is not a supported positional
+	 *        	constraint.
+	 *
+	 * @throws TranslationException	If the translation of a column fails.
+	 */
+	public String translate(final Comparison comp) throws TranslationException{
+		if (comp == null)
+			return null;
+
+		ADQLOperand left = comp.getLeftOperand(), right = comp.getRightOperand();
+		ComparisonOperator op = comp.getOperator();
+
+		// CASE: CONTAINS/INTERSECTS(...) = 0|1
+		if (op == ComparisonOperator.EQUAL || op == ComparisonOperator.NOT_EQUAL){
+			GeometryFunction fct = null;
+			Double value = null;
+			if (isContainsOrIntersects(left)){
+				fct = (GeometryFunction)left;
+				value = JDBCTranslator.getNumericValue(right);
+			}else if (isContainsOrIntersects(right)){
+				fct = (GeometryFunction)right;
+				value = JDBCTranslator.getNumericValue(left);
+			}
+			if (fct == null || value == null || (value != 0 && value != 1))
+				return null;
+
+			String predicate = translateRegionConstraint(fct);
+			if (predicate == null)
+				return null;
+
+			boolean negative = (value == 0) ^ (op == ComparisonOperator.NOT_EQUAL);
+			return negative ? "NOT " + predicate : predicate;
+		}
+
+		// CASE: DISTANCE(...) < r  or  r > DISTANCE(...)
+		DistanceFunction distance = null;
+		Double radius = null;
+		boolean strict = false;
+		if (left instanceof DistanceFunction && (op == ComparisonOperator.LESS_THAN || op == ComparisonOperator.LESS_OR_EQUAL)){
+			distance = (DistanceFunction)left;
+			radius = JDBCTranslator.getNumericValue(right);
+			strict = (op == ComparisonOperator.LESS_THAN);
+		}else if (right instanceof DistanceFunction && (op == ComparisonOperator.GREATER_THAN || op == ComparisonOperator.GREATER_OR_EQUAL)){
+			distance = (DistanceFunction)right;
+			radius = JDBCTranslator.getNumericValue(left);
+			strict = (op == ComparisonOperator.GREATER_THAN);
+		}
+		if (distance == null || radius == null || radius < 0)
+			return null;
+
+		double[] center;
+		String[] position;
+		if ((center = getConstantPoint(distance.getP2())) != null)
+			position = getPointCoordinates(distance.getP1());
+		else if ((center = getConstantPoint(distance.getP1())) != null)
+			position = getPointCoordinates(distance.getP2());
+		else
+			return null;
+		if (position == null)
+			return null;
+
+		return getConeConstraint(position[0], position[1], center[0], center[1], radius, strict);
+	}
+
+	/**
+	 * Translate the given DISTANCE function into the exact spherical distance
+	 * expression (see {@link #getDistanceExpression(String, String, String, String)}).
+	 *
+	 * @param fct	The DISTANCE function to translate.
+	 *
+	 * @return	The corresponding SQL expression,
+	 *        	or NULL if one of the points can not be resolved into two
+	 *        	coordinates.
+	 *
+	 * @throws TranslationException	If the translation of a coordinate fails.
+	 */
+	public String translate(final DistanceFunction fct) throws TranslationException{
+		String[] p1 = getPointCoordinates(fct.getP1()), p2 = getPointCoordinates(fct.getP2());
+		if (p1 == null || p2 == null)
+			return null;
+		else
+			return getDistanceExpression(p1[0], p1[1], p2[0], p2[1]);
+	}
+
+	/**
+	 * Rewrite the given CONTAINS or INTERSECTS function, if its first
+	 * argument is a position and its second one a constant CIRCLE or BOX.
+	 *
+	 * @param fct	A CONTAINS or INTERSECTS function.
+	 *
+	 * @return	The corresponding SQL predicate (surrounded by parenthesis),
+	 *        	or NULL if the function can not be rewritten.
+	 *
+	 * @throws TranslationException	If the translation of a column fails.
+	 */
+	protected String translateRegionConstraint(final GeometryFunction fct) throws TranslationException{
+		ADQLOperand[] params = fct.getParameters();
+		if (params.length != 2 || !(params[0] instanceof GeometryValue) || !(params[1] instanceof GeometryValue))
+			return null;
+
+		@SuppressWarnings("unchecked")
+		GeometryValue<GeometryFunction> left = (GeometryValue<GeometryFunction>)params[0], right = (GeometryValue<GeometryFunction>)params[1];
+
+		// INTERSECTS is commutative:
+		if (fct instanceof IntersectsFunction && !(left.getValue() instanceof PointFunction || left.getValue() instanceof ADQLColumn)){
+			GeometryValue<GeometryFunction> tmp = left;
+			left = right;
+			right = tmp;
+		}
+
+		String[] position = getPointCoordinates(left);
+		if (position == null)
+			return null;
+
+		ADQLOperand region = right.getValue();
+		if (region instanceof CircleFunction){
+			CircleFunction circle = (CircleFunction)region;
+			Double ra0 = JDBCTranslator.getNumericValue(circle.getCoord1()), dec0 = JDBCTranslator.getNumericValue(circle.getCoord2()), radius = JDBCTranslator.getNumericValue(circle.getRadius());
+			if (ra0 == null || dec0 == null || radius == null || radius < 0)
+				return null;
+			return getConeConstraint(position[0], position[1], ra0, dec0, radius, false);
+		}else if (region instanceof BoxFunction){
+			BoxFunction box = (BoxFunction)region;
+			Double ra0 = JDBCTranslator.getNumericValue(box.getCoord1()), dec0 = JDBCTranslator.getNumericValue(box.getCoord2()), width = JDBCTranslator.getNumericValue(box.getWidth()), height = JDBCTranslator.getNumericValue(box.getHeight());
+			if (ra0 == null || dec0 == null || width == null || height == null || width < 0 || height < 0)
+				return null;
+			return getBoxConstraint(position[0], position[1], ra0, dec0, width / 2, height / 2);
+		}else
+			return null;
+	}
+
+	/**
+	 * Build the predicate selecting all positions in the given cone: RA/Dec
+	 * ranges followed by the exact distance refinement.
+	 *
+	 * @param ra		SQL expression of the position right ascension.
+	 * @param dec		SQL expression of the position declination.
+	 * @param ra0		Right ascension of the cone center (in degrees).
+	 * @param dec0		Declination of the cone center (in degrees).
+	 * @param radius	Radius of the cone (in degrees).
+	 * @param strict	<i>true</i> if positions at exactly the given radius
+	 *              	must be excluded, <i>false</i> otherwise.
+	 *
+	 * @return	The corresponding SQL predicate (surrounded by parenthesis).
+	 */
+	protected String getConeConstraint(final String ra, final String dec, double ra0, final double dec0, final double radius, final boolean strict){
+		ra0 = normalizeRA(ra0);
+
+		StringBuffer sql = new StringBuffer("(");
+
+		// Declination range:
+		double decMin = dec0 - radius, decMax = dec0 + radius;
+		appendDecRange(sql, dec, decMin, decMax);
+
+		// Right ascension range (only if no pole is included):
+		if (decMin > -90 && decMax < 90){
+			double x = Math.sin(Math.toRadians(radius)) / Math.cos(Math.toRadians(dec0));
+			if (x < 1){
+				double halfWidth = Math.toDegrees(Math.asin(x));
+				sql.append(" AND ");
+				appendRARange(sql, ra, ra0 - halfWidth, ra0 + halfWidth);
+			}
+		}
+
+		// Exact refinement:
+		sql.append(" AND ").append(getDistanceExpression(ra, dec, toSQL(ra0), (dec0 < 0) ? "(" + toSQL(dec0) + ")" : toSQL(dec0))).append(strict ? " < " : " <= ").append(toSQL(radius));
+
+		return sql.append(')').toString();
+	}
+
+	/**
+	 * Build the predicate selecting all positions in the given box (defined as
+	 * a range of right ascension and a range of declination).
+	 *
+	 * @param ra			SQL expression of the position right ascension.
+	 * @param dec			SQL expression of the position declination.
+	 * @param ra0			Right ascension of the box center (in degrees).
+	 * @param dec0			Declination of the box center (in degrees).
+	 * @param halfWidth		Half of the box width (in degrees).
+	 * @param halfHeight	Half of the box height (in degrees).
+	 *
+	 * @return	The corresponding SQL predicate (surrounded by parenthesis).
+	 */
+	protected String getBoxConstraint(final String ra, final String dec, double ra0, final double dec0, final double halfWidth, final double halfHeight){
+		ra0 = normalizeRA(ra0);
+
+		StringBuffer sql = new StringBuffer("(");
+		appendDecRange(sql, dec, dec0 - halfHeight, dec0 + halfHeight);
+		if (halfWidth < 180){
+			sql.append(" AND ");
+			appendRARange(sql, ra, ra0 - halfWidth, ra0 + halfWidth);
+		}
+		return sql.append(')').toString();
+	}
+
+	/**
+	 * Get the SQL expression computing the exact angular distance (in degrees)
+	 * between two positions, using the haversine formula.
+	 *
+	 * <p><i>Note:
+	 * 	Only standard mathematical functions (RADIANS, DEGREES, SIN, COS, ASIN,
+	 * 	SQRT, POWER) are used, so that the expression is understood by most
+	 * 	DBMS.
+	 * </i></p>
+	 *
+	 * @param ra1	SQL expression of the right ascension of the first position.
+	 * @param dec1	SQL expression of the declination of the first position.
+	 * @param ra2	SQL expression of the right ascension of the second position.
+	 * @param dec2	SQL expression of the declination of the second position.
+	 *
+	 * @return	The corresponding SQL expression.
+	 */
+	public String getDistanceExpression(final String ra1, final String dec1, final String ra2, final String dec2){
+		return "DEGREES(2 * ASIN(SQRT(POWER(SIN(RADIANS(" + dec1 + " - " + dec2 + ") / 2), 2) + COS(RADIANS(" + dec1 + ")) * COS(RADIANS(" + dec2 + ")) * POWER(SIN(RADIANS(" + ra1 + " - " + ra2 + ") / 2), 2))))";
+	}
+
+	/**
+	 * Append the range of declination, clamped to [-90;90].
+	 *
+	 * @param sql		Buffer in which the range must be written.
+	 * @param dec		SQL expression of the declination.
+	 * @param decMin	Minimum declination (in degrees).
+	 * @param decMax	Maximum declination (in degrees).
+	 */
+	protected void appendDecRange(final StringBuffer sql, final String dec, final double decMin, final double decMax){
+		sql.append(dec).append(" BETWEEN ").append(toSQL(Math.max(-90, decMin - MARGIN))).append(" AND ").append(toSQL(Math.min(90, decMax + MARGIN)));
+	}
+
+	/**
+	 * Append the range of right ascension, split in two ranges if crossing 0
+	 * (or 360).
+	 *
+	 * @param sql		Buffer in which the range must be written.
+	 * @param ra		SQL expression of the right ascension.
+	 * @param raMin		Minimum right ascension (in degrees ; may be negative).
+	 * @param raMax		Maximum right ascension (in degrees ; may be greater
+	 *             		than 360).
+	 */
+	protected void appendRARange(final StringBuffer sql, final String ra, double raMin, double raMax){
+		raMin -= MARGIN;
+		raMax += MARGIN;
+		if (raMin < 0)
+			sql.append('(').append(ra).append(" BETWEEN ").append(toSQL(raMin + 360)).append(" AND 360.0 OR ").append(ra).append(" BETWEEN 0.0 AND ").append(toSQL(raMax)).append(')');
+		else if (raMax > 360)
+			sql.append('(').append(ra).append(" BETWEEN ").append(toSQL(raMin)).append(" AND 360.0 OR ").append(ra).append(" BETWEEN 0.0 AND ").append(toSQL(raMax - 360)).append(')');
+		else
+			sql.append(ra).append(" BETWEEN ").append(toSQL(raMin)).append(" AND ").append(toSQL(raMax));
+	}
+
+	/**
+	 * Get the two SQL coordinates of the given position.
+	 *
+	 * @param value	A POINT function or a POINT column.
+	 *
+	 * @return	An array of two SQL expressions (RA and Dec.),
+	 *        	or NULL if the given value is neither a POINT function nor a
+	 *        	resolvable POINT column.
+	 *
+	 * @throws TranslationException	If the translation of a coordinate fails.
+	 */
+	protected String[] getPointCoordinates(final GeometryValue<? extends GeometryFunction> value) throws TranslationException{
+		if (value == null)
+			return null;
+
+		ADQLOperand op = value.getValue();
+		if (op instanceof PointFunction){
+			PointFunction point = (PointFunction)op;
+			return new String[]{ translateCoordinate(point.getCoord1()), translateCoordinate(point.getCoord2()) };
+		}else if (op instanceof ADQLColumn)
+			return translator.getPositionColumns((ADQLColumn)op, raColumnName, decColumnName);
+		else
+			return null;
+	}
+
+	/**
+	 * Translate the given coordinate of a POINT.
+	 *
+	 * <p>
+	 * 	A numeric constant is written as a floating-point literal (see
+	 * 	{@link #toSQL(double)}), surrounded by parenthesis if negative. Any
+	 * 	other operand is translated by the translator.
+	 * </p>
+	 *
+	 * @param coord	The coordinate to translate.
+	 *
+	 * @return	Its SQL expression.
+	 *
+	 * @throws TranslationException	If the translation of the coordinate fails.
+	 */
+	protected String translateCoordinate(final ADQLOperand coord) throws TranslationException{
+		Double value = JDBCTranslator.getNumericValue(coord);
+		if (value == null)
+			return translator.translate(coord);
+		else
+			return (value < 0) ? "(" + toSQL(value) + ")" : toSQL(value);
+	}
+
+	/**
+	 * Get the coordinates of the given point, if they are numeric constants.
+	 *
+	 * @param value	The point to evaluate.
+	 *
+	 * @return	An array of two values (RA and Dec.),
+	 *        	or NULL if the given value is not a constant point.
+	 */
+	protected final double[] getConstantPoint(final GeometryValue<PointFunction> value){
+		if (value == null || !(value.getValue() instanceof PointFunction))
+			return null;
+		PointFunction point = (PointFunction)value.getValue();
+		Double ra = JDBCTranslator.getNumericValue(point.getCoord1()), dec = JDBCTranslator.getNumericValue(point.getCoord2());
+		return (ra == null || dec == null) ? null : new double[]{ ra, dec };
+	}
+
+	/**
+	 * Tell whether the given operand is a CONTAINS or an INTERSECTS function.
+	 *
+	 * @param op	The operand to test.
+	 *
+	 * @return	<i>true</i> if it is a CONTAINS or INTERSECTS function,
+	 *        	<i>false</i> otherwise.
+	 */
+	protected final boolean isContainsOrIntersects(final ADQLOperand op){
+		return (op instanceof ContainsFunction || op instanceof IntersectsFunction);
+	}
+
+	/**
+	 * Normalize the given right ascension into [0;360[.
+	 *
+	 * @param ra	A right ascension (in degrees).
+	 *
+	 * @return	The normalized right ascension.
+	 */
+	protected final static double normalizeRA(final double ra){
+		double normalized = ra % 360;
+		return (normalized < 0) ? normalized + 360 : normalized;
+	}
+
+	/**
+	 * Format the given number as an SQL floating-point literal.
+	 *
+	 * <p><i>Note:
+	 * 	Even a whole number is written with a decimal part (e.g.
+	 * 	<code>20.0</code>): some DBMS (e.g. MS SQL Server) would otherwise
+	 * 	evaluate it as an integer, and functions like <code>RADIANS</code> would
+	 * 	then return an integer too (e.g. <code>RADIANS(20) = 0</code>).
+	 * </i></p>
+	 *
+	 * @param value	The number to format.
+	 *
+	 * @return	Its SQL representation.
+	 */
+	protected final static String toSQL(final double value){
+		return Double.toString(value);
+	}
+
+}
@@ -16,7 +16,7 @@ package adql.translator;
  * You should have received a copy of the GNU Lesser General Public License
  * along with ADQLLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2017-2019 - Astronomisches Rechen Institut (ARI),
+ * Copyright 2017-2026 - Astronomisches Rechen Institut (ARI),
  *                       UDS/Centre de Données astronomiques de Strasbourg (CDS)
  */
 
@@ -26,6 +26,7 @@ import adql.db.DBColumn;
 import adql.db.DBTable;
 import adql.db.DBTableAlias;
 import adql.db.DBType;
+import adql.db.DBType.DBDatatype;
 import adql.db.STCS.Region;
 import adql.db.exception.UnresolvedJoinException;
 import adql.parser.ParseException;
@@ -118,25 +119,48 @@ import adql.query.operand.function.geometry.RegionFunction;
  * 	The default behavior of this translator is to translate the ADQL "TOP" into
  * 	the SQL "LIMIT" at the end of the query. This is ok for some DBMS, but not
  * 	all. So, if your DBMS does not know the "LIMIT" keyword, you should override
- * 	the function translating the whole query: {@link #translate(ADQLQuery)}.
+ * 	the function translating the whole query: {@link #translate(ADQLQuery, StringBuilder)}.
  * 	Here is its current implementation:
  * </p>
  * <pre>
- * 	StringBuffer sql = new StringBuffer(translate(query.getSelect()));
+ * 	translate(query.getSelect(), sql);
  * 	sql.append("\nFROM ").append(translate(query.getFrom()));
  *	if (!query.getWhere().isEmpty())
- *		sql.append('\n').append(translate(query.getWhere()));
+ *		translate(query.getWhere(), sql.append('\n'));
  *	if (!query.getGroupBy().isEmpty())
- *		sql.append('\n').append(translate(query.getGroupBy()));
+ *		translate(query.getGroupBy(), sql.append('\n'));
  *	if (!query.getHaving().isEmpty())
- *		sql.append('\n').append(translate(query.getHaving()));
+ *		translate(query.getHaving(), sql.append('\n'));
  *	if (!query.getOrderBy().isEmpty())
- *		sql.append('\n').append(translate(query.getOrderBy()));
+ *		translate(query.getOrderBy(), sql.append('\n'));
  *	if (query.getSelect().hasLimit())
  *		sql.append("\nLimit ").append(query.getSelect().getLimit());
- *	return sql.toString();
+ *	return sql;
  * </pre>
  *
+ * <h3>Translation into a single buffer</h3>
+ *
+ * <p>
+ * 	The query, the lists (e.g. clauses, <code>IN</code> values, function
+ * 	parameters) and the operations are translated by appending their SQL
+ * 	directly into a single {@link StringBuilder}, thanks to the protected
+ * 	functions <code>translate(..., StringBuilder)</code>. Thus, the
+ * 	translation time stays linear with the size of the query, even with very
+ * 	long lists (e.g. an <code>IN</code> with thousands of values). The
+ * 	corresponding public <code>translate(...)</code> functions just call them
+ * 	with a new buffer. All the other items are still translated by their
+ * 	<code>translate(...)</code> function, whose result is appended into the
+ * 	buffer.
+ * </p>
+ *
+ * <p>
+ * 	To change the translation of one of these items, its
+ * 	<code>translate(..., StringBuilder)</code> function must be overridden: it
+ * 	is used for the item itself and for all nested items of its type. On the
+ * 	contrary, overriding only the public <code>translate(...)</code> function
+ * 	changes just the translation of the item given to this function.
+ * </p>
+ *
  * <h3>Translation of ADQL functions</h3>
  *
  * <p>
@@ -162,7 +186,7 @@ import adql.query.operand.function.geometry.RegionFunction;
  * </p>
  *
  * @author Gr&eacute;gory Mantelet (ARI;CDS)
- * @version 1.5 (03/2019)
+ * @version 1.5 (10/2026)
  * @since 1.4
  *
  * @see PostgreSQLTranslator
@@ -172,6 +196,14 @@ import adql.query.operand.function.geometry.RegionFunction;
  */
 public abstract class JDBCTranslator implements ADQLTranslator {
 
+	/** UCD of the right ascension column of the main position of a table.
+	 * @since 1.5 */
+	public final static String UCD_MAIN_RA = "pos.eq.ra;meta.main";
+
+	/** UCD of the declination column of the main position of a table.
+	 * @since 1.5 */
+	public final static String UCD_MAIN_DEC = "pos.eq.dec;meta.main";
+
 	/**
 	 * <p>Tell whether the specified identifier MUST be translated so that being interpreted case sensitively or not.
 	 * By default, an identifier that must be translated with case sensitivity will be surrounded by double quotes.
@@ -355,28 +387,79 @@ public abstract class JDBCTranslator implements ADQLTranslator {
 			return obj.toADQL();
 	}
 
+	/**
+	 * Append the SQL translation of the given ADQL object.
+	 *
+	 * <p><i>Note:
+	 * 	The query, the lists, the operands and the constraints are appended
+	 * 	directly (see the other <code>translate(..., StringBuilder)</code>
+	 * 	functions). Any other object is translated with
+	 * 	{@link #translate(ADQLObject)}.
+	 * </i></p>
+	 *
+	 * @param obj	The ADQL object to translate.
+	 * @param sql	The buffer in which the translation must be appended.
+	 *
+	 * @return	The given buffer.
+	 *
+	 * @throws TranslationException	If there is an error during the translation.
+	 *
+	 * @since 1.5
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected StringBuilder translate(final ADQLObject obj, final StringBuilder sql) throws TranslationException{
+		if (obj instanceof ADQLQuery)
+			return translate((ADQLQuery)obj, sql);
+		else if (obj instanceof ADQLList)
+			return translate((ADQLList)obj, sql);
+		else if (obj instanceof SelectItem)
+			return translate((SelectItem)obj, sql);
+		else if (obj instanceof ADQLOperand)
+			return translate((ADQLOperand)obj, sql);
+		else if (obj instanceof ADQLConstraint)
+			return translate((ADQLConstraint)obj, sql);
+		else
+			return sql.append(translate(obj));
+	}
+
 	@Override
 	public String translate(ADQLQuery query) throws TranslationException{
-		StringBuffer sql = new StringBuffer(translate(query.getSelect()));
+		return translate(query, new StringBuilder()).toString();
+	}
+
+	/**
+	 * Append the SQL translation of the given ADQL query.
+	 *
+	 * @param query	The ADQL query to translate.
+	 * @param sql	The buffer in which the translation must be appended.
+	 *
+	 * @return	The given buffer.
+	 *
+	 * @throws TranslationException	If there is an error during the translation.
+	 *
+	 * @since 1.5
+	 */
+	protected StringBuilder translate(final ADQLQuery query, final StringBuilder sql) throws TranslationException{
+		translate(query.getSelect(), sql);
 
 		sql.append("\nFROM ").append(translate(query.getFrom()));
 
 		if (!query.getWhere().isEmpty())
-			sql.append('\n').append(translate(query.getWhere()));
+			translate(query.getWhere(), sql.append('\n'));
 
 		if (!query.getGroupBy().isEmpty())
-			sql.append('\n').append(translate(query.getGroupBy()));
+			translate(query.getGroupBy(), sql.append('\n'));
 
 		if (!query.getHaving().isEmpty())
-			sql.append('\n').append(translate(query.getHaving()));
+			translate(query.getHaving(), sql.append('\n'));
 
 		if (!query.getOrderBy().isEmpty())
-			sql.append('\n').append(translate(query.getOrderBy()));
+			translate(query.getOrderBy(), sql.append('\n'));
 
 		if (query.getSelect().hasLimit())
 			sql.append("\nLimit ").append(query.getSelect().getLimit());
 
-		return sql.toString();
+		return sql;
 	}
 
 	/* *************************** */
@@ -384,14 +467,30 @@ public abstract class JDBCTranslator implements ADQLTranslator {
 	/* *************************** */
 	@Override
 	public String translate(ADQLList<? extends ADQLObject> list) throws TranslationException{
+		return translate(list, new StringBuilder()).toString();
+	}
+
+	/**
+	 * Append the SQL translation of the given list of ADQL objects.
+	 *
+	 * @param list	The list to translate.
+	 * @param sql	The buffer in which the translation must be appended.
+	 *
+	 * @return	The given buffer.
+	 *
+	 * @throws TranslationException	If there is an error during the translation.
+	 *
+	 * @since 1.5
+	 */
+	protected StringBuilder translate(final ADQLList<? extends ADQLObject> list, final StringBuilder sql) throws TranslationException{
 		if (list instanceof ClauseSelect)
-			return translate((ClauseSelect)list);
+			return translate((ClauseSelect)list, sql);
 		else if (list instanceof ClauseConstraints)
-			return translate((ClauseConstraints)list);
+			return translate((ClauseConstraints)list, sql);
 		else if (list instanceof Concatenation)
-			return getDefaultADQLList(list, false);
+			return translate((Concatenation)list, sql);
 		else
-			return getDefaultADQLList(list);
+			return appendDefaultADQLList(sql, list, true);
 	}
 
 	/**
@@ -430,25 +529,64 @@ public abstract class JDBCTranslator implements ADQLTranslator {
 	 * @since 1.4
 	 */
 	protected String getDefaultADQLList(ADQLList<? extends ADQLObject> list, final boolean withNamePrefix) throws TranslationException{
-		String sql = (list.getName() == null || !withNamePrefix) ? "" : (list.getName() + " ");
+		return appendDefaultADQLList(new StringBuilder(), list, withNamePrefix).toString();
+	}
 
-		for(int i = 0; i < list.size(); i++)
-			sql += ((i == 0) ? "" : (" " + list.getSeparator(i) + " ")) + translate(list.get(i));
+	/**
+	 * Appends the default SQL output for a list of ADQL objects.
+	 *
+	 * @param sql				The buffer in which the translation must be
+	 *           				appended.
+	 * @param list				List to format into SQL.
+	 * @param withNamePrefix	Prefix the list by its name or not.
+	 *                      	(e.g. 'false' for a Concatenation)
+	 *
+	 * @return	The given buffer.
+	 *
+	 * @throws TranslationException If there is an error during the translation.
+	 *
+	 * @since 1.5
+	 */
+	protected StringBuilder appendDefaultADQLList(final StringBuilder sql, final ADQLList<? extends ADQLObject> list, final boolean withNamePrefix) throws TranslationException{
+		if (list.getName() != null && withNamePrefix)
+			sql.append(list.getName()).append(' ');
+
+		for(int i = 0; i < list.size(); i++){
+			if (i > 0)
+				sql.append(' ').append(list.getSeparator(i)).append(' ');
+			translate(list.get(i), sql);
+		}
 
 		return sql;
 	}
 
 	@Override
 	public String translate(ClauseSelect clause) throws TranslationException{
-		String sql = null;
+		return translate(clause, new StringBuilder()).toString();
+	}
 
+	/**
+	 * Append the SQL translation of the given SELECT clause.
+	 *
+	 * @param clause	The SELECT clause to translate.
+	 * @param sql		The buffer in which the translation must be appended.
+	 *
+	 * @return	The given buffer.
+	 *
+	 * @throws TranslationException	If there is an error during the translation.
+	 *
+	 * @since 1.5
+	 */
+	protected StringBuilder translate(final ClauseSelect clause, final StringBuilder sql) throws TranslationException{
 		for(int i = 0; i < clause.size(); i++){
 			if (i == 0){
-				sql = clause.getName() + (clause.distinctColumns() ? " DISTINCT" : "");
+				sql.append(clause.getName());
+				if (clause.distinctColumns())
+					sql.append(" DISTINCT");
 			}else
-				sql += " " + clause.getSeparator(i);
+				sql.append(' ').append(clause.getSeparator(i));
 
-			sql += " " + translate(clause.get(i));
+			translate(clause.get(i), sql.append(' '));
 		}
 
 		return sql;
@@ -456,30 +594,60 @@ public abstract class JDBCTranslator implements ADQLTranslator {
 
 	@Override
 	public String translate(ClauseConstraints clause) throws TranslationException{
+		return translate(clause, new StringBuilder()).toString();
+	}
+
+	/**
+	 * Append the SQL translation of the given list of constraints.
+	 *
+	 * @param clause	The constraints to translate.
+	 * @param sql		The buffer in which the translation must be appended.
+	 *
+	 * @return	The given buffer.
+	 *
+	 * @throws TranslationException	If there is an error during the translation.
+	 *
+	 * @since 1.5
+	 */
+	protected StringBuilder translate(final ClauseConstraints clause, final StringBuilder sql) throws TranslationException{
 		if (clause instanceof ConstraintsGroup)
-			return "(" + getDefaultADQLList(clause) + ")";
+			return appendDefaultADQLList(sql.append('('), clause, true).append(')');
 		else
-			return getDefaultADQLList(clause);
+			return appendDefaultADQLList(sql, clause, true);
 	}
 
 	@Override
 	public String translate(SelectItem item) throws TranslationException{
+		return translate(item, new StringBuilder()).toString();
+	}
+
+	/**
+	 * Append the SQL translation of the given SELECT item.
+	 *
+	 * @param item	The SELECT item to translate.
+	 * @param sql	The buffer in which the translation must be appended.
+	 *
+	 * @return	The given buffer.
+	 *
+	 * @throws TranslationException	If there is an error during the translation.
+	 *
+	 * @since 1.5
+	 */
+	protected StringBuilder translate(final SelectItem item, final StringBuilder sql) throws TranslationException{
 		if (item instanceof SelectAllColumns)
-			return translate((SelectAllColumns)item);
+			return sql.append(translate((SelectAllColumns)item));
 
-		StringBuffer translation = new StringBuffer(translate(item.getOperand()));
+		translate(item.getOperand(), sql);
+		StringBuffer alias = new StringBuffer();
 		if (item.hasAlias()){
-			translation.append(" AS ");
 			if (item.isCaseSensitive())
-				appendIdentifier(translation, item.getAlias(), true);
+				appendIdentifier(alias, item.getAlias(), true);
 			else
-				appendIdentifier(translation, item.getAlias().toLowerCase(), true);
-		}else{
-			translation.append(" AS ");
-			appendIdentifier(translation, item.getName(), true);
-		}
+				appendIdentifier(alias, item.getAlias().toLowerCase(), true);
+		}else
+			appendIdentifier(alias, item.getName(), true);
 
-		return translation.toString();
+		return sql.append(" AS ").append(alias);
 	}
 
 	@Override
@@ -661,6 +829,38 @@ public abstract class JDBCTranslator implements ADQLTranslator {
 	/* ********************* */
 	/* ****** OPERAND ****** */
 	/* ********************* */
+	/**
+	 * Append the SQL translation of the given ADQL operand.
+	 *
+	 * <p><i>Note:
+	 * 	Concatenations, negative operands, wrapped operands, operations and
+	 * 	functions with the default translation are appended directly. Any
+	 * 	other operand is translated with its <code>translate(...)</code>
+	 * 	function.
+	 * </i></p>
+	 *
+	 * @param op	The operand to translate.
+	 * @param sql	The buffer in which the translation must be appended.
+	 *
+	 * @return	The given buffer.
+	 *
+	 * @throws TranslationException	If there is an error during the translation.
+	 *
+	 * @since 1.5
+	 */
+	protected StringBuilder translate(final ADQLOperand op, final StringBuilder sql) throws TranslationException{
+		if (op instanceof Concatenation)
+			return translate((Concatenation)op, sql);
+		else if (op instanceof NegativeOperand)
+			return translate((NegativeOperand)op, sql);
+		else if (op instanceof WrappedOperand)
+			return translate((WrappedOperand)op, sql);
+		else if (op instanceof Operation)
+			return translate((Operation)op, sql);
+		else
+			return sql.append(translate(op));
+	}
+
 	@Override
 	public String translate(ADQLOperand op) throws TranslationException{
 		if (op instanceof ADQLColumn)
@@ -715,12 +915,44 @@ public abstract class JDBCTranslator implements ADQLTranslator {
 
 	@Override
 	public String translate(Concatenation concat) throws TranslationException{
-		return translate((ADQLList<ADQLOperand>)concat);
+		return translate(concat, new StringBuilder()).toString();
+	}
+
+	/**
+	 * Append the SQL translation of the given concatenation.
+	 *
+	 * @param concat	The concatenation to translate.
+	 * @param sql		The buffer in which the translation must be appended.
+	 *
+	 * @return	The given buffer.
+	 *
+	 * @throws TranslationException	If there is an error during the translation.
+	 *
+	 * @since 1.5
+	 */
+	protected StringBuilder translate(final Concatenation concat, final StringBuilder sql) throws TranslationException{
+		return appendDefaultADQLList(sql, concat, false);
 	}
 
 	@Override
 	public String translate(NegativeOperand negOp) throws TranslationException{
-		return "-" + translate(negOp.getOperand());
+		return translate(negOp, new StringBuilder()).toString();
+	}
+
+	/**
+	 * Append the SQL translation of the given negative operand.
+	 *
+	 * @param negOp	The negative operand to translate.
+	 * @param sql	The buffer in which the translation must be appended.
+	 *
+	 * @return	The given buffer.
+	 *
+	 * @throws TranslationException	If there is an error during the translation.
+	 *
+	 * @since 1.5
+	 */
+	protected StringBuilder translate(final NegativeOperand negOp, final StringBuilder sql) throws TranslationException{
+		return translate(negOp.getOperand(), sql.append('-'));
 	}
 
 	@Override
@@ -735,17 +967,79 @@ public abstract class JDBCTranslator implements ADQLTranslator {
 
 	@Override
 	public String translate(WrappedOperand op) throws TranslationException{
-		return "(" + translate(op.getOperand()) + ")";
+		return translate(op, new StringBuilder()).toString();
+	}
+
+	/**
+	 * Append the SQL translation of the given wrapped operand.
+	 *
+	 * @param op	The wrapped operand to translate.
+	 * @param sql	The buffer in which the translation must be appended.
+	 *
+	 * @return	The given buffer.
+	 *
+	 * @throws TranslationException	If there is an error during the translation.
+	 *
+	 * @since 1.5
+	 */
+	protected StringBuilder translate(final WrappedOperand op, final StringBuilder sql) throws TranslationException{
+		return translate(op.getOperand(), sql.append('(')).append(')');
 	}
 
 	@Override
 	public String translate(Operation op) throws TranslationException{
-		return translate(op.getLeftOperand()) + op.getOperation().toADQL() + translate(op.getRightOperand());
+		return translate(op, new StringBuilder()).toString();
+	}
+
+	/**
+	 * Append the SQL translation of the given operation.
+	 *
+	 * @param op	The operation to translate.
+	 * @param sql	The buffer in which the translation must be appended.
+	 *
+	 * @return	The given buffer.
+	 *
+	 * @throws TranslationException	If there is an error during the translation.
+	 *
+	 * @since 1.5
+	 */
+	protected StringBuilder translate(final Operation op, final StringBuilder sql) throws TranslationException{
+		translate(op.getLeftOperand(), sql).append(op.getOperation().toADQL());
+		return translate(op.getRightOperand(), sql);
 	}
 
 	/* ************************ */
 	/* ****** CONSTRAINT ****** */
 	/* ************************ */
+	/**
+	 * Append the SQL translation of the given ADQL constraint.
+	 *
+	 * <p><i>Note:
+	 * 	Groups of constraints, <code>IN</code> and <code>NOT</code> are
+	 * 	appended directly. Any other constraint is translated with its
+	 * 	<code>translate(...)</code> function.
+	 * </i></p>
+	 *
+	 * @param cons	The constraint to translate.
+	 * @param sql	The buffer in which the translation must be appended.
+	 *
+	 * @return	The given buffer.
+	 *
+	 * @throws TranslationException	If there is an error during the translation.
+	 *
+	 * @since 1.5
+	 */
+	protected StringBuilder translate(final ADQLConstraint cons, final StringBuilder sql) throws TranslationException{
+		if (cons instanceof ClauseConstraints)
+			return translate((ClauseConstraints)cons, sql);
+		else if (cons instanceof In)
+			return translate((In)cons, sql);
+		else if (cons instanceof NotConstraint)
+			return translate((NotConstraint)cons, sql);
+		else
+			return sql.append(translate(cons));
+	}
+
 	@Override
 	public String translate(ADQLConstraint cons) throws TranslationException{
 		if (cons instanceof Comparison)
@@ -781,7 +1075,28 @@ public abstract class JDBCTranslator implements ADQLTranslator {
 
 	@Override
 	public String translate(In in) throws TranslationException{
-		return translate(in.getOperand()) + " " + in.getName() + " (" + (in.hasSubQuery() ? translate(in.getSubQuery()) : translate(in.getValuesList())) + ")";
+		return translate(in, new StringBuilder()).toString();
+	}
+
+	/**
+	 * Append the SQL translation of the given IN constraint.
+	 *
+	 * @param in	The IN constraint to translate.
+	 * @param sql	The buffer in which the translation must be appended.
+	 *
+	 * @return	The given buffer.
+	 *
+	 * @throws TranslationException	If there is an error during the translation.
+	 *
+	 * @since 1.5
+	 */
+	protected StringBuilder translate(final In in, final StringBuilder sql) throws TranslationException{
+		translate(in.getOperand(), sql).append(' ').append(in.getName()).append(" (");
+		if (in.hasSubQuery())
+			translate(in.getSubQuery(), sql);
+		else
+			translate(in.getValuesList(), sql);
+		return sql.append(')');
 	}
 
 	@Override
@@ -791,7 +1106,23 @@ public abstract class JDBCTranslator implements ADQLTranslator {
 
 	@Override
 	public String translate(NotConstraint notCons) throws TranslationException{
-		return "NOT " + translate(notCons.getConstraint());
+		return translate(notCons, new StringBuilder()).toString();
+	}
+
+	/**
+	 * Append the SQL translation of the given NOT constraint.
+	 *
+	 * @param notCons	The NOT constraint to translate.
+	 * @param sql		The buffer in which the translation must be appended.
+	 *
+	 * @return	The given buffer.
+	 *
+	 * @throws TranslationException	If there is an error during the translation.
+	 *
+	 * @since 1.5
+	 */
+	protected StringBuilder translate(final NotConstraint notCons, final StringBuilder sql) throws TranslationException{
+		return translate(notCons.getConstraint(), sql.append("NOT "));
 	}
 
 	/* *********************** */
@@ -821,12 +1152,31 @@ public abstract class JDBCTranslator implements ADQLTranslator {
 	 * @throws TranslationException	If there is an error during the translation.
 	 */
 	protected final String getDefaultADQLFunction(ADQLFunction fct) throws TranslationException{
-		String sql = fct.getName() + "(";
+		return appendDefaultADQLFunction(new StringBuilder(), fct).toString();
+	}
 
-		for(int i = 0; i < fct.getNbParameters(); i++)
-			sql += ((i == 0) ? "" : ", ") + translate(fct.getParameter(i));
+	/**
+	 * Appends the default SQL output for the given ADQL function.
+	 *
+	 * @param sql	The buffer in which the translation must be appended.
+	 * @param fct	The ADQL function to format into SQL.
+	 *
+	 * @return	The given buffer.
+	 *
+	 * @throws TranslationException	If there is an error during the translation.
+	 *
+	 * @since 1.5
+	 */
+	protected final StringBuilder appendDefaultADQLFunction(final StringBuilder sql, final ADQLFunction fct) throws TranslationException{
+		sql.append(fct.getName()).append('(');
+
+		for(int i = 0; i < fct.getNbParameters(); i++){
+			if (i > 0)
+				sql.append(", ");
+			translate(fct.getParameter(i), sql);
+		}
 
-		return sql + ")";
+		return sql.append(')');
 	}
 
 	@Override
@@ -885,6 +1235,100 @@ public abstract class JDBCTranslator implements ADQLTranslator {
 		return translate(geomValue.getValue());
 	}
 
+	/**
+	 * Resolve the given POINT column into the right ascension and declination
+	 * columns of the same table.
+	 *
+	 * <p>
+	 * 	This is useful for DBMS having no point type: a POINT column can then
+	 * 	be declared in the metadata (e.g. TAP_SCHEMA) next to the two numeric
+	 * 	columns actually storing the position.
+	 * </p>
+	 *
+	 * <p>
+	 * 	The RA/Dec columns are the columns of the table having the UCDs
+	 * 	{@value #UCD_MAIN_RA} and {@value #UCD_MAIN_DEC}. Only if the table
+	 * 	does not declare both, the columns having the given DB names are used.
+	 * </p>
+	 *
+	 * <p><i>Note:
+	 * 	The returned column references are prefixed exactly as
+	 * 	{@link #translate(ADQLColumn)} would do.
+	 * </i></p>
+	 *
+	 * @param column	A POINT column.
+	 * @param raDBName	DB name of the right ascension column,
+	 *                	if no column has the UCD {@value #UCD_MAIN_RA}.
+	 * @param decDBName	DB name of the declination column,
+	 *                 	if no column has the UCD {@value #UCD_MAIN_DEC}.
+	 *
+	 * @return	An array of two SQL column references (RA and Dec.),
+	 *        	or NULL if the given column is not a POINT column or if the
+	 *        	RA/Dec columns can not be found in its table.
+	 *
+	 * @since 1.5
+	 */
+	protected String[] getPositionColumns(final ADQLColumn column, final String raDBName, final String decDBName){
+		DBColumn dbCol = (column == null) ? null : column.getDBLink();
+		if (dbCol == null || dbCol.getDatatype() == null || dbCol.getDatatype().type != DBDatatype.POINT || dbCol.getTable() == null)
+			return null;
+
+		DBTable table = dbCol.getTable();
+		DBColumn ra = null, dec = null;
+
+		// Search first for the main position declared with UCDs:
+		for(DBColumn col : table){
+			if (col.getUcd() == null)
+				continue;
+			else if (ra == null && col.getUcd().trim().equalsIgnoreCase(UCD_MAIN_RA))
+				ra = col;
+			else if (dec == null && col.getUcd().trim().equalsIgnoreCase(UCD_MAIN_DEC))
+				dec = col;
+		}
+
+		// Otherwise, use the given column names:
+		if (ra == null || dec == null){
+			ra = table.getColumn(raDBName, false);
+			dec = table.getColumn(decDBName, false);
+			if (ra == null || dec == null)
+				return null;
+		}
+
+		// Build the prefix exactly as done for any other column:
+		StringBuffer prefix = new StringBuffer();
+		if (table.getDBName() != null){
+			if (table instanceof DBTableAlias)
+				prefix.append(getTableName(table, false)).append('.');
+			else
+				prefix.append(getQualifiedTableName(table)).append('.');
+		}else if (column.getTableName() != null)
+			prefix.append(column.getFullColumnPrefix()).append('.');
+
+		return new String[]{ appendIdentifier(new StringBuffer(prefix), ra.getDBName(), IdentifierField.COLUMN).toString(), appendIdentifier(new StringBuffer(prefix), dec.getDBName(), IdentifierField.COLUMN).toString() };
+	}
+
+	/**
+	 * Get the value of the given numeric constant.
+	 *
+	 * @param op	The operand to evaluate.
+	 *
+	 * @return	The constant value,
+	 *        	or NULL if the operand is not a (possibly negated) numeric constant.
+	 *
+	 * @since 1.5
+	 */
+	protected static Double getNumericValue(final ADQLOperand op){
+		try{
+			if (op instanceof NumericConstant)
+				return Double.parseDouble(((NumericConstant)op).getValue());
+			else if (op instanceof NegativeOperand && ((NegativeOperand)op).getOperand() instanceof NumericConstant)
+				return -Double.parseDouble(((NumericConstant)((NegativeOperand)op).getOperand()).getValue());
+			else if (op instanceof WrappedOperand)
+				return getNumericValue(((WrappedOperand)op).getOperand());
+		}catch(NumberFormatException nfe){}
+		return null;
+	}
+
 	/**
 	 * Convert any type provided by a JDBC driver into a type understandable by the ADQL/TAP library.
 	 *
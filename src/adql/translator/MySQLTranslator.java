@@ -5,14 +5,12 @@ import adql.db.DBType.DBDatatype;
 import adql.db.STCS.Region;
 import adql.parser.ParseException;
 import adql.query.IdentifierField;
-import adql.query.operand.ADQLOperand;
 import adql.query.operand.Concatenation;
 import adql.query.operand.function.geometry.AreaFunction;
 import adql.query.operand.function.geometry.BoxFunction;
 import adql.query.operand.function.geometry.CentroidFunction;
 import adql.query.operand.function.geometry.CircleFunction;
 import adql.query.operand.function.geometry.ContainsFunction;
-import adql.query.operand.function.geometry.DistanceFunction;
 import adql.query.operand.function.geometry.ExtractCoord;
 import adql.query.operand.function.geometry.ExtractCoordSys;
 import adql.query.operand.function.geometry.IntersectsFunction;
@@ -36,7 +34,7 @@ import adql.query.operand.function.geometry.RegionFunction;
  * You should have received a copy of the GNU Lesser General Public License
  * along with ADQLLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2017-2019 - Astronomisches Rechen Institut (ARI),
+ * Copyright 2017-2026 - Astronomisches Rechen Institut (ARI),
  *                       UDS/Centre de Données astronomiques de Strasbourg (CDS)
  */
 
@@ -48,13 +46,16 @@ import adql.query.operand.function.geometry.RegionFunction;
  * 	The geometrical functions are translated exactly as in ADQL.
  * 	You will probably need to extend this translator to correctly manage the
  * 	geometrical functions.
+ * 	Only the positional constraints on constant circles and boxes (and the
+ * 	DISTANCE function) are rewritten into numeric predicates on the RA/Dec
+ * 	columns (see {@link BoundingBoxPrefilter}).
  * </i></p>
  *
  * @author Gr&eacute;gory Mantelet (ARI;CDS)
- * @version 1.5 (03/2019)
+ * @version 1.5 (10/2026)
  * @since 1.4
  */
-public class MySQLTranslator extends JDBCTranslator {
+public class MySQLTranslator extends PrefilteringTranslator {
 
 	/** MySQL requires a length for variable-length types such as CHAR, VARCHAR,
 	 * BINARY and VARBINARY. This static attributes is the default value set
@@ -137,19 +138,15 @@ public class MySQLTranslator extends JDBCTranslator {
 	/* ********************************************************************** */
 
 	@Override
-	public String translate(Concatenation concat) throws TranslationException{
-		StringBuffer translated = new StringBuffer();
-
-		for(ADQLOperand op : concat){
-			if (translated.length() == 0)
-				translated.append("CONCAT(");
-			else
-				translated.append(", ");
-			translated.append(translate(op));
+	protected StringBuilder translate(final Concatenation concat, final StringBuilder sql) throws TranslationException{
+		sql.append("CONCAT(");
+		for(int i = 0; i < concat.size(); i++){
+			if (i > 0)
+				sql.append(", ");
+			translate(concat.get(i), sql);
 		}
-		translated.append(")");
 
-		return translated.toString();
+		return sql.append(')');
 	}
 
 	/* ********************************************************************** */
@@ -289,11 +286,6 @@ public class MySQLTranslator extends JDBCTranslator {
 		return getDefaultADQLFunction(centroidFunction);
 	}
 
-	@Override
-	public String translate(DistanceFunction fct) throws TranslationException{
-		return getDefaultADQLFunction(fct);
-	}
-
 	@Override
 	public String translate(ContainsFunction fct) throws TranslationException{
 		return getDefaultADQLFunction(fct);
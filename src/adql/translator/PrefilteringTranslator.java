@@ -0,0 +1,71 @@
+package adql.translator;
+
+/*
+ * This file is part of ADQLLibrary.
+ *
+ * ADQLLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ADQLLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ADQLLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import adql.query.constraint.Comparison;
+import adql.query.operand.function.geometry.DistanceFunction;
+
+/**
+ * Translator for DBMS without any spatial extension (e.g. MySQL, MS SQL
+ * Server), rewriting the positional constraints on constant circles and boxes
+ * (and the DISTANCE function) into numeric predicates on the RA/Dec columns
+ * (see {@link BoundingBoxPrefilter}).
+ *
+ * <p><i>Note:
+ * 	Any other geometrical function must be translated by the extending class.
+ * </i></p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 1.5 (10/2026)
+ * @since 1.5
+ */
+public abstract class PrefilteringTranslator extends JDBCTranslator {
+
+	/** Rewriter of the positional constraints into sargable RA/Dec ranges. */
+	protected final BoundingBoxPrefilter prefilter = new BoundingBoxPrefilter(this);
+
+	/**
+	 * Get the object rewriting the positional constraints into RA/Dec ranges.
+	 *
+	 * <p><i>Note:
+	 * 	Use it to change the DB names of the RA/Dec columns replacing a POINT
+	 * 	column in the tables not declaring their main position with UCDs
+	 * 	(see {@link BoundingBoxPrefilter#setPositionColumnNames(String, String)}).
+	 * </i></p>
+	 *
+	 * @return	The positional constraints rewriter.
+	 */
+	public final BoundingBoxPrefilter getBoundingBoxPrefilter(){
+		return prefilter;
+	}
+
+	@Override
+	public String translate(final Comparison comp) throws TranslationException{
+		String sql = prefilter.translate(comp);
+		return (sql != null) ? sql : super.translate(comp);
+	}
+
+	@Override
+	public String translate(final DistanceFunction fct) throws TranslationException{
+		String sql = prefilter.translate(fct);
+		return (sql != null) ? sql : getDefaultADQLFunction(fct);
+	}
+
+}
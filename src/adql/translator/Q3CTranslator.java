@@ -0,0 +1,407 @@
+package adql.translator;
+
+/*
+ * This file is part of ADQLLibrary.
+ *
+ * ADQLLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * ADQLLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with ADQLLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import adql.query.constraint.Comparison;
+import adql.query.constraint.ComparisonOperator;
+import adql.query.operand.ADQLColumn;
+import adql.query.operand.ADQLOperand;
+import adql.query.operand.function.geometry.BoxFunction;
+import adql.query.operand.function.geometry.CircleFunction;
+import adql.query.operand.function.geometry.ContainsFunction;
+import adql.query.operand.function.geometry.DistanceFunction;
+import adql.query.operand.function.geometry.GeometryFunction;
+import adql.query.operand.function.geometry.GeometryFunction.GeometryValue;
+import adql.query.operand.function.geometry.IntersectsFunction;
+import adql.query.operand.function.geometry.PointFunction;
+import adql.query.operand.function.geometry.PolygonFunction;
+
+/**
+ * Translates ADQL positional constraints into the SQL adaptation of
+ * PostgreSQL+Q3C.
+ *
+ * <p>
+ * 	Q3C is a PostgreSQL extension indexing positions (right ascension and
+ * 	declination in degrees, stored in two numeric columns) with a functional
+ * 	index on <code>q3c_ang2ipix(ra, dec)</code>. Contrary to
+ * 	{@link PostgreSQLTranslator}, which can not translate geometrical
+ * 	functions, this translator rewrites the standard positional constraints
+ * 	into Q3C predicates able to use this index:
+ * </p>
+ * <ul>
+ * 	<li><code>CONTAINS(POINT(..., ra, dec), CIRCLE(..., ra0, dec0, r)) = 1</code>
+ * 		becomes <code>q3c_radial_query(ra, dec, ra0, dec0, r)</code>,</li>
+ * 	<li><code>CONTAINS(POINT(..., ra, dec), BOX(...)) = 1</code> and
+ * 		<code>CONTAINS(POINT(..., ra, dec), POLYGON(...)) = 1</code>
+ * 		become <code>q3c_poly_query(ra, dec, ARRAY[...])</code>,</li>
+ * 	<li><code>DISTANCE(POINT(..., ra1, dec1), POINT(..., ra2, dec2)) &lt;= r</code>
+ * 		becomes <code>q3c_join(ra1, dec1, ra2, dec2, r)</code> (with an exact
+ * 		refinement <code>q3c_dist(...) &lt; r</code> for a strict comparison),</li>
+ * 	<li>any other <code>DISTANCE(...)</code> becomes <code>q3c_dist(...)</code>.</li>
+ * </ul>
+ * <p>
+ * 	<code>INTERSECTS</code> between a point and a region is translated
+ * 	exactly like <code>CONTAINS</code>. A comparison with <code>0</code>
+ * 	(or <code>!=</code>) is translated into the negation of the predicate.
+ * 	Any other geometrical expression is translated as in
+ * 	{@link PostgreSQLTranslator}.
+ * </p>
+ *
+ * <h3>POINT columns</h3>
+ * <p>
+ * 	Since PostgreSQL (without extension) has no point type, a POINT column
+ * 	declared in TAP_SCHEMA (i.e. with the datatype POINT)
+ * 	is here resolved into the right ascension and declination columns of the
+ * 	same table. These columns must also be declared in TAP_SCHEMA. They are
+ * 	identified in each table by their UCD (<code>pos.eq.ra;meta.main</code>
+ * 	and <code>pos.eq.dec;meta.main</code>). If a table does not declare these
+ * 	UCDs, the columns named, by default, <code>ra</code> and <code>dec</code>
+ * 	are used (see {@link #setPositionColumnNames(String, String)}).
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 1.5 (10/2026)
+ * @since 1.5
+ */
+public class Q3CTranslator extends PostgreSQLTranslator {
+
+	/** DB name of the right ascension column used to resolve a POINT column
+	 * when no column of its table has the UCD <code>pos.eq.ra;meta.main</code>. */
+	protected String raColumnName = "ra";
+
+	/** DB name of the declination column used to resolve a POINT column
+	 * when no column of its table has the UCD <code>pos.eq.dec;meta.main</code>. */
+	protected String decColumnName = "dec";
+
+	/**
+	 * Builds a Q3CTranslator which always translates in SQL all identifiers (schema, table and column) in a case sensitive manner ;
+	 * in other words, schema, table and column names will be surrounded by double quotes in the SQL translation.
+	 *
+	 * @see PostgreSQLTranslator#PostgreSQLTranslator()
+	 */
+	public Q3CTranslator(){
+		super();
+	}
+
+	/**
+	 * Builds a Q3CTranslator which always translates in SQL all identifiers (schema, table and column) in the specified case sensitivity ;
+	 * in other words, schema, table and column names will all be surrounded or not by double quotes in the SQL translation.
+	 *
+	 * @param allCaseSensitive	<i>true</i> to translate all identifiers in a case sensitive manner (surrounded by double quotes), <i>false</i> for case insensitivity.
+	 *
+	 * @see PostgreSQLTranslator#PostgreSQLTranslator(boolean)
+	 */
+	public Q3CTranslator(final boolean allCaseSensitive){
+		super(allCaseSensitive);
+	}
+
+	/**
+	 * Builds a Q3CTranslator which will always translate in SQL identifiers with the defined case sensitivity.
+	 *
+	 * @param catalog	<i>true</i> to translate catalog names with double quotes (case sensitive in the DBMS), <i>false</i> otherwise.
+	 * @param schema	<i>true</i> to translate schema names with double quotes (case sensitive in the DBMS), <i>false</i> otherwise.
+	 * @param table		<i>true</i> to translate table names with double quotes (case sensitive in the DBMS), <i>false</i> otherwise.
+	 * @param column	<i>true</i> to translate column names with double quotes (case sensitive in the DBMS), <i>false</i> otherwise.
+	 *
+	 * @see PostgreSQLTranslator#PostgreSQLTranslator(boolean, boolean, boolean, boolean)
+	 */
+	public Q3CTranslator(final boolean catalog, final boolean schema, final boolean table, final boolean column){
+		super(catalog, schema, table, column);
+	}
+
+	/**
+	 * Get the DB name of the right ascension column used to resolve a POINT
+	 * column.
+	 *
+	 * @return	DB name of the RA column.
+	 */
+	public final String getRAColumnName(){
+		return raColumnName;
+	}
+
+	/**
+	 * Get the DB name of the declination column used to resolve a POINT
+	 * column.
+	 *
+	 * @return	DB name of the Dec column.
+	 */
+	public final String getDecColumnName(){
+		return decColumnName;
+	}
+
+	/**
+	 * Set the DB names of the right ascension and declination columns to use
+	 * in replacement of a POINT column, when its table does not declare its
+	 * main position with UCDs.
+	 *
+	 * @param ra	DB name of the RA column. <i>If NULL, nothing is changed.</i>
+	 * @param dec	DB name of the Dec column. <i>If NULL, nothing is changed.</i>
+	 */
+	public void setPositionColumnNames(final String ra, final String dec){
+		if (ra != null && ra.trim().length() > 0)
+			raColumnName = ra.trim();
+		if (dec != null && dec.trim().length() > 0)
+			decColumnName = dec.trim();
+	}
+
+	@Override
+	public String translate(final Comparison comp) throws TranslationException{
+		String sql = translatePositionalConstraint(comp);
+		return (sql != null) ? sql : super.translate(comp);
+	}
+
+	@Override
+	public String translate(final DistanceFunction fct) throws TranslationException{
+		String[] p1 = getPointCoordinates(fct.getP1()), p2 = getPointCoordinates(fct.getP2());
+		if (p1 == null || p2 == null)
+			return super.translate(fct);
+		else
+			return "q3c_dist(" + p1[0] + ", " + p1[1] + ", " + p2[0] + ", " + p2[1] + ")";
+	}
+
+	/**
+	 * Translate the given comparison into a Q3C predicate, if it matches one
+	 * of the supported positional constraints.
+	 *
+	 * @param comp	The comparison to translate.
+	 *
+	 * @return	The corresponding Q3C predicate,
+	 *        	or NULL if the given comparison is not a supported positional
+	 *        	constraint.
+	 *
+	 * @throws TranslationException	If any error occurs while translating a sub-part of the comparison.
+	 */
+	protected String translatePositionalConstraint(final Comparison comp) throws TranslationException{
+		final ADQLOperand left = comp.getLeftOperand(), right = comp.getRightOperand();
+		final ComparisonOperator op = comp.getOperator();
+
+		// CASE: CONTAINS(...) = 0|1 or INTERSECTS(...) = 0|1 (in any order):
+		if (op == ComparisonOperator.EQUAL || op == ComparisonOperator.NOT_EQUAL){
+			GeometryFunction fct = null;
+			Double value = null;
+			if (isContainsOrIntersects(left)){
+				fct = (GeometryFunction)left;
+				value = getNumericValue(right);
+			}else if (isContainsOrIntersects(right)){
+				fct = (GeometryFunction)right;
+				value = getNumericValue(left);
+			}
+			if (fct != null && value != null && (value == 0 || value == 1)){
+				boolean positive = ((value == 1) == (op == ComparisonOperator.EQUAL));
+				String sql = translatePointInRegion(fct);
+				return (sql == null) ? null : (positive ? sql : "NOT " + sql);
+			}
+		}
+
+		// CASE: DISTANCE(...) < r (in any order):
+		else if (left instanceof DistanceFunction && (op == ComparisonOperator.LESS_THAN || op == ComparisonOperator.LESS_OR_EQUAL))
+			return translateDistanceConstraint((DistanceFunction)left, right, op == ComparisonOperator.LESS_THAN);
+		else if (right instanceof DistanceFunction && (op == ComparisonOperator.GREATER_THAN || op == ComparisonOperator.GREATER_OR_EQUAL))
+			return translateDistanceConstraint((DistanceFunction)right, left, op == ComparisonOperator.GREATER_THAN);
+
+		return null;
+	}
+
+	/**
+	 * Translate a CONTAINS or INTERSECTS function between a point and a
+	 * region into a Q3C predicate.
+	 *
+	 * @param fct	The CONTAINS or INTERSECTS function to translate.
+	 *
+	 * @return	The corresponding Q3C predicate,
+	 *        	or NULL if the function does not involve a point and a literal
+	 *        	CIRCLE, BOX or POLYGON.
+	 *
+	 * @throws TranslationException	If any error occurs while translating a sub-part of the function.
+	 */
+	protected String translatePointInRegion(final GeometryFunction fct) throws TranslationException{
+		GeometryValue<GeometryFunction> pointParam, regionParam;
+		if (fct instanceof ContainsFunction){
+			pointParam = ((ContainsFunction)fct).getLeftParam();
+			regionParam = ((ContainsFunction)fct).getRightParam();
+		}else{
+			pointParam = ((IntersectsFunction)fct).getLeftParam();
+			regionParam = ((IntersectsFunction)fct).getRightParam();
+			// INTERSECTS is commutative:
+			if (getPointCoordinates(pointParam) == null){
+				GeometryValue<GeometryFunction> tmp = pointParam;
+				pointParam = regionParam;
+				regionParam = tmp;
+			}
+		}
+
+		String[] point = getPointCoordinates(pointParam);
+		if (point == null || regionParam.isColumn())
+			return null;
+
+		ADQLOperand region = regionParam.getValue();
+
+		// CIRCLE:
+		if (region instanceof CircleFunction){
+			CircleFunction circle = (CircleFunction)region;
+			return "q3c_radial_query(" + point[0] + ", " + point[1] + ", " + translate(circle.getCoord1()) + ", " + translate(circle.getCoord2()) + ", " + translate(circle.getRadius()) + ")";
+		}
+
+		// BOX:
+		else if (region instanceof BoxFunction){
+			BoxFunction box = (BoxFunction)region;
+			String c1 = translate(box.getCoord1()), c2 = translate(box.getCoord2());
+			String halfW = "(" + translate(box.getWidth()) + ")/2.0", halfH = "(" + translate(box.getHeight()) + ")/2.0";
+			StringBuffer sql = new StringBuffer("q3c_poly_query(");
+			sql.append(point[0]).append(", ").append(point[1]).append(", ARRAY[");
+			sql.append(c1).append("-").append(halfW).append(", ").append(c2).append("-").append(halfH).append(", ");
+			sql.append(c1).append("-").append(halfW).append(", ").append(c2).append("+").append(halfH).append(", ");
+			sql.append(c1).append("+").append(halfW).append(", ").append(c2).append("+").append(halfH).append(", ");
+			sql.append(c1).append("+").append(halfW).append(", ").append(c2).append("-").append(halfH);
+			return sql.append("])").toString();
+		}
+
+		// POLYGON:
+		else if (region instanceof PolygonFunction){
+			PolygonFunction polygon = (PolygonFunction)region;
+			StringBuffer sql = new StringBuffer("q3c_poly_query(");
+			sql.append(point[0]).append(", ").append(point[1]).append(", ARRAY[");
+			// Note: the first parameter is the coordinate system.
+			for(int i = 1; i < polygon.getNbParameters(); i++){
+				if (i > 1)
+					sql.append(", ");
+				sql.append(translate(polygon.getParameter(i)));
+			}
+			return sql.append("])").toString();
+		}
+
+		// Anything else can not be translated with Q3C:
+		else
+			return null;
+	}
+
+	/**
+	 * Translate a constraint <code>DISTANCE(p1, p2) &lt; radius</code> (or
+	 * <code>&lt;=</code>) into a Q3C predicate.
+	 *
+	 * <p><i>Note:
+	 * 	If only one of the two points is made of constants, it is given first
+	 * 	to <code>q3c_join</code> so that the Q3C index of the other point
+	 * 	columns can be used.
+	 * </i></p>
+	 *
+	 * @param fct		The DISTANCE function.
+	 * @param radius	The maximum distance.
+	 * @param strict	<i>true</i> for a strict comparison (&lt;),
+	 *              	<i>false</i> otherwise (&lt;=).
+	 *
+	 * @return	The corresponding Q3C predicate,
+	 *        	or NULL if one of the points can not be resolved.
+	 *
+	 * @throws TranslationException	If any error occurs while translating a sub-part of the constraint.
+	 */
+	protected String translateDistanceConstraint(final DistanceFunction fct, final ADQLOperand radius, final boolean strict) throws TranslationException{
+		GeometryValue<PointFunction> first = fct.getP1(), second = fct.getP2();
+		if (isConstantPoint(second) && !isConstantPoint(first)){
+			first = fct.getP2();
+			second = fct.getP1();
+		}
+
+		String[] p1 = getPointCoordinates(first), p2 = getPointCoordinates(second);
+		if (p1 == null || p2 == null)
+			return null;
+
+		String r = translate(radius);
+		String sql = "q3c_join(" + p1[0] + ", " + p1[1] + ", " + p2[0] + ", " + p2[1] + ", " + r + ")";
+		if (strict)
+			sql = "(" + sql + " AND q3c_dist(" + p1[0] + ", " + p1[1] + ", " + p2[0] + ", " + p2[1] + ") < " + r + ")";
+		return sql;
+	}
+
+	/**
+	 * Get the SQL expressions of the right ascension and declination of the
+	 * given point.
+	 *
+	 * @param value	A POINT function or a POINT column.
+	 *
+	 * @return	An array of two SQL expressions (RA and Dec.),
+	 *        	or NULL if the given value is not a point or if it can not be
+	 *        	resolved into two coordinates.
+	 *
+	 * @throws TranslationException	If any error occurs while translating the coordinates.
+	 */
+	protected String[] getPointCoordinates(final GeometryValue<? extends GeometryFunction> value) throws TranslationException{
+		if (value == null)
+			return null;
+
+		ADQLOperand op = value.getValue();
+		if (op instanceof PointFunction){
+			PointFunction point = (PointFunction)op;
+			return new String[]{ translate(point.getCoord1()), translate(point.getCoord2()) };
+		}else if (op instanceof ADQLColumn)
+			return getPointCoordinates((ADQLColumn)op);
+		else
+			return null;
+	}
+
+	/**
+	 * Resolve the given POINT column into the right ascension and declination
+	 * columns of the same table: the columns with the UCDs of the main
+	 * position, or by default the columns named {@link #getRAColumnName()}
+	 * and {@link #getDecColumnName()}.
+	 *
+	 * @param column	A POINT column.
+	 *
+	 * @return	An array of two SQL column references (RA and Dec.),
+	 *        	or NULL if the given column is not a POINT column or if the
+	 *        	RA/Dec columns can not be found in its table.
+	 *
+	 * @see #getRAColumnName()
+	 * @see #getDecColumnName()
+	 * @see #getPositionColumns(ADQLColumn, String, String)
+	 */
+	protected String[] getPointCoordinates(final ADQLColumn column){
+		return getPositionColumns(column, raColumnName, decColumnName);
+	}
+
+	/**
+	 * Tell whether the given operand is a CONTAINS or an INTERSECTS function.
+	 *
+	 * @param op	The operand to test.
+	 *
+	 * @return	<i>true</i> if it is a CONTAINS or INTERSECTS function,
+	 *        	<i>false</i> otherwise.
+	 */
+	protected final boolean isContainsOrIntersects(final ADQLOperand op){
+		return (op instanceof ContainsFunction || op instanceof IntersectsFunction);
+	}
+
+	/**
+	 * Tell whether the given point is a POINT function whose the coordinates
+	 * are numeric constants.
+	 *
+	 * @param value	The point to test.
+	 *
+	 * @return	<i>true</i> if the point coordinates are constants,
+	 *        	<i>false</i> otherwise.
+	 */
+	protected final boolean isConstantPoint(final GeometryValue<PointFunction> value){
+		if (value == null || !(value.getValue() instanceof PointFunction))
+			return false;
+		PointFunction point = (PointFunction)value.getValue();
+		return getNumericValue(point.getCoord1()) != null && getNumericValue(point.getCoord2()) != null;
+	}
+
+}
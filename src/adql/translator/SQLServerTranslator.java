@@ -16,7 +16,7 @@ package adql.translator;
  * You should have received a copy of the GNU Lesser General Public License
  * along with ADQLLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2017-2019 - Astronomisches Rechen Institut (ARI),
+ * Copyright 2017-2026 - Astronomisches Rechen Institut (ARI),
  *                       UDS/Centre de Données astronomiques de Strasbourg (CDS)
  */
 
@@ -37,7 +37,6 @@ import adql.query.from.ADQLJoin;
 import adql.query.from.ADQLTable;
 import adql.query.from.FromContent;
 import adql.query.operand.ADQLColumn;
-import adql.query.operand.ADQLOperand;
 import adql.query.operand.Concatenation;
 import adql.query.operand.function.MathFunction;
 import adql.query.operand.function.geometry.AreaFunction;
@@ -45,7 +44,6 @@ import adql.query.operand.function.geometry.BoxFunction;
 import adql.query.operand.function.geometry.CentroidFunction;
 import adql.query.operand.function.geometry.CircleFunction;
 import adql.query.operand.function.geometry.ContainsFunction;
-import adql.query.operand.function.geometry.DistanceFunction;
 import adql.query.operand.function.geometry.ExtractCoord;
 import adql.query.operand.function.geometry.ExtractCoordSys;
 import adql.query.operand.function.geometry.IntersectsFunction;
@@ -73,16 +71,18 @@ import adql.query.operand.function.geometry.RegionFunction;
  *
  * <p><i><b>Important note:</b>
  * 	Geometrical functions are not translated ; the translation returned for them
- * 	is their ADQL expression.
+ * 	is their ADQL expression. Only the positional constraints on constant
+ * 	circles and boxes (and the DISTANCE function) are rewritten into numeric
+ * 	predicates on the RA/Dec columns (see {@link BoundingBoxPrefilter}).
  * </i></p>
  *
  * @author Gr&eacute;gory Mantelet (ARI;CDS)
- * @version 1.5 (03/2019)
+ * @version 1.5 (10/2026)
  * @since 1.4
  *
  * @see SQLServer_ADQLQueryFactory
  */
-public class SQLServerTranslator extends JDBCTranslator {
+public class SQLServerTranslator extends PrefilteringTranslator {
 
 	/** <p>Indicate the case sensitivity to apply to each SQL identifier (only SCHEMA, TABLE and COLUMN).</p>
 	 *
@@ -132,60 +132,60 @@ public class SQLServerTranslator extends JDBCTranslator {
 	}
 
 	/**
-	 * For SQL Server, {@link #translate(ClauseSelect)} must be overridden for
-	 * TOP/LIMIT handling. We must not add the LIMIT at the end of the query, it
-	 * must go in the SELECT.
+	 * For SQL Server, {@link #translate(ClauseSelect, StringBuilder)} must be
+	 * overridden for TOP/LIMIT handling. We must not add the LIMIT at the end
+	 * of the query, it must go in the SELECT.
 	 *
-	 * @see #translate(ClauseSelect)
+	 * @see #translate(ClauseSelect, StringBuilder)
 	 */
 	@Override
-	public String translate(ADQLQuery query) throws TranslationException{
-		StringBuffer sql = new StringBuffer(translate(query.getSelect()));
+	protected StringBuilder translate(final ADQLQuery query, final StringBuilder sql) throws TranslationException{
+		translate(query.getSelect(), sql);
 
 		sql.append("\nFROM ").append(translate(query.getFrom()));
 
 		if (!query.getWhere().isEmpty())
-			sql.append('\n').append(translate(query.getWhere()));
+			translate(query.getWhere(), sql.append('\n'));
 
 		if (!query.getGroupBy().isEmpty())
-			sql.append('\n').append(translate(query.getGroupBy()));
+			translate(query.getGroupBy(), sql.append('\n'));
 
 		if (!query.getHaving().isEmpty())
-			sql.append('\n').append(translate(query.getHaving()));
+			translate(query.getHaving(), sql.append('\n'));
 
 		if (!query.getOrderBy().isEmpty())
-			sql.append('\n').append(translate(query.getOrderBy()));
+			translate(query.getOrderBy(), sql.append('\n'));
 
-		return sql.toString();
+		return sql;
 	}
 
 	@Override
-	public String translate(ClauseSelect clause) throws TranslationException{
-		String sql = null;
-
+	protected StringBuilder translate(final ClauseSelect clause, final StringBuilder sql) throws TranslationException{
 		for(int i = 0; i < clause.size(); i++){
 			if (i == 0){
-				sql = clause.getName() + (clause.distinctColumns() ? " DISTINCT" : "") + (clause.hasLimit() ? " TOP " + clause.getLimit() + " " : "");
+				sql.append(clause.getName());
+				if (clause.distinctColumns())
+					sql.append(" DISTINCT");
+				if (clause.hasLimit())
+					sql.append(" TOP ").append(clause.getLimit()).append(' ');
 			}else
-				sql += " " + clause.getSeparator(i);
+				sql.append(' ').append(clause.getSeparator(i));
 
-			sql += " " + translate(clause.get(i));
+			translate(clause.get(i), sql.append(' '));
 		}
 
 		return sql;
 	}
 
 	@Override
-	public String translate(Concatenation concat) throws TranslationException{
-		StringBuffer translated = new StringBuffer();
-
-		for(ADQLOperand op : concat){
-			if (translated.length() > 0)
-				translated.append(" + ");
-			translated.append(translate(op));
+	protected StringBuilder translate(final Concatenation concat, final StringBuilder sql) throws TranslationException{
+		for(int i = 0; i < concat.size(); i++){
+			if (i > 0)
+				sql.append(" + ");
+			translate(concat.get(i), sql);
 		}
 
-		return translated.toString();
+		return sql;
 	}
 
 	@Override
@@ -310,11 +310,6 @@ public class SQLServerTranslator extends JDBCTranslator {
 		return getDefaultADQLFunction(centroidFunction);
 	}
 
-	@Override
-	public String translate(final DistanceFunction fct) throws TranslationException{
-		return getDefaultADQLFunction(fct);
-	}
-
 	@Override
 	public String translate(final ContainsFunction fct) throws TranslationException{
 		return getDefaultADQLFunction(fct);
@@ -16,35 +16,49 @@ package tap;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2012-2019 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
 import java.io.IOException;
 import java.io.OutputStream;
+import java.util.LinkedHashSet;
 
 import javax.servlet.http.HttpServletResponse;
 
+import adql.db.DBTable;
 import adql.parser.ADQLParser;
 import adql.parser.ADQLQueryFactory;
 import adql.parser.ParseException;
+import adql.query.ADQLObject;
 import adql.query.ADQLQuery;
+import adql.query.from.ADQLTable;
+import adql.search.ISearchHandler;
+import adql.search.SimpleSearchHandler;
 import tap.data.DataReadException;
+import tap.data.PipelinedTableIterator;
 import tap.data.TableIterator;
 import tap.db.DBCancelledException;
 import tap.db.DBConnection;
 import tap.db.DBException;
+import tap.db.QueryCostEstimate;
+import tap.db.QueryCostEstimator;
 import tap.formatter.OutputFormat;
 import tap.log.TAPLog;
+import tap.metrics.CountingOutputStream;
+import tap.metrics.Histogram;
+import tap.metrics.MetricsRegistry;
 import tap.metadata.TAPSchema;
 import tap.metadata.TAPTable;
 import tap.parameters.DALIUpload;
 import tap.parameters.TAPParameters;
+import tap.upload.InListOffloader;
 import tap.upload.Uploader;
 import uws.UWSException;
 import uws.UWSToolBox;
 import uws.job.JobThread;
 import uws.job.Result;
+import uws.service.file.io.AtomicFileOutputStream;
 import uws.service.log.UWSLog.LogLevel;
 
 /**
@@ -54,11 +68,26 @@ import uws.service.log.UWSLog.LogLevel;
  * <ol>
  * 	<li>Upload the user tables, if any</li>
  * 	<li>Parse the ADQL query (and so, transform it in an object tree)</li>
+ * 	<li>Load the too long <code>IN</code> lists in the "database", if enabled
+ * 		(see {@link #setInListOffloadThreshold(int)})</li>
+ * 	<li>Estimate the cost of a synchronous query and apply the cost policy,
+ * 		if any (see {@link #setCostPolicy(QueryCostPolicy)})</li>
  * 	<li>Execute it in the "database"</li>
- * 	<li>Format and write the result</li>
+ * 	<li>Format and write the result (while still reading it from the
+ * 		"database" in another thread, if enabled - see
+ * 		{@link #setResultPipelineSize(int)})</li>
  * 	<li>Drop all uploaded tables from the "database"</li>
  * </ol>
  *
+ * <h3>Metrics</h3>
+ *
+ * <p>
+ * 	If a default {@link MetricsRegistry} is set when this executor is created,
+ * 	the duration of each step, the size of the result and the connection wait
+ * 	are recorded in it at the end of the execution (see
+ * 	{@link #recordMetrics(long)}).
+ * </p>
+ *
  * <h3>Job execution mode</h3>
  *
  * <p>
@@ -105,7 +134,7 @@ import uws.service.log.UWSLog.LogLevel;
  * </p>
  *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.3 (03/2019)
+ * @version 2.4 (10/2026)
  */
 public class ADQLExecutor {
 
@@ -128,6 +157,28 @@ public class ADQLExecutor {
 	 * <i>Note: This attribute is NULL before calling one of the start(...) function, but it will never be after this call.</i> */
 	protected TAPExecutionReport report;
 
+	/** Minimum number of values a constant <code>IN</code> list must have to
+	 * be loaded into a table of TAP_UPLOAD instead of being translated in SQL.
+	 * <i>Negative or null if this feature is disabled (default).</i>
+	 * @since 2.4 */
+	protected int inListOffloadThreshold = -1;
+
+	/** Maximum number of rows that may be read from the database in advance,
+	 * by a separated thread, while the result is being written.
+	 * <i>Negative or null if this feature is disabled (default).</i>
+	 * @since 2.4 */
+	protected int resultPipelineSize = -1;
+
+	/** Rules to apply to the synchronous queries whose estimated cost is too
+	 * high. <i>NULL if the cost of queries is not estimated (default).</i>
+	 * @since 2.4 */
+	protected QueryCostPolicy costPolicy = null;
+
+	/** Registry in which the metrics of this execution are recorded.
+	 * <i>NULL if no metric must be recorded.</i>
+	 * @since 2.4 */
+	protected final MetricsRegistry metrics;
+
 	/** Connection to the "database".
 	 * <i>Note: This attribute is NULL before and after the query processing (= call of a start(...) function).</i> */
 	private DBConnection dbConn = null;
@@ -136,6 +187,14 @@ public class ADQLExecutor {
 	private ExecutionProgression progression = null;
 	/** Date/Time at which the current query processing step has started. */
 	private long startStep = -1;
+	/** Fetch size to use instead of the default one, because of the cost
+	 * policy. <i>Negative or null if none.</i> */
+	private int costlyFetchSize = -1;
+	/** Short MIME type of the format in which the result has been written.
+	 * <i>NULL if not written yet.</i> */
+	private String resultFormat = null;
+	/** Size (in bytes) of the written result. <i>Negative if unknown.</i> */
+	private long resultSize = -1;
 
 	/**
 	 * Build an {@link ADQLExecutor}.
@@ -145,6 +204,7 @@ public class ADQLExecutor {
 	public ADQLExecutor(final ServiceConnection service){
 		this.service = service;
 		this.logger = service.getLogger();
+		this.metrics = MetricsRegistry.getDefault();
 	}
 
 	/**
@@ -156,6 +216,121 @@ public class ADQLExecutor {
 		return logger;
 	}
 
+	/**
+	 * Get the minimum number of values a constant <code>IN</code> list must
+	 * have to be loaded into a table of TAP_UPLOAD.
+	 *
+	 * @return	The offload threshold.
+	 *        	<i>Negative or null if this feature is disabled.</i>
+	 *
+	 * @since 2.4
+	 */
+	public final int getInListOffloadThreshold(){
+		return inListOffloadThreshold;
+	}
+
+	/**
+	 * Set the minimum number of values a constant <code>IN</code> list must
+	 * have to be loaded into a table of TAP_UPLOAD.
+	 *
+	 * <p>
+	 * 	Such list is then replaced by a sub-query on this table. Thus, neither
+	 * 	the SQL translation nor the database have to deal with thousands of
+	 * 	values in the query itself.
+	 * </p>
+	 *
+	 * <p><i>Note:
+	 * 	The tables are created exactly like the tables uploaded by the user.
+	 * 	So, no list is offloaded if the upload is disabled in this service
+	 * 	(see {@link ServiceConnection#uploadEnabled()}), whatever is the
+	 * 	threshold.
+	 * </i></p>
+	 *
+	 * @param threshold	The offload threshold.
+	 *                 	<i>A negative or null value disables this feature.</i>
+	 *
+	 * @see InListOffloader
+	 *
+	 * @since 2.4
+	 */
+	public final void setInListOffloadThreshold(final int threshold){
+		inListOffloadThreshold = threshold;
+	}
+
+	/**
+	 * Get the maximum number of rows that may be read from the database in
+	 * advance while the result is being written.
+	 *
+	 * @return	The size of the result pipeline.
+	 *        	<i>Negative or null if this feature is disabled.</i>
+	 *
+	 * @since 2.4
+	 */
+	public final int getResultPipelineSize(){
+		return resultPipelineSize;
+	}
+
+	/**
+	 * Set the maximum number of rows that may be read from the database in
+	 * advance while the result is being written.
+	 *
+	 * <p>
+	 * 	If enabled, the query result is read by a separated thread (see
+	 * 	{@link PipelinedTableIterator}). Thus, the database fetch and the
+	 * 	result formatting overlap, and the database resources are released as
+	 * 	soon as the last row has been fetched, even if the client is still
+	 * 	reading the result.
+	 * </p>
+	 *
+	 * @param size	The size of the result pipeline (in rows).
+	 *            	<i>A negative or null value disables this feature.</i>
+	 *
+	 * @see PipelinedTableIterator
+	 *
+	 * @since 2.4
+	 */
+	public final void setResultPipelineSize(final int size){
+		resultPipelineSize = size;
+	}
+
+	/**
+	 * Get the rules applied to the synchronous queries whose estimated cost is
+	 * too high.
+	 *
+	 * @return	The cost policy.
+	 *        	<i>NULL if the cost of queries is not estimated.</i>
+	 *
+	 * @since 2.4
+	 */
+	public final QueryCostPolicy getCostPolicy(){
+		return costPolicy;
+	}
+
+	/**
+	 * Set the rules to apply to the synchronous queries whose estimated cost is
+	 * too high.
+	 *
+	 * <p>
+	 * 	If set, the cost of each synchronous query is estimated by the database
+	 * 	just before its execution (see {@link #estimateCost(ADQLQuery)}) and
+	 * 	written in the execution report. The given policy is then applied (see
+	 * 	{@link #applyCostPolicy(QueryCostEstimate)}).
+	 * </p>
+	 *
+	 * <p><i>Note:
+	 * 	Nothing is estimated if the {@link DBConnection} does not implement
+	 * 	{@link QueryCostEstimator}.
+	 * </i></p>
+	 *
+	 * @param policy	The cost policy.
+	 *              	<i>NULL to not estimate the cost of queries.</i>
+	 *
+	 * @since 2.4
+	 */
+	public final void setCostPolicy(final QueryCostPolicy policy){
+		costPolicy = policy;
+	}
+
 	/**
 	 * <p>Get the report of the query execution. It helps indicating the execution progression and the duration of each step.</p>
 	 *
@@ -257,8 +432,14 @@ public class ADQLExecutor {
 	 * @since 2.0
 	 */
 	public final void initDBConnection(final String jobID) throws TAPException{
-		if (dbConn == null)
+		if (dbConn == null){
+			long start = System.currentTimeMillis();
 			dbConn = service.getFactory().getConnection(jobID);
+			if (metrics != null){
+				metrics.histogram("tap_db_connection_wait_ms", Histogram.DURATION_BOUNDS).observe(System.currentTimeMillis() - start);
+				metrics.counter("tap_db_connections_acquired_total").increment();
+			}
+		}
 	}
 
 	/**
@@ -314,6 +495,7 @@ public class ADQLExecutor {
 	 * 	<li>{@link TAPFactory#getConnection(String)}</li>
 	 * 	<li>{@link #uploadTables()}</li>
 	 * 	<li>{@link #parseADQL()}</li>
+	 * 	<li>{@link #estimateCost(ADQLQuery)} and {@link #applyCostPolicy(QueryCostEstimate)} <i>(only for a synchronous query and if a cost policy is set)</i></li>
 	 * 	<li>{@link #executeADQL(ADQLQuery)}</li>
 	 * 	<li>{@link #writeResult(TableIterator)}</li>
 	 * 	<li>{@link #dropUploadedTables()}</li>
@@ -372,6 +554,8 @@ public class ADQLExecutor {
 			}
 			// List all resulting columns (it will be useful later to format the result):
 			report.resultingColumns = adqlQuery.getResultingColumns();
+			// List all queried tables:
+			report.queriedTables = listQueriedTables(adqlQuery);
 			endStep();
 
 			if (thread.isInterrupted())
@@ -379,6 +563,17 @@ public class ADQLExecutor {
 
 			// 3. EXECUTE THE ADQL QUERY:
 			startStep(ExecutionProgression.EXECUTING_ADQL);
+			// Load the too long IN lists in the database, if enabled
+			// (it relies on the same mechanism as the upload, so it is possible only if the upload is enabled):
+			if (inListOffloadThreshold > 0 && service.uploadEnabled())
+				offloadInLists(adqlQuery);
+			// Estimate the cost of a synchronous query, if asked:
+			if (report.synchronous && costPolicy != null){
+				report.costEstimate = estimateCost(adqlQuery);
+				if (thread.isInterrupted())
+					throw new InterruptedException();
+				applyCostPolicy(report.costEstimate);
+			}
 			queryResult = executeADQL(adqlQuery);
 			endStep();
 
@@ -389,6 +584,9 @@ public class ADQLExecutor {
 
 			// 4. WRITE RESULT:
 			startStep(ExecutionProgression.WRITING_RESULT);
+			// Read the result in a separated thread, if enabled:
+			if (resultPipelineSize > 0)
+				queryResult = new PipelinedTableIterator(queryResult, resultPipelineSize);
 			writeResult(queryResult);
 			endStep();
 
@@ -427,10 +625,75 @@ public class ADQLExecutor {
 			if (dbConn != null){
 				service.getFactory().freeConnection(dbConn);
 				dbConn = null;
+				if (metrics != null)
+					metrics.counter("tap_db_connections_released_total").increment();
 			}
+
+			// Record the metrics of this execution, if enabled:
+			if (metrics != null)
+				recordMetrics(System.currentTimeMillis() - start);
 		}
 	}
 
+	/**
+	 * Record the metrics of this execution in {@link #metrics}.
+	 *
+	 * <p>The following metrics are recorded:</p>
+	 * <ul>
+	 * 	<li><code>tap_queries_total{mode,status}</code>: number of executions,
+	 * 		by mode (<code>sync</code>/<code>async</code>) and end status
+	 * 		(<code>completed</code>/<code>aborted</code>/<code>error</code>),</li>
+	 * 	<li><code>tap_query_duration_ms{mode}</code>: total duration,</li>
+	 * 	<li><code>tap_step_duration_ms{step}</code>: duration of each
+	 * 		executed step,</li>
+	 * 	<li><code>tap_write_duration_ms{format}</code>,
+	 * 		<code>tap_rows_written_total{format}</code> and
+	 * 		<code>tap_bytes_written_total{format}</code>: duration of the
+	 * 		result writing, number of rows and bytes written, by output
+	 * 		format.</li>
+	 * </ul>
+	 *
+	 * <p><i>Note:
+	 * 	This function is called only if {@link #metrics} is not NULL.
+	 * </i></p>
+	 *
+	 * @param totalDuration	Total duration of the execution (in milliseconds).
+	 *
+	 * @since 2.4
+	 */
+	protected void recordMetrics(final long totalDuration){
+		final String mode = (report.synchronous ? "sync" : "async");
+		final String status = (report.success ? "completed" : (thread.isInterrupted() ? "aborted" : "error"));
+		metrics.counter("tap_queries_total{mode=\"" + mode + "\",status=\"" + status + "\"}").increment();
+		metrics.histogram("tap_query_duration_ms{mode=\"" + mode + "\"}", Histogram.DURATION_BOUNDS).observe(totalDuration);
+
+		// Duration of each executed step:
+		recordStep(ExecutionProgression.UPLOADING, "uploading");
+		recordStep(ExecutionProgression.PARSING, "parsing");
+		recordStep(ExecutionProgression.EXECUTING_ADQL, "executing");
+		recordStep(ExecutionProgression.WRITING_RESULT, "writing");
+
+		// Writing of the result, by format:
+		if (resultFormat != null && report.success){
+			final String label = "{format=\"" + resultFormat + "\"}";
+			metrics.histogram("tap_write_duration_ms" + label, Histogram.DURATION_BOUNDS).observe(report.getFormattingDuration());
+			metrics.counter("tap_rows_written_total" + label).add(report.nbRows);
+			metrics.counter("tap_bytes_written_total" + label).add(resultSize);
+		}
+	}
+
+	/**
+	 * Record the duration of the given step, if it has been executed.
+	 *
+	 * @param step	The step to record.
+	 * @param name	Name of this step in the metrics.
+	 */
+	private void recordStep(final ExecutionProgression step, final String name){
+		final long duration = report.getDuration(step);
+		if (duration >= 0)
+			metrics.histogram("tap_step_duration_ms{step=\"" + name + "\"}", Histogram.DURATION_BOUNDS).observe(duration);
+	}
+
 	/**
 	 * <p>Memorize the time at which the step starts, the step ID and update the job parameter "progression"
 	 * (to notify the user about the progression of the query processing).</p>
@@ -505,9 +768,46 @@ public class ADQLExecutor {
 		if (tables.length > 0){
 			logger.logTAP(LogLevel.INFO, report, "UPLOADING", "Loading uploaded tables (" + tables.length + ")", null);
 			uploadSchema = service.getFactory().createUploader(dbConn).upload(tables);
+			// Record the size of the uploaded files, if enabled:
+			if (metrics != null){
+				for(DALIUpload table : tables){
+					if (table.file != null && table.file.length >= 0)
+						metrics.histogram("tap_upload_size_bytes", Histogram.SIZE_BOUNDS).observe(table.file.length);
+				}
+			}
 		}
 	}
 
+	/**
+	 * Load into tables of TAP_UPLOAD all the constant <code>IN</code> lists of
+	 * the given query having at least {@link #getInListOffloadThreshold()}
+	 * values, and replace them by a sub-query on these tables.
+	 *
+	 * <p><i>Note:
+	 * 	The created tables are added into {@link #uploadSchema} ; so, they are
+	 * 	dropped with the tables uploaded by the user at the end of the
+	 * 	execution.
+	 * </i></p>
+	 *
+	 * @param adql	The object representation of the ADQL query to modify.
+	 *
+	 * @throws TAPException	If any error occurs while loading a list in the
+	 *                     	database.
+	 *
+	 * @see InListOffloader
+	 *
+	 * @since 2.4
+	 */
+	private final void offloadInLists(final ADQLQuery adql) throws TAPException{
+		final int nbTables = (uploadSchema == null) ? 0 : uploadSchema.getNbTables();
+
+		uploadSchema = (new InListOffloader(dbConn, inListOffloadThreshold)).offload(adql, uploadSchema);
+
+		final int nbLists = ((uploadSchema == null) ? 0 : uploadSchema.getNbTables()) - nbTables;
+		if (nbLists > 0)
+			logger.logTAP(LogLevel.INFO, report, "OFFLOAD_IN_LIST", nbLists + " IN list(s) of at least " + inListOffloadThreshold + " values loaded in the database.", null);
+	}
+
 	/**
 	 * <p>Parse the ADQL query provided in the parameters by the user.</p>
 	 *
@@ -587,6 +887,113 @@ public class ADQLExecutor {
 		return query;
 	}
 
+	/**
+	 * List the full ADQL name (i.e. prefixed by the schema name, if any) of
+	 * all tables read by the given query, including the ones read by its
+	 * sub-queries.
+	 *
+	 * @param adql	The object representation of the ADQL query.
+	 *
+	 * @return	Names of all queried tables (each listed only once).
+	 *
+	 * @since 2.4
+	 */
+	protected String[] listQueriedTables(final ADQLQuery adql){
+		ISearchHandler sHandler = new SimpleSearchHandler(true){
+			@Override
+			protected boolean match(final ADQLObject obj){
+				return (obj instanceof ADQLTable) && !((ADQLTable)obj).isSubQuery();
+			}
+		};
+		sHandler.search(adql);
+
+		LinkedHashSet<String> tables = new LinkedHashSet<String>();
+		for(ADQLObject obj : sHandler){
+			ADQLTable table = (ADQLTable)obj;
+			DBTable dbTable = table.getDBLink();
+			if (dbTable == null)
+				tables.add(table.getFullTableName());
+			else if (dbTable.getADQLSchemaName() == null)
+				tables.add(dbTable.getADQLName());
+			else
+				tables.add(dbTable.getADQLSchemaName() + "." + dbTable.getADQLName());
+		}
+		return tables.toArray(new String[tables.size()]);
+	}
+
+	/**
+	 * Ask the database to estimate the cost of the given query.
+	 *
+	 * <p><i>Note:
+	 * 	If the estimation fails, a WARNING is logged and the query is executed
+	 * 	as if it could not be estimated.
+	 * </i></p>
+	 *
+	 * @param adql	The object representation of the ADQL query to estimate.
+	 *
+	 * @return	The estimated cost,
+	 *        	or NULL if the database can not estimate it.
+	 *
+	 * @see QueryCostEstimator#estimateCost(ADQLQuery)
+	 *
+	 * @since 2.4
+	 */
+	protected QueryCostEstimate estimateCost(final ADQLQuery adql){
+		if (!(dbConn instanceof QueryCostEstimator))
+			return null;
+		try{
+			QueryCostEstimate estimate = ((QueryCostEstimator)dbConn).estimateCost(adql);
+			if (estimate != null)
+				logger.logTAP(LogLevel.INFO, report, "COST_ESTIMATE", "Estimated query " + estimate + ".", null);
+			return estimate;
+		}catch(DBException de){
+			logger.logTAP(LogLevel.WARNING, report, "COST_ESTIMATE", "Impossible to estimate the cost of the query! It is executed anyway.", de);
+			return null;
+		}
+	}
+
+	/**
+	 * Apply the cost policy (see {@link #getCostPolicy()}) to the given
+	 * estimate.
+	 *
+	 * <p>
+	 * 	Nothing is done if no limit is exceeded. Otherwise, depending on the
+	 * 	policy, either the fetch size is lowered for this execution, or a
+	 * 	{@link QueryTooCostlyException} is thrown. Redirecting to an
+	 * 	asynchronous job is allowed only if no table has been uploaded (the
+	 * 	uploaded files are deleted at the end of the synchronous request).
+	 * </p>
+	 *
+	 * @param estimate	The estimated cost of the query. <i>May be NULL.</i>
+	 *
+	 * @throws QueryTooCostlyException	If the query must not be executed
+	 *                                	synchronously.
+	 *
+	 * @since 2.4
+	 */
+	protected void applyCostPolicy(final QueryCostEstimate estimate) throws QueryTooCostlyException{
+		if (costPolicy == null || !costPolicy.isExceeded(estimate))
+			return;
+
+		switch(costPolicy.getAction()){
+			case LOWER_FETCH_SIZE:
+				costlyFetchSize = costPolicy.getFetchSize();
+				logger.logTAP(LogLevel.INFO, report, "COST_POLICY", "Too costly query (" + estimate + ") => executed with a fetch size of " + costlyFetchSize + ".", null);
+				break;
+			case ASYNC:
+				if (tapParams.getUploadedTables() == null || tapParams.getUploadedTables().length == 0){
+					logger.logTAP(LogLevel.INFO, report, "COST_POLICY", "Too costly query (" + estimate + ") => to be executed asynchronously.", null);
+					throw new QueryTooCostlyException(estimate, true);
+				}else{
+					logger.logTAP(LogLevel.INFO, report, "COST_POLICY", "Too costly query (" + estimate + ") => rejected (no asynchronous execution with uploaded tables).", null);
+					throw new QueryTooCostlyException(estimate, false);
+				}
+			default:
+				logger.logTAP(LogLevel.INFO, report, "COST_POLICY", "Too costly query (" + estimate + ") => rejected.", null);
+				throw new QueryTooCostlyException(estimate, false);
+		}
+	}
+
 	/**
 	 * <p>Execute in "database" the given object representation of an ADQL query.</p>
 	 *
@@ -618,6 +1025,9 @@ public class ADQLExecutor {
 			else
 				dbConn.setFetchSize(service.getFetchSize()[0]);
 		}
+		// ...unless lowered because of the estimated cost of the query:
+		if (costlyFetchSize > 0)
+			dbConn.setFetchSize(costlyFetchSize);
 
 		try{
 			// Execute the ADQL query:
@@ -663,6 +1073,9 @@ public class ADQLExecutor {
 
 		// Get the appropriate result formatter:
 		OutputFormat formatter = getFormatter();
+		resultFormat = formatter.getShortMimeType();
+		if (resultFormat == null)
+			resultFormat = formatter.getMimeType();
 
 		// CASE SYNCHRONOUS:
 		if (response != null){
@@ -676,7 +1089,14 @@ public class ADQLExecutor {
 
 			// Write the formatted result in the HTTP response output:
 			start = System.currentTimeMillis();
-			writeResult(queryResult, formatter, response.getOutputStream());
+			if (metrics != null){
+				// count the written bytes only if the metrics are enabled:
+				CountingOutputStream output = new CountingOutputStream(response.getOutputStream());
+				writeResult(queryResult, formatter, output);
+				output.flush();
+				resultSize = output.getCount();
+			}else
+				writeResult(queryResult, formatter, response.getOutputStream());
 
 			logger.logTAP(LogLevel.INFO, report, "RESULT_WRITTEN", "Result formatted (in " + formatter.getMimeType() + " ; " + (report.nbRows < 0 ? "?" : report.nbRows) + " rows ; " + ((report.resultingColumns == null) ? "?" : report.resultingColumns.length) + " columns) in " + ((start <= 0) ? "?" : (System.currentTimeMillis() - start)) + "ms!", null);
 		}
@@ -685,6 +1105,7 @@ public class ADQLExecutor {
 			boolean completed = false;
 			long start = -1, end = -1;
 			Result result = null;
+			OutputStream output = null;
 			JobThread jobThread = (JobThread)thread;
 			try{
 				// Create a UWS Result object to store the result
@@ -696,11 +1117,15 @@ public class ADQLExecutor {
 
 				// Write the formatted result in the file output:
 				start = System.currentTimeMillis();
-				writeResult(queryResult, formatter, jobThread.getResultOutput(result));
+				output = jobThread.getResultOutput(result);
+				writeResult(queryResult, formatter, output);
+				// ...and close it (so that the whole result is really written and available):
+				output.close();
 				end = System.currentTimeMillis();
 
 				// Set the size (in bytes) of the result in the result description:
 				result.setSize(jobThread.getResultSize(result));
+				resultSize = result.getSize();
 
 				// Add the result description and link in the job description:
 				jobThread.publishResult(result);
@@ -714,6 +1139,16 @@ public class ADQLExecutor {
 				throw new UWSException(UWSException.INTERNAL_SERVER_ERROR, ioe, "Impossible to write in the file into which the result of the job " + report.jobID + " must be written!");
 			}finally{
 				if (!completed){
+					// Stop writing (a result written in a temporary file is just discarded):
+					if (output instanceof AtomicFileOutputStream)
+						((AtomicFileOutputStream)output).abort();
+					else if (output != null){
+						try{
+							output.close();
+						}catch(IOException ioe){
+							;
+						}
+					}
 					// Delete the result file (it is either incomplete or incorrect ;
 					// it is then not reliable and is anyway not associated with the job and so could not be later deleted when the job will be):
 					if (result != null){
@@ -55,7 +55,7 @@ import uws.service.error.ServiceErrorWriter;
  * Only the functions related with the database connection stay abstract.
  *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.2 (09/2017)
+ * @version 2.4 (10/2026)
  */
 public abstract class AbstractTAPFactory extends TAPFactory {
 
@@ -266,7 +266,31 @@ public abstract class AbstractTAPFactory extends TAPFactory {
 			TAPParameters tapParams = createTAPParameters(request);
 
 			// Create the job:
-			return new TAPJob(owner, tapParams, requestID);
+			return createTAPJob(owner, tapParams, requestID);
+		}catch(TAPException te){
+			if (te.getCause() != null && te.getCause() instanceof UWSException)
+				throw (UWSException)te.getCause();
+			else
+				throw new UWSException(UWSException.INTERNAL_SERVER_ERROR, te, "Can not create a TAP asynchronous job!");
+		}
+	}
+
+	/**
+	 * <p>This implementation provides a basic {@link TAPJob} instance.</p>
+	 *
+	 * <p>
+	 * 	If you need to add or modify the behavior of some functions of a
+	 * 	{@link TAPJob}, you must override this function and return your own
+	 * 	extension of {@link TAPJob}. It is also used by
+	 * 	{@link #createTAPJob(HttpServletRequest, JobOwner)}.
+	 * </p>
+	 *
+	 * @since 2.4
+	 */
+	@Override
+	public TAPJob createTAPJob(final JobOwner owner, final TAPParameters params, final String requestID) throws UWSException{
+		try{
+			return new TAPJob(owner, params, requestID);
 		}catch(TAPException te){
 			if (te.getCause() != null && te.getCause() instanceof UWSException)
 				throw (UWSException)te.getCause();
@@ -0,0 +1,154 @@
+package tap;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import tap.db.QueryCostEstimate;
+
+/**
+ * Rules applied to a synchronous query whose estimated cost is too high.
+ *
+ * <p>
+ * 	Before executing a synchronous query, {@link ADQLExecutor} asks the
+ * 	database to estimate its cost (see {@link tap.db.QueryCostEstimator}). If
+ * 	this estimate exceeds {@link #getMaxCost()} or {@link #getMaxRows()} (see
+ * 	{@link #isExceeded(QueryCostEstimate)}), one of the following actions is
+ * 	performed:
+ * </p>
+ * <ul>
+ * 	<li>{@link Action#REJECT}: the query is not executed and an HTTP-400 error
+ * 		asks the user to submit it asynchronously,</li>
+ * 	<li>{@link Action#ASYNC}: the query is not executed synchronously ; an
+ * 		asynchronous job is created and started instead, and the user is
+ * 		redirected (HTTP-303) to it <i>(only if no table has been uploaded ;
+ * 		otherwise, the query is rejected)</i>,</li>
+ * 	<li>{@link Action#LOWER_FETCH_SIZE}: the query is executed, but its rows
+ * 		are fetched by blocks of {@link #getFetchSize()} rows.</li>
+ * </ul>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class QueryCostPolicy {
+
+	/**
+	 * Action to perform on a too costly synchronous query.
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	public static enum Action{
+		/** Reject the query. */
+		REJECT,
+		/** Execute the query in an asynchronous job instead. */
+		ASYNC,
+		/** Execute the query with a smaller fetch size. */
+		LOWER_FETCH_SIZE;
+	}
+
+	/** Maximum estimated cost. <i>Negative or null if no limit.</i> */
+	protected final double maxCost;
+
+	/** Maximum estimated number of rows. <i>Negative or null if no limit.</i> */
+	protected final long maxRows;
+
+	/** Action to perform when a limit is exceeded. */
+	protected final Action action;
+
+	/** Fetch size to use with {@link Action#LOWER_FETCH_SIZE}. */
+	protected final int fetchSize;
+
+	/**
+	 * Build a policy.
+	 *
+	 * @param maxCost	Maximum estimated cost, in the units of the database.
+	 *               	<i>Negative or null if no limit.</i>
+	 * @param maxRows	Maximum estimated number of rows.
+	 *               	<i>Negative or null if no limit.</i>
+	 * @param action	Action to perform when a limit is exceeded.
+	 *              	<i>If NULL, {@link Action#REJECT}.</i>
+	 * @param fetchSize	Fetch size to use with {@link Action#LOWER_FETCH_SIZE}.
+	 *                 	<i>At least 1.</i>
+	 */
+	public QueryCostPolicy(final double maxCost, final long maxRows, final Action action, final int fetchSize){
+		this.maxCost = maxCost;
+		this.maxRows = maxRows;
+		this.action = (action == null) ? Action.REJECT : action;
+		this.fetchSize = Math.max(1, fetchSize);
+	}
+
+	/**
+	 * Get the maximum estimated cost.
+	 *
+	 * @return	The maximum cost. <i>Negative or null if no limit.</i>
+	 */
+	public final double getMaxCost(){
+		return maxCost;
+	}
+
+	/**
+	 * Get the maximum estimated number of rows.
+	 *
+	 * @return	The maximum number of rows. <i>Negative or null if no
+	 *        	limit.</i>
+	 */
+	public final long getMaxRows(){
+		return maxRows;
+	}
+
+	/**
+	 * Get the action to perform when a limit is exceeded.
+	 *
+	 * @return	The action. <i>Never NULL.</i>
+	 */
+	public final Action getAction(){
+		return action;
+	}
+
+	/**
+	 * Get the fetch size to use with {@link Action#LOWER_FETCH_SIZE}.
+	 *
+	 * @return	The lowered fetch size.
+	 */
+	public final int getFetchSize(){
+		return fetchSize;
+	}
+
+	/**
+	 * Tell whether the given estimate exceeds one of the limits of this
+	 * policy.
+	 *
+	 * <p><i>Note:
+	 * 	An unknown value (i.e. negative) never exceeds a limit.
+	 * </i></p>
+	 *
+	 * @param estimate	The estimated cost of a query.
+	 *
+	 * @return	<i>true</i> if a limit is exceeded,
+	 *        	<i>false</i> otherwise (or if no estimate is given).
+	 */
+	public boolean isExceeded(final QueryCostEstimate estimate){
+		if (estimate == null)
+			return false;
+		return (maxCost > 0 && estimate.getCost() > maxCost) || (maxRows > 0 && estimate.getRows() > maxRows);
+	}
+
+}
@@ -0,0 +1,81 @@
+package tap;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import tap.db.QueryCostEstimate;
+import uws.UWSException;
+
+/**
+ * Error sent when a synchronous query is not executed because its estimated
+ * cost is too high (see {@link QueryCostPolicy}).
+ *
+ * <p>
+ * 	The HTTP status code is HTTP-400 (Bad Request). However, if
+ * 	{@link #isAsyncAllowed()} returns <i>true</i>, {@link tap.resource.Sync}
+ * 	executes the query asynchronously instead of sending this error.
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class QueryTooCostlyException extends TAPException {
+	private static final long serialVersionUID = 1L;
+
+	/** The estimate which exceeds the limits. */
+	private final QueryCostEstimate estimate;
+
+	/** Indicate whether the query may be executed asynchronously instead. */
+	private final boolean asyncAllowed;
+
+	/**
+	 * Build a "too costly query" error.
+	 *
+	 * @param estimate		The estimate which exceeds the limits.
+	 * @param asyncAllowed	<i>true</i> if the query may be executed
+	 *                    	asynchronously instead,
+	 *                    	<i>false</i> if it must just be rejected.
+	 */
+	public QueryTooCostlyException(final QueryCostEstimate estimate, final boolean asyncAllowed){
+		super("This query is too costly to be executed synchronously (estimated " + estimate + ")! You should submit it asynchronously (i.e. to /async).", UWSException.BAD_REQUEST);
+		this.estimate = estimate;
+		this.asyncAllowed = asyncAllowed;
+	}
+
+	/**
+	 * Get the estimate which exceeds the limits.
+	 *
+	 * @return	The estimated cost of the query.
+	 */
+	public final QueryCostEstimate getEstimate(){
+		return estimate;
+	}
+
+	/**
+	 * Tell whether the query may be executed asynchronously instead.
+	 *
+	 * @return	<i>true</i> if an asynchronous job may be created,
+	 *        	<i>false</i> if the query must just be rejected.
+	 */
+	public final boolean isAsyncAllowed(){
+		return asyncAllowed;
+	}
+
+}
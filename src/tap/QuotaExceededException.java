@@ -0,0 +1,53 @@
+package tap;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import uws.UWSException;
+
+/**
+ * Error sent when a user has exceeded one of its quotas (see
+ * {@link tap.resource.UsageAccounting}).
+ *
+ * <p>
+ * 	The HTTP status code is always HTTP-429 (Too Many Requests). The
+ * 	<code>Retry-After</code> header tells the client when enough of its past
+ * 	usage will have left the accounting window.
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class QuotaExceededException extends ServiceBusyException {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Build a "quota exceeded" error.
+	 *
+	 * @param message		Message explaining which quota is exceeded.
+	 * @param retryAfter	Number of seconds after which the client should
+	 *                  	try again. <i>If &le; 0, no delay will be
+	 *                  	suggested to the client.</i>
+	 */
+	public QuotaExceededException(final String message, final int retryAfter){
+		super(message, UWSException.TOO_MANY_REQUESTS, retryAfter);
+	}
+
+}
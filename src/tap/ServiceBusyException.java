@@ -0,0 +1,83 @@
+package tap;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import uws.UWSException;
+
+/**
+ * Error sent when a request can not be processed because the TAP service is
+ * temporarily overloaded.
+ *
+ * <p>
+ * 	The HTTP status code is HTTP-503 (Service Unavailable), unless set
+ * 	differently by a subclass (e.g. HTTP-429 for a {@link QuotaExceededException}).
+ * 	In addition, this exception may specify after how many seconds the client
+ * 	should try again. This delay is then sent in the HTTP header
+ * 	<code>Retry-After</code> by {@link tap.error.DefaultTAPErrorWriter}.
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class ServiceBusyException extends TAPException {
+	private static final long serialVersionUID = 1L;
+
+	/** Number of seconds after which the client should try again.
+	 * <i>A negative or null value means "unknown".</i> */
+	private final int retryAfter;
+
+	/**
+	 * Build a "service busy" error.
+	 *
+	 * @param message		Message explaining the error.
+	 * @param retryAfter	Number of seconds after which the client should
+	 *                  	try again. <i>If &le; 0, no delay will be
+	 *                  	suggested to the client.</i>
+	 */
+	public ServiceBusyException(final String message, final int retryAfter){
+		this(message, UWSException.SERVICE_UNAVAILABLE, retryAfter);
+	}
+
+	/**
+	 * Build a "service busy" error with a specific HTTP status code.
+	 *
+	 * @param message		Message explaining the error.
+	 * @param httpErrorCode	HTTP status code to return.
+	 * @param retryAfter	Number of seconds after which the client should
+	 *                  	try again. <i>If &le; 0, no delay will be
+	 *                  	suggested to the client.</i>
+	 */
+	protected ServiceBusyException(final String message, final int httpErrorCode, final int retryAfter){
+		super(message, httpErrorCode);
+		this.retryAfter = retryAfter;
+	}
+
+	/**
+	 * Get the number of seconds after which the client should try again.
+	 *
+	 * @return	Delay (in seconds) before retrying,
+	 *        	or a negative or null value if unknown.
+	 */
+	public final int getRetryAfter(){
+		return retryAfter;
+	}
+
+}
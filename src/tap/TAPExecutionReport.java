@@ -18,10 +18,11 @@ import adql.db.DBColumn;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2012-2019 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
+import tap.db.QueryCostEstimate;
 import tap.parameters.TAPParameters;
 
 /**
@@ -41,7 +42,7 @@ import tap.parameters.TAPParameters;
  * </p>
  *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.3 (03/2019)
+ * @version 2.4 (10/2026)
  */
 public class TAPExecutionReport {
 
@@ -64,6 +65,17 @@ public class TAPExecutionReport {
 	/** List of all resulting columns. <i>Empty array, if not yet known.</i> */
 	public DBColumn[] resultingColumns = new DBColumn[0];
 
+	/** Full ADQL names (i.e. prefixed by the schema name, if any) of all
+	 * tables read by the query, including the ones of sub-queries.
+	 * <i>Empty array, if not yet known.</i>
+	 * @since 2.4 */
+	public String[] queriedTables = new String[0];
+
+	/** Cost of the query, as estimated by the database before its execution.
+	 * <i>NULL if not estimated (see {@link ADQLExecutor#setCostPolicy(QueryCostPolicy)}).</i>
+	 * @since 2.4 */
+	public QueryCostEstimate costEstimate = null;
+
 	/** Total number of written rows.
 	 * @since 2.0 */
 	public long nbRows = -1;
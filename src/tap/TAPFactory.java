@@ -64,7 +64,7 @@ import uws.service.request.RequestParser;
  * </ul>
  *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.3 (09/2018)
+ * @version 2.4 (10/2026)
  */
 public abstract class TAPFactory implements UWSFactory {
 
@@ -332,6 +332,32 @@ public abstract class TAPFactory implements UWSFactory {
 	 */
 	protected abstract TAPJob createTAPJob(final HttpServletRequest request, final JobOwner owner) throws UWSException;
 
+	/**
+	 * <p>Create a PENDING asynchronous job with the given (already extracted)
+	 * parameters.</p>
+	 *
+	 * <p>
+	 * 	This function is used, for instance, when a synchronous query is too
+	 * 	costly and must be executed asynchronously instead.
+	 * </p>
+	 *
+	 * <p><i>Note:
+	 * 	A default implementation is provided by {@link AbstractTAPFactory}.
+	 * </i></p>
+	 *
+	 * @param owner		The user which has requested the job creation.
+	 * @param params	List of all input job parameters.
+	 * @param requestID	ID of the HTTP request which has initiated the creation
+	 *                 	of this job. <i>MAY be NULL</i>
+	 *
+	 * @return	A new PENDING asynchronous job.
+	 *
+	 * @throws UWSException	If any error occurs while creating the job.
+	 *
+	 * @since 2.4
+	 */
+	public abstract TAPJob createTAPJob(final JobOwner owner, final TAPParameters params, final String requestID) throws UWSException;
+
 	/**
 	 * <p>Creates a UWS job with the following attributes.</p>
 	 *
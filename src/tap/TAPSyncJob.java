@@ -16,7 +16,7 @@ package tap;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2012-2017 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
@@ -50,7 +50,7 @@ import uws.service.request.UploadFile;
  * </p>
  *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.1 (03/2017)
+ * @version 2.4 (10/2026)
  */
 public class TAPSyncJob {
 
@@ -276,6 +276,11 @@ public class TAPSyncJob {
 				// throw the error until the TAP instance to notify it about the abortion:
 				throw (IOException)error;
 			}
+			// QUERY TOO COSTLY (not an error of the service):
+			else if (error instanceof QueryTooCostlyException){
+				service.getLogger().logTAP(LogLevel.INFO, this, "END", "The synchronous job " + ID + " has not been executed: its query is too costly.", null);
+				throw (QueryTooCostlyException)error;
+			}
 			// TAP EXCEPTION:
 			else if (error instanceof TAPException){
 				// log the error:
@@ -16,11 +16,12 @@ package tap.config;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2016-2019 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2016-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
 import static tap.config.TAPConfiguration.DEFAULT_ASYNC_FETCH_SIZE;
+import static tap.config.TAPConfiguration.DEFAULT_DEDUPLICATE_RESULTS;
 import static tap.config.TAPConfiguration.DEFAULT_DIRECTORY_PER_USER;
 import static tap.config.TAPConfiguration.DEFAULT_EXECUTION_DURATION;
 import static tap.config.TAPConfiguration.DEFAULT_FIX_ON_FAIL;
@@ -28,11 +29,14 @@ import static tap.config.TAPConfiguration.DEFAULT_GROUP_USER_DIRECTORIES;
 import static tap.config.TAPConfiguration.DEFAULT_LOGGER;
 import static tap.config.TAPConfiguration.DEFAULT_MAX_ASYNC_JOBS;
 import static tap.config.TAPConfiguration.DEFAULT_MAX_UPLOAD_LIMIT;
+import static tap.config.TAPConfiguration.DEFAULT_RESULT_BUFFER_SIZE;
 import static tap.config.TAPConfiguration.DEFAULT_RETENTION_PERIOD;
 import static tap.config.TAPConfiguration.DEFAULT_SYNC_FETCH_SIZE;
+import static tap.config.TAPConfiguration.DEFAULT_SYNC_RESULTS;
 import static tap.config.TAPConfiguration.DEFAULT_UPLOAD_MAX_REQUEST_SIZE;
 import static tap.config.TAPConfiguration.KEY_ASYNC_FETCH_SIZE;
 import static tap.config.TAPConfiguration.KEY_COORD_SYS;
+import static tap.config.TAPConfiguration.KEY_DEDUPLICATE_RESULTS;
 import static tap.config.TAPConfiguration.KEY_DEFAULT_EXECUTION_DURATION;
 import static tap.config.TAPConfiguration.KEY_DEFAULT_OUTPUT_LIMIT;
 import static tap.config.TAPConfiguration.KEY_DEFAULT_RETENTION_PERIOD;
@@ -55,8 +59,10 @@ import static tap.config.TAPConfiguration.KEY_METADATA_FILE;
 import static tap.config.TAPConfiguration.KEY_MIN_LOG_LEVEL;
 import static tap.config.TAPConfiguration.KEY_OUTPUT_FORMATS;
 import static tap.config.TAPConfiguration.KEY_PROVIDER_NAME;
+import static tap.config.TAPConfiguration.KEY_RESULT_BUFFER_SIZE;
 import static tap.config.TAPConfiguration.KEY_SERVICE_DESCRIPTION;
 import static tap.config.TAPConfiguration.KEY_SYNC_FETCH_SIZE;
+import static tap.config.TAPConfiguration.KEY_SYNC_RESULTS;
 import static tap.config.TAPConfiguration.KEY_TAP_FACTORY;
 import static tap.config.TAPConfiguration.KEY_UDFS;
 import static tap.config.TAPConfiguration.KEY_UPLOAD_ENABLED;
@@ -65,6 +71,7 @@ import static tap.config.TAPConfiguration.KEY_UPLOAD_MAX_REQUEST_SIZE;
 import static tap.config.TAPConfiguration.KEY_USER_IDENTIFIER;
 import static tap.config.TAPConfiguration.SLF4J_LOGGER;
 import static tap.config.TAPConfiguration.VALUE_ALL;
+import static tap.config.TAPConfiguration.VALUE_ARROW;
 import static tap.config.TAPConfiguration.VALUE_ANY;
 import static tap.config.TAPConfiguration.VALUE_CSV;
 import static tap.config.TAPConfiguration.VALUE_DB;
@@ -107,6 +114,7 @@ import tap.TAPException;
 import tap.TAPFactory;
 import tap.db.DBConnection;
 import tap.db.JDBCConnection;
+import tap.formatter.ArrowFormat;
 import tap.formatter.FITSFormat;
 import tap.formatter.HTMLFormat;
 import tap.formatter.JSONFormat;
@@ -118,11 +126,13 @@ import tap.log.DefaultTAPLog;
 import tap.log.Slf4jTAPLog;
 import tap.log.TAPLog;
 import tap.metadata.TAPMetadata;
+import tap.metadata.TAPMetadataDiff;
 import tap.metadata.TableSetParser;
 import uk.ac.starlink.votable.DataFormat;
 import uk.ac.starlink.votable.VOTableVersion;
 import uws.UWSException;
 import uws.service.UserIdentifier;
+import uws.service.file.LocalResultStore;
 import uws.service.file.LocalUWSFileManager;
 import uws.service.file.UWSFileManager;
 import uws.service.log.UWSLog.LogLevel;
@@ -138,7 +148,7 @@ import uws.service.log.UWSLog.LogLevel;
  * </p>
  *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.3 (03/2019)
+ * @version 2.4 (10/2026)
  * @since 2.0
  */
 public final class ConfigurableServiceConnection implements ServiceConnection {
@@ -154,8 +164,19 @@ public final class ConfigurableServiceConnection implements ServiceConnection {
 	 * (e.g. database connection). */
 	private TAPFactory tapFactory;
 
-	/** Object gathering all metadata of this TAP service. */
-	private final TAPMetadata metadata;
+	/** Object gathering all metadata of this TAP service.
+	 * <i>Note: since v2.4, it may be replaced by {@link #reloadMetadata()}.</i> */
+	private volatile TAPMetadata metadata;
+
+	/** Content of the TAP configuration file. Kept in order to reload the
+	 * metadata.
+	 * @since 2.4 */
+	private final Properties tapConfig;
+
+	/** Directory of the Web Application. Kept in order to reload the
+	 * metadata.
+	 * @since 2.4 */
+	private final String webAppRootDir;
 
 	/** Name of the organization/person providing the TAP service.  */
 	private final String providerName;
@@ -272,7 +293,9 @@ public final class ConfigurableServiceConnection implements ServiceConnection {
 		initFactory(tapConfig);
 
 		// 4. GET THE METADATA:
-		metadata = initMetadata(tapConfig, webAppRootDir);
+		this.tapConfig = tapConfig;
+		this.webAppRootDir = webAppRootDir;
+		metadata = initMetadata(tapConfig, webAppRootDir, true);
 
 		// 6. SET ALL GENERAL SERVICE CONNECTION INFORMATION:
 		providerName = getProperty(tapConfig, KEY_PROVIDER_NAME);
@@ -343,12 +366,40 @@ public final class ConfigurableServiceConnection implements ServiceConnection {
 			propValue = getProperty(tapConfig, KEY_GROUP_USER_DIRECTORIES);
 			boolean groupUserDirectories = (propValue == null) ? DEFAULT_GROUP_USER_DIRECTORIES : Boolean.parseBoolean(propValue);
 
+			// Determine whether identical results must be stored only once:
+			propValue = getProperty(tapConfig, KEY_DEDUPLICATE_RESULTS);
+			boolean deduplicateResults = (propValue == null) ? DEFAULT_DEDUPLICATE_RESULTS : Boolean.parseBoolean(propValue);
+
 			// Build the Local TAP File Manager:
+			LocalUWSFileManager localFileManager;
 			try{
-				fileManager = new LocalUWSFileManager(rootFile, oneDirectoryPerUser, groupUserDirectories);
+				localFileManager = new LocalUWSFileManager(rootFile, oneDirectoryPerUser, groupUserDirectories);
 			}catch(UWSException e){
 				throw new TAPException("The property \"" + KEY_FILE_ROOT_PATH + "\" (" + rootPath + ") is incorrect: " + e.getMessage());
 			}
+
+			// Set how result files must be written:
+			Object[] bufferSize = parseLimit((getProperty(tapConfig, KEY_RESULT_BUFFER_SIZE) == null) ? DEFAULT_RESULT_BUFFER_SIZE : getProperty(tapConfig, KEY_RESULT_BUFFER_SIZE), KEY_RESULT_BUFFER_SIZE, true, true);
+			if ((Long)bufferSize[0] > 0){
+				if (!LimitUnit.bytes.isCompatibleWith((LimitUnit)bufferSize[1]))
+					throw new TAPException("The property \"" + KEY_RESULT_BUFFER_SIZE + "\" can not be expressed in a unit different from bytes (B, kB, MB, GB)!");
+				long nbBytes = (Long)bufferSize[0] * ((LimitUnit)bufferSize[1]).bytesFactor();
+				if (nbBytes > Integer.MAX_VALUE)
+					throw new TAPException("The property \"" + KEY_RESULT_BUFFER_SIZE + "\" is too big! It must be less than 2GB.");
+				localFileManager.setResultBufferSize((int)nbBytes);
+			}
+			propValue = getProperty(tapConfig, KEY_SYNC_RESULTS);
+			localFileManager.setSyncResults((propValue == null) ? DEFAULT_SYNC_RESULTS : Boolean.parseBoolean(propValue));
+
+			// Store results by content, if asked:
+			if (deduplicateResults){
+				try{
+					localFileManager.setResultStore(new LocalResultStore(new File(rootFile, "results")));
+				}catch(IOException ioe){
+					throw new TAPException("Impossible to create the result store in \"" + rootFile.getAbsolutePath() + "\": " + ioe.getMessage(), ioe);
+				}
+			}
+			fileManager = localFileManager;
 		}
 		// CUSTOM file manager:
 		else
@@ -456,6 +507,10 @@ public final class ConfigurableServiceConnection implements ServiceConnection {
 	 * @param tapConfig		The content of the TAP configuration file.
 	 * @param webAppRootDir	Web Application directory local path.
 	 *                     	<em>This directory may be used if a relative path is given for an XML metadata file.</em>
+	 * @param updateTAPSchema	<code>true</code> to write the metadata loaded from an XML document or a custom class
+	 *                       	into the database schema TAP_SCHEMA,
+	 *                       	<code>false</code> to just build them.
+	 *                       	<i>Ignored if the metadata are fetched from the database.</i>
 	 *
 	 * @return	The extracted TAP metadata.
 	 *
@@ -465,7 +520,7 @@ public final class ConfigurableServiceConnection implements ServiceConnection {
 	 * @see DBConnection#getTAPSchema()
 	 * @see TableSetParser
 	 */
-	private TAPMetadata initMetadata(final Properties tapConfig, final String webAppRootDir) throws TAPException{
+	private TAPMetadata initMetadata(final Properties tapConfig, final String webAppRootDir, final boolean updateTAPSchema) throws TAPException{
 		// Get the fetching method to use:
 		String metaFetchType = getProperty(tapConfig, KEY_METADATA);
 		if (metaFetchType == null)
@@ -500,14 +555,8 @@ public final class ConfigurableServiceConnection implements ServiceConnection {
 			}
 
 			// Update the database:
-			DBConnection conn = null;
-			try{
-				conn = tapFactory.getConnection("SET_TAP_SCHEMA");
-				conn.setTAPSchema(metadata);
-			}finally{
-				if (conn != null)
-					tapFactory.freeConnection(conn);
-			}
+			if (updateTAPSchema)
+				updateTAPSchema(metadata);
 		}
 		// GET METADATA FROM DATABASE (schema TAP_SCHEMA):
 		else if (metaFetchType.equalsIgnoreCase(VALUE_DB)){
@@ -572,14 +621,8 @@ public final class ConfigurableServiceConnection implements ServiceConnection {
 			}
 
 			/* 2. Update the database */
-			DBConnection conn = null;
-			try{
-				conn = tapFactory.getConnection("SET_TAP_SCHEMA");
-				conn.setTAPSchema(metadata);
-			}finally{
-				if (conn != null)
-					tapFactory.freeConnection(conn);
-			}
+			if (updateTAPSchema)
+				updateTAPSchema(metadata);
 		}
 		// INCORRECT VALUE => ERROR!
 		else
@@ -624,6 +667,50 @@ public final class ConfigurableServiceConnection implements ServiceConnection {
 		return metadata;
 	}
 
+	/**
+	 * Tell whether the metadata are loaded from a TableSet XML document or a
+	 * custom class (i.e. not from TAP_SCHEMA), and so, must be written into
+	 * the database schema TAP_SCHEMA.
+	 *
+	 * @param tapConfig	The content of the TAP configuration file.
+	 *
+	 * @return	<code>true</code> if TAP_SCHEMA is not the source of the metadata,
+	 *        	<code>false</code> otherwise.
+	 *
+	 * @since 2.4
+	 */
+	private boolean isTAPSchemaUpdated(final Properties tapConfig){
+		String metaFetchType = getProperty(tapConfig, KEY_METADATA);
+		return metaFetchType != null && !metaFetchType.toLowerCase().startsWith(VALUE_DB);
+	}
+
+	/**
+	 * Write the given metadata into the database schema TAP_SCHEMA.
+	 *
+	 * <p><b>Warning:</b>
+	 * 	TAP_SCHEMA is dropped and created again ; it must not be read at the
+	 * 	same time.
+	 * </p>
+	 *
+	 * @param meta	The metadata to write.
+	 *
+	 * @throws TAPException	If an error occurs while updating TAP_SCHEMA.
+	 *
+	 * @see DBConnection#setTAPSchema(TAPMetadata)
+	 *
+	 * @since 2.4
+	 */
+	private void updateTAPSchema(final TAPMetadata meta) throws TAPException{
+		DBConnection conn = null;
+		try{
+			conn = tapFactory.getConnection("SET_TAP_SCHEMA");
+			conn.setTAPSchema(meta);
+		}finally{
+			if (conn != null)
+				tapFactory.freeConnection(conn);
+		}
+	}
+
 	/**
 	 * Initialize the maximum number of asynchronous jobs.
 	 *
@@ -735,6 +822,7 @@ public final class ConfigurableServiceConnection implements ServiceConnection {
 			outputFormats.add(new SVFormat(this, "\t", true));
 			outputFormats.add(new TextFormat(this));
 			outputFormats.add(new HTMLFormat(this));
+			outputFormats.add(new ArrowFormat(this));
 			return;
 		}
 
@@ -812,6 +900,23 @@ public final class ConfigurableServiceConnection implements ServiceConnection {
 				}else
 					throw new TAPException("Missing separator char/string for the SV output format: \"" + f + "\"!");
 			}
+			// ARROW
+			else if (f.equalsIgnoreCase(VALUE_ARROW))
+				outputFormats.add(new ArrowFormat(this));
+			// ARROW with a batch size
+			else if (f.toLowerCase().startsWith(VALUE_ARROW + "(")){
+				int batchSize = -1;
+				if (f.endsWith(")")){
+					try{
+						batchSize = Integer.parseInt(f.substring(VALUE_ARROW.length() + 1, f.length() - 1).trim());
+					}catch(NumberFormatException nfe){
+						;
+					}
+				}
+				if (batchSize <= 0)
+					throw new TAPException("Incorrect batch size for the Arrow output format: \"" + f + "\"! It must be a positive integer.");
+				outputFormats.add(new ArrowFormat(this, batchSize));
+			}
 			// VOTABLE
 			else if (f.toLowerCase().startsWith(VALUE_VOTABLE) || f.toLowerCase().startsWith(VALUE_VOT)){
 				// Parse the format:
@@ -1743,6 +1848,84 @@ public final class ConfigurableServiceConnection implements ServiceConnection {
 		return metadata;
 	}
 
+	/**
+	 * Load again the TAP metadata, exactly as done at initialization (i.e.
+	 * from TAP_SCHEMA, from the XML document or with the custom class set in
+	 * the property {@value TAPConfiguration#KEY_METADATA}), but without
+	 * writing anything into the database.
+	 *
+	 * <p>
+	 * 	This function is equivalent to {@link #reloadMetadata(boolean)} with
+	 * 	<code>false</code>.
+	 * </p>
+	 *
+	 * @return	The differences between the former and the new metadata.
+	 *        	<i>If empty, the metadata have not been replaced.</i>
+	 *
+	 * @throws TAPException	If an error occurs while loading the metadata.
+	 *                     	<i>In such case, the current metadata are kept.</i>
+	 *
+	 * @since 2.4
+	 */
+	public TAPMetadataDiff reloadMetadata() throws TAPException{
+		return reloadMetadata(false);
+	}
+
+	/**
+	 * Load again the TAP metadata, exactly as done at initialization (i.e.
+	 * from TAP_SCHEMA, from the XML document or with the custom class set in
+	 * the property {@value TAPConfiguration#KEY_METADATA}).
+	 *
+	 * <p>
+	 * 	The new metadata are loaded aside and compared with the current ones.
+	 * 	Only if they are different, they replace the current ones in one
+	 * 	single assignment. Queries already being processed keep working with
+	 * 	the former metadata ; the next ones will use the new metadata.
+	 * </p>
+	 *
+	 * <p>
+	 * 	Contrary to the initialization, the database schema TAP_SCHEMA is never
+	 * 	updated, unless explicitly asked with the parameter
+	 * 	<code>updateTAPSchema</code>. Even then, it is updated only if the
+	 * 	metadata come from an XML document or a custom class, and only if they
+	 * 	have changed: TAP_SCHEMA is dropped and created again, and so, can not
+	 * 	be read by queries in the meantime.
+	 * </p>
+	 *
+	 * <p><i>Note:
+	 * 	The XSLT stylesheet of the former metadata is copied into the new ones.
+	 * 	The /tables resource of the {@link tap.resource.TAP} object must then be
+	 * 	updated with {@link tap.resource.TAP#setTAPMetadata(TAPMetadata)}.
+	 * </i></p>
+	 *
+	 * @param updateTAPSchema	<code>true</code> to write the new metadata into
+	 *                       	TAP_SCHEMA if they have changed,
+	 *                       	<code>false</code> to never touch the database.
+	 *
+	 * @return	The differences between the former and the new metadata.
+	 *        	<i>If empty, the metadata have not been replaced.</i>
+	 *
+	 * @throws TAPException	If an error occurs while loading the metadata
+	 *                     	or while updating TAP_SCHEMA.
+	 *                     	<i>In such case, the current metadata are kept.</i>
+	 *
+	 * @since 2.4
+	 */
+	public synchronized TAPMetadataDiff reloadMetadata(final boolean updateTAPSchema) throws TAPException{
+		final TAPMetadata current = metadata;
+		final TAPMetadata newMetadata = initMetadata(tapConfig, webAppRootDir, false);
+
+		final TAPMetadataDiff diff = new TAPMetadataDiff(current, newMetadata);
+		if (!diff.isEmpty()){
+			if (updateTAPSchema && isTAPSchemaUpdated(tapConfig))
+				updateTAPSchema(newMetadata);
+			if (current != null)
+				newMetadata.setXSLTPath(current.getXSLTPath());
+			metadata = newMetadata;
+		}
+		return diff;
+	}
+
 	@Override
 	public Collection<String> getGeometries(){
 		return geometries;
@@ -16,26 +16,44 @@ package tap.config;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2016-2017 - Astronomisches Rechen Institut (ARI)
+ * Copyright 2016-2026 - Astronomisches Rechen Institut (ARI)
  */
 
 import static tap.config.TAPConfiguration.DEFAULT_BACKUP_BY_USER;
 import static tap.config.TAPConfiguration.DEFAULT_BACKUP_FREQUENCY;
+import static tap.config.TAPConfiguration.DEFAULT_IN_LIST_OFFLOAD_THRESHOLD;
+import static tap.config.TAPConfiguration.DEFAULT_RESULT_PIPELINE_SIZE;
+import static tap.config.TAPConfiguration.DEFAULT_SYNC_COSTLY_FETCH_SIZE;
+import static tap.config.TAPConfiguration.DEFAULT_SYNC_COSTLY_QUERY_ACTION;
+import static tap.config.TAPConfiguration.DEFAULT_SYNC_MAX_QUERY_COST;
+import static tap.config.TAPConfiguration.DEFAULT_SYNC_MAX_QUERY_ROWS;
+import static tap.config.TAPConfiguration.DEFAULT_UPLOAD_MAX_PARALLEL;
 import static tap.config.TAPConfiguration.KEY_BACKUP_BY_USER;
 import static tap.config.TAPConfiguration.KEY_BACKUP_FREQUENCY;
 import static tap.config.TAPConfiguration.KEY_DATABASE_ACCESS;
 import static tap.config.TAPConfiguration.KEY_DATASOURCE_JNDI_NAME;
 import static tap.config.TAPConfiguration.KEY_DB_PASSWORD;
 import static tap.config.TAPConfiguration.KEY_DB_USERNAME;
+import static tap.config.TAPConfiguration.KEY_IN_LIST_OFFLOAD_THRESHOLD;
 import static tap.config.TAPConfiguration.KEY_JDBC_DRIVER;
 import static tap.config.TAPConfiguration.KEY_JDBC_URL;
+import static tap.config.TAPConfiguration.KEY_RESULT_PIPELINE_SIZE;
 import static tap.config.TAPConfiguration.KEY_SQL_TRANSLATOR;
+import static tap.config.TAPConfiguration.KEY_SYNC_COSTLY_FETCH_SIZE;
+import static tap.config.TAPConfiguration.KEY_SYNC_COSTLY_QUERY_ACTION;
+import static tap.config.TAPConfiguration.KEY_SYNC_MAX_QUERY_COST;
+import static tap.config.TAPConfiguration.KEY_SYNC_MAX_QUERY_ROWS;
+import static tap.config.TAPConfiguration.KEY_UPLOAD_MAX_PARALLEL;
+import static tap.config.TAPConfiguration.VALUE_ASYNC;
+import static tap.config.TAPConfiguration.VALUE_FETCH_SIZE;
 import static tap.config.TAPConfiguration.VALUE_JDBC;
 import static tap.config.TAPConfiguration.VALUE_JDBC_DRIVERS;
 import static tap.config.TAPConfiguration.VALUE_JNDI;
 import static tap.config.TAPConfiguration.VALUE_MYSQL;
 import static tap.config.TAPConfiguration.VALUE_NEVER;
 import static tap.config.TAPConfiguration.VALUE_PGSPHERE;
+import static tap.config.TAPConfiguration.VALUE_Q3C;
+import static tap.config.TAPConfiguration.VALUE_REJECT;
 import static tap.config.TAPConfiguration.VALUE_POSTGRESQL;
 import static tap.config.TAPConfiguration.VALUE_SQLSERVER;
 import static tap.config.TAPConfiguration.VALUE_USER_ACTION;
@@ -55,14 +73,18 @@ import adql.translator.JDBCTranslator;
 import adql.translator.MySQLTranslator;
 import adql.translator.PgSphereTranslator;
 import adql.translator.PostgreSQLTranslator;
+import adql.translator.Q3CTranslator;
 import adql.translator.SQLServerTranslator;
+import tap.ADQLExecutor;
 import tap.AbstractTAPFactory;
+import tap.QueryCostPolicy;
 import tap.ServiceConnection;
 import tap.TAPException;
 import tap.TAPFactory;
 import tap.backup.DefaultTAPBackupManager;
 import tap.db.DBConnection;
 import tap.db.JDBCConnection;
+import tap.upload.Uploader;
 import uws.UWSException;
 import uws.service.UWSService;
 import uws.service.backup.UWSBackupManager;
@@ -78,7 +100,7 @@ import uws.service.log.UWSLog.LogLevel;
  * </p>
  *
  * @author Gr&eacute;gory Mantelet (ARI)
- * @version 2.1 (08/2017)
+ * @version 2.4 (10/2026)
  * @since 2.0
  */
 public class ConfigurableTAPFactory extends AbstractTAPFactory {
@@ -113,6 +135,25 @@ public class ConfigurableTAPFactory extends AbstractTAPFactory {
 	/** Frequency at which the jobs must be backuped. */
 	protected long backupFrequency;
 
+	/* Query execution: */
+	/** Minimum number of values a constant IN list must have to be loaded into
+	 * a table of TAP_UPLOAD. <i>Negative or null if disabled.</i>
+	 * @since 2.4 */
+	protected int inListOffloadThreshold = DEFAULT_IN_LIST_OFFLOAD_THRESHOLD;
+	/** Maximum number of result rows to read in advance while writing the
+	 * result. <i>Negative or null if disabled.</i>
+	 * @since 2.4 */
+	protected int resultPipelineSize = DEFAULT_RESULT_PIPELINE_SIZE;
+	/** Rules applied to the too costly synchronous queries.
+	 * <i>NULL if the cost of queries is not estimated.</i>
+	 * @since 2.4 */
+	protected QueryCostPolicy syncCostPolicy = null;
+
+	/* Upload: */
+	/** Maximum number of uploaded tables to ingest simultaneously.
+	 * @since 2.4 */
+	protected int uploadMaxParallel = DEFAULT_UPLOAD_MAX_PARALLEL;
+
 	/**
 	 * Build a {@link TAPFactory} using the given TAP service description and TAP configuration file.
 	 *
@@ -204,6 +245,10 @@ public class ConfigurableTAPFactory extends AbstractTAPFactory {
 		else if (sqlTranslator.equalsIgnoreCase(VALUE_PGSPHERE))
 			translator = PgSphereTranslator.class;
 
+		// case c': PostgreSQL+Q3C translator
+		else if (sqlTranslator.equalsIgnoreCase(VALUE_Q3C))
+			translator = Q3CTranslator.class;
+
 		// case d: SQLServer translator
 		else if (sqlTranslator.equalsIgnoreCase(VALUE_SQLSERVER))
 			translator = SQLServerTranslator.class;
@@ -250,6 +295,149 @@ public class ConfigurableTAPFactory extends AbstractTAPFactory {
 		// Specify whether the backup must be organized by user or not:
 		propValue = getProperty(tapConfig, KEY_BACKUP_BY_USER);
 		backupByUser = (propValue == null) ? DEFAULT_BACKUP_BY_USER : Boolean.parseBoolean(propValue);
+
+		/* 6. Set the threshold of the IN list offloading */
+		propValue = getProperty(tapConfig, KEY_IN_LIST_OFFLOAD_THRESHOLD);
+		if (propValue != null){
+			try{
+				inListOffloadThreshold = Integer.parseInt(propValue);
+			}catch(NumberFormatException nfe){
+				throw new TAPException("Integer expected for the property \"" + KEY_IN_LIST_OFFLOAD_THRESHOLD + "\", instead of: \"" + propValue + "\"!");
+			}
+		}
+
+		/* 6bis. Set the size of the result pipeline */
+		propValue = getProperty(tapConfig, KEY_RESULT_PIPELINE_SIZE);
+		if (propValue != null){
+			try{
+				resultPipelineSize = Integer.parseInt(propValue);
+			}catch(NumberFormatException nfe){
+				throw new TAPException("Integer expected for the property \"" + KEY_RESULT_PIPELINE_SIZE + "\", instead of: \"" + propValue + "\"!");
+			}
+		}
+
+		/* 6ter. Set the policy about too costly synchronous queries */
+		syncCostPolicy = initSyncCostPolicy(tapConfig);
+
+		/* 7. Set the number of uploaded tables to ingest simultaneously */
+		propValue = getProperty(tapConfig, KEY_UPLOAD_MAX_PARALLEL);
+		if (propValue != null){
+			try{
+				uploadMaxParallel = Integer.parseInt(propValue);
+			}catch(NumberFormatException nfe){
+				throw new TAPException("Integer expected for the property \"" + KEY_UPLOAD_MAX_PARALLEL + "\", instead of: \"" + propValue + "\"!");
+			}
+		}
+	}
+
+	/**
+	 * Build the rules to apply to the synchronous queries whose estimated cost
+	 * is too high, if the property <code>sync_max_query_cost</code> or
+	 * <code>sync_max_query_rows</code> is set.
+	 *
+	 * @param tapConfig	The content of the TAP configuration file.
+	 *
+	 * @return	The cost policy,
+	 *        	or NULL if no limit is set.
+	 *
+	 * @throws TAPException	If a property value is incorrect.
+	 *
+	 * @since 2.4
+	 */
+	protected QueryCostPolicy initSyncCostPolicy(final Properties tapConfig) throws TAPException{
+		// Maximum cost:
+		double maxCost = DEFAULT_SYNC_MAX_QUERY_COST;
+		String propValue = getProperty(tapConfig, KEY_SYNC_MAX_QUERY_COST);
+		if (propValue != null){
+			try{
+				maxCost = Double.parseDouble(propValue);
+			}catch(NumberFormatException nfe){
+				throw new TAPException("Number expected for the property \"" + KEY_SYNC_MAX_QUERY_COST + "\", instead of: \"" + propValue + "\"!");
+			}
+		}
+
+		// Maximum number of rows:
+		long maxRows = DEFAULT_SYNC_MAX_QUERY_ROWS;
+		propValue = getProperty(tapConfig, KEY_SYNC_MAX_QUERY_ROWS);
+		if (propValue != null){
+			try{
+				maxRows = Long.parseLong(propValue);
+			}catch(NumberFormatException nfe){
+				throw new TAPException("Integer expected for the property \"" + KEY_SYNC_MAX_QUERY_ROWS + "\", instead of: \"" + propValue + "\"!");
+			}
+		}
+
+		// No limit => no estimation:
+		if (maxCost <= 0 && maxRows <= 0)
+			return null;
+
+		// Action:
+		QueryCostPolicy.Action action;
+		propValue = getProperty(tapConfig, KEY_SYNC_COSTLY_QUERY_ACTION);
+		if (propValue == null)
+			propValue = DEFAULT_SYNC_COSTLY_QUERY_ACTION;
+		if (propValue.equalsIgnoreCase(VALUE_REJECT))
+			action = QueryCostPolicy.Action.REJECT;
+		else if (propValue.equalsIgnoreCase(VALUE_ASYNC))
+			action = QueryCostPolicy.Action.ASYNC;
+		else if (propValue.equalsIgnoreCase(VALUE_FETCH_SIZE))
+			action = QueryCostPolicy.Action.LOWER_FETCH_SIZE;
+		else
+			throw new TAPException("Unsupported value for the property \"" + KEY_SYNC_COSTLY_QUERY_ACTION + "\": \"" + propValue + "\"! Allowed values: \"" + VALUE_REJECT + "\", \"" + VALUE_ASYNC + "\" or \"" + VALUE_FETCH_SIZE + "\".");
+
+		// Lowered fetch size:
+		int fetchSize = DEFAULT_SYNC_COSTLY_FETCH_SIZE;
+		propValue = getProperty(tapConfig, KEY_SYNC_COSTLY_FETCH_SIZE);
+		if (propValue != null){
+			try{
+				fetchSize = Integer.parseInt(propValue);
+			}catch(NumberFormatException nfe){
+				throw new TAPException("Integer expected for the property \"" + KEY_SYNC_COSTLY_FETCH_SIZE + "\", instead of: \"" + propValue + "\"!");
+			}
+			if (fetchSize <= 0)
+				throw new TAPException("A positive integer is expected for the property \"" + KEY_SYNC_COSTLY_FETCH_SIZE + "\", instead of: \"" + propValue + "\"!");
+		}
+
+		return new QueryCostPolicy(maxCost, maxRows, action, fetchSize);
+	}
+
+	/**
+	 * Build an {@link ADQLExecutor} which loads too long IN lists into
+	 * temporary tables if the property <code>in_list_offload_threshold</code>
+	 * is set, which reads the query result in a separated thread if the
+	 * property <code>result_pipeline_size</code> is set, and which estimates
+	 * the cost of synchronous queries if a limit is set (see
+	 * {@link #initSyncCostPolicy(Properties)}).
+	 *
+	 * @see ADQLExecutor#setInListOffloadThreshold(int)
+	 * @see ADQLExecutor#setResultPipelineSize(int)
+	 * @see ADQLExecutor#setCostPolicy(QueryCostPolicy)
+	 *
+	 * @since 2.4
+	 */
+	@Override
+	public ADQLExecutor createADQLExecutor() throws TAPException{
+		ADQLExecutor executor = super.createADQLExecutor();
+		executor.setInListOffloadThreshold(inListOffloadThreshold);
+		executor.setResultPipelineSize(resultPipelineSize);
+		executor.setCostPolicy(syncCostPolicy);
+		return executor;
+	}
+
+	/**
+	 * Build an {@link Uploader} which ingests simultaneously several uploaded
+	 * tables if the property <code>upload_max_parallel</code> is greater
+	 * than 1.
+	 *
+	 * @see Uploader#setMaxParallelUploads(int)
+	 *
+	 * @since 2.4
+	 */
+	@Override
+	public Uploader createUploader(final DBConnection dbConn) throws TAPException{
+		Uploader uploader = super.createUploader(dbConn);
+		uploader.setMaxParallelUploads(uploadMaxParallel);
+		return uploader;
 	}
 
 	/**
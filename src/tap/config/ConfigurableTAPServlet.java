@@ -16,20 +16,49 @@ package tap.config;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  * 
- * Copyright 2015-2016 - Astronomisches Rechen Institut (ARI)
+ * Copyright 2015-2026 - Astronomisches Rechen Institut (ARI),
+ *                       UDS/Centre de Données astronomiques de Strasbourg (CDS)
  */
 
+import static tap.config.TAPConfiguration.DEFAULT_MAX_QUEUED_SYNC_JOBS;
+import static tap.config.TAPConfiguration.DEFAULT_METADATA_RELOAD_FREQUENCY;
+import static tap.config.TAPConfiguration.DEFAULT_MAX_SYNC_JOBS;
+import static tap.config.TAPConfiguration.DEFAULT_MAX_SYNC_JOBS_PER_USER;
+import static tap.config.TAPConfiguration.DEFAULT_QUOTA_MAX;
+import static tap.config.TAPConfiguration.DEFAULT_QUOTA_WINDOW;
+import static tap.config.TAPConfiguration.DEFAULT_SYNC_CACHE_MAX_RESULT_SIZE;
+import static tap.config.TAPConfiguration.DEFAULT_SYNC_CACHE_SIZE;
+import static tap.config.TAPConfiguration.DEFAULT_SYNC_CACHE_TTL;
+import static tap.config.TAPConfiguration.DEFAULT_SYNC_QUEUE_TIMEOUT;
 import static tap.config.TAPConfiguration.DEFAULT_TAP_CONF_FILE;
+import static tap.config.TAPConfiguration.DEFAULT_USAGE_SHOW_ALL_USERS;
 import static tap.config.TAPConfiguration.KEY_ADD_TAP_RESOURCES;
 import static tap.config.TAPConfiguration.KEY_CAPABILITIES_STYLESHEET;
 import static tap.config.TAPConfiguration.KEY_EXAMPLES;
 import static tap.config.TAPConfiguration.KEY_HOME_PAGE;
 import static tap.config.TAPConfiguration.KEY_HOME_PAGE_MIME_TYPE;
+import static tap.config.TAPConfiguration.KEY_MAX_QUEUED_SYNC_JOBS;
+import static tap.config.TAPConfiguration.KEY_MAX_SYNC_JOBS;
+import static tap.config.TAPConfiguration.KEY_MAX_SYNC_JOBS_PER_USER;
+import static tap.config.TAPConfiguration.KEY_METADATA_CHANGE_QUERY;
+import static tap.config.TAPConfiguration.KEY_METADATA_RELOAD_FREQUENCY;
+import static tap.config.TAPConfiguration.KEY_QUOTA_MAX_DB_TIME;
+import static tap.config.TAPConfiguration.KEY_QUOTA_MAX_QUERIES;
+import static tap.config.TAPConfiguration.KEY_QUOTA_MAX_RESULT_SIZE;
+import static tap.config.TAPConfiguration.KEY_QUOTA_MAX_ROWS;
+import static tap.config.TAPConfiguration.KEY_QUOTA_WINDOW;
+import static tap.config.TAPConfiguration.KEY_SYNC_CACHE_EXCLUDED_TABLES;
+import static tap.config.TAPConfiguration.KEY_SYNC_CACHE_MAX_RESULT_SIZE;
+import static tap.config.TAPConfiguration.KEY_SYNC_CACHE_SIZE;
+import static tap.config.TAPConfiguration.KEY_SYNC_CACHE_TTL;
+import static tap.config.TAPConfiguration.KEY_SYNC_QUEUE_TIMEOUT;
 import static tap.config.TAPConfiguration.KEY_TABLES_STYLESHEET;
+import static tap.config.TAPConfiguration.KEY_USAGE_SHOW_ALL_USERS;
 import static tap.config.TAPConfiguration.TAP_CONF_PARAMETER;
 import static tap.config.TAPConfiguration.getProperty;
 import static tap.config.TAPConfiguration.isClassName;
 import static tap.config.TAPConfiguration.newInstance;
+import static tap.config.TAPConfiguration.parseLimit;
 
 import java.io.File;
 import java.io.FileInputStream;
@@ -44,11 +73,16 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import tap.ServiceConnection;
+import tap.ServiceConnection.LimitUnit;
 import tap.TAPException;
 import tap.resource.Examples;
 import tap.resource.HomePage;
+import tap.resource.SyncAdmissionController;
+import tap.resource.SyncResultCache;
 import tap.resource.TAP;
 import tap.resource.TAPResource;
+import tap.resource.Usage;
+import tap.resource.UsageAccounting;
 
 /**
  * <p>HTTP servlet fully configured with a TAP configuration file.</p>
@@ -59,8 +93,20 @@ import tap.resource.TAPResource;
  * 	will be searched inside the directories of the classpath, and inside WEB-INF and META-INF.
  * </p>
  * 
- * @author Gr&eacute;gory Mantelet (ARI)
- * @version 2.1 (07/2016)
+ * <p><b>Important:</b>
+ * 	The stream of job events (<code>/async/events</code>) needs the asynchronous processing of the Servlet API.
+ * 	So, this servlet (and all filters in front of it) must be declared with <code>&lt;async-supported&gt;</code>,
+ * 	as below ; otherwise, this resource fails with an HTTP-501 error:
+ * </p>
+ * <pre>
+ * &lt;servlet&gt;
+ * 	&lt;servlet-name&gt;MyTAP&lt;/servlet-name&gt;
+ * 	&lt;servlet-class&gt;tap.config.ConfigurableTAPServlet&lt;/servlet-class&gt;
+ * 	&lt;async-supported&gt;true&lt;/async-supported&gt;
+ * &lt;/servlet&gt;</pre>
+ * 
+ * @author Gr&eacute;gory Mantelet (ARI;CDS)
+ * @version 2.4 (10/2026)
  * @since 2.0
  */
 public class ConfigurableTAPServlet extends HttpServlet {
@@ -69,6 +115,11 @@ public class ConfigurableTAPServlet extends HttpServlet {
 	/** TAP object representing the TAP service. */
 	private TAP tap = null;
 
+	/** Object reloading periodically the TAP metadata.
+	 * <i>NULL if no reload is configured.</i>
+	 * @since 2.4 */
+	private MetadataReloader metadataReloader = null;
+
 	@Override
 	public void init(final ServletConfig config) throws ServletException{
 		// Nothing to do, if TAP is already initialized:
@@ -161,6 +212,34 @@ public class ConfigurableTAPServlet extends HttpServlet {
 		if (propValue != null)
 			tap.addResource(new Examples(tap, propValue));
 
+		/* 4Quinquies. SET THE ADMISSION CONTROL OF SYNCHRONOUS JOBS */
+		try{
+			initSyncAdmissionControl(tapConf);
+		}catch(TAPException te){
+			throw new ServletException(te.getMessage(), te.getCause());
+		}
+
+		/* 4Quinquies-bis. SET THE CACHE OF SYNCHRONOUS RESULTS */
+		try{
+			initSyncResultCache(tapConf);
+		}catch(TAPException te){
+			throw new ServletException(te.getMessage(), te.getCause());
+		}
+
+		/* 4Quinquies-ter. SET THE USAGE QUOTAS */
+		try{
+			initUsageAccounting(tapConf);
+		}catch(TAPException te){
+			throw new ServletException(te.getMessage(), te.getCause());
+		}
+
+		/* 4Sexies. SET THE PERIODIC RELOAD OF THE METADATA */
+		try{
+			initMetadataReloader(tapConf);
+		}catch(TAPException te){
+			throw new ServletException(te.getMessage(), te.getCause());
+		}
+
 		/* 5. SET ADDITIONAL TAP RESOURCES */
 		propValue = getProperty(tapConf, KEY_ADD_TAP_RESOURCES);
 		if (propValue != null){
@@ -243,8 +322,217 @@ public class ConfigurableTAPServlet extends HttpServlet {
 			tap.getTAPMetadata().setXSLTPath(propValue);
 	}
 
+	/**
+	 * Initialize the limitation of the number of synchronous jobs executed
+	 * simultaneously.
+	 * 
+	 * @param tapConfig	The content of the TAP configuration file.
+	 * 
+	 * @throws TAPException	If a property value is not a valid integer.
+	 * 
+	 * @since 2.4
+	 */
+	protected void initSyncAdmissionControl(final Properties tapConfig) throws TAPException{
+		int maxRunning = parseInt(tapConfig, KEY_MAX_SYNC_JOBS, DEFAULT_MAX_SYNC_JOBS);
+		int maxPerUser = parseInt(tapConfig, KEY_MAX_SYNC_JOBS_PER_USER, DEFAULT_MAX_SYNC_JOBS_PER_USER);
+
+		// No limit => no admission control:
+		if (maxRunning <= 0 && maxPerUser <= 0)
+			return;
+
+		int maxQueued = parseInt(tapConfig, KEY_MAX_QUEUED_SYNC_JOBS, DEFAULT_MAX_QUEUED_SYNC_JOBS);
+		String propValue = getProperty(tapConfig, KEY_SYNC_QUEUE_TIMEOUT);
+		long timeout;
+		try{
+			timeout = (propValue == null) ? DEFAULT_SYNC_QUEUE_TIMEOUT : Long.parseLong(propValue);
+		}catch(NumberFormatException nfe){
+			throw new TAPException("Integer expected for the property \"" + KEY_SYNC_QUEUE_TIMEOUT + "\", instead of: \"" + propValue + "\"!");
+		}
+
+		tap.getSync().setAdmissionController(new SyncAdmissionController(maxRunning, maxQueued, timeout, maxPerUser));
+	}
+
+	/**
+	 * Initialize the cache of the results of synchronous queries, if the
+	 * property {@value TAPConfiguration#KEY_SYNC_CACHE_SIZE} is positive.
+	 * 
+	 * @param tapConfig	The content of the TAP configuration file.
+	 * 
+	 * @throws TAPException	If a property value is incorrect.
+	 * 
+	 * @since 2.4
+	 */
+	protected void initSyncResultCache(final Properties tapConfig) throws TAPException{
+		long maxSize = parseBytes(tapConfig, KEY_SYNC_CACHE_SIZE, DEFAULT_SYNC_CACHE_SIZE);
+
+		// No size => no cache:
+		if (maxSize <= 0)
+			return;
+
+		long maxResultSize = parseBytes(tapConfig, KEY_SYNC_CACHE_MAX_RESULT_SIZE, DEFAULT_SYNC_CACHE_MAX_RESULT_SIZE);
+		int ttl = parseInt(tapConfig, KEY_SYNC_CACHE_TTL, DEFAULT_SYNC_CACHE_TTL);
+
+		SyncResultCache cache = new SyncResultCache(maxSize, maxResultSize, ttl * 1000L);
+		String propValue = getProperty(tapConfig, KEY_SYNC_CACHE_EXCLUDED_TABLES);
+		if (propValue != null){
+			for(String table : propValue.split(","))
+				cache.excludeTable(table);
+		}
+
+		tap.getSync().setResultCache(cache);
+	}
+
+	/**
+	 * Initialize the accounting of the resources used by each user, if at
+	 * least one quota is set.
+	 * 
+	 * <p>
+	 * 	The same accounting is set to the synchronous and asynchronous
+	 * 	resources, and a TAP resource showing it ({@link Usage}) is added.
+	 * </p>
+	 * 
+	 * @param tapConfig	The content of the TAP configuration file.
+	 * 
+	 * @throws TAPException	If a property value is incorrect.
+	 * 
+	 * @since 2.4
+	 */
+	protected void initUsageAccounting(final Properties tapConfig) throws TAPException{
+		int maxQueries = parseInt(tapConfig, KEY_QUOTA_MAX_QUERIES, DEFAULT_QUOTA_MAX);
+		int maxDBTime = parseInt(tapConfig, KEY_QUOTA_MAX_DB_TIME, DEFAULT_QUOTA_MAX);
+		String propValue = getProperty(tapConfig, KEY_QUOTA_MAX_ROWS);
+		long maxRows;
+		try{
+			maxRows = (propValue == null) ? DEFAULT_QUOTA_MAX : Long.parseLong(propValue);
+		}catch(NumberFormatException nfe){
+			throw new TAPException("Integer expected for the property \"" + KEY_QUOTA_MAX_ROWS + "\", instead of: \"" + propValue + "\"!");
+		}
+		long maxBytes = parseBytes(tapConfig, KEY_QUOTA_MAX_RESULT_SIZE, String.valueOf(DEFAULT_QUOTA_MAX));
+
+		// No quota => no accounting:
+		if (maxQueries <= 0 && maxDBTime <= 0 && maxRows <= 0 && maxBytes <= 0)
+			return;
+
+		int window = parseInt(tapConfig, KEY_QUOTA_WINDOW, DEFAULT_QUOTA_WINDOW);
+		if (window <= 0)
+			throw new TAPException("A positive integer is expected for the property \"" + KEY_QUOTA_WINDOW + "\", instead of: \"" + getProperty(tapConfig, KEY_QUOTA_WINDOW) + "\"!");
+
+		UsageAccounting accounting = new UsageAccounting(window * 1000L, 60);
+		accounting.setQuota(UsageAccounting.QUERIES, maxQueries);
+		accounting.setQuota(UsageAccounting.DB_TIME, (maxDBTime <= 0) ? maxDBTime : maxDBTime * 1000L);
+		accounting.setQuota(UsageAccounting.ROWS, maxRows);
+		accounting.setQuota(UsageAccounting.BYTES, maxBytes);
+
+		tap.getSync().setUsageAccounting(accounting);
+		tap.getASync().setUsageAccounting(accounting);
+
+		propValue = getProperty(tapConfig, KEY_USAGE_SHOW_ALL_USERS);
+		boolean showAll = (propValue == null) ? DEFAULT_USAGE_SHOW_ALL_USERS : Boolean.parseBoolean(propValue);
+		tap.addResource(new Usage(tap.getServiceConnection(), accounting, showAll));
+	}
+
+	/**
+	 * Get the value (in bytes) of the specified size property.
+	 * 
+	 * @param tapConfig		The content of the TAP configuration file.
+	 * @param key			Name of the property.
+	 * @param defaultValue	Value to use if the property is not set.
+	 * 
+	 * @return	The size in bytes, or -1 if no limit.
+	 * 
+	 * @throws TAPException	If the property value is not a valid size in bytes.
+	 * 
+	 * @since 2.4
+	 */
+	private static long parseBytes(final Properties tapConfig, final String key, final String defaultValue) throws TAPException{
+		String propValue = getProperty(tapConfig, key);
+		Object[] limit = parseLimit((propValue == null) ? defaultValue : propValue, key, true, true);
+		long value = (Long)limit[0];
+		if (value > 0 && !LimitUnit.bytes.isCompatibleWith((LimitUnit)limit[1]))
+			throw new TAPException("The property \"" + key + "\" (here: " + propValue + ") can not be expressed in a unit different from bytes (B, kB, MB, GB)!");
+		return (value <= 0) ? value : value * ((LimitUnit)limit[1]).bytesFactor();
+	}
+
+	/**
+	 * Start reloading periodically the TAP metadata, if the property
+	 * {@value TAPConfiguration#KEY_METADATA_RELOAD_FREQUENCY} is positive.
+	 * 
+	 * <p><i>Note:
+	 * 	Nothing is done if the service connection is not a
+	 * 	{@link ConfigurableServiceConnection}.
+	 * </i></p>
+	 * 
+	 * @param tapConfig	The content of the TAP configuration file.
+	 * 
+	 * @throws TAPException	If the frequency is not a valid integer.
+	 * 
+	 * @see MetadataReloader
+	 * 
+	 * @since 2.4
+	 */
+	protected void initMetadataReloader(final Properties tapConfig) throws TAPException{
+		String propValue = getProperty(tapConfig, KEY_METADATA_RELOAD_FREQUENCY);
+		long frequency;
+		try{
+			frequency = (propValue == null) ? DEFAULT_METADATA_RELOAD_FREQUENCY : Long.parseLong(propValue);
+		}catch(NumberFormatException nfe){
+			throw new TAPException("Integer expected for the property \"" + KEY_METADATA_RELOAD_FREQUENCY + "\", instead of: \"" + propValue + "\"!");
+		}
+
+		if (frequency <= 0 || !(tap.getServiceConnection() instanceof ConfigurableServiceConnection))
+			return;
+
+		metadataReloader = new MetadataReloader((ConfigurableServiceConnection)tap.getServiceConnection(), tap, frequency, getProperty(tapConfig, KEY_METADATA_CHANGE_QUERY));
+		metadataReloader.start();
+	}
+
+	/**
+	 * Get the object reloading periodically the TAP metadata.
+	 * 
+	 * <p><i>Note:
+	 * 	It can be used to trigger immediately a reload (see
+	 * 	{@link MetadataReloader#reload()}).
+	 * </i></p>
+	 * 
+	 * @return	The metadata reloader, or NULL if no periodic reload is
+	 *        	configured.
+	 * 
+	 * @since 2.4
+	 */
+	public final MetadataReloader getMetadataReloader(){
+		return metadataReloader;
+	}
+
+	/**
+	 * Get the integer value of the specified property.
+	 * 
+	 * @param tapConfig		The content of the TAP configuration file.
+	 * @param key			Name of the property.
+	 * @param defaultValue	Value to return if the property is not set.
+	 * 
+	 * @return	The property value.
+	 * 
+	 * @throws TAPException	If the property value is not a valid integer.
+	 * 
+	 * @since 2.4
+	 */
+	private static int parseInt(final Properties tapConfig, final String key, final int defaultValue) throws TAPException{
+		String propValue = getProperty(tapConfig, key);
+		try{
+			return (propValue == null) ? defaultValue : Integer.parseInt(propValue);
+		}catch(NumberFormatException nfe){
+			throw new TAPException("Integer expected for the property \"" + key + "\", instead of: \"" + propValue + "\"!");
+		}
+	}
+
 	@Override
 	public void destroy(){
+		// Stop reloading the metadata:
+		if (metadataReloader != null){
+			metadataReloader.stop();
+			metadataReloader = null;
+		}
+
 		// Free all resources used by TAP:
 		if (tap != null){
 			tap.destroy();
@@ -0,0 +1,270 @@
+package tap.config;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import tap.TAPException;
+import tap.db.DBConnection;
+import tap.db.JDBCConnection;
+import tap.metadata.TAPMetadataDiff;
+import tap.resource.TAP;
+import uws.service.log.UWSLog.LogLevel;
+
+/**
+ * Reload periodically, in background, the metadata of a TAP service.
+ *
+ * <p>
+ * 	Every {@link #getFrequency()} milliseconds, the metadata are loaded
+ * 	again by {@link ConfigurableServiceConnection#reloadMetadata()}, compared
+ * 	with the current ones and, only if different, swapped in: in the
+ * 	{@link ConfigurableServiceConnection} (so that the next queries are
+ * 	checked against the new tables and columns), and in the /tables
+ * 	resource (whose VOSI document is then built again). This latter always
+ * 	follows the metadata of the {@link ConfigurableServiceConnection}
+ * 	(see {@link TAP#setTAPMetadata(tap.metadata.TAPMetadata)}) ; so, both
+ * 	can not disagree.
+ * </p>
+ *
+ * <p>
+ * 	If a change-detection query is provided, it is executed first. It must
+ * 	return a single value (e.g. <code>SELECT max(last_update) FROM
+ * 	TAP_SCHEMA.tables</code> or a version number). The metadata are reloaded
+ * 	only when this value changes.
+ * </p>
+ *
+ * <p>
+ * 	A reload can also be triggered at any time with {@link #reload()}.
+ * 	The database schema TAP_SCHEMA is never updated by a reload, except
+ * 	when explicitly asked by an operator with {@link #reload(boolean)}.
+ * </p>
+ *
+ * <p><i>Note:
+ * 	Queries already being processed are not affected by a reload: they keep
+ * 	working with the metadata they have been checked against.
+ * </i></p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class MetadataReloader {
+
+	/** The service whose metadata must be reloaded. */
+	protected final ConfigurableServiceConnection service;
+
+	/** The TAP resource publishing the metadata. <i>May be NULL.</i> */
+	protected final TAP tap;
+
+	/** Time (in milliseconds) between two checks/reloads. */
+	protected final long frequency;
+
+	/** SQL query returning a single value changing with TAP_SCHEMA.
+	 * <i>If NULL, the metadata are reloaded (and compared) at each check.</i> */
+	protected final String changeQuery;
+
+	/** Last value returned by {@link #changeQuery}. */
+	protected String lastChangeValue = null;
+
+	/** Timer running the periodic checks. <i>NULL if not started.</i> */
+	protected Timer timer = null;
+
+	/**
+	 * Build a metadata reloader.
+	 *
+	 * @param service		The service whose metadata must be reloaded.
+	 * @param tap			The TAP resource publishing the metadata.
+	 *           			<i>May be NULL.</i>
+	 * @param frequency		Time (in milliseconds) between two checks/reloads.
+	 *                 		<i>If negative or null, no periodic reload is
+	 *                 		done ; only {@link #reload()} can be used.</i>
+	 * @param changeQuery	SQL query returning a single value changing with
+	 *                   	TAP_SCHEMA. <i>May be NULL.</i>
+	 *
+	 * @throws NullPointerException	If the given service is NULL.
+	 */
+	public MetadataReloader(final ConfigurableServiceConnection service, final TAP tap, final long frequency, final String changeQuery) throws NullPointerException{
+		if (service == null)
+			throw new NullPointerException("Missing service connection! Impossible to reload its metadata.");
+		this.service = service;
+		this.tap = tap;
+		this.frequency = frequency;
+		this.changeQuery = (changeQuery == null || changeQuery.trim().length() == 0) ? null : changeQuery.trim();
+	}
+
+	/**
+	 * Get the time between two checks/reloads.
+	 *
+	 * @return	Frequency (in milliseconds).
+	 *        	<i>Negative or null if there is no periodic reload.</i>
+	 */
+	public final long getFrequency(){
+		return frequency;
+	}
+
+	/**
+	 * Get the SQL query used to detect a change of TAP_SCHEMA.
+	 *
+	 * @return	The change-detection query. <i>May be NULL.</i>
+	 */
+	public final String getChangeQuery(){
+		return changeQuery;
+	}
+
+	/**
+	 * Start the periodic checks, if a positive frequency is set.
+	 *
+	 * <p><i>Note:
+	 * 	The change-detection query, if any, is executed immediately in order to
+	 * 	know its current value.
+	 * </i></p>
+	 */
+	public synchronized void start(){
+		if (timer != null || frequency <= 0)
+			return;
+
+		if (changeQuery != null){
+			try{
+				lastChangeValue = queryChangeValue();
+			}catch(TAPException te){
+				service.getLogger().logTAP(LogLevel.WARNING, null, "RELOAD_METADATA", "Impossible to execute the change-detection query of TAP_SCHEMA: " + te.getMessage(), te);
+			}
+		}
+
+		timer = new Timer("TAP metadata reloader", true);
+		timer.schedule(new TimerTask(){
+			@Override
+			public void run(){
+				check();
+			}
+		}, frequency, frequency);
+	}
+
+	/**
+	 * Stop the periodic checks.
+	 */
+	public synchronized void stop(){
+		if (timer != null){
+			timer.cancel();
+			timer = null;
+		}
+	}
+
+	/**
+	 * Reload the metadata if the change-detection query returns a new value
+	 * (or, if there is no such query, in any case).
+	 *
+	 * <p><i>Note:
+	 * 	Errors are just logged.
+	 * </i></p>
+	 */
+	protected void check(){
+		try{
+			if (changeQuery != null){
+				String value = queryChangeValue();
+				if (value == null ? lastChangeValue == null : value.equals(lastChangeValue))
+					return;
+				reload();
+				lastChangeValue = value;
+			}else
+				reload();
+		}catch(Throwable t){
+			service.getLogger().logTAP(LogLevel.ERROR, null, "RELOAD_METADATA", "Impossible to reload the TAP metadata! The current ones are kept.", t);
+		}
+	}
+
+	/**
+	 * Reload immediately the metadata, and swap them in if they have changed.
+	 *
+	 * <p>
+	 * 	This function is equivalent to {@link #reload(boolean)} with
+	 * 	<code>false</code>: the database schema TAP_SCHEMA is never updated.
+	 * 	It is the one used by the periodic checks.
+	 * </p>
+	 *
+	 * @return	The differences between the former and the new metadata.
+	 *        	<i>If empty, nothing has been swapped.</i>
+	 *
+	 * @throws TAPException	If the metadata can not be loaded.
+	 *                     	<i>In such case, the current metadata are kept.</i>
+	 */
+	public TAPMetadataDiff reload() throws TAPException{
+		return reload(false);
+	}
+
+	/**
+	 * Reload immediately the metadata, and swap them in if they have changed.
+	 *
+	 * @param updateTAPSchema	<code>true</code> to also write the new metadata
+	 *                       	into TAP_SCHEMA if they have changed and come
+	 *                       	from an XML document or a custom class
+	 *                       	(see {@link ConfigurableServiceConnection#reloadMetadata(boolean)}),
+	 *                       	<code>false</code> to never touch the database.
+	 *
+	 * @return	The differences between the former and the new metadata.
+	 *        	<i>If empty, nothing has been swapped.</i>
+	 *
+	 * @throws TAPException	If the metadata can not be loaded.
+	 *                     	<i>In such case, the current metadata are kept.</i>
+	 */
+	public synchronized TAPMetadataDiff reload(final boolean updateTAPSchema) throws TAPException{
+		TAPMetadataDiff diff = service.reloadMetadata(updateTAPSchema);
+		if (!diff.isEmpty()){
+			if (tap != null)
+				tap.setTAPMetadata(service.getTAPMetadata());
+			service.getLogger().logTAP(LogLevel.INFO, null, "RELOAD_METADATA", "TAP metadata reloaded: " + diff, null);
+		}else
+			service.getLogger().logTAP(LogLevel.DEBUG, null, "RELOAD_METADATA", "TAP metadata unchanged.", null);
+		return diff;
+	}
+
+	/**
+	 * Execute the change-detection query and return the first value it
+	 * returns.
+	 *
+	 * @return	The first value (as a string), or NULL if the query returns
+	 *        	no row or a NULL value.
+	 *
+	 * @throws TAPException	If the query can not be executed.
+	 */
+	protected String queryChangeValue() throws TAPException{
+		DBConnection dbConn = service.getFactory().getConnection("RELOAD_METADATA");
+		try{
+			if (!(dbConn instanceof JDBCConnection))
+				throw new TAPException("A change-detection query can be executed only with a JDBCConnection!");
+			Statement stmt = ((JDBCConnection)dbConn).getInnerConnection().createStatement();
+			try{
+				ResultSet rs = stmt.executeQuery(changeQuery);
+				return rs.next() ? rs.getString(1) : null;
+			}finally{
+				stmt.close();
+			}
+		}catch(SQLException se){
+			throw new TAPException("Error while executing the change-detection query \"" + changeQuery + "\": " + se.getMessage(), se);
+		}finally{
+			service.getFactory().freeConnection(dbConn);
+		}
+	}
+
+}
@@ -16,7 +16,7 @@ package tap.config;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2015-2019 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2015-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
@@ -41,7 +41,7 @@ import tap.backup.DefaultTAPBackupManager;
  * </i></p>
  *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.3 (03/2019)
+ * @version 2.4 (10/2026)
  * @since 2.0
  */
 public final class TAPConfiguration {
@@ -75,6 +75,27 @@ public final class TAPConfiguration {
 	public final static String KEY_GROUP_USER_DIRECTORIES = "group_user_directories";
 	/** Default value of the property {@link #KEY_GROUP_USER_DIRECTORIES}: {@value #DEFAULT_GROUP_USER_DIRECTORIES}. */
 	public final static boolean DEFAULT_GROUP_USER_DIRECTORIES = false;
+	/** Name/Key of the property indicating whether identical query results must be stored only once.
+	 * If yes, results are hashed while written and kept in the directory <code>results</code> of the file root path.
+	 * A stored result is deleted when the last job referencing it is destroyed.
+	 * @since 2.4 */
+	public final static String KEY_DEDUPLICATE_RESULTS = "deduplicate_results";
+	/** Default value of the property {@link #KEY_DEDUPLICATE_RESULTS}: {@value #DEFAULT_DEDUPLICATE_RESULTS}.
+	 * @since 2.4 */
+	public final static boolean DEFAULT_DEDUPLICATE_RESULTS = false;
+	/** Name/Key of the property specifying the size of the buffer used to write each result file.
+	 * @since 2.4 */
+	public final static String KEY_RESULT_BUFFER_SIZE = "result_buffer_size";
+	/** Default value of the property {@link #KEY_RESULT_BUFFER_SIZE}: {@value #DEFAULT_RESULT_BUFFER_SIZE}.
+	 * @since 2.4 */
+	public final static String DEFAULT_RESULT_BUFFER_SIZE = "64kB";
+	/** Name/Key of the property indicating whether result files must be forced on the storage device
+	 * (i.e. <code>fsync</code>) before being published.
+	 * @since 2.4 */
+	public final static String KEY_SYNC_RESULTS = "sync_results";
+	/** Default value of the property {@link #KEY_SYNC_RESULTS}: {@value #DEFAULT_SYNC_RESULTS}.
+	 * @since 2.4 */
+	public final static boolean DEFAULT_SYNC_RESULTS = false;
 	/** Name/Key of the property specifying the default period (in seconds) while a job must remain on the server.
 	 * This value is set automatically to any job whose the retention period has never been specified by the user. */
 	public final static String KEY_DEFAULT_RETENTION_PERIOD = "default_retention_period";
@@ -134,6 +155,93 @@ public final class TAPConfiguration {
 	/** Default value of the property {@link #KEY_MAX_ASYNC_JOBS}: {@value #DEFAULT_MAX_ASYNC_JOBS}. */
 	public final static int DEFAULT_MAX_ASYNC_JOBS = 0;
 
+	/* SYNCHRONOUS JOBS */
+	/** Name/Key of the property specifying the maximum number of synchronous jobs that can run simultaneously.
+	 * A negative or null value means "no limit".
+	 * @since 2.4 */
+	public final static String KEY_MAX_SYNC_JOBS = "max_sync_jobs";
+	/** Default value of the property {@link #KEY_MAX_SYNC_JOBS}: {@value #DEFAULT_MAX_SYNC_JOBS}.
+	 * @since 2.4 */
+	public final static int DEFAULT_MAX_SYNC_JOBS = 0;
+	/** Name/Key of the property specifying the maximum number of synchronous jobs waiting for their execution
+	 * when {@link #KEY_MAX_SYNC_JOBS} jobs are already running.
+	 * @since 2.4 */
+	public final static String KEY_MAX_QUEUED_SYNC_JOBS = "max_queued_sync_jobs";
+	/** Default value of the property {@link #KEY_MAX_QUEUED_SYNC_JOBS}: {@value #DEFAULT_MAX_QUEUED_SYNC_JOBS}.
+	 * @since 2.4 */
+	public final static int DEFAULT_MAX_QUEUED_SYNC_JOBS = 0;
+	/** Name/Key of the property specifying the maximum time (in milliseconds) a synchronous job can wait for its execution.
+	 * @since 2.4 */
+	public final static String KEY_SYNC_QUEUE_TIMEOUT = "sync_queue_timeout";
+	/** Default value of the property {@link #KEY_SYNC_QUEUE_TIMEOUT}: {@value #DEFAULT_SYNC_QUEUE_TIMEOUT}.
+	 * @since 2.4 */
+	public final static long DEFAULT_SYNC_QUEUE_TIMEOUT = 10000;
+	/** Name/Key of the property specifying the maximum number of synchronous jobs (running or waiting) per user.
+	 * A negative or null value means "no limit".
+	 * @since 2.4 */
+	public final static String KEY_MAX_SYNC_JOBS_PER_USER = "max_sync_jobs_per_user";
+	/** Default value of the property {@link #KEY_MAX_SYNC_JOBS_PER_USER}: {@value #DEFAULT_MAX_SYNC_JOBS_PER_USER}.
+	 * @since 2.4 */
+	public final static int DEFAULT_MAX_SYNC_JOBS_PER_USER = 0;
+	/** Name/Key of the property specifying the maximum total size of the cached results of synchronous queries.
+	 * It must be expressed in bytes (B, kB, MB or GB). A negative or null value means "no cache".
+	 * @since 2.4 */
+	public final static String KEY_SYNC_CACHE_SIZE = "sync_cache_size";
+	/** Default value of the property {@link #KEY_SYNC_CACHE_SIZE}: {@value #DEFAULT_SYNC_CACHE_SIZE}.
+	 * @since 2.4 */
+	public final static String DEFAULT_SYNC_CACHE_SIZE = "0";
+	/** Name/Key of the property specifying the maximum size of a single cached result of a synchronous query.
+	 * It must be expressed in bytes (B, kB, MB or GB).
+	 * @since 2.4 */
+	public final static String KEY_SYNC_CACHE_MAX_RESULT_SIZE = "sync_cache_max_result_size";
+	/** Default value of the property {@link #KEY_SYNC_CACHE_MAX_RESULT_SIZE}: {@value #DEFAULT_SYNC_CACHE_MAX_RESULT_SIZE}.
+	 * @since 2.4 */
+	public final static String DEFAULT_SYNC_CACHE_MAX_RESULT_SIZE = "1MB";
+	/** Name/Key of the property specifying the time (in seconds) during which a cached result of a synchronous query can be used.
+	 * A negative or null value means "forever".
+	 * @since 2.4 */
+	public final static String KEY_SYNC_CACHE_TTL = "sync_cache_ttl";
+	/** Default value of the property {@link #KEY_SYNC_CACHE_TTL}: {@value #DEFAULT_SYNC_CACHE_TTL}.
+	 * @since 2.4 */
+	public final static int DEFAULT_SYNC_CACHE_TTL = 3600;
+	/** Name/Key of the property listing (comma separated) the tables whose the query results must never be cached.
+	 * @since 2.4 */
+	public final static String KEY_SYNC_CACHE_EXCLUDED_TABLES = "sync_cache_excluded_tables";
+
+	/* USAGE QUOTAS */
+	/** Name/Key of the property specifying the length (in seconds) of the window in which the usage of each user is accounted.
+	 * @since 2.4 */
+	public final static String KEY_QUOTA_WINDOW = "quota_window";
+	/** Default value of the property {@link #KEY_QUOTA_WINDOW}: {@value #DEFAULT_QUOTA_WINDOW}.
+	 * @since 2.4 */
+	public final static int DEFAULT_QUOTA_WINDOW = 3600;
+	/** Name/Key of the property specifying the maximum number of queries per user in the quota window.
+	 * A negative or null value means "no limit".
+	 * @since 2.4 */
+	public final static String KEY_QUOTA_MAX_QUERIES = "quota_max_queries";
+	/** Name/Key of the property specifying the maximum time (in seconds) spent in the database per user in the quota window.
+	 * A negative or null value means "no limit".
+	 * @since 2.4 */
+	public final static String KEY_QUOTA_MAX_DB_TIME = "quota_max_db_time";
+	/** Name/Key of the property specifying the maximum number of result rows per user in the quota window.
+	 * A negative or null value means "no limit".
+	 * @since 2.4 */
+	public final static String KEY_QUOTA_MAX_ROWS = "quota_max_rows";
+	/** Name/Key of the property specifying the maximum size of the results per user in the quota window.
+	 * A negative or null value means "no limit".
+	 * @since 2.4 */
+	public final static String KEY_QUOTA_MAX_RESULT_SIZE = "quota_max_result_size";
+	/** Default value of the properties {@link #KEY_QUOTA_MAX_QUERIES}, {@link #KEY_QUOTA_MAX_DB_TIME},
+	 * {@link #KEY_QUOTA_MAX_ROWS} and {@link #KEY_QUOTA_MAX_RESULT_SIZE}: {@value #DEFAULT_QUOTA_MAX}.
+	 * @since 2.4 */
+	public final static int DEFAULT_QUOTA_MAX = -1;
+	/** Name/Key of the property telling whether the TAP resource /usage shows the usage of all users to anybody.
+	 * @since 2.4 */
+	public final static String KEY_USAGE_SHOW_ALL_USERS = "usage_show_all_users";
+	/** Default value of the property {@link #KEY_USAGE_SHOW_ALL_USERS}: {@value #DEFAULT_USAGE_SHOW_ALL_USERS}.
+	 * @since 2.4 */
+	public final static boolean DEFAULT_USAGE_SHOW_ALL_USERS = false;
+
 	/* EXECUTION DURATION */
 	/** Name/Key of the property specifying the default execution duration (in milliseconds) set automatically to a job
 	 * if none has been specified by the user. */
@@ -162,6 +270,9 @@ public final class TAPConfiguration {
 	/** Value of the property {@link #KEY_SQL_TRANSLATOR} to select a MySQL translator.
 	 * @since 2.1 */
 	public final static String VALUE_MYSQL = "mysql";
+	/** Value of the property {@link #KEY_SQL_TRANSLATOR} to select a PostgreSQL+Q3C translator.
+	 * @since 2.4 */
+	public final static String VALUE_Q3C = "q3c";
 	/** Name/Key of the property specifying by how many rows the library should fetch a query result from the database.
 	 * This is the fetch size for to apply for synchronous queries. */
 	public final static String KEY_SYNC_FETCH_SIZE = "sync_fetch_size";
@@ -181,6 +292,69 @@ public final class TAPConfiguration {
 	 * {@value #DEFAULT_FIX_ON_FAIL}.
 	 * @since 2.3  */
 	public final static boolean DEFAULT_FIX_ON_FAIL = false;
+	/** Name/Key of the property specifying the minimum number of values a
+	 * constant IN list must have to be loaded into a temporary table of
+	 * TAP_UPLOAD instead of being translated in SQL.
+	 * @since 2.4 */
+	public final static String KEY_IN_LIST_OFFLOAD_THRESHOLD = "in_list_offload_threshold";
+	/** Default value of the property {@link #KEY_IN_LIST_OFFLOAD_THRESHOLD}:
+	 * {@value #DEFAULT_IN_LIST_OFFLOAD_THRESHOLD} (i.e. disabled).
+	 * @since 2.4 */
+	public final static int DEFAULT_IN_LIST_OFFLOAD_THRESHOLD = -1;
+	/** Name/Key of the property specifying the maximum number of result rows
+	 * that may be read from the database in advance, by a separated thread,
+	 * while the result is being written.
+	 * @since 2.4 */
+	public final static String KEY_RESULT_PIPELINE_SIZE = "result_pipeline_size";
+	/** Default value of the property {@link #KEY_RESULT_PIPELINE_SIZE}:
+	 * {@value #DEFAULT_RESULT_PIPELINE_SIZE} (i.e. disabled).
+	 * @since 2.4 */
+	public final static int DEFAULT_RESULT_PIPELINE_SIZE = -1;
+	/** Name/Key of the property specifying the maximum cost (as estimated by
+	 * the database) of a synchronous query.
+	 * @since 2.4 */
+	public final static String KEY_SYNC_MAX_QUERY_COST = "sync_max_query_cost";
+	/** Default value of the property {@link #KEY_SYNC_MAX_QUERY_COST}:
+	 * {@value #DEFAULT_SYNC_MAX_QUERY_COST} (i.e. no limit).
+	 * @since 2.4 */
+	public final static double DEFAULT_SYNC_MAX_QUERY_COST = -1;
+	/** Name/Key of the property specifying the maximum number of rows (as
+	 * estimated by the database) of a synchronous query.
+	 * @since 2.4 */
+	public final static String KEY_SYNC_MAX_QUERY_ROWS = "sync_max_query_rows";
+	/** Default value of the property {@link #KEY_SYNC_MAX_QUERY_ROWS}:
+	 * {@value #DEFAULT_SYNC_MAX_QUERY_ROWS} (i.e. no limit).
+	 * @since 2.4 */
+	public final static long DEFAULT_SYNC_MAX_QUERY_ROWS = -1;
+	/** Name/Key of the property specifying what to do with a synchronous query
+	 * whose estimated cost or number of rows is too high.
+	 * @since 2.4 */
+	public final static String KEY_SYNC_COSTLY_QUERY_ACTION = "sync_costly_query_action";
+	/** Value of the property {@link #KEY_SYNC_COSTLY_QUERY_ACTION} rejecting
+	 * too costly queries.
+	 * @since 2.4 */
+	public final static String VALUE_REJECT = "reject";
+	/** Value of the property {@link #KEY_SYNC_COSTLY_QUERY_ACTION} executing
+	 * too costly queries in an asynchronous job.
+	 * @since 2.4 */
+	public final static String VALUE_ASYNC = "async";
+	/** Value of the property {@link #KEY_SYNC_COSTLY_QUERY_ACTION} executing
+	 * too costly queries with a lower fetch size.
+	 * @since 2.4 */
+	public final static String VALUE_FETCH_SIZE = "fetch_size";
+	/** Default value of the property {@link #KEY_SYNC_COSTLY_QUERY_ACTION}:
+	 * {@value #DEFAULT_SYNC_COSTLY_QUERY_ACTION}.
+	 * @since 2.4 */
+	public final static String DEFAULT_SYNC_COSTLY_QUERY_ACTION = VALUE_REJECT;
+	/** Name/Key of the property specifying the fetch size of too costly
+	 * synchronous queries, when {@link #KEY_SYNC_COSTLY_QUERY_ACTION} is
+	 * {@value #VALUE_FETCH_SIZE}.
+	 * @since 2.4 */
+	public final static String KEY_SYNC_COSTLY_FETCH_SIZE = "sync_costly_fetch_size";
+	/** Default value of the property {@link #KEY_SYNC_COSTLY_FETCH_SIZE}:
+	 * {@value #DEFAULT_SYNC_COSTLY_FETCH_SIZE}.
+	 * @since 2.4 */
+	public final static int DEFAULT_SYNC_COSTLY_FETCH_SIZE = 100;
 	/** Name/Key of the property specifying the name of the DataSource into the JDNI. */
 	public final static String KEY_DATASOURCE_JNDI_NAME = "datasource_jndi_name";
 	/** Name/Key of the property specifying the full class name of the JDBC driver.
@@ -216,6 +390,19 @@ public final class TAPConfiguration {
 	public final static String VALUE_DB = "db";
 	/** Name/Key of the property specifying the local file path of the XML file containing the TAP metadata to load. */
 	public final static String KEY_METADATA_FILE = "metadata_file";
+	/** Name/Key of the property specifying the time (in milliseconds) between
+	 * two reloads of the metadata.
+	 * @since 2.4 */
+	public final static String KEY_METADATA_RELOAD_FREQUENCY = "metadata_reload_frequency";
+	/** Default value of the property {@link #KEY_METADATA_RELOAD_FREQUENCY}:
+	 * {@value #DEFAULT_METADATA_RELOAD_FREQUENCY} (i.e. never reloaded).
+	 * @since 2.4 */
+	public final static long DEFAULT_METADATA_RELOAD_FREQUENCY = -1;
+	/** Name/Key of the property giving an SQL query returning a single value
+	 * which changes whenever TAP_SCHEMA changes. If set, metadata are
+	 * reloaded only when this value changes.
+	 * @since 2.4 */
+	public final static String KEY_METADATA_CHANGE_QUERY = "metadata_change_query";
 
 	/* DATALINK KEY */
 	/** Name/Key of the property providing the API for the Datalink capability.
@@ -283,6 +470,15 @@ public final class TAPConfiguration {
 	 * {@value #DEFAULT_UPLOAD_MAX_REQUEST_SIZE}.
 	 * @since 2.3 */
 	public final static int DEFAULT_UPLOAD_MAX_REQUEST_SIZE = 250 * 1024 * 1024;
+	/** Name/Key of the property specifying the maximum number of tables
+	 * (uploaded by the same request) to ingest simultaneously, each with its
+	 * own database connection.
+	 * @since 2.4 */
+	public final static String KEY_UPLOAD_MAX_PARALLEL = "upload_max_parallel";
+	/** Default value of the property {@value #KEY_UPLOAD_MAX_PARALLEL} =
+	 * {@value #DEFAULT_UPLOAD_MAX_PARALLEL} (i.e. one table after the other).
+	 * @since 2.4 */
+	public final static int DEFAULT_UPLOAD_MAX_PARALLEL = 1;
 
 	/* OUTPUT KEYS */
 	/** Name/Key of the property specifying the list of all result output formats to support.
@@ -312,6 +508,10 @@ public final class TAPConfiguration {
 	/** Value of the property {@link #KEY_OUTPUT_FORMATS} which select a Separated-Value format.
 	 * <em>This value must be parameterized with the separator to use.</em> */
 	public final static String VALUE_SV = "sv";
+	/** Value of the property {@link #KEY_OUTPUT_FORMATS} which select the Apache Arrow IPC stream format.
+	 * <em>This value may be parameterized with the number of rows per record batch.</em>
+	 * @since 2.4 */
+	public final static String VALUE_ARROW = "arrow";
 	/** Name/Key of the property specifying the number of result rows that should be returned if none is specified by the user. */
 	public final static String KEY_DEFAULT_OUTPUT_LIMIT = "output_default_limit";
 	/** Name/Key of the property specifying the maximum number of result rows that can be returned by the TAP service. */
@@ -0,0 +1,376 @@
+package tap.data;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import adql.db.DBType;
+import tap.metadata.TAPColumn;
+
+/**
+ * Wrap a {@link TableIterator} so that its rows are read by another thread
+ * while the rows already read are consumed (e.g. formatted and written).
+ *
+ * <p>
+ * 	A <b>reader thread</b> reads the wrapped iterator and puts its rows, by
+ * 	batches, into a bounded queue. This {@link TableIterator} just takes these
+ * 	batches from the queue. Thus, fetching rows from the database and writing
+ * 	them in the output are done simultaneously: a slow client does not stall
+ * 	the database cursor anymore, at least until the queue is full, and a slow
+ * 	fetch does not stall the client while rows are still in the queue.
+ * </p>
+ *
+ * <p>
+ * 	The wrapped iterator is closed by the reader thread as soon as its last
+ * 	row has been read. So, database resources are released before the end of
+ * 	the result writing.
+ * </p>
+ *
+ * <p><i>Note 1:
+ * 	The type of each column (see {@link #getColType()}) is the one returned by
+ * 	the wrapped iterator while reading the same row.
+ * </i></p>
+ *
+ * <p><i>Note 2:
+ * 	If the thread consuming this iterator is interrupted while waiting for
+ * 	rows, {@link #nextRow()} returns <i>false</i> and the interrupted flag of
+ * 	this thread is set again. It is then up to the consumer to check this flag
+ * 	(as all {@link tap.formatter.OutputFormat}s do) in order to stop.
+ * </i></p>
+ *
+ * <p><i>Note 3:
+ * 	{@link #close()} MUST always be called. It stops the reader thread if
+ * 	still running and waits for it so that the wrapped iterator is always
+ * 	closed when {@link #close()} returns.
+ * </i></p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class PipelinedTableIterator implements TableIterator {
+
+	/** Default number of rows in each batch. */
+	public final static int DEFAULT_BATCH_SIZE = 100;
+
+	/** Batch marking the end of the rows (whatever is the reason: end of
+	 * table, error or stop of the reader). */
+	private final static RowBatch END = new RowBatch(0);
+
+	/** The wrapped iterator. <i>Read only by the reader thread.</i> */
+	private final TableIterator innerIt;
+
+	/** Metadata of the wrapped iterator. */
+	private final TAPColumn[] metadata;
+
+	/** Number of rows in each batch. */
+	private final int batchSize;
+
+	/** Batches of rows read by the reader thread and not yet consumed. */
+	private final BlockingQueue<RowBatch> queue;
+
+	/** Thread reading the wrapped iterator. */
+	private final Thread reader;
+
+	/** Error which has stopped the reader thread. <i>NULL if none.</i> */
+	private volatile DataReadException readError = null;
+
+	/** Error raised while closing the wrapped iterator. <i>NULL if none.</i> */
+	private volatile DataReadException closeError = null;
+
+	/** Indicate whether the reader thread must stop. */
+	private volatile boolean stopped = false;
+
+	/** Batch being consumed. */
+	private RowBatch currentBatch = null;
+	/** Index of the current row in {@link #currentBatch}. */
+	private int rowIndex = -1;
+	/** Index of the last read column in the current row. */
+	private int colIndex = 0;
+	/** Indicate whether the last row has been consumed. */
+	private boolean endReached = false;
+
+	/**
+	 * Wrap the given iterator, with batches of {@link #DEFAULT_BATCH_SIZE}
+	 * rows, so that at most the given number of rows are read in advance.
+	 *
+	 * @param it			The iterator to wrap. <i>MUST NOT be NULL.</i>
+	 * @param bufferSize	Maximum number of rows read in advance.
+	 *                  	<i>Rounded to a multiple of the batch size ; at
+	 *                  	least one batch is always read in advance.</i>
+	 *
+	 * @throws DataReadException	If the metadata of the given iterator can
+	 *                          	not be read.
+	 */
+	public PipelinedTableIterator(final TableIterator it, final int bufferSize) throws DataReadException{
+		this(it, Math.max(1, Math.min(DEFAULT_BATCH_SIZE, bufferSize)), Math.max(1, bufferSize / Math.max(1, Math.min(DEFAULT_BATCH_SIZE, bufferSize))));
+	}
+
+	/**
+	 * Wrap the given iterator and start reading it in a separated thread.
+	 *
+	 * @param it			The iterator to wrap. <i>MUST NOT be NULL.</i>
+	 * @param batchSize		Number of rows in each batch. <i>At least 1.</i>
+	 * @param nbBatches		Maximum number of batches read in advance.
+	 *                 		<i>At least 1.</i>
+	 *
+	 * @throws DataReadException	If the metadata of the given iterator can
+	 *                          	not be read.
+	 */
+	public PipelinedTableIterator(final TableIterator it, final int batchSize, final int nbBatches) throws DataReadException{
+		if (it == null)
+			throw new NullPointerException("Missing TableIterator to wrap!");
+		innerIt = it;
+		metadata = it.getMetadata();
+		this.batchSize = Math.max(1, batchSize);
+		queue = new ArrayBlockingQueue<RowBatch>(Math.max(1, nbBatches));
+
+		reader = new Thread(new Runnable(){
+			@Override
+			public void run(){
+				readAll();
+			}
+		}, "PipelinedTableIterator-reader");
+		reader.setDaemon(true);
+		reader.start();
+	}
+
+	/**
+	 * Read all rows of the wrapped iterator and put them, by batches, in the
+	 * queue. The wrapped iterator is closed at the end.
+	 *
+	 * <p><i>Note:
+	 * 	This function is run by the reader thread.
+	 * </i></p>
+	 */
+	private void readAll(){
+		final int nbCols = (metadata == null) ? 0 : metadata.length;
+		RowBatch batch = new RowBatch(batchSize);
+		try{
+			try{
+				while(!stopped && innerIt.nextRow()){
+					batch.add(innerIt, nbCols);
+					if (batch.size == batchSize){
+						queue.put(batch);
+						batch = new RowBatch(batchSize);
+					}
+				}
+			}catch(DataReadException dre){
+				readError = dre;
+			}catch(RuntimeException re){
+				readError = new DataReadException("Unexpected error while reading the rows!", re);
+			}
+			// Deliver the last rows (even those read before an error):
+			if (batch.size > 0 && !stopped)
+				queue.put(batch);
+		}catch(InterruptedException ie){
+			// the consumer does not want more rows => stop silently
+			;
+		}finally{
+			// Release the resources of the wrapped iterator as soon as possible:
+			try{
+				innerIt.close();
+			}catch(DataReadException dre){
+				closeError = dre;
+			}
+			// Signal the end of rows (unless the consumer has stopped):
+			boolean signaled = false;
+			while(!signaled && !stopped){
+				try{
+					queue.put(END);
+					signaled = true;
+				}catch(InterruptedException ie){
+					;
+				}
+			}
+		}
+	}
+
+	@Override
+	public TAPColumn[] getMetadata() throws DataReadException{
+		return metadata;
+	}
+
+	@Override
+	public boolean nextRow() throws DataReadException{
+		if (endReached)
+			return false;
+
+		// Go to the next row of the current batch, if any:
+		if (currentBatch != null && rowIndex + 1 < currentBatch.size){
+			rowIndex++;
+			colIndex = 0;
+			return true;
+		}
+
+		// Otherwise, wait for the next batch:
+		try{
+			currentBatch = queue.take();
+		}catch(InterruptedException ie){
+			Thread.currentThread().interrupt();
+			endReached = true;
+			return false;
+		}
+
+		if (currentBatch == END){
+			endReached = true;
+			/* If the consumer has been interrupted, the read error is probably
+			 * due to the cancellation of the query: */
+			if (readError != null && !Thread.currentThread().isInterrupted())
+				throw readError;
+			return false;
+		}
+
+		rowIndex = 0;
+		colIndex = 0;
+		return true;
+	}
+
+	/**
+	 * Check the row iteration state.
+	 *
+	 * @throws IllegalStateException	If no row has yet been read or if the
+	 *                              	last row has already been read.
+	 */
+	private void checkReadState() throws IllegalStateException{
+		if (currentBatch == null)
+			throw new IllegalStateException("No row has yet been read!");
+		else if (endReached)
+			throw new IllegalStateException("End of the table already reached!");
+	}
+
+	@Override
+	public boolean hasNextCol() throws IllegalStateException, DataReadException{
+		checkReadState();
+		return colIndex < currentBatch.values[rowIndex].length;
+	}
+
+	@Override
+	public Object nextCol() throws NoSuchElementException, IllegalStateException, DataReadException{
+		if (!hasNextCol())
+			throw new NoSuchElementException("No more column to read!");
+		return currentBatch.values[rowIndex][colIndex++];
+	}
+
+	@Override
+	public DBType getColType() throws IllegalStateException, DataReadException{
+		checkReadState();
+		if (colIndex <= 0)
+			throw new IllegalStateException("No column has yet been read!");
+		return currentBatch.types[rowIndex][colIndex - 1];
+	}
+
+	/**
+	 * Stop the reader thread (if still running), wait for it and forget all
+	 * rows not yet consumed.
+	 *
+	 * <p><i>Note:
+	 * 	When this function returns, the wrapped iterator is closed.
+	 * </i></p>
+	 *
+	 * @throws DataReadException	If the wrapped iterator could not be closed.
+	 */
+	@Override
+	public void close() throws DataReadException{
+		stopped = true;
+		endReached = true;
+		reader.interrupt();
+		queue.clear();
+
+		boolean interrupted = false;
+		while(reader.isAlive()){
+			try{
+				reader.join();
+			}catch(InterruptedException ie){
+				interrupted = true;
+			}
+		}
+		queue.clear();
+
+		// Restore the interrupted flag of the current thread, if needed:
+		if (interrupted)
+			Thread.currentThread().interrupt();
+
+		if (closeError != null)
+			throw closeError;
+	}
+
+	/**
+	 * Batch of rows read by the reader thread.
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	private static class RowBatch {
+		/** Values of each row. */
+		final Object[][] values;
+		/** Types of each value of each row. */
+		final DBType[][] types;
+		/** Number of rows in this batch. */
+		int size = 0;
+
+		/**
+		 * Build an empty batch.
+		 *
+		 * @param capacity	Maximum number of rows.
+		 */
+		RowBatch(final int capacity){
+			values = new Object[capacity][];
+			types = new DBType[capacity][];
+		}
+
+		/**
+		 * Copy the current row of the given iterator in this batch.
+		 *
+		 * @param it		Iterator positioned on the row to copy.
+		 * @param nbCols	Expected number of columns.
+		 *
+		 * @throws DataReadException	If the row can not be read.
+		 */
+		void add(final TableIterator it, final int nbCols) throws DataReadException{
+			Object[] rowValues = new Object[nbCols];
+			DBType[] rowTypes = new DBType[rowValues.length];
+			int count = 0;
+			while(it.hasNextCol()){
+				// enlarge the row if there are more columns than declared:
+				if (count == rowValues.length){
+					rowValues = Arrays.copyOf(rowValues, count + 1);
+					rowTypes = Arrays.copyOf(rowTypes, count + 1);
+				}
+				rowValues[count] = it.nextCol();
+				rowTypes[count] = it.getColType();
+				count++;
+			}
+			// shrink the row if there are less columns than declared:
+			if (count < rowValues.length){
+				rowValues = Arrays.copyOf(rowValues, count);
+				rowTypes = Arrays.copyOf(rowTypes, count);
+			}
+			values[size] = rowValues;
+			types[size] = rowTypes;
+			size++;
+		}
+	}
+
+}
@@ -16,7 +16,7 @@ package tap.db;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2012-2018 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
@@ -37,6 +37,8 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import adql.db.DBColumn;
 import adql.db.DBType;
@@ -180,11 +182,19 @@ import uws.service.log.UWSLog.LogLevel;
  * 	{@link ResultSetTableIterator#close()} for more details).
  * </i></p>
  *
+ * <h3>Cost estimation</h3>
+ *
+ * <p>
+ * 	With PostgreSQL, the cost of a query can be estimated before its execution, thanks to the SQL command
+ * 	<code>EXPLAIN</code> (see {@link #estimateCost(ADQLQuery)}). With the other DBMS, no estimation is done
+ * 	by default ; {@link #explain(String)} has then to be overwritten.
+ * </p>
+ *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.3 (10/2018)
+ * @version 2.4 (10/2026)
  * @since 2.0
  */
-public class JDBCConnection implements DBConnection {
+public class JDBCConnection implements DBConnection, QueryCostEstimator {
 
 	/** DBMS name of PostgreSQL used in the database URL. */
 	protected final static String DBMS_POSTGRES = "postgresql";
@@ -767,6 +777,102 @@ public class JDBCConnection implements DBConnection {
 		}
 	}
 
+	/**
+	 * Estimate the cost of the given query with the SQL command
+	 * <code>EXPLAIN</code> (without <code>ANALYZE</code>, so the query is not
+	 * executed).
+	 *
+	 * <p><i>Note:
+	 * 	The query is translated here, and translated again by
+	 * 	{@link #executeQuery(ADQLQuery)}.
+	 * </i></p>
+	 *
+	 * @see #explain(String)
+	 * @see QueryCostEstimator#estimateCost(ADQLQuery)
+	 *
+	 * @since 2.4
+	 */
+	@Override
+	public synchronized QueryCostEstimate estimateCost(final ADQLQuery adqlQuery) throws DBException{
+		String sql = null;
+		try{
+			sql = translator.translate(adqlQuery);
+			QueryCostEstimate estimate = explain(sql);
+			if (estimate != null && logger != null)
+				logger.logDB(LogLevel.INFO, this, "EXPLAIN", "Estimated cost of the SQL query: " + estimate + ".", null);
+			return estimate;
+		}catch(SQLException se){
+			throw new DBException("Unexpected error while estimating the cost of a SQL query: " + se.getMessage(), se, sql);
+		}catch(TranslationException te){
+			throw new DBException("Unexpected error while translating ADQL into SQL: " + te.getMessage(), te);
+		}
+	}
+
+	/**
+	 * Estimate the cost of the given SQL query.
+	 *
+	 * <p>
+	 * 	By default, only PostgreSQL is supported: the first line of its plan
+	 * 	(i.e. the top node) gives the total cost and the number of rows
+	 * 	(see {@link #parsePostgreSQLPlan(String)}). For any other DBMS, NULL is
+	 * 	returned.
+	 * </p>
+	 *
+	 * @param sql	The SQL query to estimate.
+	 *
+	 * @return	The estimated cost,
+	 *        	or NULL if no estimation is possible.
+	 *
+	 * @throws SQLException	If the query can not be explained.
+	 *
+	 * @since 2.4
+	 */
+	protected QueryCostEstimate explain(final String sql) throws SQLException{
+		if (!DBMS_POSTGRES.equalsIgnoreCase(dbms))
+			return null;
+
+		// A dedicated statement, so that the one of the query execution is neither replaced nor left open:
+		Statement explainStmt = null;
+		ResultSet rs = null;
+		try{
+			explainStmt = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+			rs = explainStmt.executeQuery("EXPLAIN " + sql);
+			return rs.next() ? parsePostgreSQLPlan(rs.getString(1)) : null;
+		}finally{
+			close(rs);
+			close(explainStmt);
+		}
+	}
+
+	/** Pattern of the cost and rows estimates in a line of a PostgreSQL plan
+	 * (e.g. <code>Seq Scan on foo  (cost=0.00..155.00 rows=10000 width=4)</code>).
+	 * @since 2.4 */
+	protected final static Pattern POSTGRESQL_PLAN_COST = Pattern.compile("\\(cost=[0-9.]+\\.\\.([0-9.]+) rows=([0-9]+)");
+
+	/**
+	 * Extract the total cost and the number of rows from the given line of
+	 * a PostgreSQL plan.
+	 *
+	 * @param planLine	A line of the output of <code>EXPLAIN</code>.
+	 *
+	 * @return	The estimated cost,
+	 *        	or NULL if the given line does not contain any estimate.
+	 *
+	 * @since 2.4
+	 */
+	protected static QueryCostEstimate parsePostgreSQLPlan(final String planLine){
+		if (planLine == null)
+			return null;
+		Matcher m = POSTGRESQL_PLAN_COST.matcher(planLine);
+		if (!m.find())
+			return null;
+		try{
+			return new QueryCostEstimate(Double.parseDouble(m.group(1)), Long.parseLong(m.group(2)));
+		}catch(NumberFormatException nfe){
+			return null;
+		}
+	}
+
 	/**
 	 * <p>Create a {@link TableIterator} instance which lets reading the given result table.</p>
 	 *
@@ -2314,7 +2420,8 @@ public class JDBCConnection implements DBConnection {
 	 * </i></p>
 	 *
 	 * <p><i>Note:
-	 * 	If the upload schema does not already exist in the database, it will be created.
+	 * 	If the upload schema does not already exist in the database, it will be created
+	 * 	(see {@link #createUploadSchema(TAPTable)}).
 	 * </i></p>
 	 *
 	 * @see tap.db.DBConnection#addUploadedTable(tap.metadata.TAPTable, tap.data.TableIterator)
@@ -2332,6 +2439,9 @@ public class JDBCConnection implements DBConnection {
 		// Check the table is well defined (and particularly the schema is well set with an ADQL name = TAP_UPLOAD):
 		checkUploadedTableDef(tableDef);
 
+		// 1. Create the upload schema, if it does not already exist:
+		createUploadSchema(tableDef);
+
 		try{
 
 			// Start a transaction:
@@ -2341,14 +2451,8 @@ public class JDBCConnection implements DBConnection {
 
 			DatabaseMetaData dbMeta = connection.getMetaData();
 
-			// 1. Create the upload schema, if it does not already exist:
-			if (!isSchemaExisting(tableDef.getDBSchemaName(), dbMeta)){
-				stmt.executeUpdate("CREATE SCHEMA " + translator.getQualifiedSchemaName(tableDef));
-				if (logger != null)
-					logger.logDB(LogLevel.INFO, this, "SCHEMA_CREATED", "Schema \"" + tableDef.getADQLSchemaName() + "\" (in DB: " + translator.getQualifiedSchemaName(tableDef) + ") created.", null);
-			}
 			// 1bis. Ensure the table does not already exist and if it is the case, throw an understandable exception:
-			else if (isTableExisting(tableDef.getDBSchemaName(), tableDef.getDBName(), dbMeta)){
+			if (isTableExisting(tableDef.getDBSchemaName(), tableDef.getDBName(), dbMeta)){
 				DBException de = new DBException("Impossible to create the user uploaded table in the database: " + translator.getTableName(tableDef, supportsSchema) + "! This table already exists.");
 				if (logger != null)
 					logger.logDB(LogLevel.ERROR, this, "ADD_UPLOAD_TABLE", de.getMessage(), de);
@@ -2416,6 +2520,60 @@ public class JDBCConnection implements DBConnection {
 		}
 	}
 
+	/**
+	 * Create the schema of the given uploaded table, if it does not already
+	 * exist.
+	 *
+	 * <p>
+	 * 	The schema is created in its own transaction. Thus, several connections
+	 * 	may upload tables at the same time (see {@link tap.upload.Uploader}):
+	 * 	if the creation fails because another connection has just created the
+	 * 	same schema, this failure is ignored.
+	 * </p>
+	 *
+	 * @param tableDef	Definition of the uploaded table.
+	 *
+	 * @throws DBException	If the schema does not exist and can not be created.
+	 *
+	 * @since 2.4
+	 */
+	protected void createUploadSchema(final TAPTable tableDef) throws DBException{
+		try{
+			if (isSchemaExisting(tableDef.getDBSchemaName(), connection.getMetaData()))
+				return;
+		}catch(SQLException se){
+			throw new DBException("Impossible to check the existence of the upload schema: " + translator.getQualifiedSchemaName(tableDef) + "!", se);
+		}
+
+		try{
+			startTransaction();
+			getStatement();
+			stmt.executeUpdate("CREATE SCHEMA " + translator.getQualifiedSchemaName(tableDef));
+			commit();
+
+			if (logger != null)
+				logger.logDB(LogLevel.INFO, this, "SCHEMA_CREATED", "Schema \"" + tableDef.getADQLSchemaName() + "\" (in DB: " + translator.getQualifiedSchemaName(tableDef) + ") created.", null);
+
+		}catch(Exception ex){
+			rollback();
+			// The schema may have been created in the meantime by another connection:
+			try{
+				if (isSchemaExisting(tableDef.getDBSchemaName(), connection.getMetaData()))
+					return;
+			}catch(SQLException se){
+				;
+			}
+			if (ex instanceof DBException)
+				throw (DBException)ex;
+			if (logger != null)
+				logger.logDB(LogLevel.ERROR, this, "ADD_UPLOAD_TABLE", "Impossible to create the upload schema: " + translator.getQualifiedSchemaName(tableDef) + "!", ex);
+			throw new DBException("Impossible to create the upload schema: " + translator.getQualifiedSchemaName(tableDef) + "!", ex);
+		}finally{
+			closeStatement();
+			endTransaction();
+		}
+	}
+
 	/**
 	 * <p>Fill the table uploaded by the user with the given data.</p>
 	 *
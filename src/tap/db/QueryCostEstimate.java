@@ -0,0 +1,82 @@
+package tap.db;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+/**
+ * Cost of a query, as estimated by the database before its execution.
+ *
+ * <p><i>Note:
+ * 	The cost is expressed in the units of the database (e.g. for PostgreSQL,
+ * 	arbitrary units roughly proportional to the number of disk pages read).
+ * 	So, it can only be compared with costs estimated by the same database.
+ * </i></p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ *
+ * @see QueryCostEstimator
+ */
+public class QueryCostEstimate {
+
+	/** Estimated total cost. <i>Negative if unknown.</i> */
+	protected final double cost;
+
+	/** Estimated number of result rows. <i>Negative if unknown.</i> */
+	protected final long rows;
+
+	/**
+	 * Build a cost estimate.
+	 *
+	 * @param cost	Estimated total cost. <i>Negative if unknown.</i>
+	 * @param rows	Estimated number of result rows. <i>Negative if
+	 *            	unknown.</i>
+	 */
+	public QueryCostEstimate(final double cost, final long rows){
+		this.cost = cost;
+		this.rows = rows;
+	}
+
+	/**
+	 * Get the estimated total cost of the query.
+	 *
+	 * @return	The estimated cost, in the units of the database.
+	 *        	<i>Negative if unknown.</i>
+	 */
+	public final double getCost(){
+		return cost;
+	}
+
+	/**
+	 * Get the estimated number of rows returned by the query.
+	 *
+	 * @return	The estimated number of rows.
+	 *        	<i>Negative if unknown.</i>
+	 */
+	public final long getRows(){
+		return rows;
+	}
+
+	@Override
+	public String toString(){
+		return "cost=" + (cost < 0 ? "?" : String.valueOf(cost)) + ", rows=" + (rows < 0 ? "?" : String.valueOf(rows));
+	}
+
+}
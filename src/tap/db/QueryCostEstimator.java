@@ -0,0 +1,52 @@
+package tap.db;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import adql.query.ADQLQuery;
+
+/**
+ * Optional capability of a {@link DBConnection}: estimate the cost of a query
+ * without executing it (e.g. with the SQL command <code>EXPLAIN</code>).
+ *
+ * <p>
+ * 	If the {@link DBConnection} used by {@link tap.ADQLExecutor} implements
+ * 	this interface, the cost of synchronous queries can be checked before
+ * 	their execution (see {@link tap.QueryCostPolicy}).
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public interface QueryCostEstimator {
+
+	/**
+	 * Estimate the cost of the given query, without executing it.
+	 *
+	 * @param adqlQuery	The query to estimate.
+	 *
+	 * @return	The estimated cost,
+	 *        	or NULL if no estimation is possible with this database.
+	 *
+	 * @throws DBException	If the estimation has failed.
+	 */
+	public QueryCostEstimate estimateCost(final ADQLQuery adqlQuery) throws DBException;
+
+}
@@ -16,7 +16,7 @@ package tap.error;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  * 
- * Copyright 2012-2015 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
@@ -34,6 +34,7 @@ import java.util.Map;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import tap.ServiceBusyException;
 import tap.ServiceConnection;
 import tap.TAPException;
 import tap.formatter.OutputFormat;
@@ -67,6 +68,7 @@ import uws.service.error.ServiceErrorWriter;
  * 	{@link UWSException}s and {@link TAPException}s may precise the HTTP error code to apply,
  * 	which will be used to set the HTTP status of the response. If it is a different kind of exception,
  * 	the HTTP status 500 (INTERNAL SERVER ERROR) will be used.
+ * 	For a {@link ServiceBusyException}, the HTTP header <code>Retry-After</code> is also set.
  * </p>
  * 
  * <p>
@@ -76,7 +78,7 @@ import uws.service.error.ServiceErrorWriter;
  * </p>
  * 
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.0 (04/2015)
+ * @version 2.4 (10/2026)
  */
 public class DefaultTAPErrorWriter implements ServiceErrorWriter {
 
@@ -169,8 +171,10 @@ public class DefaultTAPErrorWriter implements ServiceErrorWriter {
 			ErrorType type = (t instanceof UWSException) ? ((UWSException)t).getUWSErrorType() : ErrorType.FATAL;
 			// get the HTTP error code:
 			int httpErrorCode = (t instanceof UWSException) ? ((UWSException)t).getHttpErrorCode() : ((TAPException)t).getHttpErrorCode();
+			// get the delay before retrying (if any):
+			int retryAfter = (t instanceof ServiceBusyException) ? ((ServiceBusyException)t).getRetryAfter() : -1;
 			// write the VOTable error:
-			written = writeError(t.getMessage(), type, httpErrorCode, response, request, reqID, user, action);
+			written = writeError(t.getMessage(), type, httpErrorCode, retryAfter, response, request, reqID, user, action);
 		}
 		// Otherwise, log it and write a message to the user:
 		else
@@ -181,6 +185,30 @@ public class DefaultTAPErrorWriter implements ServiceErrorWriter {
 
 	@Override
 	public boolean writeError(final String message, final ErrorType type, final int httpErrorCode, final HttpServletResponse response, final HttpServletRequest request, final String reqID, final JobOwner user, final String action){
+		return writeError(message, type, httpErrorCode, -1, response, request, reqID, user, action);
+	}
+
+	/**
+	 * Write the given error message in the given HTTP response, with an
+	 * optional <code>Retry-After</code> HTTP header.
+	 *
+	 * @param message		Error message to write.
+	 * @param type			Type of the error: FATAL or TRANSIENT.
+	 * @param httpErrorCode	HTTP error code (i.e. 404, 500).
+	 * @param retryAfter	Number of seconds after which the client should try again.
+	 *                  	<i>If &le;0, no <code>Retry-After</code> header is set.</i>
+	 * @param response		HTTP response in which the error must be written.
+	 * @param request		HTTP request which has caused the error.
+	 * @param reqID			ID of the request at the origin of the specified error.
+	 * @param user			User which sends the HTTP request.
+	 * @param action		Type/Name of the action which has caused the error.
+	 *
+	 * @return	<i>true</i> if the given error message has been successfully written in the given {@link HttpServletResponse},
+	 *        	<i>false</i> otherwise.
+	 *
+	 * @since 2.4
+	 */
+	protected boolean writeError(final String message, final ErrorType type, final int httpErrorCode, final int retryAfter, final HttpServletResponse response, final HttpServletRequest request, final String reqID, final JobOwner user, final String action){
 		if (message == null || response == null)
 			return true;
 
@@ -191,6 +219,10 @@ public class DefaultTAPErrorWriter implements ServiceErrorWriter {
 			// Set the HTTP status:
 			response.setStatus((httpErrorCode <= 0) ? 500 : httpErrorCode);
 
+			// Suggest a delay before retrying (if any):
+			if (retryAfter > 0)
+				response.setHeader("Retry-After", String.valueOf(retryAfter));
+
 			// Set the MIME type of the answer (XML for a VOTable document):
 			response.setContentType("application/xml");
 
@@ -0,0 +1,984 @@
+package tap.formatter;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import tap.ServiceConnection;
+import tap.TAPException;
+import tap.TAPExecutionReport;
+import tap.data.DataReadException;
+import tap.data.TableIterator;
+import tap.metadata.TAPColumn;
+import tap.metadata.VotType;
+import adql.db.DBColumn;
+
+/**
+ * <p>Format any given query (table) result into the
+ * <a href="https://arrow.apache.org/docs/format/Columnar.html#ipc-streaming-format">Apache Arrow IPC streaming format</a>.</p>
+ *
+ * <p>
+ * 	The stream starts with a <i>Schema</i> message, followed by one
+ * 	<i>RecordBatch</i> message every {@link #getBatchSize()} rows, and ends
+ * 	with the end-of-stream marker. The rows are never all kept in memory:
+ * 	only one batch at a time.
+ * </p>
+ *
+ * <p>The datatype of each column is mapped as follows:</p>
+ * <ul>
+ * 	<li>SMALLINT, INTEGER and BIGINT into signed <i>Int</i> of 16, 32 and 64 bits,</li>
+ * 	<li>REAL and DOUBLE into <i>FloatingPoint</i> of single and double precision,</li>
+ * 	<li>BINARY, VARBINARY and BLOB into <i>Binary</i>,</li>
+ * 	<li>any other datatype (characters, timestamps, geometries, unknown) into <i>Utf8</i>.</li>
+ * </ul>
+ * <p>
+ * 	All columns are nullable. The description, unit, UCD, UType and xtype of
+ * 	each column are set in the custom metadata of its <i>Field</i> ; the query
+ * 	status, the provider and the ADQL query in the custom metadata of the
+ * 	<i>Schema</i>.
+ * </p>
+ *
+ * <p>
+ * 	If the result has been truncated because of MAXREC, a last empty
+ * 	<i>RecordBatch</i> is written before the end of the stream, with the
+ * 	custom metadata <code>QUERY_STATUS=OVERFLOW</code> on its message.
+ * </p>
+ *
+ * <p><i>Note:
+ * 	The Arrow metadata (FlatBuffers) are directly encoded by this class ;
+ * 	no Arrow library is needed.
+ * </i></p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class ArrowFormat implements OutputFormat {
+
+	/** Default number of rows per record batch. */
+	public final static int DEFAULT_BATCH_SIZE = 10000;
+
+	/** Arrow metadata version (V5). */
+	protected final static short METADATA_VERSION = 4;
+
+	/** Message header type: Schema. */
+	protected final static byte HEADER_SCHEMA = 1;
+	/** Message header type: RecordBatch. */
+	protected final static byte HEADER_RECORD_BATCH = 3;
+
+	/** Arrow type: Int. */
+	protected final static byte TYPE_INT = 2;
+	/** Arrow type: FloatingPoint. */
+	protected final static byte TYPE_FLOATING_POINT = 3;
+	/** Arrow type: Binary. */
+	protected final static byte TYPE_BINARY = 4;
+	/** Arrow type: Utf8. */
+	protected final static byte TYPE_UTF8 = 5;
+
+	/** The {@link ServiceConnection} to use (for the log and to have some information about the service (particularly: name, description). */
+	protected final ServiceConnection service;
+
+	/** Maximum number of rows of a record batch. */
+	protected final int batchSize;
+
+	/**
+	 * Build an Arrow formatter writing record batches of {@link #DEFAULT_BATCH_SIZE} rows.
+	 *
+	 * @param service	Description of the TAP service.
+	 *
+	 * @throws NullPointerException	If the given service connection is <code>null</code>.
+	 */
+	public ArrowFormat(final ServiceConnection service) throws NullPointerException{
+		this(service, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * Build an Arrow formatter.
+	 *
+	 * @param service	Description of the TAP service.
+	 * @param batchSize	Maximum number of rows of a record batch.
+	 *                 	<i>If negative or null, {@link #DEFAULT_BATCH_SIZE} is used.</i>
+	 *
+	 * @throws NullPointerException	If the given service connection is <code>null</code>.
+	 */
+	public ArrowFormat(final ServiceConnection service, final int batchSize) throws NullPointerException{
+		if (service == null)
+			throw new NullPointerException("The given service connection is NULL!");
+
+		this.service = service;
+		this.batchSize = (batchSize <= 0) ? DEFAULT_BATCH_SIZE : batchSize;
+	}
+
+	/**
+	 * Get the maximum number of rows of a record batch.
+	 *
+	 * @return	The batch size.
+	 */
+	public final int getBatchSize(){
+		return batchSize;
+	}
+
+	@Override
+	public String getMimeType(){
+		return "application/vnd.apache.arrow.stream";
+	}
+
+	@Override
+	public String getShortMimeType(){
+		return "arrow";
+	}
+
+	@Override
+	public String getDescription(){
+		return null;
+	}
+
+	@Override
+	public String getFileExtension(){
+		return "arrows";
+	}
+
+	@Override
+	public void writeResult(final TableIterator result, final OutputStream output, final TAPExecutionReport execReport, final Thread thread) throws TAPException, IOException, InterruptedException{
+		final OutputStream out = new BufferedOutputStream(output);
+		final FlatBufferBuilder fbb = new FlatBufferBuilder();
+
+		// Write the schema:
+		TAPColumn[] columns = getColumns(result, execReport);
+		writeMessage(out, fbb.finish(buildSchemaMessage(columns, execReport)), null);
+		out.flush();
+
+		// Write the rows, batch after batch:
+		ColumnBuilder[] builders = new ColumnBuilder[columns.length];
+		for(int i = 0; i < columns.length; i++)
+			builders[i] = createBuilder(columns[i]);
+
+		final long maxRec = execReport.parameters.getMaxRec();
+		boolean overflow = false;
+		int nbBatchRows = 0;
+		execReport.nbRows = 0;
+		while(result.nextRow()){
+			// Stop right now the formatting if the job has been aborted/canceled/interrupted:
+			if (thread.isInterrupted())
+				throw new InterruptedException();
+
+			// Deal with OVERFLOW, if needed:
+			if (maxRec > 0 && execReport.nbRows >= maxRec){
+				overflow = true;
+				break;
+			}
+
+			int indCol = 0;
+			while(result.hasNextCol()){
+				Object value = result.nextCol();
+				if (indCol < builders.length)
+					builders[indCol++].append(value);
+			}
+			// columns missing in this row are NULL:
+			while(indCol < builders.length)
+				builders[indCol++].append(null);
+
+			execReport.nbRows++;
+			if (++nbBatchRows == batchSize){
+				writeBatch(out, fbb, builders, nbBatchRows, null);
+				nbBatchRows = 0;
+			}
+		}
+		if (nbBatchRows > 0)
+			writeBatch(out, fbb, builders, nbBatchRows, null);
+
+		// Report the OVERFLOW in an empty batch:
+		if (overflow)
+			writeBatch(out, fbb, builders, 0, new String[]{ "QUERY_STATUS", "OVERFLOW" });
+
+		// End of stream:
+		writeInt(out, 0xFFFFFFFF);
+		writeInt(out, 0);
+		out.flush();
+	}
+
+	/**
+	 * Get the metadata of all result columns.
+	 *
+	 * @param result		Result to write later (but it contains also metadata that was extracted from the result itself).
+	 * @param execReport	Execution report (which contains the metadata extracted/guessed from the ADQL query).
+	 *
+	 * @return	The metadata of all columns.
+	 *
+	 * @throws DataReadException	If the metadata of the result can not be read.
+	 */
+	protected TAPColumn[] getColumns(final TableIterator result, final TAPExecutionReport execReport) throws DataReadException{
+		DBColumn[] columnsFromQuery = execReport.resultingColumns;
+		TAPColumn[] columnsFromResult = result.getMetadata();
+		if (columnsFromQuery == null)
+			return new TAPColumn[0];
+
+		TAPColumn[] columns = new TAPColumn[columnsFromQuery.length];
+		for(int i = 0; i < columns.length; i++){
+			TAPColumn colFromResult = (columnsFromResult != null && i < columnsFromResult.length) ? columnsFromResult[i] : null;
+			columns[i] = VOTableFormat.getValidColMeta(columnsFromQuery[i], colFromResult);
+			columnsFromQuery[i] = columns[i];
+		}
+		return columns;
+	}
+
+	/**
+	 * Create the builder of the Arrow array of the given column.
+	 *
+	 * @param column	Metadata of the column.
+	 *
+	 * @return	The corresponding column builder.
+	 */
+	protected ColumnBuilder createBuilder(final TAPColumn column){
+		switch(column.getDatatype().type){
+			case SMALLINT:
+				return new FixedWidthBuilder(TYPE_INT, 2);
+			case INTEGER:
+				return new FixedWidthBuilder(TYPE_INT, 4);
+			case BIGINT:
+				return new FixedWidthBuilder(TYPE_INT, 8);
+			case REAL:
+				return new FixedWidthBuilder(TYPE_FLOATING_POINT, 4);
+			case DOUBLE:
+				return new FixedWidthBuilder(TYPE_FLOATING_POINT, 8);
+			case BINARY:
+			case VARBINARY:
+			case BLOB:
+				return new VariableWidthBuilder(TYPE_BINARY);
+			default:
+				return new VariableWidthBuilder(TYPE_UTF8);
+		}
+	}
+
+	/**
+	 * Build the message containing the schema of the result.
+	 *
+	 * @param columns		Metadata of all columns.
+	 * @param execReport	Execution report.
+	 *
+	 * @return	The Schema message.
+	 */
+	protected FBTable buildSchemaMessage(final TAPColumn[] columns, final TAPExecutionReport execReport){
+		// Fields:
+		FBTable[] fields = new FBTable[columns.length];
+		for(int i = 0; i < columns.length; i++){
+			ColumnBuilder builder = createBuilder(columns[i]);
+			FBTable type = new FBTable();
+			if (builder.type == TYPE_INT){
+				type.add(0, 4, builder.width * 8);	// bitWidth
+				type.add(1, 1, 1);					// is_signed
+			}else if (builder.type == TYPE_FLOATING_POINT)
+				type.add(0, 2, (builder.width == 4) ? 1 : 2);	// precision (SINGLE or DOUBLE)
+
+			VotType votType = new VotType(columns[i].getDatatype());
+			fields[i] = new FBTable();
+			fields[i].add(0, columns[i].getADQLName());
+			fields[i].add(1, 1, 1);	// nullable
+			fields[i].add(2, 1, builder.type);
+			fields[i].add(3, type);
+			fields[i].add(5, new FBTable[0]);	// children
+			fields[i].add(6, buildMetadata(new String[]{ "description", columns[i].getDescription(), "unit", columns[i].getUnit(), "ucd", columns[i].getUcd(), "utype", columns[i].getUtype(), "xtype", votType.xtype }));
+		}
+
+		// Schema:
+		FBTable schema = new FBTable();
+		schema.add(1, fields);
+		schema.add(2, buildMetadata(new String[]{ "QUERY_STATUS", "OK", "PROVIDER", service.getProviderName(), "PROVIDER_DESCRIPTION", service.getProviderDescription(), "QUERY", (execReport.parameters == null) ? null : execReport.parameters.getQuery(), "QUERY_AFTER_AUTO_FIX", execReport.fixedQuery }));
+
+		return buildMessage(HEADER_SCHEMA, schema, 0, null);
+	}
+
+	/**
+	 * Build a message.
+	 *
+	 * @param headerType	Type of the message header.
+	 * @param header		The message header.
+	 * @param bodyLength	Length (in bytes) of the message body.
+	 * @param metadata		Custom metadata of the message, as key-value pairs.
+	 *                		<i>May be NULL.</i>
+	 *
+	 * @return	The message.
+	 */
+	protected FBTable buildMessage(final byte headerType, final FBTable header, final long bodyLength, final String[] metadata){
+		FBTable message = new FBTable();
+		message.add(0, 2, METADATA_VERSION);
+		message.add(1, 1, headerType);
+		message.add(2, header);
+		message.add(3, 8, bodyLength);
+		if (metadata != null)
+			message.add(4, buildMetadata(metadata));
+		return message;
+	}
+
+	/**
+	 * Build a list of KeyValue tables.
+	 *
+	 * @param keyValues	Keys and values, one after the other.
+	 *                 	<i>Pairs with an empty or NULL value are ignored.</i>
+	 *
+	 * @return	The KeyValue tables.
+	 */
+	protected static FBTable[] buildMetadata(final String[] keyValues){
+		List<FBTable> list = new ArrayList<FBTable>(keyValues.length / 2);
+		for(int i = 0; i + 1 < keyValues.length; i += 2){
+			if (keyValues[i + 1] != null && keyValues[i + 1].trim().length() > 0){
+				FBTable keyValue = new FBTable();
+				keyValue.add(0, keyValues[i]);
+				keyValue.add(1, keyValues[i + 1]);
+				list.add(keyValue);
+			}
+		}
+		return list.toArray(new FBTable[list.size()]);
+	}
+
+	/**
+	 * Write a record batch with all the rows appended in the given column builders,
+	 * and then reset these builders.
+	 *
+	 * @param out		Stream in which the batch must be written.
+	 * @param fbb		Builder to use for the message metadata.
+	 * @param builders	Builders of all columns.
+	 * @param nbRows	Number of rows in the batch.
+	 * @param metadata	Custom metadata of the message, as key-value pairs.
+	 *                	<i>May be NULL.</i>
+	 *
+	 * @throws IOException	If an error occurs while writing the batch.
+	 */
+	protected void writeBatch(final OutputStream out, final FlatBufferBuilder fbb, final ColumnBuilder[] builders, final int nbRows, final String[] metadata) throws IOException{
+		// List all buffers:
+		List<DataBuffer> buffers = new ArrayList<DataBuffer>(builders.length * 3);
+		FBStructs nodes = new FBStructs(builders.length, 16);
+		for(ColumnBuilder builder : builders){
+			nodes.putLong(builder.nbRows);
+			nodes.putLong(builder.nullCount);
+			builder.listBuffers(buffers);
+		}
+
+		// Compute their position in the body:
+		FBStructs bufferDescs = new FBStructs(buffers.size(), 16);
+		long bodyLength = 0;
+		for(DataBuffer b : buffers){
+			bufferDescs.putLong(bodyLength);
+			bufferDescs.putLong(b.size);
+			bodyLength += pad8(b.size);
+		}
+
+		// Build the message:
+		FBTable batch = new FBTable();
+		batch.add(0, 8, nbRows);
+		batch.add(1, nodes);
+		batch.add(2, bufferDescs);
+
+		// Write the message and its body:
+		writeMessage(out, fbb.finish(buildMessage(HEADER_RECORD_BATCH, batch, bodyLength, metadata)), buffers);
+		out.flush();
+
+		for(ColumnBuilder builder : builders)
+			builder.reset();
+	}
+
+	/**
+	 * Write an encapsulated message.
+	 *
+	 * @param out		Stream in which the message must be written.
+	 * @param metadata	The FlatBuffer of the message.
+	 * @param body		Buffers of the message body.
+	 *            		<i>May be NULL.</i>
+	 *
+	 * @throws IOException	If an error occurs while writing the message.
+	 */
+	protected static void writeMessage(final OutputStream out, final DataBuffer metadata, final List<DataBuffer> body) throws IOException{
+		// continuation marker + metadata size:
+		writeInt(out, 0xFFFFFFFF);
+		writeInt(out, (int)pad8(metadata.size));
+		// metadata:
+		out.write(metadata.data, 0, metadata.size);
+		writePadding(out, metadata.size);
+		// body:
+		if (body != null){
+			for(DataBuffer b : body){
+				out.write(b.data, 0, b.size);
+				writePadding(out, b.size);
+			}
+		}
+	}
+
+	/**
+	 * Write a little-endian 32-bit integer.
+	 *
+	 * @param out	Stream in which the integer must be written.
+	 * @param value	The integer to write.
+	 *
+	 * @throws IOException	If an error occurs while writing.
+	 */
+	protected static void writeInt(final OutputStream out, final int value) throws IOException{
+		out.write(value);
+		out.write(value >>> 8);
+		out.write(value >>> 16);
+		out.write(value >>> 24);
+	}
+
+	/**
+	 * Write the zeros needed to align on 8 bytes something of the given size.
+	 *
+	 * @param out	Stream in which the padding must be written.
+	 * @param size	Size of the thing to pad.
+	 *
+	 * @throws IOException	If an error occurs while writing.
+	 */
+	private static void writePadding(final OutputStream out, final long size) throws IOException{
+		for(long i = size; i < pad8(size); i++)
+			out.write(0);
+	}
+
+	/**
+	 * Round the given size up to the next multiple of 8.
+	 *
+	 * @param size	A size.
+	 *
+	 * @return	The padded size.
+	 */
+	private static long pad8(final long size){
+		return (size + 7) & ~7L;
+	}
+
+	/* ********************* */
+	/* ARROW COLUMN BUILDERS */
+	/* ********************* */
+
+	/**
+	 * Growable little-endian byte buffer.
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	protected static class DataBuffer {
+		/** Content of this buffer. <i>Only the {@link #size} first bytes are set.</i> */
+		protected byte[] data;
+		/** Number of bytes set in this buffer. */
+		protected int size = 0;
+
+		/**
+		 * Build an empty buffer.
+		 *
+		 * @param capacity	Initial capacity.
+		 */
+		public DataBuffer(final int capacity){
+			data = new byte[capacity];
+		}
+
+		/**
+		 * Ensure that the given number of bytes can be appended.
+		 *
+		 * @param length	Number of bytes to append.
+		 */
+		protected final void ensure(final int length){
+			if (size + length > data.length)
+				data = Arrays.copyOf(data, Math.max(size + length, Math.max(8, data.length * 2)));
+		}
+
+		/** Empty this buffer. <i>The allocated memory is kept.</i> */
+		public final void reset(){
+			size = 0;
+		}
+
+		/**
+		 * Append zeros until the size of this buffer is a multiple of the given alignment.
+		 *
+		 * @param alignment	The alignment (a power of 2).
+		 */
+		public final void align(final int alignment){
+			int newSize = (size + alignment - 1) & ~(alignment - 1);
+			ensure(newSize - size);
+			Arrays.fill(data, size, newSize, (byte)0);
+			size = newSize;
+		}
+
+		/**
+		 * Append a value of 1, 2, 4 or 8 bytes.
+		 *
+		 * @param width	Number of bytes.
+		 * @param value	Value to append.
+		 */
+		public final void put(final int width, final long value){
+			ensure(width);
+			set(size, width, value);
+			size += width;
+		}
+
+		/**
+		 * Set a value of 1, 2, 4 or 8 bytes at the given position.
+		 *
+		 * @param pos	Position of the value.
+		 * @param width	Number of bytes.
+		 * @param value	Value to set.
+		 */
+		public final void set(final int pos, final int width, final long value){
+			for(int i = 0; i < width; i++)
+				data[pos + i] = (byte)(value >>> (8 * i));
+		}
+
+		/**
+		 * Append a 64-bit integer.
+		 *
+		 * @param value	Value to append.
+		 */
+		public final void putLong(final long value){
+			put(8, value);
+		}
+
+		/**
+		 * Append the given bytes.
+		 *
+		 * @param bytes	Bytes to append.
+		 */
+		public final void putBytes(final byte[] bytes){
+			ensure(bytes.length);
+			System.arraycopy(bytes, 0, data, size, bytes.length);
+			size += bytes.length;
+		}
+
+		/**
+		 * Append the given string encoded in UTF-8.
+		 *
+		 * @param str	String to append.
+		 */
+		public final void putUTF8(final String str){
+			final int length = str.length();
+			ensure(length * 3);
+			for(int i = 0; i < length; i++){
+				char c = str.charAt(i);
+				if (c < 0x80)
+					data[size++] = (byte)c;
+				else if (c < 0x800){
+					data[size++] = (byte)(0xC0 | (c >> 6));
+					data[size++] = (byte)(0x80 | (c & 0x3F));
+				}else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(str.charAt(i + 1))){
+					int cp = Character.toCodePoint(c, str.charAt(++i));
+					data[size++] = (byte)(0xF0 | (cp >> 18));
+					data[size++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+					data[size++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+					data[size++] = (byte)(0x80 | (cp & 0x3F));
+				}else if (Character.isSurrogate(c))
+					data[size++] = '?';
+				else{
+					data[size++] = (byte)(0xE0 | (c >> 12));
+					data[size++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+					data[size++] = (byte)(0x80 | (c & 0x3F));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Builder of the Arrow array of one column. It is reused from one record
+	 * batch to the next one.
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	protected static abstract class ColumnBuilder {
+		/** Arrow type of the column (one of the <code>TYPE_*</code> constants). */
+		protected final byte type;
+		/** Width (in bytes) of a value, or 0 if variable. */
+		protected final int width;
+		/** Validity bitmap (least significant bit first). */
+		protected final DataBuffer validity = new DataBuffer(64);
+		/** Number of appended rows. */
+		protected int nbRows = 0;
+		/** Number of appended NULL values. */
+		protected int nullCount = 0;
+
+		/**
+		 * Build a column builder.
+		 *
+		 * @param type	Arrow type of the column.
+		 * @param width	Width (in bytes) of a value, or 0 if variable.
+		 */
+		protected ColumnBuilder(final byte type, final int width){
+			this.type = type;
+			this.width = width;
+		}
+
+		/**
+		 * Append a value.
+		 *
+		 * @param value	The value to append. <i>May be NULL.</i>
+		 */
+		public final void append(final Object value){
+			if ((nbRows & 7) == 0)
+				validity.put(1, 0);
+			if (appendValue(value))
+				validity.data[nbRows >> 3] |= (byte)(1 << (nbRows & 7));
+			else
+				nullCount++;
+			nbRows++;
+		}
+
+		/**
+		 * Append a value in the data buffer(s).
+		 *
+		 * @param value	The value to append. <i>May be NULL.</i>
+		 *
+		 * @return	<i>false</i> if a NULL value has been appended,
+		 *        	<i>true</i> otherwise.
+		 */
+		protected abstract boolean appendValue(final Object value);
+
+		/**
+		 * List the buffers of this column, in the Arrow order.
+		 *
+		 * @param buffers	List in which the buffers must be appended.
+		 */
+		protected void listBuffers(final List<DataBuffer> buffers){
+			// the validity bitmap may be omitted if there is no NULL:
+			buffers.add((nullCount == 0) ? new DataBuffer(0) : validity);
+		}
+
+		/** Remove all appended values. */
+		protected void reset(){
+			validity.reset();
+			nbRows = 0;
+			nullCount = 0;
+		}
+	}
+
+	/**
+	 * Builder of an array of integers or floating points.
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	protected static class FixedWidthBuilder extends ColumnBuilder {
+		/** Values. */
+		protected final DataBuffer values = new DataBuffer(1024);
+
+		/**
+		 * Build a fixed-width column builder.
+		 *
+		 * @param type	{@link ArrowFormat#TYPE_INT} or {@link ArrowFormat#TYPE_FLOATING_POINT}.
+		 * @param width	Width (in bytes) of a value.
+		 */
+		public FixedWidthBuilder(final byte type, final int width){
+			super(type, width);
+		}
+
+		@Override
+		protected boolean appendValue(final Object value){
+			if (!(value instanceof Number)){
+				values.put(width, 0);
+				return false;
+			}else if (type == TYPE_INT)
+				values.put(width, ((Number)value).longValue());
+			else if (width == 4)
+				values.put(4, Float.floatToRawIntBits(((Number)value).floatValue()));
+			else
+				values.put(8, Double.doubleToRawLongBits(((Number)value).doubleValue()));
+			return true;
+		}
+
+		@Override
+		protected void listBuffers(final List<DataBuffer> buffers){
+			super.listBuffers(buffers);
+			buffers.add(values);
+		}
+
+		@Override
+		protected void reset(){
+			super.reset();
+			values.reset();
+		}
+	}
+
+	/**
+	 * Builder of an array of strings or of binary values.
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	protected static class VariableWidthBuilder extends ColumnBuilder {
+		/** Offsets of the values in {@link #values}. */
+		protected final DataBuffer offsets = new DataBuffer(1024);
+		/** Concatenated values. */
+		protected final DataBuffer values = new DataBuffer(4096);
+
+		/**
+		 * Build a variable-width column builder.
+		 *
+		 * @param type	{@link ArrowFormat#TYPE_UTF8} or {@link ArrowFormat#TYPE_BINARY}.
+		 */
+		public VariableWidthBuilder(final byte type){
+			super(type, 0);
+			offsets.put(4, 0);
+		}
+
+		@Override
+		protected boolean appendValue(final Object value){
+			if (value != null){
+				if (type == TYPE_BINARY && value instanceof byte[])
+					values.putBytes((byte[])value);
+				else
+					values.putUTF8(value.toString());
+			}
+			offsets.put(4, values.size);
+			return (value != null);
+		}
+
+		@Override
+		protected void listBuffers(final List<DataBuffer> buffers){
+			super.listBuffers(buffers);
+			buffers.add(offsets);
+			buffers.add(values);
+		}
+
+		@Override
+		protected void reset(){
+			super.reset();
+			values.reset();
+			offsets.reset();
+			offsets.put(4, 0);
+		}
+	}
+
+	/* ************************* */
+	/* FLATBUFFERS SERIALIZATION */
+	/* ************************* */
+
+	/**
+	 * A FlatBuffers table whose fields are scalars or references to strings,
+	 * tables, vectors of tables or vectors of structs.
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	protected static class FBTable {
+		/** ID of each field. */
+		protected final List<Integer> ids = new ArrayList<Integer>(8);
+		/** Size (in bytes) of each field. <i>4 for references.</i> */
+		protected final List<Integer> sizes = new ArrayList<Integer>(8);
+		/** Value of each field: a {@link Long} for scalars, or the referenced object. */
+		protected final List<Object> values = new ArrayList<Object>(8);
+
+		/**
+		 * Add a scalar field.
+		 *
+		 * @param id	ID of the field.
+		 * @param size	Size (in bytes) of the field: 1, 2, 4 or 8.
+		 * @param value	Value of the field.
+		 */
+		public void add(final int id, final int size, final long value){
+			ids.add(id);
+			sizes.add(size);
+			values.add(Long.valueOf(value));
+		}
+
+		/**
+		 * Add a reference field.
+		 *
+		 * @param id	ID of the field.
+		 * @param ref	A {@link String}, an {@link FBTable}, an {@link FBTable} array
+		 *           	or an {@link FBStructs}. <i>Not added if NULL.</i>
+		 */
+		public void add(final int id, final Object ref){
+			if (ref != null){
+				ids.add(id);
+				sizes.add(4);
+				values.add(ref);
+			}
+		}
+	}
+
+	/**
+	 * A vector of FlatBuffers structs whose fields are 64-bit integers.
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	protected static class FBStructs extends DataBuffer {
+		/** Number of structs. */
+		protected final int length;
+
+		/**
+		 * Build an empty vector of structs.
+		 *
+		 * @param length		Number of structs.
+		 * @param structSize	Size (in bytes) of one struct.
+		 */
+		public FBStructs(final int length, final int structSize){
+			super(length * structSize);
+			this.length = length;
+		}
+	}
+
+	/**
+	 * Serializer of FlatBuffers.
+	 *
+	 * <p>
+	 * 	Contrary to the official implementations, the buffer is written from
+	 * 	its start: each object is written before the objects it references,
+	 * 	and then the reference slots are patched.
+	 * </p>
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	protected static class FlatBufferBuilder {
+		/** The FlatBuffer being built. */
+		protected final DataBuffer buffer = new DataBuffer(1024);
+
+		/**
+		 * Serialize the given root table.
+		 *
+		 * @param root	The root table.
+		 *
+		 * @return	The FlatBuffer. <i>It is reused by the next call of this function.</i>
+		 */
+		public DataBuffer finish(final FBTable root){
+			buffer.reset();
+			buffer.put(4, 0);
+			buffer.set(0, 4, write(root));
+			return buffer;
+		}
+
+		/**
+		 * Write the given object.
+		 *
+		 * @param obj	A {@link String}, an {@link FBTable}, an {@link FBTable} array
+		 *           	or an {@link FBStructs}.
+		 *
+		 * @return	Position of the written object.
+		 */
+		protected int write(final Object obj){
+			if (obj instanceof FBTable)
+				return writeTable((FBTable)obj);
+			else if (obj instanceof FBStructs){
+				FBStructs structs = (FBStructs)obj;
+				// the structs must be aligned on 8 bytes, after the length:
+				buffer.align(4);
+				if (buffer.size % 8 == 0)
+					buffer.put(4, 0);
+				int pos = buffer.size;
+				buffer.put(4, structs.length);
+				buffer.ensure(structs.size);
+				System.arraycopy(structs.data, 0, buffer.data, buffer.size, structs.size);
+				buffer.size += structs.size;
+				return pos;
+			}else if (obj instanceof FBTable[]){
+				FBTable[] tables = (FBTable[])obj;
+				buffer.align(4);
+				int pos = buffer.size;
+				buffer.put(4, tables.length);
+				for(int i = 0; i < tables.length; i++)
+					buffer.put(4, 0);
+				for(int i = 0; i < tables.length; i++){
+					int slot = pos + 4 + 4 * i;
+					buffer.set(slot, 4, write(tables[i]) - slot);
+				}
+				return pos;
+			}else{
+				buffer.align(4);
+				int pos = buffer.size;
+				buffer.put(4, 0);
+				buffer.putUTF8(obj.toString());
+				buffer.set(pos, 4, buffer.size - pos - 4);
+				buffer.put(1, 0);
+				return pos;
+			}
+		}
+
+		/**
+		 * Write the given table, preceded by its vtable.
+		 *
+		 * @param table	The table to write.
+		 *
+		 * @return	Position of the written table.
+		 */
+		protected int writeTable(final FBTable table){
+			final int nbFields = table.ids.size();
+
+			// Lay out the fields (the largest first, to avoid padding):
+			int[] fieldPos = new int[nbFields];
+			int maxId = -1, tableSize = 4, alignment = 4;
+			for(int size = 8; size >= 1; size /= 2){
+				for(int i = 0; i < nbFields; i++){
+					if (table.sizes.get(i) == size){
+						fieldPos[i] = tableSize;
+						tableSize += size;
+						if (size == 8){
+							// the 8-byte fields start after the soffset:
+							if (fieldPos[i] == 4){
+								fieldPos[i] = 8;
+								tableSize += 4;
+							}
+							alignment = 8;
+						}
+					}
+				}
+			}
+			for(int i = 0; i < nbFields; i++)
+				maxId = Math.max(maxId, table.ids.get(i));
+
+			// Write the vtable:
+			buffer.align(2);
+			final int vtablePos = buffer.size;
+			buffer.put(2, 4 + 2 * (maxId + 1));
+			buffer.put(2, tableSize);
+			for(int id = 0; id <= maxId; id++)
+				buffer.put(2, 0);
+			for(int i = 0; i < nbFields; i++)
+				buffer.set(vtablePos + 4 + 2 * table.ids.get(i), 2, fieldPos[i]);
+
+			// Write the table:
+			buffer.align(alignment);
+			final int tablePos = buffer.size;
+			buffer.put(4, tablePos - vtablePos);
+			buffer.ensure(tableSize - 4);
+			Arrays.fill(buffer.data, buffer.size, tablePos + tableSize, (byte)0);
+			buffer.size = tablePos + tableSize;
+			for(int i = 0; i < nbFields; i++){
+				if (table.values.get(i) instanceof Long)
+					buffer.set(tablePos + fieldPos[i], table.sizes.get(i), (Long)table.values.get(i));
+			}
+
+			// Write the referenced objects:
+			for(int i = 0; i < nbFields; i++){
+				if (!(table.values.get(i) instanceof Long)){
+					int slot = tablePos + fieldPos[i];
+					buffer.set(slot, 4, write(table.values.get(i)) - slot);
+				}
+			}
+
+			return tablePos;
+		}
+	}
+
+}
@@ -16,17 +16,12 @@ package tap.formatter;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  * 
- * Copyright 2012-2015 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-
-import org.json.JSONException;
-import org.json.JSONWriter;
 
 import tap.ServiceConnection;
 import tap.TAPException;
@@ -39,13 +34,34 @@ import adql.db.DBType;
 import adql.db.DBType.DBDatatype;
 
 /**
- * Format any given query (table) result into JSON.
+ * <p>Format any given query (table) result into JSON.</p>
+ * 
+ * <p>
+ * 	The result is directly encoded in UTF-8 by a {@link JSONOutputBuffer},
+ * 	with a fast path for the values of numeric and character columns.
+ * </p>
  * 
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.1 (08/2015)
+ * @version 2.4 (10/2026)
  */
 public class JSONFormat implements OutputFormat {
 
+	/** Values of a column are written whatever is their type.
+	 * @since 2.4 */
+	protected static final byte KIND_ANY = 0;
+	/** Values of a column are expected to be integers.
+	 * @since 2.4 */
+	protected static final byte KIND_INTEGER = 1;
+	/** Values of a column are expected to be single precision floating points.
+	 * @since 2.4 */
+	protected static final byte KIND_FLOAT = 2;
+	/** Values of a column are expected to be double precision floating points.
+	 * @since 2.4 */
+	protected static final byte KIND_DOUBLE = 3;
+	/** Values of a column are expected to be strings.
+	 * @since 2.4 */
+	protected static final byte KIND_STRING = 4;
+
 	/** The {@link ServiceConnection} to use (for the log and to have some information about the service (particularly: name, description). */
 	protected final ServiceConnection service;
 
@@ -85,39 +101,33 @@ public class JSONFormat implements OutputFormat {
 
 	@Override
 	public void writeResult(TableIterator result, OutputStream output, TAPExecutionReport execReport, Thread thread) throws TAPException, IOException, InterruptedException{
-		try{
-
-			// Prepare the output stream for JSON:
-			BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output));
-			JSONWriter out = new JSONWriter(writer);
-
-			// {
-			out.object();
+		// Prepare the output stream for JSON:
+		JSONOutputBuffer out = new JSONOutputBuffer(output);
 
-			// "metadata": [...]
-			out.key("metadata");
+		// {
+		out.writeByte('{');
 
-			// Write metadata part:
-			DBColumn[] columns = writeMetadata(result, out, execReport, thread);
+		// "metadata": [...]
+		out.writeKey("metadata");
 
-			writer.flush();
+		// Write metadata part:
+		DBColumn[] columns = writeMetadata(result, out, execReport, thread);
 
-			if (thread.isInterrupted())
-				throw new InterruptedException();
+		out.flush();
 
-			// "data": [...]
-			out.key("data");
+		if (thread.isInterrupted())
+			throw new InterruptedException();
 
-			// Write the data part:
-			writeData(result, columns, out, execReport, thread);
+		// "data": [...]
+		out.writeByte(',');
+		out.writeKey("data");
 
-			// }
-			out.endObject();
-			writer.flush();
+		// Write the data part:
+		writeData(result, columns, out, execReport, thread);
 
-		}catch(JSONException je){
-			throw new TAPException(je.getMessage(), je);
-		}
+		// }
+		out.writeByte('}');
+		out.flush();
 	}
 
 	/**
@@ -132,13 +142,12 @@ public class JSONFormat implements OutputFormat {
 	 * 
 	 * @throws IOException				If there is an error while writing something in the output stream.
 	 * @throws InterruptedException		If the thread has been interrupted.
-	 * @throws JSONException			If there is an error while formatting something in JSON.
 	 * @throws TAPException				If any other error occurs.
 	 * 
 	 * @see #getValidColMeta(DBColumn, TAPColumn)
 	 */
-	protected DBColumn[] writeMetadata(TableIterator result, JSONWriter out, TAPExecutionReport execReport, Thread thread) throws IOException, TAPException, InterruptedException, JSONException{
-		out.array();
+	protected DBColumn[] writeMetadata(TableIterator result, JSONOutputBuffer out, TAPExecutionReport execReport, Thread thread) throws IOException, TAPException, InterruptedException{
+		out.writeByte('[');
 
 		// Get the metadata extracted/guesses from the ADQL query:
 		DBColumn[] columnsFromQuery = execReport.resultingColumns;
@@ -160,12 +169,14 @@ public class JSONFormat implements OutputFormat {
 				columnsFromQuery[indField] = tapCol;
 
 				// Write the field/column metadata in the JSON output:
+				if (indField > 0)
+					out.writeByte(',');
 				writeFieldMeta(tapCol, out);
 				indField++;
 			}
 		}
 
-		out.endArray();
+		out.writeByte(']');
 		return columnsFromQuery;
 	}
 
@@ -199,46 +210,64 @@ public class JSONFormat implements OutputFormat {
 	 * @param out				The stream in which the formatted column metadata must be written.
 	 * 
 	 * @throws IOException		If there is an error while writing the field metadata.
-	 * @throws JSONException	If there is an error while formatting something in JSON format.
 	 * @throws TAPException		If there is any other error (by default: never happen).
 	 */
-	protected void writeFieldMeta(TAPColumn tapCol, JSONWriter out) throws IOException, TAPException, JSONException{
+	protected void writeFieldMeta(TAPColumn tapCol, JSONOutputBuffer out) throws IOException, TAPException{
 		// {
-		out.object();
+		out.writeByte('{');
 
 		// "name": "..."
-		out.key("name").value(tapCol.getADQLName());
+		out.writeKey("name");
+		out.writeString(tapCol.getADQLName());
 
 		// "description": "..." (if any)
 		if (tapCol.getDescription() != null && tapCol.getDescription().trim().length() > 0)
-			out.key("description").value(tapCol.getDescription());
+			writeMetaProperty("description", tapCol.getDescription(), out);
 
 		// "datatype": "..."
 		VotType votType = new VotType(tapCol.getDatatype());
-		out.key("datatype").value(votType.datatype);
+		writeMetaProperty("datatype", votType.datatype.name(), out);
 
 		// "arraysize": "..." (if any)
 		if (votType.arraysize != null)
-			out.key("arraysize").value(votType.arraysize);
+			writeMetaProperty("arraysize", votType.arraysize, out);
 
 		// "xtype": "..." (if any)
 		if (votType.xtype != null)
-			out.key("xtype").value(votType.xtype);
+			writeMetaProperty("xtype", votType.xtype, out);
 
 		// "unit": "..." (if any)
 		if (tapCol.getUnit() != null && tapCol.getUnit().length() > 0)
-			out.key("unit").value(tapCol.getUnit());
+			writeMetaProperty("unit", tapCol.getUnit(), out);
 
 		// "ucd": "..." (if any)
 		if (tapCol.getUcd() != null && tapCol.getUcd().length() > 0)
-			out.key("ucd").value(tapCol.getUcd());
+			writeMetaProperty("ucd", tapCol.getUcd(), out);
 
 		// "utype": "..." (if any)
 		if (tapCol.getUtype() != null && tapCol.getUtype().length() > 0)
-			out.key("utype").value(tapCol.getUtype());
+			writeMetaProperty("utype", tapCol.getUtype(), out);
 
 		// }
-		out.endObject();
+		out.writeByte('}');
+	}
+
+	/**
+	 * Write a property of a column metadata (except the first one, the name),
+	 * that's to say: a comma, the key and the value.
+	 * 
+	 * @param key	Name of the property.
+	 * @param value	Value of the property.
+	 * @param out	The stream in which the property must be written.
+	 * 
+	 * @throws IOException	If there is an error while writing the property.
+	 * 
+	 * @since 2.4
+	 */
+	private static void writeMetaProperty(final String key, final String value, final JSONOutputBuffer out) throws IOException{
+		out.writeByte(',');
+		out.writeKey(key);
+		out.writeString(value);
 	}
 
 	/**
@@ -252,13 +281,18 @@ public class JSONFormat implements OutputFormat {
 	 * 
 	 * @throws IOException				If there is an error while writing something in the output stream.
 	 * @throws InterruptedException		If the thread has been interrupted.
-	 * @throws JSONException			If there is an error while formatting something in JSON.
 	 * @throws TAPException				If any other error occurs.
 	 */
-	protected void writeData(TableIterator result, DBColumn[] selectedColumns, JSONWriter out, TAPExecutionReport execReport, Thread thread) throws IOException, TAPException, InterruptedException, JSONException{
+	protected void writeData(TableIterator result, DBColumn[] selectedColumns, JSONOutputBuffer out, TAPExecutionReport execReport, Thread thread) throws IOException, TAPException, InterruptedException{
 		// [
-		out.array();
+		out.writeByte('[');
 
+		// Determine once for all the expected kind of values of each column:
+		final byte[] kinds = new byte[(selectedColumns == null) ? 0 : selectedColumns.length];
+		for(int i = 0; i < kinds.length; i++)
+			kinds[i] = getValueKind(selectedColumns[i]);
+
+		final long maxRec = execReport.parameters.getMaxRec();
 		execReport.nbRows = 0;
 		while(result.nextRow()){
 			// Stop right now the formatting if the job has been aborted/canceled/interrupted:
@@ -266,42 +300,111 @@ public class JSONFormat implements OutputFormat {
 				throw new InterruptedException();
 
 			// Deal with OVERFLOW, if needed:
-			if (execReport.parameters.getMaxRec() > 0 && execReport.nbRows >= execReport.parameters.getMaxRec())
+			if (maxRec > 0 && execReport.nbRows >= maxRec)
 				break;
 
 			// [
-			out.array();
+			if (execReport.nbRows > 0)
+				out.writeByte(',');
+			out.writeByte('[');
 			int indCol = 0;
-			while(result.hasNextCol())
+			while(result.hasNextCol()){
 				// ...
-				writeFieldValue(result.nextCol(), selectedColumns[indCol++], out);
+				if (indCol > 0)
+					out.writeByte(',');
+				if (indCol < kinds.length)
+					writeFieldValue(result.nextCol(), selectedColumns[indCol], kinds[indCol], out);
+				else
+					writeFieldValue(result.nextCol(), null, KIND_ANY, out);
+				indCol++;
+			}
 			// ]
-			out.endArray();
+			out.writeByte(']');
 			execReport.nbRows++;
+
+			// flush the output only if not done for too long:
+			out.flushIfDue();
 		}
 
 		// ]
-		out.endArray();
+		out.writeByte(']');
+	}
+
+	/**
+	 * Get the expected kind of values of the given column.
+	 * 
+	 * @param column	Metadata of the column. <i>May be NULL.</i>
+	 * 
+	 * @return	One of the <code>KIND_*</code> constants.
+	 * 
+	 * @since 2.4
+	 */
+	protected byte getValueKind(final DBColumn column){
+		if (column == null || column.getDatatype() == null)
+			return KIND_ANY;
+		switch(column.getDatatype().type){
+			case SMALLINT:
+			case INTEGER:
+			case BIGINT:
+				return KIND_INTEGER;
+			case REAL:
+				return KIND_FLOAT;
+			case DOUBLE:
+				return KIND_DOUBLE;
+			case CHAR:
+			case VARCHAR:
+			case CLOB:
+				return KIND_STRING;
+			default:
+				return KIND_ANY;
+		}
 	}
 
 	/**
 	 * <p>Writes the given field value in JSON and into the given output.</p>
 	 * 
+	 * <p>
+	 * 	If the value has the expected type, it is directly written ; otherwise it is
+	 * 	written in function of its type (see {@link JSONOutputBuffer#writeValue(Object)}).
+	 * </p>
+	 * 
 	 * <p><i>note: special numeric values NaN and Inf (double or float) will be written as NULL values.</i></p>
 	 * 
 	 * @param value				The value to write.
-	 * @param column			The corresponding column metadata.
+	 * @param column			The corresponding column metadata. <i>May be NULL.</i>
+	 * @param kind				The expected kind of value (see {@link #getValueKind(DBColumn)}).
 	 * @param out				The stream in which the field value must be written.
 	 * 
 	 * @throws IOException		If there is an error while writing the given field value in the given stream.
 	 * @throws TAPException		If there is any other error (by default: never happen).
 	 */
-	protected void writeFieldValue(final Object value, final DBColumn column, final JSONWriter out) throws IOException, TAPException, JSONException{
-		if (value instanceof Double && (((Double)value).isNaN() || ((Double)value).isInfinite()))
-			out.value((Object)null);
-		else if (value instanceof Float && (((Float)value).isNaN() || ((Float)value).isInfinite()))
-			out.value((Object)null);
-		else
-			out.value(value);
+	protected void writeFieldValue(final Object value, final DBColumn column, final byte kind, final JSONOutputBuffer out) throws IOException, TAPException{
+		switch(kind){
+			case KIND_INTEGER:
+				if (value instanceof Integer || value instanceof Long || value instanceof Short){
+					out.write(((Number)value).longValue());
+					return;
+				}
+				break;
+			case KIND_FLOAT:
+				if (value instanceof Float){
+					out.writeFloat((Float)value);
+					return;
+				}
+				break;
+			case KIND_DOUBLE:
+				if (value instanceof Double){
+					out.writeDouble((Double)value);
+					return;
+				}
+				break;
+			case KIND_STRING:
+				if (value instanceof String){
+					out.writeString((String)value);
+					return;
+				}
+				break;
+		}
+		out.writeValue(value);
 	}
 }
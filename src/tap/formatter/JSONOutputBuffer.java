@@ -0,0 +1,264 @@
+package tap.formatter;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Array;
+
+/**
+ * <p>{@link UTF8OutputBuffer} able to write JSON values.</p>
+ *
+ * <p>
+ * 	Values are written exactly as {@link org.json.JSONWriter} would do
+ * 	(same escaping of strings, same rendering of numbers), but without
+ * 	allocating any intermediate string for integers and for strings. The
+ * 	structure of the JSON document (brackets, braces, commas, colons) is
+ * 	however the responsibility of the caller.
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class JSONOutputBuffer extends UTF8OutputBuffer {
+
+	/** Hexadecimal digits. */
+	private final static char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+	/**
+	 * Build a JSON output buffer of {@link #DEFAULT_BUFFER_SIZE} bytes
+	 * flushed every {@link #DEFAULT_FLUSH_INTERVAL} milliseconds at most.
+	 *
+	 * @param output	Stream in which the buffer must be written.
+	 */
+	public JSONOutputBuffer(final OutputStream output){
+		super(output);
+	}
+
+	/**
+	 * Build a JSON output buffer.
+	 *
+	 * @param output		Stream in which the buffer must be written.
+	 * @param bufferSize	Size (in bytes) of the buffer.
+	 * @param flushInterval	Minimum time (in milliseconds) between two flushes of the output stream by {@link #flushIfDue()}.
+	 *                     	<i>If negative, {@link #flushIfDue()} never flushes the output stream.</i>
+	 *
+	 * @throws NullPointerException	If the given output stream is <code>null</code>.
+	 */
+	public JSONOutputBuffer(final OutputStream output, final int bufferSize, final long flushInterval) throws NullPointerException{
+		super(output, bufferSize, flushInterval);
+	}
+
+	/**
+	 * Write the given key of a JSON object, followed by a colon.
+	 *
+	 * @param key	The key to write.
+	 *
+	 * @throws IOException	If an error occurs while writing the buffer.
+	 */
+	public final void writeKey(final String key) throws IOException{
+		writeString(key);
+		writeByte(':');
+	}
+
+	/**
+	 * Write <code>null</code>.
+	 *
+	 * @throws IOException	If an error occurs while writing the buffer.
+	 */
+	public final void writeNull() throws IOException{
+		write("null");
+	}
+
+	/**
+	 * Write the given boolean.
+	 *
+	 * @param value	The boolean to write.
+	 *
+	 * @throws IOException	If an error occurs while writing the buffer.
+	 */
+	public final void writeBoolean(final boolean value) throws IOException{
+		write(value ? "true" : "false");
+	}
+
+	/**
+	 * Write the given double.
+	 *
+	 * <p><i>Note:
+	 * 	NaN and infinite values are written as <code>null</code>.
+	 * </i></p>
+	 *
+	 * @param value	The double to write.
+	 *
+	 * @throws IOException	If an error occurs while writing the buffer.
+	 */
+	public final void writeDouble(final double value) throws IOException{
+		if (Double.isNaN(value) || Double.isInfinite(value))
+			writeNull();
+		// integral values (written in plain notation by Double.toString(...)) are rendered without any allocation:
+		else if (value > -1e7 && value < 1e7 && value == (long)value && (value != 0 || Double.doubleToRawLongBits(value) == 0))
+			write((long)value);
+		else
+			writeNumber(Double.toString(value));
+	}
+
+	/**
+	 * Write the given float.
+	 *
+	 * <p><i>Note:
+	 * 	NaN and infinite values are written as <code>null</code>.
+	 * </i></p>
+	 *
+	 * @param value	The float to write.
+	 *
+	 * @throws IOException	If an error occurs while writing the buffer.
+	 */
+	public final void writeFloat(final float value) throws IOException{
+		if (Float.isNaN(value) || Float.isInfinite(value))
+			writeNull();
+		else if (value > -1e7f && value < 1e7f && value == (long)value && (value != 0 || Float.floatToRawIntBits(value) == 0))
+			write((long)value);
+		else
+			writeNumber(Float.toString(value));
+	}
+
+	/**
+	 * Write the given string representation of a number, without the
+	 * trailing zeros of its decimal part (e.g. <code>1.50</code> is
+	 * written <code>1.5</code> and <code>2.0</code> is written <code>2</code>).
+	 *
+	 * @param number	String representation of a number.
+	 *
+	 * @throws IOException	If an error occurs while writing the buffer.
+	 */
+	public final void writeNumber(final String number) throws IOException{
+		int end = number.length();
+		if (number.indexOf('.') > 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0){
+			while(number.charAt(end - 1) == '0')
+				end--;
+			if (number.charAt(end - 1) == '.')
+				end--;
+		}
+		write(number, 0, end);
+	}
+
+	/**
+	 * Write the given string, between double quotes and escaped.
+	 *
+	 * @param str	The string to write.
+	 *
+	 * @throws IOException	If an error occurs while writing the buffer.
+	 */
+	public final void writeString(final String str) throws IOException{
+		writeByte('"');
+		final int length = str.length();
+		int start = 0;
+		char previous = 0;
+		for(int i = 0; i < length; i++){
+			final char c = str.charAt(i);
+			final boolean escape = (c < ' ' || c == '"' || c == '\\' || (c == '/' && previous == '<') || (c >= 0x80 && c < 0xA0) || (c >= 0x2000 && c < 0x2100));
+			previous = c;
+			if (!escape)
+				continue;
+
+			// write the characters before this one:
+			write(str, start, i);
+			start = i + 1;
+
+			// escape this one:
+			writeByte('\\');
+			switch(c){
+				case '"':
+				case '\\':
+				case '/':
+					writeByte(c);
+					break;
+				case '\b':
+					writeByte('b');
+					break;
+				case '\t':
+					writeByte('t');
+					break;
+				case '\n':
+					writeByte('n');
+					break;
+				case '\f':
+					writeByte('f');
+					break;
+				case '\r':
+					writeByte('r');
+					break;
+				default:
+					writeByte('u');
+					writeByte(HEX_DIGITS[(c >> 12) & 0xF]);
+					writeByte(HEX_DIGITS[(c >> 8) & 0xF]);
+					writeByte(HEX_DIGITS[(c >> 4) & 0xF]);
+					writeByte(HEX_DIGITS[c & 0xF]);
+			}
+		}
+		write(str, start, length);
+		writeByte('"');
+	}
+
+	/**
+	 * Write the given value, whatever is its type.
+	 *
+	 * <ul>
+	 * 	<li><code>null</code> is written <code>null</code>,</li>
+	 * 	<li>numbers are written as JSON numbers (and NaN or infinite values as <code>null</code>),</li>
+	 * 	<li>booleans as JSON booleans,</li>
+	 * 	<li>arrays as JSON arrays,</li>
+	 * 	<li>any other value as a JSON string (see {@link Object#toString()}).</li>
+	 * </ul>
+	 *
+	 * @param value	The value to write. <i>May be NULL.</i>
+	 *
+	 * @throws IOException	If an error occurs while writing the buffer.
+	 */
+	public void writeValue(final Object value) throws IOException{
+		if (value == null)
+			writeNull();
+		else if (value instanceof String)
+			writeString((String)value);
+		else if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+			write(((Number)value).longValue());
+		else if (value instanceof Double)
+			writeDouble((Double)value);
+		else if (value instanceof Float)
+			writeFloat((Float)value);
+		else if (value instanceof Number)
+			writeNumber(value.toString());
+		else if (value instanceof Boolean)
+			writeBoolean((Boolean)value);
+		else if (value.getClass().isArray()){
+			writeByte('[');
+			final int length = Array.getLength(value);
+			for(int i = 0; i < length; i++){
+				if (i > 0)
+					writeByte(',');
+				writeValue(Array.get(value, i));
+			}
+			writeByte(']');
+		}else
+			writeString(value.toString());
+	}
+
+}
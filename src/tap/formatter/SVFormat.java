@@ -16,14 +16,12 @@ package tap.formatter;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  * 
- * Copyright 2012-2015 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 
 import tap.ServiceConnection;
 import tap.TAPException;
@@ -32,10 +30,16 @@ import tap.data.TableIterator;
 import adql.db.DBColumn;
 
 /**
- * Format any given query (table) result into CSV or TSV (or with custom separator).
+ * <p>Format any given query (table) result into CSV or TSV (or with custom separator).</p>
+ * 
+ * <p>
+ * 	The result is written in UTF-8. Values containing the separator, a double quote
+ * 	or a line break are delimited by double quotes ; their double quotes are then
+ * 	doubled (as specified by RFC 4180).
+ * </p>
  * 
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.0 (04/2015)
+ * @version 2.4 (10/2026)
  */
 public class SVFormat implements OutputFormat {
 
@@ -46,12 +50,29 @@ public class SVFormat implements OutputFormat {
 	/** Column separator for TSV format. */
 	public static final char TAB_SEPARATOR = '\t';
 
+	/** Characters which may appear in the string representation of a number.
+	 * @since 2.4 */
+	protected static final String NUMBER_CHARS = "0123456789-+.EINaefinty";
+
+	/** Line separator.
+	 * @since 2.4 */
+	protected static final String LINE_SEPARATOR = System.getProperty("line.separator", "\n");
+
 	/** The {@link ServiceConnection} to use (for the log and to have some information about the service (particularly: name, description). */
 	protected final ServiceConnection service;
 
 	/** Column separator to use. */
 	protected final String separator;
 
+	/** First character of {@link #separator}.
+	 * @since 2.4 */
+	protected final char sepChar;
+
+	/** Indicate whether the separator can not appear in the string representation of a number
+	 * (and so whether numbers never have to be delimited by double quotes).
+	 * @since 2.4 */
+	protected final boolean safeNumbers;
+
 	/** Indicate whether String values must be delimited by double quotes (default) or not. */
 	protected final boolean delimitStr;
 
@@ -148,6 +169,11 @@ public class SVFormat implements OutputFormat {
 			throw new NullPointerException("The given service connection is NULL!");
 
 		separator = (colSeparator == null || colSeparator.length() <= 0) ? ("" + COMMA_SEPARATOR) : colSeparator;
+		sepChar = separator.charAt(0);
+		boolean safe = true;
+		for(int i = 0; safe && i < separator.length(); i++)
+			safe = (NUMBER_CHARS.indexOf(separator.charAt(i)) < 0);
+		safeNumbers = safe;
 		delimitStr = delimitStrings;
 		mimeType = (mime == null || mime.trim().length() <= 0) ? guessMimeType(separator) : mime;
 		shortMimeType = (shortMime == null || shortMime.trim().length() <= 0) ? guessShortMimeType(separator) : shortMime;
@@ -241,7 +267,7 @@ public class SVFormat implements OutputFormat {
 	@Override
 	public void writeResult(TableIterator result, OutputStream output, TAPExecutionReport execReport, Thread thread) throws TAPException, IOException, InterruptedException{
 		// Prepare the output stream:
-		final BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output));
+		final UTF8OutputBuffer writer = new UTF8OutputBuffer(output);
 
 		// Write header:
 		DBColumn[] columns = writeHeader(result, writer, execReport, thread);
@@ -269,7 +295,7 @@ public class SVFormat implements OutputFormat {
 	 * @throws InterruptedException		If the thread has been interrupted.
 	 * @throws TAPException				If any other error occurs.
 	 */
-	protected DBColumn[] writeHeader(TableIterator result, BufferedWriter writer, TAPExecutionReport execReport, Thread thread) throws IOException, TAPException, InterruptedException{
+	protected DBColumn[] writeHeader(TableIterator result, UTF8OutputBuffer writer, TAPExecutionReport execReport, Thread thread) throws IOException, TAPException, InterruptedException{
 		// Get the columns meta:
 		DBColumn[] selectedColumns = execReport.resultingColumns;
 
@@ -277,14 +303,14 @@ public class SVFormat implements OutputFormat {
 		int nbColumns = (selectedColumns == null) ? -1 : selectedColumns.length;
 		if (nbColumns > 0){
 			// Write all columns' name:
-			for(int i = 0; i < nbColumns - 1; i++){
-				writer.write(selectedColumns[i].getADQLName());
-				writer.write(separator);
+			for(int i = 0; i < nbColumns; i++){
+				if (i > 0)
+					writer.write(separator);
+				writeString(selectedColumns[i].getADQLName(), needsQuotes(selectedColumns[i].getADQLName()), writer);
 			}
-			writer.write(selectedColumns[nbColumns - 1].getADQLName());
 
 			// Go to a new line (in order to prepare the data writing):
-			writer.newLine();
+			writer.write(LINE_SEPARATOR);
 			writer.flush();
 		}
 
@@ -295,6 +321,11 @@ public class SVFormat implements OutputFormat {
 	/**
 	 * Write all the data rows.
 	 * 
+	 * <p>
+	 * 	The output is not flushed after each row, but only when its buffer
+	 * 	is full or when the last flush is too old (see {@link UTF8OutputBuffer#flushIfDue()}).
+	 * </p>
+	 * 
 	 * @param result			Result to write.	
 	 * @param selectedColumns	All columns' metadata.
 	 * @param writer			Writer in which the data must be written.
@@ -305,61 +336,168 @@ public class SVFormat implements OutputFormat {
 	 * @throws InterruptedException		If the thread has been interrupted.
 	 * @throws TAPException				If any other error occurs.
 	 */
-	protected void writeData(TableIterator result, DBColumn[] selectedColumns, BufferedWriter writer, TAPExecutionReport execReport, Thread thread) throws IOException, TAPException, InterruptedException{
+	protected void writeData(TableIterator result, DBColumn[] selectedColumns, UTF8OutputBuffer writer, TAPExecutionReport execReport, Thread thread) throws IOException, TAPException, InterruptedException{
 		execReport.nbRows = 0;
 
+		// Decide once for all which columns must always be delimited by double quotes:
+		final boolean[] alwaysQuote = new boolean[(selectedColumns == null) ? 0 : selectedColumns.length];
+		for(int i = 0; i < alwaysQuote.length; i++)
+			alwaysQuote[i] = mustAlwaysQuote(selectedColumns[i]);
+
+		final long maxRec = execReport.parameters.getMaxRec();
 		while(result.nextRow()){
 			// Stop right now the formatting if the job has been aborted/canceled/interrupted:
 			if (thread.isInterrupted())
 				throw new InterruptedException();
 
 			// Deal with OVERFLOW, if needed:
-			if (execReport.parameters.getMaxRec() > 0 && execReport.nbRows >= execReport.parameters.getMaxRec()) // that's to say: OVERFLOW !
+			if (maxRec > 0 && execReport.nbRows >= maxRec) // that's to say: OVERFLOW !
 				break;
 
 			int indCol = 0;
 			while(result.hasNextCol()){
-				// Write the column value:
-				writeFieldValue(result.nextCol(), selectedColumns[indCol++], writer);
-
 				// Append the column separator:
-				if (result.hasNextCol())
+				if (indCol > 0)
 					writer.write(separator);
+
+				// Write the column value:
+				if (indCol < alwaysQuote.length)
+					writeFieldValue(result.nextCol(), selectedColumns[indCol], alwaysQuote[indCol], writer);
+				else
+					writeFieldValue(result.nextCol(), null, false, writer);
+				indCol++;
 			}
-			writer.newLine();
+			writer.write(LINE_SEPARATOR);
 
 			execReport.nbRows++;
 
-			// flush the writer every 30 lines:
-			if (execReport.nbRows % 30 == 0)
-				writer.flush();
+			// flush the writer only if not done for too long:
+			writer.flushIfDue();
 		}
 		writer.flush();
 	}
 
 	/**
-	 * <p>Writes the given field value in the given Writer.</p>
+	 * Tell whether all the values of the given column must be delimited by double quotes.
+	 * 
+	 * <p>
+	 * 	By default, it is the case of character columns if {@link #delimitStr} is true.
+	 * 	The values of the other columns are delimited only if needed.
+	 * </p>
+	 * 
+	 * @param column	Metadata of the column. <i>May be NULL.</i>
+	 * 
+	 * @return	<i>true</i> if all values must be delimited,
+	 *        	<i>false</i> if only the values containing special characters must be delimited.
+	 * 
+	 * @since 2.4
+	 */
+	protected boolean mustAlwaysQuote(final DBColumn column){
+		if (!delimitStr || column == null || column.getDatatype() == null)
+			return false;
+		switch(column.getDatatype().type){
+			case CHAR:
+			case VARCHAR:
+			case CLOB:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * <p>Writes the given field value in the given output.</p>
 	 * 
 	 * <p>
 	 * 	A String value will be delimited if {@link #delimitStr} is true, otherwise this type of value will
 	 *  be processed like the other type of values: no delimiter and just transformed into a string.
 	 * </p>
 	 * 
+	 * <p>
+	 * 	Whatever is its type, a value containing the separator, a double quote or a line break
+	 * 	is delimited by double quotes, and its double quotes are doubled (as specified by RFC 4180).
+	 * </p>
+	 * 
 	 * @param value				The value to write.
-	 * @param column			The corresponding column metadata.
+	 * @param column			The corresponding column metadata. <i>May be NULL.</i>
+	 * @param alwaysQuote		<i>true</i> if this value must be delimited by double quotes whatever is its content
+	 *                   		(see {@link #mustAlwaysQuote(DBColumn)}).
 	 * @param writer			The stream in which the field value must be written.
 	 * 
 	 * @throws IOException		If there is an error while writing the given field value in the given stream.
 	 * @throws TAPException		If there is any other error (by default: never happen).
 	 */
-	protected void writeFieldValue(final Object value, final DBColumn column, final BufferedWriter writer) throws IOException, TAPException{
-		if (value != null){
-			if ((delimitStr && value instanceof String) || value.toString().contains(separator)){
-				writer.write('"');
-				writer.write(value.toString().replaceAll("\"", "'"));
-				writer.write('"');
-			}else
+	protected void writeFieldValue(final Object value, final DBColumn column, final boolean alwaysQuote, final UTF8OutputBuffer writer) throws IOException, TAPException{
+		if (value == null)
+			return;
+
+		// Numbers never need to be delimited (if the separator is not a possible number character):
+		if (safeNumbers && value instanceof Number){
+			// integers (the most frequent case) are rendered without any allocation:
+			if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte)
+				writer.write(((Number)value).longValue());
+			else
 				writer.write(value.toString());
 		}
+		// Any other value:
+		else{
+			final String str = (value instanceof String) ? (String)value : value.toString();
+			writeString(str, alwaysQuote || (delimitStr && value instanceof String) || needsQuotes(str), writer);
+		}
+	}
+
+	/**
+	 * Write the given string, delimited by double quotes if asked.
+	 * 
+	 * @param str		The string to write.
+	 * @param quote		<i>true</i> to delimit the string by double quotes (and so to double its double quotes),
+	 *           		<i>false</i> to write it as it is.
+	 * @param writer	The stream in which the string must be written.
+	 * 
+	 * @throws IOException	If there is an error while writing the string.
+	 * 
+	 * @since 2.4
+	 */
+	protected final void writeString(final String str, final boolean quote, final UTF8OutputBuffer writer) throws IOException{
+		if (!quote)
+			writer.write(str);
+		else{
+			writer.writeByte('"');
+			int start = 0, from = 0, indQuote;
+			while((indQuote = str.indexOf('"', from)) >= 0){
+				// write until this double quote (included), and start the next part with it:
+				writer.write(str, start, indQuote + 1);
+				start = indQuote;
+				from = indQuote + 1;
+			}
+			writer.write(str, start, str.length());
+			writer.writeByte('"');
+		}
+	}
+
+	/**
+	 * Tell whether the given string must be delimited by double quotes,
+	 * that's to say whether it contains the separator, a double quote or a line break.
+	 * 
+	 * @param str	The string to test.
+	 * 
+	 * @return	<i>true</i> if the string must be delimited, <i>false</i> otherwise.
+	 * 
+	 * @since 2.4
+	 */
+	protected final boolean needsQuotes(final String str){
+		// a separator of several characters:
+		final boolean singleCharSep = (separator.length() == 1);
+		if (!singleCharSep && str.indexOf(separator) >= 0)
+			return true;
+
+		// a separator of one character, a double quote or a line break:
+		final int length = str.length();
+		for(int i = 0; i < length; i++){
+			char c = str.charAt(i);
+			if (c == '"' || c == '\n' || c == '\r' || (singleCharSep && c == sepChar))
+				return true;
+		}
+		return false;
 	}
 }
@@ -16,7 +16,7 @@ package tap.formatter;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2012-2018 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
@@ -24,8 +24,11 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.util.ArrayList;
+import java.util.List;
 
 import adql.db.DBColumn;
+import adql.db.DBType;
 import cds.util.LargeAsciiTable;
 import cds.util.LargeAsciiTable.LineProcessor;
 import cds.util.LargeAsciiTable.LineProcessorException;
@@ -39,8 +42,26 @@ import tap.data.TableIterator;
  * representation (columns' width are adjusted so that all columns are well
  * aligned and of the same width).
  *
+ * <h3>Column widths</h3>
+ * <p>
+ * 	By default, the result is written in a single pass: only the first
+ * 	{@link #getSampleSize()} rows are kept in memory in order to compute the
+ * 	width of each column. If the result has no more rows, these widths are
+ * 	exact. Otherwise, they are enlarged to the maximum width allowed by the
+ * 	column datatype (see {@link #getMetadataWidth(DBColumn)}), when it is
+ * 	known and reasonably small (e.g. integers, short strings) ; a value of
+ * 	the remaining rows wider than its column is written entirely (i.e. never
+ * 	truncated), so that only this line is not perfectly aligned.
+ * </p>
+ * <p>
+ * 	If all columns must always be perfectly aligned, the exact widths can be
+ * 	computed from all rows (see {@link #TextFormat(ServiceConnection, int[], boolean)}).
+ * 	In this mode, all rows are buffered with a {@link LargeAsciiTable}
+ * 	(i.e. in memory and then in a temporary file) before being written.
+ * </p>
+ *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.3 (11/2018)
+ * @version 2.4 (10/2026)
  */
 public class TextFormat implements OutputFormat {
 
@@ -54,6 +75,26 @@ public class TextFormat implements OutputFormat {
 	 * @since 2.3 */
 	protected int[] alignment = new int[]{ LargeAsciiTable.LEFT };
 
+	/** Default number of rows used to compute the column widths in the
+	 * streaming mode.
+	 * @since 2.4 */
+	public static final int DEFAULT_SAMPLE_SIZE = 1000;
+
+	/** Maximum column width which can be derived from the column datatype.
+	 * Above, only the sample rows are used to compute the column width.
+	 * @since 2.4 */
+	protected static final int MAX_METADATA_WIDTH = 40;
+
+	/** Indicate whether all rows must be buffered in order to compute the
+	 * exact column widths before writing anything (see {@link LargeAsciiTable}).
+	 * If <i>false</i>, the result is streamed.
+	 * @since 2.4 */
+	protected final boolean exactWidths;
+
+	/** Number of rows used to compute the column widths in the streaming mode.
+	 * @since 2.4 */
+	protected int sampleSize = DEFAULT_SAMPLE_SIZE;
+
 	/** The {@link ServiceConnection} to use (for the log and to have some
 	 * information about the service (particularly: name, description). */
 	protected final ServiceConnection service;
@@ -88,11 +129,72 @@ public class TextFormat implements OutputFormat {
 	 * @since 2.3
 	 */
 	public TextFormat(final ServiceConnection service, final int[] customAlignment) throws NullPointerException{
+		this(service, customAlignment, false);
+	}
+
+	/**
+	 * Build a {@link TextFormat}.
+	 *
+	 * @param service			Description of the TAP service.
+	 * @param customAlignment	How columns must be aligned.
+	 *                       	<em>(see {@link LargeAsciiTable#streamAligned(LineProcessor, int[])}
+	 *                       	to know the rules about this array)</em>
+	 * @param exactWidths		<i>true</i> to buffer all rows (in memory and
+	 *                   		then in a temporary file) in order to compute the
+	 *                   		exact column widths before writing anything,
+	 *                   		<i>false</i> to stream the result (column widths
+	 *                   		computed from the first rows and the column
+	 *                   		datatypes).
+	 *
+	 * @throws NullPointerException	If the given service connection is NULL.
+	 *
+	 * @since 2.4
+	 */
+	public TextFormat(final ServiceConnection service, final int[] customAlignment, final boolean exactWidths) throws NullPointerException{
 		if (service == null)
 			throw new NullPointerException("The given service connection is NULL!");
 
 		this.service = service;
 		this.alignment = customAlignment;
+		this.exactWidths = exactWidths;
+	}
+
+	/**
+	 * Tell whether all rows are buffered in order to compute the exact column
+	 * widths before writing anything.
+	 *
+	 * @return	<i>true</i> if all rows are buffered,
+	 *        	<i>false</i> if the result is streamed.
+	 *
+	 * @since 2.4
+	 */
+	public final boolean isExactWidths(){
+		return exactWidths;
+	}
+
+	/**
+	 * Get the number of rows used to compute the column widths in the
+	 * streaming mode.
+	 *
+	 * @return	Number of sample rows.
+	 *
+	 * @since 2.4
+	 */
+	public final int getSampleSize(){
+		return sampleSize;
+	}
+
+	/**
+	 * Set the number of rows used to compute the column widths in the
+	 * streaming mode.
+	 *
+	 * @param sampleSize	Number of sample rows. <i>If &le;0, only the column
+	 *                  	names and datatypes will be used.</i>
+	 *
+	 * @since 2.4
+	 */
+	public final void setSampleSize(final int sampleSize){
+		this.sampleSize = (sampleSize < 0) ? 0 : sampleSize;
 	}
 
 	@Override
@@ -117,6 +219,287 @@ public class TextFormat implements OutputFormat {
 
 	@Override
 	public void writeResult(TableIterator result, OutputStream output, TAPExecutionReport execReport, Thread thread) throws TAPException, IOException, InterruptedException{
+		if (exactWidths)
+			writeBufferedResult(result, output, execReport, thread);
+		else
+			writeStreamedResult(result, output, execReport, thread);
+	}
+
+	/**
+	 * Write the given result in a single pass: the column widths are computed
+	 * from the column datatypes and the first rows.
+	 *
+	 * @param result		The whole result to write.
+	 * @param output		Stream in which the result must be written.
+	 * @param execReport	Execution report (which contains the metadata
+	 *                  	and the maximum allowed number of records).
+	 * @param thread		Thread which has asked for this formatting.
+	 *
+	 * @throws TAPException			If any error occurs while reading the result.
+	 * @throws IOException			If any error occurs while writing the result.
+	 * @throws InterruptedException	If the thread has been interrupted.
+	 *
+	 * @since 2.4
+	 */
+	protected void writeStreamedResult(final TableIterator result, final OutputStream output, final TAPExecutionReport execReport, final Thread thread) throws TAPException, IOException, InterruptedException{
+		// Get the header:
+		String[] header = getHeader(result, execReport, thread).split(String.valueOf(COL_SEP), -1);
+		DBColumn[] selectedColumns = execReport.resultingColumns;
+		int nbColumns = selectedColumns.length;
+
+		if (thread.isInterrupted())
+			throw new InterruptedException();
+
+		// Read the sample rows:
+		execReport.nbRows = 0;
+		List<String[]> sample = new ArrayList<String[]>(Math.min(sampleSize, 1024));
+		StringBuffer buffer = new StringBuffer();
+		String[] row;
+		while(sample.size() < sampleSize && (row = readRow(result, selectedColumns, buffer, execReport, thread)) != null)
+			sample.add(row);
+		// ...and check whether there are more rows:
+		row = (sample.size() < sampleSize) ? null : readRow(result, selectedColumns, buffer, execReport, thread);
+		boolean complete = (row == null);
+
+		// Compute the column widths:
+		int[] widths = new int[Math.max(nbColumns, header.length)];
+		for(int i = 0; i < header.length; i++)
+			widths[i] = header[i].length();
+		for(String[] r : sample){
+			for(int i = 0; i < r.length; i++){
+				if (r[i].length() > widths[i])
+					widths[i] = r[i].length();
+			}
+		}
+		/* ...if there are more rows than the sample, enlarge the columns to
+		 *    the maximum width allowed by their datatype (if small enough): */
+		if (!complete){
+			for(int i = 0; i < nbColumns; i++){
+				int metaWidth = getMetadataWidth(selectedColumns[i]);
+				if (metaWidth > widths[i] && metaWidth <= MAX_METADATA_WIDTH)
+					widths[i] = metaWidth;
+			}
+		}
+
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(output));
+		StringBuffer line = new StringBuffer();
+
+		// Write the header and the separator line:
+		writeAlignedLine(header, widths, true, line, writer);
+		line.delete(0, line.length());
+		for(int i = 0; i < widths.length; i++){
+			if (i > 0)
+				line.append('|');
+			for(int j = 0; j < widths[i]; j++)
+				line.append('-');
+		}
+		writer.write(line.toString());
+		writer.newLine();
+
+		// Write the sample rows:
+		for(String[] r : sample)
+			writeAlignedLine(r, widths, false, line, writer);
+		sample = null;
+
+		// Stream all the remaining rows:
+		if (!complete){
+			writeAlignedLine(row, widths, false, line, writer);
+			while((row = readRow(result, selectedColumns, buffer, execReport, thread)) != null)
+				writeAlignedLine(row, widths, false, line, writer);
+		}
+
+		// Add a line in case of an OVERFLOW (i.e. MAXREC reached while more rows are available):
+		if (execReport.parameters.getMaxRec() > 0 && execReport.nbRows >= execReport.parameters.getMaxRec() && result.nextRow()){
+			writer.write("\nOVERFLOW (more rows were available but have been truncated by the TAP service)");
+			writer.newLine();
+		}
+
+		writer.flush();
+	}
+
+	/**
+	 * Read and format the next row of the given result.
+	 *
+	 * <p><i>Note:
+	 * 	The number of rows of the given execution report is incremented for
+	 * 	each read row.
+	 * </i></p>
+	 *
+	 * @param queryResult		Result to read.
+	 * @param selectedColumns	Metadata of all columns.
+	 * @param buffer			Buffer to use to format each value.
+	 * @param execReport		Execution report (which contains the maximum
+	 *                  		allowed number of records to output).
+	 * @param thread			Thread which has asked for this formatting.
+	 *
+	 * @return	All the formatted values of the next row,
+	 *        	or NULL if there is no more row or if MAXREC is reached.
+	 *
+	 * @throws TAPException			If any error occurs while reading the result.
+	 * @throws InterruptedException	If the thread has been interrupted.
+	 *
+	 * @since 2.4
+	 */
+	protected String[] readRow(final TableIterator queryResult, final DBColumn[] selectedColumns, final StringBuffer buffer, final TAPExecutionReport execReport, final Thread thread) throws TAPException, InterruptedException{
+		// Stop when MAXREC is reached (the OVERFLOW is detected by the caller):
+		if (execReport.parameters.getMaxRec() > 0 && execReport.nbRows >= execReport.parameters.getMaxRec())
+			return null;
+
+		if (!queryResult.nextRow())
+			return null;
+
+		// Stop right now the formatting if the job has been aborted/cancelled/interrupted:
+		if (thread.isInterrupted())
+			throw new InterruptedException();
+
+		String[] row = new String[selectedColumns.length];
+		int indCol = 0;
+		while(queryResult.hasNextCol()){
+			Object value = queryResult.nextCol();
+			if (indCol < row.length){
+				buffer.delete(0, buffer.length());
+				writeFieldValue(value, selectedColumns[indCol], buffer);
+				row[indCol++] = buffer.toString();
+			}
+		}
+		// Empty value for any missing column:
+		while(indCol < row.length)
+			row[indCol++] = "";
+
+		execReport.nbRows++;
+		return row;
+	}
+
+	/**
+	 * Align the given values and write the resulting line.
+	 *
+	 * @param values	Values to write.
+	 * @param widths	Width of each column.
+	 * @param header	<i>true</i> if the given values are the column names
+	 *              	(which are always centred),
+	 *              	<i>false</i> otherwise.
+	 * @param line		Buffer to use to build the line.
+	 * @param writer	Writer in which the line must be written.
+	 *
+	 * @throws IOException	If any error occurs while writing the line.
+	 *
+	 * @since 2.4
+	 */
+	protected void writeAlignedLine(final String[] values, final int[] widths, final boolean header, final StringBuffer line, final BufferedWriter writer) throws IOException{
+		line.delete(0, line.length());
+		for(int col = 0; col < widths.length; col++){
+			if (col > 0)
+				line.append('|');
+
+			String value = (col < values.length) ? values[col] : "";
+			int inserted = widths[col] - value.length();
+
+			switch(header ? LargeAsciiTable.CENTER : getAlignment(col)){
+				case LargeAsciiTable.CENTER:
+					int n1 = (inserted > 0) ? inserted / 2 : 0;
+					addSpaces(line, n1);
+					line.append(value);
+					addSpaces(line, inserted - n1);
+					break;
+				case LargeAsciiTable.RIGHT:
+					addSpaces(line, inserted);
+					line.append(value);
+					break;
+				case LargeAsciiTable.LEFT:
+				default:
+					line.append(value);
+					addSpaces(line, inserted);
+					break;
+			}
+		}
+		writer.write(line.toString());
+		writer.newLine();
+	}
+
+	/**
+	 * Get the alignment of the specified column.
+	 *
+	 * <p>
+	 * 	The rules are the same as {@link LargeAsciiTable#streamAligned(LineProcessor, int[])}:
+	 * 	a unique alignment applies to all columns, and the last specified
+	 * 	alignment applies to all the following columns.
+	 * </p>
+	 *
+	 * @param col	Index of the column.
+	 *
+	 * @return	{@link LargeAsciiTable#LEFT}, {@link LargeAsciiTable#CENTER}
+	 *        	or {@link LargeAsciiTable#RIGHT}.
+	 *
+	 * @since 2.4
+	 */
+	protected final int getAlignment(final int col){
+		if (alignment == null || alignment.length == 0)
+			return LargeAsciiTable.LEFT;
+		else
+			return (col < alignment.length) ? alignment[col] : alignment[alignment.length - 1];
+	}
+
+	/**
+	 * Append the given number of spaces.
+	 *
+	 * @param line	Buffer to update.
+	 * @param nb	Number of spaces to append. <i>Nothing is done if &le;0.</i>
+	 *
+	 * @since 2.4
+	 */
+	protected static final void addSpaces(final StringBuffer line, final int nb){
+		for(int i = 0; i < nb; i++)
+			line.append(' ');
+	}
+
+	/**
+	 * Get the maximum width of a value of the given column, according to its
+	 * datatype.
+	 *
+	 * @param column	Column metadata.
+	 *
+	 * @return	The maximum width,
+	 *        	or -1 if it can not be known from the datatype.
+	 *
+	 * @since 2.4
+	 */
+	protected int getMetadataWidth(final DBColumn column){
+		DBType type = (column == null) ? null : column.getDatatype();
+		if (type == null)
+			return -1;
+		switch(type.type){
+			case SMALLINT:
+				return 6;
+			case INTEGER:
+				return 11;
+			case BIGINT:
+				return 20;
+			case CHAR:
+			case VARCHAR:
+				// +2 for the surrounding double quotes:
+				return (type.length > 0) ? type.length + 2 : -1;
+			default:
+				return -1;
+		}
+	}
+
+	/**
+	 * Write the given result after having buffered all its rows (with a
+	 * {@link LargeAsciiTable}), so that the exact column widths are known.
+	 *
+	 * @param result		The whole result to write.
+	 * @param output		Stream in which the result must be written.
+	 * @param execReport	Execution report (which contains the metadata
+	 *                  	and the maximum allowed number of records).
+	 * @param thread		Thread which has asked for this formatting.
+	 *
+	 * @throws TAPException			If any error occurs while reading the result.
+	 * @throws IOException			If any error occurs while writing the result.
+	 * @throws InterruptedException	If the thread has been interrupted.
+	 *
+	 * @since 2.4
+	 */
+	protected void writeBufferedResult(final TableIterator result, final OutputStream output, final TAPExecutionReport execReport, final Thread thread) throws TAPException, IOException, InterruptedException{
 		// Prepare the formatting of the whole output:
 		try(LargeAsciiTable asciiTable = new LargeAsciiTable(COL_SEP)){
 
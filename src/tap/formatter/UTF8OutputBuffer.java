@@ -0,0 +1,282 @@
+package tap.formatter;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * <p>Buffer encoding characters in UTF-8 before writing them into an output stream.</p>
+ *
+ * <p>
+ * 	Contrary to a {@link java.io.BufferedWriter} wrapping an
+ * 	{@link java.io.OutputStreamWriter}, characters are directly encoded into
+ * 	a single large byte buffer, without any intermediate character buffer nor
+ * 	lock.
+ * </p>
+ *
+ * <p>
+ * 	The buffer is written into the output stream only when it is full. The
+ * 	output stream is flushed only when explicitly asked (see {@link #flush()}),
+ * 	or when {@link #flushIfDue()} is called after the flush interval has
+ * 	elapsed: on a synchronous query, the client then receives large HTTP
+ * 	chunks, but still regularly.
+ * </p>
+ *
+ * <p><i>Note:
+ * 	Like the output stream, an instance of this class must not be used by
+ * 	several threads.
+ * </i></p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class UTF8OutputBuffer {
+
+	/** Default size (in bytes) of the buffer. */
+	public final static int DEFAULT_BUFFER_SIZE = 65536;
+
+	/** Default minimum time (in milliseconds) between two flushes of the output stream by {@link #flushIfDue()}. */
+	public final static long DEFAULT_FLUSH_INTERVAL = 1000;
+
+	/** Stream in which the buffer is written. */
+	protected final OutputStream output;
+
+	/** The buffer. */
+	protected final byte[] buffer;
+
+	/** Number of bytes set in {@link #buffer}. */
+	protected int count = 0;
+
+	/** Minimum time (in nanoseconds) between two flushes of the output stream by {@link #flushIfDue()}. */
+	protected final long flushInterval;
+
+	/** Time (as given by {@link System#nanoTime()}) of the last flush of the output stream. */
+	protected long lastFlush;
+
+	/** Work buffer for the rendering of integers. */
+	private final byte[] digits = new byte[20];
+
+	/**
+	 * Build a UTF-8 output buffer of {@link #DEFAULT_BUFFER_SIZE} bytes
+	 * flushed every {@link #DEFAULT_FLUSH_INTERVAL} milliseconds at most.
+	 *
+	 * @param output	Stream in which the buffer must be written.
+	 */
+	public UTF8OutputBuffer(final OutputStream output){
+		this(output, DEFAULT_BUFFER_SIZE, DEFAULT_FLUSH_INTERVAL);
+	}
+
+	/**
+	 * Build a UTF-8 output buffer.
+	 *
+	 * @param output		Stream in which the buffer must be written.
+	 * @param bufferSize	Size (in bytes) of the buffer. <i>At least 32 bytes are allocated.</i>
+	 * @param flushInterval	Minimum time (in milliseconds) between two flushes of the output stream by {@link #flushIfDue()}.
+	 *                     	<i>If negative, {@link #flushIfDue()} never flushes the output stream.</i>
+	 *
+	 * @throws NullPointerException	If the given output stream is <code>null</code>.
+	 */
+	public UTF8OutputBuffer(final OutputStream output, final int bufferSize, final long flushInterval) throws NullPointerException{
+		if (output == null)
+			throw new NullPointerException("The given output stream is NULL!");
+		this.output = output;
+		this.buffer = new byte[Math.max(32, bufferSize)];
+		this.flushInterval = (flushInterval < 0) ? -1 : flushInterval * 1000000;
+		this.lastFlush = System.nanoTime();
+	}
+
+	/**
+	 * Write a single byte. It is generally an ASCII character.
+	 *
+	 * @param b	The byte to write.
+	 *
+	 * @throws IOException	If an error occurs while writing the buffer.
+	 */
+	public final void writeByte(final int b) throws IOException{
+		if (count == buffer.length)
+			drain();
+		buffer[count++] = (byte)b;
+	}
+
+	/**
+	 * Write the given character.
+	 *
+	 * <p><i>Note:
+	 * 	A surrogate character is written as a '?'. To write a character outside
+	 * 	of the Basic Multilingual Plane, use {@link #write(String)}.
+	 * </i></p>
+	 *
+	 * @param c	The character to write.
+	 *
+	 * @throws IOException	If an error occurs while writing the buffer.
+	 */
+	public final void write(final char c) throws IOException{
+		if (count + 3 > buffer.length)
+			drain();
+		if (c < 0x80)
+			buffer[count++] = (byte)c;
+		else if (c < 0x800){
+			buffer[count++] = (byte)(0xC0 | (c >> 6));
+			buffer[count++] = (byte)(0x80 | (c & 0x3F));
+		}else if (Character.isSurrogate(c))
+			buffer[count++] = '?';
+		else{
+			buffer[count++] = (byte)(0xE0 | (c >> 12));
+			buffer[count++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+			buffer[count++] = (byte)(0x80 | (c & 0x3F));
+		}
+	}
+
+	/**
+	 * Write the given string.
+	 *
+	 * @param str	The string to write.
+	 *
+	 * @throws IOException	If an error occurs while writing the buffer.
+	 */
+	public final void write(final String str) throws IOException{
+		write(str, 0, str.length());
+	}
+
+	/**
+	 * Write a part of the given string.
+	 *
+	 * <p><i>Note:
+	 * 	An unpaired surrogate character is written as a '?'.
+	 * </i></p>
+	 *
+	 * @param str	The string to write.
+	 * @param start	Index of the first character to write.
+	 * @param end	Index after the last character to write.
+	 *
+	 * @throws IOException	If an error occurs while writing the buffer.
+	 */
+	public final void write(final String str, final int start, final int end) throws IOException{
+		int i = start;
+		while(i < end){
+			// ASCII characters (the most frequent case):
+			int limit = Math.min(end, i + (buffer.length - count));
+			char c;
+			while(i < limit && (c = str.charAt(i)) < 0x80){
+				buffer[count++] = (byte)c;
+				i++;
+			}
+			if (i == end)
+				break;
+
+			// other characters:
+			if (count + 4 > buffer.length)
+				drain();
+			c = str.charAt(i++);
+			if (c < 0x80)
+				buffer[count++] = (byte)c;
+			else if (c < 0x800){
+				buffer[count++] = (byte)(0xC0 | (c >> 6));
+				buffer[count++] = (byte)(0x80 | (c & 0x3F));
+			}else if (Character.isHighSurrogate(c) && i < end && Character.isLowSurrogate(str.charAt(i))){
+				int cp = Character.toCodePoint(c, str.charAt(i++));
+				buffer[count++] = (byte)(0xF0 | (cp >> 18));
+				buffer[count++] = (byte)(0x80 | ((cp >> 12) & 0x3F));
+				buffer[count++] = (byte)(0x80 | ((cp >> 6) & 0x3F));
+				buffer[count++] = (byte)(0x80 | (cp & 0x3F));
+			}else if (Character.isSurrogate(c))
+				buffer[count++] = '?';
+			else{
+				buffer[count++] = (byte)(0xE0 | (c >> 12));
+				buffer[count++] = (byte)(0x80 | ((c >> 6) & 0x3F));
+				buffer[count++] = (byte)(0x80 | (c & 0x3F));
+			}
+		}
+	}
+
+	/**
+	 * Write the decimal representation of the given integer,
+	 * exactly as {@link Long#toString(long)} would do, but without any allocation.
+	 *
+	 * @param value	The integer to write.
+	 *
+	 * @throws IOException	If an error occurs while writing the buffer.
+	 */
+	public final void write(long value) throws IOException{
+		if (value == Long.MIN_VALUE){
+			write(Long.toString(value));
+			return;
+		}
+		if (count + 20 > buffer.length)
+			drain();
+		if (value < 0){
+			buffer[count++] = '-';
+			value = -value;
+		}
+		int pos = digits.length;
+		do{
+			digits[--pos] = (byte)('0' + (value % 10));
+			value /= 10;
+		}while(value > 0);
+		System.arraycopy(digits, pos, buffer, count, digits.length - pos);
+		count += digits.length - pos;
+	}
+
+	/**
+	 * Write the buffer into the output stream, and then empty it.
+	 *
+	 * <p><i>Note:
+	 * 	The output stream is not flushed.
+	 * </i></p>
+	 *
+	 * @throws IOException	If an error occurs while writing the buffer.
+	 */
+	protected final void drain() throws IOException{
+		if (count > 0){
+			output.write(buffer, 0, count);
+			count = 0;
+		}
+	}
+
+	/**
+	 * Flush the buffer and the output stream if the last flush occurred
+	 * more than the flush interval ago.
+	 *
+	 * <p>
+	 * 	This function is expected to be called regularly (e.g. after each row),
+	 * 	so that a slow result is still progressively sent to the client.
+	 * </p>
+	 *
+	 * @throws IOException	If an error occurs while flushing.
+	 */
+	public final void flushIfDue() throws IOException{
+		if (flushInterval >= 0 && System.nanoTime() - lastFlush >= flushInterval)
+			flush();
+	}
+
+	/**
+	 * Write the buffer into the output stream, and then flush this latter.
+	 *
+	 * @throws IOException	If an error occurs while flushing.
+	 */
+	public final void flush() throws IOException{
+		drain();
+		output.flush();
+		lastFlush = System.nanoTime();
+	}
+
+}
@@ -0,0 +1,643 @@
+package tap.formatter;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.reflect.Array;
+
+import tap.data.DataReadException;
+import tap.data.TableIterator;
+import uk.ac.starlink.table.ColumnInfo;
+import uk.ac.starlink.votable.DataFormat;
+import uk.ac.starlink.votable.VOSerializer;
+
+/**
+ * Write the DATA element of a VOTable in BINARY or BINARY2 directly from a
+ * {@link TableIterator}.
+ *
+ * <p>
+ * 	Contrary to STIL's {@link VOSerializer}, no <code>Object[]</code> is
+ * 	built for each row and no value class is inspected again for each cell:
+ * 	an encoder is chosen once for each column, in function of the
+ * 	{@link ColumnInfo} built by {@link VOTableFormat#toColumnInfos(TableIterator, tap.TAPExecutionReport, Thread)}.
+ * 	The encoded bytes are put in a reusable buffer whose the content is
+ * 	encoded in Base64 each time it is full.
+ * </p>
+ *
+ * <p>
+ * 	The produced bytes are the same as the ones produced by STIL, so that the
+ * 	FIELD elements written by {@link VOSerializer#writePreDataXML(java.io.BufferedWriter)}
+ * 	still describe them. Only scalars, variable-length strings and
+ * 	one-dimensional numeric or boolean arrays are supported (see
+ * 	{@link #isSupported(ColumnInfo)}) ; if a column has another type, the
+ * 	table must be written by STIL.
+ * </p>
+ *
+ * <p><i>Note:
+ * 	An instance of this class is not thread-safe and should be used for only
+ * 	one table.
+ * </i></p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class VOTableBinaryWriter {
+
+	/** Number of raw bytes encoded on each line of the Base64 stream
+	 * (i.e. 64 characters, as STIL). */
+	protected final static int LINE_BYTES = 48;
+
+	/** Base64 alphabet. */
+	private final static char[] BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+
+	/** Whether the BINARY2 serialization (i.e. with a null bitmap before each
+	 * row) must be written instead of BINARY. */
+	protected final boolean binary2;
+
+	/** Encoder of each column. */
+	protected final ColumnEncoder[] encoders;
+
+	/** Values of the row being written. <i>Reused for all rows.</i> */
+	protected final Object[] row;
+
+	/** Raw bytes waiting for being encoded in Base64.
+	 * <i>Its size is a multiple of {@link #LINE_BYTES}.</i> */
+	private final byte[] buffer;
+
+	/** Position of the next byte to write in {@link #buffer}. */
+	private int pos = 0;
+
+	/** Characters of the Base64 encoding of {@link #buffer}. */
+	private final char[] chars;
+
+	/** Where the Base64 characters are written. */
+	private Writer out = null;
+
+	/** Number of rows written so far. */
+	private long nbRows = 0;
+
+	/** Whether the last written table has been truncated at the row limit. */
+	private boolean overflow = false;
+
+	/**
+	 * Build a BINARY or BINARY2 writer for the given columns.
+	 *
+	 * @param columns	Description of all columns.
+	 * @param format	{@link DataFormat#BINARY} or {@link DataFormat#BINARY2}.
+	 *
+	 * @throws IllegalArgumentException	If the format is neither BINARY nor
+	 *                                 	BINARY2, or if the type of a column
+	 *                                 	is not supported
+	 *                                 	(see {@link #isSupported(ColumnInfo)}).
+	 */
+	public VOTableBinaryWriter(final ColumnInfo[] columns, final DataFormat format) throws IllegalArgumentException{
+		if (format != DataFormat.BINARY && format != DataFormat.BINARY2)
+			throw new IllegalArgumentException("Unsupported VOTable serialization: " + format + "! Only BINARY and BINARY2 can be written natively.");
+		binary2 = (format == DataFormat.BINARY2);
+
+		encoders = new ColumnEncoder[columns.length];
+		for(int i = 0; i < columns.length; i++){
+			encoders[i] = createEncoder(columns[i], binary2);
+			if (encoders[i] == null)
+				throw new IllegalArgumentException("Unsupported type for the column \"" + columns[i].getName() + "\": " + columns[i].getContentClass().getName() + "! It can not be written natively in " + format + ".");
+		}
+		row = new Object[columns.length];
+
+		buffer = new byte[LINE_BYTES * 256];
+		chars = new char[(buffer.length / LINE_BYTES) * 65];
+	}
+
+	/**
+	 * Tell whether all the given columns can be written by this class.
+	 *
+	 * @param columns	Description of all columns.
+	 *
+	 * @return	<i>true</i> if all columns are supported,
+	 *        	<i>false</i> otherwise (or if the array is NULL).
+	 */
+	public static boolean isSupported(final ColumnInfo[] columns){
+		if (columns == null)
+			return false;
+		for(ColumnInfo col : columns){
+			if (!isSupported(col))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Tell whether the given column can be written by this class.
+	 *
+	 * <p>The supported types are:</p>
+	 * <ul>
+	 * 	<li>scalars: {@link Boolean}, {@link Short}, {@link Integer},
+	 * 		{@link Long}, {@link Float}, {@link Double} and {@link Character},</li>
+	 * 	<li>variable-length strings ({@link String} without element size),</li>
+	 * 	<li>one-dimensional arrays of <code>boolean</code>, <code>short</code>,
+	 * 		<code>int</code>, <code>long</code>, <code>float</code> and
+	 * 		<code>double</code>, with a fixed or variable length.</li>
+	 * </ul>
+	 *
+	 * @param column	Description of a column.
+	 *
+	 * @return	<i>true</i> if supported, <i>false</i> otherwise.
+	 */
+	public static boolean isSupported(final ColumnInfo column){
+		return createEncoder(column, true) != null;
+	}
+
+	/**
+	 * Get the number of rows written by the last call of
+	 * {@link #writeDataElement(TableIterator, long, Thread, Writer)}.
+	 *
+	 * @return	Number of written rows.
+	 */
+	public final long getNbRows(){
+		return nbRows;
+	}
+
+	/**
+	 * Tell whether the last written table has been truncated at the row limit.
+	 *
+	 * @return	<i>true</i> if more rows were available,
+	 *        	<i>false</i> otherwise.
+	 */
+	public final boolean lastSequenceOverflowed(){
+		return overflow;
+	}
+
+	/**
+	 * Write the whole DATA element, with all the rows of the given iterator.
+	 *
+	 * <p>
+	 * 	Like {@link VOTableFormat.LimitedStarTable}, the writing stops when the
+	 * 	given row limit is reached (and then, {@link #lastSequenceOverflowed()}
+	 * 	tells whether more rows were available) or when the given thread is
+	 * 	interrupted.
+	 * </p>
+	 *
+	 * @param it		The rows to write.
+	 * @param maxrec	Limit on the number of rows to write.
+	 *              	<i>If negative, there is no limit.</i>
+	 * @param thread	Thread to watch: the writing stops as soon as it is
+	 *              	interrupted.
+	 * @param output	Where the DATA element must be written.
+	 *
+	 * @throws IOException	If an error occurs while reading or writing a row.
+	 */
+	public void writeDataElement(final TableIterator it, final long maxrec, final Thread thread, final Writer output) throws IOException{
+		final String tag = (binary2 ? "BINARY2" : "BINARY");
+		output.write("<DATA>\n<" + tag + ">\n<STREAM encoding='base64'>\n");
+
+		out = output;
+		pos = 0;
+		nbRows = 0;
+		overflow = false;
+		final int nbCol = encoders.length;
+		final int bitmapSize = (nbCol + 7) / 8;
+		try{
+			while(true){
+				// Stop if interrupted or if the limit is reached:
+				if (thread.isInterrupted() || (maxrec >= 0 && nbRows >= maxrec)){
+					overflow = it.nextRow();
+					break;
+				}
+				if (!it.nextRow())
+					break;
+
+				// Read the whole row:
+				for(int i = 0; i < nbCol; i++)
+					row[i] = it.hasNextCol() ? it.nextCol() : null;
+
+				// Write the null bitmap, in BINARY2:
+				if (binary2){
+					for(int b = 0; b < bitmapSize; b++){
+						int flags = 0;
+						for(int i = b * 8, end = Math.min(i + 8, nbCol); i < end; i++){
+							if (row[i] == null)
+								flags |= 0x80 >>> (i - b * 8);
+						}
+						writeByte(flags);
+					}
+				}
+
+				// Write all values:
+				for(int i = 0; i < nbCol; i++)
+					encoders[i].encode(row[i], this);
+
+				nbRows++;
+			}
+		}catch(DataReadException dre){
+			if (dre.getCause() != null && dre.getCause() instanceof IOException)
+				throw (IOException)(dre.getCause());
+			else
+				throw new IOException(dre);
+		}finally{
+			for(int i = 0; i < nbCol; i++)
+				row[i] = null;
+		}
+
+		// Encode the remaining bytes:
+		flush(true);
+		out = null;
+
+		output.write("</STREAM>\n</" + tag + ">\n</DATA>\n");
+	}
+
+	/* ************** */
+	/* BASE64 ENCODING */
+	/* ************** */
+
+	/**
+	 * Encode in Base64 the content of the buffer and write it.
+	 *
+	 * @param end	<i>true</i> if no more byte will be written (and so, the
+	 *           	last partial line must be encoded, with padding),
+	 *           	<i>false</i> if only the complete lines must be encoded.
+	 *
+	 * @throws IOException	If an error occurs while writing.
+	 */
+	private void flush(final boolean end) throws IOException{
+		int nbChars = 0;
+		int i = 0;
+		// Complete lines:
+		final int lastLine = pos - (pos % LINE_BYTES);
+		while(i < lastLine){
+			for(final int lineEnd = i + LINE_BYTES; i < lineEnd; i += 3){
+				final int bits = ((buffer[i] & 0xff) << 16) | ((buffer[i + 1] & 0xff) << 8) | (buffer[i + 2] & 0xff);
+				chars[nbChars++] = BASE64[bits >>> 18];
+				chars[nbChars++] = BASE64[(bits >>> 12) & 0x3f];
+				chars[nbChars++] = BASE64[(bits >>> 6) & 0x3f];
+				chars[nbChars++] = BASE64[bits & 0x3f];
+			}
+			chars[nbChars++] = '\n';
+		}
+		// Last partial line (as STIL, a line break is always written at the end):
+		if (end){
+			for(; i < pos; i += 3){
+				final int remaining = pos - i;
+				final int bits = ((buffer[i] & 0xff) << 16) | ((remaining > 1 ? buffer[i + 1] & 0xff : 0) << 8) | (remaining > 2 ? buffer[i + 2] & 0xff : 0);
+				chars[nbChars++] = BASE64[bits >>> 18];
+				chars[nbChars++] = BASE64[(bits >>> 12) & 0x3f];
+				chars[nbChars++] = (remaining > 1) ? BASE64[(bits >>> 6) & 0x3f] : '=';
+				chars[nbChars++] = (remaining > 2) ? BASE64[bits & 0x3f] : '=';
+			}
+			chars[nbChars++] = '\n';
+		}
+		out.write(chars, 0, nbChars);
+
+		// Keep the bytes not encoded yet:
+		if (i < pos)
+			System.arraycopy(buffer, i, buffer, 0, pos - i);
+		pos -= i;
+	}
+
+	/**
+	 * Append one byte.
+	 *
+	 * @param b	The byte to append (only the 8 lowest bits are used).
+	 *
+	 * @throws IOException	If the buffer is full and can not be written.
+	 */
+	protected final void writeByte(final int b) throws IOException{
+		if (pos == buffer.length)
+			flush(false);
+		buffer[pos++] = (byte)b;
+	}
+
+	/**
+	 * Append a 2-bytes integer (big-endian).
+	 *
+	 * @param v	The value to append.
+	 *
+	 * @throws IOException	If the buffer is full and can not be written.
+	 */
+	protected final void writeShort(final int v) throws IOException{
+		if (pos + 2 > buffer.length)
+			flush(false);
+		buffer[pos++] = (byte)(v >>> 8);
+		buffer[pos++] = (byte)v;
+	}
+
+	/**
+	 * Append a 4-bytes integer (big-endian).
+	 *
+	 * @param v	The value to append.
+	 *
+	 * @throws IOException	If the buffer is full and can not be written.
+	 */
+	protected final void writeInt(final int v) throws IOException{
+		if (pos + 4 > buffer.length)
+			flush(false);
+		buffer[pos++] = (byte)(v >>> 24);
+		buffer[pos++] = (byte)(v >>> 16);
+		buffer[pos++] = (byte)(v >>> 8);
+		buffer[pos++] = (byte)v;
+	}
+
+	/**
+	 * Append an 8-bytes integer (big-endian).
+	 *
+	 * @param v	The value to append.
+	 *
+	 * @throws IOException	If the buffer is full and can not be written.
+	 */
+	protected final void writeLong(final long v) throws IOException{
+		writeInt((int)(v >>> 32));
+		writeInt((int)v);
+	}
+
+	/* ******** */
+	/* ENCODERS */
+	/* ******** */
+
+	/**
+	 * Create the encoder of the given column.
+	 *
+	 * @param column	Description of the column.
+	 * @param binary2	<i>true</i> if written in BINARY2 (i.e. NULL values
+	 *               	are flagged in the null bitmap),
+	 *               	<i>false</i> if written in BINARY (i.e. NULL integers
+	 *               	are represented by the minimum value of their type, as
+	 *               	declared by STIL in the FIELD elements).
+	 *
+	 * @return	The corresponding encoder,
+	 *        	or NULL if this type of column is not supported.
+	 */
+	private static ColumnEncoder createEncoder(final ColumnInfo column, final boolean binary2){
+		final Class<?> clazz = column.getContentClass();
+
+		// Scalars:
+		if (clazz == Boolean.class)
+			return new BooleanEncoder();
+		else if (clazz == Short.class)
+			return new ShortEncoder(binary2 ? 0 : Short.MIN_VALUE);
+		else if (clazz == Integer.class)
+			return new IntEncoder(binary2 ? 0 : Integer.MIN_VALUE);
+		else if (clazz == Long.class)
+			return new LongEncoder(binary2 ? 0 : Long.MIN_VALUE);
+		else if (clazz == Float.class)
+			return new FloatEncoder();
+		else if (clazz == Double.class)
+			return new DoubleEncoder();
+		else if (clazz == Character.class)
+			return new CharEncoder();
+		else if (clazz == String.class)
+			return (column.getElementSize() > 0) ? null : new StringEncoder();
+
+		// One-dimensional arrays:
+		final int[] shape = column.getShape();
+		if (!clazz.isArray() || shape == null || shape.length != 1 || shape[0] == 0 || shape[0] < -1)
+			return null;
+		final ColumnEncoder item;
+		if (clazz == boolean[].class)
+			item = new BooleanEncoder();
+		else if (clazz == short[].class)
+			item = new ShortEncoder(0);
+		else if (clazz == int[].class)
+			item = new IntEncoder(0);
+		else if (clazz == long[].class)
+			item = new LongEncoder(0);
+		else if (clazz == float[].class)
+			item = new FloatEncoder();
+		else if (clazz == double[].class)
+			item = new DoubleEncoder();
+		else
+			return null;
+		return new ArrayEncoder(item, shape[0]);
+	}
+
+	/**
+	 * Encoder of the values of one column.
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	protected static abstract class ColumnEncoder {
+		/**
+		 * Append the given value.
+		 *
+		 * @param value	The value to encode. <i>May be NULL.</i>
+		 * @param out	Where the value must be appended.
+		 *
+		 * @throws IOException	If an error occurs while appending.
+		 */
+		abstract void encode(final Object value, final VOTableBinaryWriter out) throws IOException;
+	}
+
+	/**
+	 * Encoder of a boolean: 'T', 'F' or a space if NULL.
+	 */
+	protected static class BooleanEncoder extends ColumnEncoder {
+		@Override
+		void encode(final Object value, final VOTableBinaryWriter out) throws IOException{
+			if (value instanceof Boolean)
+				out.writeByte(((Boolean)value).booleanValue() ? 'T' : 'F');
+			else
+				out.writeByte(' ');
+		}
+	}
+
+	/**
+	 * Encoder of a 2-bytes integer.
+	 */
+	protected static class ShortEncoder extends ColumnEncoder {
+		/** Value written for NULL. */
+		private final int nullValue;
+
+		/**
+		 * @param nullValue	Value written for NULL.
+		 */
+		ShortEncoder(final int nullValue){
+			this.nullValue = nullValue;
+		}
+
+		@Override
+		void encode(final Object value, final VOTableBinaryWriter out) throws IOException{
+			out.writeShort((value instanceof Number) ? ((Number)value).shortValue() : nullValue);
+		}
+	}
+
+	/**
+	 * Encoder of a 4-bytes integer.
+	 */
+	protected static class IntEncoder extends ColumnEncoder {
+		/** Value written for NULL. */
+		private final int nullValue;
+
+		/**
+		 * @param nullValue	Value written for NULL.
+		 */
+		IntEncoder(final int nullValue){
+			this.nullValue = nullValue;
+		}
+
+		@Override
+		void encode(final Object value, final VOTableBinaryWriter out) throws IOException{
+			out.writeInt((value instanceof Number) ? ((Number)value).intValue() : nullValue);
+		}
+	}
+
+	/**
+	 * Encoder of an 8-bytes integer.
+	 */
+	protected static class LongEncoder extends ColumnEncoder {
+		/** Value written for NULL. */
+		private final long nullValue;
+
+		/**
+		 * @param nullValue	Value written for NULL.
+		 */
+		LongEncoder(final long nullValue){
+			this.nullValue = nullValue;
+		}
+
+		@Override
+		void encode(final Object value, final VOTableBinaryWriter out) throws IOException{
+			out.writeLong((value instanceof Number) ? ((Number)value).longValue() : nullValue);
+		}
+	}
+
+	/**
+	 * Encoder of a single precision floating point number (NaN if NULL).
+	 */
+	protected static class FloatEncoder extends ColumnEncoder {
+		@Override
+		void encode(final Object value, final VOTableBinaryWriter out) throws IOException{
+			out.writeInt(Float.floatToIntBits((value instanceof Number) ? ((Number)value).floatValue() : Float.NaN));
+		}
+	}
+
+	/**
+	 * Encoder of a double precision floating point number (NaN if NULL).
+	 */
+	protected static class DoubleEncoder extends ColumnEncoder {
+		@Override
+		void encode(final Object value, final VOTableBinaryWriter out) throws IOException{
+			out.writeLong(Double.doubleToLongBits((value instanceof Number) ? ((Number)value).doubleValue() : Double.NaN));
+		}
+	}
+
+	/**
+	 * Encoder of a single character (a NUL character if NULL).
+	 *
+	 * <p><i>Note:
+	 * 	As STIL, only the lowest byte of the character is written.
+	 * </i></p>
+	 */
+	protected static class CharEncoder extends ColumnEncoder {
+		@Override
+		void encode(final Object value, final VOTableBinaryWriter out) throws IOException{
+			if (value instanceof Character)
+				out.writeByte(((Character)value).charValue());
+			else if (value instanceof CharSequence && ((CharSequence)value).length() > 0)
+				out.writeByte(((CharSequence)value).charAt(0));
+			else
+				out.writeByte(0);
+		}
+	}
+
+	/**
+	 * Encoder of a variable-length string: its length followed by its
+	 * characters (empty if NULL).
+	 *
+	 * <p><i>Note:
+	 * 	As STIL, only the lowest byte of each character is written.
+	 * </i></p>
+	 */
+	protected static class StringEncoder extends ColumnEncoder {
+		@Override
+		void encode(final Object value, final VOTableBinaryWriter out) throws IOException{
+			if (value == null)
+				out.writeInt(0);
+			else{
+				final String str = value.toString();
+				final int length = str.length();
+				out.writeInt(length);
+				for(int i = 0; i < length; i++)
+					out.writeByte(str.charAt(i));
+			}
+		}
+	}
+
+	/**
+	 * Encoder of a one-dimensional array.
+	 *
+	 * <p>
+	 * 	A variable-length array is preceded by its length (0 if NULL). A
+	 * 	fixed-length array is truncated or padded with the NULL value of its
+	 * 	items.
+	 * </p>
+	 */
+	protected static class ArrayEncoder extends ColumnEncoder {
+		/** Encoder of each item. */
+		private final ColumnEncoder itemEncoder;
+
+		/** Fixed length of the array. <i>-1 if variable.</i> */
+		private final int size;
+
+		/**
+		 * @param itemEncoder	Encoder of each item.
+		 * @param size			Fixed length of the array, or -1 if variable.
+		 */
+		ArrayEncoder(final ColumnEncoder itemEncoder, final int size){
+			this.itemEncoder = itemEncoder;
+			this.size = size;
+		}
+
+		@Override
+		void encode(final Object value, final VOTableBinaryWriter out) throws IOException{
+			final int length = (value != null && value.getClass().isArray()) ? Array.getLength(value) : 0;
+			final int nbItems = (size < 0) ? length : Math.min(length, size);
+			if (size < 0)
+				out.writeInt(length);
+
+			// Write the items (without boxing them for the most common types):
+			if (value instanceof double[] && itemEncoder instanceof DoubleEncoder){
+				final double[] array = (double[])value;
+				for(int i = 0; i < nbItems; i++)
+					out.writeLong(Double.doubleToLongBits(array[i]));
+			}else if (value instanceof float[] && itemEncoder instanceof FloatEncoder){
+				final float[] array = (float[])value;
+				for(int i = 0; i < nbItems; i++)
+					out.writeInt(Float.floatToIntBits(array[i]));
+			}else if (value instanceof int[] && itemEncoder instanceof IntEncoder){
+				final int[] array = (int[])value;
+				for(int i = 0; i < nbItems; i++)
+					out.writeInt(array[i]);
+			}else if (value instanceof long[] && itemEncoder instanceof LongEncoder){
+				final long[] array = (long[])value;
+				for(int i = 0; i < nbItems; i++)
+					out.writeLong(array[i]);
+			}else{
+				for(int i = 0; i < nbItems; i++)
+					itemEncoder.encode(Array.get(value, i), out);
+			}
+
+			// Pad a fixed-length array:
+			for(int i = nbItems; i < size; i++)
+				itemEncoder.encode(null, out);
+		}
+	}
+
+}
@@ -16,7 +16,7 @@ package tap.formatter;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2012-2019 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
  *                       Astronomisches Rechen Institut (ARI)
  */
 
@@ -85,8 +85,16 @@ import uk.ac.starlink.votable.VOTableVersion;
  * 	<i>See {@link DefaultTAPErrorWriter} for more details.</i>
  * </p>
  *
+ * <p>
+ * 	In BINARY and BINARY2, the rows are by default encoded directly by a
+ * 	{@link VOTableBinaryWriter}, without going through the STIL table layer.
+ * 	STIL is still used for the metadata, for the other serializations, and
+ * 	when a column type is not supported natively. This can be disabled with
+ * 	{@link #setNativeBinary(boolean)}.
+ * </p>
+ *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.3 (03/2019)
+ * @version 2.4 (10/2026)
  */
 public class VOTableFormat implements OutputFormat {
 
@@ -105,6 +113,11 @@ public class VOTableFormat implements OutputFormat {
 	/** Short form of the MIME type associated with this format. */
 	protected String shortMimeType;
 
+	/** Whether the BINARY and BINARY2 serializations must be written by
+	 * {@link VOTableBinaryWriter} when all column types are supported.
+	 * @since 2.4 */
+	protected boolean nativeBinary = true;
+
 	/**
 	 * <p>Creates a VOTable formatter.</p>
 	 *
@@ -234,6 +247,37 @@ public class VOTableFormat implements OutputFormat {
 		return votVersion;
 	}
 
+	/**
+	 * Tell whether the BINARY and BINARY2 serializations are written directly
+	 * by {@link VOTableBinaryWriter} (when all column types are supported).
+	 *
+	 * @return	<i>true</i> if natively written (default),
+	 *        	<i>false</i> if always written by STIL.
+	 *
+	 * @since 2.4
+	 */
+	public final boolean isNativeBinary(){
+		return nativeBinary;
+	}
+
+	/**
+	 * Set whether the BINARY and BINARY2 serializations must be written
+	 * directly by {@link VOTableBinaryWriter} (when all column types are
+	 * supported).
+	 *
+	 * <p><i>Note:
+	 * 	This has no effect on the TABLEDATA and FITS serializations.
+	 * </i></p>
+	 *
+	 * @param enabled	<i>true</i> to write them natively,
+	 *               	<i>false</i> to always let STIL write them.
+	 *
+	 * @since 2.4
+	 */
+	public final void setNativeBinary(final boolean enabled){
+		nativeBinary = enabled;
+	}
+
 	@Override
 	public String getDescription(){
 		return null;
@@ -355,15 +399,29 @@ public class VOTableFormat implements OutputFormat {
 			throw new InterruptedException();
 
 		/* Write table element. */
-		voser.writeInlineTableElement(out);
-		execReport.nbRows = table.getNbReadRows();
+		boolean overflow;
+		// in BINARY or BINARY2, encode directly the rows if possible:
+		if (nativeBinary && (votFormat == DataFormat.BINARY || votFormat == DataFormat.BINARY2) && VOTableBinaryWriter.isSupported(colInfos)){
+			VOTableBinaryWriter binWriter = new VOTableBinaryWriter(colInfos, votFormat);
+			voser.writePreDataXML(out);
+			binWriter.writeDataElement(queryResult, execReport.parameters.getMaxRec(), thread, out);
+			voser.writePostDataXML(out);
+			execReport.nbRows = binWriter.getNbRows();
+			overflow = binWriter.lastSequenceOverflowed();
+		}
+		// otherwise, let STIL serialize the whole table:
+		else{
+			voser.writeInlineTableElement(out);
+			execReport.nbRows = table.getNbReadRows();
+			overflow = table.lastSequenceOverflowed();
+		}
 		out.flush();
 
 		if (thread.isInterrupted())
 			throw new InterruptedException();
 
 		/* Check for overflow and write INFO if required. */
-		if (table.lastSequenceOverflowed()){
+		if (overflow){
 			out.write("<INFO name=\"QUERY_STATUS\" value=\"OVERFLOW\"/>");
 			out.newLine();
 		}
@@ -16,7 +16,7 @@ package tap.metadata;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  * 
- * Copyright 2012-2017 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
@@ -69,7 +69,7 @@ import adql.db.DBType.DBDatatype;
  * </p>
  * 
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.1 (07/2017)
+ * @version 2.4 (10/2026)
  */
 public class TAPColumn implements DBColumn {
 
@@ -620,6 +620,7 @@ public class TAPColumn implements DBColumn {
 	 * 
 	 * @return	Its UCD. <i>MAY be NULL</i>
 	 */
+	@Override
 	public final String getUcd(){
 		return ucd;
 	}
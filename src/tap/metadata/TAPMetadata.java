@@ -20,6 +20,7 @@ package tap.metadata;
  *                       Astronomisches Rechen Institut (ARI)
  */
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.ArrayList;
@@ -30,6 +31,8 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -39,12 +42,15 @@ import javax.servlet.http.HttpServletResponse;
 import adql.db.DBTable;
 import adql.db.DBType;
 import adql.db.DBType.DBDatatype;
+import tap.TAPException;
 import tap.metadata.TAPTable.TableType;
+import tap.resource.CachedDocument;
 import tap.resource.Capabilities;
 import tap.resource.TAPResource;
 import tap.resource.VOSIResource;
 import uk.ac.starlink.votable.VOSerializer;
 import uws.ClientAbortException;
+import uws.UWSException;
 import uws.UWSToolBox;
 
 /**
@@ -75,8 +81,18 @@ import uws.UWSToolBox;
  * 	IVOA specification.
  * </p>
  *
+ * <p>
+ * 	The VOSI documents returned by the resource "/tables" (full tableset,
+ * 	tableset with <code>detail=min</code> and single tables - e.g.
+ * 	"/tables/ivoa.ObsCore") are serialized only once and then kept in memory
+ * 	(see {@link CachedDocument}). This cache is automatically invalidated
+ * 	when a schema is added or removed, but not when a table or a column is
+ * 	modified inside a schema already added. In such case,
+ * 	{@link #invalidateCache()} MUST be called once all modifications are done.
+ * </p>
+ *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.1 (11/2017)
+ * @version 2.4 (10/2026)
  */
 public class TAPMetadata implements Iterable<TAPSchema>, VOSIResource, TAPResource {
 
@@ -99,6 +115,17 @@ public class TAPMetadata implements Iterable<TAPSchema>, VOSIResource, TAPResour
 	 * @since 2.1 */
 	protected String xsltPath = null;
 
+	/** Pre-serialized VOSI documents of this metadata set, indexed by
+	 * document key (see {@link #getTableSetDocument(boolean)} and
+	 * {@link #getTableDocument(TAPTable)}).
+	 * @since 2.4 */
+	protected final Map<String,CachedDocument> vosiCache = new ConcurrentHashMap<String,CachedDocument>();
+
+	/** Generation of {@link #vosiCache}, incremented at each call of
+	 * {@link #invalidateCache()}.
+	 * @since 2.4 */
+	protected final AtomicLong cacheGeneration = new AtomicLong();
+
 	/**
 	 * <p>Build an empty list of metadata.</p>
 	 *
@@ -152,6 +179,53 @@ public class TAPMetadata implements Iterable<TAPSchema>, VOSIResource, TAPResour
 			if (xsltPath.isEmpty())
 				xsltPath = null;
 		}
+		invalidateCache();
+	}
+
+	/**
+	 * Forget all VOSI documents serialized so far.
+	 *
+	 * <p>
+	 * 	This function must be called after any modification of the schemas,
+	 * 	tables or columns already declared in this metadata set, so that the
+	 * 	next requests to "/tables" are served with up-to-date documents.
+	 * </p>
+	 *
+	 * @since 2.4
+	 */
+	public void invalidateCache(){
+		cacheGeneration.incrementAndGet();
+		vosiCache.clear();
+	}
+
+	/**
+	 * Get the specified VOSI document from the cache, only if serialized
+	 * since the last call to {@link #invalidateCache()}.
+	 *
+	 * @param key	Key of the document.
+	 *
+	 * @return	The cached document, or NULL if none or out-dated.
+	 *
+	 * @since 2.4
+	 */
+	protected final CachedDocument getCachedDocument(final String key){
+		CachedDocument doc = vosiCache.get(key);
+		return (doc != null && doc.getGeneration() == cacheGeneration.get()) ? doc : null;
+	}
+
+	/**
+	 * Put the given VOSI document in the cache, except if
+	 * {@link #invalidateCache()} has been called since the start of its
+	 * serialization (it may then describe the former metadata).
+	 *
+	 * @param key	Key of the document.
+	 * @param doc	The serialized document.
+	 *
+	 * @since 2.4
+	 */
+	protected final void putCachedDocument(final String key, final CachedDocument doc){
+		if (doc.getGeneration() == cacheGeneration.get())
+			vosiCache.put(key, doc);
 	}
 
 	/**
@@ -164,8 +238,10 @@ public class TAPMetadata implements Iterable<TAPSchema>, VOSIResource, TAPResour
 	 * @param s	The schema to add.
 	 */
 	public final void addSchema(TAPSchema s){
-		if (s != null && s.getADQLName() != null)
+		if (s != null && s.getADQLName() != null){
 			schemas.put(s.getADQLName(), s);
+			invalidateCache();
+		}
 	}
 
 	/**
@@ -298,8 +374,12 @@ public class TAPMetadata implements Iterable<TAPSchema>, VOSIResource, TAPResour
 	public final TAPSchema removeSchema(String schemaName){
 		if (schemaName == null)
 			return null;
-		else
-			return schemas.remove(schemaName);
+		else{
+			TAPSchema removed = schemas.remove(schemaName);
+			if (removed != null)
+				invalidateCache();
+			return removed;
+		}
 	}
 
 	/**
@@ -307,6 +387,7 @@ public class TAPMetadata implements Iterable<TAPSchema>, VOSIResource, TAPResour
 	 */
 	public final void removeAllSchemas(){
 		schemas.clear();
+		invalidateCache();
 	}
 
 	@Override
@@ -621,27 +702,190 @@ public class TAPMetadata implements Iterable<TAPSchema>, VOSIResource, TAPResour
 	@Override
 	public void destroy(){}
 
+	/**
+	 * Write the VOSI document asked by the given request.
+	 *
+	 * <p>The following documents are supported:</p>
+	 * <ul>
+	 * 	<li><b>"/tables"</b>: the whole tableset,</li>
+	 * 	<li><b>"/tables?detail=min"</b>: the tableset without any column and foreign key,</li>
+	 * 	<li><b>"/tables/{table}"</b>: the description of a single table, identified
+	 * 		by its full ADQL name (e.g. "ivoa.ObsCore").</li>
+	 * </ul>
+	 *
+	 * <p><i>Note:
+	 * 	All these documents are served from the cache of this metadata set and
+	 * 	support conditional requests (ETag and Last-Modified).
+	 * </i></p>
+	 *
+	 * @throws TAPException	If the requested table does not exist (HTTP-404).
+	 */
 	@Override
-	public boolean executeResource(HttpServletRequest request, HttpServletResponse response) throws IOException{
-		response.setContentType("application/xml");
-		response.setCharacterEncoding(UWSToolBox.DEFAULT_CHAR_ENCODING);
+	public boolean executeResource(HttpServletRequest request, HttpServletResponse response) throws IOException, TAPException{
+		// Get the document to return:
+		CachedDocument doc;
+		String tableName = getRequestedTable(request);
+		if (tableName != null){
+			TAPTable table = searchTable(tableName);
+			if (table == null)
+				throw new TAPException("Unknown table: \"" + tableName + "\"!", UWSException.NOT_FOUND);
+			doc = getTableDocument(table);
+		}else{
+			Object detail = UWSToolBox.getParameter("detail", request, false);
+			if (detail == null)
+				detail = request.getParameter("detail");
+			doc = getTableSetDocument(detail != null && detail.toString().trim().equalsIgnoreCase("min"));
+		}
 
-		PrintWriter writer = response.getWriter();
-		write(writer);
+		// Write it:
+		doc.write(request, response);
 
 		return false;
 	}
 
 	/**
-	 * Format in XML this whole metadata set and write it in the given writer.
+	 * Extract from the URL of the given request the name of the single table
+	 * to describe.
 	 *
-	 * @param writer	Stream in which the XML representation of this metadata must be written.
+	 * @param request	An HTTP request to this resource.
 	 *
-	 * @throws IOException	If there is any error while writing the XML in the given writer.
+	 * @return	The name of the table following "/tables/",
+	 *        	or NULL if the whole tableset is asked.
 	 *
-	 * @since 2.0
+	 * @since 2.4
 	 */
-	public void write(final PrintWriter writer) throws IOException{
+	protected String getRequestedTable(final HttpServletRequest request){
+		String path = (request == null) ? null : request.getPathInfo();
+		if (path == null)
+			return null;
+
+		// skip the resource name:
+		int start = path.indexOf('/', (path.startsWith("/") ? 1 : 0));
+		if (start < 0)
+			return null;
+
+		String tableName = path.substring(start + 1).trim();
+		if (tableName.endsWith("/"))
+			tableName = tableName.substring(0, tableName.length() - 1);
+		return (tableName.length() == 0) ? null : tableName;
+	}
+
+	/**
+	 * Search for the table whose the full ADQL name (e.g. "schema.table") or
+	 * the raw name (as written in the tableset) is the given one.
+	 *
+	 * <p><i>Note:
+	 * 	The research is first performed case sensitively. If no table matches,
+	 * 	it is then performed case insensitively.
+	 * </i></p>
+	 *
+	 * @param tableName	Name of the table to search.
+	 *
+	 * @return	The corresponding table,
+	 *        	or NULL if no table matches.
+	 *
+	 * @since 2.4
+	 */
+	public TAPTable searchTable(final String tableName){
+		if (tableName == null)
+			return null;
+
+		TAPTable candidate = null;
+		Iterator<TAPTable> it = getTables();
+		while(it.hasNext()){
+			TAPTable t = it.next();
+			if (tableName.equals(t.getFullName()) || tableName.equals(t.getRawName()))
+				return t;
+			else if (candidate == null && (tableName.equalsIgnoreCase(t.getFullName()) || tableName.equalsIgnoreCase(t.getRawName())))
+				candidate = t;
+		}
+		return candidate;
+	}
+
+	/**
+	 * Get the serialized VOSI tableset.
+	 *
+	 * <p>
+	 * 	The document is serialized only once (with {@link #write(PrintWriter, boolean)})
+	 * 	and then kept in memory until the next call to {@link #invalidateCache()}.
+	 * </p>
+	 *
+	 * @param minDetail	<i>true</i> to get the tableset without any column and
+	 *                 	foreign key (i.e. <code>detail=min</code>),
+	 *                 	<i>false</i> to get the full tableset.
+	 *
+	 * @return	The serialized tableset.
+	 *
+	 * @throws IOException	If any error occurs while serializing the tableset.
+	 *
+	 * @since 2.4
+	 */
+	public CachedDocument getTableSetDocument(final boolean minDetail) throws IOException{
+		final String key = (minDetail ? "tableset?detail=min" : "tableset");
+		final long generation = cacheGeneration.get();
+		CachedDocument doc = getCachedDocument(key);
+		if (doc == null){
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			PrintWriter writer = CachedDocument.createWriter(buffer);
+			write(writer, minDetail);
+			writer.close();
+			doc = new CachedDocument(buffer.toByteArray(), "application/xml", generation);
+			putCachedDocument(key, doc);
+		}
+		return doc;
+	}
+
+	/**
+	 * Get the serialized VOSI description of the given table.
+	 *
+	 * <p>
+	 * 	The document is serialized only once (with {@link #writeTable(TAPTable, PrintWriter, boolean)}
+	 * 	inside a root node <code>vosi:table</code>) and then kept in memory
+	 * 	until the next call to {@link #invalidateCache()}.
+	 * </p>
+	 *
+	 * @param table	The table to describe.
+	 *
+	 * @return	The serialized table description.
+	 *
+	 * @throws IOException	If any error occurs while serializing the table.
+	 *
+	 * @since 2.4
+	 */
+	public CachedDocument getTableDocument(final TAPTable table) throws IOException{
+		final String key = "table:" + table.getFullName();
+		final long generation = cacheGeneration.get();
+		CachedDocument doc = getCachedDocument(key);
+		if (doc == null){
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			PrintWriter writer = CachedDocument.createWriter(buffer);
+
+			writeXMLHeader(writer);
+
+			writer.print("<vosi:table xmlns:vosi=\"http://www.ivoa.net/xml/VOSITables/v1.0\" xmlns:vod=\"http://www.ivoa.net/xml/VODataService/v1.1\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xsi:schemaLocation=\"http://www.ivoa.net/xml/VODataService/v1.1 http://www.ivoa.net/xml/VODataService/v1.1 http://www.ivoa.net/xml/VOSITables/v1.0 http://vo.ari.uni-heidelberg.de/docs/schemata/VOSITables-v1.0.xsd\"");
+			if (table.getType() != null && table.getType() != TableType.table)
+				writer.print(VOSerializer.formatAttribute("type", table.getType().toString()));
+			writer.println(">");
+
+			writeTableContent(table, writer, false);
+
+			writer.println("</vosi:table>");
+			writer.close();
+
+			doc = new CachedDocument(buffer.toByteArray(), "application/xml", generation);
+			putCachedDocument(key, doc);
+		}
+		return doc;
+	}
+
+	/**
+	 * Write the XML declaration and, if any, the XSLT style-sheet declaration.
+	 *
+	 * @param writer	Stream in which the XML header must be written.
+	 *
+	 * @since 2.4
+	 */
+	protected void writeXMLHeader(final PrintWriter writer){
 		writer.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
 
 		if (xsltPath != null){
@@ -649,6 +893,34 @@ public class TAPMetadata implements Iterable<TAPSchema>, VOSIResource, TAPResour
 			writer.print(VOSerializer.formatAttribute("href", xsltPath));
 			writer.println("?>");
 		}
+	}
+
+	/**
+	 * Format in XML this whole metadata set and write it in the given writer.
+	 *
+	 * @param writer	Stream in which the XML representation of this metadata must be written.
+	 *
+	 * @throws IOException	If there is any error while writing the XML in the given writer.
+	 *
+	 * @since 2.0
+	 */
+	public void write(final PrintWriter writer) throws IOException{
+		write(writer, false);
+	}
+
+	/**
+	 * Format in XML this whole metadata set and write it in the given writer.
+	 *
+	 * @param writer	Stream in which the XML representation of this metadata must be written.
+	 * @param minDetail	<i>true</i> to write only schemas and tables (i.e. no column and no foreign key),
+	 *                 	<i>false</i> to write everything.
+	 *
+	 * @throws IOException	If there is any error while writing the XML in the given writer.
+	 *
+	 * @since 2.4
+	 */
+	public void write(final PrintWriter writer, final boolean minDetail) throws IOException{
+		writeXMLHeader(writer);
 
 		/* TODO The XSD schema for VOSITables should be fixed soon! This schema should be changed here before the library is released!
 		 * Note: the XSD schema at http://www.ivoa.net/xml/VOSITables/v1.0 contains an incorrect targetNamespace ("http://www.ivoa.net/xml/VOSICapabilities/v1.0").
@@ -656,7 +928,7 @@ public class TAPMetadata implements Iterable<TAPSchema>, VOSIResource, TAPResour
 		writer.println("<vosi:tableset xmlns:vosi=\"http://www.ivoa.net/xml/VOSITables/v1.0\" xmlns:vod=\"http://www.ivoa.net/xml/VODataService/v1.1\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xsi:schemaLocation=\"http://www.ivoa.net/xml/VODataService/v1.1 http://www.ivoa.net/xml/VODataService/v1.1 http://www.ivoa.net/xml/VOSITables/v1.0 http://vo.ari.uni-heidelberg.de/docs/schemata/VOSITables-v1.0.xsd\">");
 
 		for(TAPSchema s : schemas.values())
-			writeSchema(s, writer);
+			writeSchema(s, writer, minDetail);
 
 		writer.println("</vosi:tableset>");
 
@@ -689,6 +961,24 @@ public class TAPMetadata implements Iterable<TAPSchema>, VOSIResource, TAPResour
 	 * @see #writeTable(TAPTable, PrintWriter)
 	 */
 	protected void writeSchema(TAPSchema s, PrintWriter writer) throws IOException{
+		writeSchema(s, writer, false);
+	}
+
+	/**
+	 * Format in XML the given schema and then write it in the given writer.
+	 *
+	 * @param s			The schema to format and to write in XML.
+	 * @param writer	Output in which the XML serialization of the given schema must be written.
+	 * @param minDetail	<i>true</i> to write tables without their columns and foreign keys,
+	 *                 	<i>false</i> to write everything.
+	 *
+	 * @throws IOException	If the connection with the HTTP client has been either canceled or closed for another reason.
+	 *
+	 * @see #writeTable(TAPTable, PrintWriter, boolean)
+	 *
+	 * @since 2.4
+	 */
+	protected void writeSchema(TAPSchema s, PrintWriter writer, boolean minDetail) throws IOException{
 		final String prefix = "\t\t";
 		writer.println("\t<schema>");
 
@@ -701,7 +991,7 @@ public class TAPMetadata implements Iterable<TAPSchema>, VOSIResource, TAPResour
 		for(TAPTable t : s){
 
 			// write each table:
-			nbColumns += writeTable(t, writer);
+			nbColumns += writeTable(t, writer, minDetail);
 
 			// flush the PrintWriter buffer when at least 30 tables have been read:
 			/* Note: the buffer may have already been flushed before automatically,
@@ -752,8 +1042,22 @@ public class TAPMetadata implements Iterable<TAPSchema>, VOSIResource, TAPResour
 	 * @return	The total number of written columns.
 	 */
 	protected int writeTable(TAPTable t, PrintWriter writer){
-		final String prefix = "\t\t\t";
+		return writeTable(t, writer, false);
+	}
 
+	/**
+	 * Format in XML the given table and then write it in the given writer.
+	 *
+	 * @param t			The table to format and to write in XML.
+	 * @param writer	Output in which the XML serialization of the given table must be written.
+	 * @param minDetail	<i>true</i> to write the table without its columns and foreign keys,
+	 *                 	<i>false</i> to write everything.
+	 *
+	 * @return	The total number of written columns.
+	 *
+	 * @since 2.4
+	 */
+	protected int writeTable(TAPTable t, PrintWriter writer, boolean minDetail){
 		writer.print("\t\t<table");
 		if (t.getType() != null){
 			if (t.getType() != TableType.table)
@@ -761,11 +1065,37 @@ public class TAPMetadata implements Iterable<TAPSchema>, VOSIResource, TAPResour
 		}
 		writer.println(">");
 
+		int nbCol = writeTableContent(t, writer, minDetail);
+
+		writer.println("\t\t</table>");
+
+		return nbCol;
+	}
+
+	/**
+	 * Write the content of the XML node describing the given table
+	 * (i.e. everything except the opening and closing tags).
+	 *
+	 * @param t			The table to format and to write in XML.
+	 * @param writer	Output in which the XML serialization of the given table must be written.
+	 * @param minDetail	<i>true</i> to write the table without its columns and foreign keys,
+	 *                 	<i>false</i> to write everything.
+	 *
+	 * @return	The total number of written columns.
+	 *
+	 * @since 2.4
+	 */
+	protected int writeTableContent(TAPTable t, PrintWriter writer, boolean minDetail){
+		final String prefix = "\t\t\t";
+
 		writeAtt(prefix, "name", t.getRawName(), false, writer);
 		writeAtt(prefix, "title", t.getTitle(), true, writer);
 		writeAtt(prefix, "description", t.getDescription(), true, writer);
 		writeAtt(prefix, "utype", t.getUtype(), true, writer);
 
+		if (minDetail)
+			return 0;
+
 		int nbCol = 0;
 		Iterator<TAPColumn> itCols = t.getColumns();
 		while(itCols.hasNext()){
@@ -777,8 +1107,6 @@ public class TAPMetadata implements Iterable<TAPSchema>, VOSIResource, TAPResour
 		while(itFK.hasNext())
 			writeForeignKey(itFK.next(), writer);
 
-		writer.println("\t\t</table>");
-
 		return nbCol;
 	}
 
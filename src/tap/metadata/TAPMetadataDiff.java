@@ -0,0 +1,302 @@
+package tap.metadata;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Differences between two versions of the metadata of a TAP service.
+ *
+ * <p>
+ * 	Schemas and tables are identified by their ADQL name (case
+ * 	insensitively). A table is said to be modified if any of its own
+ * 	metadata (DB name, type, title, description, utype) or any metadata of
+ * 	one of its columns (names, datatype, description, unit, UCD, utype,
+ * 	flags) or of its foreign keys is different. A schema is said to be
+ * 	modified if its own metadata has changed.
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class TAPMetadataDiff {
+
+	/** ADQL names of the added schemas. */
+	protected final List<String> addedSchemas = new ArrayList<String>();
+	/** ADQL names of the removed schemas. */
+	protected final List<String> removedSchemas = new ArrayList<String>();
+	/** ADQL names of the schemas whose description has changed. */
+	protected final List<String> modifiedSchemas = new ArrayList<String>();
+
+	/** Full ADQL names of the added tables. */
+	protected final List<String> addedTables = new ArrayList<String>();
+	/** Full ADQL names of the removed tables. */
+	protected final List<String> removedTables = new ArrayList<String>();
+	/** Full ADQL names of the modified tables. */
+	protected final List<String> modifiedTables = new ArrayList<String>();
+
+	/**
+	 * Compute the differences between the two given metadata sets.
+	 *
+	 * @param oldMeta	Former metadata. <i>May be NULL.</i>
+	 * @param newMeta	New metadata. <i>May be NULL.</i>
+	 */
+	public TAPMetadataDiff(final TAPMetadata oldMeta, final TAPMetadata newMeta){
+		Map<String, TAPSchema> oldSchemas = indexSchemas(oldMeta);
+		Map<String, TAPSchema> newSchemas = indexSchemas(newMeta);
+		Map<String, TAPTable> oldTables = indexTables(oldMeta);
+		Map<String, TAPTable> newTables = indexTables(newMeta);
+
+		// Schemas:
+		for(Map.Entry<String, TAPSchema> entry : newSchemas.entrySet()){
+			TAPSchema oldSchema = oldSchemas.get(entry.getKey());
+			if (oldSchema == null)
+				addedSchemas.add(entry.getValue().getADQLName());
+			else if (!sameSchema(oldSchema, entry.getValue()))
+				modifiedSchemas.add(entry.getValue().getADQLName());
+		}
+		for(Map.Entry<String, TAPSchema> entry : oldSchemas.entrySet()){
+			if (!newSchemas.containsKey(entry.getKey()))
+				removedSchemas.add(entry.getValue().getADQLName());
+		}
+
+		// Tables:
+		for(Map.Entry<String, TAPTable> entry : newTables.entrySet()){
+			TAPTable oldTable = oldTables.get(entry.getKey());
+			if (oldTable == null)
+				addedTables.add(entry.getValue().getFullName());
+			else if (!sameTable(oldTable, entry.getValue()))
+				modifiedTables.add(entry.getValue().getFullName());
+		}
+		for(Map.Entry<String, TAPTable> entry : oldTables.entrySet()){
+			if (!newTables.containsKey(entry.getKey()))
+				removedTables.add(entry.getValue().getFullName());
+		}
+	}
+
+	/**
+	 * Tell whether the two compared metadata sets are identical.
+	 *
+	 * @return	<i>true</i> if nothing has been added, removed or modified,
+	 *        	<i>false</i> otherwise.
+	 */
+	public final boolean isEmpty(){
+		return addedSchemas.isEmpty() && removedSchemas.isEmpty() && modifiedSchemas.isEmpty() && addedTables.isEmpty() && removedTables.isEmpty() && modifiedTables.isEmpty();
+	}
+
+	/**
+	 * Get the ADQL names of the added schemas.
+	 *
+	 * @return	Added schemas. <i>Never NULL.</i>
+	 */
+	public final List<String> getAddedSchemas(){
+		return Collections.unmodifiableList(addedSchemas);
+	}
+
+	/**
+	 * Get the ADQL names of the removed schemas.
+	 *
+	 * @return	Removed schemas. <i>Never NULL.</i>
+	 */
+	public final List<String> getRemovedSchemas(){
+		return Collections.unmodifiableList(removedSchemas);
+	}
+
+	/**
+	 * Get the ADQL names of the schemas whose own metadata have changed.
+	 *
+	 * @return	Modified schemas. <i>Never NULL.</i>
+	 */
+	public final List<String> getModifiedSchemas(){
+		return Collections.unmodifiableList(modifiedSchemas);
+	}
+
+	/**
+	 * Get the full ADQL names of the added tables.
+	 *
+	 * @return	Added tables. <i>Never NULL.</i>
+	 */
+	public final List<String> getAddedTables(){
+		return Collections.unmodifiableList(addedTables);
+	}
+
+	/**
+	 * Get the full ADQL names of the removed tables.
+	 *
+	 * @return	Removed tables. <i>Never NULL.</i>
+	 */
+	public final List<String> getRemovedTables(){
+		return Collections.unmodifiableList(removedTables);
+	}
+
+	/**
+	 * Get the full ADQL names of the modified tables.
+	 *
+	 * @return	Modified tables. <i>Never NULL.</i>
+	 */
+	public final List<String> getModifiedTables(){
+		return Collections.unmodifiableList(modifiedTables);
+	}
+
+	@Override
+	public String toString(){
+		if (isEmpty())
+			return "no change";
+		StringBuffer buf = new StringBuffer();
+		append(buf, "added schemas", addedSchemas);
+		append(buf, "removed schemas", removedSchemas);
+		append(buf, "modified schemas", modifiedSchemas);
+		append(buf, "added tables", addedTables);
+		append(buf, "removed tables", removedTables);
+		append(buf, "modified tables", modifiedTables);
+		return buf.toString();
+	}
+
+	/**
+	 * Append the given list of names, if not empty, in the given buffer.
+	 *
+	 * @param buf		Buffer to complete.
+	 * @param label		Label of the list.
+	 * @param names		Names to append.
+	 */
+	private static void append(final StringBuffer buf, final String label, final List<String> names){
+		if (names.isEmpty())
+			return;
+		if (buf.length() > 0)
+			buf.append(" ; ");
+		buf.append(label).append(": ");
+		for(int i = 0; i < names.size(); i++)
+			buf.append((i > 0) ? ", " : "").append(names.get(i));
+	}
+
+	/**
+	 * Index all schemas of the given metadata by their ADQL name (in lower
+	 * case).
+	 *
+	 * @param meta	Metadata to index. <i>May be NULL.</i>
+	 *
+	 * @return	The index.
+	 */
+	protected static Map<String, TAPSchema> indexSchemas(final TAPMetadata meta){
+		Map<String, TAPSchema> index = new LinkedHashMap<String, TAPSchema>();
+		if (meta != null){
+			for(TAPSchema schema : meta)
+				index.put(schema.getADQLName().toLowerCase(), schema);
+		}
+		return index;
+	}
+
+	/**
+	 * Index all tables of the given metadata by their full ADQL name (in lower
+	 * case).
+	 *
+	 * @param meta	Metadata to index. <i>May be NULL.</i>
+	 *
+	 * @return	The index.
+	 */
+	protected static Map<String, TAPTable> indexTables(final TAPMetadata meta){
+		Map<String, TAPTable> index = new LinkedHashMap<String, TAPTable>();
+		if (meta != null){
+			for(TAPSchema schema : meta){
+				for(TAPTable table : schema)
+					index.put(table.getFullName().toLowerCase(), table);
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * Tell whether the own metadata of the two given schemas are identical.
+	 *
+	 * @param s1	A schema.
+	 * @param s2	Another schema.
+	 *
+	 * @return	<i>true</i> if identical, <i>false</i> otherwise.
+	 */
+	protected boolean sameSchema(final TAPSchema s1, final TAPSchema s2){
+		return same(s1.getADQLName(), s2.getADQLName()) && same(s1.getDBName(), s2.getDBName()) && same(s1.getTitle(), s2.getTitle()) && same(s1.getDescription(), s2.getDescription()) && same(s1.getUtype(), s2.getUtype()) && s1.getIndex() == s2.getIndex();
+	}
+
+	/**
+	 * Tell whether the two given tables are identical, columns and foreign
+	 * keys included.
+	 *
+	 * @param t1	A table.
+	 * @param t2	Another table.
+	 *
+	 * @return	<i>true</i> if identical, <i>false</i> otherwise.
+	 */
+	protected boolean sameTable(final TAPTable t1, final TAPTable t2){
+		if (!(same(t1.getADQLName(), t2.getADQLName()) && same(t1.getDBName(), t2.getDBName()) && same(t1.getDBSchemaName(), t2.getDBSchemaName()) && t1.getType() == t2.getType() && same(t1.getTitle(), t2.getTitle()) && same(t1.getDescription(), t2.getDescription()) && same(t1.getUtype(), t2.getUtype()) && t1.getIndex() == t2.getIndex()))
+			return false;
+
+		// Columns (in the same order):
+		if (t1.getNbColumns() != t2.getNbColumns())
+			return false;
+		Iterator<TAPColumn> it1 = t1.getColumns(), it2 = t2.getColumns();
+		while(it1.hasNext()){
+			if (!sameColumn(it1.next(), it2.next()))
+				return false;
+		}
+
+		// Foreign keys:
+		if (t1.getNbForeignKeys() != t2.getNbForeignKeys())
+			return false;
+		Iterator<TAPForeignKey> fk1 = t1.getForeignKeys(), fk2 = t2.getForeignKeys();
+		while(fk1.hasNext()){
+			TAPForeignKey k1 = fk1.next(), k2 = fk2.next();
+			if (!(same(k1.getKeyId(), k2.getKeyId()) && same(k1.getTargetTable().getFullName(), k2.getTargetTable().getFullName()) && same(k1.getDescription(), k2.getDescription()) && same(k1.getUtype(), k2.getUtype()) && k1.getNbRelations() == k2.getNbRelations()))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Tell whether the two given columns are identical.
+	 *
+	 * @param c1	A column.
+	 * @param c2	Another column.
+	 *
+	 * @return	<i>true</i> if identical, <i>false</i> otherwise.
+	 */
+	protected boolean sameColumn(final TAPColumn c1, final TAPColumn c2){
+		return same(c1.getADQLName(), c2.getADQLName()) && same(c1.getDBName(), c2.getDBName()) && same(String.valueOf(c1.getDatatype()), String.valueOf(c2.getDatatype())) && same(c1.getDescription(), c2.getDescription()) && same(c1.getUnit(), c2.getUnit()) && same(c1.getUcd(), c2.getUcd()) && same(c1.getUtype(), c2.getUtype()) && c1.isPrincipal() == c2.isPrincipal() && c1.isIndexed() == c2.isIndexed() && c1.isNullable() == c2.isNullable() && c1.isStd() == c2.isStd() && c1.getIndex() == c2.getIndex() && same((c1.getCoosys() == null) ? null : c1.getCoosys().getId(), (c2.getCoosys() == null) ? null : c2.getCoosys().getId());
+	}
+
+	/**
+	 * Compare two strings, any of them being possibly NULL.
+	 *
+	 * @param s1	A string.
+	 * @param s2	Another string.
+	 *
+	 * @return	<i>true</i> if both are NULL or equal, <i>false</i> otherwise.
+	 */
+	protected static boolean same(final String s1, final String s2){
+		return (s1 == null) ? (s2 == null) : s1.equals(s2);
+	}
+
+}
@@ -0,0 +1,70 @@
+package tap.metrics;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metric whose the value can only increase (e.g. number of executed queries,
+ * number of written rows).
+ *
+ * <p>
+ * 	Its value is updated without any lock, so that it can be used on the
+ * 	paths it measures without slowing them.
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ *
+ * @see MetricsRegistry#counter(String)
+ */
+public class Counter {
+
+	/** Current value. */
+	private final AtomicLong value = new AtomicLong(0);
+
+	/**
+	 * Increment this counter by 1.
+	 */
+	public void increment(){
+		value.incrementAndGet();
+	}
+
+	/**
+	 * Increment this counter by the given amount.
+	 *
+	 * @param amount	Amount to add. <i>Ignored if negative.</i>
+	 */
+	public void add(final long amount){
+		if (amount > 0)
+			value.addAndGet(amount);
+	}
+
+	/**
+	 * Get the current value of this counter.
+	 *
+	 * @return	Current value.
+	 */
+	public long get(){
+		return value.get();
+	}
+
+}
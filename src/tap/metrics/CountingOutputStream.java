@@ -0,0 +1,68 @@
+package tap.metrics;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Output stream counting the bytes written into another one.
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class CountingOutputStream extends FilterOutputStream {
+
+	/** Number of bytes written so far. */
+	protected long count = 0;
+
+	/**
+	 * Wrap the given stream.
+	 *
+	 * @param out	The stream in which bytes are really written.
+	 */
+	public CountingOutputStream(final OutputStream out){
+		super(out);
+	}
+
+	@Override
+	public void write(final int b) throws IOException{
+		out.write(b);
+		count++;
+	}
+
+	@Override
+	public void write(final byte[] b, final int off, final int len) throws IOException{
+		out.write(b, off, len);
+		count += len;
+	}
+
+	/**
+	 * Get the number of bytes written so far.
+	 *
+	 * @return	Number of written bytes.
+	 */
+	public final long getCount(){
+		return count;
+	}
+
+}
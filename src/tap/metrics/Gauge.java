@@ -0,0 +1,51 @@
+package tap.metrics;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+/**
+ * Metric whose the value is read only when the metrics are exported (e.g.
+ * number of running jobs, number of entries in a cache).
+ *
+ * <p>
+ * 	A gauge does not cost anything to the measured component: it is just
+ * 	asked for its current value by {@link MetricsRegistry}.
+ * </p>
+ *
+ * <p><i>Note:
+ * 	{@link #getValue()} may be called at any time by any thread (e.g. the
+ * 	JMX server). So, it must be thread-safe and return quickly.
+ * </i></p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ *
+ * @see MetricsRegistry#registerGauge(String, Gauge)
+ */
+public interface Gauge {
+
+	/**
+	 * Get the current value of this gauge.
+	 *
+	 * @return	Current value.
+	 */
+	public long getValue();
+
+}
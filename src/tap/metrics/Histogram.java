@@ -0,0 +1,162 @@
+package tap.metrics;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Distribution of measured values (e.g. durations, sizes), counted in fixed
+ * buckets.
+ *
+ * <p>
+ * 	Each bucket counts the values lower or equal to its upper bound and
+ * 	greater than the bound of the previous bucket. A last bucket counts the
+ * 	values greater than the last bound. The sum, the number and the maximum of
+ * 	all values are also kept.
+ * </p>
+ *
+ * <p>
+ * 	All updates are done without any lock (atomic operations only), so that
+ * 	an observation never waits for another one.
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ *
+ * @see MetricsRegistry#histogram(String, long[])
+ */
+public class Histogram {
+
+	/** Upper bounds (in milliseconds) adapted to the measure of durations. */
+	public final static long[] DURATION_BOUNDS = new long[]{ 1, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, 300000, 1800000 };
+
+	/** Upper bounds (in bytes) adapted to the measure of sizes. */
+	public final static long[] SIZE_BOUNDS = new long[]{ 1024L, 10240L, 102400L, 1048576L, 10485760L, 104857600L, 1073741824L, 10737418240L };
+
+	/** Upper bound of each bucket, in ascending order. */
+	protected final long[] bounds;
+
+	/** Number of values in each bucket.
+	 * <i>The last one is for the values greater than the last bound.</i> */
+	protected final AtomicLongArray buckets;
+
+	/** Number of observed values. */
+	protected final AtomicLong count = new AtomicLong(0);
+
+	/** Sum of all observed values. */
+	protected final AtomicLong sum = new AtomicLong(0);
+
+	/** Greatest observed value. */
+	protected final AtomicLong max = new AtomicLong(0);
+
+	/**
+	 * Build an empty histogram.
+	 *
+	 * @param bounds	Upper bound of each bucket. <i>They are sorted if
+	 *              	needed.</i>
+	 *
+	 * @throws NullPointerException	If the given bounds are NULL.
+	 */
+	public Histogram(final long[] bounds) throws NullPointerException{
+		this.bounds = Arrays.copyOf(bounds, bounds.length);
+		Arrays.sort(this.bounds);
+		buckets = new AtomicLongArray(this.bounds.length + 1);
+	}
+
+	/**
+	 * Add the given value in this histogram.
+	 *
+	 * @param value	The value to add. <i>Ignored if negative.</i>
+	 */
+	public void observe(final long value){
+		if (value < 0)
+			return;
+
+		// Find the bucket:
+		int index = Arrays.binarySearch(bounds, value);
+		if (index < 0)
+			index = -index - 1;
+		buckets.incrementAndGet(index);
+
+		// Update the statistics:
+		count.incrementAndGet();
+		sum.addAndGet(value);
+		long currentMax = max.get();
+		while(value > currentMax && !max.compareAndSet(currentMax, value))
+			currentMax = max.get();
+	}
+
+	/**
+	 * Get the upper bounds of the buckets.
+	 *
+	 * @return	A copy of the bounds.
+	 */
+	public long[] getBounds(){
+		return Arrays.copyOf(bounds, bounds.length);
+	}
+
+	/**
+	 * Get the number of values of each bucket.
+	 *
+	 * <p><i>Note:
+	 * 	The returned array has one more item than the bounds: the number of
+	 * 	values greater than the last bound.
+	 * </i></p>
+	 *
+	 * @return	A copy of the bucket counts.
+	 */
+	public long[] getBucketCounts(){
+		long[] counts = new long[buckets.length()];
+		for(int i = 0; i < counts.length; i++)
+			counts[i] = buckets.get(i);
+		return counts;
+	}
+
+	/**
+	 * Get the number of observed values.
+	 *
+	 * @return	Number of values.
+	 */
+	public long getCount(){
+		return count.get();
+	}
+
+	/**
+	 * Get the sum of all observed values.
+	 *
+	 * @return	Sum of the values.
+	 */
+	public long getSum(){
+		return sum.get();
+	}
+
+	/**
+	 * Get the greatest observed value.
+	 *
+	 * @return	Maximum value, or 0 if no value has been observed.
+	 */
+	public long getMax(){
+		return max.get();
+	}
+
+}
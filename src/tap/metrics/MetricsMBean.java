@@ -0,0 +1,112 @@
+package tap.metrics;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanException;
+import javax.management.MBeanInfo;
+import javax.management.ReflectionException;
+
+/**
+ * Read-only JMX view of a {@link MetricsRegistry}.
+ *
+ * <p>
+ * 	Each value returned by {@link MetricsRegistry#getValues()} is exposed as
+ * 	an attribute of type {@link Long}. Since metrics may be created at any
+ * 	time, the list of attributes is built again each time
+ * 	{@link #getMBeanInfo()} is called.
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class MetricsMBean implements DynamicMBean {
+
+	/** The exposed registry. */
+	protected final MetricsRegistry registry;
+
+	/**
+	 * Build a JMX view of the given registry.
+	 *
+	 * @param registry	The registry to expose.
+	 *
+	 * @throws NullPointerException	If the given registry is NULL.
+	 */
+	public MetricsMBean(final MetricsRegistry registry) throws NullPointerException{
+		if (registry == null)
+			throw new NullPointerException("Missing metrics registry! Impossible to expose it through JMX.");
+		this.registry = registry;
+	}
+
+	@Override
+	public Object getAttribute(final String attribute) throws AttributeNotFoundException, MBeanException, ReflectionException{
+		Long value = registry.getValues().get(attribute);
+		if (value == null)
+			throw new AttributeNotFoundException("Unknown metric: \"" + attribute + "\"!");
+		return value;
+	}
+
+	@Override
+	public AttributeList getAttributes(final String[] attributes){
+		Map<String,Long> values = registry.getValues();
+		AttributeList list = new AttributeList();
+		if (attributes != null){
+			for(String name : attributes){
+				Long value = values.get(name);
+				if (value != null)
+					list.add(new Attribute(name, value));
+			}
+		}
+		return list;
+	}
+
+	@Override
+	public void setAttribute(final Attribute attribute) throws AttributeNotFoundException{
+		throw new AttributeNotFoundException("All metrics are read-only!");
+	}
+
+	@Override
+	public AttributeList setAttributes(final AttributeList attributes){
+		return new AttributeList();
+	}
+
+	@Override
+	public Object invoke(final String actionName, final Object[] params, final String[] signature) throws MBeanException, ReflectionException{
+		throw new ReflectionException(new NoSuchMethodException(actionName), "No operation is available on the metrics!");
+	}
+
+	@Override
+	public MBeanInfo getMBeanInfo(){
+		Map<String,Long> values = registry.getValues();
+		MBeanAttributeInfo[] attributes = new MBeanAttributeInfo[values.size()];
+		int i = 0;
+		for(String name : values.keySet())
+			attributes[i++] = new MBeanAttributeInfo(name, Long.class.getName(), name, true, false, false);
+		return new MBeanInfo(getClass().getName(), "Metrics of the TAP service.", attributes, null, null, null);
+	}
+
+}
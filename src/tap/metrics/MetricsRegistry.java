@@ -0,0 +1,337 @@
+package tap.metrics;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Set of named metrics: {@link Counter}s, {@link Histogram}s and
+ * {@link Gauge}s.
+ *
+ * <p>
+ * 	A metric is identified by its name, which may end with a list of labels
+ * 	between braces (e.g. <code>tap_step_duration_ms{step="parsing"}</code>).
+ * 	All metrics with the same name (labels apart) form a family and must have
+ * 	the same type.
+ * </p>
+ *
+ * <p>
+ * 	Counters and histograms are created at their first use (see
+ * 	{@link #counter(String)} and {@link #histogram(String, long[])}) ; then,
+ * 	getting and updating them never takes any lock. Gauges must be explicitly
+ * 	registered (see {@link #registerGauge(String, Gauge)}).
+ * </p>
+ *
+ * <p>
+ * 	All metrics can be exported in the text format of Prometheus (see
+ * 	{@link #writeText(Writer)}), or through JMX (see {@link MetricsMBean}).
+ * </p>
+ *
+ * <h3>Default registry</h3>
+ * <p>
+ * 	The library records its metrics in the default registry (see
+ * 	{@link #getDefault()}). By default, there is none: nothing is recorded and
+ * 	the measured paths are not slowed at all. It is created by the TAP resource
+ * 	{@link tap.resource.Metrics}, but it may also be set explicitly (see
+ * 	{@link #setDefault(MetricsRegistry)}), for instance with an extension of
+ * 	this class forwarding the metrics to another monitoring system.
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class MetricsRegistry {
+
+	/** Registry in which the library records its metrics.
+	 * <i>If NULL, nothing is recorded.</i> */
+	private static volatile MetricsRegistry defaultRegistry = null;
+
+	/** All counters, indexed by name. */
+	protected final ConcurrentHashMap<String,Counter> counters = new ConcurrentHashMap<String,Counter>();
+
+	/** All histograms, indexed by name. */
+	protected final ConcurrentHashMap<String,Histogram> histograms = new ConcurrentHashMap<String,Histogram>();
+
+	/** All gauges, indexed by name. */
+	protected final ConcurrentHashMap<String,Gauge> gauges = new ConcurrentHashMap<String,Gauge>();
+
+	/**
+	 * Get the registry in which the library records its metrics.
+	 *
+	 * @return	The default registry,
+	 *        	or NULL if no metric must be recorded.
+	 */
+	public static MetricsRegistry getDefault(){
+		return defaultRegistry;
+	}
+
+	/**
+	 * Set the registry in which the library records its metrics.
+	 *
+	 * <p><i>Note:
+	 * 	The components already using the previous registry (e.g. a running
+	 * 	query) keep using it until their end.
+	 * </i></p>
+	 *
+	 * @param registry	The new default registry.
+	 *                	<i>If NULL, no metric will be recorded anymore.</i>
+	 */
+	public static void setDefault(final MetricsRegistry registry){
+		defaultRegistry = registry;
+	}
+
+	/**
+	 * Get the default registry, after having created it if there is none.
+	 *
+	 * @return	The default registry.
+	 */
+	public static synchronized MetricsRegistry enableDefault(){
+		if (defaultRegistry == null)
+			defaultRegistry = new MetricsRegistry();
+		return defaultRegistry;
+	}
+
+	/**
+	 * Get the specified counter, after having created it if it does not
+	 * exist yet.
+	 *
+	 * @param name	Name of the counter (with its labels, if any).
+	 *
+	 * @return	The corresponding counter.
+	 */
+	public Counter counter(final String name){
+		Counter counter = counters.get(name);
+		if (counter == null){
+			counter = new Counter();
+			Counter previous = counters.putIfAbsent(name, counter);
+			if (previous != null)
+				counter = previous;
+		}
+		return counter;
+	}
+
+	/**
+	 * Get the specified histogram, after having created it if it does not
+	 * exist yet.
+	 *
+	 * @param name		Name of the histogram (with its labels, if any).
+	 * @param bounds	Upper bound of each bucket, in case the histogram must
+	 *              	be created (e.g. {@link Histogram#DURATION_BOUNDS}).
+	 *
+	 * @return	The corresponding histogram.
+	 */
+	public Histogram histogram(final String name, final long[] bounds){
+		Histogram histogram = histograms.get(name);
+		if (histogram == null){
+			histogram = new Histogram(bounds);
+			Histogram previous = histograms.putIfAbsent(name, histogram);
+			if (previous != null)
+				histogram = previous;
+		}
+		return histogram;
+	}
+
+	/**
+	 * Register a gauge.
+	 *
+	 * @param name	Name of the gauge (with its labels, if any).
+	 * @param gauge	The gauge. <i>If NULL, the gauge with this name is
+	 *             	removed.</i>
+	 */
+	public void registerGauge(final String name, final Gauge gauge){
+		if (gauge == null)
+			gauges.remove(name);
+		else
+			gauges.put(name, gauge);
+	}
+
+	/**
+	 * Remove the specified gauge.
+	 *
+	 * @param name	Name of the gauge to remove.
+	 */
+	public void unregisterGauge(final String name){
+		gauges.remove(name);
+	}
+
+	/**
+	 * Get the current value of all metrics, as a flat list.
+	 *
+	 * <p>
+	 * 	Counters and gauges give a single value. A histogram gives three
+	 * 	values whose the name is suffixed by <code>_count</code>,
+	 * 	<code>_sum</code> and <code>_max</code>.
+	 * </p>
+	 *
+	 * @return	The value of all metrics, sorted by name.
+	 */
+	public Map<String,Long> getValues(){
+		TreeMap<String,Long> values = new TreeMap<String,Long>();
+		for(Map.Entry<String,Counter> entry : counters.entrySet())
+			values.put(entry.getKey(), entry.getValue().get());
+		for(Map.Entry<String,Gauge> entry : gauges.entrySet())
+			values.put(entry.getKey(), getValue(entry.getValue()));
+		for(Map.Entry<String,Histogram> entry : histograms.entrySet()){
+			values.put(seriesName(entry.getKey(), "_count", null), entry.getValue().getCount());
+			values.put(seriesName(entry.getKey(), "_sum", null), entry.getValue().getSum());
+			values.put(seriesName(entry.getKey(), "_max", null), entry.getValue().getMax());
+		}
+		return values;
+	}
+
+	/**
+	 * Write all metrics in the text format of Prometheus (version 0.0.4).
+	 *
+	 * @param out	Where the metrics must be written.
+	 *
+	 * @throws IOException	If an error occurs while writing.
+	 */
+	public void writeText(final Writer out) throws IOException{
+		// Counters:
+		String family = null;
+		for(Map.Entry<String,Counter> entry : new TreeMap<String,Counter>(counters).entrySet()){
+			family = writeType(out, family, entry.getKey(), "counter");
+			writeSample(out, entry.getKey(), entry.getValue().get());
+		}
+
+		// Gauges:
+		family = null;
+		for(Map.Entry<String,Gauge> entry : new TreeMap<String,Gauge>(gauges).entrySet()){
+			family = writeType(out, family, entry.getKey(), "gauge");
+			writeSample(out, entry.getKey(), getValue(entry.getValue()));
+		}
+
+		// Histograms:
+		family = null;
+		for(Map.Entry<String,Histogram> entry : new TreeMap<String,Histogram>(histograms).entrySet()){
+			family = writeType(out, family, entry.getKey(), "histogram");
+			Histogram histogram = entry.getValue();
+			long[] bounds = histogram.getBounds();
+			long[] counts = histogram.getBucketCounts();
+			long cumulated = 0;
+			for(int i = 0; i < bounds.length; i++){
+				cumulated += counts[i];
+				writeSample(out, seriesName(entry.getKey(), "_bucket", "le=\"" + bounds[i] + "\""), cumulated);
+			}
+			cumulated += counts[bounds.length];
+			writeSample(out, seriesName(entry.getKey(), "_bucket", "le=\"+Inf\""), cumulated);
+			writeSample(out, seriesName(entry.getKey(), "_sum", null), histogram.getSum());
+			writeSample(out, seriesName(entry.getKey(), "_count", null), cumulated);
+		}
+
+		out.flush();
+	}
+
+	/**
+	 * Write the type of the family of the given metric, if not already done.
+	 *
+	 * @param out			Where the type must be written.
+	 * @param lastFamily	Family of the previously written metric.
+	 * @param name			Name of the metric to write.
+	 * @param type			Type of the metric.
+	 *
+	 * @return	Family of the given metric.
+	 *
+	 * @throws IOException	If an error occurs while writing.
+	 */
+	private static String writeType(final Writer out, final String lastFamily, final String name, final String type) throws IOException{
+		String family = getFamily(name);
+		if (!family.equals(lastFamily)){
+			out.write("# TYPE ");
+			out.write(family);
+			out.write(' ');
+			out.write(type);
+			out.write('\n');
+		}
+		return family;
+	}
+
+	/**
+	 * Write one sample.
+	 *
+	 * @param out	Where the sample must be written.
+	 * @param name	Name of the sample (with its labels, if any).
+	 * @param value	Value of the sample.
+	 *
+	 * @throws IOException	If an error occurs while writing.
+	 */
+	private static void writeSample(final Writer out, final String name, final long value) throws IOException{
+		out.write(name);
+		out.write(' ');
+		out.write(String.valueOf(value));
+		out.write('\n');
+	}
+
+	/**
+	 * Get the value of the given gauge.
+	 *
+	 * @param gauge	The gauge to read.
+	 *
+	 * @return	Its value, or -1 if it can not be read.
+	 */
+	private static long getValue(final Gauge gauge){
+		try{
+			return gauge.getValue();
+		}catch(RuntimeException re){
+			return -1;
+		}
+	}
+
+	/**
+	 * Get the family of the given metric (i.e. its name without labels).
+	 *
+	 * @param name	Name of a metric.
+	 *
+	 * @return	Its family.
+	 */
+	public static String getFamily(final String name){
+		int index = name.indexOf('{');
+		return (index < 0) ? name : name.substring(0, index);
+	}
+
+	/**
+	 * Build the name of a series derived from the given metric.
+	 *
+	 * @param name		Name of the metric (with its labels, if any).
+	 * @param suffix	Suffix to append to the family name.
+	 * @param label		Label to add. <i>May be NULL.</i>
+	 *
+	 * @return	The name of the series.
+	 */
+	protected static String seriesName(final String name, final String suffix, final String label){
+		int index = name.indexOf('{');
+		StringBuffer buf = new StringBuffer(name.length() + 20);
+		buf.append((index < 0) ? name : name.substring(0, index)).append(suffix);
+		if (index >= 0){
+			buf.append(name, index, name.length() - 1);
+			if (label != null)
+				buf.append(',').append(label);
+			buf.append('}');
+		}else if (label != null)
+			buf.append('{').append(label).append('}');
+		return buf.toString();
+	}
+
+}
@@ -16,7 +16,7 @@ package tap.resource;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2012-2020 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
@@ -31,11 +31,13 @@ import tap.ServiceConnection;
 import tap.TAPException;
 import tap.TAPJob;
 import uws.UWSException;
+import uws.UWSToolBox;
 import uws.job.JobList;
 import uws.job.UWSJob;
 import uws.job.manager.AbstractQueuedExecutionManager;
 import uws.job.manager.QueuedExecutionManager;
 import uws.service.UWSService;
+import uws.service.UWSUrl;
 import uws.service.backup.UWSBackupManager;
 import uws.service.log.UWSLog;
 import uws.service.log.UWSLog.LogLevel;
@@ -68,10 +70,12 @@ import uws.service.log.UWSLog.LogLevel;
  * 	                                   Then, at the creation of this resource, the jobs are restored. Thus, the restart has been transparent for the users: they did not lose any job
  * 	                                   (except those at the origin of the grave error maybe).</li>
  * 	<li><b>Error logging:</b> the created {@link UWSService} instance is using the same logger as the TAP service. It is also provided by the given {@link ServiceConnection} object at creation.</li>
+ * 	<li><b>Usage accounting:</b> optionally, the resources used by the jobs of each user are accounted, and a user who has reached one of its quotas
+ * 	                             can not create any new job (see {@link #setUsageAccounting(UsageAccounting)}).</li>
  * </ul>
  *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.4 (01/2020)
+ * @version 2.4 (10/2026)
  *
  * @see UWSService
  */
@@ -87,6 +91,11 @@ public class ASync implements TAPResource {
 	/** The only jobs' list managed by the inner UWS service. This resource represent the UWS but also this jobs' list. */
 	protected final JobList jobList;
 
+	/** Accounting of the resources used by each user.
+	 * <i>If NULL, nothing is accounted nor limited.</i>
+	 * @since 2.4 */
+	protected volatile UsageAccounting usageAccounting = null;
+
 	/**
 	 * Build an Asynchronous Resource of a TAP service.
 	 *
@@ -167,6 +176,40 @@ public class ASync implements TAPResource {
 		return uws;
 	}
 
+	/**
+	 * Get the accounting of the resources used by each user.
+	 *
+	 * @return	The usage accounting, or NULL if nothing is accounted.
+	 *
+	 * @since 2.4
+	 */
+	public final UsageAccounting getUsageAccounting() {
+		return usageAccounting;
+	}
+
+	/**
+	 * Set the accounting of the resources used by each user.
+	 *
+	 * <p>
+	 * 	The given object is notified of the end of all jobs of this resource
+	 * 	(see {@link JobList#getPhaseBroadcaster()}), so that it can record
+	 * 	their usage. Besides, the creation of a job is rejected if its owner
+	 * 	has reached one of its quotas ; otherwise, it is immediately counted
+	 * 	as a query (see {@link UsageAccounting#admit(uws.job.user.JobOwner)}).
+	 * </p>
+	 *
+	 * @param accounting	The usage accounting. <i>If NULL, nothing will be accounted nor limited.</i>
+	 *
+	 * @since 2.4
+	 */
+	public final synchronized void setUsageAccounting(final UsageAccounting accounting) {
+		if (usageAccounting != null)
+			jobList.getPhaseBroadcaster().removeListener(usageAccounting);
+		usageAccounting = accounting;
+		if (accounting != null)
+			jobList.getPhaseBroadcaster().addListener(accounting);
+	}
+
 	@Override
 	public void init(final ServletConfig config) throws ServletException {
 		;
@@ -186,6 +229,11 @@ public class ASync implements TAPResource {
 			if (!service.isAvailable())
 				throw new TAPException("Can not execute a query: this TAP service is not available! " + service.getAvailability(), UWSException.SERVICE_UNAVAILABLE);
 
+			// Ensure the user can still create jobs, and count the new one (if accounted):
+			UsageAccounting accounting = usageAccounting;
+			if (accounting != null && isJobCreation(request))
+				accounting.admit(UWSToolBox.getUser(request, service.getUserIdentifier()));
+
 			// Forward the request to the UWS service:
 			return uws.executeRequest(request, response);
 
@@ -195,6 +243,25 @@ public class ASync implements TAPResource {
 		}
 	}
 
+	/**
+	 * Tell whether the given request aims to create a new job.
+	 *
+	 * @param request	The request to test.
+	 *
+	 * @return	<i>true</i> if it is an HTTP-POST on the jobs' list,
+	 *        	<i>false</i> otherwise.
+	 *
+	 * @see uws.service.actions.AddJob#match(UWSUrl, uws.job.user.JobOwner, HttpServletRequest)
+	 *
+	 * @since 2.4
+	 */
+	protected boolean isJobCreation(final HttpServletRequest request) {
+		if (!request.getMethod().equalsIgnoreCase("post"))
+			return false;
+		UWSUrl url = new UWSUrl(request);
+		return url.hasJobList() && !url.hasJob();
+	}
+
 	/**
 	 * An execution manager which queues jobs when too many asynchronous jobs are running or
 	 * when no more DB connection is available for the moment.
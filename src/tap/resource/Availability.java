@@ -16,10 +16,11 @@ package tap.resource;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  * 
- * Copyright 2012-2015 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 
@@ -31,13 +32,18 @@ import javax.servlet.http.HttpServletResponse;
 import tap.ServiceConnection;
 import tap.TAPException;
 import uk.ac.starlink.votable.VOSerializer;
-import uws.UWSToolBox;
 
 /**
  * <p>TAP resource describing the availability of a TAP service.</p>
  * 
+ * <p>
+ * 	The availability document is serialized again only when the availability
+ * 	status or its reason change. Otherwise, the last serialized document
+ * 	(see {@link CachedDocument}) is returned.
+ * </p>
+ * 
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.0 (04/2015)
+ * @version 2.4 (10/2026)
  */
 public class Availability implements TAPResource, VOSIResource {
 
@@ -54,6 +60,18 @@ public class Availability implements TAPResource, VOSIResource {
 	 * when the TAP service base URL is communicated to its resources. Then, it is: baseTAPURL + "/" + RESOURCE_NAME.</i></p> */
 	protected String accessURL = getName();
 
+	/** The last serialized availability document.
+	 * @since 2.4 */
+	protected CachedDocument cachedDocument = null;
+
+	/** Availability status serialized in {@link #cachedDocument}.
+	 * @since 2.4 */
+	protected boolean cachedAvailable;
+
+	/** Availability reason serialized in {@link #cachedDocument}.
+	 * @since 2.4 */
+	protected String cachedReason = null;
+
 	/**
 	 * Build a "availability" resource.
 	 * 
@@ -107,35 +125,62 @@ public class Availability implements TAPResource, VOSIResource {
 		if (!request.getMethod().equalsIgnoreCase("GET"))
 			throw new TAPException("The AVAILABILITY resource is only accessible in HTTP-GET! No special action can be perfomed with another HTTP method.", HttpServletResponse.SC_METHOD_NOT_ALLOWED);
 
-		// Set the response MIME type (XML):
-		response.setContentType("text/xml");
+		// Write the (cached) document:
+		getDocument().write(request, response);
 
-		// Set the character encoding:
-		response.setCharacterEncoding(UWSToolBox.DEFAULT_CHAR_ENCODING);
+		return true;
+	}
 
-		// Get the output stream:
-		PrintWriter pw = response.getWriter();
+	/**
+	 * Get the serialized availability document matching the current
+	 * availability of the TAP service.
+	 *
+	 * @return	The serialized availability.
+	 *
+	 * @since 2.4
+	 */
+	public synchronized CachedDocument getDocument(){
+		final boolean available = service.isAvailable();
+		final String reason = service.getAvailability();
+		if (cachedDocument == null || cachedAvailable != available || (reason == null ? cachedReason != null : !reason.equals(cachedReason))){
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream(512);
+			PrintWriter pw = CachedDocument.createWriter(buffer);
+			write(pw, available, reason);
+			pw.close();
+			cachedDocument = new CachedDocument(buffer.toByteArray(), "text/xml");
+			cachedAvailable = available;
+			cachedReason = reason;
+		}
+		return cachedDocument;
+	}
 
-		// ...And write the XML document describing the availability of the TAP service:
+	/**
+	 * Write the XML document describing the given availability.
+	 *
+	 * @param pw			Stream in which the document must be written.
+	 * @param available		Whether the service is available.
+	 * @param reason		Reason/description of the (non-)availability. <i>MAY be NULL</i>
+	 *
+	 * @since 2.4
+	 */
+	protected void write(final PrintWriter pw, final boolean available, final String reason){
 		pw.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
 		pw.println("<availability xmlns=\"http://www.ivoa.net/xml/VOSIAvailability/v1.0\" xmlns:xsi=\"http://www.w3.org/2001/XMLSchema-instance\" xsi:schemaLocation=\"http://www.ivoa.net/xml/VOSIAvailability/v1.0 http://www.ivoa.net/xml/VOSIAvailability/v1.0\">");
 
 		// available ? (true or false)
 		pw.print("\t<available>");
-		pw.print(service.isAvailable());
+		pw.print(available);
 		pw.println("</available>");
 
 		// reason/description of the (non-)availability:
 		pw.print("\t<note>");
-		if (service.getAvailability() != null)
-			pw.print(VOSerializer.formatText(service.getAvailability()));
+		if (reason != null)
+			pw.print(VOSerializer.formatText(reason));
 		pw.println("</note>");
 
 		pw.println("</availability>");
 
 		pw.flush();
-
-		return true;
 	}
 
 }
@@ -0,0 +1,362 @@
+package tap.resource;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import uws.UWSToolBox;
+
+/**
+ * Pre-serialized and immutable document (e.g. a VOSI document) ready to be
+ * sent to any HTTP client.
+ *
+ * <p>
+ * 	The document is kept both uncompressed and GZIP-compressed, so that
+ * 	neither the serialization nor the compression has to be done again for
+ * 	each request. An ETag (MD5 of the uncompressed content) and a
+ * 	Last-Modified date (creation time of this object) are associated with it.
+ * 	They let {@link #write(HttpServletRequest, HttpServletResponse)} answer
+ * 	conditional requests (<code>If-None-Match</code> and
+ * 	<code>If-Modified-Since</code>) with a simple HTTP-304 status.
+ * </p>
+ *
+ * <p><i>Note:
+ * 	To build such document from a function writing in a {@link PrintWriter},
+ * 	use {@link #createWriter(ByteArrayOutputStream)} and then
+ * 	{@link #CachedDocument(byte[], String)} with the content of the given
+ * 	buffer.
+ * </i></p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class CachedDocument {
+
+	/** Uncompressed content of this document. */
+	protected final byte[] content;
+
+	/** GZIP-compressed content of this document. */
+	protected final byte[] gzipContent;
+
+	/** MIME type of this document. */
+	protected final String mimeType;
+
+	/** Entity tag of this document (already surrounded by double quotes). */
+	protected final String etag;
+
+	/** Date (in milliseconds, rounded to the second as in HTTP headers) at
+	 * which this document has been generated. */
+	protected final long lastModified;
+
+	/** Generation of the cache when the serialization of this document
+	 * started. A cache must drop this document if it has been invalidated
+	 * since then. */
+	protected final long generation;
+
+	/**
+	 * Build a cached document.
+	 *
+	 * @param content	Uncompressed content of the document.
+	 * @param mimeType	MIME type of the document.
+	 *                	<i>If NULL, "application/xml" will be used.</i>
+	 *
+	 * @throws NullPointerException	If the given content is NULL.
+	 */
+	public CachedDocument(final byte[] content, final String mimeType) throws NullPointerException{
+		this(content, mimeType, 0);
+	}
+
+	/**
+	 * Build a cached document.
+	 *
+	 * @param content		Uncompressed content of the document.
+	 * @param mimeType		MIME type of the document.
+	 *                		<i>If NULL, "application/xml" will be used.</i>
+	 * @param generation	Generation of the cache when the serialization of
+	 *                  	this document started.
+	 *
+	 * @throws NullPointerException	If the given content is NULL.
+	 */
+	public CachedDocument(final byte[] content, final String mimeType, final long generation) throws NullPointerException{
+		if (content == null)
+			throw new NullPointerException("Missing document content!");
+		this.content = content;
+		this.mimeType = (mimeType == null) ? "application/xml" : mimeType;
+		this.gzipContent = compress(content);
+		this.etag = "\"" + digest(content) + "\"";
+		this.lastModified = (System.currentTimeMillis() / 1000) * 1000;
+		this.generation = generation;
+	}
+
+	/**
+	 * Create a {@link PrintWriter} encoding characters in UTF-8 into the given
+	 * buffer.
+	 *
+	 * @param buffer	Buffer in which the document will be written.
+	 *
+	 * @return	The corresponding writer.
+	 */
+	public static PrintWriter createWriter(final ByteArrayOutputStream buffer){
+		try{
+			return new PrintWriter(new OutputStreamWriter(buffer, UWSToolBox.DEFAULT_CHAR_ENCODING));
+		}catch(IOException ioe){
+			// should never happen: UTF-8 is always supported
+			throw new IllegalStateException(ioe);
+		}
+	}
+
+	/**
+	 * Get the uncompressed content of this document.
+	 *
+	 * <p><i><b>Warning:</b>
+	 * 	The returned array is the one kept by this object. It MUST NOT be
+	 * 	modified.
+	 * </i></p>
+	 *
+	 * @return	Uncompressed content.
+	 */
+	public final byte[] getContent(){
+		return content;
+	}
+
+	/**
+	 * Get the GZIP-compressed content of this document.
+	 *
+	 * <p><i><b>Warning:</b>
+	 * 	The returned array is the one kept by this object. It MUST NOT be
+	 * 	modified.
+	 * </i></p>
+	 *
+	 * @return	GZIP-compressed content.
+	 */
+	public final byte[] getCompressedContent(){
+		return gzipContent;
+	}
+
+	/**
+	 * Get the MIME type of this document.
+	 *
+	 * @return	Its MIME type.
+	 */
+	public final String getMimeType(){
+		return mimeType;
+	}
+
+	/**
+	 * Get the entity tag of this document.
+	 *
+	 * @return	Its ETag (surrounded by double quotes).
+	 */
+	public final String getETag(){
+		return etag;
+	}
+
+	/**
+	 * Get the date at which this document has been generated.
+	 *
+	 * @return	Its last modification date (in milliseconds).
+	 */
+	public final long getLastModified(){
+		return lastModified;
+	}
+
+	/**
+	 * Get the generation of the cache when the serialization of this
+	 * document started.
+	 *
+	 * @return	Its cache generation.
+	 */
+	public final long getGeneration(){
+		return generation;
+	}
+
+	/**
+	 * Write this document in the given HTTP response.
+	 *
+	 * <p>
+	 * 	If the given request is conditional and the client has already an
+	 * 	up-to-date copy of this document, only an HTTP-304 (Not Modified)
+	 * 	status is returned. Otherwise, the document is written compressed if
+	 * 	the client accepts the GZIP encoding, or uncompressed otherwise.
+	 * </p>
+	 *
+	 * @param request	The HTTP request asking this document.
+	 * @param response	The HTTP response in which this document must be written.
+	 *
+	 * @return	<i>true</i> if the document content has been written,
+	 *        	<i>false</i> if only an HTTP-304 status has been returned.
+	 *
+	 * @throws IOException	If any error occurs while writing the document.
+	 */
+	public boolean write(final HttpServletRequest request, final HttpServletResponse response) throws IOException{
+		// Headers common to any response (full or 304):
+		response.setHeader("ETag", etag);
+		response.setDateHeader("Last-Modified", lastModified);
+		response.setHeader("Vary", "Accept-Encoding");
+
+		// Conditional request:
+		if (isNotModified(request)){
+			response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+			return false;
+		}
+
+		// Content type:
+		response.setContentType(mimeType);
+		response.setCharacterEncoding(UWSToolBox.DEFAULT_CHAR_ENCODING);
+
+		// Choose the encoding:
+		byte[] body = content;
+		if (acceptsGzip(request)){
+			response.setHeader("Content-Encoding", "gzip");
+			body = gzipContent;
+		}
+		UWSToolBox.setContentLength(response, body.length);
+
+		// Write the document:
+		ServletOutputStream output = response.getOutputStream();
+		output.write(body);
+		output.flush();
+
+		return true;
+	}
+
+	/**
+	 * Tell whether the client sending the given request already has an
+	 * up-to-date copy of this document.
+	 *
+	 * <p>
+	 * 	As specified by RFC-7232, <code>If-Modified-Since</code> is evaluated
+	 * 	only if no <code>If-None-Match</code> header is provided.
+	 * </p>
+	 *
+	 * @param request	The HTTP request to test.
+	 *
+	 * @return	<i>true</i> if the client copy is up-to-date,
+	 *        	<i>false</i> otherwise.
+	 */
+	protected boolean isNotModified(final HttpServletRequest request){
+		if (request == null)
+			return false;
+
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if (ifNoneMatch != null){
+			for(String tag : ifNoneMatch.split(",")){
+				tag = tag.trim();
+				if (tag.startsWith("W/"))
+					tag = tag.substring(2);
+				if (tag.equals("*") || tag.equals(etag))
+					return true;
+			}
+			return false;
+		}
+
+		try{
+			long ifModifiedSince = request.getDateHeader("If-Modified-Since");
+			return (ifModifiedSince >= 0 && lastModified <= ifModifiedSince);
+		}catch(IllegalArgumentException iae){
+			return false;
+		}
+	}
+
+	/**
+	 * Tell whether the client sending the given request accepts the GZIP
+	 * encoding.
+	 *
+	 * @param request	The HTTP request to test.
+	 *
+	 * @return	<i>true</i> if GZIP is accepted, <i>false</i> otherwise.
+	 */
+	protected boolean acceptsGzip(final HttpServletRequest request){
+		String acceptEncoding = (request == null) ? null : request.getHeader("Accept-Encoding");
+		if (acceptEncoding == null)
+			return false;
+		for(String encoding : acceptEncoding.split(",")){
+			String[] parts = encoding.trim().split(";");
+			if (parts[0].trim().equalsIgnoreCase("gzip")){
+				// check the quality value is not 0:
+				for(int i = 1; i < parts.length; i++){
+					String p = parts[i].trim();
+					if (p.startsWith("q=")){
+						try{
+							return Double.parseDouble(p.substring(2)) > 0;
+						}catch(NumberFormatException nfe){
+							return false;
+						}
+					}
+				}
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Compress the given content with GZIP.
+	 *
+	 * @param content	Content to compress.
+	 *
+	 * @return	The compressed content.
+	 */
+	protected static byte[] compress(final byte[] content){
+		try{
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream(Math.max(64, content.length / 4));
+			GZIPOutputStream gzip = new GZIPOutputStream(buffer);
+			gzip.write(content);
+			gzip.close();
+			return buffer.toByteArray();
+		}catch(IOException ioe){
+			// should never happen with an in-memory buffer
+			throw new IllegalStateException(ioe);
+		}
+	}
+
+	/**
+	 * Compute the hexadecimal MD5 digest of the given content.
+	 *
+	 * @param content	Content to digest.
+	 *
+	 * @return	The hexadecimal MD5 digest.
+	 */
+	protected static String digest(final byte[] content){
+		try{
+			byte[] md5 = MessageDigest.getInstance("MD5").digest(content);
+			StringBuilder hex = new StringBuilder(md5.length * 2);
+			for(byte b : md5)
+				hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			return hex.toString();
+		}catch(NoSuchAlgorithmException nsae){
+			// should never happen: MD5 is always supported
+			return Integer.toHexString(Arrays.hashCode(content));
+		}
+	}
+
+}
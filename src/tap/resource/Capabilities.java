@@ -16,13 +16,15 @@ package tap.resource;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2012-2016 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -38,8 +40,14 @@ import uws.UWSToolBox;
  *
  * <p>This resource just return an XML document giving a description of the TAP service and list all its VOSI resources.</p>
  *
+ * <p>
+ * 	This document is serialized only once and then kept in memory (see {@link CachedDocument}).
+ * 	The cache is invalidated when the TAP base URL, the XSLT style-sheet or the list of TAP resources
+ * 	change, or explicitly with {@link #invalidateCache()}.
+ * </p>
+ *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.1 (07/2016)
+ * @version 2.4 (10/2026)
  */
 public class Capabilities implements TAPResource, VOSIResource {
 
@@ -61,6 +69,15 @@ public class Capabilities implements TAPResource, VOSIResource {
 	 * @since 2.1 */
 	protected String xsltPath = null;
 
+	/** The serialized capabilities document, or NULL if not yet serialized.
+	 * @since 2.4 */
+	protected volatile CachedDocument cachedDocument = null;
+
+	/** Generation of {@link #cachedDocument}, incremented at each call of
+	 * {@link #invalidateCache()}.
+	 * @since 2.4 */
+	protected final AtomicLong cacheGeneration = new AtomicLong();
+
 	/**
 	 * Build a "/capabilities" resource.
 	 *
@@ -96,11 +113,29 @@ public class Capabilities implements TAPResource, VOSIResource {
 			if (xsltPath.isEmpty())
 				xsltPath = null;
 		}
+		invalidateCache();
+	}
+
+	/**
+	 * Forget the serialized capabilities document, so that it is built again
+	 * at the next request.
+	 *
+	 * <p>
+	 * 	This function must be called after any change of the service
+	 * 	configuration listed in the capabilities (e.g. output formats, limits).
+	 * </p>
+	 *
+	 * @since 2.4
+	 */
+	public void invalidateCache(){
+		cacheGeneration.incrementAndGet();
+		cachedDocument = null;
 	}
 
 	@Override
 	public final void setTAPBaseURL(String baseURL){
 		accessURL = ((baseURL == null) ? "" : (baseURL + "/")) + getName();
+		invalidateCache();
 	}
 
 	@Override
@@ -142,15 +177,52 @@ public class Capabilities implements TAPResource, VOSIResource {
 		if (!request.getMethod().equalsIgnoreCase("GET"))
 			throw new TAPException("The CAPABILITIES resource is only accessible in HTTP-GET! No special action can be perfomed with another HTTP method.", HttpServletResponse.SC_METHOD_NOT_ALLOWED);
 
-		// Set the response MIME type (XML):
-		response.setContentType("application/xml");
+		// Write the cached document:
+		getDocument().write(request, response);
 
-		// Set the character encoding:
-		response.setCharacterEncoding(UWSToolBox.DEFAULT_CHAR_ENCODING);
+		return true;
+	}
 
-		// Get the response stream:
-		PrintWriter out = response.getWriter();
+	/**
+	 * Get the serialized capabilities document, and build it if not already
+	 * done.
+	 *
+	 * <p><i>Note:
+	 * 	A document whose serialization has started before a call to
+	 * 	{@link #invalidateCache()} is returned but not cached.
+	 * </i></p>
+	 *
+	 * @return	The serialized capabilities.
+	 *
+	 * @throws IOException	If any error occurs while serializing the capabilities.
+	 *
+	 * @since 2.4
+	 */
+	public CachedDocument getDocument() throws IOException{
+		final long generation = cacheGeneration.get();
+		CachedDocument doc = cachedDocument;
+		if (doc == null || doc.getGeneration() != generation){
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			PrintWriter out = CachedDocument.createWriter(buffer);
+			write(out);
+			out.close();
+			doc = new CachedDocument(buffer.toByteArray(), "application/xml", generation);
+			if (cacheGeneration.get() == generation)
+				cachedDocument = doc;
+		}
+		return doc;
+	}
 
+	/**
+	 * Write the whole capabilities document in the given writer.
+	 *
+	 * @param out	Stream in which the capabilities must be written.
+	 *
+	 * @throws IOException	If any error occurs while writing the capabilities.
+	 *
+	 * @since 2.4
+	 */
+	public void write(final PrintWriter out) throws IOException{
 		// Write the XML document header:
 		out.println("<?xml version=\"1.0\" encoding=\"UTF-8\"?>");
 		if (xsltPath != null){
@@ -184,9 +256,7 @@ public class Capabilities implements TAPResource, VOSIResource {
 		// Write the end of the XML document:
 		out.println("\n</vosi:capabilities>");
 
-		out.flush();
-
-		return true;
+		UWSToolBox.flush(out);
 	}
 
 	/**
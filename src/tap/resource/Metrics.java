@@ -0,0 +1,261 @@
+package tap.resource;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import tap.TAPException;
+import tap.log.TAPLog;
+import tap.metrics.Gauge;
+import tap.metrics.MetricsMBean;
+import tap.metrics.MetricsRegistry;
+import uws.UWSToolBox;
+import uws.job.JobList;
+import uws.job.manager.ExecutionManager;
+import uws.service.log.UWSLog.LogLevel;
+
+/**
+ * TAP resource exposing the metrics of the TAP service in the text format of
+ * Prometheus.
+ *
+ * <p>
+ * 	Creating this resource enables the recording of metrics (see
+ * 	{@link MetricsRegistry#enableDefault()}). Its initialization registers
+ * 	the following gauges:
+ * </p>
+ * <ul>
+ * 	<li><code>tap_async_jobs{state="running|queued"}</code>: asynchronous
+ * 		jobs currently running or queued in the execution manager,</li>
+ * 	<li><code>tap_sync_queries{state="running|queued"}</code>: synchronous
+ * 		queries currently running or waiting for admission (only if an
+ * 		admission controller is set),</li>
+ * 	<li><code>tap_sync_cache_*</code>: hits, misses, entries and size of the
+ * 		cache of synchronous results (only if enabled),</li>
+ * 	<li><code>tap_db_connections_in_use</code>: database connections
+ * 		currently used by query executions.</li>
+ * </ul>
+ * <p>
+ * 	The same metrics are also exposed through JMX, by an MBean named
+ * 	<code>tap:type=Metrics</code>.
+ * </p>
+ *
+ * <p>
+ * 	This resource is not created by default. With the configuration file, it
+ * 	can be added with the property <code>additional_resources</code>:
+ * </p>
+ * <pre>additional_resources = {tap.resource.Metrics}</pre>
+ * <p><i>Note:
+ * 	Since the metrics may disclose the activity of the service, the access to
+ * 	this resource should be restricted by the web server.
+ * </i></p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class Metrics implements TAPResource {
+
+	/** Name of this TAP resource. */
+	public static final String RESOURCE_NAME = "metrics";
+
+	/** Name of the MBean exposing the metrics through JMX. */
+	public static final String MBEAN_NAME = "tap:type=Metrics";
+
+	/** The TAP service owning this resource. */
+	protected final TAP tap;
+
+	/** The exposed metrics. */
+	protected final MetricsRegistry registry;
+
+	/** Name under which the metrics have been registered in JMX.
+	 * <i>NULL if not registered.</i> */
+	protected ObjectName mbeanName = null;
+
+	/**
+	 * Build a "metrics" resource, and enable the recording of metrics.
+	 *
+	 * @param tap	The TAP service which will own this resource.
+	 */
+	public Metrics(final TAP tap){
+		this.tap = tap;
+		this.registry = MetricsRegistry.enableDefault();
+	}
+
+	@Override
+	public String getName(){
+		return RESOURCE_NAME;
+	}
+
+	@Override
+	public void setTAPBaseURL(final String baseURL){
+		;
+	}
+
+	/**
+	 * Get the exposed metrics.
+	 *
+	 * @return	The metrics registry.
+	 */
+	public final MetricsRegistry getRegistry(){
+		return registry;
+	}
+
+	@Override
+	public void init(final ServletConfig config) throws ServletException{
+		registerGauges();
+
+		// Expose the metrics through JMX:
+		try{
+			MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			ObjectName name = new ObjectName(MBEAN_NAME);
+			if (!server.isRegistered(name)){
+				server.registerMBean(new MetricsMBean(registry), name);
+				mbeanName = name;
+			}
+		}catch(JMException je){
+			getLogger().logTAP(LogLevel.WARNING, null, "INIT", "Impossible to expose the metrics through JMX! They are only available with the TAP resource \"" + RESOURCE_NAME + "\".", je);
+		}
+	}
+
+	/**
+	 * Register the gauges measuring the current state of the TAP service.
+	 */
+	protected void registerGauges(){
+		// Asynchronous jobs:
+		if (tap.getASync() != null){
+			final JobList jobList = tap.getASync().getUWS().getJobList(ASync.RESOURCE_NAME);
+			if (jobList != null){
+				registry.registerGauge("tap_async_jobs{state=\"running\"}", new Gauge(){
+					@Override
+					public long getValue(){
+						ExecutionManager manager = jobList.getExecutionManager();
+						return (manager == null) ? 0 : manager.getNbRunningJobs();
+					}
+				});
+				registry.registerGauge("tap_async_jobs{state=\"queued\"}", new Gauge(){
+					@Override
+					public long getValue(){
+						ExecutionManager manager = jobList.getExecutionManager();
+						return (manager == null) ? 0 : manager.getNbQueuedJobs();
+					}
+				});
+			}
+		}
+
+		// Synchronous queries:
+		final Sync sync = tap.getSync();
+		if (sync != null){
+			if (sync.getAdmissionController() != null){
+				registry.registerGauge("tap_sync_queries{state=\"running\"}", new Gauge(){
+					@Override
+					public long getValue(){
+						return sync.getAdmissionController().getNbRunning();
+					}
+				});
+				registry.registerGauge("tap_sync_queries{state=\"queued\"}", new Gauge(){
+					@Override
+					public long getValue(){
+						return sync.getAdmissionController().getNbQueued();
+					}
+				});
+			}
+			if (sync.getResultCache() != null){
+				final SyncResultCache cache = sync.getResultCache();
+				registry.registerGauge("tap_sync_cache_hits", new Gauge(){
+					@Override
+					public long getValue(){
+						return cache.getNbHits();
+					}
+				});
+				registry.registerGauge("tap_sync_cache_misses", new Gauge(){
+					@Override
+					public long getValue(){
+						return cache.getNbMisses();
+					}
+				});
+				registry.registerGauge("tap_sync_cache_entries", new Gauge(){
+					@Override
+					public long getValue(){
+						return cache.getNbEntries();
+					}
+				});
+				registry.registerGauge("tap_sync_cache_size_bytes", new Gauge(){
+					@Override
+					public long getValue(){
+						return cache.getSize();
+					}
+				});
+			}
+		}
+
+		// Database connections:
+		registry.registerGauge("tap_db_connections_in_use", new Gauge(){
+			@Override
+			public long getValue(){
+				return registry.counter("tap_db_connections_acquired_total").get() - registry.counter("tap_db_connections_released_total").get();
+			}
+		});
+	}
+
+	@Override
+	public void destroy(){
+		if (mbeanName != null){
+			try{
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+			}catch(JMException je){
+				getLogger().logTAP(LogLevel.WARNING, null, "STOP", "Impossible to unregister the metrics from JMX!", je);
+			}
+			mbeanName = null;
+		}
+	}
+
+	/**
+	 * Get the logger of the TAP service.
+	 *
+	 * @return	The logger to use.
+	 */
+	private TAPLog getLogger(){
+		return tap.getServiceConnection().getLogger();
+	}
+
+	@Override
+	public boolean executeResource(final HttpServletRequest request, final HttpServletResponse response) throws IOException, TAPException{
+		if (!request.getMethod().equalsIgnoreCase("GET"))
+			throw new TAPException("The METRICS resource is only accessible in HTTP-GET!", HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+
+		response.setContentType("text/plain; version=0.0.4");
+		response.setCharacterEncoding(UWSToolBox.DEFAULT_CHAR_ENCODING);
+		PrintWriter writer = response.getWriter();
+		registry.writeText(writer);
+
+		return true;
+	}
+
+}
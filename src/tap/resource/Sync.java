@@ -16,7 +16,7 @@ package tap.resource;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  * 
- * Copyright 2012-2016 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
@@ -27,12 +27,17 @@ import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import tap.QueryCostPolicy;
+import tap.QueryTooCostlyException;
 import tap.ServiceConnection;
 import tap.TAPException;
 import tap.TAPJob;
 import tap.TAPSyncJob;
 import tap.parameters.TAPParameters;
 import uws.UWSException;
+import uws.UWSToolBox;
+import uws.job.JobList;
+import uws.job.user.JobOwner;
 import uws.service.UWS;
 
 /**
@@ -44,8 +49,31 @@ import uws.service.UWS;
  * 	Besides, generally, the execution time is much more limited than an asynchronous query. 
  * </p>
  * 
+ * <p>
+ * 	The number of synchronous queries executed simultaneously can be limited thanks to a {@link SyncAdmissionController}
+ * 	(see {@link #setAdmissionController(SyncAdmissionController)}). By default, there is no limit.
+ * </p>
+ * 
+ * <p>
+ * 	The results of identical queries can be kept in memory thanks to a {@link SyncResultCache}
+ * 	(see {@link #setResultCache(SyncResultCache)}). A cached result is returned without waiting for the
+ * 	admission controller nor accessing the database. By default, there is no cache.
+ * </p>
+ * 
+ * <p>
+ * 	The resources used by each user can be accounted and limited thanks to a {@link UsageAccounting}
+ * 	(see {@link #setUsageAccounting(UsageAccounting)}). A user who has reached one of its quotas can not execute
+ * 	any new query (except if its result is cached) until its past usage leaves the accounting window.
+ * </p>
+ * 
+ * <p>
+ * 	A query considered as too costly by the {@link QueryCostPolicy} of the {@link tap.ADQLExecutor} may be executed
+ * 	asynchronously instead (see {@link #setAsyncResource(ASync)}): an asynchronous job is then created and started,
+ * 	and the user is redirected (HTTP-303) to it.
+ * </p>
+ * 
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.1 (01/2016)
+ * @version 2.4 (10/2026)
  */
 public class Sync implements TAPResource {
 
@@ -58,6 +86,26 @@ public class Sync implements TAPResource {
 	/** List of all capabilities of the TAP service. */
 	protected final Capabilities capabilities;
 
+	/** Object limiting the number of synchronous queries executed simultaneously.
+	 * <i>If NULL, there is no limit.</i>
+	 * @since 2.4 */
+	protected volatile SyncAdmissionController admissionController = null;
+
+	/** Cache of the results of synchronous queries.
+	 * <i>If NULL, no result is cached.</i>
+	 * @since 2.4 */
+	protected volatile SyncResultCache resultCache = null;
+
+	/** Resource executing the queries too costly to be executed synchronously.
+	 * <i>If NULL, such queries are just rejected.</i>
+	 * @since 2.4 */
+	protected volatile ASync asyncResource = null;
+
+	/** Accounting of the resources used by each user.
+	 * <i>If NULL, nothing is accounted nor limited.</i>
+	 * @since 2.4 */
+	protected volatile UsageAccounting usageAccounting = null;
+
 	/**
 	 * Build a synchronous resource for the TAP service whose the description and
 	 * the capabilities are provided in parameters.
@@ -85,6 +133,111 @@ public class Sync implements TAPResource {
 		;
 	}
 
+	/**
+	 * Get the object limiting the number of synchronous queries executed simultaneously.
+	 * 
+	 * @return	The admission controller, or NULL if there is no limit.
+	 * 
+	 * @since 2.4
+	 */
+	public final SyncAdmissionController getAdmissionController(){
+		return admissionController;
+	}
+
+	/**
+	 * Set the object limiting the number of synchronous queries executed simultaneously.
+	 * 
+	 * <p><i>Note:
+	 * 	The queries already admitted by the previous controller are not affected.
+	 * </i></p>
+	 * 
+	 * @param controller	The new admission controller. <i>If NULL, there will be no limit.</i>
+	 * 
+	 * @since 2.4
+	 */
+	public final void setAdmissionController(final SyncAdmissionController controller){
+		admissionController = controller;
+	}
+
+	/**
+	 * Get the cache of the results of synchronous queries.
+	 * 
+	 * @return	The result cache, or NULL if no result is cached.
+	 * 
+	 * @since 2.4
+	 */
+	public final SyncResultCache getResultCache(){
+		return resultCache;
+	}
+
+	/**
+	 * Set the cache of the results of synchronous queries.
+	 * 
+	 * @param cache	The new result cache. <i>If NULL, no result will be cached.</i>
+	 * 
+	 * @since 2.4
+	 */
+	public final void setResultCache(final SyncResultCache cache){
+		resultCache = cache;
+	}
+
+	/**
+	 * Get the resource executing the queries too costly to be executed
+	 * synchronously.
+	 * 
+	 * @return	The asynchronous resource, or NULL if such queries are rejected.
+	 * 
+	 * @since 2.4
+	 */
+	public final ASync getAsyncResource(){
+		return asyncResource;
+	}
+
+	/**
+	 * Set the resource executing the queries too costly to be executed
+	 * synchronously.
+	 * 
+	 * <p><i>Note:
+	 * 	This resource is used only if the {@link QueryCostPolicy} asks for an
+	 * 	asynchronous execution (see {@link QueryTooCostlyException#isAsyncAllowed()}).
+	 * </i></p>
+	 * 
+	 * @param async	The asynchronous resource. <i>If NULL, too costly queries will be rejected.</i>
+	 * 
+	 * @since 2.4
+	 */
+	public final void setAsyncResource(final ASync async){
+		asyncResource = async;
+	}
+
+	/**
+	 * Get the accounting of the resources used by each user.
+	 * 
+	 * @return	The usage accounting, or NULL if nothing is accounted.
+	 * 
+	 * @since 2.4
+	 */
+	public final UsageAccounting getUsageAccounting(){
+		return usageAccounting;
+	}
+
+	/**
+	 * Set the accounting of the resources used by each user.
+	 * 
+	 * <p><i>Note:
+	 * 	The same object should also be set to the asynchronous resource (see
+	 * 	{@link ASync#setUsageAccounting(UsageAccounting)}), so that quotas apply
+	 * 	to all queries of a user.
+	 * </i></p>
+	 * 
+	 * @param accounting	The usage accounting. <i>If NULL, nothing will be accounted nor limited.</i>
+	 * 
+	 * @since 2.4
+	 */
+	public final void setUsageAccounting(final UsageAccounting accounting){
+		usageAccounting = accounting;
+	}
+
 	@Override
 	public void destroy(){
 		;
@@ -111,12 +264,113 @@ public class Sync implements TAPResource {
 		if (request != null && request.getAttribute(UWS.REQ_ATTRIBUTE_ID) != null && request.getAttribute(UWS.REQ_ATTRIBUTE_ID) instanceof String)
 			requestID = (String)request.getAttribute(UWS.REQ_ATTRIBUTE_ID);
 
+		// Return the cached result, if any:
+		SyncResultCache cache = resultCache;
+		String cacheKey = null;
+		if (cache != null && cache.isCacheable(params)){
+			cacheKey = cache.getKey(params, service.getTAPMetadata());
+			SyncResultCache.CachedResult cached = cache.get(cacheKey);
+			if (cached != null){
+				cached.write(response);
+				return true;
+			}
+		}
+
+		// Identify the user (if needed):
+		SyncAdmissionController controller = admissionController;
+		UsageAccounting accounting = usageAccounting;
+		JobOwner user = null;
+		if (controller != null || accounting != null){
+			try{
+				user = UWSToolBox.getUser(request, service.getUserIdentifier());
+			}catch(UWSException ue){
+				throw new TAPException(ue);
+			}
+		}
+
+		// Ensure the user has not reached any of its quotas, and count this query:
+		UsageAccounting.CountingResponse counter = null;
+		if (accounting != null && user != null){
+			accounting.admit(user);
+			counter = new UsageAccounting.CountingResponse(response);
+		}
+
+		// Wait for the permission to execute a new synchronous query (if limited):
+		SyncAdmissionController.Ticket ticket = null;
+		if (controller != null)
+			ticket = controller.admit(user);
+
 		// Execute synchronously the given job:
-		TAPSyncJob syncJob = new TAPSyncJob(service, params, requestID);
-		syncJob.start(response);
+		TAPSyncJob syncJob = null;
+		try{
+			syncJob = new TAPSyncJob(service, params, requestID);
+			HttpServletResponse output = (counter == null) ? response : counter;
+			if (cacheKey == null)
+				syncJob.start(output);
+			else{
+				// keep a copy of the result, so that caching it if successful:
+				SyncResultCache.CapturingResponse capture = cache.capture(output);
+				if (syncJob.start(capture))
+					cache.put(cacheKey, capture, syncJob.getExecReport());
+			}
+		}catch(QueryTooCostlyException qtce){
+			// (the query is already counted ; the resources of the job will be recorded at its end)
+			counter = null;
+			// Execute the query asynchronously instead, if allowed:
+			ASync async = asyncResource;
+			if (!qtce.isAsyncAllowed() || async == null)
+				throw qtce;
+			executeAsynchronously(params, request, response, async);
+		}finally{
+			if (ticket != null)
+				ticket.release();
+			// Account the resources used by this query:
+			if (counter != null && syncJob != null)
+				accounting.complete(user, syncJob.getExecReport(), counter.getNbBytes());
+		}
 
 		return true;
 
 	}
 
+	/**
+	 * Create and start an asynchronous job executing the given query, and
+	 * redirect the user (HTTP-303) to this job.
+	 * 
+	 * @param params	Parameters of the query (already checked).
+	 * @param request	The synchronous request.
+	 * @param response	The response in which the redirection must be written.
+	 * @param async		The asynchronous resource in which the job must be created.
+	 * 
+	 * @throws IOException	If the redirection can not be written.
+	 * @throws TAPException	If the job can not be created or started.
+	 * 
+	 * @since 2.4
+	 */
+	protected void executeAsynchronously(final TAPParameters params, final HttpServletRequest request, final HttpServletResponse response, final ASync async) throws IOException, TAPException{
+		JobList jobList = async.getUWS().getJobList(async.getName());
+		if (jobList == null)
+			throw new TAPException("This query is too costly to be executed synchronously, and no asynchronous job list is available!", UWSException.INTERNAL_SERVER_ERROR);
+
+		// Create and start the job:
+		TAPJob job;
+		try{
+			JobOwner user = UWSToolBox.getUser(request, service.getUserIdentifier());
+			params.remove(TAPJob.PARAM_PROGRESSION);
+			job = service.getFactory().createTAPJob(user, params, null);
+			if (jobList.addNewJob(job) == null)
+				throw new TAPException("This query is too costly to be executed synchronously, and the creation of an asynchronous job has failed!", UWSException.INTERNAL_SERVER_ERROR);
+			job.start();
+		}catch(UWSException ue){
+			throw new TAPException(ue);
+		}
+
+		// Redirect the user to this job:
+		String url = request.getRequestURL().toString().replaceFirst("/" + RESOURCE_NAME + "/?$", "");
+		url += "/" + async.getName() + "/" + job.getJobId();
+		response.setStatus(HttpServletResponse.SC_SEE_OTHER);
+		response.setHeader("Location", url);
+		response.flushBuffer();
+	}
+
 }
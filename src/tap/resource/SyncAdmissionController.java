@@ -0,0 +1,465 @@
+package tap.resource;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import tap.ServiceBusyException;
+import uws.job.user.JobOwner;
+
+/**
+ * Limit the number of synchronous queries executed simultaneously.
+ *
+ * <p>
+ * 	A request must be admitted (see {@link #admit(JobOwner)}) before
+ * 	executing its query, and must release its slot once finished (see
+ * 	{@link Ticket#release()}). The admission follows these rules:
+ * </p>
+ * <ol>
+ * 	<li>if the user already has {@link #getMaxRunningPerUser()} running or
+ * 		waiting queries, the request is immediately rejected,</li>
+ * 	<li>if less than {@link #getMaxRunning()} queries are running, the
+ * 		request is immediately admitted,</li>
+ * 	<li>otherwise, the request waits (in arrival order) for a free slot
+ * 		during at most {@link #getQueueTimeout()} milliseconds,</li>
+ * 	<li>but if {@link #getMaxQueued()} requests are already waiting, it is
+ * 		immediately rejected.</li>
+ * </ol>
+ * <p>
+ * 	A rejected request gets a {@link ServiceBusyException} (i.e. HTTP-503 with
+ * 	a <code>Retry-After</code> header), so that an overloaded service answers
+ * 	quickly instead of exhausting its DB connections and memory.
+ * </p>
+ *
+ * <p>
+ * 	Some statistics about the admission (e.g. queue depth, waiting time) are
+ * 	also available through the getters of this class.
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class SyncAdmissionController {
+
+	/** Maximum number of synchronous queries running simultaneously.
+	 * <i>A negative or null value means "no limit".</i> */
+	protected final int maxRunning;
+
+	/** Maximum number of requests waiting for a free slot.
+	 * <i>A negative or null value means that no request can wait.</i> */
+	protected final int maxQueued;
+
+	/** Maximum time (in milliseconds) a request can wait for a free slot. */
+	protected final long queueTimeout;
+
+	/** Maximum number of synchronous queries (running or waiting) per user.
+	 * <i>A negative or null value means "no limit".</i> */
+	protected final int maxRunningPerUser;
+
+	/** Delay (in seconds) after which a rejected client is invited to try
+	 * again. */
+	protected int retryAfter;
+
+	/** Slots of execution. <i>NULL if there is no limit.</i> */
+	protected final Semaphore slots;
+
+	/** Number of queries (running or waiting) per user ID. */
+	protected final Map<String,Integer> userCounts = new HashMap<String,Integer>();
+
+	/** Number of currently running queries. */
+	protected final AtomicInteger nbRunning = new AtomicInteger(0);
+
+	/** Number of currently waiting requests. */
+	protected final AtomicInteger nbQueued = new AtomicInteger(0);
+
+	/** Highest number of simultaneously waiting requests. */
+	protected final AtomicInteger peakQueued = new AtomicInteger(0);
+
+	/** Total number of admitted requests. */
+	protected final AtomicLong nbAdmitted = new AtomicLong(0);
+
+	/** Total number of rejected requests (including the timed out ones). */
+	protected final AtomicLong nbRejected = new AtomicLong(0);
+
+	/** Total number of requests rejected because of a too long wait. */
+	protected final AtomicLong nbTimedOut = new AtomicLong(0);
+
+	/** Total time (in milliseconds) spent waiting by all admitted requests. */
+	protected final AtomicLong totalWaitTime = new AtomicLong(0);
+
+	/** Longest time (in milliseconds) spent waiting by a request. */
+	protected final AtomicLong maxWaitTime = new AtomicLong(0);
+
+	/**
+	 * Build an admission controller.
+	 *
+	 * @param maxRunning		Maximum number of queries running
+	 *                  		simultaneously. <i>&le;0 means "no limit".</i>
+	 * @param maxQueued			Maximum number of requests waiting for a free
+	 *                 			slot. <i>&le;0 means that a request is
+	 *                 			rejected when no slot is free.</i>
+	 * @param queueTimeout		Maximum time (in milliseconds) a request can
+	 *                    		wait for a free slot.
+	 * @param maxRunningPerUser	Maximum number of queries (running or waiting)
+	 *                         	per user. <i>&le;0 means "no limit".</i>
+	 */
+	public SyncAdmissionController(final int maxRunning, final int maxQueued, final long queueTimeout, final int maxRunningPerUser){
+		this.maxRunning = maxRunning;
+		this.maxQueued = (maxQueued < 0) ? 0 : maxQueued;
+		this.queueTimeout = (queueTimeout < 0) ? 0 : queueTimeout;
+		this.maxRunningPerUser = maxRunningPerUser;
+		this.retryAfter = (int)Math.max(1, (this.queueTimeout + 999) / 1000);
+		this.slots = (maxRunning > 0) ? new Semaphore(maxRunning, true) : null;
+	}
+
+	/**
+	 * Get the maximum number of synchronous queries running simultaneously.
+	 *
+	 * @return	Maximum number of running queries (&le;0 means "no limit").
+	 */
+	public final int getMaxRunning(){
+		return maxRunning;
+	}
+
+	/**
+	 * Get the maximum number of requests waiting for a free slot.
+	 *
+	 * @return	Maximum queue size.
+	 */
+	public final int getMaxQueued(){
+		return maxQueued;
+	}
+
+	/**
+	 * Get the maximum time a request can wait for a free slot.
+	 *
+	 * @return	Maximum waiting time (in milliseconds).
+	 */
+	public final long getQueueTimeout(){
+		return queueTimeout;
+	}
+
+	/**
+	 * Get the maximum number of synchronous queries (running or waiting) per
+	 * user.
+	 *
+	 * @return	Maximum number of queries per user (&le;0 means "no limit").
+	 */
+	public final int getMaxRunningPerUser(){
+		return maxRunningPerUser;
+	}
+
+	/**
+	 * Get the delay after which a rejected client is invited to try again.
+	 *
+	 * @return	Delay (in seconds).
+	 */
+	public final int getRetryAfter(){
+		return retryAfter;
+	}
+
+	/**
+	 * Set the delay after which a rejected client is invited to try again.
+	 *
+	 * <p><i>By default, this delay is the queue timeout (rounded up to the
+	 * second).</i></p>
+	 *
+	 * @param seconds	Delay (in seconds). <i>If &le;0, no delay will be
+	 *               	suggested to the client.</i>
+	 */
+	public final void setRetryAfter(final int seconds){
+		retryAfter = seconds;
+	}
+
+	/**
+	 * Wait for the permission to execute a synchronous query.
+	 *
+	 * <p><b>IMPORTANT:</b>
+	 * 	The returned ticket MUST be released once the query execution is
+	 * 	finished (whatever is its result).
+	 * </p>
+	 *
+	 * @param user	The user executing the query. <i>If NULL, no per-user
+	 *            	limit is applied.</i>
+	 *
+	 * @return	The execution ticket.
+	 *
+	 * @throws ServiceBusyException	If the query can not be executed for the
+	 *                             	moment.
+	 */
+	public Ticket admit(final JobOwner user) throws ServiceBusyException{
+		// Check the per-user limit:
+		String userID = (maxRunningPerUser > 0 && user != null) ? user.getID() : null;
+		if (userID != null && !incrementUser(userID))
+			throw reject("Too many synchronous queries are currently executed for you! You should wait for their end or create an asynchronous query.");
+
+		try{
+			long waitTime = 0;
+			if (slots != null){
+				// Take a free slot if any (without jumping the queue):
+				boolean admitted = slots.tryAcquire(0, TimeUnit.MILLISECONDS);
+
+				// Otherwise, wait for one:
+				if (!admitted){
+					if (maxQueued <= 0 || queueTimeout <= 0)
+						throw reject("TAP service too busy! Too many synchronous queries are currently executed. You should try later or create an asynchronous query.");
+
+					int queued = nbQueued.incrementAndGet();
+					try{
+						if (queued > maxQueued)
+							throw reject("TAP service too busy! Too many synchronous queries are currently waiting for execution. You should try later or create an asynchronous query.");
+						updateMax(peakQueued, queued);
+
+						long start = System.currentTimeMillis();
+						admitted = slots.tryAcquire(queueTimeout, TimeUnit.MILLISECONDS);
+						waitTime = System.currentTimeMillis() - start;
+					}finally{
+						nbQueued.decrementAndGet();
+					}
+
+					if (!admitted){
+						nbTimedOut.incrementAndGet();
+						throw reject("TAP service too busy! No synchronous query could be executed after " + queueTimeout + "ms of waiting. You should try later or create an asynchronous query.");
+					}
+				}
+			}
+
+			// Update the statistics:
+			nbRunning.incrementAndGet();
+			nbAdmitted.incrementAndGet();
+			totalWaitTime.addAndGet(waitTime);
+			updateMax(maxWaitTime, waitTime);
+
+			return new Ticket(userID);
+
+		}catch(InterruptedException ie){
+			Thread.currentThread().interrupt();
+			if (userID != null)
+				decrementUser(userID);
+			throw reject("Interrupted while waiting for the execution of the synchronous query!");
+		}catch(ServiceBusyException sbe){
+			if (userID != null)
+				decrementUser(userID);
+			throw sbe;
+		}
+	}
+
+	/**
+	 * Count the rejection of a request and build the error to return.
+	 *
+	 * @param message	Message explaining the rejection.
+	 *
+	 * @return	The corresponding error.
+	 */
+	protected ServiceBusyException reject(final String message){
+		nbRejected.incrementAndGet();
+		return new ServiceBusyException(message, retryAfter);
+	}
+
+	/**
+	 * Increment the number of queries of the given user, if the per-user limit
+	 * is not already reached.
+	 *
+	 * @param userID	ID of the user.
+	 *
+	 * @return	<i>true</i> if incremented,
+	 *        	<i>false</i> if the limit is reached.
+	 */
+	protected boolean incrementUser(final String userID){
+		synchronized(userCounts){
+			Integer count = userCounts.get(userID);
+			int newCount = (count == null) ? 1 : count + 1;
+			if (newCount > maxRunningPerUser)
+				return false;
+			userCounts.put(userID, newCount);
+			return true;
+		}
+	}
+
+	/**
+	 * Decrement the number of queries of the given user.
+	 *
+	 * @param userID	ID of the user.
+	 */
+	protected void decrementUser(final String userID){
+		synchronized(userCounts){
+			Integer count = userCounts.get(userID);
+			if (count == null || count <= 1)
+				userCounts.remove(userID);
+			else
+				userCounts.put(userID, count - 1);
+		}
+	}
+
+	/**
+	 * Replace the value of the given counter by the given one if greater.
+	 *
+	 * @param max	The counter to update.
+	 * @param value	The candidate value.
+	 */
+	private static void updateMax(final AtomicInteger max, final int value){
+		int current;
+		while((current = max.get()) < value && !max.compareAndSet(current, value));
+	}
+
+	/**
+	 * Replace the value of the given counter by the given one if greater.
+	 *
+	 * @param max	The counter to update.
+	 * @param value	The candidate value.
+	 */
+	private static void updateMax(final AtomicLong max, final long value){
+		long current;
+		while((current = max.get()) < value && !max.compareAndSet(current, value));
+	}
+
+	/* ********** */
+	/* STATISTICS */
+	/* ********** */
+
+	/**
+	 * Get the number of synchronous queries currently running.
+	 *
+	 * @return	Number of running queries.
+	 */
+	public final int getNbRunning(){
+		return nbRunning.get();
+	}
+
+	/**
+	 * Get the number of requests currently waiting for a free slot.
+	 *
+	 * @return	Current queue depth.
+	 */
+	public final int getNbQueued(){
+		return nbQueued.get();
+	}
+
+	/**
+	 * Get the highest number of requests simultaneously waiting for a free
+	 * slot.
+	 *
+	 * @return	Highest queue depth.
+	 */
+	public final int getPeakQueued(){
+		return peakQueued.get();
+	}
+
+	/**
+	 * Get the total number of admitted requests.
+	 *
+	 * @return	Number of admitted requests.
+	 */
+	public final long getNbAdmitted(){
+		return nbAdmitted.get();
+	}
+
+	/**
+	 * Get the total number of rejected requests (including the ones which
+	 * waited too long).
+	 *
+	 * @return	Number of rejected requests.
+	 */
+	public final long getNbRejected(){
+		return nbRejected.get();
+	}
+
+	/**
+	 * Get the total number of requests rejected because they waited too long.
+	 *
+	 * @return	Number of timed out requests.
+	 */
+	public final long getNbTimedOut(){
+		return nbTimedOut.get();
+	}
+
+	/**
+	 * Get the average time spent waiting by the admitted requests.
+	 *
+	 * @return	Average waiting time (in milliseconds).
+	 */
+	public final double getAverageWaitTime(){
+		long nb = nbAdmitted.get();
+		return (nb == 0) ? 0 : totalWaitTime.get() / (double)nb;
+	}
+
+	/**
+	 * Get the longest time spent waiting by a request.
+	 *
+	 * @return	Longest waiting time (in milliseconds).
+	 */
+	public final long getMaxWaitTime(){
+		return maxWaitTime.get();
+	}
+
+	/**
+	 * Permission to execute one synchronous query.
+	 *
+	 * <p>It MUST be released once the query execution is finished.</p>
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	public final class Ticket {
+
+		/** ID of the user owning this ticket. <i>NULL if no per-user limit
+		 * applies.</i> */
+		private final String userID;
+
+		/** Indicate whether this ticket has already been released. */
+		private final AtomicBoolean released = new AtomicBoolean(false);
+
+		/**
+		 * Build a ticket.
+		 *
+		 * @param userID	ID of the user owning this ticket.
+		 */
+		private Ticket(final String userID){
+			this.userID = userID;
+		}
+
+		/**
+		 * Free the execution slot taken by this ticket.
+		 *
+		 * <p><i>Note:
+		 * 	Calling this function more than once has no effect.
+		 * </i></p>
+		 */
+		public void release(){
+			if (released.compareAndSet(false, true)){
+				nbRunning.decrementAndGet();
+				if (slots != null)
+					slots.release();
+				if (userID != null)
+					decrementUser(userID);
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,697 @@
+package tap.resource;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import tap.TAPExecutionReport;
+import tap.TAPJob;
+import tap.metadata.TAPMetadata;
+import tap.parameters.TAPParameters;
+
+/**
+ * Cache of the formatted results of synchronous queries.
+ *
+ * <p>
+ * 	A result is identified by its normalized ADQL query (i.e. with all
+ * 	whitespaces outside literals collapsed), its language, its format and its
+ * 	MAXREC. Once a query has been successfully executed, the bytes written in
+ * 	the HTTP response are kept in memory, so that the same query is answered
+ * 	again without accessing the database nor formatting anything.
+ * </p>
+ *
+ * <p>The cache is bounded:</p>
+ * <ul>
+ * 	<li>in size: the least recently used results are removed when the total
+ * 		size exceeds {@link #getMaxSize()},</li>
+ * 	<li>in time: a result is not used any more after {@link #getTimeToLive()}
+ * 		milliseconds.</li>
+ * </ul>
+ *
+ * <p>A result is never cached if:</p>
+ * <ul>
+ * 	<li>the query uploads tables,</li>
+ * 	<li>it is bigger than {@link #getMaxEntrySize()},</li>
+ * 	<li>or the query reads a table declared as excluded (see
+ * 		{@link #excludeTable(String)}).</li>
+ * </ul>
+ *
+ * <p>
+ * 	When the data of a table change, all results of queries reading this
+ * 	table can be removed with {@link #invalidate(String)}. When the TAP
+ * 	metadata are replaced (e.g. reloaded), the whole cache is cleared.
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class SyncResultCache {
+
+	/** Maximum total size (in bytes) of all cached results. */
+	protected final long maxSize;
+
+	/** Maximum size (in bytes) of a single cached result. */
+	protected final long maxEntrySize;
+
+	/** Time (in milliseconds) during which a cached result can be used.
+	 * <i>A negative or null value means "forever".</i> */
+	protected final long timeToLive;
+
+	/** Names (lower case) of the tables whose the results must never be
+	 * cached. */
+	protected final Set<String> excludedTables = new HashSet<String>();
+
+	/** All cached results, from the least to the most recently used. */
+	private final LinkedHashMap<String,CachedResult> entries = new LinkedHashMap<String,CachedResult>(16, 0.75f, true);
+
+	/** Current total size (in bytes) of all cached results. */
+	private long size = 0;
+
+	/** Metadata which were published when the cached results were computed. */
+	private TAPMetadata metadata = null;
+
+	/** Number of queries answered with a cached result. */
+	protected final AtomicLong nbHits = new AtomicLong(0);
+
+	/** Number of cacheable queries which had to be executed. */
+	protected final AtomicLong nbMisses = new AtomicLong(0);
+
+	/**
+	 * Build a result cache.
+	 *
+	 * @param maxSize		Maximum total size (in bytes) of all cached results.
+	 * @param maxEntrySize	Maximum size (in bytes) of a single cached result.
+	 *                    	<i>If &le;0 or bigger than maxSize, maxSize is
+	 *                    	used.</i>
+	 * @param timeToLive	Time (in milliseconds) during which a cached result
+	 *                  	can be used. <i>&le;0 means "forever".</i>
+	 */
+	public SyncResultCache(final long maxSize, final long maxEntrySize, final long timeToLive){
+		this.maxSize = (maxSize < 0) ? 0 : maxSize;
+		this.maxEntrySize = (maxEntrySize <= 0 || maxEntrySize > this.maxSize) ? this.maxSize : maxEntrySize;
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Get the maximum total size of all cached results.
+	 *
+	 * @return	Maximum size (in bytes).
+	 */
+	public final long getMaxSize(){
+		return maxSize;
+	}
+
+	/**
+	 * Get the maximum size of a single cached result.
+	 *
+	 * @return	Maximum size (in bytes) of a result.
+	 */
+	public final long getMaxEntrySize(){
+		return maxEntrySize;
+	}
+
+	/**
+	 * Get the time during which a cached result can be used.
+	 *
+	 * @return	Time to live (in milliseconds). <i>&le;0 means "forever".</i>
+	 */
+	public final long getTimeToLive(){
+		return timeToLive;
+	}
+
+	/**
+	 * Never cache the results of the queries reading the given table.
+	 *
+	 * <p><i>Note:
+	 * 	The results already cached for this table are removed.
+	 * </i></p>
+	 *
+	 * @param table	ADQL name of the table, prefixed or not by its schema
+	 *             	(e.g. <code>gaia.source</code>). <i>Case insensitive.</i>
+	 */
+	public void excludeTable(final String table){
+		if (table == null || table.trim().length() == 0)
+			return;
+		synchronized(this){
+			excludedTables.add(table.trim().toLowerCase());
+		}
+		invalidate(table);
+	}
+
+	/**
+	 * Tell whether the results of the queries reading the given table must
+	 * never be cached.
+	 *
+	 * @param table	ADQL name of the table, prefixed or not by its schema.
+	 *
+	 * @return	<i>true</i> if the table is excluded,
+	 *        	<i>false</i> otherwise.
+	 */
+	public synchronized boolean isExcluded(final String table){
+		for(String excluded : excludedTables){
+			if (matches(table, excluded))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Tell whether the result of the given query may be cached.
+	 *
+	 * <p>
+	 * 	Only ADQL queries without upload are cacheable. Whether a result is
+	 * 	finally cached depends also on its size and on the tables it reads
+	 * 	(see {@link #put(String, byte[], String, String, String[])}).
+	 * </p>
+	 *
+	 * @param params	Parameters of the synchronous query.
+	 *
+	 * @return	<i>true</i> if the result may be cached,
+	 *        	<i>false</i> otherwise.
+	 */
+	public boolean isCacheable(final TAPParameters params){
+		if (maxSize <= 0 || params == null || params.getQuery() == null)
+			return false;
+		if (params.getRequest() != null && !params.getRequest().equalsIgnoreCase(TAPJob.REQUEST_DO_QUERY))
+			return false;
+		if (params.getUpload() != null || (params.getUploadedTables() != null && params.getUploadedTables().length > 0))
+			return false;
+		return true;
+	}
+
+	/**
+	 * Build the key identifying the result of the given query.
+	 *
+	 * <p>
+	 * 	If the given metadata are not the ones used for the results already
+	 * 	cached, the whole cache is cleared: the same query may now have a
+	 * 	different result.
+	 * </p>
+	 *
+	 * @param params	Parameters of the synchronous query.
+	 * @param metadata	Metadata currently published by the TAP service.
+	 *
+	 * @return	Key of the query result.
+	 */
+	public String getKey(final TAPParameters params, final TAPMetadata metadata){
+		synchronized(this){
+			if (metadata != this.metadata){
+				clear();
+				this.metadata = metadata;
+			}
+		}
+
+		StringBuffer key = new StringBuffer();
+		key.append(params.getLang()).append('\n');
+		key.append(params.getFormat()).append('\n');
+		key.append(params.getMaxRec()).append('\n');
+		key.append(normalizeQuery(params.getQuery()));
+		return key.toString();
+	}
+
+	/**
+	 * Collapse all whitespaces outside string literals and delimited
+	 * identifiers, and remove leading and trailing whitespaces (and a final
+	 * <code>;</code>).
+	 *
+	 * @param query	The ADQL query to normalize.
+	 *
+	 * @return	The normalized query.
+	 */
+	public static String normalizeQuery(final String query){
+		if (query == null)
+			return null;
+
+		StringBuffer buf = new StringBuffer(query.length());
+		char quote = 0;
+		boolean space = false;
+		for(int i = 0; i < query.length(); i++){
+			char c = query.charAt(i);
+			if (quote != 0){
+				buf.append(c);
+				if (c == quote)
+					quote = 0;
+			}else if (Character.isWhitespace(c))
+				space = true;
+			else{
+				if (space && buf.length() > 0)
+					buf.append(' ');
+				space = false;
+				buf.append(c);
+				if (c == '\'' || c == '"')
+					quote = c;
+			}
+		}
+
+		// Remove the final ';':
+		int end = buf.length();
+		while(end > 0 && (buf.charAt(end - 1) == ';' || buf.charAt(end - 1) == ' ') && quote == 0)
+			end--;
+		buf.setLength(end);
+
+		return buf.toString();
+	}
+
+	/**
+	 * Get the cached result of the specified query.
+	 *
+	 * @param key	Key of the query result.
+	 *
+	 * @return	The cached result, or NULL if none is cached or if it has
+	 *        	expired.
+	 */
+	public CachedResult get(final String key){
+		CachedResult result;
+		synchronized(this){
+			result = entries.get(key);
+			if (result != null && result.isExpired()){
+				remove(key);
+				result = null;
+			}
+		}
+		if (result == null)
+			nbMisses.incrementAndGet();
+		else
+			nbHits.incrementAndGet();
+		return result;
+	}
+
+	/**
+	 * Cache the given result.
+	 *
+	 * <p>
+	 * 	Nothing is done if the result is too big or if the query has read an
+	 * 	excluded table. Otherwise, the least recently used results are removed
+	 * 	until the new one fits in the cache.
+	 * </p>
+	 *
+	 * @param key			Key of the query result.
+	 * @param content		Bytes of the result, as written in the HTTP response.
+	 * @param mimeType		MIME type of the result.
+	 * @param charEncoding	Character encoding of the result. <i>May be NULL.</i>
+	 * @param tables		ADQL names (prefixed by the schema name, if any) of
+	 *              		all tables read by the query.
+	 *
+	 * @return	<i>true</i> if the result has been cached,
+	 *        	<i>false</i> otherwise.
+	 */
+	public synchronized boolean put(final String key, final byte[] content, final String mimeType, final String charEncoding, final String[] tables){
+		if (key == null || content == null || content.length > maxEntrySize)
+			return false;
+		if (tables != null){
+			for(String t : tables){
+				if (isExcluded(t))
+					return false;
+			}
+		}
+
+		remove(key);
+		entries.put(key, new CachedResult(content, mimeType, charEncoding, tables, (timeToLive > 0) ? System.currentTimeMillis() + timeToLive : -1));
+		size += content.length;
+
+		// Remove the least recently used results:
+		Iterator<Map.Entry<String,CachedResult>> it = entries.entrySet().iterator();
+		while(size > maxSize && it.hasNext()){
+			Map.Entry<String,CachedResult> entry = it.next();
+			size -= entry.getValue().content.length;
+			it.remove();
+		}
+
+		return true;
+	}
+
+	/**
+	 * Remove the specified result from the cache.
+	 *
+	 * @param key	Key of the query result.
+	 */
+	protected synchronized void remove(final String key){
+		CachedResult former = entries.remove(key);
+		if (former != null)
+			size -= former.content.length;
+	}
+
+	/**
+	 * Remove the results of all queries reading the given table.
+	 *
+	 * <p>This function should be called when the data of this table change.</p>
+	 *
+	 * @param table	ADQL name of the table, prefixed or not by its schema.
+	 *             	<i>Case insensitive.</i>
+	 *
+	 * @return	Number of removed results.
+	 */
+	public synchronized int invalidate(final String table){
+		if (table == null)
+			return 0;
+
+		String name = table.trim().toLowerCase();
+		int nbRemoved = 0;
+		Iterator<CachedResult> it = entries.values().iterator();
+		while(it.hasNext()){
+			CachedResult result = it.next();
+			for(String t : result.tables){
+				if (matches(t, name)){
+					size -= result.content.length;
+					it.remove();
+					nbRemoved++;
+					break;
+				}
+			}
+		}
+		return nbRemoved;
+	}
+
+	/**
+	 * Remove all cached results.
+	 */
+	public synchronized void clear(){
+		entries.clear();
+		size = 0;
+	}
+
+	/**
+	 * Tell whether the given table name designates the same table as the
+	 * given reference.
+	 *
+	 * @param table		Full ADQL name of a table (i.e. prefixed by its
+	 *             		schema, if any).
+	 * @param reference	Lower case name of a table, prefixed or not by its
+	 *                 	schema.
+	 *
+	 * @return	<i>true</i> if they designate the same table,
+	 *        	<i>false</i> otherwise.
+	 */
+	protected static boolean matches(final String table, final String reference){
+		if (table == null)
+			return false;
+		String name = table.toLowerCase();
+		if (name.equals(reference))
+			return true;
+		// no schema in the reference => compare only the table names:
+		return reference.indexOf('.') < 0 && name.endsWith("." + reference);
+	}
+
+	/**
+	 * Get the number of cached results.
+	 *
+	 * @return	Number of results.
+	 */
+	public synchronized int getNbEntries(){
+		return entries.size();
+	}
+
+	/**
+	 * Get the total size of all cached results.
+	 *
+	 * @return	Size (in bytes).
+	 */
+	public synchronized long getSize(){
+		return size;
+	}
+
+	/**
+	 * Get the number of queries answered with a cached result.
+	 *
+	 * @return	Number of cache hits.
+	 */
+	public final long getNbHits(){
+		return nbHits.get();
+	}
+
+	/**
+	 * Get the number of cacheable queries which had to be executed.
+	 *
+	 * @return	Number of cache misses.
+	 */
+	public final long getNbMisses(){
+		return nbMisses.get();
+	}
+
+	/**
+	 * Wrap the given HTTP response so that the result written in it can be
+	 * cached once the query is successfully executed.
+	 *
+	 * @param response	The HTTP response to wrap.
+	 *
+	 * @return	A response copying (up to {@link #getMaxEntrySize()} bytes)
+	 *        	everything written in the given one.
+	 */
+	public CapturingResponse capture(final HttpServletResponse response){
+		return new CapturingResponse(response, maxEntrySize);
+	}
+
+	/**
+	 * Cache the result captured while executing a query.
+	 *
+	 * @param key		Key of the query result.
+	 * @param capture	The response in which the result has been written.
+	 * @param report	Report of the query execution (listing the tables read
+	 *              	by the query).
+	 *
+	 * @return	<i>true</i> if the result has been cached,
+	 *        	<i>false</i> otherwise.
+	 */
+	public boolean put(final String key, final CapturingResponse capture, final TAPExecutionReport report){
+		if (report == null || !report.success)
+			return false;
+		byte[] content = capture.getCapturedContent();
+		if (content == null)
+			return false;
+		return put(key, content, capture.getContentType(), capture.getCharacterEncoding(), report.queriedTables);
+	}
+
+	/**
+	 * Result kept in a {@link SyncResultCache}.
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	public static class CachedResult {
+		/** Bytes of the result, as written in the HTTP response. */
+		protected final byte[] content;
+		/** MIME type of the result. */
+		protected final String mimeType;
+		/** Character encoding of the result. <i>May be NULL.</i> */
+		protected final String charEncoding;
+		/** Full ADQL names of all tables read by the query. */
+		protected final String[] tables;
+		/** Date (in milliseconds) after which this result can not be used
+		 * any more. <i>-1 means "never".</i> */
+		protected final long expirationTime;
+
+		/**
+		 * Build a cached result.
+		 *
+		 * @param content			Bytes of the result.
+		 * @param mimeType			MIME type of the result.
+		 * @param charEncoding		Character encoding of the result.
+		 * @param tables			Full ADQL names of all tables read by the
+		 *              			query.
+		 * @param expirationTime	Date (in milliseconds) after which this
+		 *                      	result can not be used any more.
+		 *                      	<i>-1 means "never".</i>
+		 */
+		protected CachedResult(final byte[] content, final String mimeType, final String charEncoding, final String[] tables, final long expirationTime){
+			this.content = content;
+			this.mimeType = mimeType;
+			this.charEncoding = charEncoding;
+			this.tables = (tables == null) ? new String[0] : tables;
+			this.expirationTime = expirationTime;
+		}
+
+		/**
+		 * Tell whether this result can not be used any more.
+		 *
+		 * @return	<i>true</i> if expired,
+		 *        	<i>false</i> otherwise.
+		 */
+		public final boolean isExpired(){
+			return expirationTime > 0 && System.currentTimeMillis() > expirationTime;
+		}
+
+		/**
+		 * Get the bytes of this result.
+		 *
+		 * @return	Result content.
+		 */
+		public final byte[] getContent(){
+			return content;
+		}
+
+		/**
+		 * Get the MIME type of this result.
+		 *
+		 * @return	MIME type.
+		 */
+		public final String getMimeType(){
+			return mimeType;
+		}
+
+		/**
+		 * Get the full ADQL names of all tables read by the query.
+		 *
+		 * @return	Queried tables.
+		 */
+		public final String[] getTables(){
+			return tables;
+		}
+
+		/**
+		 * Write this result in the given HTTP response.
+		 *
+		 * @param response	The HTTP response in which this result must be
+		 *                	written.
+		 *
+		 * @throws IOException	If the response can not be written.
+		 */
+		public void write(final HttpServletResponse response) throws IOException{
+			if (mimeType != null)
+				response.setContentType(mimeType);
+			if (charEncoding != null)
+				response.setCharacterEncoding(charEncoding);
+			response.setContentLength(content.length);
+			ServletOutputStream output = response.getOutputStream();
+			output.write(content);
+			output.flush();
+		}
+	}
+
+	/**
+	 * HTTP response copying everything written in its output stream, as long
+	 * as it does not exceed a given size.
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	public static class CapturingResponse extends HttpServletResponseWrapper {
+		/** Maximum number of bytes to copy. */
+		protected final long maxSize;
+		/** Copy of the written bytes.
+		 * <i>NULL if the maximum size has been exceeded.</i> */
+		protected ByteArrayOutputStream copy = new ByteArrayOutputStream();
+		/** Output stream of the wrapped response, copying the written bytes. */
+		protected ServletOutputStream output = null;
+
+		/**
+		 * Wrap the given response.
+		 *
+		 * @param response	The HTTP response to wrap.
+		 * @param maxSize	Maximum number of bytes to copy.
+		 */
+		public CapturingResponse(final HttpServletResponse response, final long maxSize){
+			super(response);
+			this.maxSize = maxSize;
+		}
+
+		/**
+		 * Get the bytes written in this response.
+		 *
+		 * @return	The written bytes,
+		 *        	or NULL if they exceeded the maximum size or if they were
+		 *        	not all written in the output stream.
+		 */
+		public byte[] getCapturedContent(){
+			return (copy == null) ? null : copy.toByteArray();
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException{
+			if (output == null){
+				final ServletOutputStream wrapped = super.getOutputStream();
+				output = new ServletOutputStream(){
+					@Override
+					public void write(final int b) throws IOException{
+						wrapped.write(b);
+						copy(new byte[]{ (byte)b }, 0, 1);
+					}
+
+					@Override
+					public void write(final byte[] b, final int off, final int len) throws IOException{
+						wrapped.write(b, off, len);
+						copy(b, off, len);
+					}
+
+					@Override
+					public void flush() throws IOException{
+						wrapped.flush();
+					}
+
+					@Override
+					public void close() throws IOException{
+						wrapped.close();
+					}
+				};
+			}
+			return output;
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException{
+			// what is written with a Writer is not copied => the result can not be cached:
+			copy = null;
+			return super.getWriter();
+		}
+
+		@Override
+		public void resetBuffer(){
+			super.resetBuffer();
+			copy = null;
+		}
+
+		@Override
+		public void reset(){
+			super.reset();
+			copy = null;
+		}
+
+		/**
+		 * Copy the given bytes, unless the maximum size is exceeded.
+		 *
+		 * @param b		Bytes to copy.
+		 * @param off	Index of the first byte to copy.
+		 * @param len	Number of bytes to copy.
+		 */
+		protected void copy(final byte[] b, final int off, final int len){
+			if (copy == null)
+				return;
+			if (copy.size() + len > maxSize)
+				copy = null;
+			else
+				copy.write(b, off, len);
+		}
+	}
+
+}
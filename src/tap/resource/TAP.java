@@ -16,14 +16,14 @@ package tap.resource;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2012-2018 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
 import java.io.IOException;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -60,7 +60,7 @@ import uws.service.log.UWSLog.LogLevel;
  * </p>
  *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.3 (08/2018)
+ * @version 2.4 (10/2026)
  */
 public class TAP implements VOSIResource {
 
@@ -145,11 +145,14 @@ public class TAP implements VOSIResource {
 	/** Description of the TAP service owning this resource. */
 	protected final ServiceConnection service;
 
-	/** List of all the other TAP resources of the service. */
+	/** List of all the other TAP resources of the service.
+	 * <i>Note: since v2.4, it is a {@link ConcurrentHashMap}, because the
+	 * /tables resource may be replaced while requests are processed (see
+	 * {@link #setTAPMetadata(TAPMetadata)}).</i> */
 	protected final Map<String, TAPResource> resources;
 
 	/** Base URL of the TAP service. It is also the URL of this resource (HOME). */
-	protected String tapBaseURL = null;
+	protected volatile String tapBaseURL = null;
 
 	/**
 	 * <p>HOME PAGE resource.
@@ -190,7 +193,7 @@ public class TAP implements VOSIResource {
 	 */
 	public TAP(final ServiceConnection serviceConnection) throws UWSException, TAPException{
 		service = serviceConnection;
-		resources = new HashMap<String, TAPResource>();
+		resources = new ConcurrentHashMap<String, TAPResource>();
 
 		// Get the error writer to use, or create a default instance if none are provided by the factory:
 		errorWriter = serviceConnection.getFactory().getErrorWriter();
@@ -212,6 +215,7 @@ public class TAP implements VOSIResource {
 
 		res = new ASync(service);
 		resources.put(res.getName(), res);
+		getSync().setAsyncResource((ASync)res);
 
 		TAPMetadata metadata = service.getTAPMetadata();
 		resources.put(metadata.getName(), metadata);
@@ -282,6 +286,21 @@ public class TAP implements VOSIResource {
 		tapBaseURL = baseURL;
 		for(TAPResource res : resources.values())
 			res.setTAPBaseURL(tapBaseURL);
+		invalidateCapabilities();
+	}
+
+	/**
+	 * Forget the serialized capabilities document, so that it is built
+	 * again - with all the current resources - at the next request.
+	 *
+	 * @see Capabilities#invalidateCache()
+	 *
+	 * @since 2.4
+	 */
+	public void invalidateCapabilities(){
+		TAPResource res = resources.get(RESOURCE_CAPABILITIES);
+		if (res != null && res instanceof Capabilities)
+			((Capabilities)res).invalidateCache();
 	}
 
 	/**
@@ -370,9 +389,68 @@ public class TAP implements VOSIResource {
 	 * @return	List of all metadata of this TAP service.
 	 */
 	public final TAPMetadata getTAPMetadata(){
+		synchronizeTAPMetadata();
 		return (TAPMetadata)resources.get(TAPMetadata.RESOURCE_NAME);
 	}
 
+	/**
+	 * <p>Replace the object managing all the metadata of this TAP service
+	 * (and so, the /tables resource).</p>
+	 *
+	 * <p>
+	 * 	The base URL of this service is set into the given metadata before
+	 * 	they are published. Since a new {@link TAPMetadata} object has no
+	 * 	serialized VOSI document yet, the /tables document is built again at
+	 * 	the next request.
+	 * </p>
+	 *
+	 * <p><i>Note:
+	 * 	This function does not change the metadata returned by
+	 * 	{@link ServiceConnection#getTAPMetadata()}. However, the /tables
+	 * 	resource always follows these latter: if they are replaced, the
+	 * 	/tables resource is replaced too before being used (see
+	 * 	{@link #getResource(String)} and {@link #getTAPMetadata()}), even if
+	 * 	this function has not been called yet.
+	 * </i></p>
+	 *
+	 * @param newMetadata	The new metadata. <i>Ignored if NULL.</i>
+	 *
+	 * @since 2.4
+	 */
+	public void setTAPMetadata(final TAPMetadata newMetadata){
+		if (newMetadata == null)
+			return;
+		newMetadata.setTAPBaseURL(tapBaseURL);
+		resources.put(TAPMetadata.RESOURCE_NAME, newMetadata);
+	}
+
+	/**
+	 * Replace the /tables resource by the metadata returned by
+	 * {@link ServiceConnection#getTAPMetadata()}, if they are different.
+	 *
+	 * <p>
+	 * 	Thus, the /tables resource and the ADQL queries (checked against the
+	 * 	metadata of the {@link ServiceConnection}) can not disagree, whatever
+	 * 	is the thread reloading the metadata.
+	 * </p>
+	 *
+	 * <p><i>Note:
+	 * 	Nothing is done if the /tables resource has been replaced by a
+	 * 	resource which is not a {@link TAPMetadata}.
+	 * </i></p>
+	 *
+	 * @since 2.4
+	 */
+	protected final void synchronizeTAPMetadata(){
+		final TAPResource published = resources.get(TAPMetadata.RESOURCE_NAME);
+		final TAPMetadata current = service.getTAPMetadata();
+		if (current != null && published != current && published instanceof TAPMetadata){
+			current.setTAPBaseURL(tapBaseURL);
+			// only if not already replaced by another thread:
+			resources.replace(TAPMetadata.RESOURCE_NAME, published, current);
+		}
+	}
+
 	/**
 	 * <p>Add the given resource in this TAP service.</p>
 	 *
@@ -422,6 +500,7 @@ public class TAP implements VOSIResource {
 		if (newResource == null)
 			return false;
 		resources.put((resourceId == null) ? newResource.getName() : resourceId, newResource);
+		invalidateCapabilities();
 		return true;
 	}
 
@@ -447,6 +526,10 @@ public class TAP implements VOSIResource {
 	 *        	or NULL if no match can be found.
 	 */
 	public final TAPResource getResource(final String resourceId){
+		if (resourceId == null)
+			return null;
+		else if (resourceId.equals(TAPMetadata.RESOURCE_NAME))
+			synchronizeTAPMetadata();
 		return resources.get(resourceId);
 	}
 
@@ -484,7 +567,7 @@ public class TAP implements VOSIResource {
 	 *        	<i>false</i> otherwise.
 	 */
 	public final boolean hasResource(final String resourceId){
-		return resources.containsKey(resourceId);
+		return resourceId != null && resources.containsKey(resourceId);
 	}
 
 	/**
@@ -500,7 +583,10 @@ public class TAP implements VOSIResource {
 	 *        	otherwise, NULL is returned.
 	 */
 	public final TAPResource removeResource(final String resourceId){
-		return resources.remove(resourceId);
+		TAPResource removed = (resourceId == null) ? null : resources.remove(resourceId);
+		if (removed != null)
+			invalidateCapabilities();
+		return removed;
 	}
 
 	/* **************** */
@@ -954,6 +1040,14 @@ public class TAP implements VOSIResource {
 	 * 	set in this class. By changing it, it is then possible to change, for instance, the format of the error responses.
 	 * </p>
 	 *
+	 * <h3>Asynchronous response</h3>
+	 * <p>
+	 * 	Some resources (e.g. the stream of job events: <code>/async/events</code>) start the asynchronous processing
+	 * 	of the request and write their response in another thread. In such case, the response is neither flushed nor closed
+	 * 	here. Such resources need a servlet declared with <code>&lt;async-supported&gt;true&lt;/async-supported&gt;</code> ;
+	 * 	otherwise they fail with an HTTP-501 error.
+	 * </p>
+	 *
 	 * <h3>Request ID &amp; Log</h3>
 	 * <p>
 	 * 	Each request is identified by a unique identifier (see {@link #generateRequestID(HttpServletRequest)}).
@@ -1022,7 +1116,7 @@ public class TAP implements VOSIResource {
 			// or Display/Execute the selected TAP Resource:
 			else{
 				// search for the corresponding resource:
-				TAPResource res = resources.get(resourceName);
+				TAPResource res = getResource(resourceName);
 				// if one is found, execute it:
 				if (res != null)
 					res.executeResource(request, response);
@@ -1031,7 +1125,9 @@ public class TAP implements VOSIResource {
 					throw new TAPException("Unknown TAP resource: \"" + resourceName + "\"!", UWSException.NOT_IMPLEMENTED);
 			}
 
-			response.flushBuffer();
+			// (an asynchronous response - e.g. /async/events - is written by another thread):
+			if (!request.isAsyncStarted())
+				response.flushBuffer();
 
 			// Log the successful execution of the action, only if the asked resource is not UWS (because UWS is already logging the received request):
 			if (!resourceName.equalsIgnoreCase(ASync.RESOURCE_NAME))
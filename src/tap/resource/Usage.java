@@ -0,0 +1,213 @@
+package tap.resource;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.servlet.ServletConfig;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.json.JSONException;
+import org.json.JSONWriter;
+
+import tap.ServiceConnection;
+import tap.TAPException;
+import uws.UWSException;
+import uws.UWSToolBox;
+import uws.job.user.JobOwner;
+
+/**
+ * TAP resource showing the resources used by the users, as accounted by a
+ * {@link UsageAccounting}.
+ *
+ * <p>
+ * 	The answer is a JSON document giving the accounting window (in seconds),
+ * 	the quotas and the usage of the users in this window. For instance:
+ * </p>
+ * <pre>{"window":3600,"quotas":{"queries":1000,"dbTime":600000},"rejected":2,
+ * "users":[{"id":"jdoe","queries":12,"dbTime":3400,"rows":120000,"bytes":2560000}]}</pre>
+ *
+ * <p>
+ * 	By default, a user can only see its own usage. The usage of all users
+ * 	is shown only if this resource has been created so (see
+ * 	{@link #Usage(ServiceConnection, UsageAccounting, boolean)}) ; the access
+ * 	to this resource should then be restricted by the web server.
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class Usage implements TAPResource {
+
+	/** Name of this TAP resource. */
+	public static final String RESOURCE_NAME = "usage";
+
+	/** Description of the TAP service owning this resource. */
+	protected final ServiceConnection service;
+
+	/** The accounting to show. */
+	protected final UsageAccounting accounting;
+
+	/** Whether the usage of all users is shown to anybody.
+	 * <i>If <code>false</code>, only the usage of the requesting user is
+	 * shown.</i> */
+	protected final boolean showAllUsers;
+
+	/**
+	 * Build a "usage" resource.
+	 *
+	 * @param service		Description of the TAP service which will own this resource.
+	 * @param accounting	The accounting to show.
+	 * @param showAllUsers	<i>true</i> to show the usage of all users to anybody,
+	 *                    	<i>false</i> to show only the usage of the requesting user.
+	 *
+	 * @throws NullPointerException	If the given accounting is NULL.
+	 */
+	public Usage(final ServiceConnection service, final UsageAccounting accounting, final boolean showAllUsers) throws NullPointerException{
+		if (accounting == null)
+			throw new NullPointerException("Missing usage accounting! Impossible to create a TAP resource showing it.");
+		this.service = service;
+		this.accounting = accounting;
+		this.showAllUsers = showAllUsers;
+	}
+
+	@Override
+	public String getName(){
+		return RESOURCE_NAME;
+	}
+
+	@Override
+	public void setTAPBaseURL(final String baseURL){
+		;
+	}
+
+	@Override
+	public void init(final ServletConfig config) throws ServletException{
+		;
+	}
+
+	@Override
+	public void destroy(){
+		;
+	}
+
+	/**
+	 * Get the shown accounting.
+	 *
+	 * @return	The usage accounting.
+	 */
+	public final UsageAccounting getAccounting(){
+		return accounting;
+	}
+
+	@Override
+	public boolean executeResource(final HttpServletRequest request, final HttpServletResponse response) throws IOException, TAPException{
+		if (!request.getMethod().equalsIgnoreCase("GET"))
+			throw new TAPException("The USAGE resource is only accessible in HTTP-GET!", HttpServletResponse.SC_METHOD_NOT_ALLOWED);
+
+		// Select the usages to show:
+		List<UsageAccounting.UserUsage> usages;
+		if (showAllUsers)
+			usages = accounting.getSnapshot();
+		else{
+			JobOwner user;
+			try{
+				user = UWSToolBox.getUser(request, service.getUserIdentifier());
+			}catch(UWSException ue){
+				throw new TAPException(ue);
+			}
+			usages = new ArrayList<UsageAccounting.UserUsage>(1);
+			UsageAccounting.UserUsage usage = (user == null) ? null : accounting.getUsage(user.getID());
+			if (usage != null)
+				usages.add(usage);
+		}
+
+		// Write them:
+		response.setContentType("application/json");
+		response.setCharacterEncoding(UWSToolBox.DEFAULT_CHAR_ENCODING);
+		PrintWriter writer = response.getWriter();
+		try{
+			write(usages, new JSONWriter(writer));
+		}catch(JSONException je){
+			throw new TAPException("Error while writing the usage of the users!", je, UWSException.INTERNAL_SERVER_ERROR);
+		}
+		writer.flush();
+
+		return true;
+	}
+
+	/**
+	 * Write the given usages in JSON.
+	 *
+	 * @param usages	The usages to write.
+	 * @param json		Where the usages must be written.
+	 *
+	 * @throws JSONException	If an error occurs while writing.
+	 */
+	protected void write(final List<UsageAccounting.UserUsage> usages, final JSONWriter json) throws JSONException{
+		json.object();
+		json.key("window").value(accounting.getWindowLength() / 1000);
+
+		// Quotas:
+		json.key("quotas").object();
+		writeQuota(json, "queries", accounting.getQuota(UsageAccounting.QUERIES));
+		writeQuota(json, "dbTime", accounting.getQuota(UsageAccounting.DB_TIME));
+		writeQuota(json, "rows", accounting.getQuota(UsageAccounting.ROWS));
+		writeQuota(json, "bytes", accounting.getQuota(UsageAccounting.BYTES));
+		json.endObject();
+		json.key("rejected").value(accounting.getNbRejected());
+
+		// Usages:
+		json.key("users").array();
+		for(UsageAccounting.UserUsage usage : usages){
+			json.object();
+			json.key("id").value(usage.getUserID());
+			json.key("queries").value(usage.getNbQueries());
+			json.key("dbTime").value(usage.getDBTime());
+			json.key("rows").value(usage.getNbRows());
+			json.key("bytes").value(usage.getNbBytes());
+			json.endObject();
+		}
+		json.endArray();
+
+		json.endObject();
+	}
+
+	/**
+	 * Write the given quota, if any.
+	 *
+	 * @param json	Where the quota must be written.
+	 * @param key	Name of the quota.
+	 * @param quota	Value of the quota. <i>Not written if negative or null.</i>
+	 *
+	 * @throws JSONException	If an error occurs while writing.
+	 */
+	private static void writeQuota(final JSONWriter json, final String key, final long quota) throws JSONException{
+		if (quota > 0)
+			json.key(key).value(quota);
+	}
+
+}
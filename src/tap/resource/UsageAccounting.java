@@ -0,0 +1,722 @@
+package tap.resource;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+
+import tap.QuotaExceededException;
+import tap.TAPExecutionReport;
+import tap.TAPJob;
+import uws.UWSException;
+import uws.job.ExecutionPhase;
+import uws.job.JobObserver;
+import uws.job.Result;
+import uws.job.UWSJob;
+import uws.job.user.JobOwner;
+
+/**
+ * Account the resources used by each user and enforce quotas on them.
+ *
+ * <p>
+ * 	For each identified user ({@link JobOwner}), the following usages are
+ * 	accounted over a rolling window (see {@link #getWindowLength()}):
+ * </p>
+ * <ul>
+ * 	<li>the number of executed queries,</li>
+ * 	<li>the time spent in the database (see
+ * 		{@link TAPExecutionReport#getExecutionDuration()}),</li>
+ * 	<li>the number of result rows (see {@link TAPExecutionReport#nbRows}),</li>
+ * 	<li>the number of result bytes (see {@link Result#getSize()} for
+ * 		asynchronous jobs, and the size of the HTTP response for synchronous
+ * 		ones).</li>
+ * </ul>
+ *
+ * <p>
+ * 	The window is divided into a fixed number of buckets. Thus, recording an
+ * 	execution or checking the quotas of a user only costs a few additions,
+ * 	under a lock specific to this user. The usage of a bucket is forgotten as
+ * 	soon as it leaves the window.
+ * </p>
+ *
+ * <p>
+ * 	Before accepting a new synchronous query or asynchronous job, {@link Sync}
+ * 	and {@link ASync} call {@link #admit(JobOwner)}. If one of the quotas of
+ * 	the user is already reached, the request is rejected with a
+ * 	{@link QuotaExceededException} (i.e. HTTP-429 with a
+ * 	<code>Retry-After</code> header). Otherwise, the query is immediately
+ * 	counted: a user can then not submit more queries than allowed, even if
+ * 	none of them is finished yet. The other usages are known only once the
+ * 	query is finished (see {@link #complete(JobOwner, TAPExecutionReport, long)}) ;
+ * 	so, a user may exceed these quotas with its last queries, but it then has
+ * 	to wait before submitting another one.
+ * </p>
+ *
+ * <p>
+ * 	The end of asynchronous jobs is recorded by this object itself, as a
+ * 	{@link JobObserver} of their job list (see
+ * 	{@link ASync#setUsageAccounting(UsageAccounting)}).
+ * </p>
+ *
+ * <p><i>Note:
+ * 	Anonymous requests (i.e. no {@link JobOwner}) are neither accounted nor
+ * 	limited, since there is no way to tell apart their authors.
+ * </i></p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class UsageAccounting implements JobObserver {
+	private static final long serialVersionUID = 1L;
+
+	/** Index of the number of queries in the accounted usages. */
+	public final static int QUERIES = 0;
+	/** Index of the time spent in the database (in milliseconds) in the
+	 * accounted usages. */
+	public final static int DB_TIME = 1;
+	/** Index of the number of result rows in the accounted usages. */
+	public final static int ROWS = 2;
+	/** Index of the number of result bytes in the accounted usages. */
+	public final static int BYTES = 3;
+
+	/** Labels of all accounted usages, in the order of their index. */
+	protected final static String[] USAGE_LABELS = new String[]{ "queries", "database time (ms)", "result rows", "result bytes" };
+
+	/** Number of usages recorded after which users without any usage in the
+	 * window are forgotten. */
+	protected final static int PURGE_FREQUENCY = 1024;
+
+	/** Length (in milliseconds) of the rolling window. */
+	protected final long windowLength;
+
+	/** Number of buckets in the window. */
+	protected final int nbBuckets;
+
+	/** Length (in milliseconds) of one bucket. */
+	protected final long bucketLength;
+
+	/** Maximum usage per user in the window, for each accounted usage (see
+	 * {@link #QUERIES}, {@link #DB_TIME}, {@link #ROWS} and {@link #BYTES}).
+	 * <i>A negative or null value means "no limit".</i> */
+	protected final long[] quotas = new long[]{ -1, -1, -1, -1 };
+
+	/** Usage of each user, indexed by user ID. */
+	protected final ConcurrentHashMap<String,UsageRing> owners = new ConcurrentHashMap<String,UsageRing>();
+
+	/** Number of recorded executions since the last purge. */
+	protected final AtomicLong nbRecordsSincePurge = new AtomicLong(0);
+
+	/** Total number of rejected requests. */
+	protected final AtomicLong nbRejected = new AtomicLong(0);
+
+	/**
+	 * Build a usage accounting without any quota.
+	 *
+	 * @param windowLength	Length (in milliseconds) of the rolling window.
+	 * @param nbBuckets		Number of buckets in the window. <i>The greater,
+	 *                 		the more accurate the expiration of the usages.</i>
+	 *
+	 * @throws IllegalArgumentException	If the window length or the number of
+	 *                                 	buckets is not positive.
+	 */
+	public UsageAccounting(final long windowLength, final int nbBuckets) throws IllegalArgumentException{
+		if (windowLength <= 0)
+			throw new IllegalArgumentException("The length of the accounting window must be positive!");
+		if (nbBuckets <= 0)
+			throw new IllegalArgumentException("The number of buckets of the accounting window must be positive!");
+		this.nbBuckets = (nbBuckets > windowLength) ? (int)windowLength : nbBuckets;
+		this.bucketLength = windowLength / this.nbBuckets;
+		this.windowLength = this.bucketLength * this.nbBuckets;
+	}
+
+	/**
+	 * Get the length of the rolling window.
+	 *
+	 * @return	Window length (in milliseconds).
+	 */
+	public final long getWindowLength(){
+		return windowLength;
+	}
+
+	/**
+	 * Get the number of buckets in the rolling window.
+	 *
+	 * @return	Number of buckets.
+	 */
+	public final int getNbBuckets(){
+		return nbBuckets;
+	}
+
+	/**
+	 * Get the maximum usage per user in the window.
+	 *
+	 * @param usage	Index of the usage: {@link #QUERIES}, {@link #DB_TIME},
+	 *             	{@link #ROWS} or {@link #BYTES}.
+	 *
+	 * @return	The quota, or a negative or null value if there is no limit.
+	 */
+	public final long getQuota(final int usage){
+		return quotas[usage];
+	}
+
+	/**
+	 * Set the maximum usage per user in the window.
+	 *
+	 * @param usage	Index of the usage: {@link #QUERIES}, {@link #DB_TIME},
+	 *             	{@link #ROWS} or {@link #BYTES}.
+	 * @param quota	The new quota. <i>A negative or null value means
+	 *             	"no limit".</i>
+	 */
+	public final void setQuota(final int usage, final long quota){
+		quotas[usage] = quota;
+	}
+
+	/**
+	 * Get the total number of requests rejected because of a quota.
+	 *
+	 * @return	Number of rejected requests.
+	 */
+	public final long getNbRejected(){
+		return nbRejected.get();
+	}
+
+	/**
+	 * Get the current time.
+	 *
+	 * @return	Current time (in milliseconds).
+	 */
+	protected long now(){
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Ensure the given user has not reached any of its quotas.
+	 *
+	 * @param user	The user to check. <i>If NULL, nothing is checked.</i>
+	 *
+	 * @throws QuotaExceededException	If one of the quotas is reached.
+	 */
+	public void check(final JobOwner user) throws QuotaExceededException{
+		if (user == null || user.getID() == null)
+			return;
+
+		UsageRing usage = owners.get(user.getID());
+		if (usage != null)
+			check(usage, now());
+	}
+
+	/**
+	 * Ensure the given usage has not reached any of the quotas.
+	 *
+	 * @param usage	Usage of a user.
+	 * @param now	Current time (in milliseconds).
+	 *
+	 * @throws QuotaExceededException	If one of the quotas is reached.
+	 */
+	protected void check(final UsageRing usage, final long now) throws QuotaExceededException{
+		long[] total = usage.sum(now);
+		for(int i = 0; i < quotas.length; i++){
+			if (quotas[i] > 0 && total[i] >= quotas[i]){
+				nbRejected.incrementAndGet();
+				long wait = usage.getExpiration(now) - now;
+				throw new QuotaExceededException("Quota exceeded: you have already reached the maximum " + USAGE_LABELS[i] + " allowed per user (" + quotas[i] + ") in " + (windowLength / 1000) + " seconds. Please, wait a little before submitting a new query.", (int)((wait + 999) / 1000));
+			}
+		}
+	}
+
+	/**
+	 * Ensure the given user has not reached any of its quotas, and count
+	 * immediately its new query.
+	 *
+	 * <p>
+	 * 	The check and the count are done atomically: concurrent requests of the
+	 * 	same user can not all be accepted if only some of them are allowed.
+	 * 	The other resources used by the query must be recorded once it is
+	 * 	finished with {@link #complete(JobOwner, TAPExecutionReport, long)}.
+	 * </p>
+	 *
+	 * @param user	The user submitting a query.
+	 *            	<i>If NULL, nothing is checked nor counted.</i>
+	 *
+	 * @throws QuotaExceededException	If one of the quotas is reached.
+	 */
+	public void admit(final JobOwner user) throws QuotaExceededException{
+		if (user == null || user.getID() == null)
+			return;
+
+		final long now = now();
+		while(true){
+			UsageRing usage = getRing(user.getID());
+			synchronized(usage){
+				// (forgotten in the meantime => try again with a new one):
+				if (usage.removed)
+					continue;
+				check(usage, now);
+				usage.add(now, 1, 0, 0, 0);
+				break;
+			}
+		}
+		recorded();
+	}
+
+	/**
+	 * Record the resources used by the given execution (including the query
+	 * itself).
+	 *
+	 * @param user		The user who has executed the query.
+	 *            		<i>If NULL, nothing is recorded.</i>
+	 * @param report	Report of the execution.
+	 *              	<i>If NULL, only the query and the bytes are recorded.</i>
+	 * @param bytes		Number of result bytes.
+	 *             		<i>Ignored if negative.</i>
+	 */
+	public void record(final JobOwner user, final TAPExecutionReport report, final long bytes){
+		record(user, 1, report, bytes);
+	}
+
+	/**
+	 * Record the resources used by the given execution of a query already
+	 * counted by {@link #admit(JobOwner)}.
+	 *
+	 * @param user		The user who has executed the query.
+	 *            		<i>If NULL, nothing is recorded.</i>
+	 * @param report	Report of the execution.
+	 *              	<i>If NULL, only the bytes are recorded.</i>
+	 * @param bytes		Number of result bytes.
+	 *             		<i>Ignored if negative.</i>
+	 */
+	public void complete(final JobOwner user, final TAPExecutionReport report, final long bytes){
+		record(user, 0, report, bytes);
+	}
+
+	/**
+	 * Record the resources used by the given execution.
+	 *
+	 * @param user		The user who has executed the query.
+	 *            		<i>If NULL, nothing is recorded.</i>
+	 * @param nbQueries	Number of queries to count.
+	 * @param report	Report of the execution.
+	 *              	<i>If NULL, only the queries and the bytes are recorded.</i>
+	 * @param bytes		Number of result bytes.
+	 *             		<i>Ignored if negative.</i>
+	 */
+	protected void record(final JobOwner user, final long nbQueries, final TAPExecutionReport report, final long bytes){
+		if (user == null || user.getID() == null)
+			return;
+
+		long dbTime = (report == null) ? -1 : report.getExecutionDuration();
+		long rows = (report == null) ? -1 : report.nbRows;
+		record(user.getID(), nbQueries, dbTime, rows, bytes);
+	}
+
+	/**
+	 * Record the given resources for the specified user.
+	 *
+	 * @param userID	ID of the user.
+	 * @param nbQueries	Number of queries.
+	 * @param dbTime	Time spent in the database (in milliseconds).
+	 *              	<i>Ignored if negative.</i>
+	 * @param rows		Number of result rows. <i>Ignored if negative.</i>
+	 * @param bytes		Number of result bytes. <i>Ignored if negative.</i>
+	 */
+	protected void record(final String userID, final long nbQueries, final long dbTime, final long rows, final long bytes){
+		final long now = now();
+		while(true){
+			UsageRing usage = getRing(userID);
+			synchronized(usage){
+				// (forgotten in the meantime => try again with a new one):
+				if (usage.removed)
+					continue;
+				usage.add(now, nbQueries, Math.max(dbTime, 0), Math.max(rows, 0), Math.max(bytes, 0));
+				break;
+			}
+		}
+		recorded();
+	}
+
+	/**
+	 * Get the usage of the specified user, and create it if needed.
+	 *
+	 * @param userID	ID of the user.
+	 *
+	 * @return	Its usage.
+	 */
+	protected UsageRing getRing(final String userID){
+		UsageRing usage = owners.get(userID);
+		if (usage == null){
+			usage = new UsageRing(nbBuckets);
+			UsageRing previous = owners.putIfAbsent(userID, usage);
+			if (previous != null)
+				usage = previous;
+		}
+		return usage;
+	}
+
+	/**
+	 * Purge the users regularly (see {@link #PURGE_FREQUENCY}).
+	 * This function must be called after each record.
+	 */
+	protected void recorded(){
+		if (nbRecordsSincePurge.incrementAndGet() >= PURGE_FREQUENCY){
+			nbRecordsSincePurge.set(0);
+			purge();
+		}
+	}
+
+	/**
+	 * Forget all users without any usage in the current window.
+	 *
+	 * <p><i>Note:
+	 * 	A usage is removed under its lock, and only if still empty ; a record
+	 * 	done concurrently then either happens before (and the usage is kept) or
+	 * 	sees the usage as removed (and records into a new one).
+	 * </i></p>
+	 */
+	public void purge(){
+		final long now = now();
+		for(Map.Entry<String,UsageRing> entry : owners.entrySet()){
+			UsageRing usage = entry.getValue();
+			synchronized(usage){
+				if (usage.isEmpty(now) && owners.remove(entry.getKey(), usage))
+					usage.removed = true;
+			}
+		}
+	}
+
+	/**
+	 * Get the usage of the specified user in the current window.
+	 *
+	 * @param userID	ID of the user.
+	 *
+	 * @return	Its usage, or NULL if nothing is accounted for this user.
+	 */
+	public UserUsage getUsage(final String userID){
+		if (userID == null)
+			return null;
+		UsageRing usage = owners.get(userID);
+		if (usage == null)
+			return null;
+		final long now = now();
+		return usage.isEmpty(now) ? null : new UserUsage(userID, usage.sum(now));
+	}
+
+	/**
+	 * Get the usage of all users in the current window.
+	 *
+	 * @return	Usage of all accounted users.
+	 */
+	public List<UserUsage> getSnapshot(){
+		final long now = now();
+		ArrayList<UserUsage> snapshot = new ArrayList<UserUsage>(owners.size());
+		for(Map.Entry<String,UsageRing> entry : owners.entrySet()){
+			if (!entry.getValue().isEmpty(now))
+				snapshot.add(new UserUsage(entry.getKey(), entry.getValue().sum(now)));
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Record the resources used by an asynchronous job, once finished.
+	 *
+	 * <p><i>Note:
+	 * 	The query itself is not counted here: it has been counted at the
+	 * 	creation of the job (see {@link #admit(JobOwner)}).
+	 * </i></p>
+	 *
+	 * @see uws.job.JobObserver#update(uws.job.UWSJob, uws.job.ExecutionPhase, uws.job.ExecutionPhase)
+	 */
+	@Override
+	public void update(final UWSJob job, final ExecutionPhase oldPhase, final ExecutionPhase newPhase) throws UWSException{
+		if (!(job instanceof TAPJob) || oldPhase != ExecutionPhase.EXECUTING)
+			return;
+		if (newPhase != ExecutionPhase.COMPLETED && newPhase != ExecutionPhase.ERROR && newPhase != ExecutionPhase.ABORTED)
+			return;
+
+		long bytes = 0;
+		Iterator<Result> it = job.getResults();
+		while(it.hasNext()){
+			long size = it.next().getSize();
+			if (size > 0)
+				bytes += size;
+		}
+		complete(job.getOwner(), ((TAPJob)job).getExecReport(), bytes);
+	}
+
+	/**
+	 * Usage of one user, accounted in a ring of buckets.
+	 *
+	 * <p><i>Note:
+	 * 	All accesses are synchronized on this object, so that concurrent
+	 * 	executions of different users never wait for each other.
+	 * </i></p>
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	protected class UsageRing {
+		/** Index (i.e. time / {@link UsageAccounting#bucketLength}) of the
+		 * period accounted in each bucket. */
+		protected final long[] periods;
+		/** Accounted usages of each bucket. */
+		protected final long[][] usages;
+		/** Indicate whether this usage has been forgotten (see
+		 * {@link UsageAccounting#purge()}). Nothing must be added anymore. */
+		protected boolean removed = false;
+
+		/**
+		 * Build an empty usage.
+		 *
+		 * @param nbBuckets	Number of buckets.
+		 */
+		protected UsageRing(final int nbBuckets){
+			periods = new long[nbBuckets];
+			usages = new long[nbBuckets][quotas.length];
+			for(int i = 0; i < nbBuckets; i++)
+				periods[i] = Long.MIN_VALUE;
+		}
+
+		/**
+		 * Add the given usages in the bucket of the given time.
+		 *
+		 * @param now		Current time (in milliseconds).
+		 * @param values	Usages to add (in the order of their index).
+		 */
+		protected synchronized void add(final long now, final long... values){
+			final long period = now / bucketLength;
+			final int bucket = (int)(period % nbBuckets);
+			if (periods[bucket] != period){
+				periods[bucket] = period;
+				for(int i = 0; i < values.length; i++)
+					usages[bucket][i] = values[i];
+			}else{
+				for(int i = 0; i < values.length; i++)
+					usages[bucket][i] += values[i];
+			}
+		}
+
+		/**
+		 * Sum the usages of all buckets still in the window.
+		 *
+		 * @param now	Current time (in milliseconds).
+		 *
+		 * @return	The total usages (in the order of their index).
+		 */
+		protected synchronized long[] sum(final long now){
+			final long oldest = now / bucketLength - nbBuckets;
+			long[] total = new long[quotas.length];
+			for(int b = 0; b < periods.length; b++){
+				if (periods[b] > oldest){
+					for(int i = 0; i < total.length; i++)
+						total[i] += usages[b][i];
+				}
+			}
+			return total;
+		}
+
+		/**
+		 * Get the time at which the oldest bucket still in the window will
+		 * leave it.
+		 *
+		 * @param now	Current time (in milliseconds).
+		 *
+		 * @return	Expiration time (in milliseconds) of the oldest usage.
+		 */
+		protected synchronized long getExpiration(final long now){
+			final long oldest = now / bucketLength - nbBuckets;
+			long min = Long.MAX_VALUE;
+			for(int b = 0; b < periods.length; b++){
+				if (periods[b] > oldest && periods[b] < min)
+					min = periods[b];
+			}
+			return (min == Long.MAX_VALUE) ? now : (min + nbBuckets) * bucketLength;
+		}
+
+		/**
+		 * Tell whether no usage is still in the window.
+		 *
+		 * @param now	Current time (in milliseconds).
+		 *
+		 * @return	<i>true</i> if there is no usage in the window,
+		 *        	<i>false</i> otherwise.
+		 */
+		protected synchronized boolean isEmpty(final long now){
+			final long oldest = now / bucketLength - nbBuckets;
+			for(int b = 0; b < periods.length; b++){
+				if (periods[b] > oldest)
+					return false;
+			}
+			return true;
+		}
+	}
+
+	/**
+	 * HTTP response counting the bytes written in its output stream.
+	 *
+	 * <p>
+	 * 	It is used to account the size of the result of synchronous queries.
+	 * </p>
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	public static class CountingResponse extends HttpServletResponseWrapper {
+		/** Number of bytes written in the output stream. */
+		protected long nbBytes = 0;
+		/** Output stream of the wrapped response, counting the written bytes. */
+		protected ServletOutputStream output = null;
+
+		/**
+		 * Wrap the given response.
+		 *
+		 * @param response	The HTTP response to wrap.
+		 */
+		public CountingResponse(final HttpServletResponse response){
+			super(response);
+		}
+
+		/**
+		 * Get the number of bytes written in the output stream of this
+		 * response.
+		 *
+		 * <p><i>Note:
+		 * 	What is written with {@link #getWriter()} is not counted.
+		 * </i></p>
+		 *
+		 * @return	Number of written bytes.
+		 */
+		public long getNbBytes(){
+			return nbBytes;
+		}
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException{
+			if (output == null){
+				final ServletOutputStream wrapped = super.getOutputStream();
+				output = new ServletOutputStream(){
+					@Override
+					public void write(final int b) throws IOException{
+						wrapped.write(b);
+						nbBytes++;
+					}
+
+					@Override
+					public void write(final byte[] b, final int off, final int len) throws IOException{
+						wrapped.write(b, off, len);
+						nbBytes += len;
+					}
+
+					@Override
+					public void flush() throws IOException{
+						wrapped.flush();
+					}
+
+					@Override
+					public void close() throws IOException{
+						wrapped.close();
+					}
+				};
+			}
+			return output;
+		}
+	}
+
+	/**
+	 * Snapshot of the usage of one user in the window.
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	public static final class UserUsage {
+		/** ID of the user. */
+		private final String userID;
+		/** Accounted usages (in the order of their index). */
+		private final long[] values;
+
+		/**
+		 * Build a usage snapshot.
+		 *
+		 * @param userID	ID of the user.
+		 * @param values	Accounted usages (in the order of their index).
+		 */
+		public UserUsage(final String userID, final long[] values){
+			this.userID = userID;
+			this.values = values;
+		}
+
+		/**
+		 * Get the ID of the user.
+		 *
+		 * @return	User ID.
+		 */
+		public String getUserID(){
+			return userID;
+		}
+
+		/**
+		 * Get the number of executed queries.
+		 *
+		 * @return	Number of queries.
+		 */
+		public long getNbQueries(){
+			return values[QUERIES];
+		}
+
+		/**
+		 * Get the time spent in the database.
+		 *
+		 * @return	Database time (in milliseconds).
+		 */
+		public long getDBTime(){
+			return values[DB_TIME];
+		}
+
+		/**
+		 * Get the number of result rows.
+		 *
+		 * @return	Number of rows.
+		 */
+		public long getNbRows(){
+			return values[ROWS];
+		}
+
+		/**
+		 * Get the number of result bytes.
+		 *
+		 * @return	Number of bytes.
+		 */
+		public long getNbBytes(){
+			return values[BYTES];
+		}
+	}
+
+}
@@ -0,0 +1,454 @@
+package tap.upload;
+
+/*
+ * This file is part of TAPLibrary.
+ *
+ * TAPLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * TAPLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import adql.db.DBType;
+import adql.db.DBType.DBDatatype;
+import adql.query.ADQLList;
+import adql.query.ADQLObject;
+import adql.query.ADQLQuery;
+import adql.query.SelectItem;
+import adql.query.constraint.In;
+import adql.query.from.ADQLTable;
+import adql.query.operand.ADQLColumn;
+import adql.query.operand.ADQLOperand;
+import adql.query.operand.NegativeOperand;
+import adql.query.operand.NumericConstant;
+import adql.query.operand.StringConstant;
+import adql.search.SimpleSearchHandler;
+import tap.TAPException;
+import tap.data.DataReadException;
+import tap.data.TableIterator;
+import tap.db.DBConnection;
+import tap.metadata.TAPColumn;
+import tap.metadata.TAPMetadata;
+import tap.metadata.TAPSchema;
+import tap.metadata.TAPTable;
+
+/**
+ * Move the values of too long <code>IN</code> lists into temporary tables.
+ *
+ * <p>
+ * 	An ADQL query like <code>... WHERE id IN (1, 2, 3, ...)</code> with tens of
+ * 	thousands of values is translated into an SQL query of the same size,
+ * 	that the database has then to parse and to plan. Instead, any constant
+ * 	<code>IN</code> list having at least {@link #getThreshold()} values is
+ * 	loaded into a new table of the TAP_UPLOAD schema (exactly like a table
+ * 	uploaded by the user, with {@link DBConnection#addUploadedTable(TAPTable, TableIterator)})
+ * 	and the list is replaced in the ADQL tree by a sub-query on this table:
+ * 	<code>... WHERE id IN (SELECT in_value FROM TAP_UPLOAD.in_list_1)</code>.
+ * </p>
+ *
+ * <p>
+ * 	Only lists whose values all have the same type are offloaded: only string
+ * 	constants (VARCHAR column), only integer constants (BIGINT column) or only
+ * 	decimal constants (DOUBLE column). Lists mixing several kinds of values
+ * 	(even integers and decimals, since a DOUBLE column can not represent
+ * 	exactly all integers beyond 2<sup>53</sup>), or containing any other kind
+ * 	of operand (e.g. a column or a function), are left unchanged.
+ * </p>
+ *
+ * <p><i>Note:
+ * 	The created tables are added into the TAP_UPLOAD schema returned by
+ * 	{@link #offload(ADQLQuery, TAPSchema)}. They have to be dropped, like any
+ * 	other uploaded table, at the end of the query execution.
+ * </i></p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 2.4 (10/2026)
+ * @since 2.4
+ */
+public class InListOffloader {
+
+	/** ADQL name of the single column of the created tables. */
+	public final static String COLUMN_NAME = "in_value";
+
+	/** Prefix of the ADQL name of the created tables. */
+	public final static String TABLE_PREFIX = "in_list_";
+
+	/** Counter used to generate a unique DB name for each created table. */
+	private final static AtomicLong tableCounter = new AtomicLong(0);
+
+	/** Connection to the "database" in which the tables must be created. */
+	protected final DBConnection dbConn;
+
+	/** Minimum number of values an <code>IN</code> list must have to be
+	 * offloaded. */
+	protected final int threshold;
+
+	/**
+	 * Build an {@link InListOffloader}.
+	 *
+	 * @param dbConn	A valid (open) connection to the "database".
+	 * @param threshold	Minimum number of values an <code>IN</code> list must
+	 *                 	have to be loaded into a table.
+	 *                 	<i>If negative or null, no list will be offloaded.</i>
+	 *
+	 * @throws NullPointerException	If the given connection is NULL.
+	 */
+	public InListOffloader(final DBConnection dbConn, final int threshold) throws NullPointerException{
+		if (dbConn == null)
+			throw new NullPointerException("The given DBConnection is NULL !");
+		this.dbConn = dbConn;
+		this.threshold = threshold;
+	}
+
+	/**
+	 * Get the minimum number of values an <code>IN</code> list must have to be
+	 * offloaded.
+	 *
+	 * @return	The offload threshold. <i>Negative or null if disabled.</i>
+	 */
+	public final int getThreshold(){
+		return threshold;
+	}
+
+	/**
+	 * Load all the long enough <code>IN</code> lists of the given query into
+	 * new tables, and replace them by a sub-query on these tables.
+	 *
+	 * @param query			The query to modify.
+	 * @param uploadSchema	The TAP_UPLOAD schema in which the new tables must
+	 *                    	be added.
+	 *                    	<i>If NULL, a new one is created, but only if at
+	 *                    	least one list is offloaded.</i>
+	 *
+	 * @return	The TAP_UPLOAD schema containing the new tables
+	 *        	(or the given one if no list has been offloaded).
+	 *
+	 * @throws TAPException	If any error occurs while creating a table. In
+	 *                     	such case, all the tables created by this call
+	 *                     	are dropped.
+	 */
+	public TAPSchema offload(final ADQLQuery query, TAPSchema uploadSchema) throws TAPException{
+		if (query == null || threshold <= 0)
+			return uploadSchema;
+
+		// Search for all IN lists to offload:
+		SearchLongInListHandler sHandler = new SearchLongInListHandler(threshold);
+		sHandler.search(query);
+		if (sHandler.getNbMatch() == 0)
+			return uploadSchema;
+
+		// Create the TAP_UPLOAD schema, if none is provided:
+		if (uploadSchema == null)
+			uploadSchema = new TAPSchema(TAPMetadata.STDSchema.UPLOADSCHEMA.label, "Schema for tables uploaded by users.");
+
+		List<TAPTable> created = new ArrayList<TAPTable>(sHandler.getNbMatch());
+		try{
+			int index = 1;
+			for(ADQLObject obj : sHandler){
+				In in = (In)obj;
+
+				// Find a table name not already used in TAP_UPLOAD:
+				while(uploadSchema.hasTable(TABLE_PREFIX + index))
+					index++;
+
+				// Define the table:
+				DBType type = getValuesType(in.getValuesList());
+				TAPTable table = new TAPTable(TABLE_PREFIX + index);
+				table.setDBName(TABLE_PREFIX + index + "_" + System.currentTimeMillis() + "_" + tableCounter.incrementAndGet());
+				TAPColumn column = table.addColumn(COLUMN_NAME, type, "Values of an IN list of the ADQL query.", null, null, null);
+				uploadSchema.addTable(table);
+				created.add(table);
+
+				// Create and fill it:
+				dbConn.addUploadedTable(table, new ValuesIterator(column, in.getValuesList()));
+
+				// Replace the values list by a sub-query on this table:
+				in.setSubQuery(createSubQuery(table, column));
+			}
+		}catch(DataReadException dre){
+			dropTables(created, uploadSchema);
+			throw new TAPException("Impossible to load the values of an IN list into the database: " + dre.getMessage(), dre);
+		}catch(TAPException te){
+			dropTables(created, uploadSchema);
+			throw te;
+		}
+
+		return uploadSchema;
+	}
+
+	/**
+	 * Build the sub-query selecting all values of the given table.
+	 *
+	 * <p><i>Note:
+	 * 	The query is already linked with the given table and column (as the
+	 * 	{@link adql.db.DBChecker} would do), so that it can be translated
+	 * 	directly into SQL.
+	 * </i></p>
+	 *
+	 * @param table		The table containing the values.
+	 * @param column	Its single column.
+	 *
+	 * @return	The corresponding sub-query.
+	 */
+	protected ADQLQuery createSubQuery(final TAPTable table, final TAPColumn column){
+		ADQLTable adqlTable = new ADQLTable(table.getADQLSchemaName(), table.getADQLName());
+		adqlTable.setDBLink(table);
+
+		ADQLColumn adqlColumn = new ADQLColumn(COLUMN_NAME);
+		adqlColumn.setDBLink(column);
+		adqlColumn.setAdqlTable(adqlTable);
+
+		ADQLQuery subQuery = new ADQLQuery();
+		subQuery.getSelect().add(new SelectItem(adqlColumn));
+		subQuery.setFrom(adqlTable);
+		return subQuery;
+	}
+
+	/**
+	 * Drop the given tables from the database and from the given schema.
+	 *
+	 * @param tables		The tables to drop.
+	 * @param uploadSchema	The schema containing them.
+	 */
+	protected void dropTables(final List<TAPTable> tables, final TAPSchema uploadSchema){
+		for(TAPTable table : tables){
+			try{
+				dbConn.dropUploadedTable(table);
+			}catch(Exception e){
+				// nothing to do: the table may not have been created
+			}
+			uploadSchema.removeTable(table.getADQLName());
+		}
+	}
+
+	/**
+	 * Get the datatype of the column in which the given values can be stored.
+	 *
+	 * @param values	A list of values accepted by
+	 *              	{@link #isOffloadable(ADQLList, int)}.
+	 *
+	 * @return	VARCHAR for strings, BIGINT for integers and DOUBLE for
+	 *        	decimals.
+	 */
+	protected static DBType getValuesType(final ADQLList<ADQLOperand> values){
+		if (values.get(0) instanceof StringConstant)
+			return new DBType(DBDatatype.VARCHAR);
+		else if (toNumber(values.get(0)) instanceof Long)
+			return new DBType(DBDatatype.BIGINT);
+		else
+			return new DBType(DBDatatype.DOUBLE);
+	}
+
+	/**
+	 * Tell whether the given list of values can be (and should be)
+	 * offloaded.
+	 *
+	 * @param values	The values of an <code>IN</code>.
+	 * @param threshold	The minimum number of values.
+	 *
+	 * @return	<i>true</i> if the list is long enough and contains only string
+	 *        	constants, only integer constants or only decimal constants,
+	 *        	<i>false</i> otherwise.
+	 */
+	protected static boolean isOffloadable(final ADQLList<ADQLOperand> values, final int threshold){
+		if (values == null || threshold <= 0 || values.size() < threshold)
+			return false;
+
+		final Class<?> type = getValueClass(values.get(0));
+		if (type == null)
+			return false;
+		for(ADQLOperand op : values){
+			if (getValueClass(op) != type)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Get the kind of the given constant.
+	 *
+	 * @param op	An item of an <code>IN</code> list.
+	 *
+	 * @return	{@link String}, {@link Long} or {@link Double},
+	 *        	or NULL if the operand is not a string or numeric constant.
+	 */
+	private static Class<?> getValueClass(final ADQLOperand op){
+		if (op instanceof StringConstant)
+			return String.class;
+		Number n = toNumber(op);
+		return (n == null) ? null : n.getClass();
+	}
+
+	/**
+	 * Get the value of the given numeric constant.
+	 *
+	 * @param op	A numeric constant, possibly negated.
+	 *
+	 * @return	A {@link Long} if the value is an integer, a {@link Double}
+	 *        	if it is a decimal number, or NULL if the operand is not a
+	 *        	numeric constant or is an integer too large for a
+	 *        	{@link Long}.
+	 */
+	protected static Number toNumber(final ADQLOperand op){
+		boolean negative = false;
+		ADQLOperand value = op;
+		if (value instanceof NegativeOperand){
+			negative = true;
+			value = ((NegativeOperand)value).getOperand();
+		}
+		if (!(value instanceof NumericConstant))
+			return null;
+
+		String str = ((NumericConstant)value).getValue();
+		try{
+			long l = Long.parseLong(str);
+			return negative ? -l : l;
+		}catch(NumberFormatException nfe){
+			// an integer out of the range of a Long can not be stored exactly:
+			if (str.matches("[0-9]+"))
+				return null;
+			try{
+				double d = Double.parseDouble(str);
+				return negative ? -d : d;
+			}catch(NumberFormatException nfe2){
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Search all <code>IN</code> constraints whose values list can be
+	 * offloaded (see {@link InListOffloader#isOffloadable(ADQLList, int)}),
+	 * in the main query and in all its sub-queries.
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	protected static class SearchLongInListHandler extends SimpleSearchHandler {
+		/** Minimum number of values. */
+		private final int threshold;
+
+		public SearchLongInListHandler(final int threshold){
+			super(true, false);
+			this.threshold = threshold;
+		}
+
+		@Override
+		protected boolean match(final ADQLObject obj){
+			return (obj instanceof In) && !((In)obj).hasSubQuery() && isOffloadable(((In)obj).getValuesList(), threshold);
+		}
+
+		@Override
+		protected boolean goInto(final ADQLObject obj){
+			// No need to iterate over the values of an IN list:
+			return super.goInto(obj) && !(obj instanceof In && !((In)obj).hasSubQuery());
+		}
+	}
+
+	/**
+	 * Iterator over the values of an <code>IN</code> list, seen as a table
+	 * of one column.
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	protected static class ValuesIterator implements TableIterator {
+		/** Description of the single column. */
+		private final TAPColumn[] metadata;
+		/** Values to iterate over. */
+		private final ADQLList<ADQLOperand> values;
+		/** Whether the values must be returned as Long (BIGINT column). */
+		private final boolean integers;
+		/** Index of the current row (-1 before the first call to {@link #nextRow()}). */
+		private int indRow = -1;
+		/** Whether the value of the current row has already been read. */
+		private boolean colRead = true;
+
+		public ValuesIterator(final TAPColumn column, final ADQLList<ADQLOperand> values){
+			this.metadata = new TAPColumn[]{ column };
+			this.values = values;
+			this.integers = (column.getDatatype().type == DBDatatype.BIGINT);
+		}
+
+		@Override
+		public TAPColumn[] getMetadata() throws DataReadException{
+			return metadata;
+		}
+
+		@Override
+		public boolean nextRow() throws DataReadException{
+			if (indRow + 1 >= values.size()){
+				indRow = values.size();
+				colRead = true;
+				return false;
+			}
+			indRow++;
+			colRead = false;
+			return true;
+		}
+
+		@Override
+		public boolean hasNextCol() throws IllegalStateException, DataReadException{
+			checkRow();
+			return !colRead;
+		}
+
+		@Override
+		public Object nextCol() throws NoSuchElementException, IllegalStateException, DataReadException{
+			checkRow();
+			if (colRead)
+				throw new NoSuchElementException("No more column to read!");
+			colRead = true;
+
+			ADQLOperand op = values.get(indRow);
+			if (op instanceof StringConstant)
+				return ((StringConstant)op).getValue();
+			// note: no conditional operator here, otherwise the Long would be unboxed and promoted to a double
+			Number n = toNumber(op);
+			if (integers)
+				return Long.valueOf(n.longValue());
+			else
+				return Double.valueOf(n.doubleValue());
+		}
+
+		@Override
+		public DBType getColType() throws IllegalStateException, DataReadException{
+			checkRow();
+			return metadata[0].getDatatype();
+		}
+
+		@Override
+		public void close() throws DataReadException{
+			indRow = values.size();
+		}
+
+		/**
+		 * Ensure a row is currently being read.
+		 *
+		 * @throws IllegalStateException	If {@link #nextRow()} has not been
+		 *                              	called or if all rows have been read.
+		 */
+		private void checkRow() throws IllegalStateException{
+			if (indRow < 0 || indRow >= values.size())
+				throw new IllegalStateException("No row to read! Call nextRow() first.");
+		}
+	}
+
+}
@@ -16,23 +16,28 @@ package tap.upload;
  * You should have received a copy of the GNU Lesser General Public License
  * along with TAPLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2012-2018 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import tap.upload.ExceededSizeException;
 
 import tap.ServiceConnection;
 import tap.ServiceConnection.LimitUnit;
 import tap.TAPException;
+import tap.TAPFactory;
 import tap.data.DataReadException;
 import tap.data.LimitedTableIterator;
 import tap.data.TableIterator;
 import tap.data.VOTableIterator;
+import tap.db.DBCancelledException;
 import tap.db.DBConnection;
 import tap.db.DBException;
 import tap.metadata.TAPColumn;
@@ -43,6 +48,7 @@ import tap.metadata.TAPTable;
 import tap.parameters.DALIUpload;
 import uws.UWSException;
 import uws.service.file.UnsupportedURIProtocolException;
+import uws.service.log.UWSLog.LogLevel;
 
 /**
  * Let create properly given VOTable inputs in the "database".
@@ -52,8 +58,13 @@ import uws.service.file.UnsupportedURIProtocolException;
  * 	creating a {@link LimitedTableIterator} with a {@link VOTableIterator}.
  * </p>
  *
+ * <p>
+ * 	Several tables uploaded by the same request may be ingested
+ * 	simultaneously (see {@link #setMaxParallelUploads(int)}).
+ * </p>
+ *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 2.3 (08/2018)
+ * @version 2.4 (10/2026)
  *
  * @see LimitedTableIterator
  * @see VOTableIterator
@@ -77,6 +88,11 @@ public class Uploader {
 	/** Number of rows already loaded. */
 	protected int nbRows = 0;
 
+	/** Maximum number of tables to ingest simultaneously.
+	 * <i>1 (or less) means "one after the other".</i>
+	 * @since 2.4 */
+	protected int maxParallelUploads = 1;
+
 	/**
 	 * Build an {@link Uploader} object.
 	 *
@@ -137,6 +153,43 @@ public class Uploader {
 			throw new TAPException("Upload aborted: this functionality is disabled in this TAP service!");
 	}
 
+	/**
+	 * Get the maximum number of tables to ingest simultaneously.
+	 *
+	 * @return	Maximum number of simultaneous ingestions.
+	 *        	<i>1 (or less) means "one after the other".</i>
+	 *
+	 * @since 2.4
+	 */
+	public final int getMaxParallelUploads(){
+		return maxParallelUploads;
+	}
+
+	/**
+	 * Set the maximum number of tables to ingest simultaneously.
+	 *
+	 * <p>
+	 * 	When several tables are uploaded by the same request, each of them is
+	 * 	then parsed and ingested in its own thread, with its own database
+	 * 	connection (see {@link #uploadInParallel(DALIUpload[])}). The limits on
+	 * 	rows and bytes are still applied per table.
+	 * </p>
+	 *
+	 * <p><i>Note:
+	 * 	The tables are created and committed by different connections. So,
+	 * 	this should be enabled only if the tables created by a connection are
+	 * 	visible by the others (e.g. not temporary tables).
+	 * </i></p>
+	 *
+	 * @param max	Maximum number of simultaneous ingestions.
+	 *           	<i>1 (or less) means "one after the other".</i>
+	 *
+	 * @since 2.4
+	 */
+	public final void setMaxParallelUploads(final int max){
+		maxParallelUploads = max;
+	}
+
 	/**
 	 * Upload all the given VOTable inputs.
 	 *
@@ -166,76 +219,98 @@ public class Uploader {
 	 * @see DBConnection#addUploadedTable(TAPTable, tap.data.TableIterator)
 	 */
 	public TAPSchema upload(final DALIUpload[] uploads) throws TAPException{
+		// Check uniqueness of the table names inside TAP_UPLOAD:
+		HashSet<String> tableNames = new HashSet<String>(uploads.length);
+		for(DALIUpload upl : uploads){
+			boolean uniqueTableName = tableNames.add(upl.label.toLowerCase());
+			if (!uniqueTableName)
+				throw new TAPException("Non unique table name (case insensitive) among all tables to upload: \"" + upl.label + "\"!", UWSException.BAD_REQUEST);
+		}
+
+		try{
+			// Ingest the tables one after the other...
+			if (uploads.length <= 1 || maxParallelUploads <= 1){
+				for(DALIUpload upl : uploads)
+					uploadTable(upl, dbConn);
+			}
+			// ...or simultaneously:
+			else
+				uploadInParallel(uploads);
+		}catch(TAPException te){
+			// Drop uploaded tables:
+			dropUploadedTables();
+			// Report the error:
+			throw te;
+		}
+
+		/* Return the TAP_UPLOAD schema (containing just the description of the
+		 * uploaded tables): */
+		return uploadSchema;
+	}
+
+	/**
+	 * Read the given VOTable input and ingest it with the given connection.
+	 *
+	 * <p><i>Note:
+	 * 	The created table is added into the TAP_UPLOAD schema before being
+	 * 	filled ; so, it is dropped with all the others in case of error.
+	 * </i></p>
+	 *
+	 * @param upl		The table to upload.
+	 * @param conn		Connection to use to create and fill the table.
+	 *
+	 * @throws TAPException	If any error occurs while reading the VOTable
+	 *                     	input or while uploading it into the "database".
+	 *
+	 * @since 2.4
+	 */
+	protected void uploadTable(final DALIUpload upl, final DBConnection conn) throws TAPException{
+		final String tableName = upl.label;
 		TableIterator dataIt = null;
 		InputStream votable = null;
-		HashSet<String> tableNames = new HashSet<String>(uploads.length);
-		String tableName = null;
 		try{
-			// Iterate over the full list of uploaded tables:
-			for(DALIUpload upl : uploads){
-				tableName = upl.label;
-
-				// Check uniqueness of the table name inside TAP_UPLOAD:
-				boolean uniqueTableName = tableNames.add(tableName.toLowerCase());
-				if (!uniqueTableName)
-					throw new TAPException("Non unique table name (case insensitive) among all tables to upload: \"" + tableName + "\"!", UWSException.BAD_REQUEST);
-
-				// Open a stream toward the VOTable:
-				votable = upl.open();
-
-				// Start reading the VOTable (with the identified limit, if any):
-				dataIt = new LimitedTableIterator(VOTableIterator.class, votable, limitUnit, limit);
-
-				// Define the table to upload:
-				TAPColumn[] columns = dataIt.getMetadata();
-
-				// Check uniqueness of all column names:
-				HashSet<String> columnNames = new HashSet<String>(columns.length);
-				for(TAPColumn col : columns){
-					boolean uniqueColumnName = columnNames.add(col.getADQLName().toLowerCase());
-					if (!uniqueColumnName)
-						throw new TAPException("Non unique column name (case insensitive) among all columns of the table \"" + tableName + "\": \"" + col.getADQLName() + "\"!", UWSException.BAD_REQUEST);
-				}
+			// Open a stream toward the VOTable:
+			votable = upl.open();
 
-				TAPTable table = new TAPTable(tableName);
-				table.setDBName(tableName + "_" + System.currentTimeMillis());
-				for(TAPColumn col : columns)
-					table.addColumn(col);
+			// Start reading the VOTable (with the identified limit, if any):
+			dataIt = new LimitedTableIterator(VOTableIterator.class, votable, limitUnit, limit);
 
-				// Add the table to the TAP_UPLOAD schema:
-				uploadSchema.addTable(table);
+			// Define the table to upload:
+			TAPColumn[] columns = dataIt.getMetadata();
 
-				// Create and fill the corresponding table in the database:
-				dbConn.addUploadedTable(table, dataIt);
+			// Check uniqueness of all column names:
+			HashSet<String> columnNames = new HashSet<String>(columns.length);
+			for(TAPColumn col : columns){
+				boolean uniqueColumnName = columnNames.add(col.getADQLName().toLowerCase());
+				if (!uniqueColumnName)
+					throw new TAPException("Non unique column name (case insensitive) among all columns of the table \"" + tableName + "\": \"" + col.getADQLName() + "\"!", UWSException.BAD_REQUEST);
+			}
 
-				// Close the VOTable stream:
-				dataIt.close();
-				votable.close();
-				votable = null;
+			TAPTable table = new TAPTable(tableName);
+			table.setDBName(tableName + "_" + System.currentTimeMillis());
+			for(TAPColumn col : columns)
+				table.addColumn(col);
+
+			// Add the table to the TAP_UPLOAD schema:
+			synchronized(uploadSchema){
+				uploadSchema.addTable(table);
 			}
+
+			// Create and fill the corresponding table in the database:
+			conn.addUploadedTable(table, dataIt);
+
 		}catch(DataReadException dre){
-			// Drop uploaded tables:
-			dropUploadedTables();
 			// Report the error:
 			if (dre.getCause() instanceof ExceededSizeException)
 				throw dre;
 			else
 				throw new TAPException("Error while reading the VOTable \"" + tableName + "\": " + dre.getMessage(), dre, UWSException.BAD_REQUEST);
 		}catch(IOException ioe){
-			// Drop uploaded tables:
-			dropUploadedTables();
 			// Report the error:
 			throw new TAPException("IO error while reading the VOTable of \"" + tableName + "\"!", ioe);
 		}catch(UnsupportedURIProtocolException e){
-			// Drop uploaded tables:
-			dropUploadedTables();
 			// Report the error:
 			throw new TAPException("URI error while trying to open the VOTable of \"" + tableName + "\"!", e);
-		}catch(TAPException te){
-			// Drop uploaded tables:
-			dropUploadedTables();
-			// Report the error:
-			throw te;
 		}finally{
 			try{
 				if (dataIt != null)
@@ -246,10 +321,94 @@ public class Uploader {
 				;
 			}
 		}
+	}
 
-		/* Return the TAP_UPLOAD schema (containing just the description of the
-		 * uploaded tables): */
-		return uploadSchema;
+	/**
+	 * Ingest simultaneously all the given VOTable inputs.
+	 *
+	 * <p>
+	 * 	At most {@link #getMaxParallelUploads()} tables are read and ingested
+	 * 	at the same time: one with the connection of this {@link Uploader}, the
+	 * 	others with additional connections asked to the {@link TAPFactory}. If
+	 * 	less connections are available, less tables are ingested
+	 * 	simultaneously.
+	 * </p>
+	 *
+	 * <p>
+	 * 	When an error occurs, no other table is started, but the running
+	 * 	ingestions are allowed to finish (so that they can be dropped). The
+	 * 	first error (in the order of the given uploads) is then thrown.
+	 * </p>
+	 *
+	 * @param uploads	Array of tables to upload.
+	 *
+	 * @throws TAPException	If any error occurs while reading the VOTable inputs
+	 *                     	or while uploading the table into the "database".
+	 *
+	 * @since 2.4
+	 */
+	protected void uploadInParallel(final DALIUpload[] uploads) throws TAPException{
+		final TAPException[] errors = new TAPException[uploads.length];
+		final AtomicInteger nextUpload = new AtomicInteger(0);
+		final AtomicBoolean failed = new AtomicBoolean(false);
+
+		// Get the additional connections:
+		ArrayList<DBConnection> connections = new ArrayList<DBConnection>();
+		int nbWorkers = Math.min(maxParallelUploads, uploads.length) - 1;
+		for(int i = 0; i < nbWorkers; i++){
+			try{
+				DBConnection conn = service.getFactory().getConnection(dbConn.getID() + "_upload" + (i + 1));
+				if (conn == null)
+					break;
+				connections.add(conn);
+			}catch(TAPException te){
+				if (service.getLogger() != null)
+					service.getLogger().logTAP(LogLevel.WARNING, null, "UPLOADING", "Only " + (i + 1) + " table(s) will be uploaded simultaneously: no more database connection available!", te);
+				break;
+			}
+		}
+
+		// Start ingesting tables with each additional connection:
+		ArrayList<UploadThread> threads = new ArrayList<UploadThread>(connections.size());
+		try{
+			for(DBConnection conn : connections){
+				UploadThread thread = new UploadThread(conn, uploads, nextUpload, failed, errors);
+				threads.add(thread);
+				thread.start();
+			}
+
+			// Ingest tables also with the main connection:
+			new UploadThread(dbConn, uploads, nextUpload, failed, errors).run();
+
+			// Wait for the end of all other ingestions:
+			try{
+				for(UploadThread thread : threads)
+					thread.join();
+			}catch(InterruptedException ie){
+				// stop all ingestions:
+				failed.set(true);
+				for(DBConnection conn : connections)
+					conn.cancel(true);
+				for(UploadThread thread : threads){
+					try{
+						thread.join(1000);
+					}catch(InterruptedException ie2){
+						;
+					}
+				}
+				throw new DBCancelledException("Upload interrupted!");
+			}
+		}finally{
+			// Free the additional connections:
+			for(DBConnection conn : connections)
+				service.getFactory().freeConnection(conn);
+		}
+
+		// Report the first error, if any:
+		for(TAPException error : errors){
+			if (error != null)
+				throw error;
+		}
 	}
 
 	/**
@@ -270,4 +429,59 @@ public class Uploader {
 		}
 	}
 
+	/**
+	 * Thread ingesting, with the same connection, the uploaded tables not yet
+	 * taken by another {@link UploadThread}.
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 2.4 (10/2026)
+	 * @since 2.4
+	 */
+	protected class UploadThread extends Thread {
+		/** Connection used to ingest the tables. */
+		private final DBConnection conn;
+		/** All tables to upload. */
+		private final DALIUpload[] uploads;
+		/** Index of the next table to upload. */
+		private final AtomicInteger nextUpload;
+		/** Flag set as soon as one ingestion fails. */
+		private final AtomicBoolean failed;
+		/** Errors of each upload (same index as the uploads). */
+		private final TAPException[] errors;
+
+		/**
+		 * Build a thread ingesting tables with the given connection.
+		 *
+		 * @param conn			Connection to use.
+		 * @param uploads		All tables to upload.
+		 * @param nextUpload	Index of the next table to upload.
+		 * @param failed		Flag set as soon as one ingestion fails.
+		 * @param errors		Errors of each upload.
+		 */
+		public UploadThread(final DBConnection conn, final DALIUpload[] uploads, final AtomicInteger nextUpload, final AtomicBoolean failed, final TAPException[] errors){
+			super(conn.getID());
+			this.conn = conn;
+			this.uploads = uploads;
+			this.nextUpload = nextUpload;
+			this.failed = failed;
+			this.errors = errors;
+		}
+
+		@Override
+		public void run(){
+			int index;
+			while(!failed.get() && (index = nextUpload.getAndIncrement()) < uploads.length){
+				try{
+					uploadTable(uploads[index], conn);
+				}catch(TAPException te){
+					errors[index] = te;
+					failed.set(true);
+				}catch(Throwable t){
+					errors[index] = new TAPException("Unexpected error while uploading the table \"" + uploads[index].label + "\"!", t);
+					failed.set(true);
+				}
+			}
+		}
+	}
+
 }
@@ -16,7 +16,8 @@ package uws;
  * You should have received a copy of the GNU Lesser General Public License
  * along with UWSLibrary.  If not, see <http://www.gnu.org/licenses/>.
  * 
- * Copyright 2014-2017 - Astronomisches Rechen Institut (ARI)
+ * Copyright 2014-2026 - Astronomisches Rechen Institut (ARI),
+ *                       UDS/Centre de Données astronomiques de Strasbourg (CDS)
  */
 
 import java.text.DecimalFormat;
@@ -94,8 +95,25 @@ import java.util.regex.Pattern;
  * 	Separators (like '-', ':' and '.') are optional. The date and time separator ('T') may be replaced by a space.
  * </p>
  * 
+ * <h3>Performances and thread-safety</h3>
+ * 
+ * <p>
+ * 	Dates between the years 1583 and 9999 are formatted by simple arithmetic on the number of days since
+ * 	the 1st January 1970, without any {@link GregorianCalendar}. In the same way, the most common syntax
+ * 	(YYYY-MM-DD['T'hh:mm[:ss[.s]]][TZD]) is parsed directly. Other dates and syntaxes are still processed
+ * 	with a {@link GregorianCalendar} (mainly because of the switch between the Julian and the Gregorian
+ * 	calendars in 1582).
+ * </p>
+ * 
+ * <p>
+ * 	All functions of this class are thread-safe and none of them is synchronized. To avoid creating a
+ * 	String for each formatted date, a date can be written directly in a <code>char[]</code> (see
+ * 	{@link #format(long, String, boolean, boolean, char[], int)}) or in a {@link StringBuilder} (see
+ * 	{@link #format(long, String, boolean, boolean, StringBuilder)}).
+ * </p>
+ * 
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 4.2 (03/2017)
+ * @version 4.5 (10/2026)
  * @since 4.1
  */
 public class ISO8601Format {
@@ -109,13 +127,54 @@ public class ISO8601Format {
 	public static String targetTimeZone = "UTC"; // for the local time zone: TimeZone.getDefault().getID();
 
 	/** Object to use to format numbers with one digit (ie. 1, 2, 0).
-	 * @since 4.2 */
+	 * @since 4.2
+	 * @deprecated	Not used anymore by this class. <i>Besides, a {@link DecimalFormat} is not thread-safe.</i> */
+	@Deprecated
 	protected final static DecimalFormat oneDigitFmt = new DecimalFormat("0");
-	/** Object to use to format numbers with two digits (ie. 12, 02, 00). */
+	/** Object to use to format numbers with two digits (ie. 12, 02, 00).
+	 * @deprecated	Not used anymore by this class. <i>Besides, a {@link DecimalFormat} is not thread-safe.</i> */
+	@Deprecated
 	protected final static DecimalFormat twoDigitsFmt = new DecimalFormat("00");
-	/** Object to use to format numbers with three digits (ie. 001, 000, 123). */
+	/** Object to use to format numbers with three digits (ie. 001, 000, 123).
+	 * @deprecated	Not used anymore by this class. <i>Besides, a {@link DecimalFormat} is not thread-safe.</i> */
+	@Deprecated
 	protected final static DecimalFormat threeDigitsFmt = new DecimalFormat("000");
 
+	/** Maximum number of characters of a date formatted by this class.
+	 * <i>It is reached only with a year of 9 digits, milliseconds and a time zone offset.</i>
+	 * @since 4.5 */
+	public final static int MAX_FORMATTED_LENGTH = 34;
+
+	/** Number of milliseconds in one day.
+	 * @since 4.5 */
+	private final static long MS_PER_DAY = 86400000L;
+
+	/** First date (1583-01-01T00:00:00, in local time) that can be formatted without {@link GregorianCalendar}.
+	 * <i>Before, {@link GregorianCalendar} uses the Julian calendar.</i>
+	 * @since 4.5 */
+	private final static long MIN_FAST_DATE = daysFromCivil(1583, 1, 1) * MS_PER_DAY;
+
+	/** First date (10000-01-01T00:00:00, in local time) that can not be formatted without {@link GregorianCalendar}.
+	 * @since 4.5 */
+	private final static long MAX_FAST_DATE = daysFromCivil(10000, 1, 1) * MS_PER_DAY;
+
+	/** Value returned by {@link #parseCommonSyntax(String)} when the given date must be parsed by {@link #parseWithCalendar(String)}.
+	 * @since 4.5 */
+	private final static long NOT_PARSED = Long.MIN_VALUE;
+
+	/** Last used time zone. <i>Cached because {@link TimeZone#getTimeZone(String)} is relatively slow.</i>
+	 * @since 4.5 */
+	private static volatile CachedTimeZone lastTimeZone = null;
+
+	/** Buffer of each thread formatting a date into a {@link StringBuilder}.
+	 * @since 4.5 */
+	private final static ThreadLocal<char[]> formatBuffer = new ThreadLocal<char[]>(){
+		@Override
+		protected char[] initialValue(){
+			return new char[MAX_FORMATTED_LENGTH];
+		}
+	};
+
 	/**
 	 * <p>Format the given date-time in ISO8601 format.</p>
 	 * 
@@ -202,43 +261,228 @@ public class ISO8601Format {
 	 * Convert the given date in the given time zone and format it in ISO8601 format, with or without displaying the time zone
 	 * and/or the milliseconds field.
 	 * 
-	 * <p><i><b>Important Note:</b>
-	 * 	This function is synchronized because it is using (directly or in other static functions) static {@link DecimalFormat} instances.
-	 * 	A {@link DecimalFormat} is a Java class which can be used only by one thread at a time. So {@link #format(long, String, boolean, boolean)}
-	 * 	and {@link #parse(String)} (main public functions of {@link ISO8601Format}) must be synchronized in order to avoid concurrent access
-	 * 	to the {@link DecimalFormat} instances and so to avoid unpredictable errors/results.
-	 * </i></p>
-	 * 
 	 * @param date				Date-time in milliseconds (from the 1st January 1970 ; this value is returned by java.util.Date#getTime()).
 	 * @param targetTimeZone	Target time zone.
 	 * @param withTimeZone		<i>true</i> to display the time zone, <i>false</i> otherwise.
 	 * @param withMillisec		<i>true</i> to display the milliseconds, <i>false</i> otherwise.
 	 * 
 	 * @return	Date formatted in ISO8601.
+	 * 
+	 * @see #format(long, String, boolean, boolean, char[], int)
 	 */
-	protected static synchronized String format(final long date, final String targetTimeZone, final boolean withTimeZone, final boolean withMillisec){
-		GregorianCalendar cal = new GregorianCalendar();
-		cal.setTimeInMillis(date);
+	protected static String format(final long date, final String targetTimeZone, final boolean withTimeZone, final boolean withMillisec){
+		char[] buf = new char[MAX_FORMATTED_LENGTH];
+		int length = format(date, targetTimeZone, withTimeZone, withMillisec, buf, 0);
+		return new String(buf, 0, length);
+	}
+
+	/**
+	 * Convert the given date in the given time zone and format it in ISO8601 format at the end of the given {@link StringBuilder}.
+	 * 
+	 * <p><i>Note:
+	 * 	No object is created by this function (except when the {@link StringBuilder} must be enlarged).
+	 * </i></p>
+	 * 
+	 * @param date				Date-time in milliseconds (from the 1st January 1970 ; this value is returned by java.util.Date#getTime()).
+	 * @param targetTimeZone	Target time zone. <i>If NULL or empty, {@link #targetTimeZone} is used.</i>
+	 * @param withTimeZone		<i>true</i> to display the time zone, <i>false</i> otherwise.
+	 * @param withMillisec		<i>true</i> to display the milliseconds, <i>false</i> otherwise.
+	 * @param dest				Where the formatted date must be appended.
+	 * 
+	 * @return	The given {@link StringBuilder}.
+	 * 
+	 * @see #format(long, String, boolean, boolean, char[], int)
+	 * 
+	 * @since 4.5
+	 */
+	public static StringBuilder format(final long date, final String targetTimeZone, final boolean withTimeZone, final boolean withMillisec, final StringBuilder dest){
+		char[] buf = formatBuffer.get();
+		int length = format(date, targetTimeZone, withTimeZone, withMillisec, buf, 0);
+		return dest.append(buf, 0, length);
+	}
+
+	/**
+	 * Convert the given date in the given time zone and write it, in ISO8601 format, in the given array.
+	 * 
+	 * <p>
+	 * 	Dates between the years 1583 and 9999 (in the target time zone) are formatted without creating
+	 * 	any object. Other dates are formatted by {@link #formatWithCalendar(long, TimeZone, boolean, boolean)}.
+	 * </p>
+	 * 
+	 * @param date				Date-time in milliseconds (from the 1st January 1970 ; this value is returned by java.util.Date#getTime()).
+	 * @param targetTimeZone	Target time zone. <i>If NULL or empty, {@link #targetTimeZone} is used.</i>
+	 * @param withTimeZone		<i>true</i> to display the time zone, <i>false</i> otherwise.
+	 * @param withMillisec		<i>true</i> to display the milliseconds, <i>false</i> otherwise.
+	 * @param dest				Array in which the formatted date must be written.
+	 *            				<i>At least {@link #MAX_FORMATTED_LENGTH} characters must be available from the given offset.</i>
+	 * @param offset			Index of the first character to write in the given array.
+	 * 
+	 * @return	Index of the first character after the formatted date
+	 *        	(i.e. <code>offset</code> + the number of written characters).
+	 * 
+	 * @throws ArrayIndexOutOfBoundsException	If the given array is too small.
+	 * 
+	 * @since 4.5
+	 */
+	public static int format(final long date, final String targetTimeZone, final boolean withTimeZone, final boolean withMillisec, final char[] dest, int offset) throws ArrayIndexOutOfBoundsException{
+		// Get the offset of the target Time Zone at the given date:
+		TimeZone timeZone = getTimeZone((targetTimeZone != null && targetTimeZone.length() > 0) ? targetTimeZone : ISO8601Format.targetTimeZone);
+		int zoneOffset = timeZone.getOffset(date);
 
 		// Convert the given date in the target Time Zone:
-		if (targetTimeZone != null && targetTimeZone.length() > 0)
-			cal.setTimeZone(TimeZone.getTimeZone(targetTimeZone));
-		else
-			cal.setTimeZone(TimeZone.getTimeZone(ISO8601Format.targetTimeZone));
+		long localDate = date + zoneOffset;
 
-		StringBuffer buf = new StringBuffer();
+		// Dates outside the Gregorian calendar or with more than 4 digits in the year are formatted with a GregorianCalendar:
+		if (localDate < MIN_FAST_DATE || localDate >= MAX_FAST_DATE){
+			String str = formatWithCalendar(date, timeZone, withTimeZone, withMillisec);
+			str.getChars(0, str.length(), dest, offset);
+			return offset + str.length();
+		}
+
+		// Split the date into days and time of day:
+		long days = localDate / MS_PER_DAY;
+		int time = (int)(localDate - days * MS_PER_DAY);
+		if (time < 0){
+			days--;
+			time += MS_PER_DAY;
+		}
+
+		// Date with format yyyy-MM-dd :
+		/* Note: conversion of a number of days since 1970-01-01 into a date of the proleptic Gregorian calendar,
+		 *       by cycles of 400 years (= 146097 days) starting on the 1st March 0000
+		 *       (so that the leap day is the last day of the year). */
+		long z = days + 719468;
+		long era = (z >= 0 ? z : z - 146096) / 146097;
+		int dayOfEra = (int)(z - era * 146097);
+		int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+		int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+		int mp = (5 * dayOfYear + 2) / 153;
+		int day = dayOfYear - (153 * mp + 2) / 5 + 1;
+		int month = (mp < 10) ? mp + 3 : mp - 9;
+		int year = (int)(yearOfEra + era * 400) + ((month <= 2) ? 1 : 0);
+
+		offset = writeDigits(year / 100, dest, offset);
+		offset = writeDigits(year % 100, dest, offset);
+		dest[offset++] = '-';
+		offset = writeDigits(month, dest, offset);
+		dest[offset++] = '-';
+		offset = writeDigits(day, dest, offset);
+
+		// Time with format 'T'HH:mm:ss :
+		int millisec = time % 1000;
+		time /= 1000;
+		dest[offset++] = 'T';
+		offset = writeDigits(time / 3600, dest, offset);
+		dest[offset++] = ':';
+		offset = writeDigits((time / 60) % 60, dest, offset);
+		dest[offset++] = ':';
+		offset = writeDigits(time % 60, dest, offset);
+		if (withMillisec){
+			dest[offset++] = '.';
+			dest[offset++] = (char)('0' + millisec / 100);
+			offset = writeDigits(millisec % 100, dest, offset);
+		}
+
+		// Time zone with format (+|-)HH:mm :
+		if (withTimeZone){
+			int tzOffset = zoneOffset / (60 * 1000); // offset in minutes
+			boolean negative = (tzOffset < 0);
+			if (negative)
+				tzOffset *= -1;
+			int hours = tzOffset / 60, minutes = tzOffset - (hours * 60);
+			if (hours == 0 && minutes == 0)
+				dest[offset++] = 'Z';
+			else{
+				dest[offset++] = (negative ? '-' : '+');
+				offset = writeDigits(hours, dest, offset);
+				dest[offset++] = ':';
+				offset = writeDigits(minutes, dest, offset);
+			}
+		}
+
+		return offset;
+	}
+
+	/**
+	 * Write the given number on 2 digits.
+	 * 
+	 * @param value		Number to write. <i>Between 0 and 99.</i>
+	 * @param dest		Array in which the number must be written.
+	 * @param offset	Index of the first character to write.
+	 * 
+	 * @return	Index of the first character after the written number.
+	 * 
+	 * @since 4.5
+	 */
+	private static int writeDigits(final int value, final char[] dest, final int offset){
+		dest[offset] = (char)('0' + value / 10);
+		dest[offset + 1] = (char)('0' + value % 10);
+		return offset + 2;
+	}
+
+	/**
+	 * Get the time zone with the given ID.
+	 * 
+	 * <p><i>Note:
+	 * 	The last returned time zone is cached. The returned object must then never be modified.
+	 * </i></p>
+	 * 
+	 * @param id	ID of the time zone.
+	 * 
+	 * @return	The corresponding time zone (GMT if the ID is unknown, as {@link TimeZone#getTimeZone(String)}).
+	 * 
+	 * @since 4.5
+	 */
+	private static TimeZone getTimeZone(final String id){
+		CachedTimeZone cached = lastTimeZone;
+		if (cached == null || !cached.id.equals(id)){
+			cached = new CachedTimeZone(id, TimeZone.getTimeZone(id));
+			lastTimeZone = cached;
+		}
+		return cached.timeZone;
+	}
+
+	/**
+	 * Convert the given date in the given time zone and format it in ISO8601 format with a {@link GregorianCalendar}.
+	 * 
+	 * <p><i>Note:
+	 * 	This function is used for dates before 1583 (Julian calendar) or after 9999.
+	 * </i></p>
+	 * 
+	 * @param date				Date-time in milliseconds (from the 1st January 1970 ; this value is returned by java.util.Date#getTime()).
+	 * @param timeZone			Target time zone.
+	 * @param withTimeZone		<i>true</i> to display the time zone, <i>false</i> otherwise.
+	 * @param withMillisec		<i>true</i> to display the milliseconds, <i>false</i> otherwise.
+	 * 
+	 * @return	Date formatted in ISO8601.
+	 * 
+	 * @since 4.5
+	 */
+	protected static String formatWithCalendar(final long date, final TimeZone timeZone, final boolean withTimeZone, final boolean withMillisec){
+		GregorianCalendar cal = new GregorianCalendar(timeZone);
+		cal.setTimeInMillis(date);
+
+		StringBuffer buf = new StringBuffer(MAX_FORMATTED_LENGTH);
+		char[] digits = new char[2];
 
 		// Date with format yyyy-MM-dd :
 		buf.append(cal.get(Calendar.YEAR)).append('-');
-		buf.append(twoDigitsFmt.format(cal.get(Calendar.MONTH) + 1)).append('-');
-		buf.append(twoDigitsFmt.format(cal.get(Calendar.DAY_OF_MONTH)));
+		writeDigits(cal.get(Calendar.MONTH) + 1, digits, 0);
+		buf.append(digits).append('-');
+		writeDigits(cal.get(Calendar.DAY_OF_MONTH), digits, 0);
+		buf.append(digits);
 
 		// Time with format 'T'HH:mm:ss :
-		buf.append('T').append(twoDigitsFmt.format(cal.get(Calendar.HOUR_OF_DAY))).append(':');
-		buf.append(twoDigitsFmt.format(cal.get(Calendar.MINUTE))).append(':');
-		buf.append(twoDigitsFmt.format(cal.get(Calendar.SECOND)));
+		writeDigits(cal.get(Calendar.HOUR_OF_DAY), digits, 0);
+		buf.append('T').append(digits).append(':');
+		writeDigits(cal.get(Calendar.MINUTE), digits, 0);
+		buf.append(digits).append(':');
+		writeDigits(cal.get(Calendar.SECOND), digits, 0);
+		buf.append(digits);
 		if (withMillisec){
-			buf.append('.').append(threeDigitsFmt.format(cal.get(Calendar.MILLISECOND)));
+			int millisec = cal.get(Calendar.MILLISECOND);
+			writeDigits(millisec % 100, digits, 0);
+			buf.append('.').append((char)('0' + millisec / 100)).append(digits);
 		}
 
 		// Time zone with format (+|-)HH:mm :
@@ -252,8 +496,10 @@ public class ISO8601Format {
 				buf.append('Z');
 			else{
 				buf.append(negative ? '-' : '+');
-				buf.append(twoDigitsFmt.format(hours)).append(':');
-				buf.append(twoDigitsFmt.format(minutes));
+				writeDigits(hours, digits, 0);
+				buf.append(digits).append(':');
+				writeDigits(minutes, digits, 0);
+				buf.append(digits);
 			}
 		}
 
@@ -400,11 +646,10 @@ public class ISO8601Format {
 	 * 	Separators (like '-', ':' and '.') are optional. The date and time separator ('T') may be replaced by a space.
 	 * </p>
 	 * 
-	 * <p><i><b>Important Note:</b>
-	 * 	This function is synchronized because it is using (directly or in other static functions) static {@link DecimalFormat} instances.
-	 * 	A {@link DecimalFormat} is a Java class which can be used only by one thread at a time. So {@link #format(long, String, boolean, boolean)}
-	 * 	and {@link #parse(String)} (main public functions of {@link ISO8601Format}) must be synchronized in order to avoid concurrent access
-	 * 	to the {@link DecimalFormat} instances and so to avoid unpredictable errors/results.
+	 * <p><i>Note:
+	 * 	The most common syntax (YYYY-MM-DD['T'hh:mm[:ss[.s]]][TZD], with all separators) is parsed without
+	 * 	{@link GregorianCalendar} and without regular expression. Any other syntax is parsed by
+	 * 	{@link #parseWithCalendar(String)}.
 	 * </i></p>
 	 * 
 	 * @param strDate	Date expressed as a string in ISO8601 format.
@@ -414,7 +659,130 @@ public class ISO8601Format {
 	 * 
 	 * @throws ParseException	If the given date is not expressed in ISO8601 format or is not merely parseable with this implementation.
 	 */
-	public static synchronized long parse(final String strDate) throws ParseException{
+	public static long parse(final String strDate) throws ParseException{
+		long date = parseCommonSyntax(strDate);
+		return (date != NOT_PARSED) ? date : parseWithCalendar(strDate);
+	}
+
+	/**
+	 * Parse the given date if expressed with the most common syntax: YYYY-MM-DD['T'hh:mm[:ss[.s]]][TZD]
+	 * (with all separators, 'T' or a space between the date and the time, and 1 to 9 digits for the fraction of second).
+	 * 
+	 * <p>
+	 * 	The result is exactly the same as {@link #parseWithCalendar(String)}, but without creating any object.
+	 * 	If the date is not expressed with this syntax, if it is before 1583 or if any of its fields is out of range,
+	 * 	nothing is parsed: the date must then be parsed by {@link #parseWithCalendar(String)}.
+	 * </p>
+	 * 
+	 * @param str	Date to parse.
+	 * 
+	 * @return	Parsed date (expressed in milliseconds from the 1st January 1970),
+	 *        	or {@link #NOT_PARSED} if not parsed.
+	 * 
+	 * @since 4.5
+	 */
+	private static long parseCommonSyntax(final String str){
+		final int length = str.length();
+
+		// DATE with format YYYY-MM-DD:
+		if (length < 10 || str.charAt(4) != '-' || str.charAt(7) != '-')
+			return NOT_PARSED;
+		int year = readDigits(str, 0, 4), month = readDigits(str, 5, 7), day = readDigits(str, 8, 10);
+		if (year < 1583 || month < 1 || month > 12 || day < 1 || day > getNbDays(year, month))
+			return NOT_PARSED;
+		long date = daysFromCivil(year, month, day) * MS_PER_DAY;
+		if (length == 10)
+			return date;
+
+		// TIME with format 'T'hh:mm[:ss[.s]]:
+		char c = str.charAt(10);
+		if ((c != 'T' && c != ' ') || length < 16 || str.charAt(13) != ':')
+			return NOT_PARSED;
+		int hours = readDigits(str, 11, 13), minutes = readDigits(str, 14, 16), seconds = 0, millisec = 0;
+		if (hours < 0 || hours > 24 || minutes < 0 || minutes > 60)
+			return NOT_PARSED;
+		int pos = 16;
+		if (pos < length && str.charAt(pos) == ':'){
+			seconds = readDigits(str, pos + 1, pos + 3);
+			if (seconds < 0 || seconds > 60)
+				return NOT_PARSED;
+			pos += 3;
+			if (pos < length && str.charAt(pos) == '.'){
+				int start = ++pos;
+				while(pos < length && str.charAt(pos) >= '0' && str.charAt(pos) <= '9')
+					pos++;
+				/* Note: as in parseWithCalendar(String), the digits are read as a number of milliseconds. */
+				if (pos == start || pos - start > 9)
+					return NOT_PARSED;
+				millisec = readDigits(str, start, pos);
+			}
+		}
+		date += ((hours * 60L + minutes) * 60L + seconds) * 1000L + millisec;
+		if (pos == length)
+			return date;
+
+		// TIME ZONE with format Z or (+|-)hh[[:]mm]:
+		c = str.charAt(pos);
+		if (c == 'Z')
+			return (pos + 1 == length) ? date : NOT_PARSED;
+		else if (c != '+' && c != '-')
+			return NOT_PARSED;
+		int tzHours = readDigits(str, pos + 1, pos + 3), tzMinutes = 0;
+		if (tzHours < 0 || tzHours > 24)
+			return NOT_PARSED;
+		pos += 3;
+		if (pos < length){
+			if (str.charAt(pos) == ':')
+				pos++;
+			if (pos + 2 != length)
+				return NOT_PARSED;
+			tzMinutes = readDigits(str, pos, pos + 2);
+			if (tzMinutes < 0 || tzMinutes > 60)
+				return NOT_PARSED;
+		}
+		long tzOffset = (tzHours * 60L + tzMinutes) * 60000L;
+		return (c == '-') ? date + tzOffset : date - tzOffset;
+	}
+
+	/**
+	 * Read the positive integer written between the given indices.
+	 * 
+	 * @param str	String to read.
+	 * @param start	Index of the first digit.
+	 * @param end	Index after the last digit.
+	 * 
+	 * @return	The read integer, or -1 if there is not only digits between the given indices.
+	 * 
+	 * @since 4.5
+	 */
+	private static int readDigits(final String str, final int start, final int end){
+		if (end > str.length())
+			return -1;
+		int value = 0;
+		char c;
+		for(int i = start; i < end; i++){
+			c = str.charAt(i);
+			if (c < '0' || c > '9')
+				return -1;
+			value = value * 10 + (c - '0');
+		}
+		return value;
+	}
+
+
+	/**
+	 * Parse the given date expressed in any syntax supported by {@link #parse(String)}, with a regular expression
+	 * and a {@link GregorianCalendar}.
+	 * 
+	 * @param strDate	Date expressed as a string in ISO8601 format.
+	 * 
+	 * @return	Parsed date (expressed in milliseconds from the 1st January 1970).
+	 * 
+	 * @throws ParseException	If the given date is not expressed in ISO8601 format or is not merely parseable with this implementation.
+	 * 
+	 * @since 4.5
+	 */
+	protected static long parseWithCalendar(final String strDate) throws ParseException{
 		Matcher m = ISO8601_PATTERN.matcher(strDate);
 		if (m.matches()){
 			GregorianCalendar cal = new GregorianCalendar();
@@ -473,7 +841,7 @@ public class ISO8601Format {
 					if (m.group(timeGroupInd + 5) != null){
 						cal.set(Calendar.SECOND, getSeconds(m.group(timeGroupInd + 6)));
 						if (m.group(timeGroupInd + 7) != null)
-							cal.set(Calendar.MILLISECOND, twoDigitsFmt.parse(m.group(timeGroupInd + 8)).intValue());
+							cal.set(Calendar.MILLISECOND, parseInt(m.group(timeGroupInd + 8)));
 						else
 							cal.set(Calendar.MILLISECOND, 0);
 					}else{
@@ -523,7 +891,7 @@ public class ISO8601Format {
 	 */
 	private static final int getDayOfYear(final String str, final GregorianCalendar cal) throws ParseException{
 		/* A day of year can only be between 1 and 365 (or 366 in leap year). */
-		int dayOfYear = threeDigitsFmt.parse(str).intValue();
+		int dayOfYear = parseInt(str);
 		if (dayOfYear < 1 || dayOfYear > cal.getActualMaximum(Calendar.DAY_OF_YEAR))
 			throw new ParseException("Incorrect day of year: " + dayOfYear + "! An integer between 1 and " + cal.getActualMaximum(Calendar.DAY_OF_YEAR) + " was expected.", -1);
 		return dayOfYear;
@@ -546,7 +914,7 @@ public class ISO8601Format {
 	 * @since 4.2
 	 */
 	private static final int getDayOfMonth(final String str, final GregorianCalendar cal) throws ParseException{
-		int dayOfMonth = twoDigitsFmt.parse(str).intValue();
+		int dayOfMonth = parseInt(str);
 		if (dayOfMonth < 1 || dayOfMonth > cal.getActualMaximum(Calendar.DAY_OF_MONTH))
 			throw new ParseException("Incorrect day of month: " + dayOfMonth + "! An integer between 1 and " + cal.getActualMaximum(Calendar.DAY_OF_MONTH) + " was expected.", -1);
 		return dayOfMonth;
@@ -569,7 +937,7 @@ public class ISO8601Format {
 	 * @since 4.2
 	 */
 	private static final int getDayOfWeek(final String str) throws ParseException{
-		int dayOfWeek = oneDigitFmt.parse(str).intValue();
+		int dayOfWeek = parseInt(str);
 		if (dayOfWeek < 1 || dayOfWeek > 7)
 			throw new ParseException("Incorrect day of week: " + dayOfWeek + "! An integer between 1 (for Monday) and 7 (for Sunday) was expected.", -1);
 		else if (dayOfWeek == 7)
@@ -596,7 +964,7 @@ public class ISO8601Format {
 	 * @since 4.2
 	 */
 	private static final int getWeekOfYear(final String str, final GregorianCalendar cal) throws ParseException{
-		int weekOfYear = twoDigitsFmt.parse(str).intValue();
+		int weekOfYear = parseInt(str);
 		if (weekOfYear < 1 || weekOfYear > cal.getActualMaximum(Calendar.WEEK_OF_YEAR))
 			throw new ParseException("Incorrect week of year value: " + weekOfYear + "! An integer between 1 and " + cal.getActualMaximum(Calendar.WEEK_OF_YEAR) + " was expected.", -1);
 		return weekOfYear;
@@ -619,7 +987,7 @@ public class ISO8601Format {
 	 * @since 4.2
 	 */
 	private static final int getMonth(final String str) throws ParseException{
-		int month = twoDigitsFmt.parse(str).intValue();
+		int month = parseInt(str);
 		if (month < 1 || month > 12)
 			throw new ParseException("Incorrect month value: " + month + "! An integer between 1 and 12 was expected.", -1);
 		return month - 1;
@@ -642,7 +1010,7 @@ public class ISO8601Format {
 	 * @since 4.2
 	 */
 	private static final int getHours(final String str) throws ParseException{
-		int hours = twoDigitsFmt.parse(str).intValue();
+		int hours = parseInt(str);
 		if (hours < 0 || hours > 24)
 			throw new ParseException("Incorrect hour value: " + hours + "! An integer between 0 and 24 was expected.", -1);
 		return hours;
@@ -665,7 +1033,7 @@ public class ISO8601Format {
 	 * @since 4.2
 	 */
 	private static final int getMinutes(final String str) throws ParseException{
-		int minutes = twoDigitsFmt.parse(str).intValue();
+		int minutes = parseInt(str);
 		if (minutes < 0 || minutes > 60)
 			throw new ParseException("Incorrect minute value: " + minutes + "! An integer between 0 and 60 was expected.", -1);
 		return minutes;
@@ -688,9 +1056,87 @@ public class ISO8601Format {
 	 * @since 4.2
 	 */
 	private static final int getSeconds(final String str) throws ParseException{
-		int seconds = twoDigitsFmt.parse(str).intValue();
+		int seconds = parseInt(str);
 		if (seconds < 0 || seconds > 60)
 			throw new ParseException("Incorrect second value: " + seconds + "! An integer between 0 and 60 was expected.", -1);
 		return seconds;
 	}
+
+	/**
+	 * Convert the given string of digits into an integer, exactly as a {@link DecimalFormat} used to do
+	 * (i.e. <code>new DecimalFormat("00").parse(str).intValue()</code>).
+	 * 
+	 * @param str	Digits to convert.
+	 * 
+	 * @return	The corresponding integer.
+	 * 
+	 * @since 4.5
+	 */
+	private static final int parseInt(final String str){
+		try{
+			return (int)Long.parseLong(str);
+		}catch(NumberFormatException nfe){
+			// too many digits for a long => DecimalFormat returned a Double:
+			return Integer.MAX_VALUE;
+		}
+	}
+
+	/**
+	 * Get the number of days since the 1st January 1970 of the given date of the proleptic Gregorian calendar.
+	 * 
+	 * @param year	Year.
+	 * @param month	Month (1 = January, ..., 12 = December).
+	 * @param day	Day of month (1 to 31).
+	 * 
+	 * @return	Number of days since the 1st January 1970 (negative before).
+	 * 
+	 * @since 4.5
+	 */
+	private static long daysFromCivil(int year, final int month, final int day){
+		/* Note: the year is supposed to start on the 1st March, so that the leap day is the last day of the year: */
+		year -= (month <= 2) ? 1 : 0;
+		long era = (year >= 0 ? year : year - 399) / 400;
+		int yearOfEra = (int)(year - era * 400);
+		int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+		int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+		return era * 146097 + dayOfEra - 719468;
+	}
+
+	/**
+	 * Get the number of days of the given month in the Gregorian calendar.
+	 * 
+	 * @param year	Year.
+	 * @param month	Month (1 = January, ..., 12 = December).
+	 * 
+	 * @return	Number of days of the given month.
+	 * 
+	 * @since 4.5
+	 */
+	private static int getNbDays(final int year, final int month){
+		if (month == 2)
+			return ((year % 4 == 0 && year % 100 != 0) || year % 400 == 0) ? 29 : 28;
+		else if (month == 4 || month == 6 || month == 9 || month == 11)
+			return 30;
+		else
+			return 31;
+	}
+
+	/**
+	 * Time zone associated with the ID used to get it.
+	 * 
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 4.5 (10/2026)
+	 * @since 4.5
+	 */
+	private final static class CachedTimeZone {
+		/** ID used to get the time zone. */
+		final String id;
+		/** The corresponding time zone. */
+		final TimeZone timeZone;
+
+		CachedTimeZone(final String id, final TimeZone timeZone){
+			this.id = id;
+			this.timeZone = timeZone;
+		}
+	}
 }
@@ -16,7 +16,7 @@ package uws;
  * You should have received a copy of the GNU Lesser General Public License
  * along with UWSLibrary.  If not, see <http://www.gnu.org/licenses/>.
  * 
- * Copyright 2012,2014 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
@@ -32,7 +32,7 @@ import uws.job.ErrorType;
  * </p>
  * 
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 4.1 (09/2014)
+ * @version 4.5 (10/2026)
  */
 public class UWSException extends Exception {
 	private static final long serialVersionUID = 1L;
@@ -51,6 +51,8 @@ public class UWSException extends Exception {
 	public final static int NOT_FOUND = 404;
 	public final static int NOT_ALLOWED = 405;
 	public final static int REQUEST_ENTITY_TOO_LARGE = 413;
+	/** @since 4.5 */
+	public final static int TOO_MANY_REQUESTS = 429;
 
 	// SERVER ERROR codes:
 	public final static int INTERNAL_SERVER_ERROR = 500;
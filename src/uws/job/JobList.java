@@ -16,16 +16,18 @@ package uws.job;
  * You should have received a copy of the GNU Lesser General Public License
  * along with UWSLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2012-2018 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 import javax.servlet.ServletOutputStream;
@@ -47,6 +49,7 @@ import uws.service.UserIdentifier;
 import uws.service.backup.UWSBackupManager;
 import uws.service.log.UWSLog;
 import uws.service.log.UWSLog.LogLevel;
+import uws.service.store.JobStore;
 
 /**
  * <h3>General description</h3>
@@ -174,8 +177,31 @@ import uws.service.log.UWSLog.LogLevel;
  * 	ACTION=DELETE on {jobs}/{job-id}).
  * </i></p>
  *
+ * <h3>Shared job list</h3>
+ *
+ * <p>
+ * 	Several instances (nodes) of the same UWS service may serve the same job
+ * 	list if they share a {@link JobStore} (see
+ * 	{@link #setJobStore(JobStore)}). Then, every job created by this list is
+ * 	written in the store and all its phase transitions are saved with
+ * 	optimistic locking. Jobs created by other nodes are loaded from the store
+ * 	when listed or asked by ID, and loaded again whenever their stored
+ * 	version changes. Before starting a job, a node must claim it in the
+ * 	store (see {@link #claimJob(UWSJob)}) ; thus, a job is executed only
+ * 	once.
+ * </p>
+ *
+ * <p><i>Note:
+ * 	Listing the jobs queries the job store for the versions of all its jobs,
+ * 	and getting a job created by another node queries it for the version of
+ * 	this job. To limit these queries, the job store is queried again only
+ * 	after a refresh period (see {@link #setStoreRefreshPeriod(long)}): in the
+ * 	meantime, the jobs of other nodes are the ones already loaded. A job
+ * 	unknown by this node is however always searched in the job store.
+ * </i></p>
+ *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 4.3 (10/2017)
+ * @version 4.5 (10/2026)
  *
  * @see UWSJob
  */
@@ -214,6 +240,51 @@ public class JobList extends SerializableUWSObject implements Iterable<UWSJob> {
 	/** <b>[Optional]</b> Useful only to get the URL of this job list. */
 	private UWS uws = null;
 
+	/** <b>[Optional]</b> Store shared with other nodes of the same service.
+	 * @since 4.5 */
+	private JobStore jobStore = null;
+
+	/** Version of the jobs loaded from the job store (i.e. created or
+	 * executed by another node), indexed by job ID.
+	 * @since 4.5 */
+	protected final Map<String,Long> remoteJobs = new ConcurrentHashMap<String,Long>();
+
+	/** Version of the jobs created or executed by this node and successfully
+	 * saved in the job store, indexed by job ID.
+	 * @since 4.5 */
+	protected final Map<String,Long> storedJobs = new ConcurrentHashMap<String,Long>();
+
+	/** Time (in milliseconds since 1970) of the last check of the stored
+	 * jobs (whatever is the node which created them), indexed by job ID.
+	 * @since 4.5 */
+	protected final Map<String,Long> remoteChecks = new ConcurrentHashMap<String,Long>();
+
+	/** IDs of the jobs being updated with their copy modified in the job
+	 * store by another node. Their phase transitions must not be saved again
+	 * in the job store.
+	 * @since 4.5 */
+	protected final Set<String> refreshedJobs = Collections.newSetFromMap(new ConcurrentHashMap<String,Boolean>());
+
+	/** Default minimum time (in milliseconds) before querying again the job
+	 * store: {@value #DEFAULT_STORE_REFRESH_PERIOD}.
+	 * @since 4.5 */
+	public final static long DEFAULT_STORE_REFRESH_PERIOD = 1000;
+
+	/** Minimum time (in milliseconds) before querying again the job store
+	 * for the whole list or for a job loaded from it.
+	 * @since 4.5 */
+	private long storeRefreshPeriod = DEFAULT_STORE_REFRESH_PERIOD;
+
+	/** Time (in milliseconds since 1970) of the last synchronization of this
+	 * whole list with the job store. <i>Negative if none.</i>
+	 * @since 4.5 */
+	private volatile long lastStoreSync = -1;
+
+	/** Observer of all jobs of this list forwarding their phase transitions
+	 * to its own listeners.
+	 * @since 4.5 */
+	protected final JobPhaseBroadcaster phaseBroadcaster = new JobPhaseBroadcaster();
+
 	/* ************ */
 	/* CONSTRUCTORS */
 	/* ************ */
@@ -469,6 +540,90 @@ public class JobList extends SerializableUWSObject implements Iterable<UWSJob> {
 		this.destructionPolicy = (destroyPolicy == null) ? DEFAULT_JOB_DESTRUCTION_POLICY : destroyPolicy;
 	}
 
+	/**
+	 * Gets the observer of all jobs of this list.
+	 *
+	 * <p>
+	 * 	Listeners added to this broadcaster are notified of every phase
+	 * 	transition of any job of this list, present or future.
+	 * </p>
+	 *
+	 * <p><i>Note:
+	 * 	Jobs executed by other nodes (see {@link #setJobStore(JobStore)}) are
+	 * 	observed only while loaded in this list, and their transitions are
+	 * 	seen only when loaded again.
+	 * </i></p>
+	 *
+	 * @return	The phase broadcaster of this list.
+	 *
+	 * @since 4.5
+	 */
+	public final JobPhaseBroadcaster getPhaseBroadcaster(){
+		return phaseBroadcaster;
+	}
+
+	/**
+	 * Gets the store shared with the other nodes of this service.
+	 *
+	 * @return	The job store, or <i>null</i> if this job list is not shared.
+	 *
+	 * @since 4.5
+	 */
+	public final JobStore getJobStore(){
+		return jobStore;
+	}
+
+	/**
+	 * Sets the store to share with the other nodes of this service.
+	 *
+	 * <p><i>Note:
+	 * 	Jobs already in this list are not written in the new store. So, this
+	 * 	function should be called before any job is added.
+	 * </i></p>
+	 *
+	 * @param store	The job store to use.
+	 *             	<i>If NULL, this job list is not shared any more.</i>
+	 *
+	 * @since 4.5
+	 */
+	public final void setJobStore(final JobStore store){
+		jobStore = store;
+		lastStoreSync = -1;
+	}
+
+	/**
+	 * Gets the minimum time before querying again the job store for the
+	 * whole list (see {@link #iterator()}) or for a job loaded from it (see
+	 * {@link #getJob(String)}).
+	 *
+	 * @return	The refresh period (in milliseconds).
+	 *
+	 * @since 4.5
+	 */
+	public final long getStoreRefreshPeriod(){
+		return storeRefreshPeriod;
+	}
+
+	/**
+	 * Sets the minimum time before querying again the job store for the
+	 * whole list (see {@link #iterator()}) or for a job loaded from it (see
+	 * {@link #getJob(String)}).
+	 *
+	 * <p><i>Note:
+	 * 	{@link #synchronizeWithStore()} always queries the job store, whatever
+	 * 	is this period.
+	 * </i></p>
+	 *
+	 * @param period	The refresh period (in milliseconds).
+	 *              	<i>If negative or null, the job store is queried at
+	 *              	each access.</i>
+	 *
+	 * @since 4.5
+	 */
+	public final void setStoreRefreshPeriod(final long period){
+		storeRefreshPeriod = (period < 0) ? 0 : period;
+	}
+
 	/**
 	 * Gets the UWS URL of this jobs list in function of its UWS.
 	 *
@@ -498,11 +653,23 @@ public class JobList extends SerializableUWSObject implements Iterable<UWSJob> {
 	 *
 	 * @param jobID	The ID of the job to get.
 	 *
+	 * <p><i>Note:
+	 * 	If this list has a job store, a job unknown by this node is searched in
+	 * 	it, and a stored job is checked again if not checked since the refresh
+	 * 	period (see {@link #setStoreRefreshPeriod(long)}).
+	 * </i></p>
+	 *
 	 * @return	The requested job or <i>null</i> if there is no job with the
 	 *        	given ID.
 	 */
 	public final UWSJob getJob(String jobID){
-		return jobsList.get(jobID);
+		UWSJob job = jobsList.get(jobID);
+
+		// Load it from the job store if unknown or if stored:
+		if (jobStore != null && jobID != null && (job == null || ((remoteJobs.containsKey(jobID) || storedJobs.containsKey(jobID)) && isRefreshDue(remoteChecks.get(jobID)))))
+			job = refreshStoredJob(jobID);
+
+		return job;
 	}
 
 	/**
@@ -524,7 +691,7 @@ public class JobList extends SerializableUWSObject implements Iterable<UWSJob> {
 			throw new UWSException(UWSException.PERMISSION_DENIED, UWSExceptionFactory.readPermissionDenied(user, true, getName()));
 
 		// Get the specified job:
-		UWSJob job = jobsList.get(jobID);
+		UWSJob job = getJob(jobID);
 
 		// Check the right of the specified user to see the job:
 		if (user != null && job != null && job.getOwner() != null){
@@ -562,6 +729,7 @@ public class JobList extends SerializableUWSObject implements Iterable<UWSJob> {
 		if (user == null)
 			return iterator();
 		else{
+			synchronizeWithStoreIfDue();
 			if (ownerJobs.containsKey(user))
 				return ownerJobs.get(user).values().iterator();
 			else
@@ -591,6 +759,7 @@ public class JobList extends SerializableUWSObject implements Iterable<UWSJob> {
 	 */
 	@Override
 	public final Iterator<UWSJob> iterator(){
+		synchronizeWithStoreIfDue();
 		return jobsList.values().iterator();
 	}
 
@@ -699,12 +868,17 @@ public class JobList extends SerializableUWSObject implements Iterable<UWSJob> {
 			j.setJobList(this);
 
 			// Add the job to the jobs list:
-			jobsList.put(j.getJobId(), j);
-			if (owner != null){
-				// Index also this job in function of its owner:
-				if (!ownerJobs.containsKey(owner))
-					ownerJobs.put(owner, new ConcurrentHashMap<String,UWSJob>());
-				ownerJobs.get(owner).put(j.getJobId(), j);
+			indexJob(j);
+			j.addObserver(phaseBroadcaster);
+
+			// Share it with the other nodes:
+			if (jobStore != null){
+				try{
+					storedJobs.put(j.getJobId(), jobStore.save(getName(), j));
+					remoteChecks.put(j.getJobId(), System.currentTimeMillis());
+				}catch(UWSException ue){
+					getLogger().logJob(LogLevel.ERROR, j, "STORE", "Impossible to save the job \"" + j.getJobId() + "\" in the job store! It will be visible only on this node.", ue);
+				}
 			}
 
 			// Save the owner jobs list:
@@ -826,6 +1000,12 @@ public class JobList extends SerializableUWSObject implements Iterable<UWSJob> {
 		UWSJob removedJob = (jobId == null) ? null : jobsList.remove(jobId);
 
 		if (removedJob != null){
+			// Forget its link with the job store:
+			removedJob.removeObserver(phaseBroadcaster);
+			remoteJobs.remove(jobId);
+			remoteChecks.remove(jobId);
+			storedJobs.remove(jobId);
+
 			// Clear its owner index:
 			JobOwner owner = removedJob.getOwner();
 			if (owner != null && ownerJobs.containsKey(owner)){
@@ -909,6 +1089,15 @@ public class JobList extends SerializableUWSObject implements Iterable<UWSJob> {
 			UWSJob destroyedJob = removeJob(jobId);
 
 			if (destroyedJob != null){
+				// Remove it also from the job store:
+				if (jobStore != null){
+					try{
+						jobStore.remove(getName(), jobId);
+					}catch(UWSException ue){
+						getLogger().logJob(LogLevel.ERROR, destroyedJob, "STORE", "Impossible to remove the job \"" + jobId + "\" from the job store!", ue);
+					}
+				}
+
 				// Clear associated resources:
 				destroyedJob.clearResources();
 
@@ -1004,6 +1193,463 @@ public class JobList extends SerializableUWSObject implements Iterable<UWSJob> {
 		}
 	}
 
+	/**
+	 * Adds the given job in this list and indexes it by its owner.
+	 *
+	 * @param j	The job to index.
+	 *
+	 * @since 4.5
+	 */
+	private void indexJob(final UWSJob j){
+		jobsList.put(j.getJobId(), j);
+		JobOwner owner = j.getOwner();
+		if (owner != null){
+			// Index also this job in function of its owner:
+			if (!ownerJobs.containsKey(owner))
+				ownerJobs.put(owner, new ConcurrentHashMap<String,UWSJob>());
+			ownerJobs.get(owner).put(j.getJobId(), j);
+		}
+	}
+
+	/* ******************** */
+	/* JOB STORE MANAGEMENT */
+	/* ******************** */
+	/**
+	 * Updates this list with the jobs of the job store: jobs created by
+	 * other nodes are added, jobs modified by other nodes are loaded again and
+	 * jobs destroyed by other nodes are removed.
+	 *
+	 * <p><i>Note:
+	 * 	This function does nothing if this list has no job store. Errors are
+	 * 	just logged.
+	 * </i></p>
+	 *
+	 * @since 4.5
+	 */
+	public void synchronizeWithStore(){
+		if (jobStore == null)
+			return;
+
+		try{
+			long now = System.currentTimeMillis();
+			Map<String,Long> versions = jobStore.getVersions(getName());
+			lastStoreSync = now;
+
+			// Remove the jobs destroyed by another node:
+			for(String jobId : new ArrayList<String>(jobsList.keySet())){
+				if (!versions.containsKey(jobId)){
+					if (remoteJobs.containsKey(jobId))
+						removeJob(jobId);
+					else if (storedJobs.containsKey(jobId)){
+						UWSJob job = removeJob(jobId);
+						if (job != null)
+							job.clearResources();
+					}
+				}
+			}
+
+			// Load the jobs created or modified by another node:
+			for(Map.Entry<String,Long> entry : versions.entrySet()){
+				String jobId = entry.getKey();
+				Long localVersion = storedJobs.get(jobId);
+				Long knownVersion = (localVersion != null) ? localVersion : remoteJobs.get(jobId);
+				if (knownVersion != null && knownVersion.longValue() == entry.getValue().longValue())
+					remoteChecks.put(jobId, now);
+				else if (localVersion != null){
+					UWSJob job = jobsList.get(jobId);
+					if (job != null)
+						refreshLocalJob(job);
+				}else if (!jobsList.containsKey(jobId) || remoteJobs.containsKey(jobId))
+					importStoredJob(jobId, entry.getValue());
+			}
+		}catch(UWSException ue){
+			getLogger().logUWS(LogLevel.WARNING, null, "STORE", "Impossible to synchronize the job list \"" + getName() + "\" with the job store! Only the jobs known by this node are visible.", ue);
+		}
+	}
+
+	/**
+	 * Calls {@link #synchronizeWithStore()} only if the last synchronization
+	 * is older than the refresh period (see
+	 * {@link #setStoreRefreshPeriod(long)}).
+	 *
+	 * @since 4.5
+	 */
+	protected void synchronizeWithStoreIfDue(){
+		if (jobStore != null && isRefreshDue(lastStoreSync))
+			synchronizeWithStore();
+	}
+
+	/**
+	 * Tells whether the job store must be queried again after a check done
+	 * at the given time.
+	 *
+	 * @param lastCheck	Time (in milliseconds since 1970) of the last check.
+	 *                 	<i>If NULL or negative, there was no check.</i>
+	 *
+	 * @return	<i>true</i> if the refresh period has elapsed since the last
+	 *        	check (or if there was no check),
+	 *        	<i>false</i> otherwise.
+	 *
+	 * @since 4.5
+	 */
+	protected final boolean isRefreshDue(final Long lastCheck){
+		return lastCheck == null || lastCheck < 0 || System.currentTimeMillis() - lastCheck >= storeRefreshPeriod;
+	}
+
+	/**
+	 * Gets the up-to-date version of the specified job from the job store.
+	 *
+	 * @param jobId	ID of the job to get.
+	 *
+	 * @return	The job, or <i>null</i> if it is not stored.
+	 *
+	 * @since 4.5
+	 */
+	protected UWSJob refreshStoredJob(final String jobId){
+		UWSJob job = jobsList.get(jobId);
+		try{
+			// Nothing to do if not shared by this node:
+			if (job != null && !remoteJobs.containsKey(jobId) && !storedJobs.containsKey(jobId))
+				return job;
+
+			// Remove the job if destroyed by another node:
+			long now = System.currentTimeMillis();
+			long version = jobStore.getVersion(getName(), jobId);
+			if (version < 0){
+				boolean local = storedJobs.containsKey(jobId);
+				if (job != null && removeJob(jobId) != null && local)
+					job.clearResources();
+				return null;
+			}
+
+			// Load it again only if modified:
+			Long localVersion = storedJobs.get(jobId);
+			Long knownVersion = (localVersion != null) ? localVersion : remoteJobs.get(jobId);
+			if (job != null && knownVersion != null && knownVersion.longValue() == version){
+				remoteChecks.put(jobId, now);
+				return job;
+			}else if (job != null && localVersion != null)
+				return refreshLocalJob(job);
+			else
+				return importStoredJob(jobId, version);
+		}catch(UWSException ue){
+			getLogger().logUWS(LogLevel.WARNING, null, "STORE", "Impossible to get the job \"" + jobId + "\" from the job store!", ue);
+			return job;
+		}
+	}
+
+	/**
+	 * Loads the specified job from the job store and adds it in this list,
+	 * in replacement of any former copy.
+	 *
+	 * @param jobId		ID of the job to load.
+	 * @param version	Its stored version.
+	 *
+	 * @return	The loaded job, or <i>null</i> if it is not stored any more.
+	 *
+	 * @throws UWSException	If the job can not be loaded.
+	 *
+	 * @since 4.5
+	 */
+	protected synchronized UWSJob importStoredJob(final String jobId, final long version) throws UWSException{
+		UWSJob job = jobStore.load(this, jobId);
+
+		// Remove the former copy:
+		if (remoteJobs.containsKey(jobId))
+			removeJob(jobId);
+
+		if (job != null){
+			job.setJobList(this);
+			indexJob(job);
+			remoteJobs.put(jobId, version);
+			remoteChecks.put(jobId, System.currentTimeMillis());
+			job.addObserver(phaseBroadcaster);
+			destructionManager.update(job);
+		}
+
+		return job;
+	}
+
+	/**
+	 * Updates the given job, created or executed by this node, with its copy
+	 * modified in the job store by another node.
+	 *
+	 * <p>
+	 * 	Contrary to {@link #importStoredJob(String, long)}, the job is not
+	 * 	replaced but updated in place (phase, results, error summary, ...
+	 * 	see {@link UWSJob#refresh(UWSJob)}), so that anybody holding it sees
+	 * 	the modification. If it is now finished or claimed by another node, it
+	 * 	is removed from the execution manager of this node (and its execution,
+	 * 	if any, is stopped).
+	 * </p>
+	 *
+	 * @param job	The job to update.
+	 *
+	 * @return	The updated job, or <i>null</i> if it is not stored any more.
+	 *
+	 * @throws UWSException	If the job can not be loaded or updated.
+	 *
+	 * @since 4.5
+	 */
+	protected UWSJob refreshLocalJob(final UWSJob job) throws UWSException{
+		String jobId = job.getJobId();
+		refreshedJobs.add(jobId);
+		try{
+			UWSJob stored = null;
+			String node = null;
+			synchronized(job.getPhaseManager()){
+				// Nothing to do if modified by this node in the meantime:
+				long current = jobStore.getVersion(getName(), jobId);
+				Long localVersion = storedJobs.get(jobId);
+				if (current >= 0 && localVersion != null && localVersion.longValue() == current){
+					remoteChecks.put(jobId, System.currentTimeMillis());
+					return job;
+				}
+
+				// Update it:
+				if (current >= 0)
+					stored = jobStore.load(this, jobId);
+				if (stored != null){
+					node = jobStore.getClaimingNode(getName(), jobId);
+					job.refresh(stored);
+					if (storedJobs.containsKey(jobId))
+						storedJobs.put(jobId, current);
+					remoteChecks.put(jobId, System.currentTimeMillis());
+				}
+			}
+
+			// Remove the job if destroyed by another node:
+			if (stored == null){
+				if (removeJob(jobId) != null)
+					job.clearResources();
+				return null;
+			}
+
+			// Stop its execution if finished by another node:
+			if (job.getPhaseManager().isFinished() && !job.isStopped() && job.thread != Thread.currentThread())
+				job.stop();
+
+			// Do not execute it if finished or claimed by another node:
+			if (job.getPhaseManager().isFinished() || (node != null && !node.equals(jobStore.getNodeId())))
+				executionManager.remove(job);
+
+			return job;
+		}finally{
+			refreshedJobs.remove(jobId);
+		}
+	}
+
+	/**
+	 * Claims the given job in the job store, so that this node is the only
+	 * one executing it.
+	 *
+	 * <p>
+	 * 	If the claim fails, the job will be loaded again from the job store at
+	 * 	the next access.
+	 * </p>
+	 *
+	 * @param job	The job to claim.
+	 *
+	 * @return	<i>true</i> if this node can execute the given job
+	 *        	(always the case if there is no job store or if the job is not
+	 *        	stored),
+	 *        	<i>false</i> if it has been claimed by another node or if it can
+	 *        	not be claimed.
+	 *
+	 * @since 4.5
+	 */
+	public boolean claimJob(final UWSJob job){
+		if (jobStore == null || job == null)
+			return true;
+
+		String jobId = job.getJobId();
+		if (!storedJobs.containsKey(jobId) && !remoteJobs.containsKey(jobId))
+			return true;
+
+		try{
+			long version = jobStore.claim(getName(), jobId);
+			if (version >= 0){
+				remoteJobs.remove(jobId);
+				remoteChecks.put(jobId, System.currentTimeMillis());
+				storedJobs.put(jobId, version);
+				return true;
+			}else{
+				if (storedJobs.containsKey(jobId))
+					storedJobs.put(jobId, -1L);
+				else if (jobsList.containsKey(jobId))
+					remoteJobs.put(jobId, -1L);
+				remoteChecks.remove(jobId);
+				return false;
+			}
+		}catch(UWSException ue){
+			getLogger().logJob(LogLevel.ERROR, job, "STORE", "Impossible to claim the job \"" + jobId + "\" in the job store! It will not be executed by this node.", ue);
+			return false;
+		}
+	}
+
+	/**
+	 * Claims the oldest job queued in the job store and not yet claimed by any
+	 * node.
+	 *
+	 * @return	The claimed job (not yet started),
+	 *        	or <i>null</i> if there is no job store or no job to claim.
+	 *
+	 * @since 4.5
+	 */
+	public UWSJob claimNextQueuedJob(){
+		if (jobStore == null)
+			return null;
+
+		try{
+			String jobId = jobStore.claimNext(getName());
+			if (jobId == null)
+				return null;
+
+			// Already known by this node:
+			long version = jobStore.getVersion(getName(), jobId);
+			UWSJob job = jobsList.get(jobId);
+			if (job == null || remoteJobs.containsKey(jobId))
+				job = importStoredJob(jobId, version);
+			if (job != null){
+				remoteJobs.remove(jobId);
+				remoteChecks.put(jobId, System.currentTimeMillis());
+				storedJobs.put(jobId, version);
+			}
+			return job;
+		}catch(UWSException ue){
+			getLogger().logUWS(LogLevel.ERROR, null, "STORE", "Impossible to claim a queued job of the job list \"" + getName() + "\" in the job store!", ue);
+			return null;
+		}
+	}
+
+	/**
+	 * Saves in the job store the transition of the given job from the given
+	 * phase to its current one.
+	 *
+	 * <p>
+	 * 	The transition is saved only if the stored phase is still the former one
+	 * 	(optimistic locking). Otherwise, another node has changed the job in
+	 * 	the meantime ; the transition is then cancelled (i.e. the former phase
+	 * 	is set back) and the job is marked so that it is updated with its
+	 * 	stored copy (see {@link #refreshModifiedJob(UWSJob)}).
+	 * </p>
+	 *
+	 * <p><i>Note:
+	 * 	This function is called by
+	 * 	{@link UWSJob#setPhase(ExecutionPhase, boolean)} just after the phase
+	 * 	change, and so, before the execution manager and the observers of the
+	 * 	job are notified. If the job store can not be updated, the error is
+	 * 	just logged.
+	 * </i></p>
+	 *
+	 * @param job		The job whose phase has just changed.
+	 * @param oldPhase	Its former phase.
+	 *
+	 * @return	<i>true</i> if the transition can be kept,
+	 *        	<i>false</i> if it has been cancelled because the job has been
+	 *        	modified by another node.
+	 *
+	 * @throws UWSException	If the former phase can not be set back.
+	 *
+	 * @since 4.5
+	 */
+	protected boolean saveTransition(final UWSJob job, final ExecutionPhase oldPhase) throws UWSException{
+		if (updateStoredJob(job, oldPhase))
+			return true;
+		else{
+			job.getPhaseManager().setPhase(oldPhase, true);
+			return false;
+		}
+	}
+
+	/**
+	 * Saves in the job store the parameters of the given job, just modified
+	 * by this node.
+	 *
+	 * <p>
+	 * 	As for {@link #saveTransition(UWSJob, ExecutionPhase)}, the job is saved
+	 * 	only if its stored phase is still its current one. Otherwise, the job
+	 * 	is updated with its stored copy and an error is raised.
+	 * </p>
+	 *
+	 * @param job	The job whose parameters have just changed.
+	 *
+	 * @throws UWSException	If the job has been modified by another node.
+	 *
+	 * @since 4.5
+	 */
+	protected void saveParameters(final UWSJob job) throws UWSException{
+		boolean saved;
+		synchronized(job.getPhaseManager()){
+			saved = updateStoredJob(job, job.getPhase());
+		}
+		if (!saved){
+			refreshModifiedJob(job);
+			throw new UWSException(UWSException.BAD_REQUEST, "The job \"" + job.getJobId() + "\" has been modified by another node: its parameters can not be modified any more!");
+		}
+	}
+
+	/**
+	 * Updates the stored copy of the given job ONLY IF its stored phase is
+	 * the given one.
+	 *
+	 * @param job			The job to save.
+	 * @param expectedPhase	Its expected stored phase.
+	 *
+	 * @return	<i>false</i> if the job has been modified by another node,
+	 *        	<i>true</i> otherwise (i.e. saved, not shared or impossible to
+	 *        	save because of a logged error).
+	 *
+	 * @since 4.5
+	 */
+	private boolean updateStoredJob(final UWSJob job, final ExecutionPhase expectedPhase){
+		String jobId = job.getJobId();
+		if (jobStore == null || (!storedJobs.containsKey(jobId) && !remoteJobs.containsKey(jobId)) || refreshedJobs.contains(jobId))
+			return true;
+
+		try{
+			long version = jobStore.updatePhase(getName(), job, expectedPhase);
+			if (version < 0){
+				// Load it again at the next access:
+				remoteChecks.remove(jobId);
+				if (remoteJobs.containsKey(jobId))
+					remoteJobs.put(jobId, -1L);
+				else if (storedJobs.containsKey(jobId))
+					storedJobs.put(jobId, -1L);
+				return false;
+			}else if (remoteJobs.containsKey(jobId))
+				remoteJobs.put(jobId, version);
+			else if (storedJobs.containsKey(jobId))
+				storedJobs.put(jobId, version);
+		}catch(UWSException ue){
+			getLogger().logJob(LogLevel.ERROR, job, "STORE", "Impossible to save the job \"" + jobId + "\" in the job store! Its last modification will be visible only on this node.", ue);
+		}
+		return true;
+	}
+
+	/**
+	 * Updates immediately the given job, created or executed by this node,
+	 * with its copy modified by another node.
+	 *
+	 * <p><i>Note:
+	 * 	A job loaded from the job store is not updated: it will be loaded again
+	 * 	at its next access (see {@link #getJob(String)}).
+	 * </i></p>
+	 *
+	 * @param job	The modified job.
+	 *
+	 * @since 4.5
+	 */
+	protected void refreshModifiedJob(final UWSJob job){
+		if (jobStore != null && storedJobs.containsKey(job.getJobId())){
+			try{
+				refreshLocalJob(job);
+			}catch(UWSException ue){
+				getLogger().logJob(LogLevel.WARNING, job, "STORE", "Impossible to get the job \"" + job.getJobId() + "\" from the job store!", ue);
+			}
+		}
+	}
+
 	/**
 	 * Serializes the while object in the given output stream,
 	 * considering the given owner, the given job filters and thanks to the
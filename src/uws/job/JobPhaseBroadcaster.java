@@ -0,0 +1,112 @@
+package uws.job;
+
+/*
+ * This file is part of UWSLibrary.
+ *
+ * UWSLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UWSLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with UWSLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import uws.UWSException;
+
+/**
+ * Job observer forwarding all phase transitions of the observed jobs to a
+ * dynamic list of listeners.
+ *
+ * <p>
+ * 	A {@link JobList} attaches one such observer to all its jobs (see
+ * 	{@link JobList#getPhaseBroadcaster()}). Thus, anything interested in the
+ * 	phase transitions of any job of a list just has to be added here, once,
+ * 	instead of being added to every job, present and future.
+ * </p>
+ *
+ * <p><i>Note:
+ * 	Listeners are notified in the thread changing the job phase, while the
+ * 	phase of the job is locked. So, they MUST return quickly and MUST NOT
+ * 	block.
+ * </i></p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 4.5 (10/2026)
+ * @since 4.5
+ */
+public class JobPhaseBroadcaster implements JobObserver {
+	private static final long serialVersionUID = 1L;
+
+	/** Listeners to notify of each phase transition. */
+	private final CopyOnWriteArrayList<JobObserver> listeners = new CopyOnWriteArrayList<JobObserver>();
+
+	/**
+	 * Add a listener.
+	 *
+	 * @param listener	The listener to add. <i>Nothing is done if NULL or
+	 *                	already added.</i>
+	 */
+	public void addListener(final JobObserver listener){
+		if (listener != null)
+			listeners.addIfAbsent(listener);
+	}
+
+	/**
+	 * Remove the given listener.
+	 *
+	 * @param listener	The listener to remove.
+	 *
+	 * @return	<i>true</i> if the listener has been removed,
+	 *        	<i>false</i> if it was not a listener of this broadcaster.
+	 */
+	public boolean removeListener(final JobObserver listener){
+		return listeners.remove(listener);
+	}
+
+	/**
+	 * Get the number of listeners.
+	 *
+	 * @return	Number of listeners.
+	 */
+	public int getNbListeners(){
+		return listeners.size();
+	}
+
+	/**
+	 * Forward the phase transition to all listeners.
+	 *
+	 * <p>
+	 * 	All listeners are notified, even if some of them fail. Their error
+	 * 	messages are then gathered in a single {@link UWSException}.
+	 * </p>
+	 *
+	 * @see uws.job.JobObserver#update(uws.job.UWSJob, uws.job.ExecutionPhase, uws.job.ExecutionPhase)
+	 */
+	@Override
+	public void update(final UWSJob job, final ExecutionPhase oldPhase, final ExecutionPhase newPhase) throws UWSException{
+		String errors = null;
+		for(JobObserver listener : listeners){
+			try{
+				listener.update(job, oldPhase, newPhase);
+			}catch(UWSException ue){
+				if (errors == null)
+					errors = ue.getMessage();
+				else
+					errors += "\n" + ue.getMessage();
+			}
+		}
+		if (errors != null)
+			throw new UWSException(UWSException.INTERNAL_SERVER_ERROR, errors);
+	}
+
+}
@@ -16,7 +16,7 @@ package uws.job;
  * You should have received a copy of the GNU Lesser General Public License
  * along with UWSLibrary.  If not, see <http://www.gnu.org/licenses/>.
  * 
- * Copyright 2012-2015 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
@@ -60,7 +60,7 @@ import uws.service.log.UWSLog.LogLevel;
  * </ul>
  * 
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 4.1 (04/2015)
+ * @version 4.5 (10/2026)
  * 
  * @see UWSJob#start()
  * @see UWSJob#abort()
@@ -344,6 +344,11 @@ public abstract class JobThread extends Thread {
 	 * 
 	 * <p><i><u>note:</u> the result file will be created if needed.</i></p>
 	 * 
+	 * <p><i><u>note:</u> the returned stream must be closed before getting
+	 * the result size and publishing it ; some file managers (e.g.
+	 * {@link uws.service.file.LocalUWSFileManager}) make the result available
+	 * only once its stream is closed.</i></p>
+	 * 
 	 * @param resultToWrite	The description of the result to write.
 	 * 
 	 * @return				An output stream for the given result.
@@ -23,6 +23,7 @@ package uws.job;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -788,30 +789,151 @@ public class UWSJob extends SerializableUWSObject {
 	 *             	<i>false</i> to take into account the order of all phases.
 	 *
 	 * @throws UWSException If the given phase does not respect the job's
-	 *                     	phases order.
+	 *                     	phases order, or if the job has been modified by
+	 *                     	another node in the meantime (see
+	 *                     	{@link JobList#saveTransition(UWSJob, ExecutionPhase)}).
 	 *
 	 * @see JobPhase#setPhase(ExecutionPhase, boolean)
+	 * @see JobList#saveTransition(UWSJob, ExecutionPhase)
 	 * @see JobPhase#isFinished()
 	 * @see ExecutionManager#remove(UWSJob)
 	 * @see #notifyObservers(ExecutionPhase)
 	 */
 	public final void setPhase(ExecutionPhase p, boolean force) throws UWSException{
+		ExecutionPhase oldPhase;
+		boolean saved = true, finished = false;
 		synchronized(phase){
-			ExecutionPhase oldPhase = phase.getPhase();
+			oldPhase = phase.getPhase();
 			phase.setPhase(p, force);
 
-			if (!force)
-				getLogger().logJob(LogLevel.INFO, this, "CHANGE_PHASE", "The job \"" + getJobId() + "\" goes from " + oldPhase + " to " + p, null);
+			// Share the transition with the other nodes (cancelled if they have modified the job):
+			if (phase.getPhase() != oldPhase && getJobList() != null)
+				saved = getJobList().saveTransition(this, oldPhase);
+
+			if (saved){
+				if (!force)
+					getLogger().logJob(LogLevel.INFO, this, "CHANGE_PHASE", "The job \"" + getJobId() + "\" goes from " + oldPhase + " to " + p, null);
+
+				// Notify all the observers:
+				finished = phase.isFinished();
+				notifyObservers(oldPhase);
+			}
+		}
+
+		// Get the modifications done by the other node:
+		if (!saved){
+			getJobList().refreshModifiedJob(this);
+			throw new UWSException(UWSException.BAD_REQUEST, "The job \"" + getJobId() + "\" has been modified by another node: its transition from " + oldPhase + " to " + p + " has been cancelled!");
+		}
+
+		// Notify the execution manager (outside of the lock on the phase, so that it can lock itself safely):
+		if (finished && getJobList() != null)
+			getJobList().getExecutionManager().remove(this);
+	}
+
+	/**
+	 * Replaces the state of this job by the one of its given copy, loaded from
+	 * the job store after a modification by another node: phase, parameters,
+	 * quote, start and end times, error summary and results.
+	 *
+	 * <p><i>Note:
+	 * 	If the phase changes, the observers are notified.
+	 * </i></p>
+	 *
+	 * @param stored	The stored copy of this job.
+	 *
+	 * @throws UWSException	If the phase can not be set.
+	 *
+	 * @since 4.5
+	 */
+	final void refresh(final UWSJob stored) throws UWSException{
+		synchronized(phase){
+			ExecutionPhase oldPhase = phase.getPhase();
 
-			// Notify the execution manager:
-			if (phase.isFinished() && getJobList() != null)
-				getJobList().getExecutionManager().remove(this);
+			refreshParameters(stored);
+			quote = stored.quote;
+			startTime = stored.startTime;
+			endTime = stored.endTime;
+			errorSummary = stored.errorSummary;
+			synchronized(results){
+				results.clear();
+				results.putAll(stored.results);
+			}
 
-			// Notify all the observers:
-			notifyObservers(oldPhase);
+			if (stored.getPhase() != oldPhase){
+				phase.setPhase(stored.getPhase(), true);
+				notifyObservers(oldPhase);
+			}
 		}
 	}
 
+	/**
+	 * Replaces the parameters of this job by the ones of its given stored
+	 * copy.
+	 *
+	 * <p><i>Note:
+	 * 	Only the parameters whose value is different are replaced, so that an
+	 * 	uploaded file shared by both copies is not deleted.
+	 * </i></p>
+	 *
+	 * @param stored	The stored copy of this job.
+	 *
+	 * @throws UWSException	If a parameter can not be set.
+	 *
+	 * @since 4.5
+	 */
+	private void refreshParameters(final UWSJob stored) throws UWSException{
+		synchronized(inputParams){
+			for(String name : new ArrayList<String>(getAdditionalParameters())){
+				if (!stored.getAdditionalParameters().contains(name))
+					inputParams.remove(name);
+			}
+			for(String name : stored.getAdditionalParameters()){
+				if (!sameValue(getAdditionalParameterValue(name), stored.getAdditionalParameterValue(name)))
+					inputParams.set(name, stored.getAdditionalParameterValue(name));
+			}
+			inputParams.set(PARAM_RUN_ID, stored.getRunId());
+			inputParams.set(PARAM_EXECUTION_DURATION, stored.getExecutionDuration());
+			if (stored.getDestructionTime() != null && !stored.getDestructionTime().equals(getDestructionTime())){
+				inputParams.set(PARAM_DESTRUCTION_TIME, stored.getDestructionTime());
+				if (myJobList != null)
+					myJobList.updateDestruction(this);
+			}
+		}
+	}
+
+	/**
+	 * Tells whether the two given parameter values are the same, whatever is
+	 * their type (the stored ones are generally strings).
+	 *
+	 * @param v1	A parameter value. <i>May be NULL or an array.</i>
+	 * @param v2	Another parameter value. <i>May be NULL or an array.</i>
+	 *
+	 * @return	<i>true</i> if both values are the same,
+	 *        	<i>false</i> otherwise.
+	 *
+	 * @since 4.5
+	 */
+	private static boolean sameValue(final Object v1, final Object v2){
+		if (v1 == null || v2 == null)
+			return v1 == v2;
+		else if (v1 instanceof Object[] && v2 instanceof Object[]){
+			Object[] a1 = (Object[])v1, a2 = (Object[])v2;
+			if (a1.length != a2.length)
+				return false;
+			for(int i = 0; i < a1.length; i++){
+				if (!sameValue(a1[i], a2[i]))
+					return false;
+			}
+			return true;
+		}else if (v1 instanceof UploadFile && v2 instanceof UploadFile)
+			return String.valueOf(((UploadFile)v1).getLocation()).equals(((UploadFile)v2).getLocation());
+		else if (v1 instanceof Date && v2 instanceof String)
+			return ISO8601Format.format((Date)v1).equals(v2);
+		else
+			return v1.equals(v2) || v1.toString().equals(v2.toString());
+	}
+
 	/**
 	 * Gets the phase manager of this job.
 	 *
@@ -1186,6 +1308,10 @@ public class UWSJob extends SerializableUWSObject {
 				}
 			}
 
+			// Share the new parameters with the other nodes:
+			if (myJobList != null)
+				myJobList.saveParameters(this);
+
 			// Apply the retrieved phase:
 			applyPhaseParam(user);
 
@@ -1321,6 +1447,10 @@ public class UWSJob extends SerializableUWSObject {
 			}
 		}
 
+		// Share the new parameters with the other nodes:
+		if (myJobList != null)
+			myJobList.saveParameters(this);
+
 		// Apply the retrieved phase:
 		applyPhaseParam(user);
 
@@ -16,7 +16,7 @@ package uws.job.manager;
  * You should have received a copy of the GNU Lesser General Public License
  * along with UWSLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2012-2017 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
@@ -28,6 +28,7 @@ import java.util.Vector;
 import uws.UWSException;
 import uws.UWSToolBox;
 import uws.job.ExecutionPhase;
+import uws.job.JobList;
 import uws.job.UWSJob;
 import uws.service.log.UWSLog;
 import uws.service.log.UWSLog.LogLevel;
@@ -56,7 +57,7 @@ import uws.service.log.UWSLog.LogLevel;
  * </i></p>
  *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 4.3 (09/2017)
+ * @version 4.5 (10/2026)
  */
 public abstract class AbstractQueuedExecutionManager implements ExecutionManager {
 
@@ -171,14 +172,27 @@ public abstract class AbstractQueuedExecutionManager implements ExecutionManager
 	 * Starts immediately the given job. This job is removed from the list of
 	 * queued jobs and added into the list of running jobs.
 	 *
+	 * <p><i>Note:
+	 * 	If the job list of the given job is shared with other nodes (see
+	 * 	{@link JobList#getJobStore()}), the job is first claimed for this node.
+	 * 	If it has already been claimed by another node, it is just removed from
+	 * 	the queue.
+	 * </i></p>
+	 *
 	 * @param jobToStartNow		The job to start.
 	 *
 	 * @throws UWSException		If there is an error while starting the job.
 	 *
 	 * @see UWSJob#start(boolean)
+	 * @see JobList#claimJob(UWSJob)
 	 */
 	protected void startJob(final UWSJob jobToStartNow) throws UWSException{
 		if (jobToStartNow != null){
+			if (jobToStartNow.getJobList() != null && !jobToStartNow.getJobList().claimJob(jobToStartNow)){
+				queuedJobs.remove(jobToStartNow);
+				logger.logJob(LogLevel.INFO, jobToStartNow, "START", "The job \"" + jobToStartNow.getJobId() + "\" is executed by another node.", null);
+				return;
+			}
 			jobToStartNow.start(false);
 			queuedJobs.remove(jobToStartNow);
 			runningJobs.put(jobToStartNow.getJobId(), jobToStartNow);
@@ -227,8 +241,9 @@ public abstract class AbstractQueuedExecutionManager implements ExecutionManager
 
 		}// Otherwise, change the phase to QUEUED, put it into the queue and then refresh the queue:
 		else{
+			ExecutionPhase formerPhase = jobToExecute.getPhase();
 			try{
-				if (jobToExecute.getPhase() != ExecutionPhase.QUEUED)
+				if (formerPhase != ExecutionPhase.QUEUED)
 					jobToExecute.setPhase(ExecutionPhase.QUEUED);
 
 				if (!queuedJobs.contains(jobToExecute)){
@@ -238,10 +253,13 @@ public abstract class AbstractQueuedExecutionManager implements ExecutionManager
 			}catch(UWSException ue){
 				// log the error:
 				logger.logJob(LogLevel.ERROR, jobToExecute, "QUEUE", "Can not set the job \"" + jobToExecute.getJobId() + "\" in the QUEUED phase!", ue);
-				// set the phase HELD (meaning it is impossible to set the job into a QUEUED phase):
-				try{
-					jobToExecute.setPhase(ExecutionPhase.HELD);
-				}catch(UWSException e){}
+				// set the phase HELD (meaning it is impossible to set the job into a QUEUED phase)...
+				// ...unless another node has changed the phase in the meantime:
+				if (jobToExecute.getPhase() == formerPhase){
+					try{
+						jobToExecute.setPhase(ExecutionPhase.HELD);
+					}catch(UWSException e){}
+				}
 			}
 		}
 
@@ -16,21 +16,30 @@ package uws.job.manager;
  * You should have received a copy of the GNU Lesser General Public License
  * along with UWSLibrary.  If not, see <http://www.gnu.org/licenses/>.
  * 
- * Copyright 2012,2014 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012,2014,2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
+import java.util.Timer;
+import java.util.TimerTask;
+
 import uws.UWSException;
+import uws.job.JobList;
 import uws.job.UWSJob;
 import uws.service.log.UWSLog;
+import uws.service.log.UWSLog.LogLevel;
+import uws.service.store.JobStore;
 
 /**
  * <p>Implementation of the interface {@link ExecutionManager} which lets managing an execution queue in function of a maximum number of running jobs:
  * if there are more running jobs than a given number, the jobs to execute are put in the queue until a running job stops.
  * The order of queued jobs are preserved: it is implemented by a FIFO queue.</p>
  * 
+ * <p>When the job list is shared with other nodes (see {@link JobList#setJobStore(JobStore)}), this manager can also execute,
+ * when it has free slots, the jobs queued by other nodes: see {@link #claimQueuedJobs(JobList)} and {@link #startClaiming(JobList, long)}.</p>
+ * 
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 4.1 (08/2014)
+ * @version 4.5 (10/2026)
  */
 public class QueuedExecutionManager extends AbstractQueuedExecutionManager {
 
@@ -40,6 +49,10 @@ public class QueuedExecutionManager extends AbstractQueuedExecutionManager {
 	/** The value of {@link #nbMaxRunningJobs} which indicates that there is no queue. */
 	public final static int NO_QUEUE = Integer.MAX_VALUE;
 
+	/** Timer claiming periodically the jobs queued by other nodes. <i>NULL if not started.</i>
+	 * @since 4.5 */
+	protected Timer claimTimer = null;
+
 	/* ************ */
 	/* CONSTRUCTORS */
 	/* ************ */
@@ -107,4 +120,74 @@ public class QueuedExecutionManager extends AbstractQueuedExecutionManager {
 		else
 			return runningJobs.size() < nbMaxRunningJobs;
 	}
+
+	/* ************************ */
+	/* SHARED QUEUE (JOB STORE) */
+	/* ************************ */
+
+	/**
+	 * <p>Claims and starts as many jobs queued in the job store of the given job list (i.e. by any node) as this manager
+	 * has free slots, the oldest first.</p>
+	 * 
+	 * <p><i><u>Note:</u> Nothing is done while this manager has its own queue (its own queued jobs come first),
+	 * or if the given job list has no job store.</i></p>
+	 * 
+	 * @param jobList	The shared job list.
+	 * 
+	 * @return	The number of started jobs.
+	 * 
+	 * @see JobList#claimNextQueuedJob()
+	 * 
+	 * @since 4.5
+	 */
+	public synchronized int claimQueuedJobs(final JobList jobList){
+		if (jobList == null || jobList.getJobStore() == null)
+			return 0;
+
+		int nbStarted = 0;
+		UWSJob job;
+		while(!hasQueue() && runningJobs.size() < nbMaxRunningJobs && (job = jobList.claimNextQueuedJob()) != null){
+			try{
+				startJob(job);
+				nbStarted++;
+			}catch(UWSException ue){
+				logger.logJob(LogLevel.ERROR, job, "START", "Can not start the job \"" + job.getJobId() + "\" claimed in the job store!", ue);
+			}
+		}
+		return nbStarted;
+	}
+
+	/**
+	 * Calls periodically {@link #claimQueuedJobs(JobList)} with the given job list.
+	 * 
+	 * @param jobList	The shared job list.
+	 * @param period	Time (in milliseconds) between two claims. <i>If negative or null, nothing is done.</i>
+	 * 
+	 * @since 4.5
+	 */
+	public synchronized void startClaiming(final JobList jobList, final long period){
+		stopClaiming();
+		if (jobList == null || period <= 0)
+			return;
+
+		claimTimer = new Timer("UWS shared queue claimer", true);
+		claimTimer.schedule(new TimerTask(){
+			@Override
+			public void run(){
+				claimQueuedJobs(jobList);
+			}
+		}, period, period);
+	}
+
+	/**
+	 * Stops the periodic claims started by {@link #startClaiming(JobList, long)}.
+	 * 
+	 * @since 4.5
+	 */
+	public synchronized void stopClaiming(){
+		if (claimTimer != null){
+			claimTimer.cancel();
+			claimTimer = null;
+		}
+	}
 }
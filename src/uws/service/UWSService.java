@@ -16,7 +16,7 @@ package uws.service;
  * You should have received a copy of the GNU Lesser General Public License
  * along with UWSLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2012-2017 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
@@ -51,6 +51,7 @@ import uws.service.actions.ListJobs;
 import uws.service.actions.SetJobParam;
 import uws.service.actions.SetUWSParameter;
 import uws.service.actions.ShowHomePage;
+import uws.service.actions.StreamJobEvents;
 import uws.service.actions.UWSAction;
 import uws.service.backup.UWSBackupManager;
 import uws.service.error.DefaultUWSErrorWriter;
@@ -117,6 +118,7 @@ import uws.service.wait.BlockingPolicy;
  * <ul>
  * 	<li>{@link AddJob}</li>
  * 	<li>{@link DestroyJob}</li>
+ * 	<li>{@link StreamJobEvents}</li>
  * 	<li>{@link JobSummary}</li>
  * 	<li>{@link GetJobParam}</li>
  * 	<li>{@link SetJobParam}</li>
@@ -139,7 +141,7 @@ import uws.service.wait.BlockingPolicy;
  * </p>
  *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 4.4 (08/2018)
+ * @version 4.5 (10/2026)
  */
 public class UWSService implements UWS {
 
@@ -291,6 +293,7 @@ public class UWSService implements UWS {
 		uwsActions.add(new AddJob(this));
 		uwsActions.add(new SetUWSParameter(this));
 		uwsActions.add(new DestroyJob(this));
+		uwsActions.add(new StreamJobEvents(this));
 		uwsActions.add(new JobSummary(this));
 		uwsActions.add(new GetJobParam(this));
 		uwsActions.add(new SetJobParam(this));
@@ -403,6 +406,12 @@ public class UWSService implements UWS {
 			jl.getDestructionManager().stop();
 		}
 
+		// Close all streams of job events:
+		for(UWSAction action : uwsActions){
+			if (action instanceof StreamJobEvents)
+				((StreamJobEvents)action).stop();
+		}
+
 		// Just in case that previous clean "stop"s did not work, try again an interruption for all running threads:
 		/* note: timers are not part of this ThreadGroup and so, they won't be affected by this function call. */
 		JobThread.tg.interrupt();
@@ -1185,7 +1194,9 @@ public class UWSService implements UWS {
 			if (action == null)
 				throw new UWSException(UWSException.NOT_IMPLEMENTED, "Unknown UWS action!");
 
-			response.flushBuffer();
+			// (an asynchronous response is written by another thread):
+			if (!request.isAsyncStarted())
+				response.flushBuffer();
 
 			// Log the successful execution of the action:
 			logger.logHttp(LogLevel.INFO, response, reqID, user, "UWS action \"" + ((action != null) ? action.getName() : null) + "\" successfully executed.", null);
@@ -0,0 +1,744 @@
+package uws.service.actions;
+
+/*
+ * This file is part of UWSLibrary.
+ *
+ * UWSLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UWSLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with UWSLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.json.JSONObject;
+
+import uws.UWSException;
+import uws.UWSExceptionFactory;
+import uws.job.ExecutionPhase;
+import uws.job.JobList;
+import uws.job.JobObserver;
+import uws.job.JobPhaseBroadcaster;
+import uws.job.UWSJob;
+import uws.job.user.JobOwner;
+import uws.service.UWSService;
+import uws.service.UWSUrl;
+import uws.service.log.UWSLog.LogLevel;
+
+/**
+ * The "Stream Job Events" action of a UWS.
+ *
+ * <p><i>Note:
+ * 	The corresponding name is {@link UWSAction#STREAM_JOB_EVENTS}.
+ * </i></p>
+ *
+ * <p>
+ * 	This action keeps the HTTP connection open and pushes, as
+ * 	<a href="https://html.spec.whatwg.org/multipage/server-sent-events.html">Server-Sent
+ * 	Events</a>, all phase transitions of the jobs asked by the user. So, a
+ * 	client does not have to poll the phase of its jobs anymore.
+ * </p>
+ *
+ * <p>
+ * 	The URL of this action is <code>{jobList}/events</code> (HTTP-GET). The
+ * 	jobs to follow can be given with the parameter <code>job</code>
+ * 	(repeated, or with comma separated job IDs). In such case, the current
+ * 	phase of each of these jobs is sent immediately, and the stream ends as
+ * 	soon as all of them are finished. Without this parameter, all jobs of
+ * 	the current user (or all jobs if there is no user) are followed, until
+ * 	the client closes the connection.
+ * </p>
+ *
+ * <p>Each transition is sent as follows:</p>
+ * <pre>event: phase
+ * data: {"jobId":"1234","phase":"EXECUTING","previousPhase":"QUEUED"}</pre>
+ *
+ * <p>
+ * 	Transitions are caught by the observer of all jobs of the list (see
+ * 	{@link JobList#getPhaseBroadcaster()}): the thread changing the phase just
+ * 	adds the event to the queue of each interested stream. Each stream is
+ * 	then written by its own task (see {@link #getWriters()}): a subscriber
+ * 	which does not read its events can block only its own writing, never the
+ * 	other subscribers. A single scheduler (see {@link #getDispatcher()}) sends
+ * 	a comment every {@link #getHeartbeatPeriod()} ms to keep idle connections
+ * 	open.
+ * </p>
+ *
+ * <p>
+ * 	A subscriber which does not read its events fast enough is disconnected:
+ * 	either when more than {@link #getMaxPendingEvents()} events are not yet
+ * 	written, or when a writing is blocked for more than
+ * 	{@link #getWriteTimeout()} ms.
+ * </p>
+ *
+ * <p><b>Important:</b>
+ * 	This action needs the asynchronous processing of the Servlet API: the
+ * 	servlet (and all filters in front of it) must be declared with
+ * 	<code>&lt;async-supported&gt;true&lt;/async-supported&gt;</code>.
+ * 	Otherwise, this action fails with an HTTP-501 error.
+ * </p>
+ *
+ * <p><i>Note:
+ * 	Since this action is tried before {@link JobSummary}, a job whose ID is
+ * 	<code>events</code> can not be fetched anymore. Such ID is never
+ * 	generated by this library.
+ * </i></p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 4.5 (10/2026)
+ * @since 4.5
+ */
+public class StreamJobEvents extends UWSAction {
+	private static final long serialVersionUID = 1L;
+
+	/** Last item of the URL of this action, just after the job list name. */
+	public final static String EVENTS_RESOURCE = "events";
+
+	/** Name of the parameter listing the jobs to follow. */
+	public final static String JOB_PARAMETER = "job";
+
+	/** Default period (in milliseconds) between two heartbeats: 15s. */
+	public final static long DEFAULT_HEARTBEAT_PERIOD = 15000;
+
+	/** Default maximum number of events waiting to be written in a stream. */
+	public final static int DEFAULT_MAX_PENDING_EVENTS = 1000;
+
+	/** Default maximum time (in milliseconds) a writing may be blocked: 30s. */
+	public final static long DEFAULT_WRITE_TIMEOUT = 30000;
+
+	/** Period (in milliseconds) between two heartbeats. */
+	protected long heartbeatPeriod = DEFAULT_HEARTBEAT_PERIOD;
+
+	/** Maximum number of events waiting to be written in a stream. */
+	protected int maxPendingEvents = DEFAULT_MAX_PENDING_EVENTS;
+
+	/** Maximum time (in milliseconds) a writing may be blocked. */
+	protected long writeTimeout = DEFAULT_WRITE_TIMEOUT;
+
+	/** All open streams. */
+	protected final transient Set<EventStream> streams = Collections.newSetFromMap(new ConcurrentHashMap<EventStream,Boolean>());
+
+	/** Thread sending the heartbeats and checking the write timeouts.
+	 * <i>Created at the first subscription.</i> */
+	private transient ScheduledExecutorService dispatcher = null;
+
+	/** Threads writing the streams (one task per stream at most).
+	 * <i>Created at the first subscription.</i> */
+	private transient ExecutorService writers = null;
+
+	public StreamJobEvents(UWSService u){
+		super(u);
+	}
+
+	/**
+	 * @see UWSAction#STREAM_JOB_EVENTS
+	 * @see uws.service.actions.UWSAction#getName()
+	 */
+	@Override
+	public String getName(){
+		return STREAM_JOB_EVENTS;
+	}
+
+	@Override
+	public String getDescription(){
+		return "Pushes the phase transitions of the specified jobs, or of all jobs of the current user, as Server-Sent Events. (URL: {baseUWS_URL}/{jobListName}/" + EVENTS_RESOURCE + ", Method: HTTP-GET, Optional parameter: " + JOB_PARAMETER + ")";
+	}
+
+	/**
+	 * Get the period between two heartbeats.
+	 *
+	 * @return	Heartbeat period (in milliseconds).
+	 */
+	public final long getHeartbeatPeriod(){
+		return heartbeatPeriod;
+	}
+
+	/**
+	 * Set the period between two heartbeats.
+	 *
+	 * <p><i>Note:
+	 * 	It is taken into account only if set before the first subscription.
+	 * </i></p>
+	 *
+	 * @param period	Heartbeat period (in milliseconds).
+	 *              	<i>If negative or null, {@link #DEFAULT_HEARTBEAT_PERIOD}
+	 *              	is set.</i>
+	 */
+	public final void setHeartbeatPeriod(final long period){
+		heartbeatPeriod = (period <= 0) ? DEFAULT_HEARTBEAT_PERIOD : period;
+	}
+
+	/**
+	 * Get the maximum number of events waiting to be written in a stream.
+	 *
+	 * @return	Maximum number of pending events per stream.
+	 */
+	public final int getMaxPendingEvents(){
+		return maxPendingEvents;
+	}
+
+	/**
+	 * Set the maximum number of events waiting to be written in a stream.
+	 * Beyond, the subscriber is disconnected.
+	 *
+	 * @param max	Maximum number of pending events per stream.
+	 *           	<i>If negative or null, {@link #DEFAULT_MAX_PENDING_EVENTS}
+	 *           	is set.</i>
+	 */
+	public final void setMaxPendingEvents(final int max){
+		maxPendingEvents = (max <= 0) ? DEFAULT_MAX_PENDING_EVENTS : max;
+	}
+
+	/**
+	 * Get the maximum time a writing may be blocked.
+	 *
+	 * @return	Write timeout (in milliseconds).
+	 */
+	public final long getWriteTimeout(){
+		return writeTimeout;
+	}
+
+	/**
+	 * Set the maximum time a writing may be blocked. Beyond, the subscriber is
+	 * disconnected.
+	 *
+	 * <p><i>Note:
+	 * 	It is taken into account only if set before the first subscription.
+	 * </i></p>
+	 *
+	 * @param timeout	Write timeout (in milliseconds).
+	 *               	<i>If negative or null, {@link #DEFAULT_WRITE_TIMEOUT}
+	 *               	is set.</i>
+	 */
+	public final void setWriteTimeout(final long timeout){
+		writeTimeout = (timeout <= 0) ? DEFAULT_WRITE_TIMEOUT : timeout;
+	}
+
+	/**
+	 * Get the number of open streams.
+	 *
+	 * @return	Number of subscribers.
+	 */
+	public final int getNbStreams(){
+		return streams.size();
+	}
+
+	/**
+	 * Checks whether:
+	 * <ul>
+	 * 	<li>a job list name is specified in the given UWS URL
+	 * 		<i>(<u>note:</u> the existence of the jobs list is not checked)</i>,
+	 * 	</li>
+	 * 	<li>the UWS URL ends with {@link #EVENTS_RESOURCE} instead of a job
+	 * 		ID,</li>
+	 * 	<li>there is no job attribute,</li>
+	 * 	<li>the HTTP method is HTTP-GET.</li>
+	 * </ul>
+	 *
+	 * @see uws.service.actions.UWSAction#match(UWSUrl, JobOwner, HttpServletRequest)
+	 */
+	@Override
+	public boolean match(UWSUrl urlInterpreter, JobOwner user, HttpServletRequest request) throws UWSException{
+		return (urlInterpreter.hasJobList() && urlInterpreter.hasJob() && EVENTS_RESOURCE.equals(urlInterpreter.getJobId()) && !urlInterpreter.hasAttribute() && request.getMethod().equalsIgnoreCase("get"));
+	}
+
+	/**
+	 * Checks the jobs to follow, starts the asynchronous processing of the
+	 * request and registers a new {@link EventStream}.
+	 *
+	 * <p><i>Note:
+	 * 	This function returns immediately ; the response is written later by
+	 * 	the writers of this action (see {@link #getWriters()}).
+	 * </i></p>
+	 *
+	 * @see uws.service.actions.UWSAction#apply(UWSUrl, JobOwner, HttpServletRequest, HttpServletResponse)
+	 */
+	@Override
+	public boolean apply(UWSUrl urlInterpreter, JobOwner user, HttpServletRequest request, HttpServletResponse response) throws UWSException, IOException{
+		// Get the job list:
+		JobList jobsList = getJobsList(urlInterpreter);
+		if (user != null && !user.hasReadPermission(jobsList))
+			throw new UWSException(UWSException.PERMISSION_DENIED, UWSExceptionFactory.readPermissionDenied(user, true, jobsList.getName()));
+
+		// Get the jobs to follow, if any:
+		ArrayList<UWSJob> jobs = null;
+		Enumeration<String> parameters = request.getParameterNames();
+		while(parameters.hasMoreElements()){
+			String param = parameters.nextElement();
+			if (param.equalsIgnoreCase(JOB_PARAMETER)){
+				for(String value : request.getParameterValues(param)){
+					for(String jobId : value.split(",")){
+						jobId = jobId.trim();
+						if (jobId.length() == 0)
+							continue;
+						UWSJob job = jobsList.getJob(jobId, user);
+						if (job == null)
+							throw new UWSException(UWSException.NOT_FOUND, "Incorrect job ID! The job \"" + jobId + "\" does not exist in the jobs list \"" + jobsList.getName() + "\".");
+						if (jobs == null)
+							jobs = new ArrayList<UWSJob>();
+						if (!jobs.contains(job))
+							jobs.add(job);
+					}
+				}
+			}
+		}
+
+		// Start the asynchronous processing:
+		if (!request.isAsyncSupported())
+			throw new UWSException(UWSException.NOT_IMPLEMENTED, "Job events can not be streamed: the asynchronous processing is not enabled for this servlet (see <async-supported> in the servlet declaration)!");
+		response.setContentType("text/event-stream");
+		response.setHeader("Cache-Control", "no-cache");
+		response.setHeader("X-Accel-Buffering", "no");
+		AsyncContext context = request.startAsync(request, response);
+		context.setTimeout(0);
+
+		// Register the stream:
+		EventStream stream = new EventStream(jobsList, user, jobs, response.getOutputStream(), context);
+		context.addListener(stream);
+		stream.start();
+
+		return true;
+	}
+
+	/**
+	 * Get the thread sending the heartbeats and checking the write timeouts of
+	 * all streams, and create it if needed.
+	 *
+	 * <p><i>Note:
+	 * 	This thread never writes into a stream ; it just queues events and
+	 * 	closes the blocked streams.
+	 * </i></p>
+	 *
+	 * @return	The event dispatcher.
+	 */
+	protected synchronized ScheduledExecutorService getDispatcher(){
+		if (dispatcher == null){
+			dispatcher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory(){
+				@Override
+				public Thread newThread(final Runnable r){
+					Thread t = new Thread(r, "UWS-JobEvents");
+					t.setDaemon(true);
+					return t;
+				}
+			});
+			dispatcher.scheduleAtFixedRate(new Runnable(){
+				@Override
+				public void run(){
+					for(EventStream stream : streams)
+						stream.heartbeat();
+				}
+			}, heartbeatPeriod, heartbeatPeriod, TimeUnit.MILLISECONDS);
+			final long checkPeriod = Math.max(1, writeTimeout / 2);
+			dispatcher.scheduleAtFixedRate(new Runnable(){
+				@Override
+				public void run(){
+					for(EventStream stream : streams)
+						stream.checkWriteTimeout();
+				}
+			}, checkPeriod, checkPeriod, TimeUnit.MILLISECONDS);
+		}
+		return dispatcher;
+	}
+
+	/**
+	 * Get the threads writing the streams, and create them if needed.
+	 *
+	 * <p>
+	 * 	A stream has at most one writing task at a time. Threads are created on
+	 * 	demand and released after one minute of inactivity ; so, a blocked
+	 * 	stream holds only one thread, until the end of its write timeout.
+	 * </p>
+	 *
+	 * @return	The stream writers.
+	 */
+	protected synchronized ExecutorService getWriters(){
+		if (writers == null){
+			// the scheduler must run as soon as something is written:
+			getDispatcher();
+			writers = Executors.newCachedThreadPool(new ThreadFactory(){
+				private final AtomicInteger count = new AtomicInteger(0);
+
+				@Override
+				public Thread newThread(final Runnable r){
+					Thread t = new Thread(r, "UWS-JobEvents-Writer-" + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				}
+			});
+		}
+		return writers;
+	}
+
+	/**
+	 * Close all open streams and stop the threads writing them.
+	 *
+	 * <p><i>Note:
+	 * 	This function is called by {@link UWSService#destroy()}. A new
+	 * 	subscription creates new threads.
+	 * </i></p>
+	 */
+	public synchronized void stop(){
+		for(EventStream stream : streams)
+			stream.close();
+		if (dispatcher != null){
+			dispatcher.shutdownNow();
+			dispatcher = null;
+		}
+		if (writers != null){
+			writers.shutdownNow();
+			writers = null;
+		}
+	}
+
+	/**
+	 * Format the given phase transition as a Server-Sent Event.
+	 *
+	 * @param job			The job whose phase has changed.
+	 * @param oldPhase		Its previous phase. <i>NULL if unknown.</i>
+	 * @param newPhase		Its new phase.
+	 *
+	 * @return	The event, ending with an empty line.
+	 */
+	protected String formatEvent(final UWSJob job, final ExecutionPhase oldPhase, final ExecutionPhase newPhase){
+		StringBuffer buf = new StringBuffer("event: phase\ndata: {\"jobId\":");
+		buf.append(JSONObject.quote(job.getJobId())).append(",\"phase\":\"").append(newPhase).append('"');
+		if (oldPhase != null)
+			buf.append(",\"previousPhase\":\"").append(oldPhase).append('"');
+		return buf.append("}\n\n").toString();
+	}
+
+	/**
+	 * Stream of the phase transitions followed by one subscriber.
+	 *
+	 * <p>
+	 * 	Events are queued by the threads changing the job phases and written
+	 * 	by a task of its own (see {@link #getWriters()}).
+	 * </p>
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 4.5 (10/2026)
+	 * @since 4.5
+	 */
+	protected class EventStream implements JobObserver, AsyncListener {
+		private static final long serialVersionUID = 1L;
+
+		/** Job list whose broadcaster notifies this stream. */
+		protected final JobList jobsList;
+
+		/** Subscriber. <i>NULL if no user is logged in.</i> */
+		protected final JobOwner user;
+
+		/** Explicitly followed jobs. <i>NULL to follow all jobs of
+		 * {@link #user}.</i> */
+		protected final Collection<UWSJob> jobs;
+
+		/** IDs of the explicitly followed jobs. <i>NULL to follow all jobs
+		 * of {@link #user}.</i> */
+		protected final Set<String> jobIds;
+
+		/** IDs of the explicitly followed jobs not yet finished. */
+		protected final Set<String> unfinishedJobs = Collections.newSetFromMap(new ConcurrentHashMap<String,Boolean>());
+
+		/** Stream toward the subscriber. */
+		protected final transient OutputStream output;
+
+		/** Asynchronous context of the HTTP request. <i>May be NULL.</i> */
+		protected final transient AsyncContext context;
+
+		/** Events not yet written. */
+		private final ConcurrentLinkedQueue<String> pending = new ConcurrentLinkedQueue<String>();
+		/** Number of items of {@link #pending}. */
+		private final AtomicInteger nbPending = new AtomicInteger(0);
+		/** Indicate whether a writing is already planned. */
+		private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+		/** Indicate whether this stream is closed. */
+		private final AtomicBoolean closed = new AtomicBoolean(false);
+		/** Indicate whether this stream must be closed once all pending events
+		 * are written. */
+		private volatile boolean finishing = false;
+		/** Start time (as given by {@link System#nanoTime()}) of the current
+		 * writing. <i>0 if nothing is being written.</i> */
+		private volatile long writeStart = 0;
+
+		/**
+		 * Build a stream.
+		 *
+		 * @param jobsList	The followed job list.
+		 * @param user		The subscriber. <i>NULL if no user is logged in.</i>
+		 * @param jobs		The followed jobs. <i>NULL to follow all jobs of the
+		 *            		given user (or all jobs if no user).</i>
+		 * @param output	Stream toward the subscriber.
+		 * @param context	Asynchronous context of the HTTP request, completed
+		 *               	when this stream is closed. <i>May be NULL.</i>
+		 */
+		protected EventStream(final JobList jobsList, final JobOwner user, final Collection<UWSJob> jobs, final OutputStream output, final AsyncContext context){
+			this.jobsList = jobsList;
+			this.user = user;
+			this.jobs = jobs;
+			if (jobs == null)
+				jobIds = null;
+			else{
+				jobIds = new HashSet<String>(jobs.size());
+				for(UWSJob job : jobs)
+					jobIds.add(job.getJobId());
+			}
+			this.output = output;
+			this.context = context;
+		}
+
+		/**
+		 * Subscribe to the phase transitions and queue the current phase of
+		 * the explicitly followed jobs.
+		 *
+		 * <p><i>Note:
+		 * 	The subscription is done first, so that no transition is missed.
+		 * 	The same phase may then be sent twice.
+		 * </i></p>
+		 */
+		protected void start(){
+			streams.add(this);
+			if (jobs != null){
+				for(UWSJob job : jobs){
+					if (!job.getPhaseManager().isFinished())
+						unfinishedJobs.add(job.getJobId());
+				}
+			}
+			jobsList.getPhaseBroadcaster().addListener(this);
+
+			enqueue("retry: 5000\n\n");
+			if (jobs != null){
+				for(UWSJob job : jobs)
+					enqueue(formatEvent(job, null, job.getPhase()));
+				finishing = unfinishedJobs.isEmpty();
+			}
+			scheduleFlush();
+		}
+
+		/**
+		 * Tell whether the given job is followed by this stream.
+		 *
+		 * @param job	A job of the followed list.
+		 *
+		 * @return	<i>true</i> if its transitions must be sent,
+		 *        	<i>false</i> otherwise.
+		 */
+		protected boolean follows(final UWSJob job){
+			if (jobIds != null)
+				return jobIds.contains(job.getJobId());
+			else
+				return user == null || user.equals(job.getOwner());
+		}
+
+		@Override
+		public void update(final UWSJob job, final ExecutionPhase oldPhase, final ExecutionPhase newPhase) throws UWSException{
+			if (closed.get() || !follows(job))
+				return;
+			enqueue(formatEvent(job, oldPhase, newPhase));
+			if (jobs != null && job.getPhaseManager().isFinished() && unfinishedJobs.remove(job.getJobId()) && unfinishedJobs.isEmpty())
+				finishing = true;
+			scheduleFlush();
+		}
+
+		/**
+		 * Queue a heartbeat (i.e. a comment line) if nothing is waiting.
+		 */
+		protected void heartbeat(){
+			if (nbPending.get() == 0){
+				enqueue(":\n\n");
+				scheduleFlush();
+			}
+		}
+
+		/**
+		 * Queue the given event. The stream is closed if too many events are
+		 * already waiting.
+		 *
+		 * @param event	The event to write.
+		 */
+		protected void enqueue(final String event){
+			if (nbPending.incrementAndGet() > maxPendingEvents){
+				if (uws != null)
+					getLogger().logUWS(LogLevel.WARNING, jobsList, "EVENTS", "Too many job events not yet sent to a subscriber (" + maxPendingEvents + ")! It is disconnected.", null);
+				close();
+			}else
+				pending.add(event);
+		}
+
+		/**
+		 * Close this stream if a writing is blocked for more than the write
+		 * timeout (e.g. because the client does not read anymore).
+		 *
+		 * <p><i>Note:
+		 * 	Completing the HTTP request closes the connection ; the blocked
+		 * 	writing then fails and its thread is released.
+		 * </i></p>
+		 */
+		protected void checkWriteTimeout(){
+			final long start = writeStart;
+			if (start != 0 && System.nanoTime() - start > writeTimeout * 1000000L){
+				if (uws != null)
+					getLogger().logUWS(LogLevel.WARNING, jobsList, "EVENTS", "Job events blocked for more than " + writeTimeout + "ms by a subscriber! It is disconnected.", null);
+				close();
+			}
+		}
+
+		/**
+		 * Ask a writer to write the pending events, unless already asked.
+		 */
+		protected void scheduleFlush(){
+			if (!closed.get() && flushScheduled.compareAndSet(false, true)){
+				try{
+					getWriters().execute(new Runnable(){
+						@Override
+						public void run(){
+							flush();
+						}
+					});
+				}catch(RejectedExecutionException ree){
+					close();
+				}
+			}
+		}
+
+		/**
+		 * Write all pending events.
+		 *
+		 * <p><i>Note:
+		 * 	This function is run by a writer (see {@link #getWriters()}).
+		 * </i></p>
+		 */
+		protected void flush(){
+			try{
+				if (closed.get())
+					return;
+				StringBuffer buf = new StringBuffer();
+				String event;
+				while((event = pending.poll()) != null){
+					nbPending.decrementAndGet();
+					buf.append(event);
+				}
+				if (buf.length() > 0){
+					writeStart = System.nanoTime();
+					try{
+						output.write(buf.toString().getBytes("UTF-8"));
+						output.flush();
+					}finally{
+						writeStart = 0;
+					}
+				}
+				if (finishing && nbPending.get() == 0)
+					close();
+			}catch(IOException ioe){
+				// the client has gone:
+				close();
+			}catch(IllegalStateException ise){
+				// the request has already been completed:
+				close();
+			}finally{
+				/* Note: reset only now, so that two writers can never write
+				 *       this stream at the same time. */
+				flushScheduled.set(false);
+			}
+			// events queued while writing:
+			if (nbPending.get() > 0)
+				scheduleFlush();
+		}
+
+		/**
+		 * Tell whether this stream is closed.
+		 *
+		 * @return	<i>true</i> if closed,
+		 *        	<i>false</i> otherwise.
+		 */
+		public final boolean isClosed(){
+			return closed.get();
+		}
+
+		/**
+		 * Unsubscribe and complete the HTTP request.
+		 *
+		 * <p><i>Note:
+		 * 	Calling this function several times has no effect.
+		 * </i></p>
+		 */
+		public void close(){
+			if (unsubscribe() && context != null){
+				try{
+					context.complete();
+				}catch(IllegalStateException ise){
+					;
+				}
+			}
+		}
+
+		/**
+		 * Stop receiving and sending events.
+		 *
+		 * @return	<i>true</i> if this stream was not yet closed,
+		 *        	<i>false</i> otherwise.
+		 */
+		protected boolean unsubscribe(){
+			if (!closed.compareAndSet(false, true))
+				return false;
+			JobPhaseBroadcaster broadcaster = jobsList.getPhaseBroadcaster();
+			broadcaster.removeListener(this);
+			streams.remove(this);
+			pending.clear();
+			return true;
+		}
+
+		@Override
+		public void onComplete(final AsyncEvent event) throws IOException{
+			unsubscribe();
+		}
+
+		@Override
+		public void onTimeout(final AsyncEvent event) throws IOException{
+			close();
+		}
+
+		@Override
+		public void onError(final AsyncEvent event) throws IOException{
+			close();
+		}
+
+		@Override
+		public void onStartAsync(final AsyncEvent event) throws IOException{
+			;
+		}
+	}
+
+}
@@ -16,7 +16,7 @@ package uws.service.actions;
  * You should have received a copy of the GNU Lesser General Public License
  * along with UWSLibrary.  If not, see <http://www.gnu.org/licenses/>.
  * 
- * Copyright 2012,2014 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
@@ -42,7 +42,7 @@ import uws.service.log.UWSLog;
  * By default the name of a UWS action is the full java name of the class !</b></p>
  * 
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 4.1 (11/2014)
+ * @version 4.5 (10/2026)
  * 
  * @see UWSService
  */
@@ -60,6 +60,9 @@ public abstract class UWSAction implements Serializable {
 	public final static String DESTROY_JOB = "Destroy Job";
 	/** Name of the UWS action {@link JobSummary}. */
 	public final static String JOB_SUMMARY = "Get Job";
+	/** Name of the UWS action {@link StreamJobEvents}.
+	 * @since 4.5 */
+	public final static String STREAM_JOB_EVENTS = "Stream Job Events";
 	/** Name of the UWS action {@link GetJobParam}. */
 	public final static String GET_JOB_PARAM = "Get Job Parameter";
 	/** Name of the UWS action {@link SetJobParam}. */
@@ -0,0 +1,375 @@
+package uws.service.file;
+
+/*
+ * This file is part of UWSLibrary.
+ *
+ * UWSLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UWSLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with UWSLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import uws.service.file.io.AtomicFileOutputStream;
+
+/**
+ * {@link ResultStore} keeping all result contents in a local directory.
+ *
+ * <p>The given root directory is organised as follows:</p>
+ * <ul>
+ * 	<li><code>tmp/</code>: results being written (see
+ * 	    {@link AtomicFileOutputStream}),</li>
+ * 	<li><code>content/&lt;h&gt;/&lt;hash&gt;</code>: one file per distinct
+ * 	    content, named by its SHA-256 hash (<code>&lt;h&gt;</code> being the
+ * 	    first 2 characters of the hash),</li>
+ * 	<li><code>content/&lt;h&gt;/&lt;hash&gt;.refs/</code>: one empty file per
+ * 	    result referencing this content ; the content is deleted when this
+ * 	    directory becomes empty,</li>
+ * 	<li><code>refs/&lt;k&gt;/&lt;keyId&gt;</code>: one file per result,
+ * 	    named by the SHA-256 hash of its key and containing the hash of its
+ * 	    content.</li>
+ * </ul>
+ *
+ * <p>
+ * 	The reference count of a content is then just the number of files in its
+ * 	<code>.refs</code> directory. It survives a restart and can not be
+ * 	incremented twice by the same result.
+ * </p>
+ *
+ * <p><i>Note:
+ * 	The content is hashed while it is written. So, nothing is read again to
+ * 	detect a duplicate ; a duplicate is just not moved into
+ * 	<code>content/</code>.
+ * </i></p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 4.5 (10/2026)
+ * @since 4.5
+ */
+public class LocalResultStore implements ResultStore {
+
+	/** Algorithm used to hash result contents and keys. */
+	protected final static String HASH_ALGORITHM = "SHA-256";
+
+	/** Charset of the keys and of the reference files. */
+	protected final static Charset UTF8 = Charset.forName("UTF-8");
+
+	/** Directory containing all files of this store. */
+	protected final File rootDirectory;
+
+	/** Directory of the results being written. */
+	protected final File tmpDirectory;
+
+	/** Directory of the contents. */
+	protected final File contentDirectory;
+
+	/** Directory of the references. */
+	protected final File refDirectory;
+
+	/**
+	 * Build a result store in the given directory.
+	 *
+	 * @param root	Directory containing all files of this store.
+	 *            	<i>It is created if it does not exist.</i>
+	 *
+	 * @throws IOException	If the given directory can not be created or
+	 *                    	written.
+	 */
+	public LocalResultStore(final File root) throws IOException{
+		if (root == null)
+			throw new NullPointerException("Missing root directory! => Impossible to build a LocalResultStore.");
+		rootDirectory = root;
+		tmpDirectory = new File(root, "tmp");
+		contentDirectory = new File(root, "content");
+		refDirectory = new File(root, "refs");
+		for(File dir : new File[]{ tmpDirectory, contentDirectory, refDirectory }){
+			if (!dir.exists() && !dir.mkdirs())
+				throw new IOException("Impossible to create the directory \"" + dir.getAbsolutePath() + "\"!");
+		}
+		if (!root.canWrite())
+			throw new IOException("The directory \"" + root.getAbsolutePath() + "\" is not writable!");
+	}
+
+	/**
+	 * Get the directory containing all files of this store.
+	 *
+	 * @return	Root directory.
+	 */
+	public final File getRootDirectory(){
+		return rootDirectory;
+	}
+
+	@Override
+	public AtomicFileOutputStream getOutput(final String key, final int bufferSize, final boolean sync) throws IOException{
+		return new StoreOutputStream(key, bufferSize, sync);
+	}
+
+	@Override
+	public InputStream getInput(final String key) throws IOException{
+		File content = getContentFile(getHash(key));
+		return (content != null && content.exists()) ? new FileInputStream(content) : null;
+	}
+
+	@Override
+	public long getSize(final String key) throws IOException{
+		File content = getContentFile(getHash(key));
+		return (content != null && content.exists()) ? content.length() : -1;
+	}
+
+	@Override
+	public String getHash(final String key) throws IOException{
+		File refFile = getRefFile(key);
+		if (!refFile.exists())
+			return null;
+		String hash = new String(Files.readAllBytes(refFile.toPath()), UTF8).trim();
+		return (hash.length() == 0) ? null : hash;
+	}
+
+	@Override
+	public synchronized boolean delete(final String key) throws IOException{
+		String hash = getHash(key);
+		if (hash == null)
+			return false;
+
+		Files.deleteIfExists(getRefFile(key).toPath());
+		release(hash, getKeyId(key));
+		return true;
+	}
+
+	/**
+	 * Reference the given content by the specified result, after having
+	 * released the content it was formerly referencing.
+	 *
+	 * @param key		Key of the result.
+	 * @param hash		Hash of the content.
+	 * @param tmpFile	File containing the content. It is moved into the
+	 *               	store if the content is not already there ; it is
+	 *               	deleted otherwise.
+	 *
+	 * @throws IOException	If the content or the reference can not be
+	 *                    	written.
+	 */
+	protected synchronized void store(final String key, final String hash, final File tmpFile) throws IOException{
+		String keyId = getKeyId(key);
+
+		// Release the former content:
+		String formerHash = getHash(key);
+		if (formerHash != null && !formerHash.equals(hash))
+			release(formerHash, keyId);
+
+		// Store the content only once:
+		File content = getContentFile(hash);
+		File refsDir = new File(content.getParentFile(), hash + ".refs");
+		if (content.exists())
+			Files.deleteIfExists(tmpFile.toPath());
+		else{
+			createDir(content.getParentFile());
+			move(tmpFile, content);
+		}
+
+		// Count this reference:
+		createDir(refsDir);
+		new File(refsDir, keyId).createNewFile();
+
+		// Reference the content by the result:
+		File refFile = getRefFile(key);
+		createDir(refFile.getParentFile());
+		Files.write(refFile.toPath(), hash.getBytes(UTF8));
+	}
+
+	/**
+	 * Remove the given reference to the specified content, and delete this
+	 * content if not referenced any more.
+	 *
+	 * @param hash	Hash of the content.
+	 * @param keyId	ID of the reference to remove.
+	 *
+	 * @throws IOException	If the reference or the content can not be
+	 *                    	deleted.
+	 */
+	protected void release(final String hash, final String keyId) throws IOException{
+		File content = getContentFile(hash);
+		File refsDir = new File(content.getParentFile(), hash + ".refs");
+		Files.deleteIfExists(new File(refsDir, keyId).toPath());
+
+		String[] remaining = refsDir.list();
+		if (remaining == null || remaining.length == 0){
+			Files.deleteIfExists(content.toPath());
+			Files.deleteIfExists(refsDir.toPath());
+		}
+	}
+
+	/**
+	 * Get the file of the specified content.
+	 *
+	 * @param hash	Hash of the content. <i>May be NULL.</i>
+	 *
+	 * @return	The content file, or NULL if the given hash is NULL.
+	 */
+	protected File getContentFile(final String hash){
+		if (hash == null)
+			return null;
+		return new File(new File(contentDirectory, hash.substring(0, 2)), hash);
+	}
+
+	/**
+	 * Get the reference file of the specified result.
+	 *
+	 * @param key	Key of the result.
+	 *
+	 * @return	The reference file.
+	 */
+	protected File getRefFile(final String key){
+		String keyId = getKeyId(key);
+		return new File(new File(refDirectory, keyId.substring(0, 2)), keyId);
+	}
+
+	/**
+	 * Get the ID of the given result key (i.e. the hash of the key), usable as
+	 * file name.
+	 *
+	 * @param key	Key of the result.
+	 *
+	 * @return	ID of the key.
+	 */
+	protected String getKeyId(final String key){
+		MessageDigest digest = newDigest();
+		return toHex(digest.digest(key.getBytes(UTF8)));
+	}
+
+	/**
+	 * Create a new hash function.
+	 *
+	 * @return	A new {@link MessageDigest}.
+	 */
+	protected MessageDigest newDigest(){
+		try{
+			return MessageDigest.getInstance(HASH_ALGORITHM);
+		}catch(NoSuchAlgorithmException nsae){
+			// can not happen: SHA-256 is supported by all Java platforms.
+			throw new IllegalStateException(nsae);
+		}
+	}
+
+	/**
+	 * Create the given directory if it does not already exist.
+	 *
+	 * @param dir	The directory to create.
+	 *
+	 * @throws IOException	If the directory can not be created.
+	 */
+	protected void createDir(final File dir) throws IOException{
+		if (!dir.exists() && !dir.mkdirs() && !dir.exists())
+			throw new IOException("Impossible to create the directory \"" + dir.getAbsolutePath() + "\"!");
+	}
+
+	/**
+	 * Move the given file, atomically if possible.
+	 *
+	 * @param source	File to move.
+	 * @param target	Destination.
+	 *
+	 * @throws IOException	If the file can not be moved.
+	 */
+	protected void move(final File source, final File target) throws IOException{
+		try{
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		}catch(AtomicMoveNotSupportedException amnse){
+			Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Format the given bytes in hexadecimal.
+	 *
+	 * @param bytes	Bytes to format.
+	 *
+	 * @return	Hexadecimal representation (lower case).
+	 */
+	protected static String toHex(final byte[] bytes){
+		StringBuffer buf = new StringBuffer(bytes.length * 2);
+		for(byte b : bytes){
+			buf.append(Character.forDigit((b >> 4) & 0xF, 16));
+			buf.append(Character.forDigit(b & 0xF, 16));
+		}
+		return buf.toString();
+	}
+
+	/**
+	 * Stream writing a result in a temporary file of {@link #tmpDirectory},
+	 * hashing its content, and storing it when closed.
+	 *
+	 * <p>
+	 * 	As any {@link AtomicFileOutputStream}, nothing is stored if the writing
+	 * 	is aborted (see {@link #abort()}) or if it fails.
+	 * </p>
+	 *
+	 * @author Gr&eacute;gory Mantelet (CDS)
+	 * @version 4.5 (10/2026)
+	 * @since 4.5
+	 */
+	protected class StoreOutputStream extends AtomicFileOutputStream {
+		/** Key of the written result. */
+		private final String key;
+		/** Hash function updated while writing the result. */
+		private final MessageDigest digest;
+
+		/**
+		 * Open a stream writing the specified result.
+		 *
+		 * @param key			Key of the result to write.
+		 * @param bufferSize	Size (in bytes) of the write buffer.
+		 * @param sync			<i>true</i> to force the content on the storage
+		 *            			device before storing it.
+		 *
+		 * @throws IOException	If the temporary file can not be created.
+		 */
+		public StoreOutputStream(final String key, final int bufferSize, final boolean sync) throws IOException{
+			super(new File(tmpDirectory, "result"), bufferSize, sync);
+			this.key = key;
+			this.digest = newDigest();
+		}
+
+		@Override
+		public void write(final int b) throws IOException{
+			super.write(b);
+			digest.update((byte)b);
+		}
+
+		@Override
+		public void write(final byte[] b, final int off, final int len) throws IOException{
+			super.write(b, off, len);
+			digest.update(b, off, len);
+		}
+
+		/**
+		 * Store the written content (see {@link LocalResultStore#store(String, String, File)})
+		 * instead of renaming it.
+		 */
+		@Override
+		protected void commit() throws IOException{
+			store(key, toHex(digest.digest()), getTempFile());
+		}
+	}
+
+}
@@ -16,7 +16,7 @@ package uws.service.file;
  * You should have received a copy of the GNU Lesser General Public License
  * along with UWSLibrary.  If not, see <http://www.gnu.org/licenses/>.
  *
- * Copyright 2012-2018 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
+ * Copyright 2012-2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS),
  *                       Astronomisches Rechen Institut (ARI)
  */
 
@@ -48,6 +48,7 @@ import uws.job.ErrorSummary;
 import uws.job.Result;
 import uws.job.UWSJob;
 import uws.job.user.JobOwner;
+import uws.service.file.io.AtomicFileOutputStream;
 import uws.service.file.io.OutputStreamWithCloseAction;
 import uws.service.file.io.RotateFileAction;
 import uws.service.log.UWSLog.LogLevel;
@@ -77,8 +78,21 @@ import uws.service.request.UploadFile;
  * 	function {@link #setLogRotationFreq(String)}.
  * </p>
  *
+ * <p>
+ * 	Results may be stored in a {@link ResultStore} instead of one file per
+ * 	result (see {@link #setResultStore(ResultStore)}). With a
+ * 	{@link LocalResultStore}, identical results (e.g. the same query run
+ * 	every night) are stored only once.
+ * </p>
+ *
+ * <p>
+ * 	Otherwise, each result is written through a large buffer in a temporary
+ * 	file which is renamed only once complete (see
+ * 	{@link #getResultOutput(Result, UWSJob)}).
+ * </p>
+ *
  * @author Gr&eacute;gory Mantelet (CDS;ARI)
- * @version 4.4 (08/2018)
+ * @version 4.5 (10/2026)
  */
 public class LocalUWSFileManager implements UWSFileManager {
 
@@ -112,6 +126,20 @@ public class LocalUWSFileManager implements UWSFileManager {
 	/** Object giving the policy about how to group user directories. */
 	protected final OwnerGroupIdentifier ownerGroupId;
 
+	/** Store in which results must be written.
+	 * If NULL, each result is written in its own file (see {@link #getResultFile(Result, UWSJob)}).
+	 * @since 4.5 */
+	protected ResultStore resultStore = null;
+
+	/** Size (in bytes) of the buffer used to write each result file.
+	 * @since 4.5 */
+	protected int resultBufferSize = AtomicFileOutputStream.DEFAULT_BUFFER_SIZE;
+
+	/** Indicate whether result files must be forced on the storage device
+	 * (i.e. <code>fsync</code>) before being available.
+	 * @since 4.5 */
+	protected boolean syncResults = false;
+
 	/**
 	 * <p>Builds a {@link UWSFileManager} which manages all UWS files in the given directory.</p>
 	 * <p>
@@ -602,21 +630,149 @@ public class LocalUWSFileManager implements UWSFileManager {
 		return new File(ownerDir, getResultFileName(result, job));
 	}
 
+	/**
+	 * Gets the store in which results are written.
+	 *
+	 * @return	The result store,
+	 *        	or <i>null</i> if each result is written in its own file.
+	 *
+	 * @since 4.5
+	 */
+	public final ResultStore getResultStore(){
+		return resultStore;
+	}
+
+	/**
+	 * Sets the store in which results must be written.
+	 *
+	 * <p><i>Note:
+	 * 	Results already written are not moved: they should be written with the
+	 * 	same store (or without store).
+	 * </i></p>
+	 *
+	 * @param store	The result store to use,
+	 *             	or <i>null</i> to write each result in its own file.
+	 *
+	 * @since 4.5
+	 */
+	public final void setResultStore(final ResultStore store){
+		resultStore = store;
+	}
+
+	/**
+	 * Gets the size of the buffer used to write each result file.
+	 *
+	 * @return	Buffer size (in bytes).
+	 *
+	 * @since 4.5
+	 */
+	public final int getResultBufferSize(){
+		return resultBufferSize;
+	}
+
+	/**
+	 * Sets the size of the buffer used to write each result file.
+	 *
+	 * <p>
+	 * 	A large buffer turns the many small writes of a formatter into a few
+	 * 	large writes in the file system.
+	 * </p>
+	 *
+	 * @param size	Buffer size (in bytes).
+	 *            	<i>If negative or null, the default size
+	 *            	({@value AtomicFileOutputStream#DEFAULT_BUFFER_SIZE} bytes)
+	 *            	is set.</i>
+	 *
+	 * @since 4.5
+	 */
+	public final void setResultBufferSize(final int size){
+		resultBufferSize = (size <= 0) ? AtomicFileOutputStream.DEFAULT_BUFFER_SIZE : size;
+	}
+
+	/**
+	 * Tells whether result files are forced on the storage device
+	 * (i.e. <code>fsync</code>) before being available.
+	 *
+	 * @return	<i>true</i> if results are synchronised,
+	 *        	<i>false</i> otherwise.
+	 *
+	 * @since 4.5
+	 */
+	public final boolean isSyncResults(){
+		return syncResults;
+	}
+
+	/**
+	 * Sets whether result files must be forced on the storage device
+	 * (i.e. <code>fsync</code>) before being available.
+	 *
+	 * <p><i>Note:
+	 * 	This guarantees that a published result survives a system crash, but it
+	 * 	slows down the end of each job.
+	 * </i></p>
+	 *
+	 * @param sync	<i>true</i> to synchronise results,
+	 *            	<i>false</i> to let the system decide when.
+	 *
+	 * @since 4.5
+	 */
+	public final void setSyncResults(final boolean sync){
+		syncResults = sync;
+	}
+
+	/**
+	 * Gets the key identifying the given result in the result store: the
+	 * path of its file (see {@link #getResultFile(Result, UWSJob)}) relative
+	 * to the root directory.
+	 *
+	 * @param result	The result whose the key is asked.
+	 * @param job		The job which owns the given result.
+	 *
+	 * @return	Key of the given result.
+	 *
+	 * @since 4.5
+	 */
+	protected String getResultKey(final Result result, final UWSJob job){
+		return rootDirectory.toURI().relativize(getResultFile(result, job).toURI()).getPath();
+	}
+
 	@Override
 	public InputStream getResultInput(Result result, UWSJob job) throws IOException{
+		if (resultStore != null)
+			return resultStore.getInput(getResultKey(result, job));
+
 		File resultFile = getResultFile(result, job);
 		return resultFile.exists() ? new FileInputStream(resultFile) : null;
 	}
 
+	/**
+	 * <p>
+	 * 	The result is written in a temporary file which gets its final name
+	 * 	(or which is stored in the {@link ResultStore}, if any) only when the
+	 * 	returned stream is closed (see {@link AtomicFileOutputStream}). So, a
+	 * 	result is available only once its stream is closed, and a result whose
+	 * 	writing failed can just be aborted with
+	 * 	{@link AtomicFileOutputStream#abort()}.
+	 * </p>
+	 *
+	 * @see #setResultBufferSize(int)
+	 * @see #setSyncResults(boolean)
+	 */
 	@Override
 	public OutputStream getResultOutput(Result result, UWSJob job) throws IOException{
+		if (resultStore != null)
+			return resultStore.getOutput(getResultKey(result, job), resultBufferSize, syncResults);
+
 		File resultFile = getResultFile(result, job);
 		createParentDir(resultFile);
-		return new FileOutputStream(resultFile);
+		return new AtomicFileOutputStream(resultFile, resultBufferSize, syncResults);
 	}
 
 	@Override
 	public long getResultSize(Result result, UWSJob job) throws IOException{
+		if (resultStore != null)
+			return resultStore.getSize(getResultKey(result, job));
+
 		File resultFile = getResultFile(result, job);
 		if (resultFile == null || !resultFile.exists())
 			return -1;
@@ -626,7 +782,7 @@ public class LocalUWSFileManager implements UWSFileManager {
 
 	@Override
 	public boolean deleteResult(Result result, UWSJob job) throws IOException{
-		boolean deleted = getResultFile(result, job).delete();
+		boolean deleted = (resultStore != null) ? resultStore.delete(getResultKey(result, job)) : getResultFile(result, job).delete();
 
 		if (deleted)
 			cleanOwnerDirectory(job.getOwner());
@@ -0,0 +1,127 @@
+package uws.service.file;
+
+/*
+ * This file is part of UWSLibrary.
+ *
+ * UWSLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UWSLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with UWSLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import uws.service.file.io.AtomicFileOutputStream;
+
+/**
+ * Content-addressed storage of job results.
+ *
+ * <p>
+ * 	Each result is identified by a <b>key</b> (e.g. a path built from the job
+ * 	and result IDs). Its content is hashed while being written, and stored
+ * 	only once whatever is the number of results having the same content. A
+ * 	content is deleted when the last result referencing it is deleted.
+ * </p>
+ *
+ * <p>
+ * 	A {@link UWSFileManager} may delegate the storage of results to such
+ * 	store (see {@link LocalUWSFileManager#setResultStore(ResultStore)}).
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 4.5 (10/2026)
+ * @since 4.5
+ *
+ * @see LocalResultStore
+ */
+public interface ResultStore {
+
+	/**
+	 * Open a stream to write the content of the specified result.
+	 *
+	 * <p>
+	 * 	The content is referenced by the given key only once the returned
+	 * 	stream is closed. If the key already references a content, this
+	 * 	reference is then replaced.
+	 * </p>
+	 *
+	 * <p>
+	 * 	If the writing fails, the returned stream must be aborted rather than
+	 * 	closed (see {@link AtomicFileOutputStream#abort()}): nothing is then
+	 * 	stored and the former content of the key, if any, is kept.
+	 * </p>
+	 *
+	 * @param key			Key of the result to write.
+	 * @param bufferSize	Size (in bytes) of the write buffer.
+	 *                  	<i>If negative or null, a default size is used.</i>
+	 * @param sync			<i>true</i> to force the content on the storage
+	 *            			device before referencing it,
+	 *            			<i>false</i> to let the system decide when.
+	 *
+	 * @return	Stream in which the result must be written.
+	 *
+	 * @throws IOException	If the stream can not be opened.
+	 */
+	public AtomicFileOutputStream getOutput(final String key, final int bufferSize, final boolean sync) throws IOException;
+
+	/**
+	 * Open a stream to read the content of the specified result.
+	 *
+	 * @param key	Key of the result to read.
+	 *
+	 * @return	Stream of the result content,
+	 *        	or NULL if no content is referenced by the given key.
+	 *
+	 * @throws IOException	If the stream can not be opened.
+	 */
+	public InputStream getInput(final String key) throws IOException;
+
+	/**
+	 * Get the size of the content of the specified result.
+	 *
+	 * @param key	Key of the result.
+	 *
+	 * @return	Size (in bytes) of the content,
+	 *        	or -1 if no content is referenced by the given key.
+	 *
+	 * @throws IOException	If the size can not be read.
+	 */
+	public long getSize(final String key) throws IOException;
+
+	/**
+	 * Get the hash of the content of the specified result.
+	 *
+	 * @param key	Key of the result.
+	 *
+	 * @return	Hash (hexadecimal) of the content,
+	 *        	or NULL if no content is referenced by the given key.
+	 *
+	 * @throws IOException	If the reference can not be read.
+	 */
+	public String getHash(final String key) throws IOException;
+
+	/**
+	 * Remove the specified result. The referenced content is deleted if no
+	 * other result references it.
+	 *
+	 * @param key	Key of the result to delete.
+	 *
+	 * @return	<i>true</i> if the result has been removed,
+	 *        	<i>false</i> if no content was referenced by the given key.
+	 *
+	 * @throws IOException	If the result can not be removed.
+	 */
+	public boolean delete(final String key) throws IOException;
+
+}
@@ -0,0 +1,277 @@
+package uws.service.file.io;
+
+/*
+ * This file is part of UWSLibrary.
+ *
+ * UWSLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UWSLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with UWSLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stream writing a file under a temporary name and giving it its final name
+ * only when closed.
+ *
+ * <p>
+ * 	Thus, a partially written file never appears under its final name. If the
+ * 	writing fails, {@link #abort()} just deletes the temporary file.
+ * </p>
+ *
+ * <p>
+ * 	All written bytes are gathered in a direct buffer of the given size
+ * 	before being written in the file. So, many small writes (e.g. one per
+ * 	formatted value) result in a few large writes in the file.
+ * </p>
+ *
+ * <p>
+ * 	If asked, the file content is forced on the storage device (i.e.
+ * 	<code>fsync</code>) before being renamed. The file is then guaranteed to
+ * 	be complete as soon as it appears under its final name, even after a
+ * 	system crash.
+ * </p>
+ *
+ * <p><i>Note:
+ * 	The temporary file is created in the same directory as the final file, so
+ * 	that the renaming is atomic whenever the file system supports it.
+ * </i></p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 4.5 (10/2026)
+ * @since 4.5
+ */
+public class AtomicFileOutputStream extends OutputStream {
+
+	/** Default size (in bytes) of the write buffer: 64kB. */
+	public final static int DEFAULT_BUFFER_SIZE = 65536;
+
+	/** File to write, once closed. */
+	private final File targetFile;
+
+	/** File actually written until closed. */
+	private final File tempFile;
+
+	/** Channel toward {@link #tempFile}. */
+	private final FileChannel channel;
+
+	/** Bytes not yet written in the file. */
+	private final ByteBuffer buffer;
+
+	/** Indicate whether the file must be forced on the storage device before
+	 * being renamed. */
+	private final boolean sync;
+
+	/** Indicate whether this stream is closed (or aborted). */
+	private boolean closed = false;
+
+	/**
+	 * Open a stream toward the given file, with a buffer of
+	 * {@link #DEFAULT_BUFFER_SIZE} bytes and without <code>fsync</code>.
+	 *
+	 * @param target	File to write.
+	 *
+	 * @throws IOException	If the temporary file can not be created.
+	 */
+	public AtomicFileOutputStream(final File target) throws IOException{
+		this(target, DEFAULT_BUFFER_SIZE, false);
+	}
+
+	/**
+	 * Open a stream toward the given file.
+	 *
+	 * @param target		File to write.
+	 *              		<i>Its parent directory must exist.</i>
+	 * @param bufferSize	Size (in bytes) of the write buffer.
+	 *                  	<i>If negative or null, {@link #DEFAULT_BUFFER_SIZE}
+	 *                  	is used.</i>
+	 * @param sync			<i>true</i> to force the file content on the storage
+	 *            			device before renaming it,
+	 *            			<i>false</i> to let the system decide when.
+	 *
+	 * @throws NullPointerException	If the given file is missing.
+	 * @throws IOException			If the temporary file can not be created.
+	 */
+	public AtomicFileOutputStream(final File target, final int bufferSize, final boolean sync) throws NullPointerException, IOException{
+		if (target == null)
+			throw new NullPointerException("Missing file to write!");
+		targetFile = target;
+		tempFile = File.createTempFile(target.getName() + ".", ".part", target.getAbsoluteFile().getParentFile());
+		channel = FileChannel.open(tempFile.toPath(), StandardOpenOption.WRITE);
+		buffer = ByteBuffer.allocateDirect((bufferSize <= 0) ? DEFAULT_BUFFER_SIZE : bufferSize);
+		this.sync = sync;
+	}
+
+	/**
+	 * Get the file which is written once this stream is closed.
+	 *
+	 * @return	The target file.
+	 */
+	public final File getTargetFile(){
+		return targetFile;
+	}
+
+	/**
+	 * Get the file actually written until this stream is closed.
+	 *
+	 * @return	The temporary file.
+	 */
+	public final File getTempFile(){
+		return tempFile;
+	}
+
+	/**
+	 * Ensure this stream is still open.
+	 *
+	 * @throws IOException	If this stream is closed.
+	 */
+	private void checkOpen() throws IOException{
+		if (closed)
+			throw new IOException("Stream closed!");
+	}
+
+	@Override
+	public void write(final int b) throws IOException{
+		checkOpen();
+		if (!buffer.hasRemaining())
+			drain();
+		buffer.put((byte)b);
+	}
+
+	@Override
+	public void write(final byte[] b, int off, int len) throws IOException{
+		checkOpen();
+
+		// Large chunk => written directly if nothing is pending:
+		if (len >= buffer.capacity()){
+			drain();
+			ByteBuffer chunk = ByteBuffer.wrap(b, off, len);
+			while(chunk.hasRemaining())
+				channel.write(chunk);
+			return;
+		}
+
+		// Otherwise, just fill the buffer:
+		while(len > 0){
+			if (!buffer.hasRemaining())
+				drain();
+			int n = Math.min(len, buffer.remaining());
+			buffer.put(b, off, n);
+			off += n;
+			len -= n;
+		}
+	}
+
+	/**
+	 * Write all buffered bytes in the file.
+	 *
+	 * @throws IOException	If the bytes can not be written.
+	 */
+	private void drain() throws IOException{
+		buffer.flip();
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+	}
+
+	@Override
+	public void flush() throws IOException{
+		checkOpen();
+		drain();
+	}
+
+	/**
+	 * Write all buffered bytes, force them on the storage device if asked,
+	 * and give to the file its final name. An existing file with the same
+	 * name is replaced.
+	 *
+	 * <p><i>Note:
+	 * 	Calling this function several times has no effect.
+	 * </i></p>
+	 *
+	 * @throws IOException	If the file can not be completed or renamed.
+	 *                    	<i>In such case, the temporary file is deleted.</i>
+	 *
+	 * @see #commit()
+	 */
+	@Override
+	public void close() throws IOException{
+		if (closed)
+			return;
+
+		boolean done = false;
+		try{
+			drain();
+			if (sync)
+				channel.force(true);
+			channel.close();
+			closed = true;
+			commit();
+			done = true;
+		}finally{
+			if (!done)
+				abort();
+		}
+	}
+
+	/**
+	 * Give to the completely written temporary file its final name. An
+	 * existing file with the same name is replaced.
+	 *
+	 * <p>
+	 * 	This function is called by {@link #close()}, once all bytes are written
+	 * 	(and forced on the storage device if asked). It may be overwritten to
+	 * 	store the temporary file somewhere else ; if it fails, the temporary
+	 * 	file is deleted.
+	 * </p>
+	 *
+	 * @throws IOException	If the file can not be renamed.
+	 */
+	protected void commit() throws IOException{
+		try{
+			Files.move(tempFile.toPath(), targetFile.toPath(), StandardCopyOption.ATOMIC_MOVE);
+		}catch(AtomicMoveNotSupportedException amnse){
+			Files.move(tempFile.toPath(), targetFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	/**
+	 * Stop writing and delete the temporary file. The target file is not
+	 * touched.
+	 *
+	 * <p><i>Note:
+	 * 	Nothing is done if this stream has already been successfully closed.
+	 * </i></p>
+	 */
+	public void abort(){
+		if (closed && !tempFile.exists())
+			return;
+		closed = true;
+		try{
+			channel.close();
+		}catch(IOException ioe){
+			;
+		}
+		tempFile.delete();
+	}
+
+}
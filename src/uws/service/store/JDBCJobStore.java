@@ -0,0 +1,836 @@
+package uws.service.store;
+
+/*
+ * This file is part of UWSLibrary.
+ *
+ * UWSLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UWSLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with UWSLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.sql.DataSource;
+
+import uws.ISO8601Format;
+import uws.UWSException;
+import uws.job.ErrorSummary;
+import uws.job.ErrorType;
+import uws.job.ExecutionPhase;
+import uws.job.JobList;
+import uws.job.Result;
+import uws.job.UWSJob;
+import uws.job.parameters.UWSParameters;
+import uws.job.user.DefaultJobOwner;
+import uws.job.user.JobOwner;
+import uws.service.UWS;
+import uws.service.request.UploadFile;
+
+/**
+ * {@link JobStore} keeping jobs in a relational database accessed through
+ * JDBC.
+ *
+ * <p>
+ * 	Three tables are used (their names are prefixed by {@link #getTablePrefix()},
+ * 	by default <code>uws_</code>):
+ * </p>
+ * <ul>
+ * 	<li><b>job</b>: one row per job with its list, ID, phase, owner, dates,
+ * 	    standard UWS parameters, error summary, the node having claimed it and
+ * 	    its version,</li>
+ * 	<li><b>job_param</b>: one row per value of additional parameter,</li>
+ * 	<li><b>job_result</b>: one row per result reference.</li>
+ * </ul>
+ * <p>
+ * 	They can be created with {@link #createTables()}.
+ * </p>
+ *
+ * <p>
+ * 	Phase transitions and job claims are single conditional
+ * 	<code>UPDATE</code>s (e.g. <code>... WHERE phase = 'QUEUED' AND node_id IS
+ * 	NULL</code>): the database guarantees that only one node can succeed.
+ * </p>
+ *
+ * <p><i>Note:
+ * 	Only result references and uploaded files locations are stored, not their
+ * 	content. So, all nodes must share the same file storage (see
+ * 	{@link uws.service.file.UWSFileManager}). Job infos are not stored.
+ * </i></p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 4.5 (10/2026)
+ * @since 4.5
+ */
+public class JDBCJobStore implements JobStore {
+
+	/** Default prefix of the tables' names. */
+	public final static String DEFAULT_TABLE_PREFIX = "uws_";
+
+	/** Value of the column <code>kind</code> of <i>job_param</i> for a
+	 * parameter value stored as a string. */
+	protected final static String KIND_STRING = "S";
+
+	/** Value of the column <code>kind</code> of <i>job_param</i> for an
+	 * uploaded file. */
+	protected final static String KIND_FILE = "F";
+
+	/** Phases in which a job can be claimed. */
+	protected final static String CLAIMABLE_PHASES = "'" + ExecutionPhase.PENDING + "', '" + ExecutionPhase.QUEUED + "', '" + ExecutionPhase.HELD + "'";
+
+	/** Source of connections to the database. */
+	protected final DataSource dataSource;
+
+	/** ID of this node. */
+	protected final String nodeId;
+
+	/** Prefix of the tables' names. */
+	protected final String tablePrefix;
+
+	/**
+	 * Build a job store using tables prefixed by
+	 * {@link #DEFAULT_TABLE_PREFIX}.
+	 *
+	 * @param dataSource	Source of connections to the database.
+	 * @param nodeId		ID of this node. <i>Must be different for each node.</i>
+	 *
+	 * @throws NullPointerException	If the data source or the node ID is NULL.
+	 */
+	public JDBCJobStore(final DataSource dataSource, final String nodeId) throws NullPointerException{
+		this(dataSource, nodeId, DEFAULT_TABLE_PREFIX);
+	}
+
+	/**
+	 * Build a job store.
+	 *
+	 * @param dataSource	Source of connections to the database.
+	 * @param nodeId		ID of this node. <i>Must be different for each node.</i>
+	 * @param tablePrefix	Prefix of the tables' names (e.g. a schema name
+	 *                   	followed by a dot). <i>If NULL, no prefix.</i>
+	 *
+	 * @throws NullPointerException	If the data source or the node ID is NULL.
+	 */
+	public JDBCJobStore(final DataSource dataSource, final String nodeId, final String tablePrefix) throws NullPointerException{
+		if (dataSource == null)
+			throw new NullPointerException("Missing data source! => Impossible to build a JDBCJobStore.");
+		if (nodeId == null || nodeId.trim().length() == 0)
+			throw new NullPointerException("Missing node ID! => Impossible to build a JDBCJobStore.");
+		this.dataSource = dataSource;
+		this.nodeId = nodeId.trim();
+		this.tablePrefix = (tablePrefix == null) ? "" : tablePrefix.trim();
+	}
+
+	@Override
+	public final String getNodeId(){
+		return nodeId;
+	}
+
+	/**
+	 * Get the prefix of the tables' names.
+	 *
+	 * @return	The tables prefix. <i>May be an empty string.</i>
+	 */
+	public final String getTablePrefix(){
+		return tablePrefix;
+	}
+
+	/**
+	 * Get the name of the table listing the jobs.
+	 *
+	 * @return	Prefixed table name.
+	 */
+	protected String getJobTable(){
+		return tablePrefix + "job";
+	}
+
+	/**
+	 * Get the name of the table listing the jobs parameters.
+	 *
+	 * @return	Prefixed table name.
+	 */
+	protected String getParamTable(){
+		return tablePrefix + "job_param";
+	}
+
+	/**
+	 * Get the name of the table listing the jobs results.
+	 *
+	 * @return	Prefixed table name.
+	 */
+	protected String getResultTable(){
+		return tablePrefix + "job_result";
+	}
+
+	/**
+	 * Create the tables of this store, if they do not already exist.
+	 *
+	 * @throws UWSException	If a table can not be created.
+	 */
+	public void createTables() throws UWSException{
+		Connection conn = null;
+		try{
+			conn = dataSource.getConnection();
+			Statement stmt = conn.createStatement();
+			try{
+				if (!exists(conn, getJobTable()))
+					stmt.executeUpdate("CREATE TABLE " + getJobTable() + " (job_list VARCHAR(128) NOT NULL, job_id VARCHAR(128) NOT NULL, version BIGINT NOT NULL, phase VARCHAR(16) NOT NULL, node_id VARCHAR(128), owner_id VARCHAR(255), owner_pseudo VARCHAR(255), run_id VARCHAR(255), quote BIGINT, creation_time BIGINT, start_time BIGINT, end_time BIGINT, execution_duration BIGINT, destruction_time BIGINT, error_type VARCHAR(16), error_message TEXT, error_details TEXT, PRIMARY KEY(job_list, job_id))");
+				if (!exists(conn, getParamTable()))
+					stmt.executeUpdate("CREATE TABLE " + getParamTable() + " (job_list VARCHAR(128) NOT NULL, job_id VARCHAR(128) NOT NULL, name VARCHAR(255) NOT NULL, idx INTEGER NOT NULL, kind CHAR(1) NOT NULL, param_value TEXT, file_name VARCHAR(255), mime VARCHAR(255), file_length BIGINT)");
+				if (!exists(conn, getResultTable()))
+					stmt.executeUpdate("CREATE TABLE " + getResultTable() + " (job_list VARCHAR(128) NOT NULL, job_id VARCHAR(128) NOT NULL, idx INTEGER NOT NULL, result_id VARCHAR(255) NOT NULL, type VARCHAR(64), href TEXT, redirection INTEGER, mime VARCHAR(255), result_size BIGINT)");
+			}finally{
+				stmt.close();
+			}
+		}catch(SQLException se){
+			throw new UWSException(UWSException.INTERNAL_SERVER_ERROR, se, "Impossible to create the tables of the job store!");
+		}finally{
+			close(conn);
+		}
+	}
+
+	/**
+	 * Tell whether the specified table exists (case insensitively).
+	 *
+	 * @param conn		Connection to the database.
+	 * @param table		Name of the table, possibly prefixed by a schema name.
+	 *
+	 * @return	<i>true</i> if it exists, <i>false</i> otherwise.
+	 *
+	 * @throws SQLException	If the database metadata can not be read.
+	 */
+	protected boolean exists(final Connection conn, final String table) throws SQLException{
+		int indSep = table.lastIndexOf('.');
+		String schema = (indSep > 0) ? table.substring(0, indSep) : null;
+		String name = (indSep > 0) ? table.substring(indSep + 1) : table;
+		ResultSet rs = conn.getMetaData().getTables(null, null, null, null);
+		try{
+			while(rs.next()){
+				if (name.equalsIgnoreCase(rs.getString(3)) && (schema == null || schema.equalsIgnoreCase(rs.getString(2))))
+					return true;
+			}
+			return false;
+		}finally{
+			rs.close();
+		}
+	}
+
+	@Override
+	public long save(final String jobListName, final UWSJob job) throws UWSException{
+		Connection conn = null;
+		try{
+			conn = dataSource.getConnection();
+			conn.setAutoCommit(false);
+
+			// Update the job if already stored:
+			PreparedStatement stmt = conn.prepareStatement("UPDATE " + getJobTable() + " SET phase = ?, owner_id = ?, owner_pseudo = ?, run_id = ?, quote = ?, creation_time = ?, start_time = ?, end_time = ?, execution_duration = ?, destruction_time = ?, error_type = ?, error_message = ?, error_details = ?, version = version + 1 WHERE job_list = ? AND job_id = ?");
+			boolean updated;
+			try{
+				int i = setJobColumns(stmt, job);
+				stmt.setString(i++, jobListName);
+				stmt.setString(i++, job.getJobId());
+				updated = (stmt.executeUpdate() > 0);
+			}finally{
+				stmt.close();
+			}
+
+			// Otherwise insert it:
+			if (!updated){
+				stmt = conn.prepareStatement("INSERT INTO " + getJobTable() + " (phase, owner_id, owner_pseudo, run_id, quote, creation_time, start_time, end_time, execution_duration, destruction_time, error_type, error_message, error_details, job_list, job_id, version) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, 1)");
+				try{
+					int i = setJobColumns(stmt, job);
+					stmt.setString(i++, jobListName);
+					stmt.setString(i++, job.getJobId());
+					stmt.executeUpdate();
+				}finally{
+					stmt.close();
+				}
+			}
+
+			// Replace its parameters and results:
+			saveParameters(conn, jobListName, job);
+			saveResults(conn, jobListName, job);
+
+			long version = getVersion(conn, jobListName, job.getJobId());
+			conn.commit();
+			return version;
+		}catch(SQLException se){
+			rollback(conn);
+			throw new UWSException(UWSException.INTERNAL_SERVER_ERROR, se, "Impossible to save the job \"" + job.getJobId() + "\" in the job store!");
+		}finally{
+			close(conn);
+		}
+	}
+
+	@Override
+	public long updatePhase(final String jobListName, final UWSJob job, final ExecutionPhase expectedPhase) throws UWSException{
+		Connection conn = null;
+		try{
+			conn = dataSource.getConnection();
+			conn.setAutoCommit(false);
+
+			// Update the job ONLY IF nobody else has changed its phase:
+			PreparedStatement stmt = conn.prepareStatement("UPDATE " + getJobTable() + " SET phase = ?, owner_id = ?, owner_pseudo = ?, run_id = ?, quote = ?, creation_time = ?, start_time = ?, end_time = ?, execution_duration = ?, destruction_time = ?, error_type = ?, error_message = ?, error_details = ?, version = version + 1 WHERE job_list = ? AND job_id = ? AND phase = ?");
+			try{
+				int i = setJobColumns(stmt, job);
+				stmt.setString(i++, jobListName);
+				stmt.setString(i++, job.getJobId());
+				stmt.setString(i++, String.valueOf(expectedPhase));
+				if (stmt.executeUpdate() == 0){
+					conn.rollback();
+					return -1;
+				}
+			}finally{
+				stmt.close();
+			}
+
+			// Replace its parameters and results:
+			saveParameters(conn, jobListName, job);
+			saveResults(conn, jobListName, job);
+
+			long version = getVersion(conn, jobListName, job.getJobId());
+			conn.commit();
+			return version;
+		}catch(SQLException se){
+			rollback(conn);
+			throw new UWSException(UWSException.INTERNAL_SERVER_ERROR, se, "Impossible to update the phase of the job \"" + job.getJobId() + "\" in the job store!");
+		}finally{
+			close(conn);
+		}
+	}
+
+	/**
+	 * Set the values of the first 13 parameters of the given statement with
+	 * the description of the given job, in the following order: phase,
+	 * owner_id, owner_pseudo, run_id, quote, creation_time, start_time,
+	 * end_time, execution_duration, destruction_time, error_type,
+	 * error_message, error_details.
+	 *
+	 * <p><i>Note:
+	 * 	The start (resp. end) time is set by a job just after it starts
+	 * 	executing (resp. it ends). So, if not yet set, the current time is used.
+	 * </i></p>
+	 *
+	 * @param stmt	Statement to complete.
+	 * @param job	The job to describe.
+	 *
+	 * @return	Index of the next parameter to set.
+	 *
+	 * @throws SQLException	If a parameter can not be set.
+	 */
+	protected int setJobColumns(final PreparedStatement stmt, final UWSJob job) throws SQLException{
+		ExecutionPhase phase = job.getPhase();
+		long now = System.currentTimeMillis();
+		int i = 1;
+		stmt.setString(i++, String.valueOf(phase));
+		stmt.setString(i++, (job.getOwner() == null) ? null : job.getOwner().getID());
+		stmt.setString(i++, (job.getOwner() == null) ? null : job.getOwner().getPseudo());
+		stmt.setString(i++, job.getRunId());
+		stmt.setLong(i++, job.getQuote());
+		setTime(stmt, i++, job.getCreationTime(), -1);
+		setTime(stmt, i++, job.getStartTime(), (phase == ExecutionPhase.EXECUTING) ? now : -1);
+		setTime(stmt, i++, job.getEndTime(), job.isFinished() ? now : -1);
+		stmt.setLong(i++, job.getExecutionDuration());
+		setTime(stmt, i++, job.getDestructionTime(), -1);
+		ErrorSummary error = job.getErrorSummary();
+		stmt.setString(i++, (error == null || error.getType() == null) ? null : error.getType().name());
+		stmt.setString(i++, (error == null) ? null : error.getMessage());
+		stmt.setString(i++, (error == null) ? null : error.getDetails());
+		return i;
+	}
+
+	/**
+	 * Set a date/time parameter (in milliseconds since 1970).
+	 *
+	 * @param stmt			Statement to complete.
+	 * @param index			Index of the parameter to set.
+	 * @param date			The date to set. <i>May be NULL.</i>
+	 * @param defaultTime	Time to set if the date is NULL.
+	 *                   	<i>If negative, NULL is set.</i>
+	 *
+	 * @throws SQLException	If the parameter can not be set.
+	 */
+	protected void setTime(final PreparedStatement stmt, final int index, final Date date, final long defaultTime) throws SQLException{
+		if (date != null)
+			stmt.setLong(index, date.getTime());
+		else if (defaultTime >= 0)
+			stmt.setLong(index, defaultTime);
+		else
+			stmt.setNull(index, Types.BIGINT);
+	}
+
+	/**
+	 * Replace the stored additional parameters of the given job.
+	 *
+	 * @param conn			Connection to use.
+	 * @param jobListName	Name of the job list containing the job.
+	 * @param job			The job whose parameters must be saved.
+	 *
+	 * @throws SQLException	If the parameters can not be saved.
+	 */
+	protected void saveParameters(final Connection conn, final String jobListName, final UWSJob job) throws SQLException{
+		delete(conn, getParamTable(), jobListName, job.getJobId());
+
+		PreparedStatement stmt = conn.prepareStatement("INSERT INTO " + getParamTable() + " (job_list, job_id, name, idx, kind, param_value, file_name, mime, file_length) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+		try{
+			for(String name : job.getAdditionalParameters()){
+				Object value = job.getAdditionalParameterValue(name);
+				Object[] values = (value instanceof Object[]) ? (Object[])value : new Object[]{ value };
+				for(int idx = 0; idx < values.length; idx++){
+					if (values[idx] == null)
+						continue;
+					stmt.setString(1, jobListName);
+					stmt.setString(2, job.getJobId());
+					stmt.setString(3, name);
+					stmt.setInt(4, idx);
+					if (values[idx] instanceof UploadFile){
+						UploadFile file = (UploadFile)values[idx];
+						stmt.setString(5, KIND_FILE);
+						stmt.setString(6, file.getLocation());
+						stmt.setString(7, file.fileName);
+						stmt.setString(8, file.mimeType);
+						stmt.setLong(9, file.length);
+					}else{
+						stmt.setString(5, KIND_STRING);
+						stmt.setString(6, (values[idx] instanceof Date) ? ISO8601Format.format((Date)values[idx]) : values[idx].toString());
+						stmt.setNull(7, Types.VARCHAR);
+						stmt.setNull(8, Types.VARCHAR);
+						stmt.setNull(9, Types.BIGINT);
+					}
+					stmt.addBatch();
+				}
+			}
+			stmt.executeBatch();
+		}finally{
+			stmt.close();
+		}
+	}
+
+	/**
+	 * Replace the stored result references of the given job.
+	 *
+	 * @param conn			Connection to use.
+	 * @param jobListName	Name of the job list containing the job.
+	 * @param job			The job whose results must be saved.
+	 *
+	 * @throws SQLException	If the results can not be saved.
+	 */
+	protected void saveResults(final Connection conn, final String jobListName, final UWSJob job) throws SQLException{
+		delete(conn, getResultTable(), jobListName, job.getJobId());
+
+		PreparedStatement stmt = conn.prepareStatement("INSERT INTO " + getResultTable() + " (job_list, job_id, idx, result_id, type, href, redirection, mime, result_size) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)");
+		try{
+			Iterator<Result> it = job.getResults();
+			int idx = 0;
+			while(it.hasNext()){
+				Result r = it.next();
+				stmt.setString(1, jobListName);
+				stmt.setString(2, job.getJobId());
+				stmt.setInt(3, idx++);
+				stmt.setString(4, r.getId());
+				stmt.setString(5, r.getType());
+				stmt.setString(6, r.getHref());
+				stmt.setInt(7, r.isRedirectionRequired() ? 1 : 0);
+				stmt.setString(8, r.getMimeType());
+				stmt.setLong(9, r.getSize());
+				stmt.addBatch();
+			}
+			stmt.executeBatch();
+		}finally{
+			stmt.close();
+		}
+	}
+
+	@Override
+	public boolean remove(final String jobListName, final String jobId) throws UWSException{
+		Connection conn = null;
+		try{
+			conn = dataSource.getConnection();
+			conn.setAutoCommit(false);
+			delete(conn, getParamTable(), jobListName, jobId);
+			delete(conn, getResultTable(), jobListName, jobId);
+			boolean removed = (delete(conn, getJobTable(), jobListName, jobId) > 0);
+			conn.commit();
+			return removed;
+		}catch(SQLException se){
+			rollback(conn);
+			throw new UWSException(UWSException.INTERNAL_SERVER_ERROR, se, "Impossible to remove the job \"" + jobId + "\" from the job store!");
+		}finally{
+			close(conn);
+		}
+	}
+
+	/**
+	 * Delete all rows of the given table about the specified job.
+	 *
+	 * @param conn			Connection to use.
+	 * @param table			Table to clean.
+	 * @param jobListName	Name of the job list containing the job.
+	 * @param jobId			ID of the job.
+	 *
+	 * @return	Number of deleted rows.
+	 *
+	 * @throws SQLException	If the rows can not be deleted.
+	 */
+	protected int delete(final Connection conn, final String table, final String jobListName, final String jobId) throws SQLException{
+		PreparedStatement stmt = conn.prepareStatement("DELETE FROM " + table + " WHERE job_list = ? AND job_id = ?");
+		try{
+			stmt.setString(1, jobListName);
+			stmt.setString(2, jobId);
+			return stmt.executeUpdate();
+		}finally{
+			stmt.close();
+		}
+	}
+
+	@Override
+	public Map<String,Long> getVersions(final String jobListName) throws UWSException{
+		Connection conn = null;
+		try{
+			conn = dataSource.getConnection();
+			PreparedStatement stmt = conn.prepareStatement("SELECT job_id, version FROM " + getJobTable() + " WHERE job_list = ?");
+			try{
+				stmt.setString(1, jobListName);
+				ResultSet rs = stmt.executeQuery();
+				Map<String,Long> versions = new HashMap<String,Long>();
+				while(rs.next())
+					versions.put(rs.getString(1), rs.getLong(2));
+				return versions;
+			}finally{
+				stmt.close();
+			}
+		}catch(SQLException se){
+			throw new UWSException(UWSException.INTERNAL_SERVER_ERROR, se, "Impossible to list the jobs of \"" + jobListName + "\" from the job store!");
+		}finally{
+			close(conn);
+		}
+	}
+
+	@Override
+	public long getVersion(final String jobListName, final String jobId) throws UWSException{
+		Connection conn = null;
+		try{
+			conn = dataSource.getConnection();
+			return getVersion(conn, jobListName, jobId);
+		}catch(SQLException se){
+			throw new UWSException(UWSException.INTERNAL_SERVER_ERROR, se, "Impossible to get the version of the job \"" + jobId + "\" from the job store!");
+		}finally{
+			close(conn);
+		}
+	}
+
+	/**
+	 * Get the version of the specified stored job.
+	 *
+	 * @param conn			Connection to use.
+	 * @param jobListName	Name of the job list containing the job.
+	 * @param jobId			ID of the job.
+	 *
+	 * @return	Its version, or -1 if it is not stored.
+	 *
+	 * @throws SQLException	If the version can not be read.
+	 */
+	protected long getVersion(final Connection conn, final String jobListName, final String jobId) throws SQLException{
+		PreparedStatement stmt = conn.prepareStatement("SELECT version FROM " + getJobTable() + " WHERE job_list = ? AND job_id = ?");
+		try{
+			stmt.setString(1, jobListName);
+			stmt.setString(2, jobId);
+			ResultSet rs = stmt.executeQuery();
+			return rs.next() ? rs.getLong(1) : -1;
+		}finally{
+			stmt.close();
+		}
+	}
+
+	@Override
+	public UWSJob load(final JobList jobList, final String jobId) throws UWSException{
+		UWS uws = jobList.getUWS();
+		Connection conn = null;
+		try{
+			conn = dataSource.getConnection();
+
+			// Read the job description:
+			PreparedStatement stmt = conn.prepareStatement("SELECT phase, owner_id, owner_pseudo, run_id, quote, creation_time, start_time, end_time, execution_duration, destruction_time, error_type, error_message, error_details FROM " + getJobTable() + " WHERE job_list = ? AND job_id = ?");
+			ExecutionPhase phase;
+			String ownerId, ownerPseudo;
+			long quote, creationTime, startTime, endTime;
+			ErrorSummary error = null;
+			Map<String,Object> params = new HashMap<String,Object>();
+			try{
+				stmt.setString(1, jobList.getName());
+				stmt.setString(2, jobId);
+				ResultSet rs = stmt.executeQuery();
+				if (!rs.next())
+					return null;
+				phase = ExecutionPhase.valueOf(rs.getString(1));
+				ownerId = rs.getString(2);
+				ownerPseudo = rs.getString(3);
+				if (rs.getString(4) != null)
+					params.put(UWSJob.PARAM_RUN_ID, rs.getString(4));
+				quote = rs.getLong(5);
+				creationTime = rs.getLong(6);
+				startTime = rs.getLong(7);
+				endTime = rs.getLong(8);
+				params.put(UWSJob.PARAM_EXECUTION_DURATION, rs.getLong(9));
+				long destruction = rs.getLong(10);
+				if (!rs.wasNull())
+					params.put(UWSJob.PARAM_DESTRUCTION_TIME, new Date(destruction));
+				if (rs.getString(12) != null)
+					error = new ErrorSummary(rs.getString(12), (rs.getString(11) == null) ? null : ErrorType.valueOf(rs.getString(11)), rs.getString(13));
+			}finally{
+				stmt.close();
+			}
+
+			// Read its parameters and results:
+			params.putAll(loadParameters(conn, jobList.getName(), jobId, uws));
+			List<Result> results = loadResults(conn, jobList.getName(), jobId);
+
+			// Get its owner:
+			JobOwner owner = null;
+			if (ownerId != null){
+				if (uws != null && uws.getUserIdentifier() != null)
+					owner = uws.getUserIdentifier().restoreUser(ownerId, ownerPseudo, null);
+				else
+					owner = new DefaultJobOwner(ownerId, ownerPseudo);
+			}
+
+			// Build the job:
+			UWSJob job;
+			if (uws != null && uws.getFactory() != null)
+				job = uws.getFactory().createJob(jobId, creationTime, owner, uws.getFactory().createUWSParameters(params), quote, startTime, endTime, results, error);
+			else
+				job = new UWSJob(jobId, creationTime, owner, new UWSParameters(params), quote, startTime, endTime, results, error);
+
+			// Set its stored phase:
+			if (job.getPhase() != phase)
+				job.setPhase(phase, true);
+
+			return job;
+		}catch(SQLException se){
+			throw new UWSException(UWSException.INTERNAL_SERVER_ERROR, se, "Impossible to load the job \"" + jobId + "\" from the job store!");
+		}catch(IllegalArgumentException iae){
+			throw new UWSException(UWSException.INTERNAL_SERVER_ERROR, iae, "Incorrect description of the job \"" + jobId + "\" in the job store!");
+		}finally{
+			close(conn);
+		}
+	}
+
+	/**
+	 * Read the stored additional parameters of the specified job.
+	 *
+	 * @param conn			Connection to use.
+	 * @param jobListName	Name of the job list containing the job.
+	 * @param jobId			ID of the job.
+	 * @param uws			UWS providing the file manager to use for uploaded
+	 *           			files. <i>May be NULL.</i>
+	 *
+	 * @return	The parameters, indexed by name.
+	 *        	<i>Several values are returned as an array.</i>
+	 *
+	 * @throws SQLException	If the parameters can not be read.
+	 */
+	protected Map<String,Object> loadParameters(final Connection conn, final String jobListName, final String jobId, final UWS uws) throws SQLException{
+		Map<String,List<Object>> values = new LinkedHashMap<String,List<Object>>();
+		PreparedStatement stmt = conn.prepareStatement("SELECT name, kind, param_value, file_name, mime, file_length FROM " + getParamTable() + " WHERE job_list = ? AND job_id = ? ORDER BY name, idx");
+		try{
+			stmt.setString(1, jobListName);
+			stmt.setString(2, jobId);
+			ResultSet rs = stmt.executeQuery();
+			while(rs.next()){
+				String name = rs.getString(1);
+				Object value;
+				if (KIND_FILE.equals(rs.getString(2))){
+					UploadFile file = new UploadFile(name, rs.getString(4), rs.getString(3), (uws == null) ? null : uws.getFileManager());
+					file.mimeType = rs.getString(5);
+					file.length = rs.getLong(6);
+					value = file;
+				}else
+					value = rs.getString(3);
+				if (!values.containsKey(name))
+					values.put(name, new ArrayList<Object>(1));
+				values.get(name).add(value);
+			}
+		}finally{
+			stmt.close();
+		}
+
+		Map<String,Object> params = new HashMap<String,Object>(values.size());
+		for(Map.Entry<String,List<Object>> entry : values.entrySet())
+			params.put(entry.getKey(), (entry.getValue().size() == 1) ? entry.getValue().get(0) : entry.getValue().toArray());
+		return params;
+	}
+
+	/**
+	 * Read the stored result references of the specified job.
+	 *
+	 * @param conn			Connection to use.
+	 * @param jobListName	Name of the job list containing the job.
+	 * @param jobId			ID of the job.
+	 *
+	 * @return	The results, in their original order.
+	 *
+	 * @throws SQLException	If the results can not be read.
+	 */
+	protected List<Result> loadResults(final Connection conn, final String jobListName, final String jobId) throws SQLException{
+		List<Result> results = new ArrayList<Result>();
+		PreparedStatement stmt = conn.prepareStatement("SELECT result_id, type, href, redirection, mime, result_size FROM " + getResultTable() + " WHERE job_list = ? AND job_id = ? ORDER BY idx");
+		try{
+			stmt.setString(1, jobListName);
+			stmt.setString(2, jobId);
+			ResultSet rs = stmt.executeQuery();
+			while(rs.next()){
+				Result r = new Result(rs.getString(1), rs.getString(2), rs.getString(3), rs.getInt(4) != 0);
+				r.setMimeType(rs.getString(5));
+				r.setSize(rs.getLong(6));
+				results.add(r);
+			}
+		}finally{
+			stmt.close();
+		}
+		return results;
+	}
+
+	@Override
+	public long claim(final String jobListName, final String jobId) throws UWSException{
+		Connection conn = null;
+		try{
+			conn = dataSource.getConnection();
+			conn.setAutoCommit(false);
+			long version = claim(conn, jobListName, jobId) ? getVersion(conn, jobListName, jobId) : -1;
+			conn.commit();
+			return version;
+		}catch(SQLException se){
+			rollback(conn);
+			throw new UWSException(UWSException.INTERNAL_SERVER_ERROR, se, "Impossible to claim the job \"" + jobId + "\" in the job store!");
+		}finally{
+			close(conn);
+		}
+	}
+
+	/**
+	 * Claim the specified job for this node.
+	 *
+	 * @param conn			Connection to use.
+	 * @param jobListName	Name of the job list containing the job.
+	 * @param jobId			ID of the job to claim.
+	 *
+	 * @return	<i>true</i> if the job is claimed by this node,
+	 *        	<i>false</i> otherwise.
+	 *
+	 * @throws SQLException	If the job can not be claimed.
+	 */
+	protected boolean claim(final Connection conn, final String jobListName, final String jobId) throws SQLException{
+		PreparedStatement stmt = conn.prepareStatement("UPDATE " + getJobTable() + " SET node_id = ?, version = version + 1 WHERE job_list = ? AND job_id = ? AND phase IN (" + CLAIMABLE_PHASES + ") AND (node_id IS NULL OR node_id = ?)");
+		try{
+			stmt.setString(1, nodeId);
+			stmt.setString(2, jobListName);
+			stmt.setString(3, jobId);
+			stmt.setString(4, nodeId);
+			return stmt.executeUpdate() > 0;
+		}finally{
+			stmt.close();
+		}
+	}
+
+	@Override
+	public String getClaimingNode(final String jobListName, final String jobId) throws UWSException{
+		Connection conn = null;
+		try{
+			conn = dataSource.getConnection();
+			PreparedStatement stmt = conn.prepareStatement("SELECT node_id FROM " + getJobTable() + " WHERE job_list = ? AND job_id = ?");
+			try{
+				stmt.setString(1, jobListName);
+				stmt.setString(2, jobId);
+				ResultSet rs = stmt.executeQuery();
+				return rs.next() ? rs.getString(1) : null;
+			}finally{
+				stmt.close();
+			}
+		}catch(SQLException se){
+			throw new UWSException(UWSException.INTERNAL_SERVER_ERROR, se, "Impossible to get the node having claimed the job \"" + jobId + "\" from the job store!");
+		}finally{
+			close(conn);
+		}
+	}
+
+	@Override
+	public String claimNext(final String jobListName) throws UWSException{
+		Connection conn = null;
+		try{
+			conn = dataSource.getConnection();
+
+			// List the claimable queued jobs, the oldest first:
+			List<String> candidates = new ArrayList<String>();
+			PreparedStatement stmt = conn.prepareStatement("SELECT job_id FROM " + getJobTable() + " WHERE job_list = ? AND phase = '" + ExecutionPhase.QUEUED + "' AND node_id IS NULL ORDER BY creation_time, job_id");
+			try{
+				stmt.setString(1, jobListName);
+				ResultSet rs = stmt.executeQuery();
+				while(rs.next())
+					candidates.add(rs.getString(1));
+			}finally{
+				stmt.close();
+			}
+
+			// Claim the first one not yet claimed by another node in the meantime:
+			for(String jobId : candidates){
+				if (claim(conn, jobListName, jobId))
+					return jobId;
+			}
+			return null;
+		}catch(SQLException se){
+			throw new UWSException(UWSException.INTERNAL_SERVER_ERROR, se, "Impossible to claim a queued job of \"" + jobListName + "\" in the job store!");
+		}finally{
+			close(conn);
+		}
+	}
+
+	/**
+	 * Roll back the current transaction of the given connection, ignoring any
+	 * error.
+	 *
+	 * @param conn	The connection. <i>May be NULL.</i>
+	 */
+	protected void rollback(final Connection conn){
+		try{
+			if (conn != null && !conn.getAutoCommit())
+				conn.rollback();
+		}catch(SQLException se){}
+	}
+
+	/**
+	 * Give back the given connection to the data source, ignoring any error.
+	 *
+	 * @param conn	The connection. <i>May be NULL.</i>
+	 */
+	protected void close(final Connection conn){
+		try{
+			if (conn != null){
+				if (!conn.getAutoCommit())
+					conn.setAutoCommit(true);
+				conn.close();
+			}
+		}catch(SQLException se){}
+	}
+
+}
@@ -0,0 +1,208 @@
+package uws.service.store;
+
+/*
+ * This file is part of UWSLibrary.
+ *
+ * UWSLibrary is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * UWSLibrary is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with UWSLibrary.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright 2026 - UDS/Centre de Données astronomiques de Strasbourg (CDS)
+ */
+
+import java.util.Map;
+
+import uws.UWSException;
+import uws.job.ExecutionPhase;
+import uws.job.JobList;
+import uws.job.UWSJob;
+
+/**
+ * Storage of jobs shared by several instances (nodes) of the same UWS service.
+ *
+ * <p>
+ * 	When a {@link JobList} is given a job store (see
+ * 	{@link JobList#setJobStore(JobStore)}), every job it creates is also
+ * 	written in the store, and every job written in the store by another node
+ * 	becomes visible in this list. Thus, several nodes behind a load balancer
+ * 	can serve the same job list without sticky sessions.
+ * </p>
+ *
+ * <p>
+ * 	Every stored job has a <b>version</b>, incremented at each modification.
+ * 	It lets a node know cheaply whether its copy of a job created or executed
+ * 	elsewhere is still up-to-date.
+ * </p>
+ *
+ * <p>
+ * 	Phase transitions are done with optimistic locking (see
+ * 	{@link #updatePhase(String, UWSJob, ExecutionPhase)}): a node can change
+ * 	the phase of a stored job only if nobody else has changed it in the
+ * 	meantime.
+ * </p>
+ *
+ * <p>
+ * 	Before starting a job, a node must <b>claim</b> it (see
+ * 	{@link #claim(String, String)}). Only one node can successfully claim a
+ * 	job ; so, a job is never executed twice, even if it has been queued on
+ * 	several nodes.
+ * </p>
+ *
+ * @author Gr&eacute;gory Mantelet (CDS)
+ * @version 4.5 (10/2026)
+ * @since 4.5
+ *
+ * @see JDBCJobStore
+ */
+public interface JobStore {
+
+	/**
+	 * Get the ID of the node (i.e. of this instance of the UWS service) using
+	 * this store.
+	 *
+	 * @return	ID of this node.
+	 */
+	public String getNodeId();
+
+	/**
+	 * Insert the given job in the store or, if already stored, update it
+	 * entirely (phase, parameters, results, ...) whatever is its stored
+	 * version.
+	 *
+	 * @param jobListName	Name of the job list containing the job.
+	 * @param job			The job to save.
+	 *
+	 * @return	The new version of the stored job.
+	 *
+	 * @throws UWSException	If the job can not be saved.
+	 */
+	public long save(final String jobListName, final UWSJob job) throws UWSException;
+
+	/**
+	 * Update the stored job with the current state of the given job ONLY IF
+	 * its stored phase is still the given expected one.
+	 *
+	 * @param jobListName	Name of the job list containing the job.
+	 * @param job			The job whose phase has changed.
+	 * @param expectedPhase	Phase the job is supposed to have in the store
+	 *                     	(i.e. its phase before the transition).
+	 *
+	 * @return	The new version of the stored job,
+	 *        	or -1 if the stored phase was not the expected one
+	 *        	(i.e. another node has changed it) or if the job is not stored.
+	 *
+	 * @throws UWSException	If the job can not be updated.
+	 */
+	public long updatePhase(final String jobListName, final UWSJob job, final ExecutionPhase expectedPhase) throws UWSException;
+
+	/**
+	 * Remove the specified job from the store.
+	 *
+	 * @param jobListName	Name of the job list containing the job.
+	 * @param jobId			ID of the job to remove.
+	 *
+	 * @return	<i>true</i> if the job has been removed,
+	 *        	<i>false</i> if it was not stored.
+	 *
+	 * @throws UWSException	If the job can not be removed.
+	 */
+	public boolean remove(final String jobListName, final String jobId) throws UWSException;
+
+	/**
+	 * Get the version of all jobs stored for the specified job list.
+	 *
+	 * @param jobListName	Name of the job list.
+	 *
+	 * @return	Versions of all stored jobs, indexed by job ID.
+	 *        	<i>Never NULL.</i>
+	 *
+	 * @throws UWSException	If the store can not be read.
+	 */
+	public Map<String,Long> getVersions(final String jobListName) throws UWSException;
+
+	/**
+	 * Get the version of the specified stored job.
+	 *
+	 * @param jobListName	Name of the job list containing the job.
+	 * @param jobId			ID of the job.
+	 *
+	 * @return	Its version, or -1 if it is not stored.
+	 *
+	 * @throws UWSException	If the store can not be read.
+	 */
+	public long getVersion(final String jobListName, final String jobId) throws UWSException;
+
+	/**
+	 * Build a job from its stored description.
+	 *
+	 * <p>
+	 * 	The returned job is not yet part of the given job list. Its phase is
+	 * 	the stored one.
+	 * </p>
+	 *
+	 * @param jobList	The job list containing the job. Its UWS, if any, is
+	 *               	used to build the job, its owner and its parameters.
+	 * @param jobId		ID of the job to load.
+	 *
+	 * @return	The loaded job, or NULL if it is not stored.
+	 *
+	 * @throws UWSException	If the store can not be read or if the job can not
+	 *                     	be built.
+	 */
+	public UWSJob load(final JobList jobList, final String jobId) throws UWSException;
+
+	/**
+	 * Claim the specified job for this node, so that it is the only one to
+	 * execute it.
+	 *
+	 * <p>
+	 * 	A job can be claimed only if it is not yet finished nor executing, and
+	 * 	if it has not already been claimed by another node.
+	 * </p>
+	 *
+	 * @param jobListName	Name of the job list containing the job.
+	 * @param jobId			ID of the job to claim.
+	 *
+	 * @return	The new version of the stored job if this node can execute it
+	 *        	(i.e. it is claimed by this node),
+	 *        	or -1 otherwise.
+	 *
+	 * @throws UWSException	If the store can not be updated.
+	 */
+	public long claim(final String jobListName, final String jobId) throws UWSException;
+
+	/**
+	 * Get the node having claimed the specified job.
+	 *
+	 * @param jobListName	Name of the job list containing the job.
+	 * @param jobId			ID of the job.
+	 *
+	 * @return	ID of the node having claimed it,
+	 *        	or NULL if it is not claimed or not stored.
+	 *
+	 * @throws UWSException	If the store can not be read.
+	 */
+	public String getClaimingNode(final String jobListName, final String jobId) throws UWSException;
+
+	/**
+	 * Claim for this node the oldest {@link ExecutionPhase#QUEUED QUEUED} job
+	 * not claimed by any node.
+	 *
+	 * @param jobListName	Name of the job list.
+	 *
+	 * @return	ID of the claimed job, or NULL if there is no job to claim.
+	 *
+	 * @throws UWSException	If the store can not be read or updated.
+	 */
+	public String claimNext(final String jobListName) throws UWSException;
+
+}
@@ -0,0 +1,102 @@
+package adql.search;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import adql.parser.ADQLParser;
+import adql.query.ADQLObject;
+import adql.query.ADQLQuery;
+
+public class TestSimpleVisitor {
+
+	@Test
+	public void testSameOrderAsSearchHandler() throws Exception{
+		ADQLQuery query = (new ADQLParser()).parseQuery("SELECT a, SQRT(ABS(b)) AS c FROM t1 JOIN t2 USING(id) WHERE 1 = CONTAINS(POINT('ICRS', ra, dec), CIRCLE('ICRS', 10, 20, 1)) AND d IN (SELECT d FROM t3 WHERE e > 2) GROUP BY a ORDER BY 2");
+
+		// Non-recursive search of all objects:
+		SimpleSearchHandler search = new SimpleSearchHandler(){
+			@Override
+			protected boolean match(ADQLObject obj){
+				return true;
+			}
+		};
+		search.search(query);
+		List<ADQLObject> expected = new ArrayList<ADQLObject>();
+		for(ADQLObject obj : search)
+			expected.add(obj);
+
+		// Same traversal with a visitor:
+		final List<ADQLObject> entered = new ArrayList<ADQLObject>();
+		final List<ADQLObject> left = new ArrayList<ADQLObject>();
+		final ADQLQuery[] root = new ADQLQuery[1];
+		SimpleVisitor visitor = new SimpleVisitor(){
+			@Override
+			protected boolean enter(ADQLObject obj, ADQLObject parent){
+				entered.add(obj);
+				if (parent == null)
+					root[0] = (ADQLQuery)obj;
+				// like a non-recursive search handler:
+				return parent == null || !(obj instanceof ADQLQuery);
+			}
+
+			@Override
+			protected void leave(ADQLObject obj){
+				left.add(obj);
+			}
+		};
+		visitor.visit(query);
+
+		assertSame(query, root[0]);
+		assertEquals(expected, entered);
+
+		// Every object is left once, after all its children:
+		assertEquals(entered.size(), left.size());
+		assertSame(query, left.get(left.size() - 1));
+		for(ADQLObject obj : entered)
+			assertTrue(left.indexOf(obj) >= 0);
+	}
+
+	@Test
+	public void testParentAndPruning() throws Exception{
+		final ADQLQuery query = (new ADQLParser()).parseQuery("SELECT SQRT(ABS(81)) FROM t1 JOIN t2 USING(id)");
+		final List<ADQLObject> entered = new ArrayList<ADQLObject>();
+		final List<ADQLObject> parents = new ArrayList<ADQLObject>();
+		new SimpleVisitor(){
+			@Override
+			protected boolean enter(ADQLObject obj, ADQLObject parent){
+				entered.add(obj);
+				parents.add(parent);
+				// do not go inside the clause FROM:
+				return obj != query.getFrom();
+			}
+		}.visit(query);
+
+		// The root has no parent:
+		assertSame(query, entered.get(0));
+		assertNull(parents.get(0));
+
+		// Each function is the parent of its parameter:
+		int indSqrt = -1;
+		for(int i = 0; i < entered.size(); i++){
+			if ("SQRT".equals(entered.get(i).getName()))
+				indSqrt = i;
+		}
+		assertTrue(indSqrt > 0);
+		assertEquals("ABS", entered.get(indSqrt + 1).getName());
+		assertSame(entered.get(indSqrt), parents.get(indSqrt + 1));
+		assertEquals("81", entered.get(indSqrt + 2).toADQL());
+		assertSame(entered.get(indSqrt + 1), parents.get(indSqrt + 2));
+
+		// Nothing is visited inside the clause FROM:
+		assertTrue(entered.contains(query.getFrom()));
+		assertTrue(!parents.contains(query.getFrom()));
+	}
+
+}
@@ -8,8 +8,15 @@ import org.junit.Test;
 
 import adql.db.DBType;
 import adql.db.STCS.Region;
+import adql.parser.ADQLParser;
 import adql.parser.ParseException;
 import adql.query.IdentifierField;
+import adql.query.constraint.In;
+import adql.query.constraint.NotConstraint;
+import adql.query.operand.ADQLColumn;
+import adql.query.operand.ADQLOperand;
+import adql.query.operand.NumericConstant;
+import adql.query.operand.Operation;
 import adql.query.operand.StringConstant;
 import adql.query.operand.function.geometry.AreaFunction;
 import adql.query.operand.function.geometry.BoxFunction;
@@ -29,6 +36,32 @@ public class TestJDBCTranslator {
 	@Before
 	public void setUp() throws Exception{}
 
+	@Test
+	public void testTranslateLongInList(){
+		JDBCTranslator tr = new AJDBCTranslator();
+
+		/* A very long IN list must be appended into a single buffer (with string
+		 * concatenations, 50,000 values used to take several seconds): */
+		final int NB_VALUES = 50000;
+		ADQLOperand[] values = new ADQLOperand[NB_VALUES];
+		StringBuilder expected = new StringBuilder("id IN (");
+		for(int i = 0; i < NB_VALUES; i++){
+			values[i] = new NumericConstant("" + i);
+			expected.append((i > 0) ? " , " : "").append(i);
+		}
+		expected.append(')');
+		try{
+			assertEquals(expected.toString(), tr.translate(new In(new ADQLColumn("id"), values)));
+
+			// Same translation when appended into an existing buffer:
+			StringBuilder buffer = new StringBuilder("WHERE ");
+			assertEquals("WHERE " + expected, tr.translate(new In(new ADQLColumn("id"), values), buffer).toString());
+		}catch(TranslationException e){
+			e.printStackTrace(System.err);
+			fail("There should have been no problem to translate a long IN list into SQL.");
+		}
+	}
+
 	@Test
 	public void testTranslateStringConstant(){
 		JDBCTranslator tr = new AJDBCTranslator();
@@ -44,6 +77,36 @@ public class TestJDBCTranslator {
 		}
 	}
 
+	@Test
+	public void testOverriddenTranslate(){
+		// Translator overriding the translation of operations and NOT constraints:
+		JDBCTranslator tr = new PostgreSQLTranslator(false){
+			@Override
+			protected StringBuilder translate(final Operation op, final StringBuilder sql) throws TranslationException{
+				return super.translate(op, sql.append("OP[")).append(']');
+			}
+
+			@Override
+			protected StringBuilder translate(final NotConstraint notCons, final StringBuilder sql) throws TranslationException{
+				return translate(notCons.getConstraint(), sql.append("NOT(")).append(')');
+			}
+		};
+		try{
+			// The overridden functions must be used also for the nested items:
+			final String adql = "SELECT a + b * -(c - 1) FROM t WHERE NOT x = 1 + 2 AND y IN (1, 2 * 3)";
+			assertEquals("SELECT OP[a+OP[b*-(OP[c-1])]] AS \"SUM\"\nFROM t\nWHERE NOT(x = OP[1+2]) AND y IN (1 , OP[2*3])", tr.translate((new ADQLParser()).parseQuery(adql)));
+
+			// ...but not by the other translators:
+			assertEquals("SELECT a+b*-(c-1) AS \"SUM\"\nFROM t\nWHERE NOT x = 1+2 AND y IN (1 , 2*3)", (new PostgreSQLTranslator(false)).translate((new ADQLParser()).parseQuery(adql)));
+		}catch(ParseException pe){
+			pe.printStackTrace(System.err);
+			fail("The given ADQL query is correct. No error should have occurred while parsing it.");
+		}catch(TranslationException te){
+			te.printStackTrace(System.err);
+			fail("There should have been no problem to translate this query into SQL.");
+		}
+	}
+
 	public final static class AJDBCTranslator extends JDBCTranslator {
 
 		@Override
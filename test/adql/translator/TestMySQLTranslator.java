@@ -1,10 +1,20 @@
 package adql.translator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.junit.Test;
 
+import adql.db.DBChecker;
+import adql.db.DBTable;
+import adql.db.DBType;
+import adql.db.DBType.DBDatatype;
+import adql.db.DefaultDBColumn;
+import adql.db.DefaultDBTable;
 import adql.parser.ADQLParser;
 import adql.parser.ParseException;
 import adql.query.ADQLQuery;
@@ -33,4 +43,93 @@ public class TestMySQLTranslator {
 		}
 	}
 
+	@Test
+	public void testBoundingBoxPrefilter(){
+		try{
+			MySQLTranslator translator = new MySQLTranslator(false);
+			ADQLParser parser = new ADQLParser();
+
+			// Cone search => Dec and RA ranges + exact refinement:
+			String sql = translator.translate(parser.parseQuery("SELECT * FROM aTable WHERE CONTAINS(POINT('', ra, dec), CIRCLE('', 10, 20, 1)) = 1").getWhere());
+			assertTrue(sql.startsWith("WHERE (dec BETWEEN 18.999999999 AND 21.000000001 AND ra BETWEEN 8.93581506"));
+			assertTrue(sql.endsWith("POWER(SIN(RADIANS(ra - 10.0) / 2), 2)))) <= 1.0)"));
+
+			// RA wrap-around:
+			sql = translator.translate(parser.parseQuery("SELECT * FROM aTable WHERE 1 = CONTAINS(POINT('', ra, dec), CIRCLE('', -0.5, 0, 1))").getWhere());
+			assertTrue(sql.startsWith("WHERE (dec BETWEEN -1.000000001 AND 1.000000001 AND (ra BETWEEN 358.499999999 AND 360.0 OR ra BETWEEN 0.0 AND 0.50000000"));
+
+			// Pole included => no RA range (+ negation):
+			sql = translator.translate(parser.parseQuery("SELECT * FROM aTable WHERE INTERSECTS(CIRCLE('', 0.2, -89.5, 1), POINT('', ra, dec)) = 0").getWhere());
+			assertTrue(sql.startsWith("WHERE NOT (dec BETWEEN -90.0 AND -88.499999999 AND DEGREES("));
+			assertTrue(sql.contains("COS(RADIANS((-89.5)))"));
+
+			// DISTANCE with a strict comparison:
+			sql = translator.translate(parser.parseQuery("SELECT * FROM aTable WHERE 0.5 > DISTANCE(POINT('', 10, 20), POINT('', ra, dec))").getWhere());
+			assertTrue(sql.startsWith("WHERE (dec BETWEEN 19.499999999 AND 20.500000001 AND ra BETWEEN 9.4679102"));
+			assertTrue(sql.endsWith(" < 0.5)"));
+
+			// Box => ranges only:
+			assertEquals("WHERE (dec BETWEEN 17.999999999 AND 22.000000001 AND ra BETWEEN 8.999999999 AND 11.000000001)", translator.translate(parser.parseQuery("SELECT * FROM aTable WHERE CONTAINS(POINT('', ra, dec), BOX('', 10, 20, 2, 4)) = 1").getWhere()));
+
+			// Not supported => unchanged:
+			assertEquals("WHERE CONTAINS(POINT('', ra, dec), POLYGON('', 10, 20, 11, 21, 12, 20)) = 1", translator.translate(parser.parseQuery("SELECT * FROM aTable WHERE CONTAINS(POINT('', ra, dec), POLYGON('', 10, 20, 11, 21, 12, 20)) = 1").getWhere()));
+
+			// DISTANCE alone => exact spherical distance:
+			assertEquals("SELECT DEGREES(2 * ASIN(SQRT(POWER(SIN(RADIANS(dec - 20.0) / 2), 2) + COS(RADIANS(dec)) * COS(RADIANS(20.0)) * POWER(SIN(RADIANS(ra - 10.0) / 2), 2)))) AS `DISTANCE`", translator.translate(parser.parseQuery("SELECT DISTANCE(POINT('', ra, dec), POINT('', 10, 20)) FROM aTable").getSelect()));
+
+		}catch(ParseException pe){
+			pe.printStackTrace();
+			fail("The given ADQL query is completely correct. No error should have occurred while parsing it. (see the console for more details)");
+		}catch(TranslationException te){
+			te.printStackTrace();
+			fail("No error was expected from this translation. (see the console for more details)");
+		}
+	}
+
+	@Test
+	public void testPrefilterPositionColumns(){
+		List<DBTable> tables = new ArrayList<DBTable>(2);
+		// A table whose position columns have non-default names:
+		DefaultDBTable t = new DefaultDBTable("stars");
+		t.addColumn(new DefaultDBColumn("alpha", new DBType(DBDatatype.DOUBLE), t));
+		t.addColumn(new DefaultDBColumn("delta", new DBType(DBDatatype.DOUBLE), t));
+		t.addColumn(new DefaultDBColumn("pos", new DBType(DBDatatype.POINT), t));
+		tables.add(t);
+		// A table declaring its main position with UCDs:
+		t = new DefaultDBTable("galaxies");
+		t.addColumn(new DefaultDBColumn("ra", new DBType(DBDatatype.DOUBLE), t));
+		t.addColumn(new DefaultDBColumn("dec", new DBType(DBDatatype.DOUBLE), t));
+		DefaultDBColumn col = new DefaultDBColumn("raj2000", new DBType(DBDatatype.DOUBLE), t);
+		col.setUcd("pos.eq.ra;meta.main");
+		t.addColumn(col);
+		col = new DefaultDBColumn("dej2000", new DBType(DBDatatype.DOUBLE), t);
+		col.setUcd("pos.eq.dec;meta.main");
+		t.addColumn(col);
+		t.addColumn(new DefaultDBColumn("pos", new DBType(DBDatatype.POINT), t));
+		tables.add(t);
+
+		try{
+			MySQLTranslator translator = new MySQLTranslator(false);
+			ADQLParser parser = new ADQLParser(new DBChecker(tables));
+
+			// RA/Dec columns found with their UCD:
+			assertEquals("WHERE (galaxies.dej2000 BETWEEN 17.999999999 AND 22.000000001 AND galaxies.raj2000 BETWEEN 8.999999999 AND 11.000000001)", translator.translate(parser.parseQuery("SELECT * FROM galaxies WHERE CONTAINS(pos, BOX('', 10, 20, 2, 4)) = 1").getWhere()));
+
+			// No UCD and no column with the default names => unchanged:
+			assertEquals("WHERE CONTAINS(stars.pos, BOX('', 10, 20, 2, 4)) = 1", translator.translate(parser.parseQuery("SELECT * FROM stars WHERE CONTAINS(pos, BOX('', 10, 20, 2, 4)) = 1").getWhere()));
+
+			// No UCD => the global names are used as fallback (but not instead of the UCDs):
+			translator.getBoundingBoxPrefilter().setPositionColumnNames("alpha", "delta");
+			assertEquals("WHERE (stars.delta BETWEEN 17.999999999 AND 22.000000001 AND stars.alpha BETWEEN 8.999999999 AND 11.000000001)", translator.translate(parser.parseQuery("SELECT * FROM stars WHERE CONTAINS(pos, BOX('', 10, 20, 2, 4)) = 1").getWhere()));
+			assertEquals("WHERE (galaxies.dej2000 BETWEEN 17.999999999 AND 22.000000001 AND galaxies.raj2000 BETWEEN 8.999999999 AND 11.000000001)", translator.translate(parser.parseQuery("SELECT * FROM galaxies WHERE CONTAINS(pos, BOX('', 10, 20, 2, 4)) = 1").getWhere()));
+
+		}catch(ParseException pe){
+			pe.printStackTrace();
+			fail("The given ADQL query is completely correct. No error should have occurred while parsing it. (see the console for more details)");
+		}catch(TranslationException te){
+			te.printStackTrace();
+			fail("No error was expected from this translation. (see the console for more details)");
+		}
+	}
+
 }
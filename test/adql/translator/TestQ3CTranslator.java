@@ -0,0 +1,112 @@
+package adql.translator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import adql.db.DBChecker;
+import adql.db.DBTable;
+import adql.db.DBType;
+import adql.db.DBType.DBDatatype;
+import adql.db.DefaultDBColumn;
+import adql.db.DefaultDBTable;
+import adql.parser.ADQLParser;
+import adql.query.ADQLQuery;
+
+public class TestQ3CTranslator {
+
+	private List<DBTable> tables = null;
+
+	@Before
+	public void setUp() throws Exception{
+		tables = new ArrayList<DBTable>(1);
+		DefaultDBTable t = new DefaultDBTable("stars");
+		t.addColumn(new DefaultDBColumn("id", t));
+		t.addColumn(new DefaultDBColumn("ra", new DBType(DBDatatype.DOUBLE), t));
+		t.addColumn(new DefaultDBColumn("dec", new DBType(DBDatatype.DOUBLE), t));
+		t.addColumn(new DefaultDBColumn("pos", new DBType(DBDatatype.POINT), t));
+		tables.add(t);
+
+		// A table whose position columns have other names, but the standard UCDs:
+		t = new DefaultDBTable("galaxies");
+		t.addColumn(new DefaultDBColumn("id", t));
+		t.addColumn(new DefaultDBColumn("ra", new DBType(DBDatatype.DOUBLE), t));
+		t.addColumn(new DefaultDBColumn("dec", new DBType(DBDatatype.DOUBLE), t));
+		DefaultDBColumn col = new DefaultDBColumn("raj2000", new DBType(DBDatatype.DOUBLE), t);
+		col.setUcd("pos.eq.ra;meta.main");
+		t.addColumn(col);
+		col = new DefaultDBColumn("dej2000", new DBType(DBDatatype.DOUBLE), t);
+		col.setUcd("POS.EQ.DEC;META.MAIN");
+		t.addColumn(col);
+		t.addColumn(new DefaultDBColumn("pos", new DBType(DBDatatype.POINT), t));
+		tables.add(t);
+	}
+
+	private String translateWhere(final String adql) throws Exception{
+		return translateWhere(adql, new Q3CTranslator(false));
+	}
+
+	private String translateWhere(final String adql, final Q3CTranslator translator) throws Exception{
+		ADQLQuery query = (new ADQLParser(new DBChecker(tables))).parseQuery(adql);
+		return translator.translate(query.getWhere());
+	}
+
+	@Test
+	public void testConeSearch(){
+		try{
+			// CASE: CONTAINS(POINT, CIRCLE) = 1
+			assertEquals("WHERE q3c_radial_query(stars.ra, stars.dec, 10, -20.5, 0.1)", translateWhere("SELECT id FROM stars WHERE CONTAINS(POINT('ICRS', ra, dec), CIRCLE('ICRS', 10, -20.5, 0.1)) = 1"));
+
+			// CASE: 1 = CONTAINS(...) with a POINT column
+			assertEquals("WHERE q3c_radial_query(stars.ra, stars.dec, 10, 20, 0.1)", translateWhere("SELECT id FROM stars WHERE 1 = CONTAINS(pos, CIRCLE('ICRS', 10, 20, 0.1))"));
+
+			// CASE: negation
+			assertEquals("WHERE NOT q3c_radial_query(stars.ra, stars.dec, 10, 20, 0.1)", translateWhere("SELECT id FROM stars WHERE CONTAINS(POINT('ICRS', ra, dec), CIRCLE('ICRS', 10, 20, 0.1)) = 0"));
+
+			// CASE: INTERSECTS(CIRCLE, POINT) = 1
+			assertEquals("WHERE q3c_radial_query(stars.ra, stars.dec, 10, 20, 0.1)", translateWhere("SELECT id FROM stars WHERE INTERSECTS(CIRCLE('ICRS', 10, 20, 0.1), POINT('ICRS', ra, dec)) = 1"));
+
+			// CASE: BOX and POLYGON
+			assertEquals("WHERE q3c_poly_query(stars.ra, stars.dec, ARRAY[10-(2)/2.0, 20-(1)/2.0, 10-(2)/2.0, 20+(1)/2.0, 10+(2)/2.0, 20+(1)/2.0, 10+(2)/2.0, 20-(1)/2.0])", translateWhere("SELECT id FROM stars WHERE CONTAINS(POINT('ICRS', ra, dec), BOX('ICRS', 10, 20, 2, 1)) = 1"));
+			assertEquals("WHERE q3c_poly_query(stars.ra, stars.dec, ARRAY[10, 20, 11, 20, 11, 21])", translateWhere("SELECT id FROM stars WHERE CONTAINS(POINT('ICRS', ra, dec), POLYGON('ICRS', 10, 20, 11, 20, 11, 21)) = 1"));
+
+			// CASE: DISTANCE(...) < r and r >= DISTANCE(...)
+			assertEquals("WHERE (q3c_join(10, 20, stars.ra, stars.dec, 0.1) AND q3c_dist(10, 20, stars.ra, stars.dec) < 0.1)", translateWhere("SELECT id FROM stars WHERE DISTANCE(POINT('ICRS', ra, dec), POINT('ICRS', 10, 20)) < 0.1"));
+			assertEquals("WHERE q3c_join(10, 20, stars.ra, stars.dec, 0.1)", translateWhere("SELECT id FROM stars WHERE 0.1 >= DISTANCE(POINT('ICRS', 10, 20), pos)"));
+
+			// CASE: DISTANCE alone
+			assertEquals("WHERE q3c_dist(stars.ra, stars.dec, 10, 20) > 1", translateWhere("SELECT id FROM stars WHERE DISTANCE(POINT('ICRS', ra, dec), POINT('ICRS', 10, 20)) > 1"));
+
+		}catch(Exception ex){
+			ex.printStackTrace();
+			fail("Unexpected error while translating a cone search! (see the console for more details)");
+		}
+	}
+
+	@Test
+	public void testPositionColumns(){
+		try{
+			// CASE: RA/Dec columns found with their UCD
+			assertEquals("WHERE q3c_radial_query(galaxies.raj2000, galaxies.dej2000, 10, 20, 0.1)", translateWhere("SELECT id FROM galaxies WHERE CONTAINS(pos, CIRCLE('ICRS', 10, 20, 0.1)) = 1"));
+
+			// CASE: each table is resolved with its own columns (in a join)
+			assertEquals("WHERE q3c_join(stars.ra, stars.dec, galaxies.raj2000, galaxies.dej2000, 0.1)", translateWhere("SELECT stars.id FROM stars, galaxies WHERE DISTANCE(stars.pos, galaxies.pos) <= 0.1"));
+
+			// CASE: no UCD => the global names are used as fallback
+			Q3CTranslator translator = new Q3CTranslator(false);
+			translator.setPositionColumnNames("dec", "ra");
+			assertEquals("WHERE q3c_radial_query(stars.dec, stars.ra, 10, 20, 0.1)", translateWhere("SELECT id FROM stars WHERE CONTAINS(pos, CIRCLE('ICRS', 10, 20, 0.1)) = 1", translator));
+			assertEquals("WHERE q3c_radial_query(galaxies.raj2000, galaxies.dej2000, 10, 20, 0.1)", translateWhere("SELECT id FROM galaxies WHERE CONTAINS(pos, CIRCLE('ICRS', 10, 20, 0.1)) = 1", translator));
+
+		}catch(Exception ex){
+			ex.printStackTrace();
+			fail("Unexpected error while resolving a POINT column! (see the console for more details)");
+		}
+	}
+
+}
@@ -1,6 +1,7 @@
 package adql.translator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.util.ArrayList;
@@ -105,4 +106,31 @@ public class TestSQLServerTranslator {
 		}
 	}
 
+	@Test
+	public void testBoundingBoxPrefilter(){
+		try{
+			SQLServerTranslator translator = new SQLServerTranslator(false);
+			ADQLParser parser = new ADQLParser(new SQLServer_ADQLQueryFactory());
+
+			// Integral center and radius => floating-point literals only (otherwise, RADIANS(20) = 0 in MS SQL Server):
+			String sql = translator.translate(parser.parseQuery("SELECT * FROM aTable WHERE CONTAINS(POINT('', ra, dec), CIRCLE('', 10, 20, 1)) = 1").getWhere());
+			assertTrue(sql.startsWith("WHERE (dec BETWEEN 18.999999999 AND 21.000000001 AND ra BETWEEN 8.93581506"));
+			assertTrue(sql.endsWith("DEGREES(2 * ASIN(SQRT(POWER(SIN(RADIANS(dec - 20.0) / 2), 2) + COS(RADIANS(dec)) * COS(RADIANS(20.0)) * POWER(SIN(RADIANS(ra - 10.0) / 2), 2)))) <= 1.0)"));
+
+			sql = translator.translate(parser.parseQuery("SELECT * FROM aTable WHERE DISTANCE(POINT('', ra, dec), POINT('', 0, -30)) < 2").getWhere());
+			assertTrue(sql.startsWith("WHERE (dec BETWEEN -32.000000001 AND -27.999999999 AND (ra BETWEEN 357.6"));
+			assertTrue(sql.endsWith("DEGREES(2 * ASIN(SQRT(POWER(SIN(RADIANS(dec - (-30.0)) / 2), 2) + COS(RADIANS(dec)) * COS(RADIANS((-30.0))) * POWER(SIN(RADIANS(ra - 0.0) / 2), 2)))) < 2.0)"));
+
+			// DISTANCE alone:
+			assertEquals("SELECT DEGREES(2 * ASIN(SQRT(POWER(SIN(RADIANS(dec - (-30.0)) / 2), 2) + COS(RADIANS(dec)) * COS(RADIANS((-30.0))) * POWER(SIN(RADIANS(ra - 0.0) / 2), 2)))) AS \"DISTANCE\"", translator.translate(parser.parseQuery("SELECT DISTANCE(POINT('', ra, dec), POINT('', 0, -30)) FROM aTable").getSelect()));
+
+		}catch(ParseException pe){
+			pe.printStackTrace();
+			fail("The given ADQL query is completely correct. No error should have occurred while parsing it. (see the console for more details)");
+		}catch(TranslationException te){
+			te.printStackTrace();
+			fail("No error was expected from this translation. (see the console for more details)");
+		}
+	}
+
 }
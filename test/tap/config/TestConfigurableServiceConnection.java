@@ -30,6 +30,7 @@ import static tap.config.TAPConfiguration.KEY_TAP_FACTORY;
 import static tap.config.TAPConfiguration.KEY_UDFS;
 import static tap.config.TAPConfiguration.KEY_USER_IDENTIFIER;
 import static tap.config.TAPConfiguration.VALUE_ANY;
+import static tap.config.TAPConfiguration.VALUE_ARROW;
 import static tap.config.TAPConfiguration.VALUE_CSV;
 import static tap.config.TAPConfiguration.VALUE_DB;
 import static tap.config.TAPConfiguration.VALUE_FITS;
@@ -69,6 +70,7 @@ import tap.db.DBConnection;
 import tap.db.DBException;
 import tap.db.JDBCConnection;
 import tap.db_testtools.DBTools;
+import tap.formatter.ArrowFormat;
 import tap.formatter.OutputFormat;
 import tap.formatter.VOTableFormat;
 import tap.log.DefaultTAPLog;
@@ -98,7 +100,7 @@ public class TestConfigurableServiceConnection {
 			xmlMetaPropWithANonMetaClass, wrongManualMetaProp, missingMetaProp,
 			missingMetaFileProp, wrongMetaProp, wrongMetaFileProp,
 			validFormatsProp, validVOTableFormatsProp, badSVFormat1Prop,
-			badSVFormat2Prop, badVotFormat1Prop, badVotFormat2Prop,
+			badSVFormat2Prop, badArrowFormatProp, badVotFormat1Prop, badVotFormat2Prop,
 			badVotFormat3Prop, badVotFormat4Prop, badVotFormat5Prop,
 			badVotFormat6Prop, unknownFormatProp, maxAsyncProp,
 			negativeMaxAsyncProp, notIntMaxAsyncProp, defaultOutputLimitProp,
@@ -189,7 +191,7 @@ public class TestConfigurableServiceConnection {
 		missingMetaFileProp.remove(KEY_METADATA_FILE);
 
 		validFormatsProp = (Properties)validProp.clone();
-		validFormatsProp.setProperty(KEY_OUTPUT_FORMATS, VALUE_FITS + "," + VALUE_TEXT + "," + VALUE_JSON + "," + VALUE_CSV + " , " + VALUE_TSV + ",, , " + VALUE_SV + "([])" + ", " + VALUE_SV + "(|):text/psv:psv" + ", " + VALUE_SV + "($)::test" + ", \t  " + VALUE_SV + "(@):text/arobase:" + ", {tap.formatter.HTMLFormat}");
+		validFormatsProp.setProperty(KEY_OUTPUT_FORMATS, VALUE_FITS + "," + VALUE_TEXT + "," + VALUE_JSON + "," + VALUE_CSV + " , " + VALUE_TSV + ",, , " + VALUE_SV + "([])" + ", " + VALUE_SV + "(|):text/psv:psv" + ", " + VALUE_SV + "($)::test" + ", \t  " + VALUE_SV + "(@):text/arobase:" + ", {tap.formatter.HTMLFormat}, " + VALUE_ARROW + "(500)");
 
 		validVOTableFormatsProp = (Properties)validProp.clone();
 		validVOTableFormatsProp.setProperty(KEY_OUTPUT_FORMATS, "votable, votable()::, vot(), vot::, votable:, votable(Td, 1.0), vot(TableData), votable(,1.2), vot(Fits):application/fits:supervot");
@@ -200,6 +202,9 @@ public class TestConfigurableServiceConnection {
 		badSVFormat2Prop = (Properties)validProp.clone();
 		badSVFormat2Prop.setProperty(KEY_OUTPUT_FORMATS, VALUE_SV + "()");
 
+		badArrowFormatProp = (Properties)validProp.clone();
+		badArrowFormatProp.setProperty(KEY_OUTPUT_FORMATS, VALUE_ARROW + "(foo)");
+
 		badVotFormat1Prop = (Properties)validProp.clone();
 		badVotFormat1Prop.setProperty(KEY_OUTPUT_FORMATS, "votable(foo)");
 
@@ -631,6 +636,7 @@ public class TestConfigurableServiceConnection {
 			assertNotNull(connection.getOutputFormat("text/plain"));
 			assertNotNull(connection.getOutputFormat("test"));
 			assertNotNull(connection.getOutputFormat("text/arobase"));
+			assertEquals(500, ((ArrowFormat)connection.getOutputFormat(VALUE_ARROW)).getBatchSize());
 		}catch(Exception e){
 			fail("This MUST have succeeded because the property file is valid! \nCaught exception: " + getPertinentMessage(e));
 		}
@@ -716,6 +722,15 @@ public class TestConfigurableServiceConnection {
 			assertEquals("Missing separator char/string for the SV output format: \"sv()\"!", e.getMessage());
 		}
 
+		// Bad Arrow(...) format = "arrow(foo)":
+		try{
+			new ConfigurableServiceConnection(badArrowFormatProp);
+			fail("This MUST have failed because an incorrect Arrow output format value has been provided!");
+		}catch(Exception e){
+			assertEquals(TAPException.class, e.getClass());
+			assertEquals("Incorrect batch size for the Arrow output format: \"arrow(foo)\"! It must be a positive integer.", e.getMessage());
+		}
+
 		// Bad VOTable(...) format 1 = "votable(foo)":
 		try{
 			new ConfigurableServiceConnection(badVotFormat1Prop);
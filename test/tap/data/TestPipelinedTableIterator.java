@@ -0,0 +1,196 @@
+package tap.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import adql.db.DBType;
+import adql.db.DBType.DBDatatype;
+import tap.metadata.TAPColumn;
+
+public class TestPipelinedTableIterator {
+
+	/** Iterator over an infinite table of 2 integer columns, failing (if asked) after a given number of rows. */
+	private static class InfiniteTableIterator implements TableIterator {
+		final TAPColumn[] meta = new TAPColumn[]{ new TAPColumn("a", new DBType(DBDatatype.INTEGER)), new TAPColumn("b", new DBType(DBDatatype.INTEGER)) };
+		final int failAt;
+		volatile int nbRows = 0;
+		volatile boolean closed = false;
+		int col = 0;
+
+		InfiniteTableIterator(final int failAt){
+			this.failAt = failAt;
+		}
+
+		@Override
+		public TAPColumn[] getMetadata(){
+			return meta;
+		}
+
+		@Override
+		public boolean nextRow() throws DataReadException{
+			if (failAt >= 0 && nbRows == failAt)
+				throw new DataReadException("Error at row " + failAt);
+			nbRows++;
+			col = 0;
+			return true;
+		}
+
+		@Override
+		public boolean hasNextCol(){
+			return col < 2;
+		}
+
+		@Override
+		public Object nextCol() throws NoSuchElementException{
+			if (col >= 2)
+				throw new NoSuchElementException();
+			return nbRows * 10 + (col++);
+		}
+
+		@Override
+		public DBType getColType(){
+			return meta[col - 1].getDatatype();
+		}
+
+		@Override
+		public void close(){
+			closed = true;
+		}
+	}
+
+	private static List<Object> readAll(final TableIterator it, final List<DBType> types) throws DataReadException{
+		ArrayList<Object> values = new ArrayList<Object>();
+		while(it.nextRow()){
+			while(it.hasNextCol()){
+				values.add(it.nextCol());
+				types.add(it.getColType());
+			}
+		}
+		return values;
+	}
+
+	@Test
+	public void testSameRows() throws Exception{
+		// Read the VOTable directly:
+		InputStream input = new BufferedInputStream(new FileInputStream(TestVOTableIterator.dataVOTable));
+		TableIterator it = new VOTableIterator(input);
+		List<DBType> expectedTypes = new ArrayList<DBType>();
+		List<Object> expected;
+		try{
+			expected = readAll(it, expectedTypes);
+		}finally{
+			it.close();
+			input.close();
+		}
+		assertEquals(400, expected.size());
+
+		// Read it through a pipeline (with batches not dividing the number of rows):
+		input = new BufferedInputStream(new FileInputStream(TestVOTableIterator.dataVOTable));
+		it = new PipelinedTableIterator(new VOTableIterator(input), 7, 2);
+		List<DBType> types = new ArrayList<DBType>();
+		try{
+			assertEquals(4, it.getMetadata().length);
+			assertEquals(expected, readAll(it, types));
+			assertEquals(expectedTypes.size(), types.size());
+			for(int i = 0; i < types.size(); i++)
+				assertEquals(expectedTypes.get(i).type, types.get(i).type);
+			assertFalse(it.nextRow());
+		}finally{
+			it.close();
+			input.close();
+		}
+	}
+
+	@Test
+	public void testBoundedAndClose() throws Exception{
+		InfiniteTableIterator inner = new InfiniteTableIterator(-1);
+		PipelinedTableIterator it = new PipelinedTableIterator(inner, 10, 3);
+
+		assertTrue(it.nextRow());
+		assertEquals(10, it.nextCol());
+		assertEquals(11, it.nextCol());
+		assertFalse(it.hasNextCol());
+
+		// The reader does not read more than the queue size (+ the batch being consumed and the one being filled):
+		Thread.sleep(100);
+		assertTrue(inner.nbRows <= 10 * 5 + 1);
+		assertFalse(inner.closed);
+
+		// Closing stops the reader and closes the wrapped iterator:
+		it.close();
+		assertTrue(inner.closed);
+		assertFalse(it.nextRow());
+	}
+
+	@Test
+	public void testReadError() throws Exception{
+		InfiniteTableIterator inner = new InfiniteTableIterator(25);
+		PipelinedTableIterator it = new PipelinedTableIterator(inner, 10, 2);
+		int nbRows = 0;
+		try{
+			while(it.nextRow())
+				nbRows++;
+			fail("The reading should have failed after 25 rows!");
+		}catch(DataReadException dre){
+			assertEquals("Error at row 25", dre.getMessage());
+		}finally{
+			it.close();
+		}
+		// All rows read before the error are available:
+		assertEquals(25, nbRows);
+		// The wrapped iterator is closed as soon as the reader stops:
+		assertTrue(inner.closed);
+	}
+
+	@Test
+	public void testInterruption() throws Exception{
+		// Wrapped iterator blocked (i.e. slow DB):
+		final TableIterator blocked = new InfiniteTableIterator(-1){
+			@Override
+			public boolean nextRow() throws DataReadException{
+				try{
+					Thread.sleep(60000);
+				}catch(InterruptedException ie){
+					;
+				}
+				return false;
+			}
+		};
+		final PipelinedTableIterator it = new PipelinedTableIterator(blocked, 10, 2);
+		final boolean[] result = new boolean[]{ true, false };
+		Thread consumer = new Thread(){
+			@Override
+			public void run(){
+				try{
+					result[0] = it.nextRow();
+					result[1] = isInterrupted();
+				}catch(DataReadException dre){
+					dre.printStackTrace();
+				}
+			}
+		};
+		consumer.start();
+		Thread.sleep(50);
+		consumer.interrupt();
+		consumer.join(5000);
+
+		// The consumer stops waiting and keeps its interrupted flag:
+		assertFalse(consumer.isAlive());
+		assertFalse(result[0]);
+		assertTrue(result[1]);
+
+		it.close();
+	}
+
+}
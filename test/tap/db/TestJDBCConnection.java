@@ -3,6 +3,7 @@ package tap.db;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -596,6 +597,40 @@ public class TestJDBCConnection {
 		}
 	}
 
+	@Test
+	public void testParsePostgreSQLPlan(){
+		QueryCostEstimate estimate = JDBCConnection.parsePostgreSQLPlan("Limit  (cost=0.00..12.34 rows=100 width=8)");
+		assertNotNull(estimate);
+		assertEquals(12.34, estimate.getCost(), 0);
+		assertEquals(100, estimate.getRows());
+
+		estimate = JDBCConnection.parsePostgreSQLPlan("Seq Scan on foo  (cost=10.50..2345678.00 rows=98765432 width=112)");
+		assertNotNull(estimate);
+		assertEquals(2345678, estimate.getCost(), 0);
+		assertEquals(98765432, estimate.getRows());
+
+		assertNull(JDBCConnection.parsePostgreSQLPlan(null));
+		assertNull(JDBCConnection.parsePostgreSQLPlan(""));
+		assertNull(JDBCConnection.parsePostgreSQLPlan("Seq Scan on foo"));
+	}
+
+	@Test
+	public void testEstimateCost(){
+		// No estimation with a DBMS other than PostgreSQL:
+		try{
+			createTAPSchema(h2JDBCConnection);
+			TAPSchema schema = TAPMetadata.getStdSchema(h2JDBCConnection.supportsSchema);
+			ArrayList<DBTable> tables = new ArrayList<DBTable>(schema.getNbTables());
+			for(TAPTable t : schema)
+				tables.add(t);
+			ADQLParser parser = new ADQLParser(new DBChecker(tables));
+			assertNull(h2JDBCConnection.estimateCost(parser.parseQuery("SELECT table_name FROM TAP_SCHEMA.tables;")));
+		}catch(Exception ex){
+			ex.printStackTrace(System.err);
+			fail("No error was expected here!");
+		}
+	}
+
 	/* ************** */
 	/* TOOL FUNCTIONS */
 	/* ************** */
@@ -0,0 +1,317 @@
+package tap.formatter;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import adql.db.DBType;
+import adql.db.DBType.DBDatatype;
+import tap.ServiceConnection;
+import tap.TAPExecutionReport;
+import tap.TAPJob;
+import tap.data.TableIterator;
+import tap.metadata.TAPColumn;
+import tap.parameters.TAPParameters;
+
+public class TestArrowFormat {
+
+	private static final TAPColumn[] COLUMNS = new TAPColumn[]{ new TAPColumn("s", new DBType(DBDatatype.SMALLINT)), new TAPColumn("i", new DBType(DBDatatype.INTEGER)), new TAPColumn("l", new DBType(DBDatatype.BIGINT)), new TAPColumn("f", new DBType(DBDatatype.REAL)), new TAPColumn("d", new DBType(DBDatatype.DOUBLE), "A double.", "deg", "pos.eq.ra", null), new TAPColumn("str", new DBType(DBDatatype.VARCHAR)), new TAPColumn("vbin", new DBType(DBDatatype.VARBINARY)) };
+
+	/** Expected value of the given cell. */
+	private static Object value(final int row, final int col){
+		if ((row + col) % 7 == 3)
+			return null;
+		switch(col){
+			case 0:
+				return (short)(row - 100);
+			case 1:
+				return -row;
+			case 2:
+				return row * 123456789L;
+			case 3:
+				return row / 3f;
+			case 4:
+				return (row % 13 == 0) ? Double.NaN : row * 1.5;
+			case 5:
+				return (row % 9 == 0) ? "" : "row " + row + (row % 4 == 0 ? " é€😀" : "");
+			default:
+				byte[] array = new byte[row % 6];
+				for(int i = 0; i < array.length; i++)
+					array[i] = (byte)(row + i);
+				return array;
+		}
+	}
+
+	private static class GeneratedTableIterator implements TableIterator {
+		final int nbRows;
+		int row = -1;
+		int col = 0;
+
+		GeneratedTableIterator(final int nbRows){
+			this.nbRows = nbRows;
+		}
+
+		@Override
+		public TAPColumn[] getMetadata(){
+			return COLUMNS;
+		}
+
+		@Override
+		public boolean nextRow(){
+			col = 0;
+			return ++row < nbRows;
+		}
+
+		@Override
+		public boolean hasNextCol(){
+			return col < COLUMNS.length;
+		}
+
+		@Override
+		public Object nextCol(){
+			if (col >= COLUMNS.length)
+				throw new NoSuchElementException();
+			return value(row, col++);
+		}
+
+		@Override
+		public DBType getColType(){
+			return COLUMNS[col - 1].getDatatype();
+		}
+
+		@Override
+		public void close(){
+			;
+		}
+	}
+
+	/* MINIMAL FLATBUFFERS READER */
+
+	private static int field(final ByteBuffer bb, final int table, final int id){
+		int vtable = table - bb.getInt(table);
+		return (4 + 2 * id < bb.getShort(vtable)) ? bb.getShort(vtable + 4 + 2 * id) : 0;
+	}
+
+	private static long scalar(final ByteBuffer bb, final int table, final int id, final int size){
+		int off = field(bb, table, id);
+		if (off == 0)
+			return 0;
+		switch(size){
+			case 1:
+				return bb.get(table + off);
+			case 2:
+				return bb.getShort(table + off);
+			case 4:
+				return bb.getInt(table + off);
+			default:
+				return bb.getLong(table + off);
+		}
+	}
+
+	private static int ref(final ByteBuffer bb, final int table, final int id){
+		int off = field(bb, table, id);
+		return (off == 0) ? -1 : table + off + bb.getInt(table + off);
+	}
+
+	private static int element(final ByteBuffer bb, final int vector, final int index){
+		int slot = vector + 4 + 4 * index;
+		return slot + bb.getInt(slot);
+	}
+
+	private static String string(final ByteBuffer bb, final int pos) throws Exception{
+		byte[] bytes = new byte[bb.getInt(pos)];
+		for(int i = 0; i < bytes.length; i++)
+			bytes[i] = bb.get(pos + 4 + i);
+		assertEquals(0, bb.get(pos + 4 + bytes.length));
+		return new String(bytes, "UTF-8");
+	}
+
+	private static Map<String,String> metadata(final ByteBuffer bb, final int vector) throws Exception{
+		Map<String,String> map = new HashMap<String,String>();
+		if (vector >= 0){
+			for(int i = 0; i < bb.getInt(vector); i++){
+				int keyValue = element(bb, vector, i);
+				map.put(string(bb, ref(bb, keyValue, 0)), string(bb, ref(bb, keyValue, 1)));
+			}
+		}
+		return map;
+	}
+
+	/* RESULT OF THE PARSING */
+
+	private static class Message {
+		ByteBuffer meta;
+		int header;
+		ByteBuffer body;
+		Map<String,String> metadata;
+	}
+
+	private static List<Message> readStream(final byte[] bytes) throws Exception{
+		ByteBuffer stream = ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+		List<Message> messages = new ArrayList<Message>();
+		while(true){
+			assertEquals(0xFFFFFFFF, stream.getInt());
+			int size = stream.getInt();
+			if (size == 0)
+				break;
+			assertEquals(0, size % 8);
+			Message m = new Message();
+			m.meta = ((ByteBuffer)stream.slice().limit(size)).slice().order(ByteOrder.LITTLE_ENDIAN);
+			stream.position(stream.position() + size);
+			int message = m.meta.getInt(0);
+			assertEquals(4, scalar(m.meta, message, 0, 2)); // V5
+			m.header = ref(m.meta, message, 2);
+			long bodyLength = scalar(m.meta, message, 3, 8);
+			assertEquals(0, bodyLength % 8);
+			m.body = ((ByteBuffer)stream.slice().limit((int)bodyLength)).slice().order(ByteOrder.LITTLE_ENDIAN);
+			stream.position(stream.position() + (int)bodyLength);
+			m.metadata = metadata(m.meta, ref(m.meta, message, 4));
+			assertEquals((messages.size() == 0) ? 1 : 3, scalar(m.meta, message, 1, 1));
+			messages.add(m);
+		}
+		assertEquals(bytes.length, stream.position());
+		return messages;
+	}
+
+	private static byte[] format(final int nbRows, final int maxRec, final int batchSize) throws Exception{
+		ServiceConnection serviceConn = new ServiceConnection4Test();
+		HashMap<String,Object> tapParams = new HashMap<String,Object>(1);
+		tapParams.put(TAPJob.PARAM_MAX_REC, String.valueOf(maxRec));
+		TAPExecutionReport report = new TAPExecutionReport("123456A", true, new TAPParameters(serviceConn, tapParams));
+		report.resultingColumns = COLUMNS.clone();
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		new ArrowFormat(serviceConn, batchSize).writeResult(new GeneratedTableIterator(nbRows), output, report, Thread.currentThread());
+		assertEquals(Math.min(nbRows, maxRec), report.nbRows);
+		return output.toByteArray();
+	}
+
+	@Test
+	public void testSchema() throws Exception{
+		List<Message> messages = readStream(format(0, 10, 3));
+		assertEquals(1, messages.size());
+
+		ByteBuffer bb = messages.get(0).meta;
+		int schema = messages.get(0).header;
+		assertEquals("OK", metadata(bb, ref(bb, schema, 2)).get("QUERY_STATUS"));
+		int fields = ref(bb, schema, 1);
+		assertEquals(COLUMNS.length, bb.getInt(fields));
+		byte[] expectedTypes = new byte[]{ 2, 2, 2, 3, 3, 5, 4 };
+		for(int i = 0; i < COLUMNS.length; i++){
+			int field = element(bb, fields, i);
+			assertEquals(COLUMNS[i].getADQLName(), string(bb, ref(bb, field, 0)));
+			assertEquals(1, scalar(bb, field, 1, 1));
+			assertEquals(expectedTypes[i], scalar(bb, field, 2, 1));
+			assertEquals(0, bb.getInt(ref(bb, field, 5)));
+			int type = ref(bb, field, 3);
+			if (i < 3){
+				assertEquals(new int[]{ 16, 32, 64 }[i], scalar(bb, type, 0, 4));
+				assertEquals(1, scalar(bb, type, 1, 1));
+			}else if (i < 5)
+				assertEquals(i - 2, scalar(bb, type, 0, 2));
+		}
+		Map<String,String> meta = metadata(bb, ref(bb, element(bb, fields, 4), 6));
+		assertEquals("A double.", meta.get("description"));
+		assertEquals("deg", meta.get("unit"));
+		assertEquals("pos.eq.ra", meta.get("ucd"));
+		assertNull(meta.get("utype"));
+	}
+
+	@Test
+	public void testData() throws Exception{
+		for(int nbRows : new int[]{ 1, 7, 9, 10, 100 }){
+			for(int maxRec : new int[]{ 9, 1000 }){
+				List<Message> messages = readStream(format(nbRows, maxRec, 3));
+				int expectedRows = Math.min(nbRows, maxRec);
+				boolean overflow = (nbRows > maxRec);
+				assertEquals(1 + (expectedRows + 2) / 3 + (overflow ? 1 : 0), messages.size());
+
+				int row = 0;
+				for(Message m : messages.subList(1, messages.size())){
+					ByteBuffer bb = m.meta;
+					int length = (int)scalar(bb, m.header, 0, 8);
+					int nodes = ref(bb, m.header, 1);
+					int buffers = ref(bb, m.header, 2);
+					assertEquals(COLUMNS.length, bb.getInt(nodes));
+					assertEquals(0, (nodes + 4) % 8);
+					assertEquals(0, (buffers + 4) % 8);
+
+					if (length == 0){
+						assertEquals("OVERFLOW", m.metadata.get("QUERY_STATUS"));
+						continue;
+					}
+					assertTrue(m.metadata.isEmpty());
+
+					int indBuffer = 0;
+					for(int col = 0; col < COLUMNS.length; col++){
+						assertEquals(length, bb.getLong(nodes + 4 + 16 * col));
+						long nullCount = bb.getLong(nodes + 4 + 16 * col + 8);
+						ByteBuffer[] colBuffers = new ByteBuffer[(col < 5) ? 2 : 3];
+						for(int b = 0; b < colBuffers.length; b++, indBuffer++){
+							int offset = (int)bb.getLong(buffers + 4 + 16 * indBuffer);
+							int size = (int)bb.getLong(buffers + 4 + 16 * indBuffer + 8);
+							assertEquals(0, offset % 8);
+							m.body.position(offset);
+							colBuffers[b] = ((ByteBuffer)m.body.slice().limit(size)).slice().order(ByteOrder.LITTLE_ENDIAN);
+						}
+						int nbNulls = 0;
+						for(int r = 0; r < length; r++){
+							Object expected = value(row + r, col);
+							boolean valid = (colBuffers[0].limit() == 0) || (colBuffers[0].get(r >> 3) & (1 << (r & 7))) != 0;
+							if (expected == null){
+								nbNulls++;
+								assertTrue(!valid);
+								continue;
+							}
+							assertTrue(valid);
+							ByteBuffer values = colBuffers[colBuffers.length - 1];
+							switch(col){
+								case 0:
+									assertEquals(expected, values.getShort(2 * r));
+									break;
+								case 1:
+									assertEquals(expected, values.getInt(4 * r));
+									break;
+								case 2:
+									assertEquals(expected, values.getLong(8 * r));
+									break;
+								case 3:
+									assertEquals(expected, values.getFloat(4 * r));
+									break;
+								case 4:
+									assertEquals(expected, values.getDouble(8 * r));
+									break;
+								default:
+									int start = colBuffers[1].getInt(4 * r), end = colBuffers[1].getInt(4 * r + 4);
+									byte[] bytes = new byte[end - start];
+									for(int i = 0; i < bytes.length; i++)
+										bytes[i] = values.get(start + i);
+									if (col == 5)
+										assertEquals(expected, new String(bytes, "UTF-8"));
+									else
+										assertArrayEquals((byte[])expected, bytes);
+							}
+						}
+						assertEquals(nbNulls, nullCount);
+					}
+					assertEquals(5 * 2 + 2 * 3, indBuffer);
+					row += length;
+				}
+				assertEquals(expectedRows, row);
+			}
+		}
+	}
+
+}
@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
@@ -12,7 +13,9 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.NoSuchElementException;
 
+import org.json.JSONArray;
 import org.json.JSONObject;
 import org.json.JSONTokener;
 import org.junit.AfterClass;
@@ -141,4 +144,59 @@ public class TestJSONFormat {
 		}
 	}
 
+	@Test
+	public void testValues() throws Exception{
+		final TAPColumn[] columns = new TAPColumn[]{ new TAPColumn("i", new DBType(DBDatatype.INTEGER), "An \"integer\".", null, null, null), new TAPColumn("f", new DBType(DBDatatype.REAL)), new TAPColumn("d", new DBType(DBDatatype.DOUBLE)), new TAPColumn("s", new DBType(DBDatatype.VARCHAR)), new TAPColumn("u", new DBType(DBDatatype.UNKNOWN)) };
+		final Object[][] rows = new Object[][]{ { 1, 0.5f, 2.0, "a\"b\\c</d", true }, { Long.MIN_VALUE, Float.NaN, Double.POSITIVE_INFINITY, "tab\tnl\n\u0001 é😀", new short[]{ 1, 2 } }, { null, 1e10f, -1.25e-7, null, 2.50 } };
+		TableIterator it = new TableIterator(){
+			int row = -1, col = 0;
+
+			@Override
+			public TAPColumn[] getMetadata(){
+				return columns;
+			}
+
+			@Override
+			public boolean nextRow(){
+				col = 0;
+				return ++row < rows.length;
+			}
+
+			@Override
+			public boolean hasNextCol(){
+				return col < columns.length;
+			}
+
+			@Override
+			public Object nextCol(){
+				if (col >= columns.length)
+					throw new NoSuchElementException();
+				return rows[row][col++];
+			}
+
+			@Override
+			public DBType getColType(){
+				return columns[col - 1].getDatatype();
+			}
+
+			@Override
+			public void close(){}
+		};
+
+		HashMap<String,Object> tapParams = new HashMap<String,Object>(1);
+		tapParams.put(TAPJob.PARAM_MAX_REC, "100");
+		TAPExecutionReport report = new TAPExecutionReport("123456A", true, new TAPParameters(serviceConn, tapParams));
+		report.resultingColumns = columns;
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		new JSONFormat(serviceConn).writeResult(it, output, report, Thread.currentThread());
+		assertEquals(3, report.nbRows);
+		String json = output.toString("UTF-8");
+		assertEquals("{\"metadata\":[{\"name\":\"i\",\"description\":\"An \\\"integer\\\".\",\"datatype\":\"INT\"},{\"name\":\"f\",\"datatype\":\"FLOAT\"},{\"name\":\"d\",\"datatype\":\"DOUBLE\"},{\"name\":\"s\",\"datatype\":\"CHAR\",\"arraysize\":\"*\"},{\"name\":\"u\",\"datatype\":\"CHAR\",\"arraysize\":\"*\"}],\"data\":[[1,0.5,2,\"a\\\"b\\\\c<\\/d\",true],[-9223372036854775808,null,null,\"tab\\tnl\\n\\u0001 é😀\",[1,2]],[null,1.0E10,-1.25E-7,null,2.5]]}", json);
+
+		// The output must be readable by a JSON parser:
+		JSONArray data = new JSONObject(new JSONTokener(json)).getJSONArray("data");
+		assertEquals("tab\tnl\n\u0001 é😀", data.getJSONArray(1).getString(3));
+	}
+
 }
@@ -1,9 +1,11 @@
 package tap.formatter;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
@@ -11,6 +13,7 @@ import java.sql.Connection;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashMap;
+import java.util.NoSuchElementException;
 
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -135,4 +138,55 @@ public class TestSVFormat {
 		}
 	}
 
+	@Test
+	public void testQuoting() throws Exception{
+		final TAPColumn[] columns = new TAPColumn[]{ new TAPColumn("id", new DBType(DBDatatype.BIGINT)), new TAPColumn("name", new DBType(DBDatatype.VARCHAR)), new TAPColumn("x,y", new DBType(DBDatatype.DOUBLE)), new TAPColumn("other", new DBType(DBDatatype.UNKNOWN)) };
+		final Object[][] rows = new Object[][]{ { 1L, "abc", 1.5, null }, { Long.MIN_VALUE, "say \"hi\"", Double.NaN, "a,b" }, { -42, "été 😀", -0.25, "line\nbreak" }, { null, null, null, "\"q\"" } };
+		TableIterator it = new TableIterator(){
+			int row = -1, col = 0;
+
+			@Override
+			public TAPColumn[] getMetadata(){
+				return columns;
+			}
+
+			@Override
+			public boolean nextRow(){
+				col = 0;
+				return ++row < rows.length;
+			}
+
+			@Override
+			public boolean hasNextCol(){
+				return col < columns.length;
+			}
+
+			@Override
+			public Object nextCol(){
+				if (col >= columns.length)
+					throw new NoSuchElementException();
+				return rows[row][col++];
+			}
+
+			@Override
+			public DBType getColType(){
+				return columns[col - 1].getDatatype();
+			}
+
+			@Override
+			public void close(){}
+		};
+
+		HashMap<String,Object> tapParams = new HashMap<String,Object>(1);
+		tapParams.put(TAPJob.PARAM_MAX_REC, "100");
+		TAPExecutionReport report = new TAPExecutionReport("123456A", true, new TAPParameters(serviceConn, tapParams));
+		report.resultingColumns = columns;
+
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		new SVFormat(serviceConn, SVFormat.COMMA_SEPARATOR).writeResult(it, output, report, Thread.currentThread());
+		assertEquals(4, report.nbRows);
+		final String nl = System.getProperty("line.separator");
+		assertEquals("id,name,\"x,y\",other" + nl + "1,\"abc\",1.5," + nl + "-9223372036854775808,\"say \"\"hi\"\"\",NaN,\"a,b\"" + nl + "-42,\"été 😀\",-0.25,\"line\nbreak\"" + nl + ",,,\"\"\"q\"\"\"" + nl, output.toString("UTF-8"));
+	}
+
 }
@@ -5,6 +5,7 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.OutputStream;
@@ -19,6 +20,7 @@ import org.junit.Test;
 
 import adql.db.DBType;
 import adql.db.DBType.DBDatatype;
+import cds.util.LargeAsciiTable;
 import tap.ServiceConnection;
 import tap.TAPExecutionReport;
 import tap.TAPJob;
@@ -136,4 +138,51 @@ public class TestTextFormat {
 		}
 	}
 
+	@Test
+	public void testStreamedVsBuffered(){
+		try{
+			// Small result => same output with and without buffering:
+			String buffered = format(new TextFormat(serviceConn, new int[]{ LargeAsciiTable.LEFT }, true), 10);
+			TextFormat streamed = new TextFormat(serviceConn);
+			assertEquals(buffered, format(streamed, 10));
+
+			/* Result larger than the sample => same number of lines, and
+			 * columns widths computed from the sample: */
+			streamed.setSampleSize(2);
+			String output = format(streamed, 10);
+			String[] lines = output.split("\n");
+			assertEquals(12, lines.length);
+			assertEquals(lines[0].length(), lines[1].length());
+			assertEquals(lines[1].length(), lines[2].length());
+
+			// No sample at all => widths of the column names only:
+			streamed.setSampleSize(0);
+			lines = format(streamed, 10).split("\n");
+			assertEquals(12, lines.length);
+			assertEquals("hip|ra|dec|vmag", lines[0]);
+			assertEquals("---|--|---|----", lines[1]);
+
+		}catch(Exception t){
+			t.printStackTrace();
+			fail("Unexpected exception!");
+		}
+	}
+
+	private String format(final TextFormat formatter, final int maxRec) throws Exception{
+		ResultSet rs = DBTools.select(conn, "SELECT hip, ra, dec, vmag FROM hipparcos LIMIT 10;");
+		try{
+			HashMap<String,Object> tapParams = new HashMap<String,Object>(1);
+			tapParams.put(TAPJob.PARAM_MAX_REC, String.valueOf(maxRec));
+			TAPParameters params = new TAPParameters(serviceConn, tapParams);
+			TAPExecutionReport report = new TAPExecutionReport("123456A", true, params);
+			report.resultingColumns = resultingColumns;
+
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			formatter.writeResult(new ResultSetTableIterator(rs), output, report, Thread.currentThread());
+			return output.toString();
+		}finally{
+			rs.close();
+		}
+	}
+
 }
@@ -0,0 +1,37 @@
+package tap.formatter;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+
+public class TestUTF8OutputBuffer {
+
+	@Test
+	public void testEncoding() throws Exception{
+		final String str = "ASCII, é, €, 😀 and an unpaired \uD83D surrogate";
+		final long[] numbers = new long[]{ 0, 7, -7, 1234567890123L, Long.MAX_VALUE, Long.MIN_VALUE };
+
+		// the smallest buffer, so that it is drained in the middle of the characters:
+		for(int bufferSize : new int[]{ 32, 33, 34, 35, 1024 }){
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			UTF8OutputBuffer buffer = new UTF8OutputBuffer(output, bufferSize, -1);
+			StringBuffer expected = new StringBuffer();
+			for(int i = 0; i < 5; i++){
+				buffer.write(str);
+				buffer.write(str, 7, 10);
+				buffer.write('ü');
+				buffer.writeByte(';');
+				expected.append(str.replace("\uD83D ", "? ")).append(str.substring(7, 10)).append("ü;");
+				for(long n : numbers){
+					buffer.write(n);
+					expected.append(n);
+				}
+			}
+			buffer.flush();
+			assertEquals(expected.toString(), output.toString("UTF-8"));
+		}
+	}
+
+}
@@ -0,0 +1,159 @@
+package tap.formatter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+
+import org.junit.Test;
+
+import adql.db.DBType;
+import adql.db.DBType.DBDatatype;
+import tap.ServiceConnection;
+import tap.TAPExecutionReport;
+import tap.TAPJob;
+import tap.data.TableIterator;
+import tap.metadata.TAPColumn;
+import tap.parameters.TAPParameters;
+import uk.ac.starlink.table.ColumnInfo;
+import uk.ac.starlink.votable.DataFormat;
+
+public class TestVOTableBinaryWriter {
+
+	private static final TAPColumn[] COLUMNS = new TAPColumn[]{ new TAPColumn("s", new DBType(DBDatatype.SMALLINT)), new TAPColumn("i", new DBType(DBDatatype.INTEGER)), new TAPColumn("l", new DBType(DBDatatype.BIGINT)), new TAPColumn("f", new DBType(DBDatatype.REAL)), new TAPColumn("d", new DBType(DBDatatype.DOUBLE), "A double.", "deg", "pos.eq.ra", null), new TAPColumn("c", new DBType(DBDatatype.CHAR, 1)), new TAPColumn("str", new DBType(DBDatatype.VARCHAR)), new TAPColumn("fix", new DBType(DBDatatype.CHAR, 3)), new TAPColumn("bin", new DBType(DBDatatype.BINARY, 3)), new TAPColumn("vbin", new DBType(DBDatatype.VARBINARY)) };
+
+	/** Iterator over generated rows, with NULLs, NaNs, empty and non-ASCII
+	 * strings, and arrays of various lengths. */
+	private static class GeneratedTableIterator implements TableIterator {
+		final int nbRows;
+		int row = -1;
+		int col = 0;
+
+		GeneratedTableIterator(final int nbRows){
+			this.nbRows = nbRows;
+		}
+
+		@Override
+		public TAPColumn[] getMetadata(){
+			return COLUMNS;
+		}
+
+		@Override
+		public boolean nextRow(){
+			col = 0;
+			return ++row < nbRows;
+		}
+
+		@Override
+		public boolean hasNextCol(){
+			return col < COLUMNS.length;
+		}
+
+		@Override
+		public Object nextCol(){
+			if (col >= COLUMNS.length)
+				throw new NoSuchElementException();
+			final int c = col++;
+			if ((row + c) % 7 == 3)
+				return null;
+			switch(c){
+				case 0:
+					return (short)(row - 100);
+				case 1:
+					return (row % 5 == 0) ? Long.valueOf(row * 1000L) : Integer.valueOf(-row);
+				case 2:
+					return Long.valueOf(row * 123456789L);
+				case 3:
+					return (row % 11 == 0) ? Float.NaN : row / 3f;
+				case 4:
+					return (row % 13 == 0) ? Double.NaN : Integer.valueOf(row);
+				case 5:
+					return (char)('a' + row % 26);
+				case 6:
+					return (row % 9 == 0) ? "" : "row " + row + (row % 4 == 0 ? " é€" : "");
+				case 7:
+					return "abc".substring(0, row % 4);
+				case 8:
+					return new short[row % 5];
+				default:
+					short[] array = new short[row % 6];
+					for(int i = 0; i < array.length; i++)
+						array[i] = (short)(row + i);
+					return array;
+			}
+		}
+
+		@Override
+		public DBType getColType(){
+			return COLUMNS[col - 1].getDatatype();
+		}
+
+		@Override
+		public void close(){
+			;
+		}
+	}
+
+	private static String format(final DataFormat format, final boolean nativeBinary, final int nbRows, final int maxRec) throws Exception{
+		ServiceConnection serviceConn = new ServiceConnection4Test();
+		HashMap<String,Object> tapParams = new HashMap<String,Object>(1);
+		tapParams.put(TAPJob.PARAM_MAX_REC, String.valueOf(maxRec));
+		TAPExecutionReport report = new TAPExecutionReport("123456A", true, new TAPParameters(serviceConn, tapParams));
+		report.resultingColumns = COLUMNS;
+
+		VOTableFormat formatter = new VOTableFormat(serviceConn, format);
+		formatter.setNativeBinary(nativeBinary);
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		formatter.writeResult(new GeneratedTableIterator(nbRows), output, report, Thread.currentThread());
+		assertEquals(Math.min(nbRows, maxRec), report.nbRows);
+		return output.toString("UTF-8");
+	}
+
+	@Test
+	public void testSameAsSTIL() throws Exception{
+		for(DataFormat format : new DataFormat[]{ DataFormat.BINARY, DataFormat.BINARY2 }){
+			// various numbers of rows (=> various lengths of the last Base64 line):
+			for(int nbRows : new int[]{ 0, 1, 2, 3, 4, 5, 6, 7, 8, 20, 1000 }){
+				String expected = format(format, false, nbRows, 2000);
+				assertEquals(format + " with " + nbRows + " rows", expected, format(format, true, nbRows, 2000));
+				assertFalse(expected.contains("OVERFLOW"));
+			}
+			// overflow:
+			String expected = format(format, false, 100, 50);
+			assertTrue(expected.contains("OVERFLOW"));
+			assertEquals(expected, format(format, true, 100, 50));
+		}
+	}
+
+	@Test
+	public void testIsSupported(){
+		ColumnInfo variableArray = new ColumnInfo("a", double[].class, null);
+		variableArray.setShape(new int[]{ -1 });
+		ColumnInfo fixedArray = new ColumnInfo("b", int[].class, null);
+		fixedArray.setShape(new int[]{ 3 });
+		assertTrue(VOTableBinaryWriter.isSupported(new ColumnInfo[]{ new ColumnInfo("c", String.class, null), new ColumnInfo("d", Long.class, null), variableArray, fixedArray }));
+
+		// Fixed-length strings, arrays without length and unknown classes are left to STIL:
+		ColumnInfo fixedString = new ColumnInfo("e", String.class, null);
+		fixedString.setElementSize(5);
+		assertFalse(VOTableBinaryWriter.isSupported(fixedString));
+		ColumnInfo noShape = new ColumnInfo("f", double[].class, null);
+		noShape.setShape(new int[0]);
+		assertFalse(VOTableBinaryWriter.isSupported(noShape));
+		assertFalse(VOTableBinaryWriter.isSupported(new ColumnInfo("g", Object.class, null)));
+		assertFalse(VOTableBinaryWriter.isSupported((ColumnInfo[])null));
+
+		// Only BINARY and BINARY2 can be written:
+		try{
+			new VOTableBinaryWriter(new ColumnInfo[0], DataFormat.TABLEDATA);
+			fail("TABLEDATA should not be supported!");
+		}catch(IllegalArgumentException iae){
+			;
+		}
+	}
+
+}
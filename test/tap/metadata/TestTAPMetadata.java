@@ -1,12 +1,22 @@
 package tap.metadata;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
 
 import org.junit.Test;
 
+import adql.db.DBType;
+import adql.db.DBType.DBDatatype;
 import tap.metadata.TAPTable.TableType;
+import tap.resource.CachedDocument;
 
 public class TestTAPMetadata {
 
@@ -43,4 +53,69 @@ public class TestTAPMetadata {
 		assertNull(metadata.getObsCoreTable());
 	}
 
+	@Test
+	public void testVOSICache() throws Exception{
+		TAPMetadata metadata = new TAPMetadata();
+		TAPSchema schema = metadata.addSchema("cat");
+		TAPTable table = schema.addTable("stars");
+		table.addColumn("ra", new DBType(DBDatatype.DOUBLE), "Right ascension", "deg", "pos.eq.ra", null);
+
+		// CASE: the full tableset is serialized only once:
+		CachedDocument full = metadata.getTableSetDocument(false);
+		assertSame(full, metadata.getTableSetDocument(false));
+		String xml = new String(full.getContent(), "UTF-8");
+		assertTrue(xml.contains("<name>ra</name>"));
+		assertTrue(full.getETag().startsWith("\"") && full.getETag().endsWith("\""));
+		assertTrue(full.getCompressedContent().length > 0);
+
+		// CASE: detail=min does not list any column:
+		CachedDocument min = metadata.getTableSetDocument(true);
+		xml = new String(min.getContent(), "UTF-8");
+		assertTrue(xml.contains("<name>stars</name>"));
+		assertFalse(xml.contains("<column"));
+		assertFalse(full.getETag().equals(min.getETag()));
+
+		// CASE: single table:
+		assertSame(table, metadata.searchTable("cat.stars"));
+		assertSame(table, metadata.searchTable("CAT.STARS"));
+		assertNull(metadata.searchTable("cat.galaxies"));
+		xml = new String(metadata.getTableDocument(table).getContent(), "UTF-8");
+		assertTrue(xml.contains("<vosi:table "));
+		assertTrue(xml.contains("<name>ra</name>"));
+
+		// CASE: adding a schema invalidates the cache:
+		metadata.addSchema("other");
+		CachedDocument newFull = metadata.getTableSetDocument(false);
+		assertNotSame(full, newFull);
+		assertTrue(new String(newFull.getContent(), "UTF-8").contains("<name>other</name>"));
+	}
+
+	@Test
+	public void testVOSICacheInvalidatedDuringSerialization() throws Exception{
+		final TAPMetadata metadata = new TAPMetadata(){
+			private boolean first = true;
+
+			@Override
+			public void write(final PrintWriter writer, final boolean minDetail) throws IOException{
+				super.write(writer, minDetail);
+				// a concurrent modification of the metadata:
+				if (first){
+					first = false;
+					addSchema("other");
+				}
+			}
+		};
+		metadata.addSchema("cat");
+
+		// CASE: the document serialized before the invalidation is not cached:
+		CachedDocument outdated = metadata.getTableSetDocument(false);
+		assertFalse(new String(outdated.getContent(), "UTF-8").contains("<name>other</name>"));
+		CachedDocument full = metadata.getTableSetDocument(false);
+		assertNotSame(outdated, full);
+		assertTrue(new String(full.getContent(), "UTF-8").contains("<name>other</name>"));
+
+		// CASE: the next one is:
+		assertSame(full, metadata.getTableSetDocument(false));
+	}
+
 }
@@ -0,0 +1,76 @@
+package tap.metadata;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import adql.db.DBType;
+import adql.db.DBType.DBDatatype;
+
+public class TestTAPMetadataDiff {
+
+	private static TAPMetadata createMetadata(){
+		TAPMetadata metadata = new TAPMetadata();
+		TAPSchema schema = metadata.addSchema("cat");
+		TAPTable table = schema.addTable("stars");
+		table.addColumn("id", new DBType(DBDatatype.BIGINT), "Identifier", null, "meta.id", null);
+		table.addColumn("ra", new DBType(DBDatatype.DOUBLE), "Right ascension", "deg", "pos.eq.ra", null);
+		schema.addTable("galaxies").addColumn("name", new DBType(DBDatatype.VARCHAR, 32), "Name", null, null, null);
+		return metadata;
+	}
+
+	@Test
+	public void testDiff(){
+		// CASE: identical metadata:
+		TAPMetadataDiff diff = new TAPMetadataDiff(createMetadata(), createMetadata());
+		assertTrue(diff.isEmpty());
+		assertEquals("no change", diff.toString());
+
+		// CASE: no former metadata:
+		diff = new TAPMetadataDiff(null, createMetadata());
+		assertEquals(1, diff.getAddedSchemas().size());
+		assertEquals(2, diff.getAddedTables().size());
+
+		// CASE: added schema and table, removed table:
+		TAPMetadata newMeta = createMetadata();
+		newMeta.getSchema("cat").removeTable("galaxies");
+		newMeta.addSchema("obs").addTable("images");
+		diff = new TAPMetadataDiff(createMetadata(), newMeta);
+		assertFalse(diff.isEmpty());
+		assertEquals("[obs]", diff.getAddedSchemas().toString());
+		assertEquals("[obs.images]", diff.getAddedTables().toString());
+		assertEquals("[cat.galaxies]", diff.getRemovedTables().toString());
+		assertTrue(diff.getModifiedTables().isEmpty());
+		assertTrue(diff.getRemovedSchemas().isEmpty());
+
+		// CASE: modified column datatype:
+		newMeta = createMetadata();
+		newMeta.getSchema("cat").getTable("galaxies").getColumn("name").setDatatype(new DBType(DBDatatype.VARCHAR, 64));
+		diff = new TAPMetadataDiff(createMetadata(), newMeta);
+		assertEquals("[cat.galaxies]", diff.getModifiedTables().toString());
+		assertEquals("modified tables: cat.galaxies", diff.toString());
+
+		// CASE: new column:
+		newMeta = createMetadata();
+		newMeta.getSchema("cat").getTable("stars").addColumn("dec", new DBType(DBDatatype.DOUBLE), "Declination", "deg", "pos.eq.dec", null);
+		diff = new TAPMetadataDiff(createMetadata(), newMeta);
+		assertEquals("[cat.stars]", diff.getModifiedTables().toString());
+
+		// CASE: modified schema description:
+		newMeta = createMetadata();
+		newMeta.getSchema("cat").setDescription("Catalogues");
+		diff = new TAPMetadataDiff(createMetadata(), newMeta);
+		assertEquals("[cat]", diff.getModifiedSchemas().toString());
+		assertTrue(diff.getModifiedTables().isEmpty());
+
+		// CASE: removed schema:
+		newMeta = createMetadata();
+		newMeta.removeSchema("cat");
+		diff = new TAPMetadataDiff(createMetadata(), newMeta);
+		assertEquals("[cat]", diff.getRemovedSchemas().toString());
+		assertEquals(2, diff.getRemovedTables().size());
+	}
+
+}
@@ -0,0 +1,71 @@
+package tap.metrics;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import java.util.Map;
+
+import javax.management.Attribute;
+
+import org.junit.Test;
+
+public class TestMetricsRegistry {
+
+	@Test
+	public void testHistogram(){
+		Histogram histogram = new Histogram(new long[]{ 10, 100 });
+		histogram.observe(5);
+		histogram.observe(10);
+		histogram.observe(50);
+		histogram.observe(1000);
+		histogram.observe(-1); // ignored
+		assertArrayEquals(new long[]{ 2, 1, 1 }, histogram.getBucketCounts());
+		assertEquals(4, histogram.getCount());
+		assertEquals(1065, histogram.getSum());
+		assertEquals(1000, histogram.getMax());
+	}
+
+	@Test
+	public void testRegistry() throws Exception{
+		MetricsRegistry registry = new MetricsRegistry();
+
+		// Metrics are created once:
+		assertSame(registry.counter("c"), registry.counter("c"));
+		registry.counter("tap_queries_total{mode=\"sync\"}").increment();
+		registry.counter("tap_queries_total{mode=\"async\"}").add(2);
+		registry.counter("tap_queries_total{mode=\"async\"}").add(-5); // ignored
+		registry.registerGauge("tap_jobs", new Gauge(){
+			@Override
+			public long getValue(){
+				return 3;
+			}
+		});
+		registry.histogram("tap_step_duration_ms{step=\"parsing\"}", new long[]{ 10, 100 }).observe(42);
+
+		// Flat values:
+		Map<String,Long> values = registry.getValues();
+		assertEquals(Long.valueOf(2), values.get("tap_queries_total{mode=\"async\"}"));
+		assertEquals(Long.valueOf(3), values.get("tap_jobs"));
+		assertEquals(Long.valueOf(1), values.get("tap_step_duration_ms_count{step=\"parsing\"}"));
+		assertEquals(Long.valueOf(42), values.get("tap_step_duration_ms_max{step=\"parsing\"}"));
+
+		// Prometheus text format:
+		StringWriter out = new StringWriter();
+		registry.writeText(out);
+		String text = out.toString();
+		assertTrue(text.contains("# TYPE tap_queries_total counter\ntap_queries_total{mode=\"async\"} 2\ntap_queries_total{mode=\"sync\"} 1\n"));
+		assertTrue(text.contains("# TYPE tap_jobs gauge\ntap_jobs 3\n"));
+		assertTrue(text.contains("# TYPE tap_step_duration_ms histogram\n" + "tap_step_duration_ms_bucket{step=\"parsing\",le=\"10\"} 0\n" + "tap_step_duration_ms_bucket{step=\"parsing\",le=\"100\"} 1\n" + "tap_step_duration_ms_bucket{step=\"parsing\",le=\"+Inf\"} 1\n" + "tap_step_duration_ms_sum{step=\"parsing\"} 42\n" + "tap_step_duration_ms_count{step=\"parsing\"} 1\n"));
+
+		// JMX view:
+		MetricsMBean mbean = new MetricsMBean(registry);
+		assertEquals(Long.valueOf(3), mbean.getAttribute("tap_jobs"));
+		assertEquals(values.size(), mbean.getMBeanInfo().getAttributes().length);
+		assertEquals(1, mbean.getAttributes(new String[]{ "tap_jobs", "unknown" }).size());
+		assertEquals(3L, ((Attribute)mbean.getAttributes(new String[]{ "tap_jobs" }).get(0)).getValue());
+	}
+
+}
@@ -0,0 +1,114 @@
+package tap.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import tap.ServiceBusyException;
+import uws.UWSException;
+import uws.job.user.DefaultJobOwner;
+import uws.job.user.JobOwner;
+
+public class TestSyncAdmissionController {
+
+	@Test
+	public void testRejectWithoutQueue(){
+		SyncAdmissionController controller = new SyncAdmissionController(1, 0, 1000, 0);
+		try{
+			SyncAdmissionController.Ticket ticket = controller.admit(null);
+			assertEquals(1, controller.getNbRunning());
+			try{
+				controller.admit(null);
+				fail("No more slot and no queue: the request should have been rejected!");
+			}catch(ServiceBusyException sbe){
+				assertEquals(UWSException.SERVICE_UNAVAILABLE, sbe.getHttpErrorCode());
+				assertEquals(1, sbe.getRetryAfter());
+			}
+			ticket.release();
+			ticket.release(); // no effect
+			assertEquals(0, controller.getNbRunning());
+			controller.admit(null).release();
+			assertEquals(2, controller.getNbAdmitted());
+			assertEquals(1, controller.getNbRejected());
+		}catch(ServiceBusyException sbe){
+			sbe.printStackTrace();
+			fail("Unexpected rejection! (see console for more details)");
+		}
+	}
+
+	@Test
+	public void testQueue() throws Exception{
+		final SyncAdmissionController controller = new SyncAdmissionController(1, 1, 5000, 0);
+		SyncAdmissionController.Ticket ticket = controller.admit(null);
+
+		// A second request waits for the free slot:
+		final CountDownLatch admitted = new CountDownLatch(1);
+		Thread waiting = new Thread(){
+			@Override
+			public void run(){
+				try{
+					controller.admit(null).release();
+					admitted.countDown();
+				}catch(ServiceBusyException sbe){}
+			}
+		};
+		waiting.start();
+		long start = System.currentTimeMillis();
+		while(controller.getNbQueued() == 0 && System.currentTimeMillis() - start < 5000)
+			Thread.sleep(10);
+		assertEquals(1, controller.getNbQueued());
+
+		// ...but a third one is rejected since the queue is full:
+		try{
+			controller.admit(null);
+			fail("The queue is full: the request should have been rejected!");
+		}catch(ServiceBusyException sbe){}
+
+		// Free the slot => the waiting request is executed:
+		ticket.release();
+		assertTrue(admitted.await(5, TimeUnit.SECONDS));
+		assertEquals(0, controller.getNbQueued());
+		assertEquals(1, controller.getPeakQueued());
+		assertEquals(2, controller.getNbAdmitted());
+		assertEquals(1, controller.getNbRejected());
+	}
+
+	@Test
+	public void testTimeout() throws Exception{
+		SyncAdmissionController controller = new SyncAdmissionController(1, 5, 50, 0);
+		SyncAdmissionController.Ticket ticket = controller.admit(null);
+		try{
+			controller.admit(null);
+			fail("The request should have waited too long!");
+		}catch(ServiceBusyException sbe){
+			assertEquals(1, controller.getNbTimedOut());
+		}
+		ticket.release();
+	}
+
+	@Test
+	public void testPerUserLimit() throws Exception{
+		SyncAdmissionController controller = new SyncAdmissionController(0, 0, 0, 1);
+		JobOwner alice = new DefaultJobOwner("alice"), bob = new DefaultJobOwner("bob");
+
+		SyncAdmissionController.Ticket ticket = controller.admit(alice);
+		try{
+			controller.admit(alice);
+			fail("The user limit is reached: the request should have been rejected!");
+		}catch(ServiceBusyException sbe){}
+
+		// other users and anonymous requests are not affected:
+		controller.admit(bob).release();
+		controller.admit(null).release();
+
+		// once released, the user can execute a new query:
+		ticket.release();
+		controller.admit(alice).release();
+	}
+
+}
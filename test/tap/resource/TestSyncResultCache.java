@@ -0,0 +1,124 @@
+package tap.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import tap.TAPJob;
+import tap.metadata.TAPMetadata;
+import tap.parameters.ServiceConnectionOfTest;
+import tap.parameters.TAPParameters;
+
+public class TestSyncResultCache {
+
+	private static TAPParameters createParams(final String query, final String format) throws Exception{
+		Map<String,Object> params = new HashMap<String,Object>();
+		params.put(TAPJob.PARAM_REQUEST, TAPJob.REQUEST_DO_QUERY);
+		params.put(TAPJob.PARAM_LANGUAGE, "ADQL");
+		params.put(TAPJob.PARAM_QUERY, query);
+		if (format != null)
+			params.put(TAPJob.PARAM_FORMAT, format);
+		return new TAPParameters(new ServiceConnectionOfTest(), params);
+	}
+
+	@Test
+	public void testNormalizeQuery(){
+		assertEquals("SELECT * FROM foo", SyncResultCache.normalizeQuery("  SELECT *\n\tFROM   foo ; "));
+		assertEquals("SELECT 'a  b' FROM \"My  Table\"", SyncResultCache.normalizeQuery("SELECT 'a  b'\nFROM \"My  Table\""));
+		assertNull(SyncResultCache.normalizeQuery(null));
+	}
+
+	@Test
+	public void testKey() throws Exception{
+		SyncResultCache cache = new SyncResultCache(1000, 100, -1);
+		TAPMetadata metadata = new TAPMetadata();
+
+		TAPParameters params = createParams("SELECT * FROM foo", "votable");
+		assertTrue(cache.isCacheable(params));
+		String key = cache.getKey(params, metadata);
+		assertEquals(key, cache.getKey(createParams("SELECT *\n  FROM foo;", "votable"), metadata));
+		assertFalse(key.equals(cache.getKey(createParams("SELECT * FROM foo", "csv"), metadata)));
+
+		// Queries with uploads are not cacheable:
+		TAPParameters upload = createParams("SELECT * FROM TAP_UPLOAD.t1", null);
+		upload.set(TAPJob.PARAM_UPLOAD, "t1,http://foo.org/t1.xml");
+		assertFalse(cache.isCacheable(upload));
+
+		// New metadata => the cache is cleared:
+		assertTrue(cache.put(key, new byte[10], "text/plain", null, new String[]{ "foo" }));
+		assertEquals(1, cache.getNbEntries());
+		cache.getKey(params, metadata);
+		assertEquals(1, cache.getNbEntries());
+		cache.getKey(params, new TAPMetadata());
+		assertEquals(0, cache.getNbEntries());
+	}
+
+	@Test
+	public void testLRU(){
+		SyncResultCache cache = new SyncResultCache(30, 15, -1);
+
+		// Too big result:
+		assertFalse(cache.put("big", new byte[16], "text/plain", null, null));
+
+		assertTrue(cache.put("q1", new byte[10], "text/plain", null, null));
+		assertTrue(cache.put("q2", new byte[10], "text/plain", null, null));
+		assertTrue(cache.put("q3", new byte[10], "text/plain", null, null));
+		assertEquals(30, cache.getSize());
+
+		// Use q1, so that q2 becomes the least recently used:
+		assertNotNull(cache.get("q1"));
+		assertTrue(cache.put("q4", new byte[10], "text/plain", null, null));
+		assertEquals(3, cache.getNbEntries());
+		assertEquals(30, cache.getSize());
+		assertNull(cache.get("q2"));
+		assertNotNull(cache.get("q1"));
+		assertNotNull(cache.get("q3"));
+		assertNotNull(cache.get("q4"));
+
+		// Replacing an entry does not count it twice:
+		assertTrue(cache.put("q4", new byte[5], "text/plain", null, null));
+		assertEquals(25, cache.getSize());
+
+		assertEquals(4, cache.getNbHits());
+		assertEquals(1, cache.getNbMisses());
+	}
+
+	@Test
+	public void testTimeToLive() throws Exception{
+		SyncResultCache cache = new SyncResultCache(100, 100, 50);
+		cache.put("q1", new byte[10], "text/plain", null, null);
+		assertNotNull(cache.get("q1"));
+		Thread.sleep(100);
+		assertNull(cache.get("q1"));
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void testInvalidation(){
+		SyncResultCache cache = new SyncResultCache(100, 100, -1);
+		cache.put("q1", new byte[10], "text/plain", null, new String[]{ "gaia.lite" });
+		cache.put("q2", new byte[10], "text/plain", null, new String[]{ "gaia.lite", "TAP_SCHEMA.tables" });
+		cache.put("q3", new byte[10], "text/plain", null, new String[]{ "TAP_SCHEMA.columns" });
+
+		assertEquals(2, cache.invalidate("Gaia.Lite"));
+		assertEquals(1, cache.getNbEntries());
+		assertEquals(1, cache.invalidate("columns"));
+		assertEquals(0, cache.invalidate("foo.columns"));
+		assertEquals(0, cache.getSize());
+
+		// Excluded tables are never cached:
+		cache.excludeTable("live.events");
+		assertTrue(cache.isExcluded("LIVE.events"));
+		assertFalse(cache.isExcluded("other.events"));
+		assertFalse(cache.put("q4", new byte[10], "text/plain", null, new String[]{ "gaia.lite", "live.events" }));
+		assertTrue(cache.put("q4", new byte[10], "text/plain", null, new String[]{ "gaia.lite" }));
+	}
+
+}
@@ -1,9 +1,33 @@
 package tap.resource;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.AsyncListener;
+import javax.servlet.ServletContext;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
 
 import org.junit.Test;
 
@@ -14,9 +38,13 @@ import tap.ServiceConnection;
 import tap.TAPException;
 import tap.db.DBConnection;
 import tap.formatter.ServiceConnection4Test;
+import tap.log.DefaultTAPLog;
+import tap.log.TAPLog;
 import tap.metadata.TAPMetadata;
 import tap.metadata.TAPSchema;
 import tap.metadata.TAPTable;
+import uws.UWSException;
+import uws.service.TestUWSUrl.TestHttpServletRequest;
 import uws.service.file.LocalUWSFileManager;
 
 public class TestTAP {
@@ -70,6 +98,409 @@ public class TestTAP {
 		}
 	}
 
+	@Test
+	public void testTAPMetadataFollowsService() throws Exception{
+		final TAPMetadata[] current = new TAPMetadata[]{ new TAPMetadata() };
+		ServiceConnection4Test serviceConn = new ServiceConnection4Test(null, new LocalUWSFileManager(new File(System.getProperty("java.io.tmpdir")))){
+			@Override
+			public TAPMetadata getTAPMetadata(){
+				return current[0];
+			}
+		};
+		serviceConn.setFactory(new TAPFactory4Test(serviceConn));
+		TAP tap = new TAP(serviceConn);
+		tap.setTAPBaseURL("http://localhost/tap");
+		assertSame(current[0], tap.getTAPMetadata());
+
+		// CASE: metadata replaced in the service connection only:
+		current[0] = new TAPMetadata();
+		assertSame(current[0], tap.getResource(TAPMetadata.RESOURCE_NAME));
+		assertSame(current[0], tap.getTAPMetadata());
+		assertEquals("http://localhost/tap/tables", current[0].getAccessURL());
+
+		// CASE: metadata replaced in both:
+		current[0] = new TAPMetadata();
+		tap.setTAPMetadata(current[0]);
+		assertSame(current[0], tap.getTAPMetadata());
+		assertEquals("http://localhost/tap/tables", current[0].getAccessURL());
+
+		// CASE: /tables replaced by a custom resource:
+		Availability custom = new Availability(serviceConn);
+		tap.addResource(TAPMetadata.RESOURCE_NAME, custom);
+		current[0] = new TAPMetadata();
+		assertSame(custom, tap.getResource(TAPMetadata.RESOURCE_NAME));
+	}
+
+	@Test
+	public void testStreamJobEventsThroughTAP() throws Exception{
+		final TAPLog logger = new DefaultTAPLog(new ByteArrayOutputStream());
+		ServiceConnection4Test serviceConn = new ServiceConnection4Test(new TAPMetadata(), new LocalUWSFileManager(new File(System.getProperty("java.io.tmpdir")))){
+			@Override
+			public TAPLog getLogger(){
+				return logger;
+			}
+		};
+		serviceConn.setFactory(new TAPFactory4Test(serviceConn));
+		TAP tap = new TAP(serviceConn);
+		try{
+			// CASE: asynchronous processing supported => the stream is open and the response is not flushed by TAP:
+			AsyncRequest4Test request = new AsyncRequest4Test("/async/events", true);
+			Response4Test response = new Response4Test();
+			tap.executeRequest(request, response);
+			assertTrue(request.isAsyncStarted());
+			assertFalse(response.flushed);
+			assertEquals(HttpServletResponse.SC_OK, response.status);
+			assertEquals("text/event-stream", response.contentType);
+			long end = System.currentTimeMillis() + 5000;
+			while(response.out.size() == 0 && System.currentTimeMillis() < end)
+				Thread.sleep(5);
+			assertEquals("retry: 5000\n\n", response.out.toString("UTF-8"));
+
+			// CASE: asynchronous processing not supported => HTTP-501:
+			request = new AsyncRequest4Test("/async/events", false);
+			response = new Response4Test();
+			tap.executeRequest(request, response);
+			assertFalse(request.isAsyncStarted());
+			assertEquals(UWSException.NOT_IMPLEMENTED, response.status);
+			assertTrue(response.flushed);
+		}finally{
+			tap.destroy();
+		}
+	}
+
+	/**
+	 * HTTP-GET request whose asynchronous processing can be started.
+	 */
+	private static class AsyncRequest4Test extends HttpServletRequestWrapper {
+
+		private final boolean asyncSupported;
+		private final Map<String,Object> attributes = new HashMap<String,Object>();
+		private AsyncContext asyncContext = null;
+
+		public AsyncRequest4Test(final String pathInfo, final boolean asyncSupported){
+			super(new TestHttpServletRequest(new StringBuffer("http://localhost/tap" + pathInfo), "/tap" + pathInfo, "http", "localhost", 80, "", "/tap", pathInfo));
+			this.asyncSupported = asyncSupported;
+		}
+
+		@Override
+		public String getMethod(){
+			return "GET";
+		}
+
+		@Override
+		public Object getAttribute(String name){
+			return attributes.get(name);
+		}
+
+		@Override
+		public Enumeration<String> getAttributeNames(){
+			return Collections.enumeration(attributes.keySet());
+		}
+
+		@Override
+		public void setAttribute(String name, Object value){
+			attributes.put(name, value);
+		}
+
+		@Override
+		public void removeAttribute(String name){
+			attributes.remove(name);
+		}
+
+		@Override
+		public String getParameter(String name){
+			return null;
+		}
+
+		@Override
+		public Map<String,String[]> getParameterMap(){
+			return new HashMap<String,String[]>();
+		}
+
+		@Override
+		public Enumeration<String> getParameterNames(){
+			return Collections.enumeration(Collections.<String> emptyList());
+		}
+
+		@Override
+		public Enumeration<String> getHeaderNames(){
+			return Collections.enumeration(Collections.<String> emptyList());
+		}
+
+		@Override
+		public Enumeration<String> getHeaders(String name){
+			return Collections.enumeration(Collections.<String> emptyList());
+		}
+
+		@Override
+		public boolean isAsyncSupported(){
+			return asyncSupported;
+		}
+
+		@Override
+		public boolean isAsyncStarted(){
+			return asyncContext != null;
+		}
+
+		@Override
+		public AsyncContext getAsyncContext(){
+			return asyncContext;
+		}
+
+		@Override
+		public AsyncContext startAsync(){
+			return startAsync(this, null);
+		}
+
+		@Override
+		public AsyncContext startAsync(final ServletRequest request, final ServletResponse response){
+			if (!asyncSupported)
+				throw new IllegalStateException("Asynchronous processing not supported!");
+			asyncContext = new AsyncContext(){
+				@Override
+				public ServletRequest getRequest(){
+					return request;
+				}
+
+				@Override
+				public ServletResponse getResponse(){
+					return response;
+				}
+
+				@Override
+				public boolean hasOriginalRequestAndResponse(){
+					return true;
+				}
+
+				@Override
+				public void dispatch(){}
+
+				@Override
+				public void dispatch(String path){}
+
+				@Override
+				public void dispatch(ServletContext context, String path){}
+
+				@Override
+				public void complete(){}
+
+				@Override
+				public void start(Runnable run){
+					new Thread(run).start();
+				}
+
+				@Override
+				public void addListener(AsyncListener listener){}
+
+				@Override
+				public void addListener(AsyncListener listener, ServletRequest request, ServletResponse response){}
+
+				@Override
+				public <T extends AsyncListener> T createListener(Class<T> clazz) throws ServletException{
+					return null;
+				}
+
+				@Override
+				public void setTimeout(long timeout){}
+
+				@Override
+				public long getTimeout(){
+					return 0;
+				}
+			};
+			return asyncContext;
+		}
+	}
+
+	/**
+	 * HTTP response written in memory, remembering whether it has been flushed.
+	 */
+	private static class Response4Test implements HttpServletResponse {
+
+		private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		private final Map<String,String> headers = new HashMap<String,String>();
+		private int status = SC_OK;
+		private String contentType = null;
+		private String characterEncoding = "UTF-8";
+		private boolean flushed = false;
+
+		@Override
+		public ServletOutputStream getOutputStream() throws IOException{
+			return new ServletOutputStream(){
+				@Override
+				public void write(int b) throws IOException{
+					synchronized(out){
+						out.write(b);
+					}
+				}
+			};
+		}
+
+		@Override
+		public PrintWriter getWriter() throws IOException{
+			return new PrintWriter(new OutputStreamWriter(getOutputStream(), characterEncoding));
+		}
+
+		@Override
+		public void flushBuffer() throws IOException{
+			flushed = true;
+		}
+
+		@Override
+		public boolean isCommitted(){
+			return flushed;
+		}
+
+		@Override
+		public void setStatus(int sc){
+			status = sc;
+		}
+
+		@Override
+		public void setStatus(int sc, String sm){
+			status = sc;
+		}
+
+		@Override
+		public int getStatus(){
+			return status;
+		}
+
+		@Override
+		public void sendError(int sc) throws IOException{
+			status = sc;
+		}
+
+		@Override
+		public void sendError(int sc, String msg) throws IOException{
+			status = sc;
+		}
+
+		@Override
+		public void sendRedirect(String location) throws IOException{
+			status = SC_SEE_OTHER;
+			headers.put("Location", location);
+		}
+
+		@Override
+		public void setContentType(String type){
+			contentType = type;
+		}
+
+		@Override
+		public String getContentType(){
+			return contentType;
+		}
+
+		@Override
+		public void setCharacterEncoding(String charset){
+			characterEncoding = charset;
+		}
+
+		@Override
+		public String getCharacterEncoding(){
+			return characterEncoding;
+		}
+
+		@Override
+		public void setHeader(String name, String value){
+			headers.put(name, value);
+		}
+
+		@Override
+		public void addHeader(String name, String value){
+			headers.put(name, value);
+		}
+
+		@Override
+		public void setDateHeader(String name, long date){
+			headers.put(name, String.valueOf(date));
+		}
+
+		@Override
+		public void addDateHeader(String name, long date){
+			headers.put(name, String.valueOf(date));
+		}
+
+		@Override
+		public void setIntHeader(String name, int value){
+			headers.put(name, String.valueOf(value));
+		}
+
+		@Override
+		public void addIntHeader(String name, int value){
+			headers.put(name, String.valueOf(value));
+		}
+
+		@Override
+		public boolean containsHeader(String name){
+			return headers.containsKey(name);
+		}
+
+		@Override
+		public String getHeader(String name){
+			return headers.get(name);
+		}
+
+		@Override
+		public Collection<String> getHeaders(String name){
+			return headers.containsKey(name) ? Collections.singletonList(headers.get(name)) : Collections.<String> emptyList();
+		}
+
+		@Override
+		public Collection<String> getHeaderNames(){
+			return headers.keySet();
+		}
+
+		@Override
+		public void addCookie(Cookie cookie){}
+
+		@Override
+		public String encodeURL(String url){
+			return url;
+		}
+
+		@Override
+		public String encodeRedirectURL(String url){
+			return url;
+		}
+
+		@Override
+		public String encodeUrl(String url){
+			return url;
+		}
+
+		@Override
+		public String encodeRedirectUrl(String url){
+			return url;
+		}
+
+		@Override
+		public void setContentLength(int len){}
+
+		@Override
+		public void setBufferSize(int size){}
+
+		@Override
+		public int getBufferSize(){
+			return 0;
+		}
+
+		@Override
+		public void resetBuffer(){}
+
+		@Override
+		public void reset(){}
+
+		@Override
+		public void setLocale(Locale loc){}
+
+		@Override
+		public Locale getLocale(){
+			return null;
+		}
+	}
+
 	private static class TAPFactory4Test extends AbstractTAPFactory {
 
 		protected TAPFactory4Test(ServiceConnection service) throws NullPointerException{
@@ -0,0 +1,225 @@
+package tap.resource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import tap.ExecutionProgression;
+import tap.QuotaExceededException;
+import tap.TAPExecutionReport;
+import uws.UWSException;
+import uws.job.user.DefaultJobOwner;
+import uws.job.user.JobOwner;
+
+public class TestUsageAccounting {
+
+	/** Accounting whose the current time is set by the tests. */
+	private static class TestAccounting extends UsageAccounting {
+		private static final long serialVersionUID = 1L;
+		long time = 0;
+
+		public TestAccounting(final long windowLength, final int nbBuckets){
+			super(windowLength, nbBuckets);
+		}
+
+		@Override
+		protected long now(){
+			return time;
+		}
+	}
+
+	private TestAccounting accounting;
+	private JobOwner user1, user2;
+
+	@Before
+	public void setUp() throws Exception{
+		// window of 10 seconds, divided into 10 buckets of 1 second:
+		accounting = new TestAccounting(10000, 10);
+		user1 = new DefaultJobOwner("user1");
+		user2 = new DefaultJobOwner("user2");
+	}
+
+	private static TAPExecutionReport report(final long dbTime, final long rows){
+		TAPExecutionReport report = new TAPExecutionReport("job", true, null);
+		report.setDuration(ExecutionProgression.EXECUTING_ADQL, dbTime);
+		report.nbRows = rows;
+		return report;
+	}
+
+	@Test
+	public void testAccounting(){
+		assertEquals(10000, accounting.getWindowLength());
+		assertEquals(10, accounting.getNbBuckets());
+
+		accounting.record(user1, report(500, 100), 2048);
+		accounting.time = 2500;
+		accounting.record(user1, report(300, -1), -1);
+		accounting.record(user2, null, 10);
+		accounting.record(null, report(1000, 1000), 1000); // anonymous => ignored
+
+		UsageAccounting.UserUsage usage = accounting.getUsage("user1");
+		assertEquals(2, usage.getNbQueries());
+		assertEquals(800, usage.getDBTime());
+		assertEquals(100, usage.getNbRows());
+		assertEquals(2048, usage.getNbBytes());
+		assertEquals(2, accounting.getSnapshot().size());
+
+		// The first usage leaves the window after 10 seconds:
+		accounting.time = 10500;
+		usage = accounting.getUsage("user1");
+		assertEquals(1, usage.getNbQueries());
+		assertEquals(300, usage.getDBTime());
+		assertEquals(0, usage.getNbRows());
+		assertEquals(0, usage.getNbBytes());
+
+		// ...and all usages after 10 more seconds:
+		accounting.time = 20000;
+		assertNull(accounting.getUsage("user1"));
+		assertNull(accounting.getUsage("user2"));
+		assertEquals(0, accounting.getSnapshot().size());
+		accounting.purge();
+		assertEquals(0, accounting.owners.size());
+	}
+
+	@Test
+	public void testQuota(){
+		accounting.setQuota(UsageAccounting.QUERIES, 2);
+		accounting.setQuota(UsageAccounting.BYTES, 1000);
+		try{
+			accounting.check(user1);
+			accounting.record(user1, report(10, 10), 10);
+			accounting.check(user1);
+			accounting.time = 3000;
+			accounting.record(user1, report(10, 10), 10);
+		}catch(QuotaExceededException qee){
+			qee.printStackTrace();
+			fail("Unexpected rejection! (see console for more details)");
+		}
+
+		// The quota of queries is reached:
+		try{
+			accounting.check(user1);
+			fail("The quota of queries is reached: the request should have been rejected!");
+		}catch(QuotaExceededException qee){
+			assertEquals(UWSException.TOO_MANY_REQUESTS, qee.getHttpErrorCode());
+			// the first query leaves the window in 7 seconds:
+			assertEquals(7, qee.getRetryAfter());
+			assertTrue(qee.getMessage().contains("queries"));
+		}
+		assertEquals(1, accounting.getNbRejected());
+
+		// ...but other users are not concerned:
+		try{
+			accounting.check(user2);
+			accounting.check(null);
+		}catch(QuotaExceededException qee){
+			fail("Only user1 has reached its quota!");
+		}
+
+		// The first query has left the window:
+		accounting.time = 10000;
+		try{
+			accounting.check(user1);
+		}catch(QuotaExceededException qee){
+			fail("The first query has left the window: the request should have been accepted!");
+		}
+
+		// The quota of bytes is reached:
+		accounting.setQuota(UsageAccounting.QUERIES, -1);
+		accounting.record(user1, report(10, 10), 5000);
+		try{
+			accounting.check(user1);
+			fail("The quota of bytes is reached: the request should have been rejected!");
+		}catch(QuotaExceededException qee){
+			assertTrue(qee.getMessage().contains("result bytes"));
+		}
+	}
+
+	@Test
+	public void testAdmission(){
+		accounting.setQuota(UsageAccounting.QUERIES, 2);
+
+		// The queries are counted as soon as admitted (i.e. even if not finished):
+		try{
+			accounting.admit(user1);
+			accounting.admit(user1);
+		}catch(QuotaExceededException qee){
+			qee.printStackTrace();
+			fail("Unexpected rejection! (see console for more details)");
+		}
+		assertEquals(2, accounting.getUsage("user1").getNbQueries());
+		try{
+			accounting.admit(user1);
+			fail("The quota of queries is reached: the request should have been rejected!");
+		}catch(QuotaExceededException qee){
+			assertTrue(qee.getMessage().contains("queries"));
+		}
+		assertEquals(2, accounting.getUsage("user1").getNbQueries());
+
+		// ...and not counted again at their end:
+		accounting.complete(user1, report(10, 20), 30);
+		UsageAccounting.UserUsage usage = accounting.getUsage("user1");
+		assertEquals(2, usage.getNbQueries());
+		assertEquals(10, usage.getDBTime());
+		assertEquals(20, usage.getNbRows());
+		assertEquals(30, usage.getNbBytes());
+
+		// Anonymous queries are never counted:
+		try{
+			accounting.admit(null);
+		}catch(QuotaExceededException qee){
+			fail("Anonymous queries should not be limited!");
+		}
+		assertNull(accounting.getUsage(null));
+	}
+
+	@Test
+	public void testRecordDuringPurge() throws Exception{
+		final UsageAccounting realAccounting = new UsageAccounting(60000, 60);
+		final int nbThreads = 4, nbUsers = 5000;
+		final AtomicBoolean done = new AtomicBoolean(false);
+
+		// Purge continuously while new users are recorded:
+		Thread purger = new Thread(){
+			@Override
+			public void run(){
+				while(!done.get())
+					realAccounting.purge();
+			}
+		};
+		purger.start();
+		Thread[] recorders = new Thread[nbThreads];
+		for(int t = 0; t < nbThreads; t++){
+			final int num = t;
+			recorders[t] = new Thread(){
+				@Override
+				public void run(){
+					for(int u = 0; u < nbUsers; u++)
+						realAccounting.record(new DefaultJobOwner("user" + num + "_" + u), null, 1);
+				}
+			};
+			recorders[t].start();
+		}
+		for(Thread t : recorders)
+			t.join();
+		done.set(true);
+		purger.join();
+
+		// No record has been lost:
+		for(int t = 0; t < nbThreads; t++){
+			for(int u = 0; u < nbUsers; u++){
+				UsageAccounting.UserUsage usage = realAccounting.getUsage("user" + t + "_" + u);
+				assertNotNull("Lost record for user" + t + "_" + u, usage);
+				assertEquals(1, usage.getNbQueries());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,163 @@
+package tap.upload;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import adql.parser.ADQLParser;
+import adql.query.ADQLObject;
+import adql.query.ADQLQuery;
+import adql.query.constraint.In;
+import adql.search.SimpleSearchHandler;
+import adql.translator.PostgreSQLTranslator;
+import tap.db.JDBCConnection;
+import tap.metadata.TAPSchema;
+import tap.metadata.TAPTable;
+
+public class TestInListOffloader {
+
+	private static Connection h2Connection;
+	private static JDBCConnection jdbcConnection;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception{
+		Class.forName("org.h2.Driver");
+		h2Connection = DriverManager.getConnection("jdbc:h2:mem:testInListOffloader");
+		jdbcConnection = new JDBCConnection(h2Connection, new PostgreSQLTranslator(false), "H2", null);
+
+		Statement stmt = h2Connection.createStatement();
+		stmt.executeUpdate("CREATE TABLE data (id BIGINT, name VARCHAR(32))");
+		for(int i = 0; i < 100; i++)
+			stmt.executeUpdate("INSERT INTO data VALUES (" + i + ", 'n" + i + "')");
+		stmt.close();
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception{
+		h2Connection.close();
+	}
+
+	@Test
+	public void testOffload() throws Exception{
+		ADQLParser parser = new ADQLParser();
+		PostgreSQLTranslator translator = new PostgreSQLTranslator(false);
+		InListOffloader offloader = new InListOffloader(jdbcConnection, 5);
+
+		// Too short list => nothing must be done:
+		ADQLQuery query = parser.parseQuery("SELECT id FROM data WHERE id IN (1, 2, 3)");
+		assertNull(offloader.offload(query, null));
+		assertFalse(findIn(query).hasSubQuery());
+
+		// List mixing numbers and strings => nothing must be done:
+		query = parser.parseQuery("SELECT id FROM data WHERE id IN (1, 2, 3, 4, '5', 6)");
+		assertNull(offloader.offload(query, null));
+
+		// Long enough list of integers (with a negative one and a duplicate):
+		query = parser.parseQuery("SELECT id FROM data WHERE id IN (-1, 2, 4, 4, 8, 16, 32, 64, 128)");
+		TAPSchema schema = offloader.offload(query, null);
+		try{
+			assertEquals(1, schema.getNbTables());
+			assertTrue(findIn(query).hasSubQuery());
+			String sql = translator.translate(query);
+			assertTrue(sql.contains("IN (SELECT"));
+			assertEquals(6, count(sql));
+		}finally{
+			dropAll(schema);
+		}
+
+		// List mixing integers and decimals => nothing must be done
+		// (a DOUBLE column would not represent exactly 9007199254740993 = 2^53+1):
+		query = parser.parseQuery("SELECT id FROM data WHERE id IN (9007199254740993, 1, 2, 3, 4.5, 5)");
+		assertNull(offloader.offload(query, null));
+		assertTrue(translator.translate(query).contains("9007199254740993"));
+
+		// List of integers too large for a BIGINT => nothing must be done:
+		query = parser.parseQuery("SELECT id FROM data WHERE id IN (99999999999999999999, 1, 2, 3, 4, 5)");
+		assertNull(offloader.offload(query, null));
+
+		// Long enough list of strings and of decimals, in a sub-query:
+		query = parser.parseQuery("SELECT id FROM data WHERE name IN ('n1', 'n3', 'n5', 'n7', 'n9', 'unknown') AND id IN (SELECT id FROM data WHERE id IN (1.0, 3.0, 5.0, 1e10, 7.5))");
+		schema = offloader.offload(query, null);
+		try{
+			assertEquals(2, schema.getNbTables());
+			assertEquals(3, count(translator.translate(query)));
+		}finally{
+			dropAll(schema);
+		}
+
+		// Long enough list of large integers must be stored exactly:
+		query = parser.parseQuery("SELECT id FROM data WHERE id IN (9007199254740993, 1, 2, 3, 4, 5)");
+		schema = offloader.offload(query, null);
+		try{
+			assertEquals(1, schema.getNbTables());
+			assertEquals(5, count(translator.translate(query)));
+			TAPTable table = schema.iterator().next();
+			Statement stmt = h2Connection.createStatement();
+			try{
+				ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + translator.getQualifiedTableName(table) + " WHERE " + InListOffloader.COLUMN_NAME + " = 9007199254740993");
+				assertTrue(rs.next());
+				assertEquals(1, rs.getInt(1));
+			}finally{
+				stmt.close();
+			}
+		}finally{
+			dropAll(schema);
+		}
+
+		// The given schema must be reused:
+		TAPSchema uploadSchema = new TAPSchema("TAP_UPLOAD");
+		uploadSchema.addTable(new TAPTable("in_list_1"));
+		query = parser.parseQuery("SELECT id FROM data WHERE id IN (1, 2, 3, 4, 5)");
+		schema = offloader.offload(query, uploadSchema);
+		try{
+			assertSame(uploadSchema, schema);
+			assertEquals(2, schema.getNbTables());
+			assertTrue(schema.hasTable("in_list_2"));
+			assertEquals(5, count(translator.translate(query)));
+		}finally{
+			schema.removeTable("in_list_1");
+			dropAll(schema);
+		}
+	}
+
+	private static In findIn(final ADQLQuery query){
+		SimpleSearchHandler sHandler = new SimpleSearchHandler(true, true){
+			@Override
+			protected boolean match(ADQLObject obj){
+				return obj instanceof In;
+			}
+		};
+		sHandler.search(query);
+		return (In)sHandler.iterator().next();
+	}
+
+	private static int count(final String sql) throws Exception{
+		Statement stmt = h2Connection.createStatement();
+		try{
+			ResultSet rs = stmt.executeQuery(sql);
+			int nb = 0;
+			while(rs.next())
+				nb++;
+			return nb;
+		}finally{
+			stmt.close();
+		}
+	}
+
+	private static void dropAll(final TAPSchema schema) throws Exception{
+		for(TAPTable t : schema)
+			jdbcConnection.dropUploadedTable(t);
+	}
+
+}
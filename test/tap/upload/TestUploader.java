@@ -0,0 +1,225 @@
+package tap.upload;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import adql.translator.PostgreSQLTranslator;
+import tap.AbstractTAPFactory;
+import tap.TAPException;
+import tap.TAPFactory;
+import tap.db.DBConnection;
+import tap.db.JDBCConnection;
+import tap.log.DefaultTAPLog;
+import tap.log.TAPLog;
+import tap.metadata.TAPSchema;
+import tap.metadata.TAPTable;
+import tap.parameters.DALIUpload;
+import tap.parameters.ServiceConnectionOfTest;
+import uws.service.file.LocalUWSFileManager;
+import uws.service.request.UploadFile;
+
+public class TestUploader {
+
+	private final static String DB_URL = "jdbc:h2:mem:testUploader;DB_CLOSE_DELAY=-1";
+
+	private static File dir;
+	private static LocalUWSFileManager fileManager;
+	private static Connection h2Connection;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception{
+		Class.forName("org.h2.Driver");
+		h2Connection = DriverManager.getConnection(DB_URL);
+		dir = new File(System.getProperty("java.io.tmpdir"), "testUploader_" + System.currentTimeMillis());
+		dir.mkdirs();
+		fileManager = new LocalUWSFileManager(dir);
+	}
+
+	@AfterClass
+	public static void tearDownAfterClass() throws Exception{
+		h2Connection.close();
+		for(File f : dir.listFiles())
+			f.delete();
+		dir.delete();
+	}
+
+	/** Service allowing uploads (at most 100 rows per table) and giving H2 connections. */
+	private static class UploadService extends ServiceConnectionOfTest {
+		final AtomicInteger nbConnections = new AtomicInteger(0);
+		final AtomicInteger nbFreed = new AtomicInteger(0);
+		final TAPLog logger = new DefaultTAPLog(new ByteArrayOutputStream());
+		final TAPFactory factory;
+
+		UploadService() throws Exception{
+			factory = new AbstractTAPFactory(this){
+				@Override
+				public DBConnection getConnection(final String jobID) throws TAPException{
+					try{
+						nbConnections.incrementAndGet();
+						return new JDBCConnection(DriverManager.getConnection(DB_URL), new PostgreSQLTranslator(false), jobID, null);
+					}catch(SQLException se){
+						throw new TAPException(se);
+					}
+				}
+
+				@Override
+				public void freeConnection(final DBConnection conn){
+					nbFreed.incrementAndGet();
+					try{
+						((JDBCConnection)conn).getInnerConnection().close();
+					}catch(SQLException se){
+						se.printStackTrace();
+					}
+				}
+
+				@Override
+				public void destroy(){}
+			};
+		}
+
+		@Override
+		public boolean uploadEnabled(){
+			return true;
+		}
+
+		@Override
+		public long[] getUploadLimit(){
+			return new long[]{ 100, 100 };
+		}
+
+		@Override
+		public LimitUnit[] getUploadLimitType(){
+			return new LimitUnit[]{ LimitUnit.rows, LimitUnit.rows };
+		}
+
+		@Override
+		public TAPLog getLogger(){
+			return logger;
+		}
+
+		@Override
+		public TAPFactory getFactory(){
+			return factory;
+		}
+	}
+
+	private static DALIUpload createUpload(final String label, final int nbRows) throws Exception{
+		File f = new File(dir, label + ".vot");
+		OutputStream out = new FileOutputStream(f);
+		try{
+			StringBuffer buf = new StringBuffer();
+			buf.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<VOTABLE version=\"1.3\" xmlns=\"http://www.ivoa.net/xml/VOTable/v1.3\"><RESOURCE><TABLE>");
+			buf.append("<FIELD name=\"id\" datatype=\"int\"/><FIELD name=\"name\" datatype=\"char\" arraysize=\"*\"/><DATA><TABLEDATA>");
+			for(int i = 0; i < nbRows; i++)
+				buf.append("<TR><TD>").append(i).append("</TD><TD>n").append(i).append("</TD></TR>");
+			buf.append("</TABLEDATA></DATA></TABLE></RESOURCE></VOTABLE>");
+			out.write(buf.toString().getBytes("UTF-8"));
+		}finally{
+			out.close();
+		}
+		return new DALIUpload(label, new UploadFile(label, f.getAbsolutePath(), fileManager));
+	}
+
+	private static int count(final TAPTable table) throws Exception{
+		Statement stmt = h2Connection.createStatement();
+		try{
+			ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table.getDBSchemaName() + "." + table.getDBName());
+			rs.next();
+			return rs.getInt(1);
+		}finally{
+			stmt.close();
+		}
+	}
+
+	private static List<String> listUploadedTables() throws Exception{
+		ArrayList<String> tables = new ArrayList<String>();
+		ResultSet rs = h2Connection.getMetaData().getTables(null, "TAP_UPLOAD", null, null);
+		while(rs.next())
+			tables.add(rs.getString(3));
+		rs.close();
+		return tables;
+	}
+
+	private static void dropAll(final DBConnection conn, final TAPSchema schema) throws Exception{
+		for(TAPTable t : schema)
+			conn.dropUploadedTable(t);
+	}
+
+	@Test
+	public void testParallelUpload() throws Exception{
+		UploadService service = new UploadService();
+		DBConnection mainConn = service.getFactory().getConnection("main");
+		try{
+			Uploader uploader = new Uploader(service, mainConn);
+			uploader.setMaxParallelUploads(2);
+			assertEquals(2, uploader.getMaxParallelUploads());
+
+			TAPSchema schema = uploader.upload(new DALIUpload[]{ createUpload("t1", 10), createUpload("t2", 20), createUpload("t3", 30) });
+			try{
+				assertEquals(3, schema.getNbTables());
+				assertEquals(10, count(schema.getTable("t1")));
+				assertEquals(20, count(schema.getTable("t2")));
+				assertEquals(30, count(schema.getTable("t3")));
+				// only 1 additional connection, freed at the end:
+				assertEquals(2, service.nbConnections.get());
+				assertEquals(1, service.nbFreed.get());
+			}finally{
+				dropAll(mainConn, schema);
+			}
+		}finally{
+			service.getFactory().freeConnection(mainConn);
+		}
+		assertTrue(listUploadedTables().isEmpty());
+	}
+
+	@Test
+	public void testParallelUploadFailure() throws Exception{
+		UploadService service = new UploadService();
+		DBConnection mainConn = service.getFactory().getConnection("main");
+		try{
+			Uploader uploader = new Uploader(service, mainConn);
+			uploader.setMaxParallelUploads(3);
+
+			// The limit of rows is still checked for each table, and all tables must be dropped:
+			try{
+				uploader.upload(new DALIUpload[]{ createUpload("u1", 10), createUpload("u2", 101), createUpload("u3", 50) });
+				fail("The second table exceeds the upload limit: the upload should have failed!");
+			}catch(TAPException te){
+				assertTrue(te.getMessage(), te.getMessage().contains("100 rows"));
+			}
+			assertTrue(listUploadedTables().isEmpty());
+			assertEquals(service.nbConnections.get() - 1, service.nbFreed.get());
+
+			// Duplicated table names are rejected before any ingestion:
+			try{
+				new Uploader(service, mainConn).upload(new DALIUpload[]{ createUpload("v1", 10), createUpload("V1", 10) });
+				fail("Duplicated table names: the upload should have failed!");
+			}catch(TAPException te){
+				assertFalse(te.getMessage().contains("rows"));
+			}
+			assertTrue(listUploadedTables().isEmpty());
+		}finally{
+			service.getFactory().freeConnection(mainConn);
+		}
+	}
+
+}
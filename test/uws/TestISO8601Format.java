@@ -1,9 +1,11 @@
 package uws;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.fail;
 
 import java.text.ParseException;
+import java.util.Random;
 import java.util.TimeZone;
 
 import org.junit.AfterClass;
@@ -218,4 +220,132 @@ public class TestISO8601Format {
 
 	}
 
+	@Test
+	public void testFormatSameAsCalendar(){
+		final String[] zones = new String[]{ "UTC", "Europe/Berlin", "America/St_Johns", "Asia/Kathmandu", "Pacific/Chatham", "America/Los_Angeles", "Europe/Paris", "Unknown/Zone" };
+		// from the year -300 to 12000:
+		final long min = -71600000000000L, max = 316540000000000L;
+		Random random = new Random(42);
+		char[] buf = new char[ISO8601Format.MAX_FORMATTED_LENGTH + 3];
+		StringBuilder builder = new StringBuilder();
+		for(int i = 0; i < 200000; i++){
+			long d = (i < 10) ? ((i % 2 == 0) ? Long.MIN_VALUE + i : Long.MAX_VALUE - i) : min + (long)(random.nextDouble() * (max - min));
+			String zone = zones[i % zones.length];
+			boolean withTZ = (i % 3 != 0), withMs = (i % 4 != 0);
+			String expected = ISO8601Format.formatWithCalendar(d, TimeZone.getTimeZone(zone), withTZ, withMs);
+			assertEquals(expected, ISO8601Format.format(d, zone, withTZ, withMs));
+
+			// ...in a char[]:
+			int end = ISO8601Format.format(d, zone, withTZ, withMs, buf, 3);
+			assertEquals(expected, new String(buf, 3, end - 3));
+
+			// ...in a StringBuilder:
+			builder.setLength(0);
+			builder.append('>');
+			assertEquals(">" + expected, ISO8601Format.format(d, zone, withTZ, withMs, builder).toString());
+		}
+	}
+
+	@Test
+	public void testParseSameAsCalendar() throws Exception{
+		Random random = new Random(42);
+		StringBuffer buf = new StringBuffer();
+		for(int i = 0; i < 100000; i++){
+			buf.setLength(0);
+			// date (sometimes out of range):
+			buf.append(1500 + random.nextInt(600)).append('-');
+			appendDigits(buf, random.nextInt(50) == 0 ? 13 : 1 + random.nextInt(12));
+			buf.append('-');
+			appendDigits(buf, random.nextInt(30) == 0 ? 29 + random.nextInt(3) : 1 + random.nextInt(28));
+			// time:
+			if (random.nextInt(5) > 0){
+				buf.append(random.nextBoolean() ? 'T' : ' ');
+				appendDigits(buf, random.nextInt(26));
+				buf.append(':');
+				appendDigits(buf, random.nextInt(62));
+				if (random.nextBoolean()){
+					buf.append(':');
+					appendDigits(buf, random.nextInt(62));
+					if (random.nextBoolean()){
+						buf.append('.');
+						int nbDigits = 1 + random.nextInt(11);
+						for(int j = 0; j < nbDigits; j++)
+							buf.append((char)('0' + random.nextInt(10)));
+					}
+				}
+				// time zone:
+				switch(random.nextInt(5)){
+					case 0:
+						buf.append('Z');
+						break;
+					case 1:
+					case 2:
+						buf.append(random.nextBoolean() ? '+' : '-');
+						appendDigits(buf, random.nextInt(26));
+						if (random.nextBoolean()){
+							if (random.nextBoolean())
+								buf.append(':');
+							appendDigits(buf, random.nextInt(62));
+						}
+						break;
+				}
+			}
+			String str = buf.toString();
+
+			// Both parsers must return the same date or the same error:
+			Long expected = null;
+			String expectedError = null;
+			try{
+				expected = ISO8601Format.parseWithCalendar(str);
+			}catch(ParseException pe){
+				expectedError = pe.getMessage();
+			}
+			try{
+				assertEquals(str, expected, Long.valueOf(ISO8601Format.parse(str)));
+			}catch(ParseException pe){
+				assertNull(str, expected);
+				assertEquals(str, expectedError, pe.getMessage());
+			}
+		}
+	}
+
+	private static void appendDigits(final StringBuffer buf, final int value){
+		if (value < 10)
+			buf.append('0');
+		buf.append(value);
+	}
+
+	@Test
+	public void testConcurrentUse() throws Exception{
+		final String[] dates = new String[]{ "2014-09-26T13:24:30.325Z", "1858-11-24T23:00:00.000Z", "1970-01-01T00:00:00.000Z", "2015-12-11T00:00:00.999Z", "1200-06-15T12:00:00.500Z" };
+		final long[] values = new long[dates.length];
+		for(int i = 0; i < dates.length; i++)
+			values[i] = ISO8601Format.parse(dates[i]);
+
+		final Throwable[] error = new Throwable[1];
+		Thread[] threads = new Thread[8];
+		for(int t = 0; t < threads.length; t++){
+			final int offset = t;
+			threads[t] = new Thread(){
+				@Override
+				public void run(){
+					try{
+						for(int i = 0; i < 20000; i++){
+							int ind = (i + offset) % dates.length;
+							assertEquals(dates[ind], ISO8601Format.format(values[ind], "UTC", true, true));
+							assertEquals(values[ind], ISO8601Format.parse(dates[ind]));
+						}
+					}catch(Throwable th){
+						error[0] = th;
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for(Thread t : threads)
+			t.join();
+		if (error[0] != null)
+			throw new AssertionError(error[0]);
+	}
+
 }
@@ -0,0 +1,307 @@
+package uws.job;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import uws.UWSException;
+import uws.job.manager.QueuedExecutionManager;
+import uws.job.parameters.UWSParameters;
+import uws.service.AbstractUWSFactory;
+import uws.service.UWSService;
+import uws.service.file.LocalUWSFileManager;
+import uws.service.log.DefaultUWSLog;
+import uws.service.log.UWSLog;
+import uws.service.store.JDBCJobStore;
+
+public class TestSharedJobList {
+
+	private static JdbcDataSource dataSource;
+
+	/** IDs of the executed jobs, whatever is the node. */
+	private final List<String> executions = Collections.synchronizedList(new ArrayList<String>());
+
+	/** Released to end the jobs having the parameter "block". */
+	private final CountDownLatch unblock = new CountDownLatch(1);
+
+	private final List<UWSService> services = new ArrayList<UWSService>();
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception{
+		dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:testSharedJobList;DB_CLOSE_DELAY=-1");
+		new JDBCJobStore(dataSource, "A").createTables();
+	}
+
+	@After
+	public void tearDown() throws Exception{
+		unblock.countDown();
+		for(UWSService uws : services)
+			uws.destroy();
+	}
+
+	/** Create the job list of a node, with its own UWS service and execution manager. */
+	private JobList createNode(final String nodeId, final String listName, final int maxRunningJobs) throws Exception{
+		UWSLog logger = new DefaultUWSLog(new ByteArrayOutputStream());
+		UWSService uws = new UWSService(new AbstractUWSFactory(){
+			@Override
+			public JobThread createJobThread(final UWSJob jobDescription) throws UWSException{
+				return new JobThread(jobDescription){
+					@Override
+					protected void jobWork() throws UWSException, InterruptedException{
+						executions.add(job.getJobId());
+						if (job.getAdditionalParameterValue("block") != null)
+							unblock.await();
+					}
+				};
+			}
+		}, new LocalUWSFileManager(new File(System.getProperty("java.io.tmpdir"))), logger);
+		services.add(uws);
+
+		JobList list = new JobList(listName, new QueuedExecutionManager(logger, maxRunningJobs));
+		list.setJobStore(new JDBCJobStore(dataSource, nodeId));
+		list.setStoreRefreshPeriod(0);
+		assertTrue(uws.addJobList(list));
+		return list;
+	}
+
+	private static UWSJob createJob(final boolean block) throws Exception{
+		Map<String,Object> params = new HashMap<String,Object>();
+		if (block)
+			params.put("block", "true");
+		return new UWSJob(null, new UWSParameters(params));
+	}
+
+	/** Wait until the specified job is in the given phase in the given list. */
+	private static void waitForPhase(final JobList list, final String jobId, final ExecutionPhase phase) throws Exception{
+		long deadline = System.currentTimeMillis() + 10000;
+		UWSJob job;
+		while((job = list.getJob(jobId)) == null || job.getPhase() != phase){
+			if (System.currentTimeMillis() > deadline)
+				throw new AssertionError("The job \"" + jobId + "\" of the node is " + (job == null ? "unknown" : job.getPhase()) + " instead of " + phase + "!");
+			Thread.sleep(20);
+		}
+	}
+
+	@Test
+	public void testQueuedJobClaimedByAnotherNode() throws Exception{
+		JobList nodeA = createNode("A", "queued", 1);
+		JobList nodeB = createNode("B", "queued", 1);
+		QueuedExecutionManager managerA = (QueuedExecutionManager)nodeA.getExecutionManager();
+		QueuedExecutionManager managerB = (QueuedExecutionManager)nodeB.getExecutionManager();
+
+		// The node A is busy => its new job is queued:
+		UWSJob blocker = createJob(true);
+		nodeA.addNewJob(blocker);
+		blocker.start();
+		waitForPhase(nodeA, blocker.getJobId(), ExecutionPhase.EXECUTING);
+		UWSJob job = createJob(false);
+		nodeA.addNewJob(job);
+		job.start();
+		assertEquals(ExecutionPhase.QUEUED, job.getPhase());
+		assertEquals(1, managerA.getNbQueuedJobs());
+
+		// The node B claims and executes it:
+		assertEquals(1, managerB.claimQueuedJobs(nodeB));
+		waitForPhase(nodeB, job.getJobId(), ExecutionPhase.COMPLETED);
+		assertEquals(0, managerB.claimQueuedJobs(nodeB));
+
+		// Though still busy, the node A sees the new phase in its own copy:
+		waitForPhase(nodeA, job.getJobId(), ExecutionPhase.COMPLETED);
+		assertSame(job, nodeA.getJob(job.getJobId()));
+		assertEquals(ExecutionPhase.COMPLETED, job.getPhase());
+		assertEquals(0, managerA.getNbQueuedJobs());
+		assertEquals(ExecutionPhase.EXECUTING, blocker.getPhase());
+
+		// When free, the node A does not execute it again, but sees its new phase:
+		unblock.countDown();
+		waitForPhase(nodeA, blocker.getJobId(), ExecutionPhase.COMPLETED);
+		assertEquals(0, managerA.getNbQueuedJobs());
+		assertEquals(0, managerA.getNbRunningJobs());
+		waitForPhase(nodeA, job.getJobId(), ExecutionPhase.COMPLETED);
+		assertEquals(1, Collections.frequency(executions, job.getJobId()));
+		assertEquals(1, Collections.frequency(executions, blocker.getJobId()));
+	}
+
+	@Test
+	public void testRunningJobAbortedByAnotherNode() throws Exception{
+		JobList nodeA = createNode("A", "abort", 0);
+		JobList nodeB = createNode("B", "abort", 0);
+
+		// The node A executes its job:
+		UWSJob job = createJob(true);
+		nodeA.addNewJob(job);
+		job.start();
+		waitForPhase(nodeB, job.getJobId(), ExecutionPhase.EXECUTING);
+
+		// The node B aborts it:
+		nodeB.getJob(job.getJobId()).abort();
+		assertEquals(ExecutionPhase.ABORTED, nodeB.getJob(job.getJobId()).getPhase());
+
+		// The node A sees it aborted in its own copy, and stops executing it:
+		waitForPhase(nodeA, job.getJobId(), ExecutionPhase.ABORTED);
+		assertSame(job, nodeA.getJob(job.getJobId()));
+		assertTrue(job.isStopped());
+		assertEquals(0, nodeA.getExecutionManager().getNbRunningJobs());
+		assertEquals(1, Collections.frequency(executions, job.getJobId()));
+	}
+
+	@Test
+	public void testTransitionCancelledIfModifiedByAnotherNode() throws Exception{
+		JobList nodeA = createNode("A", "conflict", 0);
+		JobList nodeB = createNode("B", "conflict", 0);
+
+		UWSJob job = createJob(false);
+		nodeA.addNewJob(job);
+		final List<ExecutionPhase> transitions = Collections.synchronizedList(new ArrayList<ExecutionPhase>());
+		job.addObserver(new JobObserver(){
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void update(final UWSJob job, final ExecutionPhase oldPhase, final ExecutionPhase newPhase) throws UWSException{
+				transitions.add(newPhase);
+			}
+		});
+
+		// The node B aborts it while the node A still has its PENDING copy:
+		nodeB.getJob(job.getJobId()).abort();
+		assertEquals(ExecutionPhase.PENDING, job.getPhase());
+
+		// The node A can not queue it any more, and gets the phase set by B:
+		try{
+			job.setPhase(ExecutionPhase.QUEUED);
+			fail("The transition should have been cancelled!");
+		}catch(UWSException ue){
+			assertEquals(UWSException.BAD_REQUEST, ue.getHttpErrorCode());
+		}
+		assertEquals(ExecutionPhase.ABORTED, job.getPhase());
+		assertEquals(Collections.singletonList(ExecutionPhase.ABORTED), transitions);
+		assertEquals(ExecutionPhase.ABORTED, nodeA.getJobStore().load(nodeA, job.getJobId()).getPhase());
+		assertEquals(0, nodeA.getExecutionManager().getNbQueuedJobs());
+		assertTrue(executions.isEmpty());
+	}
+
+	@Test
+	public void testParametersSharedWithOtherNodes() throws Exception{
+		JobList nodeA = createNode("A", "params", 0);
+		JobList nodeB = createNode("B", "params", 0);
+
+		UWSJob job = createJob(false);
+		nodeA.addNewJob(job);
+
+		// A parameter set on the node A is visible on the node B:
+		assertTrue(job.addOrUpdateParameter("foo", "bar"));
+		assertEquals("bar", nodeB.getJob(job.getJobId()).getAdditionalParameterValue("foo"));
+
+		// ...and conversely, in the own copy of the node A:
+		assertTrue(nodeB.getJob(job.getJobId()).addOrUpdateParameter("foo", "baz"));
+		assertSame(job, nodeA.getJob(job.getJobId()));
+		assertEquals("baz", job.getAdditionalParameterValue("foo"));
+		assertEquals(ExecutionPhase.PENDING, job.getPhase());
+	}
+
+	@Test
+	public void testPendingJobStartedOnBothNodes() throws Exception{
+		JobList nodeA = createNode("A", "pending", 0);
+		JobList nodeB = createNode("B", "pending", 0);
+
+		for(int i = 0; i < 10; i++){
+			// A job created by the node A is also known by the node B:
+			UWSJob jobA = createJob(false);
+			nodeA.addNewJob(jobA);
+			final String jobId = jobA.getJobId();
+			UWSJob jobB = nodeB.getJob(jobId);
+			assertNotNull(jobB);
+			assertEquals(ExecutionPhase.PENDING, jobB.getPhase());
+
+			// Both nodes start it at the same time:
+			final CountDownLatch go = new CountDownLatch(1);
+			List<Thread> starters = new ArrayList<Thread>(2);
+			for(final UWSJob copy : new UWSJob[]{ jobA, jobB }){
+				Thread t = new Thread(){
+					@Override
+					public void run(){
+						try{
+							go.await();
+							copy.start();
+						}catch(Exception e){
+							e.printStackTrace();
+						}
+					}
+				};
+				t.start();
+				starters.add(t);
+			}
+			go.countDown();
+			for(Thread t : starters)
+				t.join(10000);
+
+			// Exactly one node has executed it, and both see it completed:
+			waitForPhase(nodeA, jobId, ExecutionPhase.COMPLETED);
+			waitForPhase(nodeB, jobId, ExecutionPhase.COMPLETED);
+			assertEquals(1, Collections.frequency(executions, jobId));
+			assertEquals(0, nodeA.getExecutionManager().getNbQueuedJobs() + nodeB.getExecutionManager().getNbQueuedJobs());
+		}
+	}
+
+	@Test
+	public void testStoreRefreshPeriod() throws Exception{
+		JobList nodeA = createNode("A", "refresh", 0);
+		JobList nodeB = createNode("B", "refresh", 0);
+		nodeB.setStoreRefreshPeriod(3600000);
+
+		UWSJob job = createJob(false);
+		nodeA.addNewJob(job);
+		Iterator<UWSJob> it = nodeB.iterator();
+		assertTrue(it.hasNext());
+		UWSJob copy = it.next();
+		assertEquals(job.getJobId(), copy.getJobId());
+
+		// The node A executes it (as seen through the job store by a third node):
+		job.start();
+		waitForPhase(createNode("C", "refresh", 0), job.getJobId(), ExecutionPhase.COMPLETED);
+
+		// Until the end of the refresh period, the node B keeps its loaded copy:
+		assertSame(copy, nodeB.getJob(job.getJobId()));
+		assertEquals(ExecutionPhase.PENDING, copy.getPhase());
+
+		// ...but still finds the jobs it does not know:
+		UWSJob other = createJob(false);
+		nodeA.addNewJob(other);
+		assertEquals(1, countJobs(nodeB));
+		assertNotNull(nodeB.getJob(other.getJobId()));
+		assertNull(nodeB.getJob("unknown"));
+
+		// An explicit synchronization loads the new version:
+		nodeB.synchronizeWithStore();
+		assertEquals(ExecutionPhase.COMPLETED, nodeB.getJob(job.getJobId()).getPhase());
+		assertEquals(2, countJobs(nodeB));
+		assertEquals(1, Collections.frequency(executions, job.getJobId()));
+	}
+
+	private static int countJobs(final JobList list){
+		int nb = 0;
+		for(Iterator<UWSJob> it = list.iterator(); it.hasNext(); it.next())
+			nb++;
+		return nb;
+	}
+
+}
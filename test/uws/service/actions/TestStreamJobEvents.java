@@ -0,0 +1,190 @@
+package uws.service.actions;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uws.job.ExecutionPhase;
+import uws.job.JobList;
+import uws.job.UWSJob;
+import uws.job.parameters.UWSParameters;
+import uws.service.actions.StreamJobEvents.EventStream;
+
+public class TestStreamJobEvents {
+
+	private StreamJobEvents action;
+	private JobList jobList;
+	private UWSJob job1, job2;
+
+	@Before
+	public void setUp() throws Exception{
+		action = new StreamJobEvents(null);
+		jobList = new JobList("jobs");
+		job1 = new UWSJob(new UWSParameters());
+		job2 = new UWSJob(new UWSParameters());
+		job1.addObserver(jobList.getPhaseBroadcaster());
+		job2.addObserver(jobList.getPhaseBroadcaster());
+	}
+
+	@After
+	public void tearDown() throws Exception{
+		action.stop();
+	}
+
+	private static void waitFor(final ByteArrayOutputStream out, final String expected) throws Exception{
+		long end = System.currentTimeMillis() + 5000;
+		while(!out.toString("UTF-8").equals(expected) && System.currentTimeMillis() < end)
+			Thread.sleep(5);
+		assertEquals(expected, out.toString("UTF-8"));
+	}
+
+	private String event(final UWSJob job, final ExecutionPhase oldPhase, final ExecutionPhase newPhase){
+		return "event: phase\ndata: {\"jobId\":\"" + job.getJobId() + "\",\"phase\":\"" + newPhase + "\"" + (oldPhase == null ? "" : ",\"previousPhase\":\"" + oldPhase + "\"") + "}\n\n";
+	}
+
+	@Test
+	public void testFollowedJobs() throws Exception{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EventStream stream = action.new EventStream(jobList, null, Arrays.asList(job1), out, null);
+		stream.start();
+		assertEquals(1, action.getNbStreams());
+		assertEquals(1, jobList.getPhaseBroadcaster().getNbListeners());
+
+		// The current phase is sent first:
+		String expected = "retry: 5000\n\n" + event(job1, null, ExecutionPhase.PENDING);
+		waitFor(out, expected);
+
+		// Only the transitions of the followed job are sent:
+		job2.setPhase(ExecutionPhase.EXECUTING, true);
+		job1.setPhase(ExecutionPhase.QUEUED, true);
+		job1.setPhase(ExecutionPhase.EXECUTING, true);
+		expected += event(job1, ExecutionPhase.PENDING, ExecutionPhase.QUEUED) + event(job1, ExecutionPhase.QUEUED, ExecutionPhase.EXECUTING);
+		waitFor(out, expected);
+		assertFalse(stream.isClosed());
+
+		// The stream ends when all followed jobs are finished:
+		job1.setPhase(ExecutionPhase.COMPLETED, true);
+		expected += event(job1, ExecutionPhase.EXECUTING, ExecutionPhase.COMPLETED);
+		waitFor(out, expected);
+		long end = System.currentTimeMillis() + 5000;
+		while(!stream.isClosed() && System.currentTimeMillis() < end)
+			Thread.sleep(5);
+		assertTrue(stream.isClosed());
+		assertEquals(0, action.getNbStreams());
+		assertEquals(0, jobList.getPhaseBroadcaster().getNbListeners());
+
+		// A stream on finished jobs just sends their phase:
+		out = new ByteArrayOutputStream();
+		stream = action.new EventStream(jobList, null, Arrays.asList(job1), out, null);
+		stream.start();
+		waitFor(out, "retry: 5000\n\n" + event(job1, null, ExecutionPhase.COMPLETED));
+		end = System.currentTimeMillis() + 5000;
+		while(!stream.isClosed() && System.currentTimeMillis() < end)
+			Thread.sleep(5);
+		assertTrue(stream.isClosed());
+	}
+
+	@Test
+	public void testAllJobs() throws Exception{
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EventStream stream = action.new EventStream(jobList, null, null, out, null);
+		stream.start();
+
+		job1.setPhase(ExecutionPhase.QUEUED, true);
+		job2.setPhase(ExecutionPhase.ABORTED, true);
+		waitFor(out, "retry: 5000\n\n" + event(job1, ExecutionPhase.PENDING, ExecutionPhase.QUEUED) + event(job2, ExecutionPhase.PENDING, ExecutionPhase.ABORTED));
+
+		// The stream stays open until closed by the client or the service:
+		assertFalse(stream.isClosed());
+		action.stop();
+		assertTrue(stream.isClosed());
+		assertEquals(0, jobList.getPhaseBroadcaster().getNbListeners());
+
+		// Closed streams do not receive anything anymore:
+		job1.setPhase(ExecutionPhase.EXECUTING, true);
+		Thread.sleep(50);
+		assertEquals("retry: 5000\n\n" + event(job1, ExecutionPhase.PENDING, ExecutionPhase.QUEUED) + event(job2, ExecutionPhase.PENDING, ExecutionPhase.ABORTED), out.toString("UTF-8"));
+	}
+
+	@Test
+	public void testSlowSubscriber() throws Exception{
+		action.setMaxPendingEvents(3);
+
+		// Subscriber blocking the writing until released:
+		final CountDownLatch release = new CountDownLatch(1);
+		OutputStream out = new OutputStream(){
+			@Override
+			public void write(final int b) throws IOException{
+				try{
+					release.await();
+				}catch(InterruptedException ie){
+					throw new IOException(ie);
+				}
+			}
+		};
+		EventStream stream = action.new EventStream(jobList, null, null, out, null);
+		stream.start();
+		Thread.sleep(50);
+
+		// Too many events waiting => the subscriber is disconnected:
+		job1.setPhase(ExecutionPhase.QUEUED, true);
+		job1.setPhase(ExecutionPhase.EXECUTING, true);
+		job1.setPhase(ExecutionPhase.COMPLETED, true);
+		job1.setPhase(ExecutionPhase.ARCHIVED, true);
+		assertTrue(stream.isClosed());
+		assertEquals(0, action.getNbStreams());
+		assertEquals(0, jobList.getPhaseBroadcaster().getNbListeners());
+		release.countDown();
+	}
+
+	@Test
+	public void testStalledSubscriber() throws Exception{
+		action.setWriteTimeout(200);
+
+		// Subscriber never reading its events:
+		final CountDownLatch release = new CountDownLatch(1);
+		OutputStream stalledOut = new OutputStream(){
+			@Override
+			public void write(final int b) throws IOException{
+				try{
+					release.await();
+				}catch(InterruptedException ie){
+					throw new IOException(ie);
+				}
+			}
+		};
+		EventStream stalled = action.new EventStream(jobList, null, null, stalledOut, null);
+		stalled.start();
+
+		// ...does not prevent the other subscribers from receiving theirs:
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		EventStream stream = action.new EventStream(jobList, null, null, out, null);
+		stream.start();
+		job1.setPhase(ExecutionPhase.QUEUED, true);
+		job1.setPhase(ExecutionPhase.EXECUTING, true);
+		waitFor(out, "retry: 5000\n\n" + event(job1, ExecutionPhase.PENDING, ExecutionPhase.QUEUED) + event(job1, ExecutionPhase.QUEUED, ExecutionPhase.EXECUTING));
+
+		// ...and is disconnected after the write timeout:
+		long end = System.currentTimeMillis() + 5000;
+		while(!stalled.isClosed() && System.currentTimeMillis() < end)
+			Thread.sleep(5);
+		assertTrue(stalled.isClosed());
+		assertFalse(stream.isClosed());
+		assertEquals(1, action.getNbStreams());
+
+		job2.setPhase(ExecutionPhase.ABORTED, true);
+		waitFor(out, "retry: 5000\n\n" + event(job1, ExecutionPhase.PENDING, ExecutionPhase.QUEUED) + event(job1, ExecutionPhase.QUEUED, ExecutionPhase.EXECUTING) + event(job2, ExecutionPhase.PENDING, ExecutionPhase.ABORTED));
+		release.countDown();
+	}
+
+}
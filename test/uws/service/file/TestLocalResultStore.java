@@ -0,0 +1,175 @@
+package uws.service.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import uws.job.Result;
+import uws.job.UWSJob;
+import uws.job.parameters.UWSParameters;
+import uws.service.file.io.AtomicFileOutputStream;
+
+public class TestLocalResultStore {
+
+	private File root;
+
+	@Before
+	public void setUp() throws Exception{
+		root = Files.createTempDirectory("resultStore").toFile();
+	}
+
+	@After
+	public void tearDown() throws Exception{
+		delete(root);
+	}
+
+	private static void delete(final File f){
+		File[] children = f.listFiles();
+		if (children != null){
+			for(File child : children)
+				delete(child);
+		}
+		f.delete();
+	}
+
+	private static void write(final ResultStore store, final String key, final String content) throws IOException{
+		OutputStream output = store.getOutput(key, 0, false);
+		try{
+			output.write(content.getBytes("UTF-8"));
+		}finally{
+			output.close();
+		}
+	}
+
+	private static String read(final ResultStore store, final String key) throws IOException{
+		InputStream input = store.getInput(key);
+		if (input == null)
+			return null;
+		try{
+			ByteArrayOutputStream buf = new ByteArrayOutputStream();
+			byte[] bytes = new byte[1024];
+			int n;
+			while((n = input.read(bytes)) > 0)
+				buf.write(bytes, 0, n);
+			return buf.toString("UTF-8");
+		}finally{
+			input.close();
+		}
+	}
+
+	private int countContents(){
+		int nb = 0;
+		File[] dirs = new File(root, "content").listFiles();
+		for(File dir : dirs){
+			for(File f : dir.listFiles()){
+				if (f.isFile())
+					nb++;
+			}
+		}
+		return nb;
+	}
+
+	@Test
+	public void testDeduplication() throws Exception{
+		LocalResultStore store = new LocalResultStore(root);
+
+		write(store, "jdoe/job1_result.xml", "<VOTABLE/>");
+		write(store, "jdoe/job2_result.xml", "<VOTABLE/>");
+		write(store, "jdoe/job3_result.xml", "<VOTABLE>other</VOTABLE>");
+
+		// The same content is stored only once:
+		assertNotNull(store.getHash("jdoe/job1_result.xml"));
+		assertEquals(store.getHash("jdoe/job1_result.xml"), store.getHash("jdoe/job2_result.xml"));
+		assertFalse(store.getHash("jdoe/job1_result.xml").equals(store.getHash("jdoe/job3_result.xml")));
+		assertEquals(2, countContents());
+		assertEquals(10, store.getSize("jdoe/job2_result.xml"));
+		assertEquals("<VOTABLE/>", read(store, "jdoe/job2_result.xml"));
+		assertEquals(0, new File(root, "tmp").list().length);
+
+		// Deleting one reference keeps the content:
+		assertTrue(store.delete("jdoe/job1_result.xml"));
+		assertFalse(store.delete("jdoe/job1_result.xml"));
+		assertNull(store.getInput("jdoe/job1_result.xml"));
+		assertEquals(-1, store.getSize("jdoe/job1_result.xml"));
+		assertEquals("<VOTABLE/>", read(store, "jdoe/job2_result.xml"));
+		assertEquals(2, countContents());
+
+		// ...but deleting the last one removes it:
+		assertTrue(store.delete("jdoe/job2_result.xml"));
+		assertEquals(1, countContents());
+
+		// A new store on the same directory sees the remaining results:
+		assertEquals("<VOTABLE>other</VOTABLE>", read(new LocalResultStore(root), "jdoe/job3_result.xml"));
+	}
+
+	@Test
+	public void testOverwrite() throws Exception{
+		LocalResultStore store = new LocalResultStore(root);
+
+		write(store, "result", "first");
+		String firstHash = store.getHash("result");
+		write(store, "result", "second");
+
+		// The former content is released:
+		assertFalse(firstHash.equals(store.getHash("result")));
+		assertEquals("second", read(store, "result"));
+		assertEquals(1, countContents());
+
+		// Writing the same content again does not count twice the reference:
+		write(store, "result", "second");
+		assertTrue(store.delete("result"));
+		assertEquals(0, countContents());
+	}
+
+	@Test
+	public void testAbortedWrite() throws Exception{
+		LocalUWSFileManager fileManager = new LocalUWSFileManager(new File(root, "uws"));
+		fileManager.setResultStore(new LocalResultStore(new File(root, "store")));
+		fileManager.setResultBufferSize(4);
+		UWSJob job = new UWSJob(new UWSParameters());
+		Result result = new Result(job, "result");
+
+		// A first complete result:
+		OutputStream output = fileManager.getResultOutput(result, job);
+		output.write("first".getBytes("UTF-8"));
+		output.close();
+
+		// A failing writing (bigger than the buffer, so partially written) is aborted:
+		output = fileManager.getResultOutput(result, job);
+		assertTrue(output instanceof AtomicFileOutputStream);
+		output.write("partial content".getBytes("UTF-8"));
+		output.write('!');
+		((AtomicFileOutputStream)output).abort();
+
+		// ...nothing is stored and the former content is kept:
+		assertEquals(5, fileManager.getResultSize(result, job));
+		InputStream input = fileManager.getResultInput(result, job);
+		try{
+			byte[] bytes = new byte[10];
+			assertEquals(5, input.read(bytes));
+			assertEquals("first", new String(Arrays.copyOf(bytes, 5), "UTF-8"));
+		}finally{
+			input.close();
+		}
+		assertEquals(0, new File(root, "store/tmp").list().length);
+
+		// ...and a closed aborted stream does not store anything either:
+		output.close();
+		assertEquals(5, fileManager.getResultSize(result, job));
+	}
+
+}
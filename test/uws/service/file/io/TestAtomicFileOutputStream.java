@@ -0,0 +1,97 @@
+package uws.service.file.io;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestAtomicFileOutputStream {
+
+	private File dir;
+
+	@Before
+	public void setUp() throws Exception{
+		dir = Files.createTempDirectory("atomicOutput").toFile();
+	}
+
+	@After
+	public void tearDown() throws Exception{
+		for(File f : dir.listFiles())
+			f.delete();
+		dir.delete();
+	}
+
+	@Test
+	public void testWriteAndClose() throws Exception{
+		File target = new File(dir, "result.xml");
+		AtomicFileOutputStream out = new AtomicFileOutputStream(target, 16, true);
+
+		// Mix of single bytes, small chunks and chunks bigger than the buffer:
+		byte[] expected = new byte[100];
+		for(int i = 0; i < expected.length; i++)
+			expected[i] = (byte)i;
+		out.write(expected, 0, 5);
+		out.write(expected[5]);
+		out.write(expected, 6, 40);
+		out.write(expected, 46, 10);
+		out.write(expected, 56, 44);
+
+		// Nothing under the final name until closed:
+		assertFalse(target.exists());
+		assertTrue(out.getTempFile().exists());
+		assertEquals(dir.getAbsoluteFile(), out.getTempFile().getParentFile());
+
+		out.close();
+		assertTrue(target.exists());
+		assertFalse(out.getTempFile().exists());
+		assertArrayEquals(expected, Files.readAllBytes(target.toPath()));
+
+		// Closing again has no effect, but writing is not possible anymore:
+		out.close();
+		try{
+			out.write(1);
+			fail("The stream is closed: writing should have failed!");
+		}catch(IOException ioe){
+			assertEquals("Stream closed!", ioe.getMessage());
+		}
+
+		// An existing file is replaced:
+		out = new AtomicFileOutputStream(target);
+		out.write(new byte[]{ 1, 2, 3 });
+		out.close();
+		assertArrayEquals(new byte[]{ 1, 2, 3 }, Files.readAllBytes(target.toPath()));
+		assertEquals(1, dir.listFiles().length);
+	}
+
+	@Test
+	public void testAbort() throws Exception{
+		File target = new File(dir, "result.csv");
+		AtomicFileOutputStream out = new AtomicFileOutputStream(target, 4, false);
+		out.write(new byte[]{ 1, 2, 3, 4, 5, 6 });
+		out.abort();
+
+		assertFalse(target.exists());
+		assertEquals(0, dir.listFiles().length);
+
+		// Closing after an abort does not publish anything:
+		out.close();
+		assertFalse(target.exists());
+
+		// Aborting after a successful close does not delete the result:
+		out = new AtomicFileOutputStream(target);
+		out.write(7);
+		out.close();
+		out.abort();
+		assertArrayEquals(new byte[]{ 7 }, Files.readAllBytes(target.toPath()));
+	}
+
+}
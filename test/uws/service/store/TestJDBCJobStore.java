@@ -0,0 +1,210 @@
+package uws.service.store;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import uws.job.ErrorSummary;
+import uws.job.ErrorType;
+import uws.job.ExecutionPhase;
+import uws.job.JobList;
+import uws.job.Result;
+import uws.job.UWSJob;
+import uws.job.parameters.UWSParameters;
+import uws.job.user.DefaultJobOwner;
+
+public class TestJDBCJobStore {
+
+	private static JdbcDataSource dataSource;
+
+	@BeforeClass
+	public static void setUpBeforeClass() throws Exception{
+		dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:testJDBCJobStore;DB_CLOSE_DELAY=-1");
+		new JDBCJobStore(dataSource, "A").createTables();
+		// a second call must not fail:
+		new JDBCJobStore(dataSource, "A").createTables();
+	}
+
+	private static UWSJob createJob(final String query) throws Exception{
+		Map<String,Object> params = new HashMap<String,Object>();
+		params.put(UWSJob.PARAM_RUN_ID, "myRun");
+		params.put("QUERY", query);
+		params.put("FORMAT", new String[]{ "votable", "csv" });
+		return new UWSJob(new DefaultJobOwner("jdoe", "John Doe"), new UWSParameters(params));
+	}
+
+	@Test
+	public void testSaveAndLoad() throws Exception{
+		JobStore nodeA = new JDBCJobStore(dataSource, "A");
+		JobStore nodeB = new JDBCJobStore(dataSource, "B");
+		JobList list = new JobList("saveAndLoad");
+
+		// Save a job on the node A:
+		UWSJob job = createJob("SELECT * FROM foo");
+		assertEquals(1, nodeA.save(list.getName(), job));
+		assertEquals(2, nodeA.save(list.getName(), job));
+
+		// It must be visible on the node B:
+		Map<String,Long> versions = nodeB.getVersions(list.getName());
+		assertEquals(1, versions.size());
+		assertEquals(Long.valueOf(2), versions.get(job.getJobId()));
+		assertTrue(nodeB.getVersions("anotherList").isEmpty());
+
+		UWSJob loaded = nodeB.load(list, job.getJobId());
+		assertNotNull(loaded);
+		assertEquals(job.getJobId(), loaded.getJobId());
+		assertEquals(ExecutionPhase.PENDING, loaded.getPhase());
+		assertEquals("jdoe", loaded.getOwner().getID());
+		assertEquals("John Doe", loaded.getOwner().getPseudo());
+		assertEquals("myRun", loaded.getRunId());
+		assertEquals(job.getCreationTime(), loaded.getCreationTime());
+		assertEquals(job.getExecutionDuration(), loaded.getExecutionDuration());
+		assertEquals(job.getDestructionTime(), loaded.getDestructionTime());
+		assertEquals("SELECT * FROM foo", loaded.getAdditionalParameterValue("QUERY"));
+		Object[] formats = (Object[])loaded.getAdditionalParameterValue("FORMAT");
+		assertEquals(2, formats.length);
+		assertEquals("votable", formats[0]);
+		assertEquals("csv", formats[1]);
+
+		// Unknown job:
+		assertNull(nodeB.load(list, "unknown"));
+		assertEquals(-1, nodeB.getVersion(list.getName(), "unknown"));
+
+		// Remove it:
+		assertTrue(nodeB.remove(list.getName(), job.getJobId()));
+		assertFalse(nodeA.remove(list.getName(), job.getJobId()));
+		assertNull(nodeA.load(list, job.getJobId()));
+	}
+
+	@Test
+	public void testUpdatePhase() throws Exception{
+		JobStore nodeA = new JDBCJobStore(dataSource, "A");
+		JobStore nodeB = new JDBCJobStore(dataSource, "B");
+		JobList list = new JobList("updatePhase");
+
+		UWSJob job = createJob("SELECT * FROM bar");
+		nodeA.save(list.getName(), job);
+
+		// PENDING -> QUEUED:
+		job.setPhase(ExecutionPhase.QUEUED);
+		assertEquals(2, nodeA.updatePhase(list.getName(), job, ExecutionPhase.PENDING));
+
+		// The node B has a stale copy (still PENDING) => conflict:
+		UWSJob copy = createJob("SELECT * FROM bar");
+		copy.setPhase(ExecutionPhase.ABORTED, true);
+		assertEquals(-1, nodeB.updatePhase(list.getName(), copy, ExecutionPhase.PENDING));
+		assertEquals(2, nodeB.getVersion(list.getName(), job.getJobId()));
+
+		// QUEUED -> EXECUTING -> ERROR (with an error summary):
+		job.setPhase(ExecutionPhase.EXECUTING);
+		assertEquals(3, nodeA.updatePhase(list.getName(), job, ExecutionPhase.QUEUED));
+		UWSJob loaded = nodeB.load(list, job.getJobId());
+		assertEquals(ExecutionPhase.EXECUTING, loaded.getPhase());
+		assertNotNull(loaded.getStartTime());
+
+		job.setErrorSummary(new ErrorSummary("Table not found!", ErrorType.FATAL));
+		job.setPhase(ExecutionPhase.ERROR);
+		assertEquals(4, nodeA.updatePhase(list.getName(), job, ExecutionPhase.EXECUTING));
+		loaded = nodeB.load(list, job.getJobId());
+		assertEquals(ExecutionPhase.ERROR, loaded.getPhase());
+		assertEquals("Table not found!", loaded.getErrorSummary().getMessage());
+		assertEquals(ErrorType.FATAL, loaded.getErrorSummary().getType());
+		assertNotNull(loaded.getEndTime());
+
+		nodeA.remove(list.getName(), job.getJobId());
+	}
+
+	@Test
+	public void testResults() throws Exception{
+		JobStore nodeA = new JDBCJobStore(dataSource, "A");
+		JobList list = new JobList("results");
+
+		ArrayList<Result> results = new ArrayList<Result>();
+		Result r = new Result("result", "votable", "http://foo.org/result.xml", true);
+		r.setMimeType("application/x-votable+xml");
+		r.setSize(1024);
+		results.add(r);
+		UWSJob job = new UWSJob("myJob", System.currentTimeMillis(), null, new UWSParameters(), 0, System.currentTimeMillis() - 1000, System.currentTimeMillis(), results, null);
+		assertEquals(ExecutionPhase.COMPLETED, job.getPhase());
+		nodeA.save(list.getName(), job);
+
+		UWSJob loaded = nodeA.load(list, "myJob");
+		assertEquals(ExecutionPhase.COMPLETED, loaded.getPhase());
+		assertNull(loaded.getOwner());
+		Iterator<Result> it = loaded.getResults();
+		assertTrue(it.hasNext());
+		Result loadedResult = it.next();
+		assertFalse(it.hasNext());
+		assertEquals("result", loadedResult.getId());
+		assertEquals("votable", loadedResult.getType());
+		assertEquals("http://foo.org/result.xml", loadedResult.getHref());
+		assertTrue(loadedResult.isRedirectionRequired());
+		assertEquals("application/x-votable+xml", loadedResult.getMimeType());
+		assertEquals(1024, loadedResult.getSize());
+
+		nodeA.remove(list.getName(), "myJob");
+	}
+
+	@Test
+	public void testClaim() throws Exception{
+		JobStore nodeA = new JDBCJobStore(dataSource, "A");
+		JobStore nodeB = new JDBCJobStore(dataSource, "B");
+		JobList list = new JobList("claim");
+
+		UWSJob job1 = new UWSJob("job1", 1000, null, new UWSParameters(), 0, -1, -1, null, null);
+		UWSJob job2 = new UWSJob("job2", 2000, null, new UWSParameters(), 0, -1, -1, null, null);
+		UWSJob job3 = new UWSJob("job3", 3000, null, new UWSParameters(), 0, -1, -1, null, null);
+		nodeA.save(list.getName(), job2);
+		nodeA.save(list.getName(), job1);
+		nodeA.save(list.getName(), job3);
+
+		// Only PENDING jobs => nothing to claim in the queue:
+		assertNull(nodeB.claimNext(list.getName()));
+		assertNull(nodeB.getClaimingNode(list.getName(), "job1"));
+		assertNull(nodeB.getClaimingNode(list.getName(), "unknown"));
+
+		// Queue all of them:
+		for(UWSJob job : new UWSJob[]{ job1, job2, job3 }){
+			job.setPhase(ExecutionPhase.QUEUED);
+			nodeA.updatePhase(list.getName(), job, ExecutionPhase.PENDING);
+		}
+
+		// A job can be claimed only once:
+		long version = nodeA.claim(list.getName(), "job2");
+		assertEquals(nodeA.getVersion(list.getName(), "job2"), version);
+		assertEquals(version + 1, nodeA.claim(list.getName(), "job2"));
+		assertEquals(-1, nodeB.claim(list.getName(), "job2"));
+		assertEquals("A", nodeB.getClaimingNode(list.getName(), "job2"));
+
+		// The oldest not claimed queued jobs come first:
+		assertEquals("job1", nodeB.claimNext(list.getName()));
+		assertEquals(-1, nodeA.claim(list.getName(), "job1"));
+		assertEquals("B", nodeA.getClaimingNode(list.getName(), "job1"));
+		assertEquals("job3", nodeB.claimNext(list.getName()));
+		assertNull(nodeA.claimNext(list.getName()));
+
+		// A claimed job keeps its phase (it is changed when started):
+		assertEquals(ExecutionPhase.QUEUED, nodeA.load(list, "job1").getPhase());
+
+		// An executing job can not be claimed:
+		job2.setPhase(ExecutionPhase.EXECUTING);
+		assertTrue(nodeA.updatePhase(list.getName(), job2, ExecutionPhase.QUEUED) > 0);
+		assertEquals(-1, nodeA.claim(list.getName(), "job2"));
+
+		for(String id : new String[]{ "job1", "job2", "job3" })
+			nodeA.remove(list.getName(), id);
+	}
+
+}